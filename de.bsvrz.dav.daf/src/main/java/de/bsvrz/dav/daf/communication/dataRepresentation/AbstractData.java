@@ -612,7 +612,7 @@ public abstract class AbstractData implements Data {
 			setSystemObjectPid(objectPid, getDataModel());
 		}
 
-		abstract boolean tryToStorePid(final String objectPid);
+		protected abstract boolean tryToStorePid(final String objectPid);
 
 		public String getSystemObjectPid() {
 			final SystemObject systemObject = getSystemObject();
@@ -624,7 +624,7 @@ public abstract class AbstractData implements Data {
 			}
 		}
 
-		abstract String getStoredPid();
+		protected abstract String getStoredPid();
 	}
 
 	/** Subklasse von <code>AbstarctData</code>, abgeleitet von <code>AbstractData.TextValueext</code> zur Bestimmung der Zeit. */
@@ -1160,7 +1160,7 @@ public abstract class AttributeBaseValueDataFactory {
 				return _attributeValue.getAttribute().getDataModel();
 			}
 
-			boolean tryToStorePid(final String objectPid) {
+			protected boolean tryToStorePid(final String objectPid) {
 				final ReferenceAttributeType att = ((ReferenceAttributeType)getAttributeType());
 				if(att.getReferenceType() == ReferenceType.ASSOCIATION) {
 					_attributeValue.setValue(new LongAndStringAttribute(0, objectPid));
@@ -1171,7 +1171,7 @@ public abstract class AttributeBaseValueDataFactory {
 				}
 			}
 
-			String getStoredPid() {
+			protected String getStoredPid() {
 				final Object dataValue = _attributeValue.getValue();
 				if(dataValue instanceof LongAndStringAttribute) {
 					LongAndStringAttribute longAndString = (LongAndStringAttribute)dataValue;
@@ -1752,7 +1752,7 @@ public abstract class AttributeBaseValueDataFactory {
 					return _ids[_itemIndex];
 				}
 
-				boolean tryToStorePid(final String objectPid) {
+				protected boolean tryToStorePid(final String objectPid) {
 					final ReferenceAttributeType att = ((ReferenceAttributeType)getAttributeType());
 					if(att.getReferenceType() == ReferenceType.ASSOCIATION) {
 						if(_pids == null) _pids = new HashMap<Integer, String>();
@@ -1764,7 +1764,7 @@ public abstract class AttributeBaseValueDataFactory {
 					}
 				}
 
-				String getStoredPid() {
+				protected String getStoredPid() {
 					if(_pids != null) {
 						String pid = _pids.get(_itemIndex);
 						if(pid != null) return pid;
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.daf.communication.dataRepresentation.data;
+
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.AttributeGroup;
+import de.bsvrz.dav.daf.main.config.AttributeGroupUsage;
+import de.bsvrz.dav.daf.main.config.DataModel;
+
+/**
+ * Empfangener Datensatz in serialisierter Form, der erst beim ersten Zugriff mit {@link #getData()} in ein {@link Data}-Objekt umgewandelt wird. Die
+ * Attributgruppe wird dabei ebenfalls erst beim ersten Zugriff über die Attributgruppenverwendung ermittelt. Datensätze, die vor dem ersten Zugriff durch
+ * neuere Datensätze ersetzt werden, verursachen so keinen Aufwand für die Umwandlung.
+ * <p>
+ * Das erzeugte Data-Objekt wird gespeichert und bei weiteren Zugriffen wiederverwendet. Die Klasse ist threadsicher, so dass ein Objekt von mehreren
+ * Ergebnisdatensätzen und Threads gemeinsam benutzt werden kann.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public final class LazyData {
+
+	/** Serialisierter Datensatz */
+	private final byte[] _bytes;
+
+	/** Datenmodell zur Bestimmung der Attributgruppe */
+	private final DataModel _dataModel;
+
+	/** Identifizierung der Attributgruppenverwendung des Datensatzes */
+	private final long _usageIdentification;
+
+	/** Umgewandelter Datensatz oder <code>null</code>, falls noch nicht auf den Datensatz zugegriffen wurde. */
+	private volatile Data _data;
+
+	/**
+	 * Erzeugt ein neues Objekt für einen serialisierten Datensatz.
+	 *
+	 * @param bytes               Serialisierter Datensatz in Version 1
+	 * @param dataModel           Datenmodell, über das die Attributgruppe ermittelt wird
+	 * @param usageIdentification Identifizierung der Attributgruppenverwendung des Datensatzes
+	 */
+	public LazyData(final byte[] bytes, final DataModel dataModel, final long usageIdentification) {
+		if(bytes == null || dataModel == null) throw new IllegalArgumentException("Falsche Übergabeparameter");
+		_bytes = bytes;
+		_dataModel = dataModel;
+		_usageIdentification = usageIdentification;
+	}
+
+	/**
+	 * Liefert den serialisierten Datensatz.
+	 *
+	 * @return Serialisierter Datensatz, das Byte-Array darf nicht verändert werden.
+	 */
+	public byte[] getBytes() {
+		return _bytes;
+	}
+
+	/**
+	 * Liefert den Datensatz. Beim ersten Aufruf wird der Datensatz aus der serialisierten Form erzeugt, bei weiteren Aufrufen wird dasselbe Objekt
+	 * zurückgegeben.
+	 *
+	 * @return Nicht modifizierbarer Datensatz
+	 */
+	public Data getData() {
+		Data data = _data;
+		if(data == null) {
+			synchronized(this) {
+				data = _data;
+				if(data == null) {
+					data = DataFactory.forVersion(1).createUnmodifiableData(getAttributeGroup(), _bytes);
+					_data = data;
+				}
+			}
+		}
+		return data;
+	}
+
+	private AttributeGroup getAttributeGroup() {
+		final AttributeGroupUsage usage = _dataModel.getAttributeGroupUsage(_usageIdentification);
+		if(usage == null) {
+			throw new IllegalStateException("Attributgruppenverwendung mit der Id " + _usageIdentification + " nicht gefunden");
+		}
+		return usage.getAttributeGroup();
+	}
+
+	@Override
+	public String toString() {
+		return "LazyData{" + "usageIdentification=" + _usageIdentification + ", length=" + _bytes.length + ", decoded=" + (_data != null) + "}";
+	}
+}
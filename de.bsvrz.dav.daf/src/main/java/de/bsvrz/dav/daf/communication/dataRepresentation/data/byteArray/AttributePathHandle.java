@@ -0,0 +1,359 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.AttributeDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.AttributeInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.AttributeGroupInfo;
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.AttributeGroup;
+import de.bsvrz.dav.daf.main.config.IntegerAttributeType;
+import de.bsvrz.dav.daf.main.config.IntegerValueState;
+import de.bsvrz.dav.daf.main.config.SystemObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vorübersetzter Zugriffspfad auf ein einfaches Attribut eines Datensatzes. Der Pfad wird einmalig mit {@link #compile(AttributeGroup, String)} aufgelöst,
+ * danach werden die Werte ohne Namensauflösung und ohne Erzeugung von Zwischenobjekten direkt an der berechneten Position im Byte-Array des Datensatzes
+ * gelesen bzw. geschrieben. Liegen alle Attribute auf dem Pfad an einer festen Position, dann wird die Position nur einmal beim Übersetzen berechnet.
+ * <p>
+ * Lesende Zugriffe sind für alle Datensätze möglich, die als {@link ByteArrayData} vorliegen (z.B. empfangene Datensätze). Schreibende Zugriffe sind nur bei
+ * Datensätzen möglich, die mit {@link de.bsvrz.dav.daf.main.ClientDavInterface#createData} als {@link ModifiableByteArrayListData} erzeugt wurden.
+ * <p>
+ * Beispiel: <code>AttributePathHandle handle = AttributePathHandle.compile(atg, "Messwert.Wert");</code> und anschließend für jeden empfangenen Datensatz
+ * <code>handle.getUnscaledValue(resultData.getData())</code>.
+ * <p>
+ * Objekte dieser Klasse sind unveränderlich und können von mehreren Threads gleichzeitig benutzt werden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public final class AttributePathHandle {
+
+	private final String _attributeGroupPid;
+
+	private final AttributeInfo _attributeGroupInfo;
+
+	private final String _path;
+
+	/** Attribute auf dem Pfad, beginnend unterhalb der Attributgruppe */
+	private final AttributeInfo[] _infos;
+
+	/** Array-Index je Pfadelement oder -1, wenn das Pfadelement kein Array ist */
+	private final int[] _indices;
+
+	/** Feste Position des Attributs relativ zum Anfang des Datensatzes oder -1, wenn die Position vom Inhalt des Datensatzes abhängt */
+	private final int _fixedOffset;
+
+	private final AttributeDefinitionInfo _definitionInfo;
+
+	private AttributePathHandle(
+			final String attributeGroupPid, final AttributeInfo attributeGroupInfo, final String path, final AttributeInfo[] infos, final int[] indices) {
+		_attributeGroupPid = attributeGroupPid;
+		_attributeGroupInfo = attributeGroupInfo;
+		_path = path;
+		_infos = infos;
+		_indices = indices;
+		_definitionInfo = infos[infos.length - 1].getDefinitionInfo();
+		int fixedOffset = 0;
+		for(int i = 0; i < infos.length; i++) {
+			if(indices[i] >= 0 || infos[i].getOffsetReferral() != null) {
+				fixedOffset = -1;
+				break;
+			}
+			fixedOffset += infos[i].getRelativeOffset();
+		}
+		_fixedOffset = fixedOffset;
+	}
+
+	/**
+	 * Übersetzt einen Attributpfad. Die Namen der Attribute werden durch Punkte getrennt, Elemente von Arrays werden mit einem Index in eckigen Klammern
+	 * angegeben, z.B. <code>"Liste.Werte[2].Wert"</code>.
+	 *
+	 * @param attributeGroup Attributgruppe der Datensätze, auf die zugegriffen werden soll
+	 * @param path           Attributpfad unterhalb der Attributgruppe
+	 *
+	 * @return Vorübersetzter Zugriffspfad
+	 *
+	 * @throws IllegalArgumentException Wenn der Pfad nicht existiert oder nicht auf ein einfaches Attribut bzw. Array-Element führt.
+	 */
+	public static AttributePathHandle compile(final AttributeGroup attributeGroup, final String path) {
+		final AttributeInfo attributeGroupInfo = AttributeGroupInfo.forAttributeGroup(attributeGroup);
+		final List<AttributeInfo> infos = new ArrayList<AttributeInfo>();
+		final List<Integer> indices = new ArrayList<Integer>();
+		AttributeInfo info = attributeGroupInfo;
+		for(String segment : path.split("\\.")) {
+			segment = segment.trim();
+			int index = -1;
+			final int bracket = segment.indexOf('[');
+			if(bracket >= 0) {
+				if(!segment.endsWith("]")) throw new IllegalArgumentException("Ungültiger Attributpfad " + path + ": " + segment);
+				try {
+					index = Integer.parseInt(segment.substring(bracket + 1, segment.length() - 1).trim());
+				}
+				catch(NumberFormatException e) {
+					throw new IllegalArgumentException("Ungültiger Array-Index im Attributpfad " + path + ": " + segment);
+				}
+				if(index < 0) throw new IllegalArgumentException("Negativer Array-Index im Attributpfad " + path + ": " + segment);
+				segment = segment.substring(0, bracket).trim();
+			}
+			if(info.isArray() && indices.get(indices.size() - 1) < 0) {
+				throw new IllegalArgumentException("Im Attributpfad " + path + " fehlt der Index für das Array " + info.getName());
+			}
+			if(!info.getDefinitionInfo().isList()) {
+				throw new IllegalArgumentException("Im Attributpfad " + path + " hat das Attribut " + info.getName() + " keine Unterattribute");
+			}
+			info = info.getDefinitionInfo().getItem(segment);
+			if(index >= 0 && !info.isArray()) {
+				throw new IllegalArgumentException("Im Attributpfad " + path + " ist das Attribut " + info.getName() + " kein Array");
+			}
+			infos.add(info);
+			indices.add(index);
+		}
+		if(info.isArray() && indices.get(indices.size() - 1) < 0) {
+			throw new IllegalArgumentException("Im Attributpfad " + path + " fehlt der Index für das Array " + info.getName());
+		}
+		if(info.getDefinitionInfo().isList()) {
+			throw new IllegalArgumentException("Der Attributpfad " + path + " führt nicht auf ein einfaches Attribut");
+		}
+		final int[] indexArray = new int[indices.size()];
+		for(int i = 0; i < indexArray.length; i++) {
+			indexArray[i] = indices.get(i);
+		}
+		return new AttributePathHandle(attributeGroup.getPid(), attributeGroupInfo, path, infos.toArray(new AttributeInfo[infos.size()]), indexArray);
+	}
+
+	/**
+	 * Liefert den Attributpfad, aus dem dieses Objekt erzeugt wurde.
+	 *
+	 * @return Attributpfad
+	 */
+	public String getPath() {
+		return _path;
+	}
+
+	/**
+	 * Bestimmt, ob die Position des Attributs im Datensatz fest ist und deshalb beim Zugriff nicht berechnet werden muss.
+	 *
+	 * @return <code>true</code>, wenn die Position fest ist, sonst <code>false</code>.
+	 */
+	public boolean isOffsetFixed() {
+		return _fixedOffset >= 0;
+	}
+
+	private ByteArrayData check(final Data data) {
+		if(!(data instanceof ByteArrayData)) {
+			throw new IllegalArgumentException("Der Datensatz liegt nicht als Byte-Array vor: " + (data == null ? "null" : data.getClass().getName()));
+		}
+		final ByteArrayData byteArrayData = (ByteArrayData)data;
+		if(byteArrayData._info != _attributeGroupInfo && !_attributeGroupPid.equals(byteArrayData._info.getName())) {
+			throw new IllegalArgumentException("Der Datensatz " + data.getName() + " passt nicht zur Attributgruppe " + _attributeGroupPid);
+		}
+		return byteArrayData;
+	}
+
+	private int offset(final ByteArrayData data) {
+		if(_fixedOffset >= 0) return data._offset + _fixedOffset;
+		final byte[] bytes = data._bytes;
+		int offset = data._offset;
+		for(int i = 0; i < _infos.length; i++) {
+			final AttributeInfo info = _infos[i];
+			offset = info.getAbsoluteOffset(bytes, offset);
+			if(_indices[i] >= 0) offset = info.getAbsoluteElementOffset(bytes, offset, _indices[i]);
+		}
+		return offset;
+	}
+
+	private ModifiableByteArrayListData checkModifiable(final Data data) {
+		if(!(data instanceof ModifiableByteArrayListData)) {
+			throw new UnsupportedOperationException("Der Datensatz " + (data == null ? "null" : data.getName()) + " kann über den Attributpfad nicht verändert werden");
+		}
+		return (ModifiableByteArrayListData)check(data);
+	}
+
+	/**
+	 * Liefert den unskalierten Wert eines Ganzzahlattributs.
+	 *
+	 * @param data Datensatz der Attributgruppe
+	 *
+	 * @return Unskalierter Wert
+	 */
+	public long getUnscaledValue(final Data data) {
+		final ByteArrayData byteArrayData = check(data);
+		return _definitionInfo.unscaledLongValue(byteArrayData._bytes, offset(byteArrayData));
+	}
+
+	/**
+	 * Liefert den skalierten Wert eines Zahlattributs.
+	 *
+	 * @param data Datensatz der Attributgruppe
+	 *
+	 * @return Skalierter Wert
+	 */
+	public double getScaledValue(final Data data) {
+		final ByteArrayData byteArrayData = check(data);
+		return _definitionInfo.doubleValue(byteArrayData._bytes, offset(byteArrayData));
+	}
+
+	/**
+	 * Liefert den Zustand eines Ganzzahlattributs.
+	 *
+	 * @param data Datensatz der Attributgruppe
+	 *
+	 * @return Zustand oder <code>null</code>, wenn der Wert keinem Zustand entspricht.
+	 */
+	public IntegerValueState getState(final Data data) {
+		final ByteArrayData byteArrayData = check(data);
+		return _definitionInfo.getState(byteArrayData._bytes, offset(byteArrayData));
+	}
+
+	/**
+	 * Liefert den Wert eines Zeitattributs in Millisekunden.
+	 *
+	 * @param data Datensatz der Attributgruppe
+	 *
+	 * @return Zeit in Millisekunden
+	 */
+	public long getMillis(final Data data) {
+		final ByteArrayData byteArrayData = check(data);
+		return _definitionInfo.getMillis(byteArrayData._bytes, offset(byteArrayData));
+	}
+
+	/**
+	 * Liefert die Id des von einem Referenzattribut referenzierten Objekts.
+	 *
+	 * @param data Datensatz der Attributgruppe
+	 *
+	 * @return Id des Objekts oder 0, wenn kein Objekt referenziert wird.
+	 */
+	public long getId(final Data data) {
+		final ByteArrayData byteArrayData = check(data);
+		return _definitionInfo.getId(byteArrayData._bytes, offset(byteArrayData));
+	}
+
+	/**
+	 * Liefert das von einem Referenzattribut referenzierte Objekt.
+	 *
+	 * @param data Datensatz der Attributgruppe
+	 *
+	 * @return Referenziertes Objekt oder <code>null</code>.
+	 */
+	public SystemObject getSystemObject(final Data data) {
+		final ByteArrayData byteArrayData = check(data);
+		return _definitionInfo.getSystemObject(byteArrayData._bytes, offset(byteArrayData));
+	}
+
+	/**
+	 * Liefert den Wert des Attributs als Text wie {@link Data.TextValue#getText()}.
+	 *
+	 * @param data Datensatz der Attributgruppe
+	 *
+	 * @return Wert als Text
+	 */
+	public String getText(final Data data) {
+		final ByteArrayData byteArrayData = check(data);
+		final int offset = offset(byteArrayData);
+		String valueText = _definitionInfo.getValueText(byteArrayData._bytes, offset);
+		String suffixText = _definitionInfo.getSuffixText(byteArrayData._bytes, offset);
+		if(suffixText.equals("")) return valueText;
+		if(valueText.equals("")) return suffixText;
+		return valueText + " " + suffixText;
+	}
+
+	/**
+	 * Setzt den unskalierten Wert eines Ganzzahlattributs.
+	 *
+	 * @param data  Mit {@link de.bsvrz.dav.daf.main.ClientDavInterface#createData} erzeugter Datensatz der Attributgruppe
+	 * @param value Neuer unskalierter Wert
+	 *
+	 * @throws IllegalArgumentException Wenn der Wert nicht im Attributtyp darstellbar ist.
+	 */
+	public void setUnscaledValue(final Data data, final long value) {
+		if(!_definitionInfo.isScalableNumberAttribute()) throw new UnsupportedOperationException("Das Attribut " + _path + " ist kein Ganzzahlattribut");
+		final ModifiableByteArrayListData byteArrayData = checkModifiable(data);
+		ModifiableByteArrayPrimitiveData.writeUnscaled(_definitionInfo, byteArrayData._bytes, offset(byteArrayData), value);
+	}
+
+	/**
+	 * Setzt den skalierten Wert eines Zahlattributs.
+	 *
+	 * @param data  Mit {@link de.bsvrz.dav.daf.main.ClientDavInterface#createData} erzeugter Datensatz der Attributgruppe
+	 * @param value Neuer skalierter Wert
+	 *
+	 * @throws IllegalArgumentException Wenn kein Wertebereich definiert ist oder der Wert nicht im Attributtyp darstellbar ist.
+	 */
+	public void setScaledValue(final Data data, final double value) {
+		if(!_definitionInfo.isNumberAttribute()) throw new UnsupportedOperationException("Das Attribut " + _path + " ist kein Zahl-Attribut");
+		final ModifiableByteArrayListData byteArrayData = checkModifiable(data);
+		final int offset = offset(byteArrayData);
+		if(_definitionInfo.isScalableNumberAttribute()) {
+			final long unscaled = ModifiableByteArrayPrimitiveData.toUnscaled((IntegerAttributeType)_definitionInfo.getAttributeType(), value);
+			ModifiableByteArrayPrimitiveData.writeUnscaled(_definitionInfo, byteArrayData._bytes, offset, unscaled);
+		}
+		else if(_definitionInfo.getFixedSize() == 4) {
+			ModifiableByteArrayPrimitiveData.write(byteArrayData._bytes, offset, Float.floatToIntBits((float)value), 4);
+		}
+		else {
+			ModifiableByteArrayPrimitiveData.write(byteArrayData._bytes, offset, Double.doubleToLongBits(value), 8);
+		}
+	}
+
+	/**
+	 * Setzt den Wert eines Zeitattributs.
+	 *
+	 * @param data         Mit {@link de.bsvrz.dav.daf.main.ClientDavInterface#createData} erzeugter Datensatz der Attributgruppe
+	 * @param milliSeconds Zeit in Millisekunden
+	 */
+	public void setMillis(final Data data, final long milliSeconds) {
+		if(!_definitionInfo.isTimeAttribute()) throw new UnsupportedOperationException("Das Attribut " + _path + " ist kein Zeitattribut");
+		final ModifiableByteArrayListData byteArrayData = checkModifiable(data);
+		ModifiableByteArrayPrimitiveData.writeMillis(_definitionInfo, byteArrayData._bytes, offset(byteArrayData), milliSeconds);
+	}
+
+	/**
+	 * Setzt das von einem Referenzattribut referenzierte Objekt.
+	 *
+	 * @param data   Mit {@link de.bsvrz.dav.daf.main.ClientDavInterface#createData} erzeugter Datensatz der Attributgruppe
+	 * @param object Referenziertes Objekt oder <code>null</code>
+	 *
+	 * @throws IllegalArgumentException Wenn der Referenzattributtyp Objekte dieses Typs nicht erlaubt.
+	 */
+	public void setSystemObject(final Data data, final SystemObject object) {
+		if(!_definitionInfo.isReferenceAttribute()) throw new UnsupportedOperationException("Das Attribut " + _path + " ist kein Referenzattribut");
+		final ModifiableByteArrayListData byteArrayData = checkModifiable(data);
+		final int offset = offset(byteArrayData);
+		ModifiableByteArrayPrimitiveData.writeReference(_definitionInfo, byteArrayData._bytes, offset, object, _path);
+		byteArrayData.forgetStoredPid(offset);
+	}
+
+	@Override
+	public String toString() {
+		return "AttributePathHandle{" + _attributeGroupPid + ":" + _path + "}";
+	}
+}
@@ -27,7 +27,9 @@ package de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray;
 
 import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.AttributeInfo;
 import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.AbstractAttributeInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.AttributeGroupInfo;
 import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.ReferenceDefinitionInfo;
+import de.bsvrz.dav.daf.main.config.AttributeGroup;
 import de.bsvrz.dav.daf.main.config.AttributeType;
 import de.bsvrz.dav.daf.main.Data;
 import de.bsvrz.dav.daf.main.config.StringAttributeType;
@@ -158,6 +160,16 @@ public abstract class ByteArrayData implements Data {
 		return _info;
 	}
 
+	/**
+	 * Bestimmt die Attributgruppe, wenn dieses Objekt einen vollständigen Datensatz darstellt.
+	 *
+	 * @return Attributgruppe des Datensatzes oder <code>null</code>, wenn dieses Objekt nur einen Teil eines Datensatzes darstellt.
+	 */
+	public final AttributeGroup getAttributeGroup() {
+		if(_info instanceof AttributeGroupInfo) return ((AttributeGroupInfo)_info).getAttributeGroup();
+		return null;
+	}
+
 	public String toDebugString() {
 		return getClass().getName() + "(" + toParamString() + ")";
 	}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.AttributeDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.AttributeInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.AbsoluteMillisecondsDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.AbsoluteSecondsDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.DoubleDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.NumberDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.ReferenceDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.RelativeTimeDefinitionInfo;
+import de.bsvrz.dav.daf.main.Data;
+
+import java.util.*;
+
+/**
+ * Änderbarer Datensatz bzw. änderbare Attributliste, deren Attributwerte direkt in einem Byte-Array im Format von {@link ByteArrayData} gespeichert werden.
+ * Beim Versand des Datensatzes muss deshalb keine Serialisierung über die {@link de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValue
+ * AttributeBaseValue}-Struktur erfolgen, eine unveränderliche Kopie entsteht durch Kopieren des Byte-Arrays.
+ * <p>
+ * Da die Werte an ihrer festen Position im Byte-Array überschrieben werden, wird diese Darstellung nur für Attributgruppen mit fester Größe ohne Arrays
+ * verwendet (siehe {@link #isSupported(Data)}). Für alle anderen Attributgruppen wird weiterhin die bisherige Darstellung benutzt.
+ * <p>
+ * Die Klasse ist wie die übrigen änderbaren Datensätze nicht threadsicher.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class ModifiableByteArrayListData extends ByteArrayListData {
+
+	/** Byte-Array mit den Default- bzw. undefiniert-Werten des gesamten Datensatzes, wird von {@link #setToDefault()} verwendet und nie verändert. */
+	private final byte[] _defaultBytes;
+
+	/** Pids von nicht auflösbaren optionalen Referenzen (Offset des Attributs im Byte-Array -> Pid), wird von allen Teilen eines Datensatzes gemeinsam benutzt. */
+	private final Map<Integer, String> _storedPids;
+
+	/**
+	 * Prüft, ob zu einem unveränderlichen Datensatz eine änderbare Kopie dieser Klasse erzeugt werden kann. Dies ist der Fall, wenn der Datensatz als {@link
+	 * ByteArrayData} vorliegt und die Attributgruppe eine feste Größe hat und keine Arrays enthält.
+	 *
+	 * @param data Unveränderlicher Datensatz, der als Vorlage dienen soll.
+	 *
+	 * @return <code>true</code>, wenn mit {@link #create(Data)} eine änderbare Kopie erzeugt werden kann, sonst <code>false</code>.
+	 */
+	public static boolean isSupported(final Data data) {
+		if(!(data instanceof ByteArrayData) || data instanceof ModifiableByteArrayListData) return false;
+		final ByteArrayData byteArrayData = (ByteArrayData)data;
+		return byteArrayData.getOffset() == 0 && isSupported(byteArrayData.getInfo());
+	}
+
+	private static boolean isSupported(final AttributeInfo info) {
+		if(info.isArray() || !info.isSizeFixed()) return false;
+		final AttributeDefinitionInfo definitionInfo = info.getDefinitionInfo();
+		if(definitionInfo.isList()) {
+			final int itemCount = definitionInfo.getItemCount();
+			for(int i = 0; i < itemCount; i++) {
+				if(!isSupported(definitionInfo.getItem(i))) return false;
+			}
+			return true;
+		}
+		return definitionInfo instanceof NumberDefinitionInfo || definitionInfo instanceof DoubleDefinitionInfo
+		       || definitionInfo instanceof AbsoluteSecondsDefinitionInfo || definitionInfo instanceof AbsoluteMillisecondsDefinitionInfo
+		       || definitionInfo instanceof RelativeTimeDefinitionInfo || definitionInfo instanceof ReferenceDefinitionInfo;
+	}
+
+	/**
+	 * Erzeugt einen änderbaren Datensatz, der mit den Werten des übergebenen Datensatzes initialisiert ist. Die Werte des übergebenen Datensatzes werden
+	 * außerdem von {@link #setToDefault()} als Default-Werte verwendet, deshalb sollte als Vorlage ein Datensatz mit Default-Werten übergeben werden.
+	 *
+	 * @param defaultData Unveränderlicher Datensatz, für den {@link #isSupported(Data)} <code>true</code> liefert.
+	 *
+	 * @return Änderbarer Datensatz
+	 */
+	public static ModifiableByteArrayListData create(final Data defaultData) {
+		if(!isSupported(defaultData)) throw new IllegalArgumentException("Datensatz wird nicht unterstützt: " + defaultData.getName());
+		final ByteArrayData byteArrayData = (ByteArrayData)defaultData;
+		final byte[] defaultBytes = byteArrayData.getBytes();
+		return new ModifiableByteArrayListData(defaultBytes.clone(), 0, byteArrayData.getInfo(), defaultBytes, new HashMap<Integer, String>());
+	}
+
+	static ByteArrayData create(
+			final byte[] bytes, final int offset, final AttributeInfo attributeInfo, final byte[] defaultBytes, final Map<Integer, String> storedPids) {
+		if(attributeInfo.getDefinitionInfo().isList()) {
+			return new ModifiableByteArrayListData(bytes, offset, attributeInfo, defaultBytes, storedPids);
+		}
+		else {
+			return new ModifiableByteArrayPrimitiveData(bytes, offset, attributeInfo, defaultBytes, storedPids);
+		}
+	}
+
+	/**
+	 * Setzt einen Bereich des Byte-Arrays auf die Default-Werte zurück und vergisst gespeicherte Pids innerhalb dieses Bereichs.
+	 */
+	static void setToDefault(final ByteArrayData data, final byte[] defaultBytes, final Map<Integer, String> storedPids) {
+		final int size = data._info.getSize(data._bytes, data._offset);
+		System.arraycopy(defaultBytes, data._offset, data._bytes, data._offset, size);
+		if(!storedPids.isEmpty()) {
+			for(Iterator<Integer> iterator = storedPids.keySet().iterator(); iterator.hasNext(); ) {
+				final int offset = iterator.next();
+				if(offset >= data._offset && offset < data._offset + size) iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Erzeugt eine unveränderliche Kopie eines Bereichs des Byte-Arrays.
+	 */
+	static ByteArrayData createUnmodifiableCopy(final ByteArrayData data) {
+		final int size = data._info.getSize(data._bytes, data._offset);
+		final byte[] bytes = new byte[size];
+		System.arraycopy(data._bytes, data._offset, bytes, 0, size);
+		return ByteArrayData.create(bytes, 0, data._info);
+	}
+
+	ModifiableByteArrayListData(
+			final byte[] bytes, final int offset, final AttributeInfo attributeInfo, final byte[] defaultBytes, final Map<Integer, String> storedPids) {
+		super(bytes, offset, attributeInfo);
+		_defaultBytes = defaultBytes;
+		_storedPids = storedPids;
+	}
+
+	@Override
+	public Data createUnmodifiableCopy() {
+		return createUnmodifiableCopy(this);
+	}
+
+	/**
+	 * Vergisst die gespeicherte Pid einer nicht auflösbaren Referenz, nachdem das Referenzattribut an der angegebenen Position überschrieben wurde.
+	 *
+	 * @param offset Position des Referenzattributs im Byte-Array
+	 */
+	void forgetStoredPid(final int offset) {
+		if(!_storedPids.isEmpty()) _storedPids.remove(offset);
+	}
+
+	@Override
+	public void setToDefault() {
+		setToDefault(this, _defaultBytes, _storedPids);
+	}
+
+	@Override
+	public Data getItem(String itemName) {
+		AttributeInfo subInfo = getInfo().getDefinitionInfo().getItem(itemName);
+		int offset = subInfo.getAbsoluteOffset(_bytes, _offset);
+		return create(_bytes, offset, subInfo, _defaultBytes, _storedPids);
+	}
+
+	@Override
+	public Iterator<Data> iterator() {
+		return new ModifiableListDataIterator();
+	}
+
+	private class ModifiableListDataIterator implements Iterator<Data> {
+		private int _nextElementIndex = 0;
+		private int _nextElementOffset = _offset;
+
+		public boolean hasNext() {
+			return _nextElementIndex < _info.getDefinitionInfo().getItemCount();
+		}
+
+		public Data next() {
+			if(_nextElementIndex >= _info.getDefinitionInfo().getItemCount()) throw new NoSuchElementException();
+			final AttributeInfo elementInfo = _info.getDefinitionInfo().getItem(_nextElementIndex);
+			final ByteArrayData data = create(_bytes, _nextElementOffset, elementInfo, _defaultBytes, _storedPids);
+			_nextElementOffset += elementInfo.getSize(_bytes, _nextElementOffset);
+			++_nextElementIndex;
+			return data;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
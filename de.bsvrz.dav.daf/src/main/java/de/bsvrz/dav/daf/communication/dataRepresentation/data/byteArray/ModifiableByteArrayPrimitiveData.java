@@ -0,0 +1,642 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.AbstractData;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.AttributeDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.AttributeInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.AbsoluteSecondsDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.ByteDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.FloatDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.IntDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.RelativeSecondsDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.RelativeTimeDefinitionInfo;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.info.version1.ShortDefinitionInfo;
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.*;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Änderbarer Attributwert eines {@link ModifiableByteArrayListData}. Lesende Zugriffe erfolgen wie bei {@link ByteArrayPrimitiveData}, schreibende Zugriffe
+ * prüfen den Wert wie die Adapter der {@link de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory} und schreiben ihn dann direkt
+ * an die Position des Attributs im Byte-Array.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+class ModifiableByteArrayPrimitiveData extends ByteArrayPrimitiveData {
+
+	private static final Pattern _locationDistancePattern = Pattern.compile("[0-9]{1,5}\\s*-\\s*[0-9]{1,3}");
+
+	private final byte[] _defaultBytes;
+
+	private final Map<Integer, String> _storedPids;
+
+	ModifiableByteArrayPrimitiveData(
+			final byte[] bytes, final int offset, final AttributeInfo attributeInfo, final byte[] defaultBytes, final Map<Integer, String> storedPids) {
+		super(bytes, offset, attributeInfo);
+		_defaultBytes = defaultBytes;
+		_storedPids = storedPids;
+	}
+
+	@Override
+	public Data createUnmodifiableCopy() {
+		return ModifiableByteArrayListData.createUnmodifiableCopy(this);
+	}
+
+	@Override
+	public void setToDefault() {
+		ModifiableByteArrayListData.setToDefault(this, _defaultBytes, _storedPids);
+	}
+
+	/** Undefinierte Werte werden wie bei den änderbaren Datensätzen aus {@link de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory} dargestellt. */
+	@Override
+	public String valueToString() {
+		try {
+			if(isDefined()) return asTextValue().getText();
+			return "<Undefiniert>";
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+			return "<<Fehler:" + e.getMessage() + ">>";
+		}
+	}
+
+	/**
+	 * Schreibt die unteren <code>size</code> Bytes eines Wertes in Big-Endian-Reihenfolge an die angegebene Position.
+	 */
+	static void write(final byte[] bytes, final int offset, long value, final int size) {
+		for(int i = size - 1; i >= 0; --i) {
+			bytes[offset + i] = (byte)value;
+			value >>>= 8;
+		}
+	}
+
+	/**
+	 * Schreibt einen unskalierten Ganzzahlwert unter Berücksichtigung der Größe des Attributtyps.
+	 */
+	static void writeUnscaled(final AttributeDefinitionInfo definitionInfo, final byte[] bytes, final int offset, final long value) {
+		if(definitionInfo instanceof ByteDefinitionInfo) {
+			if(value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) throw new IllegalArgumentException("Wert " + value + " nicht in einem Byte darstellbar");
+			write(bytes, offset, value, 1);
+		}
+		else if(definitionInfo instanceof ShortDefinitionInfo) {
+			if(value < Short.MIN_VALUE || value > Short.MAX_VALUE) throw new IllegalArgumentException("Wert " + value + " nicht in einem Short darstellbar");
+			write(bytes, offset, value, 2);
+		}
+		else if(definitionInfo instanceof IntDefinitionInfo) {
+			if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Wert " + value + " nicht in einem Integer darstellbar");
+			}
+			write(bytes, offset, value, 4);
+		}
+		else {
+			write(bytes, offset, value, 8);
+		}
+	}
+
+	/**
+	 * Rechnet einen skalierten Wert eines Ganzzahlattributs mit dem Skalierungsfaktor des Wertebereichs in den unskalierten Wert um.
+	 */
+	static long toUnscaled(final IntegerAttributeType type, final double value) {
+		long unscaledValue;
+		double conversionFactor = getConversionFactor(type);
+		//Folgende Fallunterscheidung ist erforderlich um Rundungsfehler zu vermeiden
+		//Beispielsweise führt Math.round(0.95 / 0.1) zum falschen Ergebnis 9
+		//aber Math.round(0.95 * (1 / 0.1)) führt zum richtigen Ergebnis 10
+		if(conversionFactor < 1.0) {
+			unscaledValue = Math.round(value * (1 / conversionFactor));
+		}
+		else if(conversionFactor > 1.0) {
+			unscaledValue = Math.round(value / conversionFactor);
+		}
+		else {
+			unscaledValue = Math.round(value);
+		}
+		return unscaledValue;
+	}
+
+	static double getConversionFactor(final IntegerAttributeType type) {
+		IntegerValueRange range = type.getRange();
+		if(range == null) {
+			throw new IllegalArgumentException("kein Zahlenbereich definiert");
+		}
+		return range.getConversionFactor();
+	}
+
+	/**
+	 * Schreibt einen Zeitwert in Millisekunden unter Berücksichtigung von Genauigkeit und Art (relativ/absolut) des Zeitattributs.
+	 */
+	static void writeMillis(final AttributeDefinitionInfo definitionInfo, final byte[] bytes, final int offset, final long milliSeconds) {
+		if(definitionInfo instanceof RelativeSecondsDefinitionInfo) {
+			long seconds = milliSeconds / 1000;
+			if(seconds > Integer.MAX_VALUE) throw new RuntimeException("Zeitangabe größer als in einem relativen sekundengenauen Zeitstempel darstellbar");
+			if(seconds < Integer.MIN_VALUE) throw new RuntimeException("Zeitangabe kleiner als in einem relativen sekundengenauen Zeitstempel darstellbar");
+			write(bytes, offset, seconds, 4);
+		}
+		else if(definitionInfo instanceof RelativeTimeDefinitionInfo) {
+			write(bytes, offset, milliSeconds, 8);
+		}
+		else if(definitionInfo instanceof AbsoluteSecondsDefinitionInfo) {
+			if(milliSeconds < 0) throw new RuntimeException("Negative Zeitangaben sind bei absoluten Zeitstempeln nicht erlaubt");
+			long seconds = milliSeconds / 1000;
+			if(seconds > 0xffffffffL) {
+				throw new RuntimeException(
+						"Zeitangabe liegt nach dem größten darstellbaren Wert von absoluten sekundengenauen Zeitstempeln (07.02.2106 07:28:15)"
+				);
+			}
+			// Vorzeichenloser 32-Bit-Wert
+			write(bytes, offset, seconds, 4);
+		}
+		else {
+			if(milliSeconds < 0) throw new RuntimeException("Negative Zeitangaben sind bei absoluten Zeitstempeln nicht erlaubt");
+			write(bytes, offset, milliSeconds, 8);
+		}
+	}
+
+	/**
+	 * Schreibt die Id eines referenzierten Objekts, nachdem geprüft wurde, ob der Referenzattributtyp Objekte dieses Typs erlaubt.
+	 */
+	static void writeReference(final AttributeDefinitionInfo definitionInfo, final byte[] bytes, final int offset, final SystemObject object, final String name) {
+		long id;
+		if(object == null) {
+			id = 0;
+		}
+		else {
+			final SystemObjectType referencedObjectType = ((ReferenceAttributeType)definitionInfo.getAttributeType()).getReferencedObjectType();
+			if(referencedObjectType != null && !object.isOfType(referencedObjectType)) {
+				throw new IllegalArgumentException(
+						"Objekt " + object + " soll am Attribut " + name + " gespeichert werden, aber der Attributtyp erlaubt nur Objekte vom Typ "
+						+ referencedObjectType.getPidOrNameOrId()
+				);
+			}
+			id = object.getId();
+		}
+		write(bytes, offset, id, 8);
+	}
+
+	private void write(final long value, final int size) {
+		write(_bytes, _offset, value, size);
+	}
+
+	private void writeUnscaled(final long value) {
+		writeUnscaled(_info.getDefinitionInfo(), _bytes, _offset, value);
+	}
+
+	private IntegerAttributeType getIntegerAttributeType() {
+		return (IntegerAttributeType)getAttributeType();
+	}
+
+	// Die von ByteArrayPrimitiveData implementierten Sichten werden durch änderbare Sichten ersetzt
+
+	@Override
+	public Data.TextValue asTextValue() {
+		final AttributeDefinitionInfo definitionInfo = _info.getDefinitionInfo();
+		if(definitionInfo.isNumberAttribute()) return asScaledValue();
+		if(definitionInfo.isTimeAttribute()) return asTimeValue();
+		if(definitionInfo.isReferenceAttribute()) return asReferenceValue();
+		throw new UnsupportedOperationException("Das Attribut " + getName() + " kann nicht als Text geändert werden");
+	}
+
+	@Override
+	public Data.TimeValue asTimeValue() {
+		final AttributeDefinitionInfo definitionInfo = _info.getDefinitionInfo();
+		if(!definitionInfo.isTimeAttribute()) throw new UnsupportedOperationException("Das Attribut " + getName() + " ist kein Zeitattribut");
+		if(definitionInfo instanceof RelativeTimeDefinitionInfo) return new RelativeTimeValueView();
+		if(definitionInfo instanceof AbsoluteSecondsDefinitionInfo) return new AbsoluteSecondsTimeValueView();
+		return new AbsoluteMillisTimeValueView();
+	}
+
+	@Override
+	public Data.ReferenceValue asReferenceValue() {
+		if(_info.getDefinitionInfo().isReferenceAttribute()) return new ReferenceValueView();
+		throw new UnsupportedOperationException("Das Attribut " + getName() + " ist kein Referenzattribut");
+	}
+
+	@Override
+	public Data.NumberValue asScaledValue() {
+		final AttributeDefinitionInfo definitionInfo = _info.getDefinitionInfo();
+		if(!definitionInfo.isNumberAttribute()) throw new UnsupportedOperationException("Das Attribut " + getName() + " ist kein Zahl-Attribut");
+		if(definitionInfo.isScalableNumberAttribute()) return new ScaledValueView();
+		return new FloatingPointValueView();
+	}
+
+	@Override
+	public Data.NumberValue asUnscaledValue() {
+		final AttributeDefinitionInfo definitionInfo = _info.getDefinitionInfo();
+		if(!definitionInfo.isNumberAttribute()) throw new UnsupportedOperationException("Das Attribut " + getName() + " ist kein Zahl-Attribut");
+		if(definitionInfo.isScalableNumberAttribute()) return new UnscaledValueView();
+		return new FloatingPointValueView();
+	}
+
+	@Override
+	public void setText(String text) {
+		asTextValue().setText(text);
+	}
+
+	@Override
+	public void setSeconds(long seconds) {
+		asTimeValue().setSeconds(seconds);
+	}
+
+	@Override
+	public void setMillis(long milliSeconds) {
+		asTimeValue().setMillis(milliSeconds);
+	}
+
+	@Override
+	public void setSystemObject(SystemObject object) {
+		asReferenceValue().setSystemObject(object);
+	}
+
+	@Override
+	public void setSystemObjectPid(String objectPid, ObjectLookup datamodel) {
+		asReferenceValue().setSystemObjectPid(objectPid, datamodel);
+	}
+
+	@Override
+	public void setSystemObjectPid(final String objectPid) {
+		asReferenceValue().setSystemObjectPid(objectPid);
+	}
+
+	@Override
+	public String getSystemObjectPid() {
+		return asReferenceValue().getSystemObjectPid();
+	}
+
+	@Override
+	public void setState(IntegerValueState state) {
+		asScaledValue().setState(state);
+	}
+
+	@Override
+	public void set(int value) {
+		asScaledValue().set(value);
+	}
+
+	@Override
+	public void set(long value) {
+		asScaledValue().set(value);
+	}
+
+	@Override
+	public void set(float value) {
+		asScaledValue().set(value);
+	}
+
+	@Override
+	public void set(double value) {
+		asScaledValue().set(value);
+	}
+
+	/** Gemeinsame Schreiblogik der skalierten und unskalierten Sicht auf Ganzzahlattribute (Zustände und Location-Distance-Format). */
+	private abstract class IntegerValueView extends AbstractData.NumberValue {
+
+		public IntegerValueState getState() {
+			return _info.getDefinitionInfo().getState(_bytes, _offset);
+		}
+
+		public void setState(IntegerValueState newState) {
+			for(IntegerValueState state : getIntegerAttributeType().getStates()) {
+				if(state.getId() == newState.getId()) {
+					writeUnscaled(state.getValue());
+					return;
+				}
+			}
+			throw new IllegalArgumentException("Zustand ungültig " + newState);
+		}
+
+		public void setText(String text) {
+			text = text.trim();
+			int matchLength = 0;
+			IntegerValueState longestMatch = null;
+			for(IntegerValueState state : getIntegerAttributeType().getStates()) {
+				if(text.equals(state.getName())) {
+					writeUnscaled(state.getValue());
+					return;
+				}
+				if(text.startsWith(state.getName()) && state.getName().length() > matchLength) {
+					longestMatch = state;
+					matchLength = state.getName().length();
+				}
+			}
+			if(longestMatch != null) {
+				writeUnscaled(longestMatch.getValue());
+				return;
+			}
+
+			// Ist der Text im location-distance Format?
+			if(_locationDistancePattern.matcher(text).matches()) {
+				String[] locationDistance = text.split("\\s*-\\s*");
+				int location = Integer.parseInt(locationDistance[0]);
+				int distance = Integer.parseInt(locationDistance[1]);
+				if(location > 65535) {
+					throw new IllegalArgumentException("Wert im Location-Distance Format aber Location zu groß: " + location);
+				}
+				if(distance > 255) {
+					throw new IllegalArgumentException("Wert im Location-Distance Format aber Distance zu groß: " + distance);
+				}
+				writeUnscaled((location * 256) + distance);
+				return;
+			}
+
+			try {
+				super.setText(text);
+			}
+			catch(RuntimeException e) {
+				throw new IllegalArgumentException(
+						"kein passender Werte-Zustand und " + e.getMessage() + " Attribut: " + getName() + ", Wert: " + text
+						+ (this instanceof UnscaledValueView ? "(unskaliert)" : "")
+				);
+			}
+		}
+	}
+
+	private class ScaledValueView extends IntegerValueView {
+
+		public boolean isNumber() {
+			return _info.getDefinitionInfo().isNumber(_bytes, _offset);
+		}
+
+		public boolean isState() {
+			return _info.getDefinitionInfo().isState(_bytes, _offset);
+		}
+
+		public byte byteValue() {
+			return _info.getDefinitionInfo().byteValue(_bytes, _offset);
+		}
+
+		public short shortValue() {
+			return _info.getDefinitionInfo().shortValue(_bytes, _offset);
+		}
+
+		public int intValue() {
+			return _info.getDefinitionInfo().intValue(_bytes, _offset);
+		}
+
+		public long longValue() {
+			return _info.getDefinitionInfo().longValue(_bytes, _offset);
+		}
+
+		public float floatValue() {
+			return _info.getDefinitionInfo().floatValue(_bytes, _offset);
+		}
+
+		public double doubleValue() {
+			return _info.getDefinitionInfo().doubleValue(_bytes, _offset);
+		}
+
+		public String getValueText() {
+			return _info.getDefinitionInfo().getValueText(_bytes, _offset);
+		}
+
+		public String getSuffixText() {
+			return _info.getDefinitionInfo().getSuffixText(_bytes, _offset);
+		}
+
+		public void set(long value) {
+			if(getConversionFactor(getIntegerAttributeType()) == 1.0) {
+				writeUnscaled(value);
+			}
+			else {
+				set((double)value);
+			}
+		}
+
+		public void set(double value) {
+			writeUnscaled(toUnscaled(getIntegerAttributeType(), value));
+		}
+	}
+
+	private class UnscaledValueView extends IntegerValueView {
+
+		public boolean isNumber() {
+			return _info.getDefinitionInfo().isNumber(_bytes, _offset);
+		}
+
+		public boolean isState() {
+			return _info.getDefinitionInfo().isState(_bytes, _offset);
+		}
+
+		public byte byteValue() {
+			return _info.getDefinitionInfo().unscaledByteValue(_bytes, _offset);
+		}
+
+		public short shortValue() {
+			return _info.getDefinitionInfo().unscaledShortValue(_bytes, _offset);
+		}
+
+		public int intValue() {
+			return _info.getDefinitionInfo().unscaledIntValue(_bytes, _offset);
+		}
+
+		public long longValue() {
+			return _info.getDefinitionInfo().unscaledLongValue(_bytes, _offset);
+		}
+
+		public float floatValue() {
+			return _info.getDefinitionInfo().unscaledFloatValue(_bytes, _offset);
+		}
+
+		public double doubleValue() {
+			return _info.getDefinitionInfo().unscaledDoubleValue(_bytes, _offset);
+		}
+
+		public String getValueText() {
+			return _info.getDefinitionInfo().getUnscaledValueText(_bytes, _offset);
+		}
+
+		public String getSuffixText() {
+			return _info.getDefinitionInfo().getUnscaledSuffixText(_bytes, _offset);
+		}
+
+		public void set(long value) {
+			writeUnscaled(value);
+		}
+
+		public void set(double value) {
+			if(value < Long.MIN_VALUE || value > Long.MAX_VALUE) {
+				throw new IllegalArgumentException("Fließkommawert " + value + " kann nicht in Ganzzahlwert konvertiert werden");
+			}
+			set(Math.round(value));
+		}
+	}
+
+	private class FloatingPointValueView extends AbstractData.NumberValue {
+
+		public float floatValue() {
+			return _info.getDefinitionInfo().floatValue(_bytes, _offset);
+		}
+
+		public double doubleValue() {
+			return _info.getDefinitionInfo().doubleValue(_bytes, _offset);
+		}
+
+		public String getValueText() {
+			return _info.getDefinitionInfo().getValueText(_bytes, _offset);
+		}
+
+		public String getSuffixText() {
+			return _info.getDefinitionInfo().getSuffixText(_bytes, _offset);
+		}
+
+		public void set(float value) {
+			set((double)value);
+		}
+
+		public void set(double value) {
+			if(_info.getDefinitionInfo() instanceof FloatDefinitionInfo) {
+				write(Float.floatToIntBits((float)value), 4);
+			}
+			else {
+				write(Double.doubleToLongBits(value), 8);
+			}
+		}
+	}
+
+	private class RelativeTimeValueView extends AbstractData.RelativeTimeValue {
+
+		public long getSeconds() {
+			return _info.getDefinitionInfo().getSeconds(_bytes, _offset);
+		}
+
+		public long getMillis() {
+			return _info.getDefinitionInfo().getMillis(_bytes, _offset);
+		}
+
+		public void setMillis(long milliSeconds) {
+			writeMillis(_info.getDefinitionInfo(), _bytes, _offset, milliSeconds);
+		}
+
+		public void setSeconds(long seconds) {
+			if(_info.getDefinitionInfo() instanceof RelativeSecondsDefinitionInfo) {
+				if(seconds > Integer.MAX_VALUE) throw new RuntimeException("Zeitangabe größer als in einem relativen sekundengenauen Zeitstempel darstellbar");
+				if(seconds < Integer.MIN_VALUE) throw new RuntimeException("Zeitangabe kleiner als in einem relativen sekundengenauen Zeitstempel darstellbar");
+				write(seconds, 4);
+			}
+			else {
+				if(seconds > Long.MAX_VALUE / 1000) {
+					throw new RuntimeException("Zeitangabe größer als in einem relativen millisekundengenauen Zeitstempel darstellbar");
+				}
+				if(seconds < Long.MIN_VALUE / 1000) {
+					throw new RuntimeException("Zeitangabe kleiner als in einem relativen millisekundengenauen Zeitstempel darstellbar");
+				}
+				write(seconds * 1000, 8);
+			}
+		}
+	}
+
+	private class AbsoluteSecondsTimeValueView extends AbstractData.AbsoluteSecondsTimeValue {
+
+		public long getSeconds() {
+			return _info.getDefinitionInfo().getSeconds(_bytes, _offset);
+		}
+
+		public long getMillis() {
+			return _info.getDefinitionInfo().getMillis(_bytes, _offset);
+		}
+
+		public void setMillis(long milliSeconds) {
+			writeMillis(_info.getDefinitionInfo(), _bytes, _offset, milliSeconds);
+		}
+
+		public void setSeconds(long seconds) {
+			if(seconds < 0) throw new RuntimeException("Negative Zeitangaben sind bei absoluten Zeitstempeln nicht erlaubt");
+			if(seconds > 0xffffffffL) {
+				throw new RuntimeException(
+						"Zeitangabe liegt nach dem größten darstellbaren Wert von absoluten sekundengenauen Zeitstempeln (07.02.2106 07:28:15)"
+				);
+			}
+			// Vorzeichenloser 32-Bit-Wert
+			write(seconds, 4);
+		}
+	}
+
+	private class AbsoluteMillisTimeValueView extends AbstractData.AbsoluteMillisTimeValue {
+
+		public long getSeconds() {
+			return _info.getDefinitionInfo().getSeconds(_bytes, _offset);
+		}
+
+		public long getMillis() {
+			return _info.getDefinitionInfo().getMillis(_bytes, _offset);
+		}
+
+		public void setMillis(long milliSeconds) {
+			writeMillis(_info.getDefinitionInfo(), _bytes, _offset, milliSeconds);
+		}
+
+		public void setSeconds(long seconds) {
+			if(seconds < 0) throw new RuntimeException("Negative Zeitangaben sind bei absoluten Zeitstempeln nicht erlaubt");
+			//Sekundenwert ist zu groß, wenn er größer als Long.MAX_VALUE/1000 (==9223372036854775L) ist
+			if(seconds > 9223372036854775L) {
+				throw new RuntimeException("Zeitangabe liegt nach dem größten darstellbaren Wert von absoluten Zeitstempeln");
+			}
+			write(seconds * 1000, 8);
+		}
+	}
+
+	private class ReferenceValueView extends AbstractData.ReferenceValue {
+
+		protected DataModel getDataModel() {
+			return getAttributeType().getDataModel();
+		}
+
+		protected boolean tryToStorePid(final String objectPid) {
+			final ReferenceAttributeType att = ((ReferenceAttributeType)getAttributeType());
+			if(att.getReferenceType() == ReferenceType.ASSOCIATION) {
+				// Wie bei der AttributeBaseValue-Darstellung wird im Datensatz die Id 0 übertragen, die Pid bleibt nur lokal erhalten
+				write(0, 8);
+				_storedPids.put(_offset, objectPid);
+				return true;
+			}
+			else {
+				return false;
+			}
+		}
+
+		protected String getStoredPid() {
+			final String pid = _storedPids.get(_offset);
+			return pid == null ? "" : pid;
+		}
+
+		public long getId() {
+			return _info.getDefinitionInfo().getId(_bytes, _offset);
+		}
+
+		public SystemObject getSystemObject() {
+			return _info.getDefinitionInfo().getSystemObject(_bytes, _offset);
+		}
+
+		public void setSystemObject(SystemObject object) {
+			writeReference(_info.getDefinitionInfo(), _bytes, _offset, object, getName());
+			_storedPids.remove(_offset);
+		}
+	}
+}
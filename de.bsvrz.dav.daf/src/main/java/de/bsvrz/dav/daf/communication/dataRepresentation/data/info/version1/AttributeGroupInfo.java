@@ -80,6 +80,10 @@ public class AttributeGroupInfo implements AttributeInfo {
 		return _atg.getPid();
 	}
 
+	public AttributeGroup getAttributeGroup() {
+		return _atg;
+	}
+
 	public AttributeDefinitionInfo getDefinitionInfo() {
 		return _definitionInfo;
 	}
@@ -32,6 +32,7 @@ package de.bsvrz.dav.daf.main;
 import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory;
 import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeHelper;
 import de.bsvrz.dav.daf.communication.dataRepresentation.data.DataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray.ModifiableByteArrayListData;
 import de.bsvrz.dav.daf.communication.lowLevel.telegrams.BaseSubscriptionInfo;
 import de.bsvrz.dav.daf.communication.lowLevel.telegrams.SendSubscriptionInfo;
 import de.bsvrz.dav.daf.communication.protocol.ClientConnectionProperties;
@@ -42,6 +43,7 @@ import de.bsvrz.dav.daf.main.impl.*;
 import de.bsvrz.dav.daf.main.impl.archive.request.StreamedRequestManager;
 import de.bsvrz.dav.daf.main.impl.config.AttributeGroupUsageIdentifications;
 import de.bsvrz.dav.daf.main.impl.config.DafDataModel;
+import de.bsvrz.sys.funclib.dataSerializer.SerializingFactory;
 import de.bsvrz.sys.funclib.debug.Debug;
 import de.bsvrz.sys.funclib.timeout.TimeoutTimer;
 
@@ -118,6 +120,13 @@ public class ClientDavConnection implements ClientDavInterface {
 	 */
 	private Map<AttributeGroup, Data> _defaultData = new HashMap<AttributeGroup, Data>();
 
+	/**
+	 * Enthält die Attributgruppen aus {@link #_defaultData}, deren Datensätze eine feste Größe haben und keine Arrays enthalten. Für diese Attributgruppen
+	 * liefert {@link #createData(AttributeGroup)} einen {@link ModifiableByteArrayListData}, dessen Werte direkt im Byte-Array geändert werden und der beim
+	 * Versand nicht erneut serialisiert werden muss. Die Map wird zusammen mit {@link #_defaultData} synchronisiert.
+	 */
+	private Map<AttributeGroup, Data> _fixedLayoutDefaultData = new HashMap<AttributeGroup, Data>();
+
 	/**
 	 * Hält fest, ob sich eine Applikation explizit selbst um die Fertigmeldung kümmert oder nicht. Aus Kompatibilitätsgründen wird angenommen, dass die
 	 * Applikation sich nicht um eine Fertigmeldung kümmert. Das Flag kann mit der Methode {@link #enableExplicitApplicationReadyMessage()} gesetzt werden.
@@ -397,6 +406,7 @@ public class ClientDavConnection implements ClientDavInterface {
 				_implicitUnsubscriber = null;
 				_streamedRequestManager = null;
 				_defaultData = new HashMap<AttributeGroup, Data>();
+				_fixedLayoutDefaultData = new HashMap<AttributeGroup, Data>();
 				_readyMessageSender = null;
 			}
 			
@@ -692,9 +702,9 @@ public class ClientDavConnection implements ClientDavInterface {
 						for(int j = 0; j < results.size(); ++j) {
 							CachedObject cachedObject = (CachedObject) results.get(j);
 							list.add(
-									new ResultData(
+									ResultData.createWithLazyData(
 											object, dataDescription, cachedObject.getDelayedDataFlag(), cachedObject.getDataNumber(), cachedObject
-											.getDataTime(), cachedObject.getErrorFlag(), cachedObject.getData()
+											.getDataTime(), cachedObject.getErrorFlag(), cachedObject.getLazyData()
 									)
 							);
 						}
@@ -805,14 +815,14 @@ public class ClientDavConnection implements ClientDavInterface {
 					implicitSubscriptionNote.unsubscriptionTime = System.currentTimeMillis() + unsubscriptionTime;
 				}
 			}
-			return new ResultData(
+			return ResultData.createWithLazyData(
 					object,
 					dataDescription,
 					cachedObject.getDelayedDataFlag(),
 					cachedObject.getDataNumber(),
 					cachedObject.getDataTime(),
 					cachedObject.getErrorFlag(),
-					cachedObject.getData()
+					cachedObject.getLazyData()
 			);
 		}
 	}
@@ -1317,6 +1327,8 @@ public class ClientDavConnection implements ClientDavInterface {
 
 		// Speichert den Datensatz, der nicht geändert werden darf und als Kopiervorlage dienen soll
 		Data masterCopy;
+		// Kopiervorlage für Attributgruppen mit fester Größe ohne Arrays oder null
+		Data fixedLayoutMasterCopy;
 
 		synchronized(_defaultData) {
 			masterCopy = _defaultData.get(attributeGroup);
@@ -1331,9 +1343,18 @@ public class ClientDavConnection implements ClientDavInterface {
 				masterCopy = firstData.createUnmodifiableCopy();
 				// Datensatz speichern, dieser dient nun immer als Kopiervorlage
 				_defaultData.put(attributeGroup, masterCopy);
+				if(ModifiableByteArrayListData.isSupported(masterCopy)) {
+					_fixedLayoutDefaultData.put(attributeGroup, masterCopy);
+				}
 			}
+			fixedLayoutMasterCopy = _fixedLayoutDefaultData.get(attributeGroup);
 		} // synchronized
 
+		if(fixedLayoutMasterCopy != null) {
+			// Die Werte können direkt im kopierten Byte-Array geändert werden, beim Versand entfällt die erneute Serialisierung
+			return ModifiableByteArrayListData.create(fixedLayoutMasterCopy);
+		}
+
 		// Die Kopiervorlage steht nun zur Verfügung. Eine modifizierbare Kopie anlegen und zurückgeben
 		return masterCopy.createModifiableCopy();
 	}
@@ -1658,6 +1679,7 @@ public class ClientDavConnection implements ClientDavInterface {
 			}
 		}
 		DataFactory.forget(getDataModel());
+		SerializingFactory.forgetDataModel(getDataModel());
 	}
 
 	// Eine Hilfsklasse für das Versenden der Fertigmeldung
@@ -29,6 +29,7 @@ package de.bsvrz.dav.daf.main;
 
 import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValue;
 import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.LazyData;
 import de.bsvrz.dav.daf.communication.dataRepresentation.datavalue.DataValue;
 import de.bsvrz.dav.daf.main.archive.ArchiveDataKind;
 import de.bsvrz.dav.daf.main.config.SystemObject;
@@ -68,6 +69,9 @@ public class ResultData implements Dataset {
 	/** Der Datensatz. */
 	private Data _data;
 
+	/** Der Datensatz in serialisierter Form, der erst beim Aufruf von {@link #getData()} umgewandelt wird. */
+	private LazyData _lazyData;
+
 	/** Fehlerkennung der Anwendungsdaten. 0: Daten vorhanden (kein fehler). 1: Quelle vorhanden aber Daten noch nicht lieferbar. 2: Quelle nicht vorhanden. */
 	private byte errorFlag;
 
@@ -211,6 +215,57 @@ public class ResultData implements Dataset {
 		_data = data;
 	}
 
+	/**
+	 * Erzeugt ein neues Ergebnis mit einem empfangenen Datensatz in serialisierter Form. Der Datensatz wird erst beim ersten Aufruf von {@link #getData()}
+	 * umgewandelt, so dass Empfänger, die nur die Headerinformationen auswerten, keinen Aufwand für die Umwandlung haben.
+	 * <p>
+	 * Eine Fabrikmethode statt eines weiteren öffentlichen Konstruktors wird verwendet, damit Aufrufe des Konstruktors {@link #ResultData(SystemObject,
+	 * DataDescription, boolean, long, long, byte, Data)} mit <code>null</code> als Datensatz eindeutig bleiben.
+	 *
+	 * @param object          Das System-Objekt zu dem die Daten gehören.
+	 * @param dataDescription Beschreibende Informationen der zu versendenden Daten
+	 * @param delayedData     <code>true</code>, wenn der im Ergebnis enthaltene Datensatz als nachgeliefert gekennzeichnet werden soll.
+	 * @param dataIndex       die laufende Nummer des Datensatzes
+	 * @param time            Zeitstempel dieses Datensatzes in Millisekunden seit 1970.
+	 * @param errorFlag       Fehlerkennung der Anwendungsdaten
+	 * @param lazyData        Serialisierter Datensatz oder <code>null</code>, wenn kein Datensatz zur Verfügung gestellt werden kann.
+	 *
+	 * @return Neues Ergebnis
+	 */
+	public static ResultData createWithLazyData(
+			SystemObject object,
+			DataDescription dataDescription,
+			boolean delayedData,
+			long dataIndex,
+			long time,
+			byte errorFlag,
+			LazyData lazyData
+	) {
+		return new ResultData(object, dataDescription, delayedData, dataIndex, time, errorFlag, lazyData);
+	}
+
+	private ResultData(
+			SystemObject object,
+			DataDescription dataDescription,
+			boolean delayedData,
+			long dataIndex,
+			long time,
+			byte errorFlag,
+			LazyData lazyData
+	) {
+		this.object = object;
+		this.dataDescription = dataDescription;
+		this.delayedData = delayedData;
+		this.dataIndex = dataIndex;
+		this.time = time;
+		this.errorFlag = errorFlag;
+		this.attributeValues = null;
+		if(errorFlag == 0 && lazyData == null) {
+			throw new IllegalArgumentException("Attributargument ist leer");
+		}
+		_lazyData = lazyData;
+	}
+
 	/**
 	 * Bestimmt das System-Objekt zu dem die im Ergebnis enthaltenen Daten gehören.
 	 *
@@ -292,10 +347,11 @@ public class ResultData implements Dataset {
 	@Deprecated
 	public final List getAttributeValueList() {
 		if(attributeValues != null) return attributeValues;
-		if(_data == null) {
+		final Data unmodifiableData = getData();
+		if(unmodifiableData == null) {
 			return null;
 		}
-		Data data = _data.createModifiableCopy();
+		Data data = unmodifiableData.createModifiableCopy();
 		return ((AttributeBaseValueDataFactory.AttributeGroupAdapter)data)._attributeBaseValueList;
 	}
 
@@ -306,6 +362,7 @@ public class ResultData implements Dataset {
 	 */
 	public final Data getData() {
 		if(_data != null) return _data;
+		if(_lazyData != null) return _lazyData.getData();
 		if(attributeValues == null) return null;
 		return AttributeBaseValueDataFactory.createAdapter(dataDescription.getAttributeGroup(), attributeValues);
 	}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.daf.main.archive;
+
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plant und führt umfangreiche Archivanfragen als mehrere parallel laufende Teilanfragen aus. Die Liste der Archivdatenspezifikationen wird in Teilanfragen
+ * mit jeweils höchstens {@link #getSpecificationsPerQuery()} Spezifikationen aufgeteilt. Von diesen Teilanfragen werden höchstens {@link
+ * #getMaximumParallelQueries()} gleichzeitig gestellt, wobei zusätzlich das vom Archivsystem gemeldete noch verfügbare Kontingent an Archivanfragen ({@link
+ * ArchiveRequestManager#getNumArchiveQueries()}) berücksichtigt wird.
+ * <p>
+ * Die Ergebnisse aller Teilanfragen werden in einem gemeinsamen {@link MergedStream} zusammengeführt. Die Datensätze werden im Hintergrund vorausgelesen und in
+ * einem begrenzten Puffer zwischengespeichert. Ist der Puffer voll, dann werden von den Teilanfragen keine weiteren Datensätze abgerufen, so dass über die
+ * Flusskontrolle der Archivschnittstelle auch das Archivsystem gebremst wird.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class ArchiveQueryPlanner {
+
+	/** DebugLogger für Debug-Ausgaben */
+	private static final Debug _debug = Debug.getLogger();
+
+	/** Markierung im Puffer, die das Ende einer Teilanfrage-Abarbeitung durch einen Worker signalisiert */
+	private static final Object END_OF_WORKER = new Object();
+
+	private final ArchiveRequestManager _archiveRequestManager;
+
+	private final int _maximumParallelQueries;
+
+	private final int _specificationsPerQuery;
+
+	private final int _prefetchSize;
+
+	/**
+	 * Erzeugt einen neuen Planer für Archivanfragen.
+	 *
+	 * @param archiveRequestManager  Archivverwaltung, über die die Teilanfragen gestellt werden.
+	 * @param maximumParallelQueries Maximale Anzahl von gleichzeitig gestellten Teilanfragen.
+	 * @param specificationsPerQuery Maximale Anzahl von Archivdatenspezifikationen je Teilanfrage.
+	 * @param prefetchSize           Maximale Anzahl von vorausgelesenen Datensätzen, die noch nicht mit {@link MergedStream#take()} abgerufen wurden.
+	 */
+	public ArchiveQueryPlanner(
+			final ArchiveRequestManager archiveRequestManager, final int maximumParallelQueries, final int specificationsPerQuery, final int prefetchSize) {
+		if(archiveRequestManager == null) throw new IllegalArgumentException("archiveRequestManager ist null");
+		if(maximumParallelQueries < 1) throw new IllegalArgumentException("maximumParallelQueries muss größer 0 sein: " + maximumParallelQueries);
+		if(specificationsPerQuery < 1) throw new IllegalArgumentException("specificationsPerQuery muss größer 0 sein: " + specificationsPerQuery);
+		if(prefetchSize < 1) throw new IllegalArgumentException("prefetchSize muss größer 0 sein: " + prefetchSize);
+		_archiveRequestManager = archiveRequestManager;
+		_maximumParallelQueries = maximumParallelQueries;
+		_specificationsPerQuery = specificationsPerQuery;
+		_prefetchSize = prefetchSize;
+	}
+
+	/**
+	 * Gibt die maximale Anzahl von gleichzeitig gestellten Teilanfragen zurück.
+	 *
+	 * @return Maximale Anzahl von gleichzeitig gestellten Teilanfragen
+	 */
+	public int getMaximumParallelQueries() {
+		return _maximumParallelQueries;
+	}
+
+	/**
+	 * Gibt die maximale Anzahl von Archivdatenspezifikationen je Teilanfrage zurück.
+	 *
+	 * @return Maximale Anzahl von Archivdatenspezifikationen je Teilanfrage
+	 */
+	public int getSpecificationsPerQuery() {
+		return _specificationsPerQuery;
+	}
+
+	/**
+	 * Stellt die übergebenen Archivanfragen in parallel bearbeiteten Teilanfragen und liefert die Ergebnisse aller Teilanfragen in einem gemeinsamen Datenstrom.
+	 * Die Datensätze einer einzelnen Archivdatenspezifikation werden in der vom Archivsystem gelieferten Reihenfolge übergeben, die Datensätze verschiedener
+	 * Spezifikationen können dagegen beliebig verschränkt sein. Die Zuordnung eines Datensatzes erfolgt über {@link ArchiveData#getObject()} und {@link
+	 * ArchiveData#getDataDescription()}.
+	 *
+	 * @param priority Priorität der Teilanfragen
+	 * @param specs    Archivdatenspezifikationen
+	 *
+	 * @return Gemeinsamer Datenstrom mit den Ergebnissen aller Teilanfragen
+	 *
+	 * @throws IllegalStateException Das Archivsystem kann nicht erreicht werden.
+	 */
+	public MergedStream request(final ArchiveQueryPriority priority, final List<ArchiveDataSpecification> specs) throws IllegalStateException {
+		if(specs == null) throw new IllegalArgumentException("Die Liste, die eine Archivanfrage spezifiziert, war null");
+		final List<List<ArchiveDataSpecification>> subQueries = new ArrayList<List<ArchiveDataSpecification>>();
+		for(int i = 0; i < specs.size(); i += _specificationsPerQuery) {
+			subQueries.add(Collections.unmodifiableList(new ArrayList<ArchiveDataSpecification>(specs.subList(i, Math.min(specs.size(), i + _specificationsPerQuery)))));
+		}
+		final int parallelQueries = Math.max(1, Math.min(subQueries.size(), determineParallelQueries()));
+		_debug.fine("Archivanfrage mit " + specs.size() + " Spezifikationen wird in " + subQueries.size() + " Teilanfragen mit " + parallelQueries + " parallelen Anfragen gestellt");
+		final MergedStream mergedStream = new MergedStream(priority, subQueries, subQueries.isEmpty() ? 0 : parallelQueries);
+		mergedStream.start();
+		return mergedStream;
+	}
+
+	/**
+	 * Bestimmt die Anzahl der gleichzeitig zu stellenden Teilanfragen anhand der Konfiguration dieses Objekts und des noch verfügbaren Kontingents an
+	 * Archivanfragen.
+	 *
+	 * @return Anzahl gleichzeitiger Teilanfragen
+	 */
+	private int determineParallelQueries() {
+		try {
+			final ArchiveNumQueriesResult numQueries = _archiveRequestManager.getNumArchiveQueries();
+			if(numQueries.isRequestSuccessful()) {
+				return Math.min(_maximumParallelQueries, numQueries.getRemainingQueries());
+			}
+			_debug.fine("Anzahl möglicher Archivanfragen konnte nicht bestimmt werden: " + numQueries.getErrorMessage());
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch(RuntimeException e) {
+			// Ältere Archivsysteme unterstützen diese Anfrage evtl. nicht
+			_debug.fine("Anzahl möglicher Archivanfragen konnte nicht bestimmt werden", e);
+		}
+		return _maximumParallelQueries;
+	}
+
+	/**
+	 * Gemeinsamer Datenstrom mit den Ergebnissen aller Teilanfragen einer mit {@link ArchiveQueryPlanner#request} gestellten Archivanfrage. Die Teilanfragen werden
+	 * von Hintergrund-Threads gestellt und gelesen, die Datensätze werden über einen begrenzten Puffer übergeben.
+	 */
+	public final class MergedStream {
+
+		private final ArchiveQueryPriority _priority;
+
+		private final List<List<ArchiveDataSpecification>> _subQueries;
+
+		/** Index der nächsten noch nicht gestellten Teilanfrage */
+		private final AtomicInteger _nextSubQuery = new AtomicInteger(0);
+
+		/** Puffer mit vorausgelesenen Datensätzen, Fehlern und Ende-Markierungen der Worker */
+		private final BlockingQueue<Object> _buffer;
+
+		private final Thread[] _workers;
+
+		/** Anzahl der Worker, deren Ende-Markierung noch nicht mit {@link #take()} abgerufen wurde */
+		private int _runningWorkers;
+
+		private volatile boolean _aborted = false;
+
+		private MergedStream(final ArchiveQueryPriority priority, final List<List<ArchiveDataSpecification>> subQueries, final int parallelQueries) {
+			_priority = priority;
+			_subQueries = subQueries;
+			_buffer = new ArrayBlockingQueue<Object>(_prefetchSize);
+			_workers = new Thread[parallelQueries];
+			_runningWorkers = parallelQueries;
+			for(int i = 0; i < parallelQueries; i++) {
+				_workers[i] = new Thread(
+						new Runnable() {
+							public void run() {
+								work();
+							}
+						}, "ArchiveQueryPlanner.Worker(" + i + ")"
+				);
+				_workers[i].setDaemon(true);
+			}
+		}
+
+		private void start() {
+			for(Thread worker : _workers) {
+				worker.start();
+			}
+		}
+
+		/**
+		 * Gibt die Anzahl der Teilanfragen zurück, in die die Archivanfrage aufgeteilt wurde.
+		 *
+		 * @return Anzahl der Teilanfragen
+		 */
+		public int getNumberOfSubQueries() {
+			return _subQueries.size();
+		}
+
+		/**
+		 * Gibt die Anzahl der gleichzeitig bearbeiteten Teilanfragen zurück.
+		 *
+		 * @return Anzahl der gleichzeitig bearbeiteten Teilanfragen
+		 */
+		public int getNumberOfParallelQueries() {
+			return _workers.length;
+		}
+
+		/**
+		 * Entfernt den nächsten Datensatz aus dem Datenstrom und gibt ihn zurück. Wenn noch kein Datensatz vorausgelesen wurde, wird gewartet.
+		 *
+		 * @return Der nächste Archivdatensatz oder <code>null</code>, wenn alle Datensätze aller Teilanfragen abgerufen wurden.
+		 *
+		 * @throws IllegalStateException Falls der Datenstrom mit {@link #abort()} abgebrochen wurde.
+		 * @throws InterruptedException  Falls der aufrufende Thread unterbrochen wurde, während auf den nächsten Datensatz gewartet wurde.
+		 * @throws IOException           Falls eine Teilanfrage nicht erfolgreich war oder Probleme in der Kommunikation mit dem Archivsystem aufgetreten sind.
+		 */
+		public ArchiveData take() throws InterruptedException, IOException, IllegalStateException {
+			while(true) {
+				if(_aborted) throw new IllegalStateException("Der Datenstrom wurde mit 'abort' abgebrochen und dann erneut mit 'take' aufgerufen");
+				if(_runningWorkers == 0) return null;
+				final Object item = _buffer.take();
+				if(item == END_OF_WORKER) {
+					_runningWorkers--;
+				}
+				else if(item instanceof ArchiveData) {
+					return (ArchiveData)item;
+				}
+				else {
+					abort();
+					final Exception e = (Exception)item;
+					if(e instanceof IOException) throw (IOException)e;
+					throw new IOException("Fehler bei der Bearbeitung einer Teilanfrage: " + e.getMessage(), e);
+				}
+			}
+		}
+
+		/**
+		 * Bricht die Übertragung von Datensätzen ab. Noch laufende Teilanfragen werden abgebrochen und noch nicht gestellte Teilanfragen werden nicht mehr gestellt.
+		 * Anschließende Aufrufe der Methode {@link #take} werden mit einer entsprechenden Exception quittiert.
+		 */
+		public void abort() {
+			_aborted = true;
+			_buffer.clear();
+		}
+
+		/** Wird von den Worker-Threads ausgeführt und stellt solange Teilanfragen, bis alle Teilanfragen gestellt wurden oder der Datenstrom abgebrochen wurde. */
+		private void work() {
+			try {
+				int index;
+				while(!_aborted && (index = _nextSubQuery.getAndIncrement()) < _subQueries.size()) {
+					processSubQuery(_subQueries.get(index));
+				}
+			}
+			catch(InterruptedException e) {
+				_debug.fine("Bearbeitung von Teilanfragen wurde unterbrochen");
+			}
+			catch(Exception e) {
+				_debug.warning("Fehler bei der Bearbeitung einer Teilanfrage", e);
+				try {
+					put(e);
+				}
+				catch(InterruptedException ignored) {
+				}
+			}
+			finally {
+				try {
+					put(END_OF_WORKER);
+				}
+				catch(InterruptedException ignored) {
+				}
+			}
+		}
+
+		private void processSubQuery(final List<ArchiveDataSpecification> specs) throws InterruptedException, IOException {
+			final ArchiveDataQueryResult result = _archiveRequestManager.request(_priority, specs);
+			if(!result.isRequestSuccessful()) {
+				throw new IOException("Teilanfrage war nicht erfolgreich: " + result.getErrorMessage());
+			}
+			final ArchiveDataStream[] streams = result.getStreams();
+			for(int i = 0; i < streams.length; i++) {
+				if(_aborted) {
+					for(int j = i; j < streams.length; j++) {
+						streams[j].abort();
+					}
+					return;
+				}
+				ArchiveData archiveData;
+				while((archiveData = streams[i].take()) != null) {
+					if(!put(archiveData)) {
+						for(int j = i; j < streams.length; j++) {
+							streams[j].abort();
+						}
+						return;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Übergibt ein Element an den Puffer. Ist der Puffer voll, dann wird gewartet, bis wieder Platz ist oder der Datenstrom abgebrochen wurde.
+		 *
+		 * @param item Zu übergebendes Element
+		 *
+		 * @return <code>true</code>, wenn das Element übergeben wurde, <code>false</code>, wenn der Datenstrom abgebrochen wurde.
+		 *
+		 * @throws InterruptedException Falls der Worker-Thread unterbrochen wurde.
+		 */
+		private boolean put(final Object item) throws InterruptedException {
+			while(!_aborted) {
+				if(_buffer.offer(item, 100, TimeUnit.MILLISECONDS)) return true;
+			}
+			return false;
+		}
+	}
+}
@@ -28,10 +28,9 @@
 
 package de.bsvrz.dav.daf.main.impl;
 
-import de.bsvrz.dav.daf.communication.dataRepresentation.data.DataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.LazyData;
 import de.bsvrz.dav.daf.communication.dataRepresentation.datavalue.SendDataObject;
 import de.bsvrz.dav.daf.communication.lowLevel.telegrams.BaseSubscriptionInfo;
-import de.bsvrz.dav.daf.main.Data;
 import de.bsvrz.dav.daf.main.config.*;
 import de.bsvrz.sys.funclib.debug.Debug;
 
@@ -95,8 +94,8 @@ public class CacheManager {
 
 	/**
 	 * Diese Methode wird von der Protokollsteuerung DaV-DAF aufgerufen, wenn ein aktuelles Datum angekommen ist. Die Datensätze, die als Bytestrom ankommen,
-	 * werden zuerst in Attribute umgewandelt, und ein neues CachedObject wird gebildet. Dieses wird nach dem Datensatzindex sortiert in den Cache eingefügt, und
-	 * die SubscriptionManager- Subkomponente wird über das Ankommen des aktuellen Datums benachrichtigt.
+	 * werden unverändert in ein neues CachedObject übernommen und erst beim ersten Zugriff auf den Datensatz umgewandelt. Das CachedObject wird nach dem
+	 * Datensatzindex sortiert in den Cache eingefügt, und die SubscriptionManager- Subkomponente wird über das Ankommen des aktuellen Datums benachrichtigt.
 	 *
 	 * @param newData Neuer Datensatz
 	 * @throws InterruptedException Wenn der Thread während eines blockierenden Aufrufs unterbrochen wurde
@@ -113,20 +112,22 @@ public class CacheManager {
 		byte attributesIndicator[] = newData.getAttributesIndicator();
 //		DataValue values[] = null;
 		final byte[] dataBytes = newData.getData();
-		final Data data;
+		final LazyData data;
 //		final DataModel configuration = configurationManager.getDataModel();
 		if(dataBytes == null) {
 			data = null;
 		}
 		else {
 			try {
-				final AttributeGroup atg = _dataModel.getAttributeGroupUsage(baseSubscriptionInfo.getUsageIdentification()).getAttributeGroup();
 				if(attributesIndicator != null) {
+					final AttributeGroup atg = _dataModel.getAttributeGroupUsage(baseSubscriptionInfo.getUsageIdentification()).getAttributeGroup();
 					throw new RuntimeException(
 							"Anmeldungen auf einzelne Attribute der Attributgruppe werden nicht unterstützt. " + "atg: " + atg.getPid()
 					);
 				}
-				data = DataFactory.forVersion(1).createUnmodifiableData(atg, dataBytes);
+				// Der Datensatz wird erst umgewandelt, wenn tatsächlich darauf zugegriffen wird. Bei schnell aufeinanderfolgenden Datensätzen werden viele
+				// Datensätze im Cache ersetzt, bevor sie gelesen werden.
+				data = new LazyData(dataBytes, _dataModel, baseSubscriptionInfo.getUsageIdentification());
 
 //				DataInputStream in = new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(data)));
 //				values = StreamFetcher.getInstance().getDataValuesFromStream(
@@ -27,6 +27,7 @@
 
 package de.bsvrz.dav.daf.main.impl;
 
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.LazyData;
 import de.bsvrz.dav.daf.main.config.DataModel;
 import de.bsvrz.dav.daf.main.Data;
 import de.bsvrz.dav.daf.communication.lowLevel.telegrams.BaseSubscriptionInfo;
@@ -60,8 +61,8 @@ public class CachedObject {
 	 */
 	private byte errorFlag;
 
-	/** Datensatz */
-	private Data _data;
+	/** Datensatz in serialisierter Form, wird erst beim ersten Zugriff umgewandelt */
+	private LazyData _data;
 
 	/**
 	 * @param _baseSubscriptionInfo Anmeldeinformationen
@@ -158,10 +159,10 @@ public class CachedObject {
 	 * Diese Methode wird von {@link CacheManager} aufgerufen und setzt die übergebenen Parameter im Objekt neu.
 	 *
 	 * @param _attributeIndicator wird nicht mehr unterstützt und muss <code>null</code> sein.
-	 * @param data                Neuer Datensatz der mit {@link #getData()} angefordert werden kann
+	 * @param data                Neuer Datensatz in serialisierter Form, der mit {@link #getData()} angefordert werden kann
 	 * @param _delayedDataFlag    true = Die übergenenen Daten sind nachgeliefert
 	 */
-	public void update(byte _attributeIndicator[], Data data, boolean _delayedDataFlag) {
+	public void update(byte _attributeIndicator[], LazyData data, boolean _delayedDataFlag) {
 		if(_attributeIndicator != null) {
 			throw new IllegalArgumentException(
 					"Anmeldungen auf einzelne Attribute der Attributgruppe werden nicht unterstützt. " + "data: " + data
@@ -182,11 +183,20 @@ public class CachedObject {
 	}
 
 	/**
-	 * Gepufferter Datensatz.
+	 * Gepufferter Datensatz. Der Datensatz wird beim ersten Zugriff aus der serialisierten Form erzeugt.
 	 *
 	 * @return Datensatz
 	 */
 	public Data getData() {
+		return _data == null ? null : _data.getData();
+	}
+
+	/**
+	 * Gepufferter Datensatz in serialisierter Form, der erst bei Bedarf umgewandelt wird.
+	 *
+	 * @return Datensatz oder <code>null</code>, wenn kein Datensatz vorhanden ist.
+	 */
+	public LazyData getLazyData() {
 		return _data;
 	}
 }
@@ -327,14 +327,14 @@ public class SubscriptionManager {
 								}
 							}
 						}
-						lastResult = new ResultData(
+						lastResult = ResultData.createWithLazyData(
 								receiverSubscription.getSystemObject(),
 								_dataDescription,
 								cachedObject.getDelayedDataFlag(),
 								cachedObject.getDataNumber(),
 								cachedObject.getDataTime(),
 								cachedObject.getErrorFlag(),
-								cachedObject.getData()
+								cachedObject.getLazyData()
 						);
 						if(receiver instanceof NonQueueingReceiver) {
 							receiver.update(new ResultData[]{lastResult});
@@ -989,14 +989,14 @@ public class SubscriptionManager {
 									}
 								}
 							}
-							ResultData result = new ResultData(
+							ResultData result = ResultData.createWithLazyData(
 									receiverSubscription.getSystemObject(),
 									dataDescription,
 									cachedObject.getDelayedDataFlag(),
 									cachedObject.getDataNumber(),
 									cachedObject.getDataTime(),
 									cachedObject.getErrorFlag(),
-									cachedObject.getData()
+									cachedObject.getLazyData()
 							);
 							ClientReceiverInterface receiver = receiverSubscription.getClientReceiver();
 							if(receiver instanceof NonQueueingReceiver) {
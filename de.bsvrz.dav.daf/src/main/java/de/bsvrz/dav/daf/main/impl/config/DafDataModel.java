@@ -201,7 +201,10 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 
 	private DavConnectionListener _davConnectionListener;
 
-	private Map<Long, ConfigurationAreaInfo> _areaInfos;
+	private Map<Long, LocalConfigurationCache.AreaVersion> _areaInfos;
+
+	/** Beim Start eingeblendete lokale Konfigurationsdatei, aus der Objekte und Datensätze bei Bedarf erzeugt werden, oder <code>null</code> */
+	private volatile LocalConfigurationCache _localConfigurationCache;
 
 	private DafSystemObject[] _configAreas;
 
@@ -277,50 +280,13 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 		return _connectionClosed;
 	}
 	
-	/** Hilfsklasse zum Speichern von Informationen zu Konfigurationsbereichen. */
-	private class ConfigurationAreaInfo {
-
-		private DafConfigurationArea _area;
-
-		private short _activeVersion;
-
-		private long _dynamicObjectChangeTime;
-
-		private long _configurationObjectChangeTime;
-
-		private long _configurationDataChangeTime;
-
-		public ConfigurationAreaInfo(
-				final DafConfigurationArea area,
-				final short activeVersion,
-				final long dynamicObjectChangeTime,
-				final long configurationObjectChangeTime,
-				final long configurationDataChangeTime
-		) {
-			_area = area;
-			_activeVersion = activeVersion;
-			_dynamicObjectChangeTime = dynamicObjectChangeTime;
-			_configurationObjectChangeTime = configurationObjectChangeTime;
-			_configurationDataChangeTime = configurationDataChangeTime;
-		}
-	}
-
 	/**
-	 * Liest lokal zwischengespeicherte Konfigurationsobjekte und konfigurierende Datensätze ein, falls in dem entsprechenden Aufrufparameter ein Verzeichnis
-	 * angegeben wurde und dort eine passende Datei vorhanden ist.
-	 * Nach der Anzahl der relevanten Konfigurationsbereiche werden für jeden Konfigurationsbereich folgende Informationen in der Datei erwartet
-	 * <ul><li>die (long-)Id des Konfigurationsbereiches,</li> <li>die  (short-)Aktive Version des Konfigurationsbereiches,</li><li> der (long-) Zeitstempel der
-	 * letzen Änderung von dynamischen Objekten,</li><li> der (long-) Zeitsempel der letzten Änderung von konfigurierenden Objekten,</li><li> der Zeitstempel der
-	 * letzten Änderung von konfigurierenden Datensätzen</li></ul>
-	 * Diese Informationen werden mit den entsprechenden Werten in der Konfiguration verglichen. Nur wenn alle Werte übereinstimmen, werden Objekte des
-	 * jeweiligen Bereichs aus der Datei geladen.
-	 * Ein Konfigurationsobjekt wird seriell wie folgt aus der Datei gelesen: <ol> <li>byte: 1 (die eins kennzeichnet ein Konfigurationsobjekt und zeigt an, dass
-	 * ein solches folgt)</li> <li>byte: internType (gint an, um welchen Typ von Konfigurationsobjekt es sich handelt)</li> <li>Object: object(serielles
-	 * Objekt)</li> </ol> Ein konfigurierender Datensatz wird seriell aus der Datei wie folgt gelesen: <ol> <li> byte: 2 (die zwei kennzeichnet einen
-	 * konfigurierenden Datensatz und zeigt an das ein solcher folgt)</li> <li> long: Objekt-ID(Die ID des Objektes zu dem der konfiguriende Datensatz gehört)</li>
-	 * <li> long: AtgV-ID(Die ID der Atributgruppenverwedung des konfigurienden Datensatzes)</li> <li> boolean: true-> Datensatz enthält Daten, false-> Datensatz
-	 * enthält keine Daten</li> <li> Data: serialisierte Daten des Datensatzes</li> </ol> Abschließend wird eine byte-0 geschrieben, das anzeigt, dass das Ende der
-	 * Datei erreicht ist.
+	 * Blendet die lokal zwischengespeicherten Konfigurationsobjekte und konfigurierenden Datensätze ein, falls in dem entsprechenden Aufrufparameter ein
+	 * Verzeichnis angegeben wurde und dort eine passende Datei vorhanden ist. Für jeden in der Datei enthaltenen Konfigurationsbereich werden die aktive Version
+	 * und die Zeitstempel der letzten Änderung von dynamischen Objekten, Konfigurationsobjekten und konfigurierenden Datensätzen mit den entsprechenden Werten in
+	 * der Konfiguration verglichen. Nur wenn alle Werte übereinstimmen, werden Objekte des jeweiligen Bereichs aus der Datei verwendet. Die Objekte und
+	 * Datensätze werden dabei nicht sofort eingelesen, sondern erst beim ersten Zugriff aus der Datei erzeugt. Der Aufbau der Datei ist bei {@link
+	 * LocalConfigurationCache} beschrieben.
 	 */
 	public void loadLocalConfigurationCache() {
 		String configurationPath = _configurationManager.getConfigurationPath();
@@ -329,7 +295,7 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 			if(configurationPath == null) {
 				return;
 			}
-			Map<Long, ConfigurationAreaInfo> areaInfos = new HashMap<Long, ConfigurationAreaInfo>();
+			Map<Long, LocalConfigurationCache.AreaVersion> areaInfos = new HashMap<Long, LocalConfigurationCache.AreaVersion>();
 			final Data[] datas = getConfigurationData(_configAreas, getAttributeGroup("atg.konfigurationsBereichÄnderungsZeiten"));
 			for(int i = 0; i < _configAreas.length; i++) {
 				DafSystemObject configArea = _configAreas[i];
@@ -345,9 +311,9 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 						configurationObjectChangeTime = datas[i].getTimeValue("LetzteÄnderungszeitKonfigurationsObjekt").getMillis();
 						configurationDataChangeTime = datas[i].getTimeValue("LetzteÄnderungszeitDatensatz").getMillis();
 					}
-					final ConfigurationAreaInfo info;
-					info = new ConfigurationAreaInfo(
-							configurationArea, activeVersion, dynamicObjectChangeTime, configurationObjectChangeTime, configurationDataChangeTime
+					final LocalConfigurationCache.AreaVersion info;
+					info = new LocalConfigurationCache.AreaVersion(
+							configurationArea.getPid(), activeVersion, dynamicObjectChangeTime, configurationObjectChangeTime, configurationDataChangeTime
 					);
 					areaInfos.put(areaId, info);
 				}
@@ -392,160 +358,26 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 				return;
 			}
 			FileLock fileLock = new FileLock(localConfigurationFile);
-			DataInputStream in = null;
 			fileLock.lock();
 			try {
 				_debug.info("Lokale Konfiguration wird gelesen", localConfigurationFile);
-				in = new DataInputStream(new BufferedInputStream(new FileInputStream(localConfigurationFile)));
-
-				// Fester String zur Kennzeichnung der Datei
-				if(in.readUTF().equals("LokaleKonfigurationsCacheDatei") == false) {
-					throw new IllegalArgumentException("Dateikopf Fehlerhaft; Datei ist keine lokale Konfigurationsdatei");
+				final LocalConfigurationCache localConfigurationCache;
+				try {
+					localConfigurationCache = LocalConfigurationCache.open(localConfigurationFile, _areaInfos);
 				}
-
-				// Versionsnummer
-				if(in.readByte() != 1) {
-					throw new IllegalArgumentException("Version der lokalen Konfigurationsdatei ist nicht wie erwartet 1");
+				catch(IllegalArgumentException e) {
+					// z.B. Datei im alten Format, sie wird beim Beenden neu geschrieben
+					_debug.info("Lokale Konfigurationsdatei wird nicht verwendet: " + e.getMessage(), localConfigurationFile);
+					return;
 				}
+				_acceptedCachedAreas = localConfigurationCache.getAcceptedAreas();
+				_ignoredCachedAreas = localConfigurationCache.getIgnoredAreas();
+				_acceptedCachedSystemObjects = localConfigurationCache.getAcceptedObjects();
+				_ignoredCachedSystemObjects = localConfigurationCache.getIgnoredObjects();
+				_acceptedCachedConfigData = localConfigurationCache.getAcceptedData();
+				_ignoredCachedConfigData = localConfigurationCache.getIgnoredData();
+				_localConfigurationCache = localConfigurationCache;
 
-				Set<Long> acceptableAreas = new HashSet<Long>();
-
-				// Anzahl der folgenden Blöcke, die jeweils Informationen zu einem Konfigurationsbereich aufweisen
-				int numberOfAreas = in.readInt();
-
-				_acceptedCachedAreas = 0;
-
-				_ignoredCachedAreas = 0;
-
-
-				for(int i = 0; i < numberOfAreas; i++) {
-
-					// Id des Bereichs
-					long areaId = in.readLong();
-
-					// Aktive Version des Bereichs
-					short activeVersion = in.readShort();
-
-					// Zeitstempel der letzten Änderung an dynamischen Objekten des Bereichs
-					final long dynamicObjectChangeTime = in.readLong();
-
-					// Zeitstempel der letzten Änderung an Konfigurationsobjekten des Bereichs
-					final long configurationObjectChangeTime = in.readLong();
-
-					// Zeitstempel der letzten Änderung an konfigurierenden Datensätzen
-					final long configurationDataChangeTime = in.readLong();
-
-					final DafDataModel.ConfigurationAreaInfo info = _areaInfos.get(areaId);
-
-					if(info == null) continue;
-
-					if(info._activeVersion == activeVersion && info._dynamicObjectChangeTime == dynamicObjectChangeTime
-					   && info._configurationObjectChangeTime == configurationObjectChangeTime
-					   && info._configurationDataChangeTime == configurationDataChangeTime) {
-						_acceptedCachedAreas++;
-						acceptableAreas.add(areaId);
-						_debug.finer("Objekte des folgenden Bereichs werden akzeptiert", info._area.getPid());
-					}
-					else {
-						_ignoredCachedAreas++;
-						_debug.info(
-								"Da sich der folgende Konfigurationsbereich geändert hat, werden lokal gespeicherte Objekte dieses Bereichs verworfen",
-								info._area.getPid()
-						);
-					}
-				}
-
-				_acceptedCachedSystemObjects = 0;
-				_ignoredCachedSystemObjects = 0;
-
-				_acceptedCachedConfigData = 0;
-				_ignoredCachedConfigData = 0;
-
-				//deserialisieren
-				Deserializer deserializer = SerializingFactory.createDeserializer(in);
-
-				while(true) {
-					// Kennung, 1 heisst: es folgt ein Objekt, 2 heisst: es folgt ein konfigurierender Datensatz,  0 heisst: Ende
-					byte token = in.readByte();
-
-					if(token == 1) {
-
-						// Typkennung des Objekts
-						byte objectTypeByte = in.readByte();
-
-						DafSystemObject object = DafSystemObject.getObject(objectTypeByte, this);
-						if(object == null) {
-							throw new RuntimeException("Fehlerhafter Dateiaufbau, Objekttypkennung " + objectTypeByte);
-						}
-
-						// Serialisiertes Objekt
-						object.read(in);
-						if(acceptableAreas.contains(object.getConfigurationAreaId())) {
-							_acceptedCachedSystemObjects++;
-							// Objekt in interne Tabellen eintragen
-							updateInternalDataStructure(object, false);
-						}
-						else {
-							_ignoredCachedSystemObjects++;
-						}
-					}
-					else if(token == 2) {
-						long objectID = deserializer.readLong();
-						long atgUsageID = deserializer.readLong();
-
-						SystemObject object = this.getObject(objectID);
-						AttributeGroupUsage atgUsage = this.getAttributeGroupUsage(atgUsageID);
-						if(object == null || atgUsage == null) {
-							throw new IllegalStateException("unbekannte gespeicherte Datenidentifikation: Objekt-ID: " + objectID + ", objekt: " + object + ", atgUsageID: " + atgUsageID + ", atgUsage: " + atgUsage);
-						}
-
-						ConfigDataKey dataKey = new ConfigDataKey(object, atgUsage);
-
-						boolean dataExists = deserializer.readBoolean();
-						boolean accepted = acceptableAreas.contains(object.getConfigurationArea().getId());
-						Data data;
-
-						//Existiert der Datensatz ?
-						if(dataExists) {
-
-							AttributeGroup atg = atgUsage.getAttributeGroup();
-
-							try {
-								data = deserializer.readData(atg, this);
-							}
-							catch(Exception e) {
-								//beim Lesen des Datensatzes ist ein Fehler aufgetreten,
-								//ab hier werden alle konfigurierenden Datensätze aus der Datei ignoriert
-								_debug.warning("Fehler beim Lesen eines Zwischengespeicherten Datensatzes", e);
-								break;
-							}
-						}
-						else {
-							data = null;
-						}
-
-						if(accepted) {
-							_acceptedCachedConfigData++;
-
-							if(data != null) {
-								_configDataValuesTable.put(dataKey, data);
-							}
-							else {
-								//es existiert kein Datensatz
-								_configDataValuesTable.put(dataKey, _noDataMarker);
-							}
-						}
-						else {
-							_ignoredCachedConfigData++;
-						}
-					}
-					else if(token == 0) {
-						break;
-					}
-					else {
-						throw new RuntimeException("Fehlerhafter Dateiaufbau, Token " + token);
-					}
-				}
 				_debug.fine("Anzahl akzeptierter Konfigurationsbereiche", _acceptedCachedAreas);
 				_debug.fine("Anzahl verworfener Konfigurationsbereiche", _ignoredCachedAreas);
 				_debug.fine("Anzahl akzeptierter SystemObjekte", _acceptedCachedSystemObjects);
@@ -556,9 +388,6 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 				_debug.info("lokale Konfigurationsdatei wurde erfolgreich eingelesen");
 			}
 			finally {
-				if(in != null) {
-					in.close();
-				}
 				fileLock.unlock();
 			}
 		}
@@ -569,18 +398,10 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 	}
 
 	/**
-	 * Speichert Konfigurationsobjekte und konfigurierende Datensätze in einer lokalen Konfigurationsdatei, falls im entsprechenden Aufrufparameter ein Verzeichnis
-	 * angegeben wurde. Vor den Konfigurationsobjekten und deren Datensätzen wird folgendes geschrieben: <ul><li>die (long-)Id des Konfigurationsbereiches,</li>
-	 * <li>die  (short-)Aktive Version des Konfigurationsbereiches,</li><li> der (long-) Zeitstempel der letzen Änderung von dynamischen Objekten,</li><li> der
-	 * (long-) Zeitsempel der letzten Änderung von konfigurierenden Objekten,</li><li> der Zeitstempel der letzten Änderung von konfigurierenden
-	 * Datensätzen</li></ul>
-	 * EinkonfigurationsObjekt wird seriell wie folgt in der Datei abgelegt: <ol> <li>byte: 1 (die eins kennzeichnet ein Konfigurationsobjekt und zeigt an, dass
-	 * ein solches folgt)</li> <li>byte: internType (gint an, um welchen Typ von Konfigurationsobjekt es sich handelt)</li> <li>Object: object(serielles
-	 * Objekt)</li> </ol> Ein konfigurierender Datensatz wird seriell in der Datei wie folgt abgelegt: <ol> <li> byte: 2 (die zwei kennzeichnet einen
-	 * konfigurierenden Datensatz und zeigt an das ein solcher folgt)</li> <li> long: Objekt-ID(Die ID des Objektes zu dem der konfiguriende Datensatz gehört)</li>
-	 * <li> long: AtgV-ID(Die ID der Atributgruppenverwedung des konfigurienden Datensatzes)</li> <li> boolean: true-> Datensatz enthält Daten, false-> Datensatz
-	 * enthält keine Daten</li> <li> Data: serialisierte Daten des Datensatzes</li> </ol> Abschließend wird eine byte-0 geschrieben, die anzeigt, dass das Ende der
-	 * Datei erreicht ist.
+	 * Speichert Konfigurationsobjekte und konfigurierende Datensätze in einer lokalen Konfigurationsdatei, falls im entsprechenden Aufrufparameter ein
+	 * Verzeichnis angegeben wurde. Wenn sich die Konfigurationsbereiche seit dem letzten Speichern nicht geändert haben, werden nur die neu hinzugekommenen
+	 * Objekte und Datensätze an die vorhandene Datei angehängt, andernfalls wird die Datei neu geschrieben. Der Aufbau der Datei ist bei {@link
+	 * LocalConfigurationCache} beschrieben.
 	 */
 	private void saveLocalConfigurationCache() {
 		String configurationPath = null;
@@ -603,99 +424,32 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 				_debug.warning("Schreibender Zugriff auf vorhandene lokale Konfigurationsdatei nicht erlaubt", localConfigurationFile);
 				return;
 			}
-			boolean saveWasSuccessful = false;
-			DataOutputStream out = null;
+			final List<DafSystemObject> objects = new ArrayList<DafSystemObject>();
+			final Set<Long> handledIds = new HashSet<Long>();
+			synchronized(_systemObjectsById) {
+				for(DafSystemObject object : _systemObjectsById.values()) {
+					handledIds.add(object.getId());
+					if(object.isValid() && !_metaObjectTypes.contains(object.getType())) objects.add(object);
+				}
+			}
+			final Map<ConfigDataKey, Data> configData = new HashMap<ConfigDataKey, Data>();
+			synchronized(_configDataValuesTable) {
+				for(Map.Entry<ConfigDataKey, Object> entry : _configDataValuesTable.entrySet()) {
+					final Object value = entry.getValue();
+					configData.put(entry.getKey(), value instanceof Data ? (Data)value : null);
+				}
+			}
 			FileLock fileLock = new FileLock(localConfigurationFile);
 			fileLock.lock();
 			try {
 				_debug.info("Lokale Konfiguration wird geschrieben", localConfigurationFile);
-				out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(localConfigurationFile)));
-				// Fester String zur Kennzeichnung der Datei
-				out.writeUTF("LokaleKonfigurationsCacheDatei");
-				// Versionsnummer
-				out.writeByte(1);
-				// Anzahl der folgenden Blöcke, die jeweils Informationen zu einem Konfigurationsbereich aufweisen
-				out.writeInt(_areaInfos.size());
-				for(Map.Entry<Long, ConfigurationAreaInfo> entry : _areaInfos.entrySet()) {
-					final long areaId = entry.getKey();
-					final DafDataModel.ConfigurationAreaInfo info = entry.getValue();
-					// Id des Bereichs
-					out.writeLong(areaId);
-					// Aktive Version des Bereichs
-					out.writeShort(info._activeVersion);
-					// Zeitstempel der letzten Änderung an dynamischen Objekten des Bereichs
-					out.writeLong(info._dynamicObjectChangeTime);
-					// Zeitstempel der letzten Änderung an Konfigurationsobjekten des Bereichs
-					out.writeLong(info._configurationObjectChangeTime);
-					// Zeitstempel der letzten Änderung an konfigurierenden Datensätzen
-					out.writeLong(info._configurationDataChangeTime);
-				}
-
-				DafSystemObject[] objects;
-				synchronized(_systemObjectsById) {
-					objects = _systemObjectsById.values().toArray(new DafSystemObject[0]);
-				}
-				int systemObjectsWritten = 0;
-				for(int i = 0; i < objects.length; i++) {
-
-					DafSystemObject object = objects[i];
-					if(object.isValid() && !_metaObjectTypes.contains(object.getType())) {
-
-						// Kennung 1 heisst: es folgt ein Objekt
-						out.writeByte(1);
-
-						// Typkennung des Objekts
-						out.writeByte(object.getInternType());
-
-						// Serialisiertes Objekt
-						object.write(out);
-
-						systemObjectsWritten++;
-					}
-				}
-
-				//Konfigurierende Datensätze schreiben
-				int configDataSetsWritten = 0;
-				final Serializer serializer = SerializingFactory.createSerializer(out);
-				final Set<Map.Entry<ConfigDataKey, Object>> entries = _configDataValuesTable.entrySet();
-				for(Map.Entry<ConfigDataKey, Object> entry : entries) {
-
-					// Kennung 2 heisst: es folgt ein konfigurierender Datensatz
-					// Aufbau => 2-> Long:ID-Objekt-> Long:ID-AtgV-> Boolean-Data-> Data
-					serializer.writeByte(2);
-
-					final ConfigDataKey key = entry.getKey();
-					serializer.writeLong(key._object.getId());
-					serializer.writeLong(key._atgUsage.getId());
-
-					if(entry.getValue() instanceof Data) {
-						Data data = (Data)entry.getValue();
-						serializer.writeBoolean(true);
-						serializer.writeData(data);
-					}
-					else {
-						// Kein Datensatz in der Konfiguration
-						serializer.writeBoolean(false);
-					}
-
-					configDataSetsWritten++;
-				}
-				_debug.fine("Anzahl geschriebener Systemobjekte", systemObjectsWritten);
-				_debug.fine("Anzahl geschriebener konfigurierender Datensätze", configDataSetsWritten);
-
-				// Kennung 0 heisst: Ende
-				out.writeByte(0);
-
-				saveWasSuccessful = true;
+				// Die beim Start eingeblendete Datei wird beim Speichern geschlossen und darf danach nicht mehr benutzt werden
+				final LocalConfigurationCache previous = _localConfigurationCache;
+				_localConfigurationCache = null;
+				LocalConfigurationCache.save(localConfigurationFile, _areaInfos, objects, handledIds, configData, previous);
 				_debug.info("lokale Konfigurationsdatei wurde erfolgreich geschrieben");
 			}
 			finally {
-				if(out != null) {
-					out.close();
-				}
-				if(saveWasSuccessful == false) {
-					localConfigurationFile.delete();
-				}
 				fileLock.unlock();
 			}
 		}
@@ -833,6 +587,9 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 
 				// assert systemObject instanceof DafDynamicObject;
 
+				final LocalConfigurationCache localConfigurationCache = _localConfigurationCache;
+				if(localConfigurationCache != null) localConfigurationCache.forgetObject(id);
+
 				final DafSystemObject oldObject = _systemObjectsById.get(id);
 				if(oldObject != null) {
 					systemObject = oldObject;
@@ -943,10 +700,7 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 		if(pid == null) {
 			throw new IllegalArgumentException("Übergabeparameter ist null");
 		}
-		SystemObject systemObject;
-		synchronized(_systemObjectsById) {
-			systemObject = _systemObjectsByPid.get(pid);
-		}
+		SystemObject systemObject = getObjectFromCache(pid);
 		if(systemObject == null) {
 			systemObject = getSystemObjectsFromConfiguration(pid).get(0);
 		}
@@ -997,7 +751,7 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 				systemObject = null;
 			}
 			else {
-				systemObject = _systemObjectsByPid.get(pid);
+				systemObject = getObjectFromCache(pid);
 				if(systemObject == null) {
 					objectsToRequest.add(pid);
 					origPositions.add(i);
@@ -1345,7 +1099,53 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 	 */
 	DafSystemObject getObjectFromCache(final long objectId) {
 		synchronized(_systemObjectsById) {
-			return _systemObjectsById.get(objectId);
+			final DafSystemObject systemObject = _systemObjectsById.get(objectId);
+			if(systemObject != null) return systemObject;
+		}
+		return readObjectFromLocalConfigurationCache(objectId);
+	}
+
+	/**
+	 * Gibt das SystemObjekt mit der angegebenen Pid aus dem Cache zurück. Befindet sich das Objekt nicht im Cache wird <code>null</code> zurückgegeben.
+	 *
+	 * @param pid Pid des Objekts
+	 *
+	 * @return SystemObjekt aus dem Cache oder <code>null</code>, falls es sich nicht im Cache befindet.
+	 */
+	private DafSystemObject getObjectFromCache(final String pid) {
+		synchronized(_systemObjectsById) {
+			final DafSystemObject systemObject = _systemObjectsByPid.get(pid);
+			if(systemObject != null) return systemObject;
+		}
+		final LocalConfigurationCache localConfigurationCache = _localConfigurationCache;
+		if(localConfigurationCache == null) return null;
+		final long objectId = localConfigurationCache.getObjectId(pid);
+		if(objectId == 0 || readObjectFromLocalConfigurationCache(objectId) == null) return null;
+		// Nur Konfigurationsobjekte werden über die Pid zwischengespeichert
+		synchronized(_systemObjectsById) {
+			return _systemObjectsByPid.get(pid);
+		}
+	}
+
+	/**
+	 * Erzeugt ein Objekt aus der beim Start eingeblendeten lokalen Konfigurationsdatei und trägt es in die internen Tabellen ein.
+	 *
+	 * @param objectId Id des Objekts
+	 *
+	 * @return Objekt oder <code>null</code>, falls es nicht in der lokalen Konfigurationsdatei enthalten ist.
+	 */
+	private DafSystemObject readObjectFromLocalConfigurationCache(final long objectId) {
+		final LocalConfigurationCache localConfigurationCache = _localConfigurationCache;
+		if(localConfigurationCache == null) return null;
+		try {
+			final DafSystemObject object = localConfigurationCache.readObject(objectId, this);
+			if(object == null) return null;
+			return updateInternalDataStructure(object, false);
+		}
+		catch(Exception e) {
+			_debug.warning("Fehler beim Lesen eines Objekts aus der lokalen Konfigurationsdatei, Objekt-Id " + objectId, e);
+			localConfigurationCache.forgetObject(objectId);
+			return null;
 		}
 	}
 
@@ -1471,6 +1271,7 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 			final SystemObject object = objects[i];
 			final ConfigDataKey configDataKey = new ConfigDataKey(object, usage);
 			Object o = _configDataValuesTable.get(configDataKey);
+			if(o == null) o = readConfigurationDataFromLocalConfigurationCache(configDataKey);
 			if(o != null) {
 				// Objekt ist bereits im lokalen Cache, also einfach auslesen.
 				if(o == _noDataMarker) {
@@ -1500,6 +1301,33 @@ public class DafDataModel implements DataModel, UpdateDynamicObjects {
 		return result;
 	}
 
+	/**
+	 * Liest einen konfigurierenden Datensatz aus der beim Start eingeblendeten lokalen Konfigurationsdatei und trägt ihn in die Tabelle der
+	 * zwischengespeicherten Datensätze ein.
+	 *
+	 * @param configDataKey Identifikation des Datensatzes
+	 *
+	 * @return Datensatz, {@link #_noDataMarker} falls es keinen Datensatz gibt, oder <code>null</code>, falls der Datensatz nicht in der lokalen
+	 *         Konfigurationsdatei enthalten ist.
+	 */
+	private Object readConfigurationDataFromLocalConfigurationCache(final ConfigDataKey configDataKey) {
+		final LocalConfigurationCache localConfigurationCache = _localConfigurationCache;
+		if(localConfigurationCache == null) return null;
+		final long objectId = configDataKey._object.getId();
+		final long usageId = configDataKey._atgUsage.getId();
+		if(!localConfigurationCache.containsConfigurationData(objectId, usageId)) return null;
+		try {
+			final Data data = localConfigurationCache.readConfigurationData(objectId, usageId, configDataKey._atgUsage.getAttributeGroup(), this);
+			final Object value = data == null ? _noDataMarker : data;
+			_configDataValuesTable.put(configDataKey, value);
+			return value;
+		}
+		catch(Exception e) {
+			_debug.warning("Fehler beim Lesen eines zwischengespeicherten Datensatzes aus der lokalen Konfigurationsdatei", e);
+			return null;
+		}
+	}
+
 	/**
 	 * Liefert die konfigurierenden Datensätze einer Attributgruppenverwendung für mehrere Objekte zurück. Dies ist eine Hilfsfunktion zu
 	 * <code>getConfigurationData</code>, die im Gegensatz zu dieser keine Daten aus dem Cache liest (wohl aber welche hineinschreibt).
@@ -0,0 +1,724 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.daf.main.impl.config;
+
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.AttributeGroup;
+import de.bsvrz.dav.daf.main.config.ObjectLookup;
+import de.bsvrz.dav.daf.main.config.SystemObject;
+import de.bsvrz.dav.daf.util.MappedBuffers;
+import de.bsvrz.sys.funclib.dataSerializer.Serializer;
+import de.bsvrz.sys.funclib.dataSerializer.SerializingFactory;
+import de.bsvrz.sys.funclib.debug.Debug;
+import de.bsvrz.sys.funclib.filelock.FileLock;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lokale Datei zur Zwischenspeicherung von Konfigurationsobjekten und konfigurierenden Datensätzen einer Applikation (Dateiversion 2).
+ * <p>
+ * Die Datei wird beim Start der Applikation nicht mehr vollständig eingelesen, sondern in den Speicher eingeblendet. Dabei wird nur ein Index der
+ * enthaltenen Objekte (nach Id und Pid) und Datensätze (nach Objekt-Id und Id der Attributgruppenverwendung) aufgebaut. Die Objekte und Datensätze selbst
+ * werden erst beim ersten Zugriff aus der eingeblendeten Datei erzeugt.
+ * <p>
+ * Aufbau der Datei: <ul> <li>UTF-String <code>LokaleKonfigurationsCacheDatei</code>,</li> <li>byte: Version (2),</li> <li>int: Anzahl der
+ * Konfigurationsbereiche, danach je Bereich die (long-)Id, die (short-)aktive Version und die (long-)Zeitstempel der letzten Änderung von dynamischen Objekten,
+ * Konfigurationsobjekten und konfigurierenden Datensätzen,</li> <li>beliebig viele Einträge bis zum Dateiende.</li> </ul> Jeder Eintrag beginnt mit einer
+ * (byte-)Kennung und der (int-)Länge des restlichen Eintrags. Ein Konfigurationsobjekt (Kennung 1) enthält danach die (long-)Objekt-Id, die (long-)Id des
+ * Konfigurationsbereichs, die (UTF-)Pid, die (byte-)Typkennung und das serialisierte Objekt. Ein konfigurierender Datensatz (Kennung 2) enthält die
+ * (long-)Objekt-Id, die (long-)Id der Attributgruppenverwendung, die (long-)Id des Konfigurationsbereichs des Objekts, ein boolean, das angibt, ob ein
+ * Datensatz vorhanden ist, und ggf. den serialisierten Datensatz. Ein unvollständiger Eintrag am Dateiende wird ignoriert.
+ * <p>
+ * Solange sich die Konfigurationsbereiche nicht geändert haben und die Datei keinen unvollständigen Eintrag am Ende enthält, werden beim Speichern nur die
+ * neu hinzugekommenen Objekte und Datensätze an die Datei angehängt. Eine eingeblendete Datei wird dabei nie gekürzt. Andernfalls wird die Datei unter einem
+ * temporären Namen neu geschrieben und anschließend umbenannt. Vorher werden die eigenen Einblendungen der Datei mit {@link #close()} freigegeben, weil eine
+ * eingeblendete Datei unter Windows nicht ersetzt werden kann. Schlägt das Ersetzen fehl, weil ein anderer Prozess die Datei noch eingeblendet hat, dann
+ * bleibt die alte Datei erhalten.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+class LocalConfigurationCache {
+
+	/** DebugLogger für Debug-Ausgaben */
+	private static final Debug _debug = Debug.getLogger();
+
+	/** Fester String zur Kennzeichnung der Datei */
+	private static final String FILE_HEADER = "LokaleKonfigurationsCacheDatei";
+
+	/** Version des Dateiformats */
+	private static final byte FILE_VERSION = 2;
+
+	/** Kennung eines Eintrags mit einem Konfigurationsobjekt */
+	private static final byte OBJECT_RECORD = 1;
+
+	/** Kennung eines Eintrags mit einem konfigurierenden Datensatz */
+	private static final byte DATA_RECORD = 2;
+
+	/** Größe von Kennung und Länge am Anfang eines Eintrags */
+	private static final int RECORD_HEADER_SIZE = 5;
+
+	/** In den Speicher eingeblendete Datei. Position und Limit werden nicht verändert, für Zugriffe werden Kopien mit {@link ByteBuffer#duplicate()} erzeugt. */
+	private final MappedByteBuffer _buffer;
+
+	/** Sperre, die verhindert, dass die Einblendung während eines Zugriffs mit {@link #close()} freigegeben wird */
+	private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+
+	/** <code>true</code>, nachdem die Einblendung mit {@link #close()} freigegeben wurde */
+	private boolean _closed = false;
+
+	/** Position der Objekteinträge von akzeptierten Konfigurationsbereichen, als Key dient die Objekt-Id */
+	private final Map<Long, Integer> _objectPositions = new ConcurrentHashMap<Long, Integer>();
+
+	/** Objekt-Ids der Objekteinträge von akzeptierten Konfigurationsbereichen, als Key dient die Pid */
+	private final Map<String, Long> _objectIdsByPid = new HashMap<String, Long>();
+
+	/** Position der Datensatzeinträge von akzeptierten Konfigurationsbereichen */
+	private final Map<ConfigDataId, Integer> _dataPositions = new HashMap<ConfigDataId, Integer>();
+
+	/** <code>true</code>, wenn die in der Datei gespeicherten Konfigurationsbereiche genau mit den aktuellen übereinstimmen */
+	private final boolean _areasUnchanged;
+
+	/** Länge des gültigen Teils der Datei */
+	private final int _validLength;
+
+	private int _acceptedAreas = 0;
+
+	private int _ignoredAreas = 0;
+
+	private int _acceptedObjects = 0;
+
+	private int _ignoredObjects = 0;
+
+	private int _acceptedData = 0;
+
+	private int _ignoredData = 0;
+
+	/**
+	 * Blendet eine lokale Konfigurationsdatei in den Speicher ein und erzeugt den Index der enthaltenen Objekte und Datensätze. Es werden nur Einträge von
+	 * Konfigurationsbereichen berücksichtigt, deren Versionsinformationen mit den aktuellen übereinstimmen. Der Aufrufer muss die Datei mit einem {@link
+	 * FileLock} sperren.
+	 *
+	 * @param file         Lokale Konfigurationsdatei
+	 * @param areaVersions Aktuelle Versionsinformationen der Konfigurationsbereiche, als Key dient die Id des Bereichs
+	 *
+	 * @return Objekt zum Zugriff auf die eingeblendete Datei
+	 *
+	 * @throws IOException              Wenn beim Lesen der Datei Fehler aufgetreten sind.
+	 * @throws IllegalArgumentException Wenn die Datei keine lokale Konfigurationsdatei der Version 2 ist.
+	 */
+	static LocalConfigurationCache open(final File file, final Map<Long, AreaVersion> areaVersions) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		final MappedByteBuffer buffer;
+		try {
+			final long size = randomAccessFile.length();
+			if(size > Integer.MAX_VALUE) throw new IOException("Lokale Konfigurationsdatei ist zu groß: " + size);
+			// Die Einblendung bleibt auch nach dem Schließen der Datei gültig
+			buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+		try {
+			return new LocalConfigurationCache(buffer, areaVersions);
+		}
+		catch(IOException e) {
+			MappedBuffers.unmap(buffer);
+			throw e;
+		}
+		catch(RuntimeException e) {
+			MappedBuffers.unmap(buffer);
+			throw e;
+		}
+	}
+
+	private LocalConfigurationCache(final MappedByteBuffer buffer, final Map<Long, AreaVersion> areaVersions) throws IOException {
+		_buffer = buffer;
+		final ByteBuffer scanBuffer = buffer.duplicate();
+		final DataInputStream in = new DataInputStream(new ByteBufferInputStream(scanBuffer));
+
+		if(!in.readUTF().equals(FILE_HEADER)) {
+			throw new IllegalArgumentException("Dateikopf Fehlerhaft; Datei ist keine lokale Konfigurationsdatei");
+		}
+		final byte version = in.readByte();
+		if(version != FILE_VERSION) {
+			throw new IllegalArgumentException("Version der lokalen Konfigurationsdatei ist " + version + " und nicht wie erwartet " + FILE_VERSION);
+		}
+
+		final Set<Long> acceptableAreas = new HashSet<Long>();
+		final int numberOfAreas = in.readInt();
+		for(int i = 0; i < numberOfAreas; i++) {
+			final long areaId = in.readLong();
+			final AreaVersion storedVersion = new AreaVersion(null, in.readShort(), in.readLong(), in.readLong(), in.readLong());
+			final AreaVersion currentVersion = areaVersions.get(areaId);
+			if(currentVersion == null) continue;
+			if(currentVersion.equals(storedVersion)) {
+				_acceptedAreas++;
+				acceptableAreas.add(areaId);
+				_debug.finer("Objekte des folgenden Bereichs werden akzeptiert", currentVersion._areaPid);
+			}
+			else {
+				_ignoredAreas++;
+				_debug.info(
+						"Da sich der folgende Konfigurationsbereich geändert hat, werden lokal gespeicherte Objekte dieses Bereichs verworfen",
+						currentVersion._areaPid
+				);
+			}
+		}
+		_areasUnchanged = numberOfAreas == areaVersions.size() && _acceptedAreas == numberOfAreas;
+
+		int position = scanBuffer.position();
+		final int limit = scanBuffer.limit();
+		while(limit - position >= RECORD_HEADER_SIZE) {
+			final byte kind = scanBuffer.get(position);
+			final int length = scanBuffer.getInt(position + 1);
+			final int start = position + RECORD_HEADER_SIZE;
+			if(length < 0 || limit - start < length) break;
+			scanBuffer.position(start);
+			if(kind == OBJECT_RECORD) {
+				final long objectId = in.readLong();
+				final long areaId = in.readLong();
+				final String pid = in.readUTF();
+				if(acceptableAreas.contains(areaId)) {
+					_acceptedObjects++;
+					_objectPositions.put(objectId, start);
+					if(pid.length() != 0) _objectIdsByPid.put(pid, objectId);
+				}
+				else {
+					_ignoredObjects++;
+				}
+			}
+			else if(kind == DATA_RECORD) {
+				final long objectId = in.readLong();
+				final long usageId = in.readLong();
+				final long areaId = in.readLong();
+				if(acceptableAreas.contains(areaId)) {
+					_acceptedData++;
+					_dataPositions.put(new ConfigDataId(objectId, usageId), start);
+				}
+				else {
+					_ignoredData++;
+				}
+			}
+			else {
+				throw new IOException("Fehlerhafter Dateiaufbau, Kennung " + kind + " an Position " + position);
+			}
+			position = start + length;
+		}
+		_validLength = position;
+	}
+
+	/**
+	 * Erzeugt ein in der Datei gespeichertes Objekt.
+	 *
+	 * @param objectId  Id des Objekts
+	 * @param dataModel Datenmodell, zu dem das Objekt gehört
+	 *
+	 * @return Neu erzeugtes Objekt oder <code>null</code>, wenn das Objekt nicht in der Datei enthalten ist.
+	 *
+	 * @throws IOException Wenn beim Lesen des Objekts Fehler aufgetreten sind.
+	 */
+	DafSystemObject readObject(final long objectId, final DafDataModel dataModel) throws IOException {
+		final Integer position = _objectPositions.get(objectId);
+		if(position == null) return null;
+		_lock.readLock().lock();
+		try {
+			final DataInputStream in = createInput(position);
+			in.readLong();
+			in.readLong();
+			in.readUTF();
+			final byte internType = in.readByte();
+			final DafSystemObject object = DafSystemObject.getObject(internType, dataModel);
+			if(object == null) {
+				throw new IOException("Fehlerhafter Dateiaufbau, Objekttypkennung " + internType);
+			}
+			object.read(in);
+			return object;
+		}
+		finally {
+			_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Bestimmt die Id eines in der Datei gespeicherten Objekts.
+	 *
+	 * @param pid Pid des Objekts
+	 *
+	 * @return Id des Objekts oder <code>0</code>, wenn kein Objekt mit der Pid in der Datei enthalten ist.
+	 */
+	long getObjectId(final String pid) {
+		final Long objectId = _objectIdsByPid.get(pid);
+		return objectId == null ? 0 : objectId;
+	}
+
+	/**
+	 * Entfernt ein Objekt aus dem Index, damit es nicht mehr aus der Datei erzeugt wird. Dies ist erforderlich, wenn ein dynamisches Objekt gelöscht wurde.
+	 *
+	 * @param objectId Id des Objekts
+	 */
+	void forgetObject(final long objectId) {
+		_objectPositions.remove(objectId);
+	}
+
+	/**
+	 * Prüft, ob ein konfigurierender Datensatz in der Datei gespeichert ist.
+	 *
+	 * @param objectId Id des Objekts
+	 * @param usageId  Id der Attributgruppenverwendung
+	 *
+	 * @return <code>true</code>, wenn der Datensatz (bzw. die Information, dass es keinen Datensatz gibt) in der Datei enthalten ist.
+	 */
+	boolean containsConfigurationData(final long objectId, final long usageId) {
+		return _dataPositions.containsKey(new ConfigDataId(objectId, usageId));
+	}
+
+	/**
+	 * Liest einen in der Datei gespeicherten konfigurierenden Datensatz.
+	 *
+	 * @param objectId     Id des Objekts
+	 * @param usageId      Id der Attributgruppenverwendung
+	 * @param atg          Attributgruppe des Datensatzes
+	 * @param objectLookup Wird für die Auflösung von Objektreferenzen benutzt.
+	 *
+	 * @return Datensatz oder <code>null</code>, wenn es laut Datei keinen Datensatz gibt.
+	 *
+	 * @throws IOException Wenn beim Lesen des Datensatzes Fehler aufgetreten sind.
+	 */
+	Data readConfigurationData(final long objectId, final long usageId, final AttributeGroup atg, final ObjectLookup objectLookup) throws IOException {
+		final Integer position = _dataPositions.get(new ConfigDataId(objectId, usageId));
+		if(position == null) throw new IllegalArgumentException("Datensatz ist nicht in der lokalen Konfigurationsdatei enthalten");
+		_lock.readLock().lock();
+		try {
+			final DataInputStream in = createInput(position);
+			in.readLong();
+			in.readLong();
+			in.readLong();
+			if(!in.readBoolean()) return null;
+			return SerializingFactory.createDeserializer(in).readData(atg, objectLookup);
+		}
+		finally {
+			_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gibt die Einblendung der Datei frei. Danach sind keine Zugriffe auf die Datei mehr möglich, {@link #readObject} und {@link #readConfigurationData}
+	 * werfen dann eine IOException. Mehrfache Aufrufe sind erlaubt.
+	 */
+	void close() {
+		_lock.writeLock().lock();
+		try {
+			if(_closed) return;
+			_closed = true;
+			MappedBuffers.unmap(_buffer);
+		}
+		finally {
+			_lock.writeLock().unlock();
+		}
+	}
+
+	/** Muss bei gehaltener Lesesperre aufgerufen werden. */
+	private DataInputStream createInput(final int position) throws IOException {
+		if(_closed) throw new IOException("Lokale Konfigurationsdatei wurde bereits geschlossen");
+		final ByteBuffer buffer = _buffer.duplicate();
+		buffer.position(position);
+		return new DataInputStream(new ByteBufferInputStream(buffer));
+	}
+
+	int getAcceptedAreas() {
+		return _acceptedAreas;
+	}
+
+	int getIgnoredAreas() {
+		return _ignoredAreas;
+	}
+
+	int getAcceptedObjects() {
+		return _acceptedObjects;
+	}
+
+	int getIgnoredObjects() {
+		return _ignoredObjects;
+	}
+
+	int getAcceptedData() {
+		return _acceptedData;
+	}
+
+	int getIgnoredData() {
+		return _ignoredData;
+	}
+
+	/**
+	 * Speichert Konfigurationsobjekte und konfigurierende Datensätze in der lokalen Konfigurationsdatei. Wenn die vorhandene Datei dieselben
+	 * Konfigurationsbereiche in unveränderten Versionen enthält, werden nur die noch nicht enthaltenen Objekte und Datensätze angehängt. Andernfalls wird die
+	 * Datei neu geschrieben; dabei werden die Einträge der beim Start eingeblendeten Datei übernommen, die weiterhin gültig sind und nicht zwischenzeitlich
+	 * erzeugt wurden. Der Aufrufer muss die Datei mit einem {@link FileLock} sperren. Die beim Start eingeblendete Datei wird dabei geschlossen, sie darf danach
+	 * nicht mehr benutzt werden.
+	 *
+	 * @param file         Lokale Konfigurationsdatei
+	 * @param areaVersions Aktuelle Versionsinformationen der Konfigurationsbereiche
+	 * @param objects      Zu speichernde Objekte
+	 * @param handledIds   Ids aller im Speicher vorhandenen Objekte, diese werden beim Neuschreiben nicht aus der alten Datei übernommen
+	 * @param configData   Zu speichernde konfigurierende Datensätze, <code>null</code> als Wert kennzeichnet, dass es keinen Datensatz gibt.
+	 * @param previous     Beim Start eingeblendete Datei oder <code>null</code>
+	 *
+	 * @throws IOException Wenn beim Schreiben der Datei Fehler aufgetreten sind.
+	 */
+	static void save(
+			final File file,
+			final Map<Long, AreaVersion> areaVersions,
+			final List<DafSystemObject> objects,
+			final Set<Long> handledIds,
+			final Map<DafDataModel.ConfigDataKey, Data> configData,
+			final LocalConfigurationCache previous) throws IOException {
+		try {
+			LocalConfigurationCache current = null;
+			if(file.exists()) {
+				try {
+					current = open(file, areaVersions);
+				}
+				catch(Exception e) {
+					_debug.fine("Vorhandene lokale Konfigurationsdatei wird neu geschrieben", e.toString());
+				}
+			}
+			if(current != null) {
+				// Von der aktuellen Datei wird nur der Index benötigt, die Einblendung wird vor dem Schreiben freigegeben
+				current.close();
+				if(current._areasUnchanged && current._validLength == current._buffer.capacity()) {
+					append(file, current, objects, configData);
+					return;
+				}
+				if(current._areasUnchanged) {
+					// Eine eingeblendete Datei wird nicht gekürzt, ein unvollständiger Eintrag am Dateiende wird durch Neuschreiben verworfen
+					_debug.fine("Lokale Konfigurationsdatei enthält einen unvollständigen Eintrag und wird neu geschrieben", file);
+				}
+			}
+			rewrite(file, areaVersions, objects, handledIds, configData, previous);
+		}
+		finally {
+			if(previous != null) previous.close();
+		}
+	}
+
+	private static void append(
+			final File file, final LocalConfigurationCache current, final List<DafSystemObject> objects, final Map<DafDataModel.ConfigDataKey, Data> configData)
+			throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(current._validLength);
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(randomAccessFile.getChannel())));
+			final RecordWriter recordWriter = new RecordWriter(out);
+			int systemObjectsWritten = 0;
+			for(DafSystemObject object : objects) {
+				if(current._objectPositions.containsKey(object.getId())) continue;
+				recordWriter.writeObject(object);
+				systemObjectsWritten++;
+			}
+			int configDataSetsWritten = 0;
+			for(Map.Entry<DafDataModel.ConfigDataKey, Data> entry : configData.entrySet()) {
+				final DafDataModel.ConfigDataKey key = entry.getKey();
+				if(current._dataPositions.containsKey(new ConfigDataId(key._object.getId(), key._atgUsage.getId()))) continue;
+				recordWriter.writeConfigurationData(key, entry.getValue());
+				configDataSetsWritten++;
+			}
+			out.flush();
+			randomAccessFile.getChannel().force(false);
+			_debug.fine("Anzahl angehängter Systemobjekte", systemObjectsWritten);
+			_debug.fine("Anzahl angehängter konfigurierender Datensätze", configDataSetsWritten);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static void rewrite(
+			final File file,
+			final Map<Long, AreaVersion> areaVersions,
+			final List<DafSystemObject> objects,
+			final Set<Long> handledIds,
+			final Map<DafDataModel.ConfigDataKey, Data> configData,
+			final LocalConfigurationCache previous) throws IOException {
+		final File tempFile = new File(file.getPath() + ".tmp");
+		boolean saveWasSuccessful = false;
+		final FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+		try {
+			out.writeUTF(FILE_HEADER);
+			out.writeByte(FILE_VERSION);
+			out.writeInt(areaVersions.size());
+			for(Map.Entry<Long, AreaVersion> entry : areaVersions.entrySet()) {
+				final AreaVersion areaVersion = entry.getValue();
+				out.writeLong(entry.getKey());
+				out.writeShort(areaVersion._activeVersion);
+				out.writeLong(areaVersion._dynamicObjectChangeTime);
+				out.writeLong(areaVersion._configurationObjectChangeTime);
+				out.writeLong(areaVersion._configurationDataChangeTime);
+			}
+
+			final RecordWriter recordWriter = new RecordWriter(out);
+			int systemObjectsWritten = 0;
+			for(DafSystemObject object : objects) {
+				recordWriter.writeObject(object);
+				systemObjectsWritten++;
+			}
+			final Set<ConfigDataId> writtenData = new HashSet<ConfigDataId>();
+			for(Map.Entry<DafDataModel.ConfigDataKey, Data> entry : configData.entrySet()) {
+				final DafDataModel.ConfigDataKey key = entry.getKey();
+				writtenData.add(new ConfigDataId(key._object.getId(), key._atgUsage.getId()));
+				recordWriter.writeConfigurationData(key, entry.getValue());
+			}
+			int configDataSetsWritten = configData.size();
+
+			if(previous != null) {
+				// Noch nicht benutzte Einträge der alten Datei übernehmen, ohne sie zu deserialisieren
+				for(Map.Entry<Long, Integer> entry : previous._objectPositions.entrySet()) {
+					if(handledIds.contains(entry.getKey())) continue;
+					previous.copyRecord(entry.getValue(), out);
+					systemObjectsWritten++;
+				}
+				for(Map.Entry<ConfigDataId, Integer> entry : previous._dataPositions.entrySet()) {
+					if(writtenData.contains(entry.getKey())) continue;
+					previous.copyRecord(entry.getValue(), out);
+					configDataSetsWritten++;
+				}
+			}
+			out.flush();
+			fileOutputStream.getChannel().force(true);
+			out.close();
+			_debug.fine("Anzahl geschriebener Systemobjekte", systemObjectsWritten);
+			_debug.fine("Anzahl geschriebener konfigurierender Datensätze", configDataSetsWritten);
+
+			// Unter Windows kann eine eingeblendete Datei nicht ersetzt werden
+			if(previous != null) previous.close();
+			try {
+				try {
+					Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch(AtomicMoveNotSupportedException e) {
+					Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			catch(FileSystemException e) {
+				// Z.B. wenn ein anderer Prozess die Datei noch eingeblendet hat; die temporäre Datei wird im finally-Block gelöscht
+				_debug.warning("Lokale Konfigurationsdatei kann nicht ersetzt werden, die bisherige Datei bleibt erhalten", e.toString());
+				return;
+			}
+			saveWasSuccessful = true;
+		}
+		finally {
+			if(!saveWasSuccessful) {
+				out.close();
+				tempFile.delete();
+			}
+		}
+	}
+
+	/** Kopiert einen vollständigen Eintrag (einschließlich Kennung und Länge) aus der eingeblendeten Datei. */
+	private void copyRecord(final int position, final OutputStream out) throws IOException {
+		final byte[] bytes;
+		_lock.readLock().lock();
+		try {
+			if(_closed) throw new IOException("Lokale Konfigurationsdatei wurde bereits geschlossen");
+			final ByteBuffer buffer = _buffer.duplicate();
+			final int start = position - RECORD_HEADER_SIZE;
+			final int length = buffer.getInt(start + 1) + RECORD_HEADER_SIZE;
+			bytes = new byte[length];
+			buffer.position(start);
+			buffer.get(bytes);
+		}
+		finally {
+			_lock.readLock().unlock();
+		}
+		out.write(bytes);
+	}
+
+	/** Versionsinformationen eines Konfigurationsbereichs, die bestimmen, ob die lokal gespeicherten Objekte des Bereichs noch gültig sind. */
+	static final class AreaVersion {
+
+		/** Pid des Bereichs für Debug-Ausgaben, wird beim Vergleich nicht berücksichtigt */
+		private final String _areaPid;
+
+		private final short _activeVersion;
+
+		private final long _dynamicObjectChangeTime;
+
+		private final long _configurationObjectChangeTime;
+
+		private final long _configurationDataChangeTime;
+
+		AreaVersion(
+				final String areaPid,
+				final short activeVersion,
+				final long dynamicObjectChangeTime,
+				final long configurationObjectChangeTime,
+				final long configurationDataChangeTime) {
+			_areaPid = areaPid;
+			_activeVersion = activeVersion;
+			_dynamicObjectChangeTime = dynamicObjectChangeTime;
+			_configurationObjectChangeTime = configurationObjectChangeTime;
+			_configurationDataChangeTime = configurationDataChangeTime;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if(this == o) return true;
+			if(!(o instanceof AreaVersion)) return false;
+			final AreaVersion other = (AreaVersion)o;
+			return _activeVersion == other._activeVersion && _dynamicObjectChangeTime == other._dynamicObjectChangeTime
+			       && _configurationObjectChangeTime == other._configurationObjectChangeTime
+			       && _configurationDataChangeTime == other._configurationDataChangeTime;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = _activeVersion;
+			result = 31 * result + (int)(_dynamicObjectChangeTime ^ (_dynamicObjectChangeTime >>> 32));
+			result = 31 * result + (int)(_configurationObjectChangeTime ^ (_configurationObjectChangeTime >>> 32));
+			result = 31 * result + (int)(_configurationDataChangeTime ^ (_configurationDataChangeTime >>> 32));
+			return result;
+		}
+	}
+
+	/** Schlüssel eines konfigurierenden Datensatzes in der Datei */
+	private static final class ConfigDataId {
+
+		private final long _objectId;
+
+		private final long _usageId;
+
+		ConfigDataId(final long objectId, final long usageId) {
+			_objectId = objectId;
+			_usageId = usageId;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if(!(o instanceof ConfigDataId)) return false;
+			final ConfigDataId other = (ConfigDataId)o;
+			return _objectId == other._objectId && _usageId == other._usageId;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int)(_objectId ^ (_objectId >>> 32)) * 31 + (int)(_usageId ^ (_usageId >>> 32));
+		}
+	}
+
+	/** Schreibt Einträge mit vorangestellter Kennung und Länge. */
+	private static final class RecordWriter {
+
+		private final DataOutputStream _out;
+
+		private final ByteArrayOutputStream _recordBytes = new ByteArrayOutputStream();
+
+		private final DataOutputStream _recordOut = new DataOutputStream(_recordBytes);
+
+		private final Serializer _serializer = SerializingFactory.createSerializer(_recordOut);
+
+		RecordWriter(final DataOutputStream out) {
+			_out = out;
+		}
+
+		void writeObject(final DafSystemObject object) throws IOException {
+			_recordBytes.reset();
+			_recordOut.writeLong(object.getId());
+			_recordOut.writeLong(object.getConfigurationAreaId());
+			final String pid = object.getPid();
+			_recordOut.writeUTF(pid == null ? "" : pid);
+			_recordOut.writeByte(object.getInternType());
+			object.write(_recordOut);
+			finishRecord(OBJECT_RECORD);
+		}
+
+		void writeConfigurationData(final DafDataModel.ConfigDataKey key, final Data data) throws IOException {
+			_recordBytes.reset();
+			_recordOut.writeLong(key._object.getId());
+			_recordOut.writeLong(key._atgUsage.getId());
+			_recordOut.writeLong(getConfigurationAreaId(key._object));
+			_recordOut.writeBoolean(data != null);
+			if(data != null) _serializer.writeData(data);
+			finishRecord(DATA_RECORD);
+		}
+
+		private void finishRecord(final byte kind) throws IOException {
+			_recordOut.flush();
+			_out.writeByte(kind);
+			_out.writeInt(_recordBytes.size());
+			_recordBytes.writeTo(_out);
+		}
+
+		private static long getConfigurationAreaId(final SystemObject object) {
+			if(object instanceof DafSystemObject) return ((DafSystemObject)object).getConfigurationAreaId();
+			return object.getConfigurationArea().getId();
+		}
+	}
+
+	/** InputStream zum Lesen aus einem ByteBuffer, ohne die Daten vorher zu kopieren. */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer _buffer;
+
+		ByteBufferInputStream(final ByteBuffer buffer) {
+			_buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			if(!_buffer.hasRemaining()) return -1;
+			return _buffer.get() & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) {
+			if(length == 0) return 0;
+			final int remaining = _buffer.remaining();
+			if(remaining == 0) return -1;
+			final int count = Math.min(length, remaining);
+			_buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return _buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.dav.daf.util;
+
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Hilfsklasse zum expliziten Freigeben von in den Speicher eingeblendeten Dateien.
+ * <p>
+ * Eine mit {@link java.nio.channels.FileChannel#map} erzeugte Einblendung wird von der Java-Laufzeitumgebung erst freigegeben, wenn der Puffer vom Garbage
+ * Collector entfernt wird. Solange eine Einblendung besteht, kann die Datei unter Windows weder ersetzt, noch gelöscht, noch gekürzt werden. Diese Klasse
+ * gibt die Einblendung sofort frei: unter Java 9 und höher über <code>sun.misc.Unsafe.invokeCleaner</code>, unter Java 8 über den Cleaner des Puffers.
+ * <p>
+ * Nach dem Freigeben darf weder auf den Puffer noch auf davon mit {@link ByteBuffer#duplicate()} oder {@link ByteBuffer#slice()} erzeugte Puffer
+ * zugegriffen werden, weil dies zum Absturz der virtuellen Maschine führt. Der Aufrufer muss dies z.B. durch eine Sperre sicherstellen.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public final class MappedBuffers {
+
+	/** DebugLogger für Debug-Ausgaben */
+	private static final Debug _debug = Debug.getLogger();
+
+	/** Instanz von <code>sun.misc.Unsafe</code> ab Java 9, sonst <code>null</code> */
+	private static final Object _unsafe;
+
+	/** Methode <code>sun.misc.Unsafe.invokeCleaner(ByteBuffer)</code> ab Java 9, sonst <code>null</code> */
+	private static final Method _invokeCleaner;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafe = theUnsafe.get(null);
+		}
+		catch(Exception e) {
+			// Java 8: Die Einblendung wird über den Cleaner des Puffers freigegeben
+			invokeCleaner = null;
+		}
+		_unsafe = unsafe;
+		_invokeCleaner = invokeCleaner;
+	}
+
+	private MappedBuffers() {
+	}
+
+	/**
+	 * Gibt eine Einblendung sofort frei. Falls dies in der verwendeten Laufzeitumgebung nicht möglich ist, wird die Einblendung wie bisher erst vom Garbage
+	 * Collector freigegeben.
+	 *
+	 * @param buffer Von {@link java.nio.channels.FileChannel#map} erzeugter Puffer (kein Duplikat) oder <code>null</code>
+	 *
+	 * @return <code>true</code>, wenn die Einblendung freigegeben wurde, sonst <code>false</code>.
+	 */
+	public static boolean unmap(final MappedByteBuffer buffer) {
+		if(buffer == null || !buffer.isDirect()) return false;
+		try {
+			if(_invokeCleaner != null) {
+				_invokeCleaner.invoke(_unsafe, buffer);
+				return true;
+			}
+			final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			final Object cleaner = cleanerMethod.invoke(buffer);
+			if(cleaner == null) return false;
+			final Method cleanMethod = cleaner.getClass().getMethod("clean");
+			cleanMethod.setAccessible(true);
+			cleanMethod.invoke(cleaner);
+			return true;
+		}
+		catch(Exception e) {
+			_debug.fine("Einblendung einer Datei kann nicht explizit freigegeben werden", e.toString());
+			return false;
+		}
+	}
+}
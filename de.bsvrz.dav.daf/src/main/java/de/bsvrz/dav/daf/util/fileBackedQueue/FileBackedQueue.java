@@ -39,7 +39,9 @@ import java.util.Queue;
  * #clear()} aufgerufen werden um nicht mehr gebrauchten Speicher auf der Festplatte freizugeben.<br />Diese Queue ist auf mehrere gleichzeitige Einfügungen von
  * mehreren Threads spezialisiert. Das Auslesen von Objekten geht im allgemeinen sehr schnell, kann aber nur von einem Thread gleichzeitig durchgeführt
  * werden.<br />Für das Speichern im Dateisystem werden die Objekte serialisiert. Das heißt, die Objekte, die zu der Queue hinzugefügt werden sind
- * möglicherweise nicht identisch (im Sinne von Objektidentität) zu den Objekten, die aus der Queue ausgelesen werden.
+ * möglicherweise nicht identisch (im Sinne von Objektidentität) zu den Objekten, die aus der Queue ausgelesen werden.<br />Wird eine Queue benötigt, die
+ * blockierend gelesen werden kann, keine Elemente im Arbeitsspeicher hält und ihren Inhalt über einen Neustart hinweg behält, ist {@link SegmentedFileQueue}
+ * zu verwenden.
  *
  * @author Kappich Systemberatung
  * @version $Revision$
@@ -48,6 +50,7 @@ import java.util.Queue;
  * @see FileBackedShortQueue
  * @see FileBackedByteQueue
  * @see FileBackedStringQueue
+ * @see SegmentedFileQueue
  */
 public class FileBackedQueue<E> extends AbstractQueue<E> {
 
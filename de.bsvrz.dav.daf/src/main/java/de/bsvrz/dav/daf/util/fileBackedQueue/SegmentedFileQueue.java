@@ -0,0 +1,954 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.daf.util.fileBackedQueue;
+
+import de.bsvrz.dav.daf.util.MappedBuffers;
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Eine persistente Queue, die ihre Elemente ausschließlich in Segmentdateien eines Verzeichnisses speichert. Im Gegensatz zur {@link FileBackedQueue} werden
+ * keine Elemente im Arbeitsspeicher gehalten, der Speicherbedarf ist unabhängig von der Anzahl der Elemente. Die Segmentdateien werden per Memory-Mapping
+ * gelesen und geschrieben, gleichzeitig sind höchstens das Segment am Anfang und das Segment am Ende der Queue eingeblendet. Die Einblendung eines Segments wird
+ * freigegeben, sobald es nicht mehr benötigt wird, und nicht erst, wenn der Garbage Collector den Puffer entfernt.
+ * <p>
+ * Die Queue implementiert {@link BlockingQueue}. Einfügen und Entnehmen sind wie bei {@link java.util.concurrent.LinkedBlockingQueue} durch getrennte Locks
+ * geschützt, so dass ein Erzeuger und ein Verbraucher parallel arbeiten können. {@link #put(Object)} wartet, solange die Kapazität erschöpft ist, {@link
+ * #take()} wartet auf das nächste Element und mit {@link #drainTo(Collection, int)} können mehrere Elemente in einem Schritt entnommen werden.
+ * <p>
+ * Jedes Element wird als Datensatz aus Länge (einschließlich Kopf), CRC32-Prüfsumme und den mit dem {@link QueueSerializer} serialisierten Daten gespeichert.
+ * Die Länge wird zuletzt geschrieben, so dass ein unvollständig geschriebener Datensatz beim nächsten Öffnen erkannt wird. Die Position des ersten noch nicht
+ * entnommenen Elements wird nach jeder Entnahme in einer eigenen Positionsdatei vermerkt. Wird die Queue nach einem Absturz des Prozesses mit demselben
+ * Verzeichnis erneut geöffnet, stehen alle bis dahin eingefügten und nicht entnommenen Elemente wieder zur Verfügung. Ein entnommenes Element gilt als
+ * zugestellt, auch wenn der Verbraucher es vor dem Absturz nicht mehr verarbeiten konnte. Gegen Datenverlust bei einem Absturz des Betriebssystems schützt
+ * erst ein Aufruf von {@link #sync()}.
+ * <p>
+ * Vollständig gelesene Segmente werden gelöscht. Nach Gebrauch muss die Queue mit {@link #close()} geschlossen werden, die Dateien bleiben dabei erhalten.
+ * Für die Speicherung werden die Objekte serialisiert, die entnommenen Objekte sind also im allgemeinen nicht identisch (im Sinne von Objektidentität) zu den
+ * eingefügten Objekten.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ * @see FileBackedQueue
+ */
+public class SegmentedFileQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, Closeable {
+
+	private static final Debug _debug = Debug.getLogger();
+
+	/** Standardgröße eines Segments in Bytes */
+	public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+	/** Größe des Datensatzkopfs aus Länge und Prüfsumme */
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	/** Markiert das Ende der Daten eines Segments, wenn der nächste Datensatz nicht mehr in das Segment gepasst hat */
+	private static final int END_OF_SEGMENT = -1;
+
+	private static final Pattern SEGMENT_FILE_NAME = Pattern.compile("segment_(\\d{10})\\.fbq");
+
+	private static final String POSITION_FILE_NAME = "position.fbq";
+
+	private static final int POSITION_FILE_SIZE = 20;
+
+	/** Wird mit Segmentnummer und Position verknüpft, um unvollständig geschriebene Positionsdateien zu erkennen */
+	private static final long POSITION_CHECK = 0x4642512d504f5331L;
+
+	private final File _directory;
+
+	private final QueueSerializer<E> _queueSerializer;
+
+	private final int _segmentSize;
+
+	private final long _capacity;
+
+	private final ReentrantLock _putLock = new ReentrantLock();
+
+	private final Condition _notFull = _putLock.newCondition();
+
+	private final ReentrantLock _takeLock = new ReentrantLock();
+
+	private final Condition _notEmpty = _takeLock.newCondition();
+
+	private final AtomicInteger _count = new AtomicInteger();
+
+	/** Summe der Größen aller gespeicherten Datensätze in Bytes */
+	private final AtomicLong _bytesUsed = new AtomicLong();
+
+	/** Anzahl der Erzeuger, die auf freie Kapazität warten */
+	private final AtomicInteger _waitingProducers = new AtomicInteger();
+
+	/** Alle Segmente vom Anfang bis zum Ende der Queue */
+	private final ConcurrentLinkedDeque<Segment> _segments = new ConcurrentLinkedDeque<Segment>();
+
+	/** Eingeblendete Positionsdatei, wird nur unter dem Entnahme-Lock benutzt */
+	private final MappedByteBuffer _positionBuffer;
+
+	/** Segment, in das geschrieben wird (Einfüge-Lock) */
+	private Segment _tailSegment;
+
+	private MappedByteBuffer _tailBuffer;
+
+	private int _tailPosition;
+
+	private final CRC32 _crc = new CRC32();
+
+	/** Segment, aus dem gelesen wird (Entnahme-Lock) */
+	private Segment _headSegment;
+
+	private MappedByteBuffer _headBuffer;
+
+	private int _headPosition;
+
+	private volatile boolean _closed = false;
+
+	/**
+	 * Öffnet eine Queue mit der Standard-Segmentgröße. Sind im Verzeichnis bereits Segmente vorhanden, werden die darin gespeicherten Elemente übernommen.
+	 *
+	 * @param directory       Verzeichnis der Segmentdateien, wird bei Bedarf angelegt. Das Verzeichnis darf nur von einer Queue gleichzeitig benutzt werden.
+	 * @param capacity        Wie viel Speicher in Bytes maximal im Dateisystem gehalten werden soll. Es handelt sich um einen Richtwert, der um die Größe eines
+	 *                        Elements überschritten werden kann, damit auch ein Element, das größer als die Kapazität ist, gespeichert werden kann.
+	 * @param queueSerializer Klasse, die das Serialisieren und Deserialisieren von Objekten übernimmt.
+	 *
+	 * @throws IOException Falls das Verzeichnis nicht angelegt oder die vorhandenen Segmente nicht gelesen werden können
+	 */
+	public SegmentedFileQueue(final File directory, final long capacity, final QueueSerializer<E> queueSerializer) throws IOException {
+		this(directory, capacity, queueSerializer, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Öffnet eine Queue. Sind im Verzeichnis bereits Segmente vorhanden, werden die darin gespeicherten Elemente übernommen.
+	 *
+	 * @param directory       Verzeichnis der Segmentdateien, wird bei Bedarf angelegt. Das Verzeichnis darf nur von einer Queue gleichzeitig benutzt werden.
+	 * @param capacity        Wie viel Speicher in Bytes maximal im Dateisystem gehalten werden soll. Es handelt sich um einen Richtwert, der um die Größe eines
+	 *                        Elements überschritten werden kann, damit auch ein Element, das größer als die Kapazität ist, gespeichert werden kann.
+	 * @param queueSerializer Klasse, die das Serialisieren und Deserialisieren von Objekten übernimmt.
+	 * @param segmentSize     Größe einer Segmentdatei in Bytes. Elemente, die größer sind, erhalten ein eigenes, entsprechend größeres Segment.
+	 *
+	 * @throws IOException Falls das Verzeichnis nicht angelegt oder die vorhandenen Segmente nicht gelesen werden können
+	 */
+	public SegmentedFileQueue(final File directory, final long capacity, final QueueSerializer<E> queueSerializer, final int segmentSize)
+			throws IOException {
+		if(directory == null) throw new IllegalArgumentException("directory ist null.");
+		if(capacity < 1) throw new IllegalArgumentException("capacity muss > 0 sein.");
+		if(queueSerializer == null) throw new IllegalArgumentException("queueSerializer ist null.");
+		if(segmentSize < 64) throw new IllegalArgumentException("segmentSize muss >= 64 sein.");
+		if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Verzeichnis " + directory + " konnte nicht angelegt werden");
+		_directory = directory;
+		_capacity = capacity;
+		_queueSerializer = queueSerializer;
+		_segmentSize = segmentSize;
+		_positionBuffer = map(new File(directory, POSITION_FILE_NAME), POSITION_FILE_SIZE);
+		try {
+			recover();
+		}
+		catch(IOException e) {
+			MappedBuffers.unmap(_positionBuffer);
+			throw e;
+		}
+	}
+
+	/** Liest die vorhandenen Segmente ein und bestimmt Anfang und Ende der Queue. */
+	private void recover() throws IOException {
+		final List<Segment> segments = listSegments();
+		long headNumber = _positionBuffer.getLong(0);
+		int headOffset = _positionBuffer.getInt(8);
+		if((headNumber ^ headOffset ^ POSITION_CHECK) != _positionBuffer.getLong(12) || headOffset < 0) {
+			// Neue oder unvollständig geschriebene Positionsdatei, alle vorhandenen Elemente werden übernommen
+			headNumber = segments.isEmpty() ? 0 : segments.get(0)._number;
+			headOffset = 0;
+		}
+		final Iterator<Segment> iterator = segments.iterator();
+		while(iterator.hasNext()) {
+			final Segment segment = iterator.next();
+			if(segment._number < headNumber) {
+				segment.delete();
+				iterator.remove();
+			}
+		}
+		if(segments.isEmpty()) {
+			segments.add(new Segment(headNumber, _segmentSize));
+			headOffset = 0;
+		}
+		else if(segments.get(0)._number != headNumber) {
+			headOffset = 0;
+		}
+
+		int count = 0;
+		long bytesUsed = 0;
+		int segmentIndex = 0;
+		int position = Math.min(headOffset, segments.get(0)._size);
+		MappedByteBuffer buffer = segments.get(0).map();
+		while(true) {
+			final int remaining = buffer.capacity() - position;
+			final int recordSize = remaining < RECORD_HEADER_SIZE ? END_OF_SEGMENT : buffer.getInt(position);
+			if(recordSize == END_OF_SEGMENT && segmentIndex + 1 < segments.size()) {
+				segmentIndex++;
+				final MappedByteBuffer next = segments.get(segmentIndex).map();
+				MappedBuffers.unmap(buffer);
+				buffer = next;
+				position = 0;
+				continue;
+			}
+			if(recordSize < RECORD_HEADER_SIZE || recordSize > remaining || checksum(buffer, position, recordSize) != buffer.getInt(position + 4)) {
+				break;
+			}
+			count++;
+			bytesUsed += recordSize;
+			position += recordSize;
+		}
+		// Reste eines unvollständig geschriebenen Datensatzes entfernen
+		for(int i = position; i < buffer.capacity(); i++) {
+			buffer.put(i, (byte)0);
+		}
+		for(int i = segments.size() - 1; i > segmentIndex; i--) {
+			_debug.warning("Segment nach unvollständigem Datensatz wird verworfen: " + segments.get(i));
+			segments.remove(i).delete();
+		}
+		_segments.addAll(segments);
+		_count.set(count);
+		_bytesUsed.set(bytesUsed);
+		_tailSegment = segments.get(segmentIndex);
+		_tailBuffer = buffer;
+		_tailPosition = position;
+		_headSegment = segments.get(0);
+		// Anfang und Ende erhalten immer eigene Einblendungen, damit die Einblendung am Ende beim Wechsel des Segments freigegeben werden kann
+		_headBuffer = _headSegment.map();
+		_headPosition = Math.min(headOffset, _headSegment._size);
+		writePosition();
+		if(count > 0) _debug.info("Queue in " + _directory + " mit " + count + " Elementen (" + bytesUsed + " Bytes) wiederhergestellt");
+	}
+
+	private List<Segment> listSegments() throws IOException {
+		final List<Segment> segments = new ArrayList<Segment>();
+		final File[] files = _directory.listFiles();
+		if(files == null) throw new IOException("Verzeichnis " + _directory + " kann nicht gelesen werden");
+		for(final File file : files) {
+			final Matcher matcher = SEGMENT_FILE_NAME.matcher(file.getName());
+			if(matcher.matches()) {
+				segments.add(new Segment(Long.parseLong(matcher.group(1)), (int)Math.min(file.length(), Integer.MAX_VALUE)));
+			}
+		}
+		Collections.sort(
+				segments, new java.util.Comparator<Segment>() {
+					public int compare(final Segment o1, final Segment o2) {
+						return o1._number < o2._number ? -1 : (o1._number == o2._number ? 0 : 1);
+					}
+				}
+		);
+		return segments;
+	}
+
+	private int checksum(final ByteBuffer buffer, final int position, final int recordSize) {
+		final ByteBuffer data = buffer.duplicate();
+		data.limit(position + recordSize);
+		data.position(position + RECORD_HEADER_SIZE);
+		final CRC32 crc = new CRC32();
+		crc.update(data);
+		return (int)crc.getValue();
+	}
+
+	private static MappedByteBuffer map(final File file, final int size) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			if(randomAccessFile.length() < size) randomAccessFile.setLength(size);
+			return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Fügt ein Element am Ende der Queue ein und wartet dazu ggf., bis genügend Kapazität frei ist.
+	 *
+	 * @param e Element
+	 *
+	 * @throws InterruptedException  Wenn der Thread beim Warten unterbrochen wurde
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde oder das Element nicht gespeichert werden konnte
+	 */
+	public void put(final E e) throws InterruptedException {
+		offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Fügt ein Element am Ende der Queue ein, sofern die Kapazität dafür ausreicht.
+	 *
+	 * @param e Element
+	 *
+	 * @return <tt>true</tt>, wenn das Element eingefügt wurde, <tt>false</tt> wenn die Kapazität erschöpft ist
+	 *
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde oder das Element nicht gespeichert werden konnte
+	 */
+	public boolean offer(final E e) {
+		if(e == null) throw new NullPointerException();
+		final int size = _queueSerializer.getSize(e);
+		_putLock.lock();
+		try {
+			ensureOpen();
+			if(isFull(size)) return false;
+			enqueue(e, size);
+		}
+		finally {
+			_putLock.unlock();
+		}
+		return true;
+	}
+
+	/**
+	 * Fügt ein Element am Ende der Queue ein und wartet dazu höchstens die angegebene Zeit, bis genügend Kapazität frei ist.
+	 *
+	 * @param e       Element
+	 * @param timeout Maximale Wartezeit
+	 * @param unit    Einheit der Wartezeit
+	 *
+	 * @return <tt>true</tt>, wenn das Element eingefügt wurde, <tt>false</tt> wenn die Wartezeit abgelaufen ist
+	 *
+	 * @throws InterruptedException  Wenn der Thread beim Warten unterbrochen wurde
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde oder das Element nicht gespeichert werden konnte
+	 */
+	public boolean offer(final E e, final long timeout, final TimeUnit unit) throws InterruptedException {
+		if(e == null) throw new NullPointerException();
+		final int size = _queueSerializer.getSize(e);
+		long nanos = unit.toNanos(timeout);
+		_putLock.lockInterruptibly();
+		try {
+			while(true) {
+				ensureOpen();
+				// Der Zähler wird vor der Prüfung erhöht, damit ein Verbraucher, der danach Kapazität freigibt, das Signal nicht auslässt
+				_waitingProducers.incrementAndGet();
+				try {
+					if(!isFull(size)) break;
+					if(nanos <= 0) return false;
+					nanos = _notFull.awaitNanos(nanos);
+				}
+				finally {
+					_waitingProducers.decrementAndGet();
+				}
+			}
+			enqueue(e, size);
+		}
+		finally {
+			_putLock.unlock();
+		}
+		return true;
+	}
+
+	private boolean isFull(final int size) {
+		return _count.get() > 0 && _bytesUsed.get() + RECORD_HEADER_SIZE + size > _capacity;
+	}
+
+	/** Schreibt ein Element an das Ende der Queue. Muss mit dem Einfüge-Lock aufgerufen werden. */
+	private void enqueue(final E e, final int size) {
+		final int recordSize = RECORD_HEADER_SIZE + size;
+		try {
+			if(_tailBuffer.capacity() - _tailPosition < recordSize) {
+				startNewTailSegment(recordSize);
+			}
+			final ByteBuffer data = _tailBuffer.duplicate();
+			data.limit(_tailPosition + recordSize);
+			data.position(_tailPosition + RECORD_HEADER_SIZE);
+			_queueSerializer.serialize(new DataOutputStream(new ByteBufferOutputStream(data)), e);
+			if(data.hasRemaining()) {
+				throw new IllegalStateException("Der Serializer hat weniger Bytes geschrieben als von getSize() angegeben: " + e);
+			}
+			data.position(_tailPosition + RECORD_HEADER_SIZE);
+			_crc.reset();
+			_crc.update(data);
+			_tailBuffer.putInt(_tailPosition + 4, (int)_crc.getValue());
+			// Die Länge zuletzt schreiben, erst dadurch wird der Datensatz gültig
+			_tailBuffer.putInt(_tailPosition, recordSize);
+		}
+		catch(BufferOverflowException ex) {
+			throw new IllegalStateException("Der Serializer hat mehr Bytes geschrieben als von getSize() angegeben: " + e, ex);
+		}
+		catch(IOException ex) {
+			throw new IllegalStateException("Fehler beim Schreiben eines Objekts in die Queue " + _directory, ex);
+		}
+		_tailPosition += recordSize;
+		_bytesUsed.addAndGet(recordSize);
+		final int previousCount = _count.getAndIncrement();
+		if(previousCount == 0) signalNotEmpty();
+	}
+
+	private void startNewTailSegment(final int recordSize) throws IOException {
+		if(_tailBuffer.capacity() - _tailPosition >= 4) {
+			_tailBuffer.putInt(_tailPosition, END_OF_SEGMENT);
+		}
+		final Segment segment = new Segment(_tailSegment._number + 1, Math.max(_segmentSize, recordSize));
+		final MappedByteBuffer buffer = segment.map();
+		// Das Segment muss in der Liste stehen, bevor ein Verbraucher durch den Zähler von dem ersten Element darin erfährt
+		_segments.addLast(segment);
+		// Der Verbraucher liest das bisherige Segment über seine eigene Einblendung
+		MappedBuffers.unmap(_tailBuffer);
+		_tailSegment = segment;
+		_tailBuffer = buffer;
+		_tailPosition = 0;
+	}
+
+	private void signalNotEmpty() {
+		_takeLock.lock();
+		try {
+			_notEmpty.signal();
+		}
+		finally {
+			_takeLock.unlock();
+		}
+	}
+
+	private void signalNotFull() {
+		if(_waitingProducers.get() == 0) return;
+		_putLock.lock();
+		try {
+			_notFull.signalAll();
+		}
+		finally {
+			_putLock.unlock();
+		}
+	}
+
+	/**
+	 * Entnimmt das erste Element der Queue und wartet dazu ggf., bis ein Element verfügbar ist.
+	 *
+	 * @return Das erste Element
+	 *
+	 * @throws InterruptedException  Wenn der Thread beim Warten unterbrochen wurde
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde
+	 */
+	public E take() throws InterruptedException {
+		final E result;
+		_takeLock.lockInterruptibly();
+		try {
+			while(true) {
+				ensureOpen();
+				if(_count.get() > 0) break;
+				_notEmpty.await();
+			}
+			result = dequeue();
+			if(_count.getAndDecrement() > 1) _notEmpty.signal();
+			writePosition();
+		}
+		finally {
+			_takeLock.unlock();
+		}
+		signalNotFull();
+		return result;
+	}
+
+	/**
+	 * Entnimmt das erste Element der Queue und wartet dazu höchstens die angegebene Zeit.
+	 *
+	 * @param timeout Maximale Wartezeit
+	 * @param unit    Einheit der Wartezeit
+	 *
+	 * @return Das erste Element oder <tt>null</tt>, wenn innerhalb der Wartezeit kein Element verfügbar war
+	 *
+	 * @throws InterruptedException  Wenn der Thread beim Warten unterbrochen wurde
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde
+	 */
+	public E poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		final E result;
+		_takeLock.lockInterruptibly();
+		try {
+			while(true) {
+				ensureOpen();
+				if(_count.get() > 0) break;
+				if(nanos <= 0) return null;
+				nanos = _notEmpty.awaitNanos(nanos);
+			}
+			result = dequeue();
+			if(_count.getAndDecrement() > 1) _notEmpty.signal();
+			writePosition();
+		}
+		finally {
+			_takeLock.unlock();
+		}
+		signalNotFull();
+		return result;
+	}
+
+	/**
+	 * Entnimmt das erste Element der Queue, ohne zu warten.
+	 *
+	 * @return Das erste Element oder <tt>null</tt>, wenn die Queue leer ist
+	 *
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde
+	 */
+	public E poll() {
+		if(_count.get() == 0) return null;
+		final E result;
+		_takeLock.lock();
+		try {
+			ensureOpen();
+			if(_count.get() == 0) return null;
+			result = dequeue();
+			if(_count.getAndDecrement() > 1) _notEmpty.signal();
+			writePosition();
+		}
+		finally {
+			_takeLock.unlock();
+		}
+		signalNotFull();
+		return result;
+	}
+
+	/**
+	 * Liefert das erste Element der Queue, ohne es zu entnehmen.
+	 *
+	 * @return Das erste Element oder <tt>null</tt>, wenn die Queue leer ist
+	 *
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde
+	 */
+	public E peek() {
+		if(_count.get() == 0) return null;
+		_takeLock.lock();
+		try {
+			ensureOpen();
+			if(_count.get() == 0) return null;
+			moveToNextRecord();
+			return read(_headBuffer, _headPosition);
+		}
+		finally {
+			_takeLock.unlock();
+		}
+	}
+
+	public int drainTo(final Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Entnimmt bis zu <code>maxElements</code> Elemente in einem Schritt. Die Position in der Positionsdatei wird dabei nur einmal aktualisiert.
+	 *
+	 * @param c           Collection, in die die Elemente eingefügt werden
+	 * @param maxElements Maximale Anzahl zu entnehmender Elemente
+	 *
+	 * @return Anzahl entnommener Elemente
+	 *
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde
+	 */
+	public int drainTo(final Collection<? super E> c, final int maxElements) {
+		if(c == null) throw new NullPointerException();
+		if(c == this) throw new IllegalArgumentException();
+		if(maxElements <= 0) return 0;
+		int drained = 0;
+		_takeLock.lock();
+		try {
+			ensureOpen();
+			final int n = Math.min(maxElements, _count.get());
+			try {
+				while(drained < n) {
+					c.add(dequeue());
+					drained++;
+				}
+			}
+			finally {
+				if(drained > 0) {
+					if(_count.getAndAdd(-drained) > drained) _notEmpty.signal();
+					writePosition();
+				}
+			}
+		}
+		finally {
+			_takeLock.unlock();
+		}
+		if(drained > 0) signalNotFull();
+		return drained;
+	}
+
+	/** Liest das erste Element und rückt den Anfang der Queue vor. Muss mit dem Entnahme-Lock aufgerufen werden, wenn mindestens ein Element vorhanden ist. */
+	private E dequeue() {
+		moveToNextRecord();
+		final int recordSize = _headBuffer.getInt(_headPosition);
+		final E result = read(_headBuffer, _headPosition);
+		_headPosition += recordSize;
+		_bytesUsed.addAndGet(-recordSize);
+		return result;
+	}
+
+	/** Wechselt bei Bedarf in das nächste Segment, bis der Anfang der Queue auf einen Datensatz zeigt. */
+	private void moveToNextRecord() {
+		while(_headBuffer.capacity() - _headPosition < RECORD_HEADER_SIZE || _headBuffer.getInt(_headPosition) == END_OF_SEGMENT) {
+			final Segment finished = _segments.pollFirst();
+			final Segment next = _segments.peekFirst();
+			if(finished != _headSegment || next == null) throw new IllegalStateException("Segmentliste der Queue " + _directory + " ist inkonsistent");
+			final MappedByteBuffer finishedBuffer = _headBuffer;
+			try {
+				_headBuffer = next.map();
+			}
+			catch(IOException e) {
+				_segments.addFirst(finished);
+				throw new IllegalStateException("Segment " + next + " konnte nicht gelesen werden", e);
+			}
+			MappedBuffers.unmap(finishedBuffer);
+			_headSegment = next;
+			_headPosition = 0;
+			writePosition();
+			finished.delete();
+		}
+	}
+
+	@SuppressWarnings({"unchecked"})
+	private E read(final ByteBuffer buffer, final int position) {
+		final ByteBuffer data = buffer.duplicate();
+		data.limit(position + buffer.getInt(position));
+		data.position(position + RECORD_HEADER_SIZE);
+		try {
+			return _queueSerializer.deserialize(new DataInputStream(new ByteBufferInputStream(data)));
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Fehler beim Lesen eines Objekts aus der Queue " + _directory, e);
+		}
+	}
+
+	private void writePosition() {
+		_positionBuffer.putLong(0, _headSegment._number);
+		_positionBuffer.putInt(8, _headPosition);
+		_positionBuffer.putLong(12, _headSegment._number ^ _headPosition ^ POSITION_CHECK);
+	}
+
+	private void ensureOpen() {
+		if(_closed) throw new IllegalStateException("Die Queue " + _directory + " wurde geschlossen");
+	}
+
+	@Override
+	public int size() {
+		return _count.get();
+	}
+
+	/**
+	 * Gibt eine obere Schranke für die Anzahl der Elemente zurück, die noch ohne Warten eingefügt werden können. Da die Kapazität in Bytes angegeben wird,
+	 * hängt die tatsächliche Anzahl von der Größe der Elemente ab.
+	 *
+	 * @return Obere Schranke für die Anzahl weiterer Elemente
+	 */
+	public int remainingCapacity() {
+		return (int)Math.min(Integer.MAX_VALUE, Math.max(0, _capacity - _bytesUsed.get()) / RECORD_HEADER_SIZE);
+	}
+
+	/**
+	 * Gibt den Festplattenplatz zurück, der von den gespeicherten Elementen belegt wird. Die Segmentdateien können größer sein.
+	 *
+	 * @return Größe in Bytes
+	 */
+	public long getDiskUsed() {
+		return _bytesUsed.get();
+	}
+
+	/**
+	 * Gibt den maximal genutzen Festplattenplatz zurück. Dieser Wert kann von getDiskUsed() um maximal eine Elementgröße überschritten werden.
+	 *
+	 * @return Größe in Bytes
+	 */
+	public long getDiskCapacity() {
+		return _capacity;
+	}
+
+	/**
+	 * Gibt das Verzeichnis der Segmentdateien zurück.
+	 *
+	 * @return Verzeichnis
+	 */
+	public File getDirectory() {
+		return _directory;
+	}
+
+	/**
+	 * Schreibt alle eingefügten Elemente und die aktuelle Position auf die Festplatte, so dass sie auch einen Absturz des Betriebssystems überstehen.
+	 *
+	 * @throws IllegalStateException Wenn die Queue geschlossen wurde
+	 */
+	public void sync() {
+		_putLock.lock();
+		try {
+			ensureOpen();
+			_tailBuffer.force();
+		}
+		finally {
+			_putLock.unlock();
+		}
+		_takeLock.lock();
+		try {
+			ensureOpen();
+			_positionBuffer.force();
+		}
+		finally {
+			_takeLock.unlock();
+		}
+	}
+
+	/**
+	 * Liefert einen Iterator über eine Momentaufnahme der Queue. Dazu werden alle Elemente gelesen, die Methode ist also bei großen Queues teuer.
+	 *
+	 * @return Iterator über die Elemente zum Zeitpunkt des Aufrufs
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final List<E> elements = new ArrayList<E>(_count.get());
+		fullyLock();
+		try {
+			ensureOpen();
+			int remaining = _count.get();
+			final Iterator<Segment> segments = _segments.iterator();
+			Segment segment = segments.next();
+			ByteBuffer buffer = _headBuffer;
+			int position = _headPosition;
+			// Einblendung eines Segments zwischen Anfang und Ende, die nur für den Iterator erzeugt wurde
+			MappedByteBuffer mapped = null;
+			try {
+				while(remaining > 0) {
+					if(buffer.capacity() - position < RECORD_HEADER_SIZE || buffer.getInt(position) == END_OF_SEGMENT) {
+						segment = segments.next();
+						MappedBuffers.unmap(mapped);
+						mapped = segment == _tailSegment ? null : segment.map();
+						buffer = mapped == null ? _tailBuffer : mapped;
+						position = 0;
+						continue;
+					}
+					elements.add(read(buffer, position));
+					position += buffer.getInt(position);
+					remaining--;
+				}
+			}
+			finally {
+				MappedBuffers.unmap(mapped);
+			}
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Fehler beim Lesen der Queue " + _directory, e);
+		}
+		finally {
+			fullyUnlock();
+		}
+		final Iterator<E> iterator = elements.iterator();
+		return new Iterator<E>() {
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			public E next() {
+				return iterator.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("Nicht unterstützt");
+			}
+		};
+	}
+
+	/** Entfernt alle Elemente und löscht die zugehörigen Segmentdateien. */
+	@Override
+	public void clear() {
+		fullyLock();
+		try {
+			ensureOpen();
+			final Segment segment = new Segment(_tailSegment._number + 1, _segmentSize);
+			final MappedByteBuffer tailBuffer = segment.map();
+			final MappedByteBuffer headBuffer;
+			try {
+				headBuffer = segment.map();
+			}
+			catch(IOException e) {
+				MappedBuffers.unmap(tailBuffer);
+				segment.delete();
+				throw e;
+			}
+			MappedBuffers.unmap(_tailBuffer);
+			MappedBuffers.unmap(_headBuffer);
+			Segment old;
+			while((old = _segments.pollFirst()) != null) {
+				old.delete();
+			}
+			_segments.add(segment);
+			_tailSegment = segment;
+			_tailBuffer = tailBuffer;
+			_tailPosition = 0;
+			_headSegment = segment;
+			_headBuffer = headBuffer;
+			_headPosition = 0;
+			writePosition();
+			_count.set(0);
+			_bytesUsed.set(0);
+			_notFull.signalAll();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Fehler beim Leeren der Queue " + _directory, e);
+		}
+		finally {
+			fullyUnlock();
+		}
+	}
+
+	/**
+	 * Schließt die Queue. Die gespeicherten Elemente bleiben in den Segmentdateien erhalten und stehen beim nächsten Öffnen des Verzeichnisses wieder zur
+	 * Verfügung. Wartende Threads erhalten eine {@link IllegalStateException}.
+	 */
+	public void close() {
+		fullyLock();
+		try {
+			if(_closed) return;
+			_closed = true;
+			_tailBuffer.force();
+			_positionBuffer.force();
+			// Alle Zugriffe auf die Puffer erfolgen unter den Locks und prüfen vorher, ob die Queue geschlossen wurde
+			MappedBuffers.unmap(_tailBuffer);
+			MappedBuffers.unmap(_headBuffer);
+			MappedBuffers.unmap(_positionBuffer);
+			_notFull.signalAll();
+			_notEmpty.signalAll();
+		}
+		finally {
+			fullyUnlock();
+		}
+	}
+
+	private void fullyLock() {
+		_putLock.lock();
+		_takeLock.lock();
+	}
+
+	private void fullyUnlock() {
+		_takeLock.unlock();
+		_putLock.unlock();
+	}
+
+	@Override
+	public String toString() {
+		return "SegmentedFileQueue{" + _bytesUsed.get() + " bytes (" + _count.get() + " Entries) in " + _segments.size() + " Segmenten in " + _directory + '}';
+	}
+
+	/** Segmentdatei der Queue */
+	private final class Segment {
+
+		private final long _number;
+
+		private final int _size;
+
+		private final File _file;
+
+		private Segment(final long number, final int size) {
+			_number = number;
+			_size = size;
+			_file = new File(_directory, String.format("segment_%010d.fbq", number));
+		}
+
+		private MappedByteBuffer map() throws IOException {
+			return SegmentedFileQueue.map(_file, _size);
+		}
+
+		private void delete() {
+			// Unter Windows kann eine noch eingeblendete Datei nicht gelöscht werden, z.B. wenn die Einblendung nicht freigegeben werden konnte. Sie wird dann beim
+			// nächsten Öffnen der Queue entfernt
+			if(!_file.delete() && _file.exists()) {
+				_debug.fine("Segmentdatei konnte nicht gelöscht werden", _file);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return _file.getPath();
+		}
+	}
+
+	/** OutputStream, der in einen ByteBuffer schreibt */
+	private static final class ByteBufferOutputStream extends OutputStream {
+
+		private final ByteBuffer _buffer;
+
+		private ByteBufferOutputStream(final ByteBuffer buffer) {
+			_buffer = buffer;
+		}
+
+		@Override
+		public void write(final int b) {
+			_buffer.put((byte)b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			_buffer.put(b, off, len);
+		}
+	}
+
+	/** InputStream, der aus einem ByteBuffer liest */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer _buffer;
+
+		private ByteBufferInputStream(final ByteBuffer buffer) {
+			_buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			if(!_buffer.hasRemaining()) return -1;
+			return _buffer.get() & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if(len == 0) return 0;
+			if(!_buffer.hasRemaining()) return -1;
+			final int n = Math.min(len, _buffer.remaining());
+			_buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return _buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.dataSerializer;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.ArrayRelaxedRangeCheckSupport;
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray.ByteArrayData;
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Vorübersetzte Serialisierung und Deserialisierung der Datensätze einer Attributgruppe. Beim Erzeugen wird die Struktur der Attributgruppe einmal
+ * ausgewertet und für jede Strukturebene (Attributgruppe, Attributliste) eine Liste von Operationen erzeugt, die die Attribute in der Reihenfolge des
+ * Datensatzes schreiben bzw. lesen. Alle Konfigurationsabfragen (Attributtyp, Byte-Anzahl, Genauigkeit, Maximallänge, Referenzierungsart, Array-Größe)
+ * entfallen dadurch beim eigentlichen Serialisieren.
+ * <p>
+ * Das erzeugte Format ist identisch mit dem der rekursiven Implementierung in {@link SerializerImplementationA} bzw. {@link DeserializerImplementationA}.
+ * Die übersetzten Objekte werden je Attributgruppe und Version zwischengespeichert und mit {@link #forgetDataModel(DataModel)} wieder entfernt.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class AttributeGroupCodec {
+
+	private static final Map<AttributeGroup, AttributeGroupCodec[]> _codecs = new IdentityHashMap<AttributeGroup, AttributeGroupCodec[]>();
+
+	private static final int MIN_VERSION = 2;
+
+	private static final int MAX_VERSION = 3;
+
+	private final AttributeGroup _attributeGroup;
+
+	private final Operation[] _operations;
+
+	/**
+	 * Bestimmt das übersetzte Objekt für eine Attributgruppe und Version. Das Objekt wird beim ersten Aufruf erzeugt und danach wiederverwendet.
+	 *
+	 * @param attributeGroup Attributgruppe
+	 * @param version        Version der Serialisierung (2 oder 3)
+	 *
+	 * @return Übersetztes Objekt
+	 */
+	static AttributeGroupCodec forAttributeGroup(final AttributeGroup attributeGroup, final int version) {
+		synchronized(_codecs) {
+			AttributeGroupCodec[] codecs = _codecs.get(attributeGroup);
+			if(codecs == null) {
+				codecs = new AttributeGroupCodec[MAX_VERSION - MIN_VERSION + 1];
+				_codecs.put(attributeGroup, codecs);
+			}
+			AttributeGroupCodec codec = codecs[version - MIN_VERSION];
+			if(codec == null) {
+				codec = new AttributeGroupCodec(attributeGroup, version);
+				codecs[version - MIN_VERSION] = codec;
+			}
+			return codec;
+		}
+	}
+
+	/**
+	 * Entfernt alle übersetzten Objekte von Attributgruppen des angegebenen Datenmodells.
+	 *
+	 * @param dataModel Datenmodell, dessen Attributgruppen vergessen werden sollen.
+	 */
+	static void forgetDataModel(final DataModel dataModel) {
+		synchronized(_codecs) {
+			final List<AttributeGroup> atgs = new ArrayList<AttributeGroup>(_codecs.keySet());
+			for(AttributeGroup attributeGroup : atgs) {
+				if(attributeGroup.getDataModel() == dataModel) {
+					_codecs.remove(attributeGroup);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Bestimmt die Attributgruppe eines vollständigen Datensatzes.
+	 *
+	 * @param data Datensatz
+	 *
+	 * @return Attributgruppe oder <code>null</code>, wenn es sich nicht um einen vollständigen Datensatz mit bekannter Attributgruppe handelt.
+	 */
+	static AttributeGroup getAttributeGroup(final Data data) {
+		if(data instanceof AttributeBaseValueDataFactory.AttributeGroupAdapter) {
+			return ((AttributeBaseValueDataFactory.AttributeGroupAdapter)data)._attributeGroup;
+		}
+		if(data instanceof ByteArrayData) {
+			return ((ByteArrayData)data).getAttributeGroup();
+		}
+		return null;
+	}
+
+	private AttributeGroupCodec(final AttributeGroup attributeGroup, final int version) {
+		_attributeGroup = attributeGroup;
+		try {
+			_operations = compileAttributes(attributeGroup, version);
+		}
+		catch(ConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Prüft, ob dieses Objekt zur angegebenen Attributgruppe gehört.
+	 *
+	 * @param attributeGroup Attributgruppe
+	 *
+	 * @return <code>true</code>, wenn dieses Objekt für die angegebene Attributgruppe erzeugt wurde, sonst <code>false</code>.
+	 */
+	boolean isFor(final AttributeGroup attributeGroup) {
+		return _attributeGroup == attributeGroup;
+	}
+
+	/**
+	 * Serialisiert einen Datensatz der Attributgruppe.
+	 *
+	 * @param data       Datensatz
+	 * @param serializer Serialisierer, auf den die Werte geschrieben werden.
+	 *
+	 * @throws IOException Wenn ein I/O Fehler bei Schreiben auf den Ausgabe-Stream auftritt.
+	 */
+	void write(final Data data, final Serializer serializer) throws IOException {
+		writeItems(_operations, data, serializer);
+	}
+
+	/**
+	 * Deserialisiert einen Datensatz der Attributgruppe.
+	 *
+	 * @param data         Änderbarer Datensatz, in den die gelesenen Werte eingetragen werden.
+	 * @param deserializer Deserialisierer, von dem die Werte gelesen werden.
+	 * @param objectLookup Wird für die Auflösung von Objektreferenzen benutzt.
+	 *
+	 * @throws IOException Wenn beim Lesen vom Eingabe-Stream Fehler aufgetreten sind.
+	 */
+	void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+		readItems(_operations, data, deserializer, objectLookup);
+	}
+
+	private static void writeItems(final Operation[] operations, final Data data, final Serializer serializer) throws IOException {
+		final Iterator<Data> iterator = data.iterator();
+		for(Operation operation : operations) {
+			operation.write(iterator.next(), serializer);
+		}
+	}
+
+	private static void readItems(final Operation[] operations, final Data data, final Deserializer deserializer, final ObjectLookup objectLookup)
+			throws IOException {
+		final Iterator<Data> iterator = data.iterator();
+		for(Operation operation : operations) {
+			operation.read(iterator.next(), deserializer, objectLookup);
+		}
+	}
+
+	private static Operation[] compileAttributes(final AttributeSet attributeSet, final int version) {
+		final List<Attribute> attributes = attributeSet.getAttributes();
+		final Operation[] operations = new Operation[attributes.size()];
+		for(int i = 0; i < operations.length; i++) {
+			final Attribute attribute = attributes.get(i);
+			final Operation valueOperation = compile(attribute.getAttributeType(), version);
+			if(attribute.isArray()) {
+				operations[i] = new ArrayOperation(valueOperation, attribute.isCountVariable(), attribute.getMaxCount());
+			}
+			else {
+				operations[i] = valueOperation;
+			}
+		}
+		return operations;
+	}
+
+	private static Operation compile(final AttributeType attributeType, final int version) {
+		if(attributeType instanceof AttributeListDefinition) {
+			return new ListOperation(compileAttributes((AttributeListDefinition)attributeType, version));
+		}
+		if(attributeType instanceof IntegerAttributeType) {
+			final IntegerAttributeType integerAttributeType = (IntegerAttributeType)attributeType;
+			switch(integerAttributeType.getByteCount()) {
+				case 1:
+					return new ByteOperation();
+				case 2:
+					return new ShortOperation();
+				case 4:
+					return new IntOperation();
+				case 8:
+					return new LongOperation();
+				default:
+					throw new RuntimeException("Ganzzahlattribut mit ungültiger Byte-Anzahl: " + integerAttributeType.getNameOrPidOrId());
+			}
+		}
+		if(attributeType instanceof ReferenceAttributeType) {
+			if(version >= 3 && ((ReferenceAttributeType)attributeType).getReferenceType() == ReferenceType.ASSOCIATION) {
+				return new ReferencePidOperation();
+			}
+			return new ReferenceIdOperation();
+		}
+		if(attributeType instanceof TimeAttributeType) {
+			if(((TimeAttributeType)attributeType).getAccuracy() == TimeAttributeType.MILLISECONDS) {
+				return new MillisOperation();
+			}
+			return new SecondsOperation();
+		}
+		if(attributeType instanceof StringAttributeType) {
+			return new StringOperation(((StringAttributeType)attributeType).getMaxLength());
+		}
+		if(attributeType instanceof DoubleAttributeType) {
+			if(((DoubleAttributeType)attributeType).getAccuracy() == DoubleAttributeType.DOUBLE) {
+				return new DoubleOperation();
+			}
+			return new FloatOperation();
+		}
+		throw new RuntimeException("Serialisierung einer unbekannten Attributart nicht möglich");
+	}
+
+	@Override
+	public String toString() {
+		return "AttributeGroupCodec{" + _attributeGroup.getPidOrNameOrId() + "}";
+	}
+
+	/** Operation zum Schreiben und Lesen eines einzelnen Attributs. */
+	private abstract static class Operation {
+
+		abstract void write(Data data, Serializer serializer) throws IOException;
+
+		abstract void read(Data data, Deserializer deserializer, ObjectLookup objectLookup) throws IOException;
+	}
+
+	private static final class ByteOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeByte(data.asUnscaledValue().byteValue());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asUnscaledValue().set(deserializer.readByte());
+		}
+	}
+
+	private static final class ShortOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeShort(data.asUnscaledValue().shortValue());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asUnscaledValue().set(deserializer.readShort());
+		}
+	}
+
+	private static final class IntOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeInt(data.asUnscaledValue().intValue());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asUnscaledValue().set(deserializer.readInt());
+		}
+	}
+
+	private static final class LongOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeLong(data.asUnscaledValue().longValue());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asUnscaledValue().set(deserializer.readLong());
+		}
+	}
+
+	private static final class ReferenceIdOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeLong(data.asReferenceValue().getId());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asReferenceValue().setSystemObject(deserializer.readObjectReference(objectLookup));
+		}
+	}
+
+	private static final class ReferencePidOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			final String pid;
+			final SystemObject systemObject = data.asReferenceValue().getSystemObject();
+			if(systemObject != null) {
+				pid = systemObject.getPid();
+				if(pid.length() == 0) {
+					throw new IllegalArgumentException(
+							"Serialisierung des Attributs " + data.getName() + " kann nicht durchgeführt werden, weil"
+							+ "das referenzierte Objekt keine Pid hat und als Referenzierungsart Assoziation festgelegt ist"
+					);
+				}
+			}
+			else {
+				// Bei nicht auflösbaren Referenzen wird die ursprüngliche Pid (falls vorhanden) eingetragen, sonst ein Leerstring für undefiniert
+				pid = data.asReferenceValue().getSystemObjectPid();
+			}
+			serializer.writeString(pid, 255);
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			final String pid = deserializer.readString(255);
+			try {
+				data.asReferenceValue().setSystemObjectPid(pid, objectLookup);
+			}
+			catch(RuntimeException e) {
+				throw new RuntimeException("Am Referenzattribut " + data.getName() + " konnte die Pid " + pid + " nicht aufgelöst werden", e);
+			}
+		}
+	}
+
+	private static final class MillisOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeLong(data.asTimeValue().getMillis());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asTimeValue().setMillis(deserializer.readLong());
+		}
+	}
+
+	private static final class SecondsOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeInt((int)data.asTimeValue().getSeconds());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asTimeValue().setSeconds(deserializer.readInt());
+		}
+	}
+
+	private static final class StringOperation extends Operation {
+
+		private final int _maxLength;
+
+		StringOperation(final int maxLength) {
+			_maxLength = maxLength;
+		}
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeString(data.asTextValue().getValueText(), _maxLength);
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asTextValue().setText(deserializer.readString(_maxLength));
+		}
+	}
+
+	private static final class DoubleOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeDouble(data.asUnscaledValue().doubleValue());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asUnscaledValue().set(deserializer.readDouble());
+		}
+	}
+
+	private static final class FloatOperation extends Operation {
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			serializer.writeFloat(data.asUnscaledValue().floatValue());
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			data.asUnscaledValue().set(deserializer.readFloat());
+		}
+	}
+
+	private static final class ListOperation extends Operation {
+
+		private final Operation[] _operations;
+
+		ListOperation(final Operation[] operations) {
+			_operations = operations;
+		}
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			writeItems(_operations, data, serializer);
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			readItems(_operations, data, deserializer, objectLookup);
+		}
+	}
+
+	private static final class ArrayOperation extends Operation {
+
+		private final Operation _elementOperation;
+
+		private final boolean _countVariable;
+
+		private final int _maxCount;
+
+		ArrayOperation(final Operation elementOperation, final boolean countVariable, final int maxCount) {
+			_elementOperation = elementOperation;
+			_countVariable = countVariable;
+			_maxCount = maxCount;
+		}
+
+		void write(final Data data, final Serializer serializer) throws IOException {
+			final Data.Array array = data.asArray();
+			final int arrayLength = array.getLength();
+			if(_countVariable) {
+				if(_maxCount <= 0 || _maxCount > 65535) {
+					serializer.writeInt(arrayLength);
+				}
+				else if(_maxCount > 255) {
+					serializer.writeShort(arrayLength);
+				}
+				else {
+					serializer.writeByte(arrayLength);
+				}
+			}
+			else if(arrayLength != _maxCount) {
+				throw new RuntimeException(
+						"Länge des Arrays im Attribut " + data.getName() + " ist " + arrayLength + ", " + "aber es sollte die Länge " + _maxCount + " haben"
+				);
+			}
+			for(int i = 0; i < arrayLength; i++) {
+				_elementOperation.write(array.getItem(i), serializer);
+			}
+		}
+
+		void read(final Data data, final Deserializer deserializer, final ObjectLookup objectLookup) throws IOException {
+			final Data.Array array = data.asArray();
+			if(_countVariable) {
+				final int newLength;
+				if(_maxCount <= 0 || _maxCount > 65535) {
+					newLength = deserializer.readInt();
+				}
+				else if(_maxCount > 255) {
+					newLength = deserializer.readUnsignedShort();
+				}
+				else {
+					newLength = deserializer.readUnsignedByte();
+				}
+				if(array instanceof ArrayRelaxedRangeCheckSupport) {
+					((ArrayRelaxedRangeCheckSupport)array).setLengthRelaxedRangeCheck(newLength);
+				}
+				else {
+					array.setLength(newLength);
+				}
+			}
+			else {
+				array.setLength(_maxCount);
+			}
+			final int length = array.getLength();
+			for(int i = 0; i < length; i++) {
+				_elementOperation.read(array.getItem(i), deserializer, objectLookup);
+			}
+		}
+	}
+}
@@ -53,6 +53,15 @@ final class DeserializerImplementationA implements Deserializer {
 	private final int _version;
 	private InputStream _inputStream;
 
+	/** Puffer zum Lesen von Zahlwerten mit einem Aufruf des Eingabe-Streams */
+	private final byte[] _buffer = new byte[8];
+
+	/** Wiederverwendeter Puffer für das Einlesen von Strings */
+	private byte[] _stringBuffer = new byte[256];
+
+	/** Zuletzt verwendete vorübersetzte Deserialisierung, vermeidet bei aufeinanderfolgenden Datensätzen derselben Attributgruppe den Zugriff auf den Cache */
+	private AttributeGroupCodec _codec;
+
 	/**
 	 * Erzeugt ein neues Deserialisierungsobjekt mit der gewünschten Version.
 	 *
@@ -115,6 +124,11 @@ final class DeserializerImplementationA implements Deserializer {
 	 * @see ClientDavConnection#createData
 	 */
 	public void readData(final Data data, ObjectLookup objectLookup) throws EOFException, IOException {
+		final AttributeGroup attributeGroup = AttributeGroupCodec.getAttributeGroup(data);
+		if(attributeGroup != null) {
+			getCodec(attributeGroup).read(data, this, objectLookup);
+			return;
+		}
 		if (data.isPlain()) {
 				final AttributeType att = data.getAttributeType();
 				if (att instanceof IntegerAttributeType) {
@@ -201,6 +215,15 @@ final class DeserializerImplementationA implements Deserializer {
 
 	}
 
+	private AttributeGroupCodec getCodec(final AttributeGroup attributeGroup) {
+		AttributeGroupCodec codec = _codec;
+		if(codec == null || !codec.isFor(attributeGroup)) {
+			codec = AttributeGroupCodec.forAttributeGroup(attributeGroup, _version);
+			_codec = codec;
+		}
+		return codec;
+	}
+
 	/**
 	 * Liest und deserialisiert einen <code>byte</code>-Wert vom Eingabe-Stream dieses Deserialisierers.
 	 *
@@ -289,12 +312,13 @@ final class DeserializerImplementationA implements Deserializer {
 	 * @throws IOException  Wenn beim Lesen vom Eingabe-Stream Fehler aufgetreten sind.
 	 */
 	public int readInt() throws EOFException, IOException {
-		int byte1 = _inputStream.read();
-		int byte2 = _inputStream.read();
-		int byte3 = _inputStream.read();
-		int byte4 = _inputStream.read();
-		if (byte1 < 0 || byte2 < 0 || byte3 < 0 || byte4 < 0) throw new EOFException();
-		return (byte1 << 24) | (byte2 << 16) | (byte3 << 8) | byte4;
+		final byte[] buffer = _buffer;
+		readBytes(buffer, 0, 4);
+		return getInt(buffer, 0);
+	}
+
+	private static int getInt(final byte[] buffer, final int offset) {
+		return ((buffer[offset] & 0xff) << 24) | ((buffer[offset + 1] & 0xff) << 16) | ((buffer[offset + 2] & 0xff) << 8) | (buffer[offset + 3] & 0xff);
 	}
 
 	/**
@@ -305,7 +329,9 @@ final class DeserializerImplementationA implements Deserializer {
 	 * @throws IOException  Wenn beim Lesen vom Eingabe-Stream Fehler aufgetreten sind.
 	 */
 	public long readLong() throws EOFException, IOException {
-		return (((long) readInt()) << 32) | (((long) readInt()) & 0xffffffffL);
+		final byte[] buffer = _buffer;
+		readBytes(buffer, 0, 8);
+		return (((long) getInt(buffer, 0)) << 32) | (((long) getInt(buffer, 4)) & 0xffffffffL);
 	}
 
 	/**
@@ -355,11 +381,12 @@ final class DeserializerImplementationA implements Deserializer {
 			length = readUnsignedByte();
 		}
 		if(length == 0) return "";
-		final byte[] bytes = new byte[length];
-		if (length > 0) {
-			readBytes(bytes, 0, length);
+		if(length < 0) throw new NegativeArraySizeException(String.valueOf(length));
+		if(_stringBuffer.length < length) {
+			_stringBuffer = new byte[Math.max(length, _stringBuffer.length * 2)];
 		}
-		return new String(bytes, "ISO-8859-1");
+		readBytes(_stringBuffer, 0, length);
+		return new String(_stringBuffer, 0, length, "ISO-8859-1");
 	}
 
 	/**
@@ -0,0 +1,647 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.dataSerializer;
+
+import de.bsvrz.dav.daf.main.config.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vorübersetzter Zugriffspfad auf ein einfaches Attribut eines mit {@link Serializer#writeData} serialisierten Datensatzes. Der Pfad wird einmalig mit {@link
+ * #compile(AttributeGroup, String, int)} gegen die Struktur der Attributgruppe aufgelöst, danach wird der Wert direkt an der berechneten Position im
+ * serialisierten Datensatz gelesen bzw. geschrieben, ohne den Datensatz zu deserialisieren. Liegen vor dem Attribut keine Attribute mit variabler Länge
+ * (Strings, Arrays mit variabler Größe, Referenzen über Pids), dann wird die Position nur einmal beim Übersetzen berechnet.
+ * <p>
+ * Das Gegenstück für Datensätze, die als Byte-Array des Datenverteilers vorliegen, ist {@link de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray.AttributePathHandle}.
+ * <p>
+ * Objekte dieser Klasse sind unveränderlich und können von mehreren Threads gleichzeitig benutzt werden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public final class SerializedAttributePath {
+
+	private final String _attributeGroupPid;
+
+	private final String _path;
+
+	private final int _version;
+
+	/** Schritte zur Positionsbestimmung, je Strukturebene ein Schritt */
+	private final Step[] _steps;
+
+	/** Feste Position des Attributs relativ zum Anfang des Datensatzes oder -1, wenn die Position vom Inhalt des Datensatzes abhängt */
+	private final int _fixedOffset;
+
+	/** Aufbau des Attributs, auf das der Pfad führt */
+	private final Layout _target;
+
+	private SerializedAttributePath(final String attributeGroupPid, final String path, final int version, final Step[] steps, final Layout target) {
+		_attributeGroupPid = attributeGroupPid;
+		_path = path;
+		_version = version;
+		_steps = steps;
+		_target = target;
+		int fixedOffset = 0;
+		for(Step step : steps) {
+			if(step._fixedOffset < 0) {
+				fixedOffset = -1;
+				break;
+			}
+			fixedOffset += step._fixedOffset;
+		}
+		_fixedOffset = fixedOffset;
+	}
+
+	/**
+	 * Übersetzt einen Attributpfad. Die Namen der Attribute werden durch Punkte getrennt, Elemente von Arrays werden mit einem Index in eckigen Klammern
+	 * angegeben, z.B. <code>"Liste.Werte[2].Wert"</code>.
+	 *
+	 * @param attributeGroup Attributgruppe der serialisierten Datensätze
+	 * @param path           Attributpfad unterhalb der Attributgruppe
+	 * @param version        Version der Serialisierung, mit der die Datensätze erzeugt wurden (siehe {@link Serializer#getVersion()})
+	 *
+	 * @return Vorübersetzter Zugriffspfad
+	 *
+	 * @throws IllegalArgumentException Wenn der Pfad nicht existiert oder nicht auf ein einfaches Attribut bzw. Array-Element führt.
+	 * @throws NoSuchVersionException   Wenn die Version der Serialisierung nicht unterstützt wird.
+	 */
+	public static SerializedAttributePath compile(final AttributeGroup attributeGroup, final String path, final int version) throws NoSuchVersionException {
+		if(version < 2 || version > 3) throw new NoSuchVersionException("Serialisierung mit der Version " + version + " nicht verfügbar.");
+		final List<Step> steps = new ArrayList<Step>();
+		AttributeSet attributeSet = attributeGroup;
+		Layout layout = null;
+		for(String segment : path.split("\\.")) {
+			segment = segment.trim();
+			int index = -1;
+			final int bracket = segment.indexOf('[');
+			if(bracket >= 0) {
+				if(!segment.endsWith("]")) throw new IllegalArgumentException("Ungültiger Attributpfad " + path + ": " + segment);
+				try {
+					index = Integer.parseInt(segment.substring(bracket + 1, segment.length() - 1).trim());
+				}
+				catch(NumberFormatException e) {
+					throw new IllegalArgumentException("Ungültiger Array-Index im Attributpfad " + path + ": " + segment);
+				}
+				if(index < 0) throw new IllegalArgumentException("Negativer Array-Index im Attributpfad " + path + ": " + segment);
+				segment = segment.substring(0, bracket).trim();
+			}
+			if(attributeSet == null) {
+				throw new IllegalArgumentException("Im Attributpfad " + path + " hat das Attribut vor " + segment + " keine Unterattribute");
+			}
+			final List<Attribute> attributes = attributeSet.getAttributes();
+			int position = -1;
+			for(int i = 0; i < attributes.size(); i++) {
+				if(attributes.get(i).getName().equals(segment)) {
+					position = i;
+					break;
+				}
+			}
+			if(position < 0) throw new IllegalArgumentException("Im Attributpfad " + path + " ist das Attribut " + segment + " nicht vorhanden");
+			final Attribute attribute = attributes.get(position);
+			if(attribute.isArray() && index < 0) {
+				throw new IllegalArgumentException("Im Attributpfad " + path + " fehlt der Index für das Array " + segment);
+			}
+			if(!attribute.isArray() && index >= 0) {
+				throw new IllegalArgumentException("Im Attributpfad " + path + " ist das Attribut " + segment + " kein Array");
+			}
+			final Layout[] predecessors = new Layout[position];
+			for(int i = 0; i < position; i++) {
+				predecessors[i] = compileAttribute(attributes.get(i), version);
+			}
+			layout = compileType(attribute.getAttributeType(), version);
+			final ArrayLayout arrayLayout = attribute.isArray() ? new ArrayLayout(layout, attribute.isCountVariable(), attribute.getMaxCount()) : null;
+			steps.add(new Step(predecessors, arrayLayout, index));
+			final AttributeType attributeType = attribute.getAttributeType();
+			attributeSet = attributeType instanceof AttributeListDefinition ? (AttributeListDefinition)attributeType : null;
+		}
+		if(layout == null || layout instanceof ListLayout) {
+			throw new IllegalArgumentException("Der Attributpfad " + path + " führt nicht auf ein einfaches Attribut");
+		}
+		return new SerializedAttributePath(attributeGroup.getPid(), path, version, steps.toArray(new Step[steps.size()]), layout);
+	}
+
+	private static Layout compileAttribute(final Attribute attribute, final int version) {
+		final Layout layout = compileType(attribute.getAttributeType(), version);
+		if(attribute.isArray()) return new ArrayLayout(layout, attribute.isCountVariable(), attribute.getMaxCount());
+		return layout;
+	}
+
+	private static Layout compileType(final AttributeType attributeType, final int version) {
+		if(attributeType instanceof AttributeListDefinition) {
+			final List<Attribute> attributes = ((AttributeListDefinition)attributeType).getAttributes();
+			final Layout[] items = new Layout[attributes.size()];
+			for(int i = 0; i < items.length; i++) {
+				items[i] = compileAttribute(attributes.get(i), version);
+			}
+			return new ListLayout(items);
+		}
+		if(attributeType instanceof IntegerAttributeType) {
+			final int byteCount = ((IntegerAttributeType)attributeType).getByteCount();
+			if(byteCount != 1 && byteCount != 2 && byteCount != 4 && byteCount != 8) {
+				throw new RuntimeException("Ganzzahlattribut mit ungültiger Byte-Anzahl: " + attributeType.getNameOrPidOrId());
+			}
+			return new ValueLayout(ValueLayout.INTEGER, byteCount);
+		}
+		if(attributeType instanceof ReferenceAttributeType) {
+			if(version >= 3 && ((ReferenceAttributeType)attributeType).getReferenceType() == ReferenceType.ASSOCIATION) {
+				return new StringLayout(ValueLayout.REFERENCE_PID, 255);
+			}
+			return new ValueLayout(ValueLayout.REFERENCE_ID, 8);
+		}
+		if(attributeType instanceof TimeAttributeType) {
+			if(((TimeAttributeType)attributeType).getAccuracy() == TimeAttributeType.MILLISECONDS) {
+				return new ValueLayout(ValueLayout.TIME_MILLIS, 8);
+			}
+			return new ValueLayout(ValueLayout.TIME_SECONDS, 4);
+		}
+		if(attributeType instanceof StringAttributeType) {
+			return new StringLayout(ValueLayout.STRING, ((StringAttributeType)attributeType).getMaxLength());
+		}
+		if(attributeType instanceof DoubleAttributeType) {
+			if(((DoubleAttributeType)attributeType).getAccuracy() == DoubleAttributeType.DOUBLE) {
+				return new ValueLayout(ValueLayout.DOUBLE, 8);
+			}
+			return new ValueLayout(ValueLayout.FLOAT, 4);
+		}
+		throw new RuntimeException("Serialisierung einer unbekannten Attributart nicht möglich");
+	}
+
+	/**
+	 * Liefert den Attributpfad, aus dem dieses Objekt erzeugt wurde.
+	 *
+	 * @return Attributpfad
+	 */
+	public String getPath() {
+		return _path;
+	}
+
+	/**
+	 * Liefert die Version der Serialisierung, für die der Pfad übersetzt wurde.
+	 *
+	 * @return Version der Serialisierung
+	 */
+	public int getVersion() {
+		return _version;
+	}
+
+	/**
+	 * Bestimmt, ob die Position des Attributs im serialisierten Datensatz fest ist und deshalb beim Zugriff nicht berechnet werden muss.
+	 *
+	 * @return <code>true</code>, wenn die Position fest ist, sonst <code>false</code>.
+	 */
+	public boolean isOffsetFixed() {
+		return _fixedOffset >= 0;
+	}
+
+	/**
+	 * Bestimmt die Position des Attributs im serialisierten Datensatz.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 *
+	 * @return Position des Attributs im Byte-Array
+	 *
+	 * @throws IndexOutOfBoundsException Wenn der Array-Index im Pfad nicht kleiner als die Länge des Arrays im Datensatz ist oder der Datensatz unvollständig
+	 *                                   ist.
+	 */
+	public int getOffset(final byte[] bytes, final int offset) {
+		if(_fixedOffset >= 0) return check(bytes, offset + _fixedOffset);
+		int position = offset;
+		for(Step step : _steps) {
+			position = step.apply(bytes, position, _path);
+		}
+		return check(bytes, position);
+	}
+
+	private int check(final byte[] bytes, final int position) {
+		if(position < 0 || position >= bytes.length) {
+			throw new IndexOutOfBoundsException("Der serialisierte Datensatz ist für den Attributpfad " + _path + " zu kurz");
+		}
+		return position;
+	}
+
+	private void requireKind(final int kind, final String typeName) {
+		if(_target._kind != kind) throw new UnsupportedOperationException("Das Attribut " + _path + " ist kein " + typeName);
+	}
+
+	/**
+	 * Liefert den unskalierten Wert eines Ganzzahlattributs.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 *
+	 * @return Unskalierter Wert
+	 */
+	public long getUnscaledValue(final byte[] bytes, final int offset) {
+		requireKind(ValueLayout.INTEGER, "Ganzzahlattribut");
+		return read(bytes, getOffset(bytes, offset), _target.fixedSize());
+	}
+
+	/**
+	 * Liefert den Wert eines Fließkommaattributs.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 *
+	 * @return Wert des Attributs
+	 */
+	public double getDoubleValue(final byte[] bytes, final int offset) {
+		final int position = getOffset(bytes, offset);
+		if(_target._kind == ValueLayout.FLOAT) return Float.intBitsToFloat((int)read(bytes, position, 4));
+		requireKind(ValueLayout.DOUBLE, "Fließkommaattribut");
+		return Double.longBitsToDouble(read(bytes, position, 8));
+	}
+
+	/**
+	 * Liefert den Wert eines Zeitattributs in Millisekunden.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 *
+	 * @return Zeit in Millisekunden
+	 */
+	public long getMillis(final byte[] bytes, final int offset) {
+		final int position = getOffset(bytes, offset);
+		if(_target._kind == ValueLayout.TIME_SECONDS) return read(bytes, position, 4) * 1000;
+		requireKind(ValueLayout.TIME_MILLIS, "Zeitattribut");
+		return read(bytes, position, 8);
+	}
+
+	/**
+	 * Liefert die Id des von einem Referenzattribut referenzierten Objekts. Bei Referenzen, die in der Version 3 der Serialisierung als Pid gespeichert
+	 * werden, ist stattdessen {@link #getText(byte[], int)} zu verwenden.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 *
+	 * @return Id des Objekts oder 0, wenn kein Objekt referenziert wird.
+	 */
+	public long getId(final byte[] bytes, final int offset) {
+		requireKind(ValueLayout.REFERENCE_ID, "über die Id serialisiertes Referenzattribut");
+		return read(bytes, getOffset(bytes, offset), 8);
+	}
+
+	/**
+	 * Liefert den Text eines Zeichenkettenattributs bzw. die Pid eines als Pid serialisierten Referenzattributs.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 *
+	 * @return Text bzw. Pid
+	 */
+	public String getText(final byte[] bytes, final int offset) {
+		if(_target._kind != ValueLayout.REFERENCE_PID) requireKind(ValueLayout.STRING, "Zeichenkettenattribut");
+		final StringLayout stringLayout = (StringLayout)_target;
+		final int position = getOffset(bytes, offset);
+		final int length = (int)readUnsigned(bytes, position, stringLayout._prefixSize);
+		if(position + stringLayout._prefixSize + length > bytes.length) {
+			throw new IndexOutOfBoundsException("Der serialisierte Datensatz ist für den Attributpfad " + _path + " zu kurz");
+		}
+		return new String(bytes, position + stringLayout._prefixSize, length, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Setzt den unskalierten Wert eines Ganzzahlattributs im serialisierten Datensatz. Es findet keine Prüfung des Wertebereichs statt, der Wert wird auf die
+	 * Byte-Anzahl des Attributtyps gekürzt.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 * @param value  Neuer unskalierter Wert
+	 */
+	public void setUnscaledValue(final byte[] bytes, final int offset, final long value) {
+		requireKind(ValueLayout.INTEGER, "Ganzzahlattribut");
+		write(bytes, getOffset(bytes, offset), value, _target.fixedSize());
+	}
+
+	/**
+	 * Setzt den Wert eines Fließkommaattributs im serialisierten Datensatz.
+	 *
+	 * @param bytes  Byte-Array mit dem serialisierten Datensatz
+	 * @param offset Position des Datensatzes im Byte-Array
+	 * @param value  Neuer Wert
+	 */
+	public void setDoubleValue(final byte[] bytes, final int offset, final double value) {
+		final int position = getOffset(bytes, offset);
+		if(_target._kind == ValueLayout.FLOAT) {
+			write(bytes, position, Float.floatToIntBits((float)value), 4);
+			return;
+		}
+		requireKind(ValueLayout.DOUBLE, "Fließkommaattribut");
+		write(bytes, position, Double.doubleToLongBits(value), 8);
+	}
+
+	/**
+	 * Setzt den Wert eines Zeitattributs im serialisierten Datensatz. Bei Zeitattributen mit der Genauigkeit Sekunden werden die Millisekunden abgeschnitten.
+	 *
+	 * @param bytes        Byte-Array mit dem serialisierten Datensatz
+	 * @param offset       Position des Datensatzes im Byte-Array
+	 * @param milliSeconds Zeit in Millisekunden
+	 */
+	public void setMillis(final byte[] bytes, final int offset, final long milliSeconds) {
+		final int position = getOffset(bytes, offset);
+		if(_target._kind == ValueLayout.TIME_SECONDS) {
+			write(bytes, position, milliSeconds / 1000, 4);
+			return;
+		}
+		requireKind(ValueLayout.TIME_MILLIS, "Zeitattribut");
+		write(bytes, position, milliSeconds, 8);
+	}
+
+	private static long read(final byte[] bytes, final int position, final int size) {
+		if(position + size > bytes.length) throw new IndexOutOfBoundsException("Der serialisierte Datensatz ist zu kurz");
+		long value = bytes[position];
+		for(int i = 1; i < size; i++) {
+			value = (value << 8) | (bytes[position + i] & 0xff);
+		}
+		return value;
+	}
+
+	private static long readUnsigned(final byte[] bytes, final int position, final int size) {
+		final long value = read(bytes, position, size);
+		switch(size) {
+			case 1:
+				return value & 0xff;
+			case 2:
+				return value & 0xffff;
+			default:
+				return value;
+		}
+	}
+
+	private static void write(final byte[] bytes, final int position, final long value, final int size) {
+		if(position + size > bytes.length) throw new IndexOutOfBoundsException("Der serialisierte Datensatz ist zu kurz");
+		for(int i = size - 1; i >= 0; i--) {
+			bytes[position + i] = (byte)(value >>> (8 * (size - 1 - i)));
+		}
+	}
+
+	/**
+	 * Bestimmt die Größe des Längenfelds, das vor Strings bzw. Arrays variabler Größe serialisiert wird.
+	 *
+	 * @param maxLength Maximale Länge bzw. Anzahl
+	 *
+	 * @return 1, 2 oder 4
+	 */
+	private static int prefixSize(final int maxLength) {
+		if(maxLength <= 0 || maxLength > 65535) return 4;
+		if(maxLength > 255) return 2;
+		return 1;
+	}
+
+	@Override
+	public String toString() {
+		return "SerializedAttributePath{" + _attributeGroupPid + ":" + _path + ", version=" + _version + "}";
+	}
+
+	/** Positionsbestimmung innerhalb einer Strukturebene: Überspringen der vorhergehenden Attribute und ggf. der vorhergehenden Array-Elemente */
+	private static final class Step {
+
+		private final Layout[] _predecessors;
+
+		/** Summe der Größen der vorhergehenden Attribute oder -1, wenn mindestens eines eine variable Größe hat */
+		private final int _predecessorSize;
+
+		/** Array, in dem das Element adressiert wird, oder <code>null</code> */
+		private final ArrayLayout _array;
+
+		private final int _index;
+
+		/** Feste Verschiebung durch diesen Schritt oder -1, wenn sie vom Inhalt des Datensatzes abhängt */
+		private final int _fixedOffset;
+
+		private Step(final Layout[] predecessors, final ArrayLayout array, final int index) {
+			_predecessors = predecessors;
+			_array = array;
+			_index = index;
+			int size = 0;
+			for(Layout predecessor : predecessors) {
+				final int fixedSize = predecessor.fixedSize();
+				if(fixedSize < 0) {
+					size = -1;
+					break;
+				}
+				size += fixedSize;
+			}
+			_predecessorSize = size;
+			if(size >= 0 && array != null) {
+				final int elementSize = array._element.fixedSize();
+				_fixedOffset = array._countVariable || elementSize < 0 || index >= array._maxCount ? -1 : size + elementSize * index;
+			}
+			else {
+				_fixedOffset = size;
+			}
+		}
+
+		private int apply(final byte[] bytes, int position, final String path) {
+			if(_predecessorSize >= 0) {
+				position += _predecessorSize;
+			}
+			else {
+				for(Layout predecessor : _predecessors) {
+					position = predecessor.skip(bytes, position);
+				}
+			}
+			if(_array == null) return position;
+			final int length;
+			if(_array._countVariable) {
+				final int prefixSize = prefixSize(_array._maxCount);
+				length = (int)readUnsigned(bytes, position, prefixSize);
+				position += prefixSize;
+			}
+			else {
+				length = _array._maxCount;
+			}
+			if(_index >= length) {
+				throw new IndexOutOfBoundsException("Im Attributpfad " + path + " ist der Index " + _index + " nicht kleiner als die Array-Länge " + length);
+			}
+			final int elementSize = _array._element.fixedSize();
+			if(elementSize >= 0) return position + elementSize * _index;
+			for(int i = 0; i < _index; i++) {
+				position = _array._element.skip(bytes, position);
+			}
+			return position;
+		}
+	}
+
+	/** Aufbau eines serialisierten Attributs */
+	private abstract static class Layout {
+
+		final int _kind;
+
+		Layout(final int kind) {
+			_kind = kind;
+		}
+
+		/**
+		 * Liefert die Größe des serialisierten Attributs.
+		 *
+		 * @return Größe in Bytes oder -1, wenn die Größe vom Inhalt abhängt
+		 */
+		abstract int fixedSize();
+
+		/**
+		 * Überspringt das serialisierte Attribut.
+		 *
+		 * @param bytes    Byte-Array mit dem serialisierten Datensatz
+		 * @param position Position des Attributs
+		 *
+		 * @return Position hinter dem Attribut
+		 */
+		abstract int skip(byte[] bytes, int position);
+	}
+
+	private static class ValueLayout extends Layout {
+
+		static final int INTEGER = 1;
+
+		static final int REFERENCE_ID = 2;
+
+		static final int REFERENCE_PID = 3;
+
+		static final int TIME_MILLIS = 4;
+
+		static final int TIME_SECONDS = 5;
+
+		static final int STRING = 6;
+
+		static final int DOUBLE = 7;
+
+		static final int FLOAT = 8;
+
+		static final int LIST = 9;
+
+		private final int _size;
+
+		ValueLayout(final int kind, final int size) {
+			super(kind);
+			_size = size;
+		}
+
+		int fixedSize() {
+			return _size;
+		}
+
+		int skip(final byte[] bytes, final int position) {
+			return position + _size;
+		}
+	}
+
+	private static final class StringLayout extends Layout {
+
+		private final int _prefixSize;
+
+		StringLayout(final int kind, final int maxLength) {
+			super(kind);
+			_prefixSize = prefixSize(maxLength);
+		}
+
+		int fixedSize() {
+			return -1;
+		}
+
+		int skip(final byte[] bytes, final int position) {
+			return position + _prefixSize + (int)readUnsigned(bytes, position, _prefixSize);
+		}
+	}
+
+	private static final class ListLayout extends Layout {
+
+		private final Layout[] _items;
+
+		private final int _fixedSize;
+
+		ListLayout(final Layout[] items) {
+			super(ValueLayout.LIST);
+			_items = items;
+			int size = 0;
+			for(Layout item : items) {
+				final int itemSize = item.fixedSize();
+				if(itemSize < 0) {
+					size = -1;
+					break;
+				}
+				size += itemSize;
+			}
+			_fixedSize = size;
+		}
+
+		int fixedSize() {
+			return _fixedSize;
+		}
+
+		int skip(final byte[] bytes, int position) {
+			if(_fixedSize >= 0) return position + _fixedSize;
+			for(Layout item : _items) {
+				position = item.skip(bytes, position);
+			}
+			return position;
+		}
+	}
+
+	private static final class ArrayLayout extends Layout {
+
+		private final Layout _element;
+
+		private final boolean _countVariable;
+
+		private final int _maxCount;
+
+		ArrayLayout(final Layout element, final boolean countVariable, final int maxCount) {
+			super(element._kind);
+			_element = element;
+			_countVariable = countVariable;
+			_maxCount = maxCount;
+		}
+
+		int fixedSize() {
+			final int elementSize = _element.fixedSize();
+			if(_countVariable || elementSize < 0) return -1;
+			return elementSize * _maxCount;
+		}
+
+		int skip(final byte[] bytes, int position) {
+			final int length;
+			if(_countVariable) {
+				final int prefixSize = prefixSize(_maxCount);
+				length = (int)readUnsigned(bytes, position, prefixSize);
+				position += prefixSize;
+			}
+			else {
+				length = _maxCount;
+			}
+			final int elementSize = _element.fixedSize();
+			if(elementSize >= 0) return position + elementSize * length;
+			for(int i = 0; i < length; i++) {
+				position = _element.skip(bytes, position);
+			}
+			return position;
+		}
+	}
+}
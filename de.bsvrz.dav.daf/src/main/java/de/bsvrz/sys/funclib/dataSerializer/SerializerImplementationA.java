@@ -29,6 +29,7 @@ package de.bsvrz.sys.funclib.dataSerializer;
 
 
 import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.AttributeGroup;
 import de.bsvrz.dav.daf.main.config.AttributeType;
 import de.bsvrz.dav.daf.main.config.ConfigurationException;
 import de.bsvrz.dav.daf.main.config.DoubleAttributeType;
@@ -54,6 +55,15 @@ final class SerializerImplementationA implements Serializer {
 	private final int _version;
 	private OutputStream _outputStream;
 
+	/** Puffer zum Schreiben von Zahlwerten mit einem Aufruf des Ausgabe-Streams */
+	private final byte[] _buffer = new byte[8];
+
+	/** Wiederverwendeter Puffer für die Kodierung von Strings */
+	private byte[] _stringBuffer = new byte[256];
+
+	/** Zuletzt verwendete vorübersetzte Serialisierung, vermeidet bei aufeinanderfolgenden Datensätzen derselben Attributgruppe den Zugriff auf den Cache */
+	private AttributeGroupCodec _codec;
+
 	/**
 	 * Erzeugt ein neues Serialisierungsobjekt mit der gewünschten Version.
 	 *
@@ -101,11 +111,19 @@ final class SerializerImplementationA implements Serializer {
 	 * AttributListen und Arrays werden durch Serialisierung der enthalten Attribute serialisiert. Bei Arrays variabler
 	 * Länge wird die Länge vorweg serialisiert, und zwar je nach maximaler Anzahl der Elemente in 1, 2 oder 4 Bytes als
 	 * vorzeichenloser Wert.
+	 * <p>
+	 * Vollständige Datensätze, deren Attributgruppe bekannt ist, werden mit einer je Attributgruppe vorübersetzten Serialisierung ({@link
+	 * AttributeGroupCodec}) geschrieben, die dasselbe Format erzeugt.
 	 *
 	 * @param data Der zu serialisierende Datensatz.
 	 * @throws IOException Wenn ein I/O Fehler bei Schreiben auf den Ausgabe-Stream auftritt.
 	 */
 	public void writeData(final Data data) throws IOException {
+		final AttributeGroup attributeGroup = AttributeGroupCodec.getAttributeGroup(data);
+		if(attributeGroup != null) {
+			getCodec(attributeGroup).write(data, this);
+			return;
+		}
 		if(data.isPlain()) {
 			try {
 				final AttributeType att = data.getAttributeType();
@@ -218,6 +236,15 @@ final class SerializerImplementationA implements Serializer {
 		}
 	}
 
+	private AttributeGroupCodec getCodec(final AttributeGroup attributeGroup) {
+		AttributeGroupCodec codec = _codec;
+		if(codec == null || !codec.isFor(attributeGroup)) {
+			codec = AttributeGroupCodec.forAttributeGroup(attributeGroup, _version);
+			_codec = codec;
+		}
+		return codec;
+	}
+
 	/**
 	 * Serialisiert die id eines Systemobjekts in einen Bytestrom und schreibt diesen auf den Ausgabe-Stream.
 	 *
@@ -240,8 +267,16 @@ final class SerializerImplementationA implements Serializer {
 	 * @throws IOException Wenn ein I/O Fehler bei Schreiben auf den Ausgabe-Stream auftritt.
 	 */
 	public void writeLong(final long value) throws IOException {
-		writeInt((int) (value >>> 32));
-		writeInt((int) (value & 0xffffffff));
+		final byte[] buffer = _buffer;
+		buffer[0] = (byte) (value >>> 56);
+		buffer[1] = (byte) (value >>> 48);
+		buffer[2] = (byte) (value >>> 40);
+		buffer[3] = (byte) (value >>> 32);
+		buffer[4] = (byte) (value >>> 24);
+		buffer[5] = (byte) (value >>> 16);
+		buffer[6] = (byte) (value >>> 8);
+		buffer[7] = (byte) value;
+		_outputStream.write(buffer, 0, 8);
 	}
 
 	/**
@@ -251,10 +286,12 @@ final class SerializerImplementationA implements Serializer {
 	 * @throws IOException Wenn ein I/O Fehler bei Schreiben auf den Ausgabe-Stream auftritt.
 	 */
 	public void writeInt(final int value) throws IOException {
-		_outputStream.write((value >>> 24) & 0xff);
-		_outputStream.write((value >>> 16) & 0xff);
-		_outputStream.write((value >>> 8) & 0xff);
-		_outputStream.write(value & 0xff);
+		final byte[] buffer = _buffer;
+		buffer[0] = (byte) (value >>> 24);
+		buffer[1] = (byte) (value >>> 16);
+		buffer[2] = (byte) (value >>> 8);
+		buffer[3] = (byte) value;
+		_outputStream.write(buffer, 0, 4);
 	}
 
 	/**
@@ -264,8 +301,10 @@ final class SerializerImplementationA implements Serializer {
 	 * @throws IOException Wenn ein I/O Fehler bei Schreiben auf den Ausgabe-Stream auftritt.
 	 */
 	public void writeShort(final int value) throws IOException {
-		_outputStream.write((value >>> 8) & 0xff);
-		_outputStream.write(value & 0xff);
+		final byte[] buffer = _buffer;
+		buffer[0] = (byte) (value >>> 8);
+		buffer[1] = (byte) value;
+		_outputStream.write(buffer, 0, 2);
 	}
 
 	/**
@@ -324,35 +363,47 @@ final class SerializerImplementationA implements Serializer {
 	/**
 	 * Serialisiert einen <code>String</code>-Wert in einen Bytestrom und schreibt diesen auf den Ausgabe-Stream. Strings werden in ISO-8859-1 kodiert und vorweg
 	 * wird die Länge des Strings serialisiert und zwar je nach maximaler Stringlänge in 1, 2, oder 4 Bytes als vorzeichenloser Wert.
+	 * <p>
+	 * Zeichen, die in ISO-8859-1 nicht darstellbar sind, werden wie bei {@link String#getBytes(String)} durch '?' ersetzt. Enthält der String ein Surrogat-Paar,
+	 * das bei der Kodierung zu einem einzigen Zeichen würde, dann stimmen die Länge des Strings und die Länge der Kodierung nicht überein und es wird eine
+	 * Exception erzeugt, ohne dass etwas auf den Ausgabe-Stream geschrieben wird.
 	 *
 	 * @param value     Der zu serialisierende Wert.
 	 * @param maxLength Maximale Länge des zu serialisierenden Strings oder <code>0</code> wenn keine Begrenzung vorgegeben werden kann.
 	 * @throws IOException              Wenn ein I/O Fehler bei Schreiben auf den Ausgabe-Stream auftritt.
 	 * @throws IllegalArgumentException Wenn die Länge des Strings größer als die angegebene Maximallänge ist.
+	 * @throws RuntimeException         Wenn die Länge der Kodierung nicht der Länge des Strings entspricht.
 	 */
 	public void writeString(final String value, final int maxLength) throws IOException {
 		final int length = value.length();
+		if(maxLength > 0 && maxLength <= 65535 && length > maxLength) {
+			throw new IllegalArgumentException(
+					"Länge " + length + " des zu serialisierenden Strings '" + value + "' ist größer als das zulässige Maximum " + maxLength
+			);
+		}
+		if(_stringBuffer.length < length) {
+			_stringBuffer = new byte[Math.max(length, _stringBuffer.length * 2)];
+		}
+		final byte[] bytes = _stringBuffer;
+		for(int i = 0; i < length; i++) {
+			// Kodierung in ISO-8859-1, nicht darstellbare Zeichen werden wie bei String.getBytes durch '?' ersetzt
+			final char c = value.charAt(i);
+			if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				// String.getBytes kodiert ein Surrogat-Paar als ein einziges '?', die kodierte Länge wäre damit kleiner als die serialisierte Länge
+				throw new RuntimeException("Stringlänge ungleich kodierter Stringlänge: " + value);
+			}
+			bytes[i] = c > 0xff ? (byte) '?' : (byte) c;
+		}
 		if(maxLength <= 0 || maxLength > 65535) {
 			writeInt(length);
 		}
-		else {
-			if(length > maxLength) {
-				throw new IllegalArgumentException(
-						"Länge " + length + " des zu serialisierenden Strings '" + value + "' ist größer als das zulässige Maximum " + maxLength
-				);
-			}
-			if(maxLength > 255) {
-				writeShort(length);
-			}
-			else {
-				writeByte(length);
-			}
+		else if(maxLength > 255) {
+			writeShort(length);
 		}
-		final byte[] bytes = value.getBytes("ISO-8859-1");
-		if(length != bytes.length) {
-			throw new RuntimeException("Stringlänge ungleich kodierter Stringlänge: " + value);
+		else {
+			writeByte(length);
 		}
-		_outputStream.write(bytes);
+		_outputStream.write(bytes, 0, length);
 	}
 
 
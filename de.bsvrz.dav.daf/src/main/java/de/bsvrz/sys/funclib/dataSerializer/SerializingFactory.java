@@ -28,6 +28,8 @@
 package de.bsvrz.sys.funclib.dataSerializer;
 
 
+import de.bsvrz.dav.daf.main.config.DataModel;
+
 import java.io.OutputStream;
 import java.io.InputStream;
 
@@ -156,6 +158,16 @@ public final class SerializingFactory {
 	}
 
 
+	/**
+	 * Entfernt die zwischengespeicherten, je Attributgruppe vorübersetzten Serialisierungen aller Attributgruppen des angegebenen Datenmodells. Wird beim
+	 * Schließen einer Datenverteilerverbindung aufgerufen, damit die Konfigurationsobjekte nicht weiter referenziert werden.
+	 *
+	 * @param dataModel Datenmodell, dessen Attributgruppen vergessen werden sollen.
+	 */
+	public static void forgetDataModel(final DataModel dataModel) {
+		AttributeGroupCodec.forgetDataModel(dataModel);
+	}
+
 	/**
 	 * Konstruktur ist nicht öffenlich, weil keine Objekte der Klasse benötigt werden.
 	 */
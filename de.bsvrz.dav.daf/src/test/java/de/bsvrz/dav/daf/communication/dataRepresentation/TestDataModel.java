@@ -0,0 +1,315 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.dav.daf.communication.dataRepresentation;
+
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Minimales Datenmodell für Tests der Datensatz-Darstellungen. Attributgruppen, Attribute, Attributtypen und Objekte werden als {@link Proxy} erzeugt, die nur
+ * die für den Aufbau und die Serialisierung von Datensätzen benötigten Methoden unterstützen. Alle anderen Methoden werfen eine {@link
+ * UnsupportedOperationException}.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class TestDataModel {
+
+	private final Map<Long, SystemObject> _objectsById = new HashMap<Long, SystemObject>();
+
+	private final Map<String, SystemObject> _objectsByPid = new HashMap<String, SystemObject>();
+
+	private final DataModel _dataModel;
+
+	private long _nextId = 1000;
+
+	public TestDataModel() {
+		final Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put(
+				"getObject", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						if(args[0] instanceof String) return _objectsByPid.get(args[0]);
+						return _objectsById.get(args[0]);
+					}
+				}
+		);
+		_dataModel = create(DataModel.class, properties);
+	}
+
+	public DataModel getDataModel() {
+		return _dataModel;
+	}
+
+	public IntegerValueRange range(final long minimum, final long maximum, final double conversionFactor, final String unit) {
+		final Map<String, Object> properties = configurationObject("range" + minimum + "-" + maximum);
+		properties.put("getMinimum", minimum);
+		properties.put("getMaximum", maximum);
+		properties.put("getConversionFactor", conversionFactor);
+		properties.put("getUnit", unit);
+		return create(IntegerValueRange.class, properties);
+	}
+
+	public IntegerValueState state(final String name, final long value) {
+		final Map<String, Object> properties = configurationObject(name);
+		properties.put("getName", name);
+		properties.put("getValue", value);
+		return create(IntegerValueState.class, properties);
+	}
+
+	public IntegerAttributeType integerType(
+			final String pid, final int byteCount, final String defaultValue, final IntegerValueRange range, final IntegerValueState... states) {
+		final Map<String, Object> properties = attributeType(pid, defaultValue);
+		properties.put("getByteCount", byteCount);
+		properties.put("getValueSize", (short)byteCount);
+		properties.put("getRange", range);
+		properties.put("getStates", Arrays.asList(states));
+		properties.put(
+				"setToUndefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						final IntegerAttributeType type = (IntegerAttributeType)proxy;
+						final UndefinedValueHandler handler = UndefinedValueHandler.getInstance();
+						handler.setToUndefinedInteger((Data)args[0], handler.getUndefinedValueInteger(type), type);
+						return null;
+					}
+				}
+		);
+		properties.put(
+				"isDefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						final IntegerAttributeType type = (IntegerAttributeType)proxy;
+						final UndefinedValueHandler handler = UndefinedValueHandler.getInstance();
+						return handler.isDefinedInteger(type, (Data)args[0], handler.getUndefinedValueInteger(type));
+					}
+				}
+		);
+		return create(IntegerAttributeType.class, properties);
+	}
+
+	public DoubleAttributeType doubleType(final String pid, final byte accuracy, final String defaultValue) {
+		final Map<String, Object> properties = attributeType(pid, defaultValue);
+		properties.put("getAccuracy", accuracy);
+		properties.put("getUnit", "");
+		return create(DoubleAttributeType.class, properties);
+	}
+
+	public TimeAttributeType timeType(final String pid, final boolean relative, final byte accuracy) {
+		final Map<String, Object> properties = attributeType(pid, null);
+		properties.put("isRelative", relative);
+		properties.put("getAccuracy", accuracy);
+		properties.put(
+				"setToUndefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						if(relative) {
+							UndefinedValueHandler.getInstance().setToUndefinedTimeRelative((Data)args[0], accuracy);
+						}
+						else {
+							UndefinedValueHandler.getInstance().setToUndefinedTimeAbsolute((Data)args[0]);
+						}
+						return null;
+					}
+				}
+		);
+		properties.put(
+				"isDefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						if(relative) return UndefinedValueHandler.getInstance().isDefinedTimeRelative((Data)args[0], accuracy);
+						return UndefinedValueHandler.getInstance().isDefinedTimeAbsolute((Data)args[0]);
+					}
+				}
+		);
+		return create(TimeAttributeType.class, properties);
+	}
+
+	public StringAttributeType stringType(final String pid, final int maxLength) {
+		final Map<String, Object> properties = attributeType(pid, null);
+		properties.put("getMaxLength", maxLength);
+		properties.put("isLengthLimited", maxLength > 0);
+		properties.put("getEncodingName", "ISO-8859-1");
+		properties.put("getEncodingValue", StringAttributeType.ISO_8859_1);
+		properties.put(
+				"setToUndefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						UndefinedValueHandler.getInstance().setToUndefinedString((Data)args[0]);
+						return null;
+					}
+				}
+		);
+		properties.put(
+				"isDefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						return UndefinedValueHandler.getInstance().isDefinedString((Data)args[0]);
+					}
+				}
+		);
+		return create(StringAttributeType.class, properties);
+	}
+
+	public ReferenceAttributeType referenceType(
+			final String pid, final SystemObjectType referencedObjectType, final ReferenceType referenceType, final boolean undefinedAllowed) {
+		final Map<String, Object> properties = attributeType(pid, null);
+		properties.put("getReferencedObjectType", referencedObjectType);
+		properties.put("getReferenceType", referenceType);
+		properties.put("isUndefinedAllowed", undefinedAllowed);
+		properties.put(
+				"setToUndefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						UndefinedValueHandler.getInstance().setToUndefinedReference((Data)args[0]);
+						return null;
+					}
+				}
+		);
+		properties.put(
+				"isDefined", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						return UndefinedValueHandler.getInstance().isDefinedReference((Data)args[0], (ReferenceAttributeType)proxy);
+					}
+				}
+		);
+		return create(ReferenceAttributeType.class, properties);
+	}
+
+	public AttributeListDefinition listType(final String pid, final Attribute... attributes) {
+		final Map<String, Object> properties = attributeType(pid, null);
+		addAttributes(properties, attributes);
+		return create(AttributeListDefinition.class, properties);
+	}
+
+	public Attribute attribute(final String name, final AttributeType type) {
+		return attribute(name, type, 1, false, null);
+	}
+
+	public Attribute attribute(final String name, final AttributeType type, final int maxCount, final boolean countVariable, final String defaultValue) {
+		final Map<String, Object> properties = configurationObject(name);
+		properties.put("getAttributeType", type);
+		properties.put("getMaxCount", maxCount);
+		properties.put("isCountVariable", countVariable);
+		properties.put("isCountLimited", maxCount > 0);
+		properties.put("isArray", countVariable || maxCount != 1);
+		properties.put("getDefaultAttributeValue", defaultValue);
+		return create(Attribute.class, properties);
+	}
+
+	public AttributeGroup attributeGroup(final String pid, final Attribute... attributes) {
+		final Map<String, Object> properties = configurationObject(pid);
+		addAttributes(properties, attributes);
+		return create(AttributeGroup.class, properties);
+	}
+
+	public SystemObjectType objectType(final String pid) {
+		final Map<String, Object> properties = configurationObject(pid);
+		return register(create(SystemObjectType.class, properties));
+	}
+
+	public SystemObject object(final String pid, final SystemObjectType type) {
+		final Map<String, Object> properties = configurationObject(pid);
+		properties.put("getType", type);
+		properties.put(
+				"isOfType", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						return args[0] == type;
+					}
+				}
+		);
+		return register(create(ConfigurationObject.class, properties));
+	}
+
+	private <T extends SystemObject> T register(final T object) {
+		_objectsById.put(object.getId(), object);
+		_objectsByPid.put(object.getPid(), object);
+		return object;
+	}
+
+	private Map<String, Object> configurationObject(final String pid) {
+		final Map<String, Object> properties = new HashMap<String, Object>();
+		final long id = _nextId++;
+		properties.put("getId", id);
+		properties.put("getPid", pid);
+		properties.put("getName", pid);
+		properties.put("getNameOrPidOrId", pid);
+		properties.put("getPidOrNameOrId", pid);
+		properties.put("getPidOrId", pid);
+		properties.put("getDataModel", _dataModel);
+		return properties;
+	}
+
+	private Map<String, Object> attributeType(final String pid, final String defaultValue) {
+		final Map<String, Object> properties = configurationObject(pid);
+		properties.put("getDefaultAttributeValue", defaultValue);
+		return properties;
+	}
+
+	private static void addAttributes(final Map<String, Object> properties, final Attribute... attributes) {
+		final List<Attribute> attributeList = Arrays.asList(attributes);
+		properties.put("getAttributes", attributeList);
+		properties.put(
+				"getAttribute", new Answer() {
+					public Object answer(final Object proxy, final Object[] args) {
+						for(Attribute attribute : attributeList) {
+							if(attribute.getName().equals(args[0])) return attribute;
+						}
+						return null;
+					}
+				}
+		);
+	}
+
+	private static <T> T create(final Class<T> type, final Map<String, Object> properties) {
+		return type.cast(Proxy.newProxyInstance(TestDataModel.class.getClassLoader(), new Class<?>[]{type}, new PropertyHandler(properties)));
+	}
+
+	/** Berechnet das Ergebnis eines Methodenaufrufs, für den kein fester Wert hinterlegt ist. */
+	private interface Answer {
+
+		Object answer(Object proxy, Object[] args);
+	}
+
+	private static class PropertyHandler implements InvocationHandler {
+
+		private final Map<String, Object> _properties;
+
+		PropertyHandler(final Map<String, Object> properties) {
+			_properties = properties;
+		}
+
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+			final String name = method.getName();
+			if(name.equals("equals")) return proxy == args[0];
+			if(name.equals("hashCode")) return System.identityHashCode(proxy);
+			if(name.equals("toString")) return String.valueOf(_properties.get("getPid"));
+			if(!_properties.containsKey(name)) throw new UnsupportedOperationException(name);
+			final Object value = _properties.get(name);
+			if(value instanceof Answer) return ((Answer)value).answer(proxy, args);
+			return value;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeHelper;
+import de.bsvrz.dav.daf.communication.dataRepresentation.TestDataModel;
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet den Zugriff auf Attribute von Datensätzen über {@link AttributePathHandle}. Die gelesenen Werte werden mit den Werten verglichen, die über die
+ * Navigation mit {@link Data#getItem(String)} bzw. {@link Data#getArray(String)} ermittelt werden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class AttributePathHandleTest {
+
+	private static final long TIME = 1234567890123L;
+
+	private TestDataModel _model;
+
+	private SystemObject _object;
+
+	private IntegerValueState _stateError;
+
+	private AttributeGroup _attributeGroup;
+
+	private AttributeGroup _fixedAttributeGroup;
+
+	@Before
+	public void setUp() throws Exception {
+		_model = new TestDataModel();
+		final SystemObjectType objectType = _model.objectType("typ.messQuerschnitt");
+		_object = _model.object("mq.1", objectType);
+		_stateError = _model.state("fehlerhaft", -1);
+		final IntegerAttributeType lengthType = _model.integerType("att.länge", IntegerAttributeType.INT, null, _model.range(0, 1000, 0.5, "m"), _stateError);
+		final IntegerAttributeType valueType = _model.integerType("att.wert", IntegerAttributeType.SHORT, "0", _model.range(0, 1000, 1, ""));
+		final AttributeListDefinition listType = _model.listType(
+				"atl.liste",
+				_model.attribute("Wert", valueType),
+				_model.attribute("Zeitpunkt", _model.timeType("att.zeitpunkt", false, TimeAttributeType.SECONDS))
+		);
+		final AttributeListDefinition itemType = _model.listType(
+				"atl.element",
+				_model.attribute("Wert", valueType),
+				_model.attribute("Anteil", _model.doubleType("att.anteil", DoubleAttributeType.DOUBLE, "0"))
+		);
+		final Attribute length = _model.attribute("Länge", lengthType);
+		final Attribute time = _model.attribute("Zeit", _model.timeType("att.zeit", false, TimeAttributeType.MILLISECONDS));
+		final Attribute object = _model.attribute("Objekt", _model.referenceType("att.mq", objectType, ReferenceType.ASSOCIATION, true));
+		final Attribute list = _model.attribute("Liste", listType);
+		_attributeGroup = _model.attributeGroup(
+				"atg.pfad",
+				length,
+				time,
+				object,
+				list,
+				_model.attribute("Werte", itemType, 3, false, null),
+				_model.attribute("Text", _model.stringType("att.text", 50)),
+				_model.attribute("Danach", valueType),
+				_model.attribute("Varianten", valueType, 10, true, null),
+				_model.attribute("Faktor", _model.doubleType("att.faktor", DoubleAttributeType.FLOAT, "1"))
+		);
+		_fixedAttributeGroup = _model.attributeGroup("atg.fest", length, time, object, list);
+	}
+
+	private static Data createDefaultData(final AttributeGroup attributeGroup) {
+		final Data data = AttributeBaseValueDataFactory.createAdapter(attributeGroup, AttributeHelper.getAttributesValues(attributeGroup));
+		data.setToDefault();
+		return data;
+	}
+
+	private Data createReceivedData() {
+		final Data data = createDefaultData(_attributeGroup);
+		data.getScaledValue("Länge").set(12.5);
+		data.getTimeValue("Zeit").setMillis(TIME);
+		data.getReferenceValue("Objekt").setSystemObject(_object);
+		data.getItem("Liste").getUnscaledValue("Wert").set(42);
+		data.getItem("Liste").getTimeValue("Zeitpunkt").setSeconds(1000);
+		final Data.Array items = data.getArray("Werte");
+		items.setLength(3);
+		for(int i = 0; i < 3; i++) {
+			items.getItem(i).getUnscaledValue("Wert").set(i * 10 + 1);
+			items.getItem(i).getScaledValue("Anteil").set(i + 0.25);
+		}
+		data.getTextValue("Text").setText("Hallo Welt");
+		data.getUnscaledValue("Danach").set(77);
+		final Data.Array variants = data.getArray("Varianten");
+		variants.setLength(4);
+		for(int i = 0; i < 4; i++) {
+			variants.getItem(i).asUnscaledValue().set(100 + i);
+		}
+		data.getScaledValue("Faktor").set(1.5);
+		return data.createUnmodifiableCopy();
+	}
+
+	@Test
+	public void testReadFixedPositions() throws Exception {
+		final Data data = createReceivedData();
+		assertTrue(data instanceof ByteArrayData);
+
+		final AttributePathHandle length = AttributePathHandle.compile(_attributeGroup, "Länge");
+		assertTrue(length.isOffsetFixed());
+		assertEquals("Länge", length.getPath());
+		assertEquals(25, length.getUnscaledValue(data));
+		assertEquals(12.5, length.getScaledValue(data), 0.0);
+		assertNull(length.getState(data));
+		assertEquals(data.getTextValue("Länge").getText(), length.getText(data));
+
+		final AttributePathHandle time = AttributePathHandle.compile(_attributeGroup, "Zeit");
+		assertTrue(time.isOffsetFixed());
+		assertEquals(TIME, time.getMillis(data));
+		assertEquals(data.getTextValue("Zeit").getText(), time.getText(data));
+
+		final AttributePathHandle object = AttributePathHandle.compile(_attributeGroup, "Objekt");
+		assertTrue(object.isOffsetFixed());
+		assertEquals(_object.getId(), object.getId(data));
+		assertSame(_object, object.getSystemObject(data));
+
+		final AttributePathHandle listValue = AttributePathHandle.compile(_attributeGroup, " Liste . Wert ");
+		assertTrue(listValue.isOffsetFixed());
+		assertEquals(42, listValue.getUnscaledValue(data));
+		assertEquals(data.getItem("Liste").getTextValue("Wert").getText(), listValue.getText(data));
+		assertEquals(1000000, AttributePathHandle.compile(_attributeGroup, "Liste.Zeitpunkt").getMillis(data));
+	}
+
+	@Test
+	public void testReadVariablePositions() throws Exception {
+		final Data data = createReceivedData();
+		for(int i = 0; i < 3; i++) {
+			final AttributePathHandle value = AttributePathHandle.compile(_attributeGroup, "Werte[" + i + "].Wert");
+			assertFalse(value.isOffsetFixed());
+			assertEquals(data.getArray("Werte").getItem(i).getUnscaledValue("Wert").longValue(), value.getUnscaledValue(data));
+			final AttributePathHandle share = AttributePathHandle.compile(_attributeGroup, "Werte[" + i + "].Anteil");
+			assertEquals(i + 0.25, share.getScaledValue(data), 0.0);
+		}
+
+		final AttributePathHandle text = AttributePathHandle.compile(_attributeGroup, "Text");
+		assertEquals("Hallo Welt", text.getText(data));
+
+		final AttributePathHandle after = AttributePathHandle.compile(_attributeGroup, "Danach");
+		assertFalse(after.isOffsetFixed());
+		assertEquals(77, after.getUnscaledValue(data));
+
+		for(int i = 0; i < 4; i++) {
+			assertEquals(100 + i, AttributePathHandle.compile(_attributeGroup, "Varianten[" + i + "]").getUnscaledValue(data));
+		}
+		assertEquals(1.5, AttributePathHandle.compile(_attributeGroup, "Faktor").getScaledValue(data), 0.0);
+	}
+
+	@Test
+	public void testState() throws Exception {
+		final Data data = createDefaultData(_attributeGroup);
+		data.getUnscaledValue("Länge").setState(_stateError);
+		final AttributePathHandle length = AttributePathHandle.compile(_attributeGroup, "Länge");
+		final Data copy = data.createUnmodifiableCopy();
+		assertEquals(-1, length.getUnscaledValue(copy));
+		assertSame(_stateError, length.getState(copy));
+		assertEquals("fehlerhaft", length.getText(copy));
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		final Data data = ModifiableByteArrayListData.create(createDefaultData(_fixedAttributeGroup).createUnmodifiableCopy());
+		final AttributePathHandle length = AttributePathHandle.compile(_fixedAttributeGroup, "Länge");
+		final AttributePathHandle time = AttributePathHandle.compile(_fixedAttributeGroup, "Zeit");
+		final AttributePathHandle object = AttributePathHandle.compile(_fixedAttributeGroup, "Objekt");
+		final AttributePathHandle listValue = AttributePathHandle.compile(_fixedAttributeGroup, "Liste.Wert");
+		final AttributePathHandle listTime = AttributePathHandle.compile(_fixedAttributeGroup, "Liste.Zeitpunkt");
+
+		length.setScaledValue(data, 100.5);
+		assertEquals(201, data.getUnscaledValue("Länge").longValue());
+		length.setUnscaledValue(data, 7);
+		assertEquals(3.5, data.getScaledValue("Länge").doubleValue(), 0.0);
+		time.setMillis(data, TIME);
+		assertEquals(TIME, data.getTimeValue("Zeit").getMillis());
+		listTime.setMillis(data, 5999);
+		assertEquals(5000, data.getItem("Liste").getTimeValue("Zeitpunkt").getMillis());
+		listValue.setUnscaledValue(data, 999);
+		assertEquals(999, data.getItem("Liste").getUnscaledValue("Wert").longValue());
+		object.setSystemObject(data, _object);
+		assertSame(_object, data.getReferenceValue("Objekt").getSystemObject());
+
+		// Änderungen sind auch in der unveränderlichen Kopie sichtbar
+		final Data copy = data.createUnmodifiableCopy();
+		assertEquals(7, length.getUnscaledValue(copy));
+		assertEquals(TIME, time.getMillis(copy));
+		assertEquals(999, listValue.getUnscaledValue(copy));
+		assertSame(_object, object.getSystemObject(copy));
+
+		object.setSystemObject(data, null);
+		assertEquals(0, object.getId(data));
+	}
+
+	@Test
+	public void testStoredPidIsForgotten() throws Exception {
+		final Data data = ModifiableByteArrayListData.create(createDefaultData(_fixedAttributeGroup).createUnmodifiableCopy());
+		data.getReferenceValue("Objekt").setSystemObjectPid("mq.unbekannt");
+		assertEquals("mq.unbekannt", data.getReferenceValue("Objekt").getSystemObjectPid());
+		AttributePathHandle.compile(_fixedAttributeGroup, "Objekt").setSystemObject(data, _object);
+		assertEquals("mq.1", data.getReferenceValue("Objekt").getSystemObjectPid());
+	}
+
+	@Test
+	public void testWriteErrors() throws Exception {
+		final Data received = createReceivedData();
+		final Data data = ModifiableByteArrayListData.create(createDefaultData(_fixedAttributeGroup).createUnmodifiableCopy());
+		final AttributePathHandle length = AttributePathHandle.compile(_attributeGroup, "Länge");
+		try {
+			length.setUnscaledValue(received, 1);
+			fail("Unveränderlicher Datensatz wurde geändert");
+		}
+		catch(UnsupportedOperationException expected) {
+		}
+		try {
+			length.getUnscaledValue(data);
+			fail("Datensatz einer anderen Attributgruppe wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		try {
+			length.getUnscaledValue(createDefaultData(_attributeGroup));
+			fail("Datensatz, der nicht als Byte-Array vorliegt, wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		try {
+			AttributePathHandle.compile(_fixedAttributeGroup, "Zeit").setScaledValue(data, 1);
+			fail("Zeitattribut wurde als Zahl geändert");
+		}
+		catch(UnsupportedOperationException expected) {
+		}
+		try {
+			AttributePathHandle.compile(_fixedAttributeGroup, "Liste.Wert").setUnscaledValue(data, 1L << 40);
+			fail("Zu großer Wert wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		try {
+			AttributePathHandle.compile(_fixedAttributeGroup, "Objekt").setSystemObject(data, _model.object("straße.1", _model.objectType("typ.straße")));
+			fail("Objekt mit falschem Typ wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+	}
+
+	@Test
+	public void testInvalidPaths() throws Exception {
+		final String[] paths = {"Unbekannt", "Liste", "Liste.Unbekannt", "Länge.Wert", "Länge[0]", "Werte.Wert", "Werte[0]", "Werte[x].Wert", "Werte[-1].Wert",
+		                        "Werte[0.Wert", "Varianten"};
+		for(String path : paths) {
+			try {
+				AttributePathHandle.compile(_attributeGroup, path);
+				fail("Ungültiger Pfad wurde akzeptiert: " + path);
+			}
+			catch(IllegalArgumentException expected) {
+			}
+		}
+	}
+}
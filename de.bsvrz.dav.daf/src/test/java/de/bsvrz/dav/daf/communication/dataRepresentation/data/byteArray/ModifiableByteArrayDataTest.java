@@ -0,0 +1,430 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.dav.daf.communication.dataRepresentation.data.byteArray;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeHelper;
+import de.bsvrz.dav.daf.communication.dataRepresentation.TestDataModel;
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft, dass sich {@link ModifiableByteArrayListData} beim Ändern von Werten wie die bisherige Darstellung aus {@link AttributeBaseValueDataFactory}
+ * verhält. Jede Änderung wird auf beide Darstellungen angewendet, danach müssen die serialisierten Datensätze und deren Textdarstellung übereinstimmen.
+ * Änderungen, die bei der bisherigen Darstellung eine Exception auslösen, müssen auch bei der neuen Darstellung eine Exception gleichen Typs auslösen.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class ModifiableByteArrayDataTest {
+
+	private TestDataModel _model;
+
+	private Data _defaultData;
+
+	private IntegerValueState _stateOn;
+
+	private IntegerValueState _stateError;
+
+	private SystemObject _object;
+
+	private SystemObject _otherTypeObject;
+
+	/** Änderung, die auf beide Darstellungen angewendet wird. */
+	private interface Modification {
+
+		void apply(Data data);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		_model = new TestDataModel();
+		final SystemObjectType objectType = _model.objectType("typ.messQuerschnitt");
+		final SystemObjectType otherType = _model.objectType("typ.straße");
+		_object = _model.object("mq.1", objectType);
+		_otherTypeObject = _model.object("straße.1", otherType);
+		_stateOn = _model.state("ein", 1);
+		_stateError = _model.state("fehlerhaft", -1);
+
+		final IntegerAttributeType speedType = _model.integerType(
+				"att.geschwindigkeit", IntegerAttributeType.INT, null, _model.range(0, 3000, 0.1, "km/h"), _stateError, _model.state("nicht ermittelbar", -2)
+		);
+		final IntegerAttributeType switchType = _model.integerType("att.schalter", IntegerAttributeType.BYTE, "aus", null, _model.state("aus", 0), _stateOn);
+		final IntegerAttributeType countType = _model.integerType("att.anzahl", IntegerAttributeType.SHORT, "5", _model.range(0, 1000, 1, ""));
+		final IntegerAttributeType longType = _model.integerType("att.zähler", IntegerAttributeType.LONG, null, _model.range(-100, 1L << 40, 1000, "m"));
+		final AttributeListDefinition listType = _model.listType(
+				"atl.messwert",
+				_model.attribute("Wert", speedType),
+				_model.attribute("Zeitpunkt", _model.timeType("att.zeitpunkt", false, TimeAttributeType.MILLISECONDS))
+		);
+		final AttributeGroup attributeGroup = _model.attributeGroup(
+				"atg.test",
+				_model.attribute("Geschwindigkeit", speedType),
+				_model.attribute("Schalter", switchType),
+				_model.attribute("Anzahl", countType),
+				_model.attribute("Zähler", longType),
+				_model.attribute("Anteil", _model.doubleType("att.anteil", DoubleAttributeType.DOUBLE, "2")),
+				_model.attribute("Faktor", _model.doubleType("att.faktor", DoubleAttributeType.FLOAT, "1")),
+				_model.attribute("ZeitMs", _model.timeType("att.zeitMs", false, TimeAttributeType.MILLISECONDS)),
+				_model.attribute("ZeitS", _model.timeType("att.zeitS", false, TimeAttributeType.SECONDS)),
+				_model.attribute("DauerMs", _model.timeType("att.dauerMs", true, TimeAttributeType.MILLISECONDS)),
+				_model.attribute("DauerS", _model.timeType("att.dauerS", true, TimeAttributeType.SECONDS)),
+				_model.attribute("Objekt", _model.referenceType("att.mq", objectType, ReferenceType.ASSOCIATION, true)),
+				_model.attribute("Pflichtobjekt", _model.referenceType("att.mqPflicht", objectType, ReferenceType.AGGREGATION, false)),
+				_model.attribute("Messwert", listType)
+		);
+
+		final Data data = AttributeBaseValueDataFactory.createAdapter(attributeGroup, AttributeHelper.getAttributesValues(attributeGroup));
+		data.setToDefault();
+		_defaultData = data.createUnmodifiableCopy();
+		assertTrue("Attributgruppe muss unterstützt werden", ModifiableByteArrayListData.isSupported(_defaultData));
+	}
+
+	private static byte[] getBytes(final Data data) {
+		return ((ByteArrayData)data.createUnmodifiableCopy()).getBytes();
+	}
+
+	private void assertEquivalent(final Modification... modifications) {
+		final Data oldData = _defaultData.createModifiableCopy();
+		final Data newData = ModifiableByteArrayListData.create(_defaultData);
+		assertFalse(oldData instanceof ByteArrayData);
+		for(int i = 0; i < modifications.length; i++) {
+			final Class<?> oldException = apply(modifications[i], oldData);
+			final Class<?> newException = apply(modifications[i], newData);
+			assertEquals("Exception bei Änderung " + i, oldException, newException);
+			assertArrayEquals("Serialisierung nach Änderung " + i, getBytes(oldData), getBytes(newData));
+		}
+		assertEquals(oldData.toString(), newData.toString());
+		assertEquals(oldData.createUnmodifiableCopy().toString(), newData.createUnmodifiableCopy().toString());
+	}
+
+	private static Class<?> apply(final Modification modification, final Data data) {
+		try {
+			modification.apply(data);
+			return null;
+		}
+		catch(RuntimeException e) {
+			return e.getClass();
+		}
+	}
+
+	@Test
+	public void testDefaultValues() throws Exception {
+		assertEquivalent();
+		final Data data = ModifiableByteArrayListData.create(_defaultData);
+		assertArrayEquals(getBytes(_defaultData), getBytes(data));
+		assertEquals("aus", data.getTextValue("Schalter").getText());
+		assertEquals(5, data.getUnscaledValue("Anzahl").intValue());
+		assertEquals(2.0, data.getScaledValue("Anteil").doubleValue(), 0.0);
+	}
+
+	@Test
+	public void testScaledValues() throws Exception {
+		assertEquivalent(
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Geschwindigkeit").set(123.4);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Geschwindigkeit").set(12.35);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Geschwindigkeit").set(99);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Geschwindigkeit").set(2999);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTextValue("Geschwindigkeit").setText("45,6 km/h");
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Zähler").set(1234567.0);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Zähler").set(-100);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Anteil").set(0.125);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Faktor").set(2.5f);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Anzahl").set(1000);
+					}
+				}
+		);
+	}
+
+	@Test
+	public void testStates() throws Exception {
+		assertEquivalent(
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTextValue("Schalter").setText("ein");
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Geschwindigkeit").setState(_stateError);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Schalter").setText("aus");
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Schalter").setState(_stateOn);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTextValue("Geschwindigkeit").setText("nicht ermittelbar");
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getItem("Messwert").getUnscaledValue("Wert").setText("fehlerhaft");
+					}
+				}
+		);
+	}
+
+	@Test
+	public void testTimes() throws Exception {
+		assertEquivalent(
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTimeValue("ZeitMs").setMillis(1234567890123L);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTimeValue("ZeitS").setMillis(1234567890999L);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTimeValue("ZeitS").setSeconds(1234567890L);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTimeValue("DauerMs").setMillis(-1500);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTimeValue("DauerS").setMillis(61999);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTimeValue("DauerS").setSeconds(3600);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getItem("Messwert").getTimeValue("Zeitpunkt").setMillis(1000L);
+					}
+				}
+		);
+	}
+
+	@Test
+	public void testReferences() throws Exception {
+		assertEquivalent(
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Objekt").setSystemObject(_object);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Pflichtobjekt").setSystemObject(_object);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Objekt").setSystemObject(null);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Objekt").setSystemObjectPid("mq.1");
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Objekt").setSystemObjectPid("mq.unbekannt");
+						assertEquals("mq.unbekannt", data.getReferenceValue("Objekt").getSystemObjectPid());
+					}
+				}
+		);
+		final Data data = ModifiableByteArrayListData.create(_defaultData);
+		data.getReferenceValue("Objekt").setSystemObject(_object);
+		assertSame(_object, data.getReferenceValue("Objekt").getSystemObject());
+		assertEquals(_object.getId(), data.getReferenceValue("Objekt").getId());
+	}
+
+	@Test
+	public void testSetToDefault() throws Exception {
+		assertEquivalent(
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Geschwindigkeit").set(10);
+						data.getUnscaledValue("Anzahl").set(7);
+						data.getTextValue("Schalter").setText("ein");
+						data.getItem("Messwert").getScaledValue("Wert").set(20);
+						data.getReferenceValue("Objekt").setSystemObjectPid("mq.unbekannt");
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getItem("Messwert").setToDefault();
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getItem("Anzahl").setToDefault();
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.setToDefault();
+						assertEquals("undefiniert", data.getReferenceValue("Objekt").getValueText());
+					}
+				}
+		);
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		assertEquivalent(
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Geschwindigkeit").set(300.1);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Anzahl").set(1001);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Anzahl").set(-1);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTextValue("Schalter").setText("vielleicht");
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getUnscaledValue("Schalter").set(2);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getScaledValue("Schalter").set(0.5);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getTimeValue("DauerS").setSeconds(1L << 40);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Objekt").setSystemObject(_otherTypeObject);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Pflichtobjekt").setSystemObject(null);
+					}
+				},
+				new Modification() {
+					public void apply(final Data data) {
+						data.getReferenceValue("Pflichtobjekt").setSystemObjectPid("mq.unbekannt");
+					}
+				}
+		);
+
+		// Zahlen außerhalb des Wertebereichs werden wie bisher ohne Exception gespeichert und gelten dann als undefiniert
+		final Data data = ModifiableByteArrayListData.create(_defaultData);
+		data.getUnscaledValue("Anzahl").set(1001);
+		assertFalse(data.getItem("Anzahl").isDefined());
+		try {
+			data.getTextValue("Schalter").setText("vielleicht");
+			fail("Unbekannter Zustand wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		try {
+			data.getTimeValue("DauerS").setSeconds(1L << 40);
+			fail("Zu große relative Zeit wurde akzeptiert");
+		}
+		catch(RuntimeException expected) {
+		}
+		try {
+			data.getReferenceValue("Objekt").setSystemObject(_otherTypeObject);
+			fail("Objekt mit falschem Typ wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		assertEquals("aus", data.getTextValue("Schalter").getText());
+		assertEquals("undefiniert", data.getReferenceValue("Objekt").getValueText());
+	}
+}
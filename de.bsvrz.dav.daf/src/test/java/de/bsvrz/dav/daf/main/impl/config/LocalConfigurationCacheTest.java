@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.dav.daf.main.impl.config;
+
+import de.bsvrz.dav.daf.main.Data;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet das Speichern, Anhängen und Neuschreiben der lokalen Konfigurationsdatei mit {@link LocalConfigurationCache}.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class LocalConfigurationCacheTest {
+
+	private static final long AREA_ID = 100;
+
+	private File _directory;
+
+	private File _file;
+
+	@Before
+	public void setUp() throws Exception {
+		_directory = Files.createTempDirectory("LocalConfigurationCacheTest").toFile();
+		_file = new File(_directory, "test.configcache");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		final File[] files = _directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	private static Map<Long, LocalConfigurationCache.AreaVersion> areaVersions(final short activeVersion) {
+		final Map<Long, LocalConfigurationCache.AreaVersion> areaVersions = new HashMap<Long, LocalConfigurationCache.AreaVersion>();
+		areaVersions.put(AREA_ID, new LocalConfigurationCache.AreaVersion("kb.test", activeVersion, 1, 2, 3));
+		return areaVersions;
+	}
+
+	private static DafSystemObject createObject(final long id) {
+		return new DafConfigurationObject(
+				id, "objekt." + id, "Objekt " + id, 1, DafSystemObject.OBJECT_EXISTS, null, null, (short)1, (short)0, AREA_ID, new long[0]
+		);
+	}
+
+	private static List<DafSystemObject> createObjects(final long... ids) {
+		final List<DafSystemObject> objects = new ArrayList<DafSystemObject>();
+		for(long id : ids) {
+			objects.add(createObject(id));
+		}
+		return objects;
+	}
+
+	private static Set<Long> ids(final long... ids) {
+		final Set<Long> result = new HashSet<Long>();
+		for(long id : ids) {
+			result.add(id);
+		}
+		return result;
+	}
+
+	private void save(
+			final Map<Long, LocalConfigurationCache.AreaVersion> areaVersions,
+			final List<DafSystemObject> objects,
+			final Set<Long> handledIds,
+			final LocalConfigurationCache previous) throws IOException {
+		LocalConfigurationCache.save(_file, areaVersions, objects, handledIds, new HashMap<DafDataModel.ConfigDataKey, Data>(), previous);
+	}
+
+	private static void assertObject(final LocalConfigurationCache cache, final long id) throws IOException {
+		assertEquals(id, cache.getObjectId("objekt." + id));
+		final DafSystemObject object = cache.readObject(id, null);
+		assertNotNull(object);
+		assertEquals(id, object.getId());
+		assertEquals("objekt." + id, object.getPid());
+		assertEquals("Objekt " + id, object.getName());
+		assertEquals(AREA_ID, object.getConfigurationAreaId());
+	}
+
+	@Test
+	public void testSaveAndOpen() throws Exception {
+		save(areaVersions((short)1), createObjects(1, 2), ids(1, 2), null);
+		assertFalse(new File(_file.getPath() + ".tmp").exists());
+
+		final LocalConfigurationCache cache = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		try {
+			assertEquals(1, cache.getAcceptedAreas());
+			assertEquals(2, cache.getAcceptedObjects());
+			assertObject(cache, 1);
+			assertObject(cache, 2);
+			assertNull(cache.readObject(3, null));
+			assertEquals(0, cache.getObjectId("objekt.3"));
+		}
+		finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void testAppend() throws Exception {
+		save(areaVersions((short)1), createObjects(1, 2), ids(1, 2), null);
+		final byte[] before = Files.readAllBytes(_file.toPath());
+
+		final LocalConfigurationCache previous = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		save(areaVersions((short)1), createObjects(1, 2, 3), ids(1, 2, 3), previous);
+
+		// Die vorhandenen Einträge bleiben unverändert, das neue Objekt wird angehängt
+		final byte[] after = Files.readAllBytes(_file.toPath());
+		assertTrue(after.length > before.length);
+		assertArrayEquals(before, Arrays.copyOf(after, before.length));
+
+		final LocalConfigurationCache cache = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		try {
+			assertEquals(3, cache.getAcceptedObjects());
+			assertObject(cache, 1);
+			assertObject(cache, 2);
+			assertObject(cache, 3);
+		}
+		finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void testRewriteKeepsUnusedRecords() throws Exception {
+		save(areaVersions((short)1), createObjects(1, 2), ids(1, 2), null);
+
+		// Der Bereich wurde aktiviert, nicht benutzte Objekte werden aus der beim Start eingeblendeten Datei übernommen
+		final LocalConfigurationCache previous = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		save(areaVersions((short)2), createObjects(3), ids(3), previous);
+		assertFalse(new File(_file.getPath() + ".tmp").exists());
+
+		// Die beim Start eingeblendete Datei wurde beim Speichern geschlossen
+		try {
+			previous.readObject(1, null);
+			fail("IOException erwartet");
+		}
+		catch(IOException ignored) {
+		}
+
+		LocalConfigurationCache cache = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		try {
+			assertEquals(1, cache.getIgnoredAreas());
+			assertEquals(0, cache.getAcceptedObjects());
+		}
+		finally {
+			cache.close();
+		}
+		cache = LocalConfigurationCache.open(_file, areaVersions((short)2));
+		try {
+			assertEquals(3, cache.getAcceptedObjects());
+			assertObject(cache, 1);
+			assertObject(cache, 2);
+			assertObject(cache, 3);
+		}
+		finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void testIncompleteRecordIsDiscarded() throws Exception {
+		save(areaVersions((short)1), createObjects(1), ids(1), null);
+
+		// Unvollständiger Eintrag am Dateiende, z.B. nach einem Absturz beim Anhängen
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(_file, "rw");
+		try {
+			randomAccessFile.seek(randomAccessFile.length());
+			randomAccessFile.writeByte(1);
+			randomAccessFile.writeInt(1000);
+			randomAccessFile.writeLong(4711);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+
+		LocalConfigurationCache cache = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		try {
+			assertEquals(1, cache.getAcceptedObjects());
+		}
+		finally {
+			cache.close();
+		}
+
+		save(areaVersions((short)1), createObjects(1, 2), ids(1, 2), null);
+
+		cache = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		try {
+			assertEquals(2, cache.getAcceptedObjects());
+			assertObject(cache, 1);
+			assertObject(cache, 2);
+		}
+		finally {
+			cache.close();
+		}
+		// Nach dem Neuschreiben endet die Datei mit einem vollständigen Eintrag, so dass wieder angehängt werden kann
+		final long length = _file.length();
+		save(areaVersions((short)1), createObjects(1, 2, 3), ids(1, 2, 3), null);
+		final byte[] after = Files.readAllBytes(_file.toPath());
+		assertTrue(after.length > length);
+		cache = LocalConfigurationCache.open(_file, areaVersions((short)1));
+		try {
+			assertEquals(3, cache.getAcceptedObjects());
+			assertObject(cache, 3);
+		}
+		finally {
+			cache.close();
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.dav.daf.util.fileBackedQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet das Schreiben, den Wechsel der Segmente und das Wiederherstellen der {@link SegmentedFileQueue} nach einem Absturz.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class SegmentedFileQueueTest {
+
+	/** Segmentgröße, bei der 5 Elemente der {@link IntQueueSerializer Integer-Queue} in ein Segment passen */
+	private static final int SEGMENT_SIZE = 64;
+
+	/** Größe eines Datensatzes der Integer-Queue (Länge, Prüfsumme und Wert) */
+	private static final int INT_RECORD_SIZE = 12;
+
+	private File _directory;
+
+	@Before
+	public void setUp() throws Exception {
+		_directory = Files.createTempDirectory("SegmentedFileQueueTest").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		final File[] files = _directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	private SegmentedFileQueue<Integer> openIntQueue() throws Exception {
+		return new SegmentedFileQueue<Integer>(_directory, 1024 * 1024, new IntQueueSerializer(), SEGMENT_SIZE);
+	}
+
+	private File segmentFile(final long number) {
+		return new File(_directory, String.format("segment_%010d.fbq", number));
+	}
+
+	private int countSegmentFiles() {
+		int count = 0;
+		for(final String name : _directory.list()) {
+			if(name.startsWith("segment_")) count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void testWriteAndReopen() throws Exception {
+		SegmentedFileQueue<Integer> queue = openIntQueue();
+		for(int i = 0; i < 4; i++) {
+			assertTrue(queue.offer(i));
+		}
+		assertEquals(Integer.valueOf(0), queue.poll());
+		assertEquals(3, queue.size());
+		assertEquals(3 * INT_RECORD_SIZE, queue.getDiskUsed());
+		queue.close();
+
+		queue = openIntQueue();
+		assertEquals(3, queue.size());
+		assertEquals(3 * INT_RECORD_SIZE, queue.getDiskUsed());
+		assertTrue(queue.offer(4));
+		for(int i = 1; i <= 4; i++) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertNull(queue.poll());
+		queue.close();
+	}
+
+	@Test
+	public void testSegmentRollover() throws Exception {
+		SegmentedFileQueue<Integer> queue = openIntQueue();
+		for(int i = 0; i < 23; i++) {
+			assertTrue(queue.offer(i));
+		}
+		// 5 Elemente je Segment
+		assertEquals(5, countSegmentFiles());
+		final List<Integer> expected = new ArrayList<Integer>();
+		for(int i = 0; i < 23; i++) {
+			expected.add(i);
+		}
+		assertEquals(expected, new ArrayList<Integer>(queue));
+
+		// Vollständig gelesene Segmente werden gelöscht
+		for(int i = 0; i < 12; i++) {
+			assertEquals(Integer.valueOf(i), queue.take());
+		}
+		assertFalse(segmentFile(0).exists());
+		assertFalse(segmentFile(1).exists());
+		assertEquals(3, countSegmentFiles());
+		queue.close();
+
+		// Die Position in einem mittleren Segment bleibt über das Schließen hinweg erhalten
+		queue = openIntQueue();
+		assertEquals(11, queue.size());
+		final List<Integer> drained = new ArrayList<Integer>();
+		assertEquals(11, queue.drainTo(drained));
+		assertEquals(expected.subList(12, 23), drained);
+		assertTrue(queue.isEmpty());
+		assertEquals(1, countSegmentFiles());
+		queue.close();
+	}
+
+	@Test
+	public void testConcurrentProducerAndConsumer() throws Exception {
+		final SegmentedFileQueue<Integer> queue = new SegmentedFileQueue<Integer>(_directory, 50 * INT_RECORD_SIZE, new IntQueueSerializer(), SEGMENT_SIZE);
+		final int count = 20000;
+		final Throwable[] producerError = new Throwable[1];
+		// Der Erzeuger wechselt ständig das Segment, während der Verbraucher noch aus dem vorherigen Segment liest
+		final Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for(int i = 0; i < count; i++) {
+						queue.put(i);
+					}
+				}
+				catch(Throwable e) {
+					producerError[0] = e;
+				}
+			}
+		};
+		producer.start();
+		for(int i = 0; i < count; i++) {
+			assertEquals(Integer.valueOf(i), queue.take());
+		}
+		producer.join();
+		assertNull(producerError[0]);
+		assertTrue(queue.isEmpty());
+		queue.close();
+	}
+
+	@Test
+	public void testElementLargerThanSegment() throws Exception {
+		final StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < 100; i++) {
+			builder.append((char)('a' + i % 26));
+		}
+		final String large = builder.toString();
+		SegmentedFileQueue<String> queue = new SegmentedFileQueue<String>(_directory, 1024 * 1024, new StringQueueSerializer(), SEGMENT_SIZE);
+		queue.offer("vorher");
+		queue.offer(large);
+		queue.offer("nachher");
+		queue.close();
+
+		queue = new SegmentedFileQueue<String>(_directory, 1024 * 1024, new StringQueueSerializer(), SEGMENT_SIZE);
+		assertEquals("vorher", queue.poll());
+		assertEquals(large, queue.poll());
+		assertEquals("nachher", queue.poll());
+		assertNull(queue.poll());
+		queue.close();
+	}
+
+	@Test
+	public void testTruncatedRecordIsDiscarded() throws Exception {
+		SegmentedFileQueue<Integer> queue = openIntQueue();
+		for(int i = 0; i < 8; i++) {
+			queue.offer(i);
+		}
+		queue.close();
+
+		// Absturz während des Schreibens des letzten Elements: Die Datei endet mitten im Datensatz
+		final RandomAccessFile file = new RandomAccessFile(segmentFile(1), "rw");
+		try {
+			file.setLength(2 * INT_RECORD_SIZE + 5);
+		}
+		finally {
+			file.close();
+		}
+
+		queue = openIntQueue();
+		assertEquals(7, queue.size());
+		assertTrue(queue.offer(100));
+		for(int i = 0; i < 7; i++) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertEquals(Integer.valueOf(100), queue.poll());
+		assertNull(queue.poll());
+		queue.close();
+	}
+
+	@Test
+	public void testCorruptRecordIsDiscarded() throws Exception {
+		SegmentedFileQueue<Integer> queue = openIntQueue();
+		for(int i = 0; i < 3; i++) {
+			queue.offer(i);
+		}
+		queue.close();
+
+		// Absturz nach dem Schreiben der Länge, aber vor dem Schreiben der Daten: Die Prüfsumme passt nicht zu den Daten
+		final RandomAccessFile file = new RandomAccessFile(segmentFile(0), "rw");
+		try {
+			file.seek(3 * INT_RECORD_SIZE);
+			file.writeInt(INT_RECORD_SIZE);
+			file.writeInt(12345);
+			file.writeInt(3);
+			// Ein folgendes Segment ist nach einem unvollständigen Datensatz ungültig
+			new RandomAccessFile(segmentFile(1), "rw").close();
+		}
+		finally {
+			file.close();
+		}
+
+		queue = openIntQueue();
+		assertEquals(3, queue.size());
+		assertFalse(segmentFile(1).exists());
+		assertTrue(queue.offer(3));
+		queue.close();
+
+		queue = openIntQueue();
+		for(int i = 0; i < 4; i++) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertNull(queue.poll());
+		queue.close();
+	}
+
+	@Test
+	public void testAccessAfterClose() throws Exception {
+		final SegmentedFileQueue<Integer> queue = openIntQueue();
+		queue.offer(1);
+		queue.close();
+		try {
+			queue.offer(2);
+			fail("offer() nach close() muss fehlschlagen");
+		}
+		catch(IllegalStateException ignored) {
+		}
+		try {
+			queue.poll();
+			fail("poll() nach close() muss fehlschlagen");
+		}
+		catch(IllegalStateException ignored) {
+		}
+	}
+}
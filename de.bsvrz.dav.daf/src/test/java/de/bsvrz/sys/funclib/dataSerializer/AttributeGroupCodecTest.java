@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.sys.funclib.dataSerializer;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeHelper;
+import de.bsvrz.dav.daf.communication.dataRepresentation.TestDataModel;
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft, dass die vorübersetzte Serialisierung mit {@link AttributeGroupCodec} dasselbe Format erzeugt und liest wie die rekursive Implementierung in {@link
+ * SerializerImplementationA} bzw. {@link DeserializerImplementationA}. Die rekursive Implementierung wird benutzt, indem die Attribute eines Datensatzes
+ * einzeln geschrieben bzw. gelesen werden, da nur vollständige Datensätze über den {@link AttributeGroupCodec} verarbeitet werden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class AttributeGroupCodecTest {
+
+	private TestDataModel _model;
+
+	private SystemObject _object;
+
+	private SystemObject _otherObject;
+
+	private IntegerValueState _stateError;
+
+	private AttributeGroup _attributeGroup;
+
+	@Before
+	public void setUp() throws Exception {
+		_model = new TestDataModel();
+		final SystemObjectType objectType = _model.objectType("typ.messQuerschnitt");
+		_object = _model.object("mq.1", objectType);
+		_otherObject = _model.object("mq.2", objectType);
+		_stateError = _model.state("fehlerhaft", -1);
+		final IntegerAttributeType byteType = _model.integerType("att.byte", IntegerAttributeType.BYTE, "0", _model.range(-100, 100, 1, ""), _stateError);
+		final IntegerAttributeType shortType = _model.integerType("att.short", IntegerAttributeType.SHORT, "0", _model.range(-30000, 30000, 0.01, "%"));
+		final IntegerAttributeType intType = _model.integerType("att.int", IntegerAttributeType.INT, "0", _model.range(0, 2000000000, 0.1, "km/h"));
+		final IntegerAttributeType longType = _model.integerType("att.long", IntegerAttributeType.LONG, "0", _model.range(-(1L << 50), 1L << 50, 1000, "m"));
+		final ReferenceAttributeType association = _model.referenceType("att.mq", objectType, ReferenceType.ASSOCIATION, true);
+		final ReferenceAttributeType aggregation = _model.referenceType("att.mqAggregation", objectType, ReferenceType.AGGREGATION, true);
+		final StringAttributeType shortString = _model.stringType("att.kurz", 20);
+		final StringAttributeType mediumString = _model.stringType("att.mittel", 300);
+		final StringAttributeType longString = _model.stringType("att.lang", 0);
+		final AttributeListDefinition itemType = _model.listType(
+				"atl.element",
+				_model.attribute("Wert", shortType),
+				_model.attribute("Objekt", association),
+				_model.attribute("Namen", shortString, 5, true, null)
+		);
+		final AttributeListDefinition nestedType = _model.listType(
+				"atl.verschachtelt",
+				_model.attribute("Zeitpunkt", _model.timeType("att.zeitpunkt", false, TimeAttributeType.SECONDS)),
+				_model.attribute("Elemente", itemType, 2, false, null)
+		);
+		_attributeGroup = _model.attributeGroup(
+				"atg.codec",
+				_model.attribute("Byte", byteType),
+				_model.attribute("Short", shortType),
+				_model.attribute("Int", intType),
+				_model.attribute("Long", longType),
+				_model.attribute("Float", _model.doubleType("att.float", DoubleAttributeType.FLOAT, "0")),
+				_model.attribute("Double", _model.doubleType("att.double", DoubleAttributeType.DOUBLE, "0")),
+				_model.attribute("ZeitMs", _model.timeType("att.zeitMs", false, TimeAttributeType.MILLISECONDS)),
+				_model.attribute("ZeitS", _model.timeType("att.zeitS", false, TimeAttributeType.SECONDS)),
+				_model.attribute("DauerMs", _model.timeType("att.dauerMs", true, TimeAttributeType.MILLISECONDS)),
+				_model.attribute("DauerS", _model.timeType("att.dauerS", true, TimeAttributeType.SECONDS)),
+				_model.attribute("Assoziation", association),
+				_model.attribute("Aggregation", aggregation),
+				_model.attribute("TextKurz", shortString),
+				_model.attribute("TextMittel", mediumString),
+				_model.attribute("TextLang", longString),
+				_model.attribute("Liste", nestedType),
+				_model.attribute("Elemente", itemType, 3, false, null),
+				_model.attribute("Zahlen", intType, 300, true, null),
+				_model.attribute("Texte", longString, 0, true, null),
+				_model.attribute("Objekte", aggregation, 10, true, null),
+				_model.attribute("Zustände", byteType, 4, false, null)
+		);
+	}
+
+	private Data createDefaultData() {
+		final Data data = AttributeBaseValueDataFactory.createAdapter(_attributeGroup, AttributeHelper.getAttributesValues(_attributeGroup));
+		data.setToDefault();
+		return data;
+	}
+
+	private static String repeat(final String text, final int count) {
+		final StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < count; i++) {
+			builder.append(text);
+		}
+		return builder.toString();
+	}
+
+	private static void fillItem(final Data item, final int i, final SystemObject object) {
+		item.getScaledValue("Wert").set(i * 1.25);
+		item.getReferenceValue("Objekt").setSystemObject(object);
+		final Data.Array names = item.getArray("Namen");
+		names.setLength(i);
+		for(int j = 0; j < i; j++) {
+			names.getItem(j).asTextValue().setText("Name " + i + "." + j);
+		}
+	}
+
+	private Data createData() {
+		final Data data = createDefaultData();
+		data.getUnscaledValue("Byte").setState(_stateError);
+		data.getScaledValue("Short").set(-123.45);
+		data.getScaledValue("Int").set(98765.4);
+		data.getUnscaledValue("Long").set(-(1L << 40));
+		data.getScaledValue("Float").set(3.25f);
+		data.getScaledValue("Double").set(Math.PI);
+		data.getTimeValue("ZeitMs").setMillis(1234567890123L);
+		data.getTimeValue("ZeitS").setSeconds(1234567890L);
+		data.getTimeValue("DauerMs").setMillis(-1500);
+		data.getTimeValue("DauerS").setSeconds(86400);
+		data.getReferenceValue("Assoziation").setSystemObject(_object);
+		data.getReferenceValue("Aggregation").setSystemObject(_otherObject);
+		data.getTextValue("TextKurz").setText("Straße");
+		data.getTextValue("TextMittel").setText(repeat("äöü", 90));
+		data.getTextValue("TextLang").setText(repeat("x", 5000));
+		data.getItem("Liste").getTimeValue("Zeitpunkt").setSeconds(42);
+		for(int i = 0; i < 2; i++) {
+			fillItem(data.getItem("Liste").getArray("Elemente").getItem(i), i + 1, _object);
+		}
+		final Data.Array items = data.getArray("Elemente");
+		for(int i = 0; i < 3; i++) {
+			fillItem(items.getItem(i), i, i == 1 ? null : _otherObject);
+		}
+		final Data.Array numbers = data.getArray("Zahlen");
+		numbers.setLength(260);
+		for(int i = 0; i < 260; i++) {
+			numbers.getItem(i).asUnscaledValue().set(i * 1000);
+		}
+		final Data.Array texts = data.getArray("Texte");
+		texts.setLength(3);
+		texts.getItem(0).asTextValue().setText("");
+		texts.getItem(1).asTextValue().setText("zwei");
+		texts.getItem(2).asTextValue().setText(repeat("drei ", 100));
+		final Data.Array objects = data.getArray("Objekte");
+		objects.setLength(2);
+		objects.getItem(0).asReferenceValue().setSystemObject(_object);
+		objects.getItem(1).asReferenceValue().setSystemObject(null);
+		final Data.Array states = data.getArray("Zustände");
+		for(int i = 0; i < 4; i++) {
+			states.getItem(i).asUnscaledValue().set(i - 1);
+		}
+		return data;
+	}
+
+	private static byte[] writeWithCodec(final int version, final Data data) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		SerializingFactory.createSerializer(version, out).writeData(data);
+		return out.toByteArray();
+	}
+
+	private static byte[] writeRecursive(final int version, final Data data) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Serializer serializer = SerializingFactory.createSerializer(version, out);
+		for(Iterator<Data> iterator = data.iterator(); iterator.hasNext(); ) {
+			serializer.writeData(iterator.next());
+		}
+		return out.toByteArray();
+	}
+
+	private Data readWithCodec(final int version, final byte[] bytes) throws Exception {
+		return SerializingFactory.createDeserializer(version, new ByteArrayInputStream(bytes)).readData(_attributeGroup, _model.getDataModel());
+	}
+
+	private Data readRecursive(final int version, final byte[] bytes) throws Exception {
+		final Deserializer deserializer = SerializingFactory.createDeserializer(version, new ByteArrayInputStream(bytes));
+		final Data data = createDefaultData();
+		for(Iterator<Data> iterator = data.iterator(); iterator.hasNext(); ) {
+			deserializer.readData(iterator.next(), _model.getDataModel());
+		}
+		return data;
+	}
+
+	private void assertEquivalent(final Data data) throws Exception {
+		for(int version = 2; version <= 3; version++) {
+			final byte[] expected = writeRecursive(version, data);
+			assertArrayEquals("Serialisierung Version " + version, expected, writeWithCodec(version, data));
+
+			final Data recursive = readRecursive(version, expected);
+			final Data codec = readWithCodec(version, expected);
+			assertEquals("Deserialisierung Version " + version, recursive.toString(), codec.toString());
+			assertArrayEquals("Erneute Serialisierung Version " + version, expected, writeWithCodec(version, codec));
+			assertArrayEquals("Erneute Serialisierung Version " + version, expected, writeRecursive(version, codec));
+		}
+	}
+
+	@Test
+	public void testModifiableData() throws Exception {
+		final Data data = createData();
+		assertTrue(data instanceof AttributeBaseValueDataFactory.AttributeGroupAdapter);
+		assertEquivalent(data);
+	}
+
+	@Test
+	public void testReceivedData() throws Exception {
+		assertEquivalent(createData().createUnmodifiableCopy());
+	}
+
+	@Test
+	public void testDefaultData() throws Exception {
+		assertEquivalent(createDefaultData());
+		assertEquivalent(createDefaultData().createUnmodifiableCopy());
+	}
+
+	@Test
+	public void testValues() throws Exception {
+		final Data data = readWithCodec(3, writeWithCodec(3, createData()));
+		assertSame(_stateError, data.getUnscaledValue("Byte").getState());
+		assertEquals(-123.45, data.getScaledValue("Short").doubleValue(), 1e-9);
+		assertEquals(-(1L << 40), data.getUnscaledValue("Long").longValue());
+		assertEquals(3.25, data.getScaledValue("Float").doubleValue(), 0.0);
+		assertEquals(Math.PI, data.getScaledValue("Double").doubleValue(), 0.0);
+		assertEquals(1234567890123L, data.getTimeValue("ZeitMs").getMillis());
+		assertEquals(-1500, data.getTimeValue("DauerMs").getMillis());
+		assertSame(_object, data.getReferenceValue("Assoziation").getSystemObject());
+		assertSame(_otherObject, data.getReferenceValue("Aggregation").getSystemObject());
+		assertEquals("Straße", data.getTextValue("TextKurz").getText());
+		assertEquals(repeat("x", 5000), data.getTextValue("TextLang").getText());
+		assertEquals(2, data.getItem("Liste").getArray("Elemente").getItem(1).getArray("Namen").getLength());
+		assertNull(data.getArray("Elemente").getItem(1).getReferenceValue("Objekt").getSystemObject());
+		assertEquals(259000, data.getArray("Zahlen").getItem(259).asUnscaledValue().longValue());
+		assertEquals(repeat("drei ", 100), data.getArray("Texte").getItem(2).asTextValue().getText());
+		assertNull(data.getArray("Objekte").getItem(1).asReferenceValue().getSystemObject());
+	}
+
+	@Test
+	public void testUnresolvedPid() throws Exception {
+		final Data data = createData();
+		data.getReferenceValue("Assoziation").setSystemObjectPid("mq.unbekannt");
+		assertEquivalent(data);
+		final byte[] bytes = writeWithCodec(3, data);
+		assertArrayEquals(writeRecursive(3, data), bytes);
+		// Die Pid der nicht auflösbaren Referenz bleibt beim Lesen erhalten
+		assertEquals("mq.unbekannt", readWithCodec(3, bytes).getReferenceValue("Assoziation").getSystemObjectPid());
+		assertEquals("mq.unbekannt", readRecursive(3, bytes).getReferenceValue("Assoziation").getSystemObjectPid());
+	}
+
+	@Test
+	public void testTruncatedInput() throws Exception {
+		final byte[] bytes = writeWithCodec(3, createData());
+		final byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		try {
+			readWithCodec(3, truncated);
+			fail("Unvollständiger Datensatz wurde gelesen");
+		}
+		catch(EOFException expected) {
+		}
+	}
+}
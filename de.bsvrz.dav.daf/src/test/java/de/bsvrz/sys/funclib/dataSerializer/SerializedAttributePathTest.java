@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.sys.funclib.dataSerializer;
+
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeBaseValueDataFactory;
+import de.bsvrz.dav.daf.communication.dataRepresentation.AttributeHelper;
+import de.bsvrz.dav.daf.communication.dataRepresentation.TestDataModel;
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.config.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet den Zugriff auf Attribute von serialisierten Datensätzen über {@link SerializedAttributePath} für die Versionen 2 und 3 der Serialisierung. Geänderte
+ * Datensätze werden zur Kontrolle mit dem {@link Deserializer} gelesen.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class SerializedAttributePathTest {
+
+	private static final long TIME = 1234567890123L;
+
+	/** Anzahl Bytes, die vor dem serialisierten Datensatz stehen, um die Angabe der Position im Byte-Array zu prüfen */
+	private static final int PREFIX = 5;
+
+	private TestDataModel _model;
+
+	private SystemObject _object;
+
+	private AttributeGroup _attributeGroup;
+
+	@Before
+	public void setUp() throws Exception {
+		_model = new TestDataModel();
+		final SystemObjectType objectType = _model.objectType("typ.messQuerschnitt");
+		_object = _model.object("mq.1", objectType);
+		final IntegerAttributeType lengthType = _model.integerType("att.länge", IntegerAttributeType.INT, null, _model.range(0, 1000, 0.5, "m"));
+		final IntegerAttributeType valueType = _model.integerType("att.wert", IntegerAttributeType.SHORT, "0", _model.range(0, 1000, 1, ""));
+		final AttributeListDefinition listType = _model.listType(
+				"atl.liste",
+				_model.attribute("Wert", valueType),
+				_model.attribute("Zeitpunkt", _model.timeType("att.zeitpunkt", false, TimeAttributeType.SECONDS))
+		);
+		final AttributeListDefinition itemType = _model.listType(
+				"atl.element",
+				_model.attribute("Wert", valueType),
+				_model.attribute("Anteil", _model.doubleType("att.anteil", DoubleAttributeType.DOUBLE, "0"))
+		);
+		_attributeGroup = _model.attributeGroup(
+				"atg.pfad",
+				_model.attribute("Länge", lengthType),
+				_model.attribute("Zeit", _model.timeType("att.zeit", false, TimeAttributeType.MILLISECONDS)),
+				_model.attribute("Objekt", _model.referenceType("att.mq", objectType, ReferenceType.ASSOCIATION, true)),
+				_model.attribute("Liste", listType),
+				_model.attribute("Werte", itemType, 3, false, null),
+				_model.attribute("Text", _model.stringType("att.text", 50)),
+				_model.attribute("Danach", valueType),
+				_model.attribute("Varianten", valueType, 10, true, null),
+				_model.attribute("Faktor", _model.doubleType("att.faktor", DoubleAttributeType.FLOAT, "1"))
+		);
+	}
+
+	private Data createData() {
+		final Data data = AttributeBaseValueDataFactory.createAdapter(_attributeGroup, AttributeHelper.getAttributesValues(_attributeGroup));
+		data.setToDefault();
+		data.getScaledValue("Länge").set(12.5);
+		data.getTimeValue("Zeit").setMillis(TIME);
+		data.getReferenceValue("Objekt").setSystemObject(_object);
+		data.getItem("Liste").getUnscaledValue("Wert").set(42);
+		data.getItem("Liste").getTimeValue("Zeitpunkt").setSeconds(1000);
+		final Data.Array items = data.getArray("Werte");
+		items.setLength(3);
+		for(int i = 0; i < 3; i++) {
+			items.getItem(i).getUnscaledValue("Wert").set(i * 10 + 1);
+			items.getItem(i).getScaledValue("Anteil").set(i + 0.25);
+		}
+		data.getTextValue("Text").setText("Hallo Welt");
+		data.getUnscaledValue("Danach").set(77);
+		final Data.Array variants = data.getArray("Varianten");
+		variants.setLength(4);
+		for(int i = 0; i < 4; i++) {
+			variants.getItem(i).asUnscaledValue().set(100 + i);
+		}
+		data.getScaledValue("Faktor").set(1.5);
+		return data;
+	}
+
+	private static byte[] serialize(final int version, final Data data) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(new byte[PREFIX]);
+		SerializingFactory.createSerializer(version, out).writeData(data);
+		return out.toByteArray();
+	}
+
+	private Data deserialize(final int version, final byte[] bytes) throws Exception {
+		final ByteArrayInputStream in = new ByteArrayInputStream(bytes, PREFIX, bytes.length - PREFIX);
+		return SerializingFactory.createDeserializer(version, in).readData(_attributeGroup, _model.getDataModel());
+	}
+
+	private SerializedAttributePath compile(final String path, final int version) throws Exception {
+		final SerializedAttributePath attributePath = SerializedAttributePath.compile(_attributeGroup, path, version);
+		assertEquals(path, attributePath.getPath());
+		assertEquals(version, attributePath.getVersion());
+		return attributePath;
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		for(int version = 2; version <= 3; version++) {
+			final byte[] bytes = serialize(version, createData());
+			assertEquals(25, compile("Länge", version).getUnscaledValue(bytes, PREFIX));
+			assertEquals(TIME, compile("Zeit", version).getMillis(bytes, PREFIX));
+			assertEquals(42, compile("Liste.Wert", version).getUnscaledValue(bytes, PREFIX));
+			assertEquals(1000000, compile("Liste.Zeitpunkt", version).getMillis(bytes, PREFIX));
+			for(int i = 0; i < 3; i++) {
+				assertEquals(i * 10 + 1, compile("Werte[" + i + "].Wert", version).getUnscaledValue(bytes, PREFIX));
+				assertEquals(i + 0.25, compile("Werte[" + i + "].Anteil", version).getDoubleValue(bytes, PREFIX), 0.0);
+			}
+			assertEquals("Hallo Welt", compile("Text", version).getText(bytes, PREFIX));
+			assertEquals(77, compile("Danach", version).getUnscaledValue(bytes, PREFIX));
+			for(int i = 0; i < 4; i++) {
+				assertEquals(100 + i, compile("Varianten[" + i + "]", version).getUnscaledValue(bytes, PREFIX));
+			}
+			assertEquals(1.5, compile("Faktor", version).getDoubleValue(bytes, PREFIX), 0.0);
+		}
+	}
+
+	@Test
+	public void testReferences() throws Exception {
+		// In Version 2 werden Referenzen als Id serialisiert
+		final SerializedAttributePath objectV2 = compile("Objekt", 2);
+		assertEquals(_object.getId(), objectV2.getId(serialize(2, createData()), PREFIX));
+		assertTrue(compile("Liste.Wert", 2).isOffsetFixed());
+
+		// In Version 3 werden Assoziationen als Pid serialisiert, nachfolgende Attribute haben deshalb keine feste Position mehr
+		final SerializedAttributePath objectV3 = compile("Objekt", 3);
+		final byte[] bytes = serialize(3, createData());
+		assertEquals("mq.1", objectV3.getText(bytes, PREFIX));
+		try {
+			objectV3.getId(bytes, PREFIX);
+			fail("Id einer als Pid serialisierten Referenz");
+		}
+		catch(UnsupportedOperationException expected) {
+		}
+		assertFalse(compile("Liste.Wert", 3).isOffsetFixed());
+	}
+
+	@Test
+	public void testFixedOffsets() throws Exception {
+		for(int version = 2; version <= 3; version++) {
+			assertTrue(compile("Länge", version).isOffsetFixed());
+			assertTrue(compile("Zeit", version).isOffsetFixed());
+			assertFalse(compile("Danach", version).isOffsetFixed());
+			assertFalse(compile("Faktor", version).isOffsetFixed());
+		}
+		final byte[] bytes = serialize(2, createData());
+		assertEquals(PREFIX, compile("Länge", 2).getOffset(bytes, PREFIX));
+		assertEquals(PREFIX + 4, compile("Zeit", 2).getOffset(bytes, PREFIX));
+		assertEquals(PREFIX + 20, compile("Liste.Wert", 2).getOffset(bytes, PREFIX));
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		for(int version = 2; version <= 3; version++) {
+			final byte[] bytes = serialize(version, createData());
+			compile("Länge", version).setUnscaledValue(bytes, PREFIX, 999);
+			compile("Zeit", version).setMillis(bytes, PREFIX, TIME + 1);
+			compile("Liste.Zeitpunkt", version).setMillis(bytes, PREFIX, 5999);
+			compile("Werte[1].Anteil", version).setDoubleValue(bytes, PREFIX, -3.75);
+			compile("Danach", version).setUnscaledValue(bytes, PREFIX, 500);
+			compile("Varianten[3]", version).setUnscaledValue(bytes, PREFIX, 7);
+			compile("Faktor", version).setDoubleValue(bytes, PREFIX, 0.125);
+
+			final Data data = deserialize(version, bytes);
+			assertEquals(999, data.getUnscaledValue("Länge").longValue());
+			assertEquals(TIME + 1, data.getTimeValue("Zeit").getMillis());
+			assertEquals(5000, data.getItem("Liste").getTimeValue("Zeitpunkt").getMillis());
+			assertEquals(-3.75, data.getArray("Werte").getItem(1).getScaledValue("Anteil").doubleValue(), 0.0);
+			assertEquals(500, data.getUnscaledValue("Danach").longValue());
+			assertEquals(7, data.getArray("Varianten").getItem(3).asUnscaledValue().longValue());
+			assertEquals(0.125, data.getScaledValue("Faktor").doubleValue(), 0.0);
+			// Unveränderte Attribute
+			assertEquals("Hallo Welt", data.getTextValue("Text").getText());
+			assertSame(_object, data.getReferenceValue("Objekt").getSystemObject());
+			assertEquals(21, data.getArray("Werte").getItem(2).getUnscaledValue("Wert").longValue());
+		}
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		final byte[] bytes = serialize(2, createData());
+		try {
+			compile("Varianten[4]", 2).getUnscaledValue(bytes, PREFIX);
+			fail("Array-Index hinter dem Ende des Arrays");
+		}
+		catch(IndexOutOfBoundsException expected) {
+		}
+		final byte[] truncated = new byte[bytes.length - 3];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		try {
+			compile("Faktor", 2).getDoubleValue(truncated, PREFIX);
+			fail("Unvollständiger Datensatz");
+		}
+		catch(IndexOutOfBoundsException expected) {
+		}
+		try {
+			compile("Länge", 2).getMillis(bytes, PREFIX);
+			fail("Ganzzahlattribut als Zeit gelesen");
+		}
+		catch(UnsupportedOperationException expected) {
+		}
+		try {
+			compile("Text", 2).setUnscaledValue(bytes, PREFIX, 1);
+			fail("Zeichenkette als Zahl geändert");
+		}
+		catch(UnsupportedOperationException expected) {
+		}
+		for(int version : new int[]{1, 4}) {
+			try {
+				SerializedAttributePath.compile(_attributeGroup, "Länge", version);
+				fail("Version " + version + " wurde akzeptiert");
+			}
+			catch(NoSuchVersionException expected) {
+			}
+		}
+		final String[] paths = {"Unbekannt", "Liste", "Liste.Unbekannt", "Länge.Wert", "Länge[0]", "Werte.Wert", "Werte[0]", "Werte[x].Wert", "Varianten"};
+		for(String path : paths) {
+			try {
+				SerializedAttributePath.compile(_attributeGroup, path, 2);
+				fail("Ungültiger Pfad wurde akzeptiert: " + path);
+			}
+			catch(IllegalArgumentException expected) {
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.daf.
+ *
+ * de.bsvrz.dav.daf is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.daf is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.dav.daf; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.dataSerializer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet die Serialisierung und Deserialisierung von Strings mit {@link SerializerImplementationA} und {@link DeserializerImplementationA}.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class SerializerStringTest {
+
+	private static String repeat(final char c, final int count) {
+		final StringBuilder builder = new StringBuilder(count);
+		for(int i = 0; i < count; i++) {
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+
+	private static byte[] write(final int version, final String value, final int maxLength) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		SerializingFactory.createSerializer(version, out).writeString(value, maxLength);
+		return out.toByteArray();
+	}
+
+	private static String read(final int version, final byte[] bytes, final int maxLength) throws Exception {
+		final Deserializer deserializer = SerializingFactory.createDeserializer(version, new ByteArrayInputStream(bytes));
+		return deserializer.readString(maxLength);
+	}
+
+	private static void assertRoundTrip(final String value, final int maxLength, final int prefixSize) throws Exception {
+		for(int version = 2; version <= 3; version++) {
+			final byte[] bytes = write(version, value, maxLength);
+			assertEquals("Länge der Serialisierung", prefixSize + value.length(), bytes.length);
+			assertEquals(value, read(version, bytes, maxLength));
+		}
+	}
+
+	@Test
+	public void testAscii() throws Exception {
+		assertRoundTrip("", 255, 1);
+		assertRoundTrip("Hallo Welt 0123456789 !\"#$%&'()*+,-./", 255, 1);
+		assertRoundTrip("Hallo Welt", 300, 2);
+		assertRoundTrip("Hallo Welt", 0, 4);
+		assertRoundTrip("Hallo Welt", 70000, 4);
+	}
+
+	@Test
+	public void testLatin1() throws Exception {
+		assertRoundTrip("ÄÖÜäöüß éèê ÿ ©®°  ÿ", 255, 1);
+		final byte[] bytes = write(2, "ä", 255);
+		assertEquals(2, bytes.length);
+		assertEquals((byte)0xe4, bytes[1]);
+	}
+
+	@Test
+	public void testCharactersAbove0xff() throws Exception {
+		for(int version = 2; version <= 3; version++) {
+			final byte[] bytes = write(version, "a€bĀc", 255);
+			assertEquals(6, bytes.length);
+			assertEquals("a?b?c", read(version, bytes, 255));
+			assertEquals(new String("a€bĀc".getBytes("ISO-8859-1"), "ISO-8859-1"), read(version, bytes, 255));
+		}
+		// Einzelne Surrogate werden wie bei String.getBytes durch ein '?' ersetzt
+		assertEquals("x?", read(2, write(2, "x\ud83d", 255), 255));
+	}
+
+	@Test
+	public void testSurrogatePairIsRejected() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Serializer serializer = SerializingFactory.createSerializer(2, out);
+		try {
+			serializer.writeString("a😀b", 255);
+			fail("Surrogat-Paar wurde nicht erkannt");
+		}
+		catch(RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Stringlänge ungleich kodierter Stringlänge"));
+		}
+		assertEquals("Es darf nichts geschrieben werden", 0, out.size());
+	}
+
+	@Test
+	public void testMaxLength() throws Exception {
+		assertRoundTrip(repeat('x', 255), 255, 1);
+		assertRoundTrip(repeat('ü', 255), 255, 1);
+		assertRoundTrip(repeat('y', 65535), 65535, 2);
+		assertRoundTrip(repeat('z', 70000), 0, 4);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Serializer serializer = SerializingFactory.createSerializer(2, out);
+		try {
+			serializer.writeString(repeat('x', 256), 255);
+			fail("Maximallänge wurde nicht geprüft");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		assertEquals("Es darf nichts geschrieben werden", 0, out.size());
+	}
+
+	@Test
+	public void testSequenceWithBufferReuse() throws Exception {
+		final String[] values = {repeat('a', 1000), "kurz", "", repeat('é', 300), "€", repeat('b', 10)};
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Serializer serializer = SerializingFactory.createSerializer(3, out);
+		for(String value : values) {
+			serializer.writeString(value, 0);
+		}
+		final Deserializer deserializer = SerializingFactory.createDeserializer(3, new ByteArrayInputStream(out.toByteArray()));
+		for(String value : values) {
+			assertEquals(value.replace('€', '?'), deserializer.readString(0));
+		}
+		try {
+			deserializer.readString(0);
+			fail("Ende des Streams nicht erkannt");
+		}
+		catch(IOException expected) {
+		}
+	}
+}
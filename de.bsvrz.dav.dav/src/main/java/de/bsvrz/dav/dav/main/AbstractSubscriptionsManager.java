@@ -51,6 +51,9 @@ public abstract class AbstractSubscriptionsManager implements SubscriptionsManag
 
 	protected final DataIndexCounter<BaseSubscriptionInfo> _dataIndexCounter = new DataIndexCounter<BaseSubscriptionInfo>();
 
+	/** Speicher für die zuletzt von entfernten Zentraldatenverteilern empfangenen Datensätze, standardmäßig deaktiviert */
+	private volatile LastValueCache _lastValueCache = new LastValueCache();
+
 	public static String dataIndexToString(final long c) {
 		long time = c >>> 32;
 		long index = (c >>> 2) & 0x3fffffff;
@@ -323,6 +326,21 @@ public abstract class AbstractSubscriptionsManager implements SubscriptionsManag
 		}
 	}
 
+	@Override
+	public LastValueCache getLastValueCache() {
+		return _lastValueCache;
+	}
+
+	/**
+	 * Setzt den Speicher für die zuletzt von entfernten Zentraldatenverteilern empfangenen Datensätze
+	 *
+	 * @param lastValueCache Speicher für die letzten Datensätze
+	 */
+	public void setLastValueCache(final LastValueCache lastValueCache) {
+		if(lastValueCache == null) throw new IllegalArgumentException("lastValueCache ist null");
+		_lastValueCache = lastValueCache;
+	}
+
 	@Override
 	public synchronized void removeSubscriptionInfo(final SubscriptionInfo subscriptionInfo) {
 		assert subscriptionInfo.isEmpty();
@@ -36,6 +36,7 @@ import de.bsvrz.dav.daf.main.impl.config.telegrams.TransmitterInfo;
 import de.bsvrz.dav.dav.communication.appProtocol.T_A_HighLevelCommunication;
 import de.bsvrz.dav.dav.communication.davProtocol.T_T_HighLevelCommunication;
 import de.bsvrz.dav.dav.communication.davProtocol.T_T_HighLevelCommunicationInterface;
+import de.bsvrz.dav.dav.subscriptions.LastValueCache;
 import de.bsvrz.sys.funclib.debug.Debug;
 
 import java.util.*;
@@ -125,6 +126,14 @@ public final class HighLevelConnectionsManager implements HighLevelConnectionsMa
 		_userName = _lowLevelConnectionsManager.getServerDavParameters().getUserName();
 		_userPassword = _lowLevelConnectionsManager.getServerDavParameters().getUserPassword();
 		_telegramManager = new TelegramManager(this, userRightsChecking);
+		final ServerDavParameters serverDavParameters = _lowLevelConnectionsManager.getServerDavParameters();
+		if(serverDavParameters.getLastValueCacheSize() > 0) {
+			final LastValueCache lastValueCache = new LastValueCache(
+					serverDavParameters.getLastValueCacheSize(), serverDavParameters.getLastValueCacheAttributeGroups()
+			);
+			_telegramManager.getSubscriptionsManager().setLastValueCache(lastValueCache);
+			_debug.info("Zwischenspeicher für letzte Datensätze aktiviert", lastValueCache);
+		}
 		_highLevelApplicationManager = new HighLevelApplicationManager(this);
 		_listsManager = new ListsManager(this);
 		_timer = new Timer("TransmitterStatusPublisher", true);
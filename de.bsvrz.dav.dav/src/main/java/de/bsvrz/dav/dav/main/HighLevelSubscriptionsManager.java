@@ -96,6 +96,7 @@ public class HighLevelSubscriptionsManager extends AbstractSubscriptionsManager
 	 */
 	public void setConfigurationAvailable(final SelfClientDavConnection selfClientDavConnection, final ApplicationStatusUpdater applicationStatusUpdater) {
 		_connection = selfClientDavConnection.getConnection();
+		getLastValueCache().setDataModel(_connection.getDataModel());
 		// Interpretation von Compatibility_Enabled wie in de.bsvrz.dav.dav.main.DavAccessControlPublisher.createData()!
 		if(_userRightsChecking != ServerDavParameters.UserRightsChecking.Disabled) {
 			_accessControlManager = new AccessControlManager(_connection, this, _userRightsChecking == ServerDavParameters.UserRightsChecking.NewDataModel);
@@ -127,7 +127,26 @@ public class RoutingTable {
 		}
 		RoutingInfo routingInfo = new RoutingInfo(connection.getThroughputResistance());
 		_routingInfos.init(remoteNode.getRow(), remoteNode.getColumn(), routingInfo);
-		updateAll();
+
+		// Alle anderen Zellen der Zeile sind leer, deshalb ändern sich die Wege der anderen Zeilen nur in der Spalte des neuen Nachbarn.
+		// Für die neue Zeile müssen die besten Restwege über die anderen Nachbarn in allen Spalten bestimmt werden.
+		final List<NodeInfo> changedColumns = Collections.singletonList(remoteNode);
+		updateColumn(remoteNode);
+		for(int column = 0; column < _columns; ++column) {
+			NodeInfo destinationNode = _columnToNodeInfo.get(column);
+			if(destinationNode != null && destinationNode != remoteNode) {
+				updateBestRest(remoteNode.getRow(), column, createCandidates(column));
+			}
+		}
+		for(int row = 0; row < _rows; ++row) {
+			NodeInfo routingNode = _rowToNodeInfo.get(row);
+			if(routingNode == remoteNode) {
+				updateRow(routingNode, _columnToNodeInfo);
+			}
+			else if(routingNode != null) {
+				updateRow(routingNode, changedColumns);
+			}
+		}
 	}
 
 	/**
@@ -158,12 +177,20 @@ public class RoutingTable {
 		}
 		remoteNode.setDirectConnection(null);
 		int row = remoteNode.getRow();
+		// Nur Spalten, in denen über die Verbindung ein Weg bekannt war, sind von der Änderung betroffen
+		final List<NodeInfo> changedColumns = new ArrayList<NodeInfo>();
 		for(int column = 0; column < _columns; ++column) {
 			RoutingInfo routingInfo = _routingInfos.get(row, column);
+			if(routingInfo.getThroughputResistance() != -1) {
+				changedColumns.add(_columnToNodeInfo.get(column));
+			}
 			routingInfo.setRoutingInfo(-1, null);
 			routingInfo.setBestRestRoutingInfo(-1, null);
 		}
-		updateAll();
+		for(NodeInfo destinationNode : changedColumns) {
+			updateColumn(destinationNode);
+		}
+		updateRows(changedColumns);
 	}
 
 	/**
@@ -186,6 +213,8 @@ public class RoutingTable {
 		}
 
 		int row = remoteNode.getRow();
+		// Betroffene Spalten werden erst nach dem Eintragen aller Änderungen jeweils einmal neu berechnet
+		final Set<NodeInfo> changedColumns = new LinkedHashSet<NodeInfo>();
 		for(int nodeIndex = 0; nodeIndex < routingUpdates.length; ++nodeIndex) {
 			RoutingUpdate routingUpdate = routingUpdates[nodeIndex];
 			Long destinationNodeId = new Long(routingUpdate.getTransmitterId());
@@ -213,17 +242,21 @@ public class RoutingTable {
 			visitedNodes[visitedNodesCount] = fromNodeId;
 			RoutingInfo routingInfo = _routingInfos.get(row, destinationNode.getColumn());
 			if(routingInfo != null) {
+				if(routingInfo.getThroughputResistance() == throughputResistance && Arrays.equals(routingInfo.getVisitedNodes(), visitedNodes)) {
+					// Unveränderter Weg, die Spalte muss nicht neu berechnet werden
+					continue;
+				}
 				routingInfo.setRoutingInfo(throughputResistance, visitedNodes);
 			}
-			updateColumn(destinationNode);
+			changedColumns.add(destinationNode);
 		}
-
-		for(row = 0; row < _rows; ++row) {
-			NodeInfo destinationNode = _rowToNodeInfo.get(row);
-			if(destinationNode != null) {
-				updateRow(destinationNode);
-			}
+		if(changedColumns.isEmpty()) {
+			return;
+		}
+		for(NodeInfo destinationNode : changedColumns) {
+			updateColumn(destinationNode);
 		}
+		updateRows(changedColumns);
 	}
 
 	/**
@@ -366,84 +399,37 @@ public class RoutingTable {
 		return result.toString();
 	}
 
-	/** Aktualisiert die komplette Tabelle. */
-	private void updateAll() {
-		for(int column = 0; column < _columns; ++column) {
-			NodeInfo destinationNode = _columnToNodeInfo.get(column);
-			if(destinationNode != null) {
-				updateColumn(destinationNode);
-			}
-		}
+	/**
+	 * Verschickt die geänderten besten Restwege der angegebenen Spalten an alle Nachbarn. Jeder Nachbar erhält höchstens ein Telegramm mit allen ihn
+	 * betreffenden Änderungen.
+	 *
+	 * @param changedColumns Spalten, deren Werte sich geändert haben können
+	 */
+	private void updateRows(final Collection<NodeInfo> changedColumns) {
 		for(int row = 0; row < _rows; ++row) {
 			NodeInfo routingNode = _rowToNodeInfo.get(row);
 			if(routingNode != null) {
-				updateRow(routingNode);
+				updateRow(routingNode, changedColumns);
 			}
 		}
 	}
 
 	/**
-	 * Aktualisiert die Spalte zu einem Zielknoten.
+	 * Aktualisiert die Spalte zu einem Zielknoten. Die Zeilen mit bekanntem Weg werden einmal nach Widerstand sortiert, so dass für jede Zeile der beste Restweg
+	 * über die anderen Nachbarn ohne erneuten Vergleich aller Zeilen bestimmt werden kann.
 	 *
 	 * @param destinationNode Zielknoten
 	 */
 	private void updateColumn(NodeInfo destinationNode) {
 		int column = destinationNode.getColumn();
-		int bestNeighborRow = -1;
-		int bestNeighborVal = Integer.MAX_VALUE;
+		final long[] candidates = createCandidates(column);
 
 		for(int row = 0; row < _rows; ++row) {
-			RoutingInfo neighborInfo = _routingInfos.get(row, column);
-			long[] bestValVisitedNodes = null;
-			int bestVal = Integer.MAX_VALUE;
-
-
-			for(int testRow = 0; testRow < _rows; ++testRow) {
-				if(testRow == row) {
-					continue;
-				}
-				RoutingInfo testInfo = _routingInfos.get(testRow, column);
-				int testVal = testInfo.getThroughputResistance();
-				if(testVal == -1) {
-					testVal = Integer.MAX_VALUE;
-				}
-				if(testVal < bestVal) {
-					boolean testValHasVisitedNeighbor = false;
-					long[] visitedNodes = testInfo.getVisitedNodes();
-					if(visitedNodes != null) {
-						long neighborId = _rowToNodeInfo.get(row).getNodeId();
-						for(int vi = 0; vi < visitedNodes.length; ++vi) {
-							if(neighborId == visitedNodes[vi]) {
-								testValHasVisitedNeighbor = true;
-								break;
-							}
-						}
-						if(testValHasVisitedNeighbor) {
-							continue;
-						}
-					}
-					bestValVisitedNodes = visitedNodes;
-					bestVal = testVal;
-				}
-			}
-			if(bestVal == Integer.MAX_VALUE) {
-				bestVal = -1;
-			}
-			neighborInfo.setBestRestRoutingInfo(bestVal, bestValVisitedNodes);
-
-			int neighborVal = neighborInfo.getThroughputResistance();
-			if(neighborVal == -1) {
-				neighborVal = Integer.MAX_VALUE;
-			}
-			if(neighborVal < bestNeighborVal) {
-				bestNeighborRow = row;
-				bestNeighborVal = neighborVal;
-			}
+			updateBestRest(row, column, candidates);
 		}
 
-		if(bestNeighborVal == Integer.MAX_VALUE) {
-			bestNeighborVal = -1;
-		}
+		// Bester Weg ist der mit dem geringsten Widerstand, bei gleichem Widerstand der mit dem kleinsten Zeilenindex
+		int bestNeighborRow = candidates.length == 0 ? -1 : (int)candidates[0];
 		if(destinationNode.getBestRoutingRow() != bestNeighborRow) {
 			RoutingConnectionInterface oldBestConnection = null;
 			if(destinationNode.getBestRoutingNode() != null) {
@@ -466,21 +452,76 @@ public class RoutingTable {
 	}
 
 	/**
-	 * Aktualisiert die Zeile zu einem Zwischenknoten.
+	 * Bestimmt die Zeilen einer Spalte, über die ein Weg zum Zielknoten bekannt ist.
+	 *
+	 * @param column Spalte
+	 *
+	 * @return Nach Widerstand und Zeilenindex aufsteigend sortiertes Array, jedes Element enthält den Widerstand in den oberen und den Zeilenindex in den unteren
+	 *         32 Bit.
+	 */
+	private long[] createCandidates(final int column) {
+		long[] candidates = new long[_rows];
+		int count = 0;
+		for(int row = 0; row < _rows; ++row) {
+			int throughputResistance = _routingInfos.get(row, column).getThroughputResistance();
+			if(throughputResistance >= 0) {
+				candidates[count++] = ((long)throughputResistance << 32) | row;
+			}
+		}
+		candidates = Arrays.copyOf(candidates, count);
+		Arrays.sort(candidates);
+		return candidates;
+	}
+
+	/**
+	 * Bestimmt den besten Restweg einer Zelle, d.h. den besten Weg zum Zielknoten der Spalte über einen anderen Nachbarn als den der Zeile, der nicht über den
+	 * Nachbarn der Zeile führt.
 	 *
-	 * @param routingNode Zwischenknoten
+	 * @param row        Zeile
+	 * @param column     Spalte
+	 * @param candidates Mit {@link #createCandidates(int)} bestimmte Zeilen der Spalte
 	 */
-	private void updateRow(NodeInfo routingNode) {
+	private void updateBestRest(final int row, final int column, final long[] candidates) {
+		final long neighborId = _rowToNodeInfo.get(row).getNodeId();
+		for(long candidate : candidates) {
+			final int testRow = (int)candidate;
+			if(testRow == row) {
+				continue;
+			}
+			RoutingInfo testInfo = _routingInfos.get(testRow, column);
+			long[] visitedNodes = testInfo.getVisitedNodes();
+			if(visitedNodes != null && contains(visitedNodes, neighborId)) {
+				continue;
+			}
+			_routingInfos.get(row, column).setBestRestRoutingInfo((int)(candidate >>> 32), visitedNodes);
+			return;
+		}
+		_routingInfos.get(row, column).setBestRestRoutingInfo(-1, null);
+	}
+
+	private static boolean contains(final long[] nodeIds, final long nodeId) {
+		for(long id : nodeIds) {
+			if(id == nodeId) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Verschickt die geänderten besten Restwege einer Zeile an den zugehörigen Nachbarn.
+	 *
+	 * @param routingNode    Zwischenknoten
+	 * @param changedColumns Spalten, deren Werte sich geändert haben können
+	 */
+	private void updateRow(NodeInfo routingNode, Collection<NodeInfo> changedColumns) {
 		if(routingNode.getDirectConnection() == null) {
 			return;
 		}
 		List<NodeInfo> list = new ArrayList<NodeInfo>();
-		for(int column = 0; column < _columns; ++column) {
-			NodeInfo destinationNode = _columnToNodeInfo.get(column);
-			if(destinationNode == routingNode) {
+		for(NodeInfo destinationNode : changedColumns) {
+			if(destinationNode == null || destinationNode == routingNode) {
 				continue;
 			}
-			RoutingInfo routingInfo = _routingInfos.get(routingNode.getRow(), column);
+			RoutingInfo routingInfo = _routingInfos.get(routingNode.getRow(), destinationNode.getColumn());
 			if(routingInfo != null) {
 				if(routingInfo.isChanged()) {
 					list.add(destinationNode);
@@ -494,13 +535,11 @@ public class RoutingTable {
 
 		RoutingUpdate[] routingUpdates = new RoutingUpdate[size];
 		for(int i = 0; i < size; ++i) {
-			NodeInfo nodeInfo = (NodeInfo)list.get(i);
-			if(nodeInfo != null) {
-				RoutingInfo routingInfo = _routingInfos.get(routingNode.getRow(), nodeInfo.getColumn());
-				routingUpdates[i] = new RoutingUpdate(
-						nodeInfo.getNodeId(), (short)routingInfo.getBestRestThroughputResistance(), routingInfo.getBestRestVisitedNodes()
-				);
-			}
+			NodeInfo nodeInfo = list.get(i);
+			RoutingInfo routingInfo = _routingInfos.get(routingNode.getRow(), nodeInfo.getColumn());
+			routingUpdates[i] = new RoutingUpdate(
+					nodeInfo.getNodeId(), (short)routingInfo.getBestRestThroughputResistance(), routingInfo.getBestRestVisitedNodes()
+			);
 		}
 		routingNode.getDirectConnection().sendRoutingUpdate(routingUpdates);
 	}
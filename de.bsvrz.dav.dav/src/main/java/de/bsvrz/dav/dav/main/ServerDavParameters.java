@@ -216,6 +216,12 @@ public class ServerDavParameters {
 	 */
 	private String _configAreaPidForApplicationObjects = "";
 
+	/** Maximale Größe des Zwischenspeichers für die zuletzt von entfernten Zentraldatenverteilern empfangenen Datensätze in Bytes, 0 = deaktiviert */
+	private long _lastValueCacheSize = 0;
+
+	/** Pids der Attributgruppen, deren Datensätze zwischengespeichert werden sollen. Leer, falls alle Attributgruppen gespeichert werden sollen. */
+	private List<String> _lastValueCacheAttributeGroups = new ArrayList<String>();
+
 	/**
 	 * Erzeugt einen neuen Parametersatz mit Defaultwerten für die einzelnen Parameter und setzt die in den übergebenen Aufrufargumenten angegebenen Parameter mit
 	 * den angegebenen Werten. Unbekannte Aufrufargumente werden ignoriert. Bekannte Aufrufargumente werden nach der Umsetzung auf null gesetzt, um zu
@@ -269,6 +275,12 @@ public class ServerDavParameters {
 
 		_configAreaPidForApplicationObjects = argumentList.fetchArgument("-konfigurationsBereichFuerApplikationsobjekte=").asString();
 
+		_lastValueCacheSize = argumentList.fetchArgument("-zwischenspeicherLetzteDaten=0").longValueBetween(0, Long.MAX_VALUE / (1024 * 1024)) * 1024 * 1024;
+		for(String atgPid : argumentList.fetchArgument("-zwischenspeicherLetzteDatenAttributgruppen=").asString().split(",")) {
+			atgPid = atgPid.trim();
+			if(atgPid.length() > 0) _lastValueCacheAttributeGroups.add(atgPid);
+		}
+
 
 		if(argumentList.hasArgument("-appTelegrammPuffer")) {
 			try {
@@ -1547,6 +1559,8 @@ public class ServerDavParameters {
 		System.out.println("-davAppPort=port(Zahl)");
 		System.out.println("-warteAufParametrierung=wert (ja, nein oder Inkarnationsname der Parametrierung)");
 		System.out.println("-konfigurationsBereichFuerApplikationsobjekte=konfigurationsbereich (Pid oder Leerstring)");
+		System.out.println("-zwischenspeicherLetzteDaten=größe (Zahl in MiB, 0 = deaktiviert)");
+		System.out.println("-zwischenspeicherLetzteDatenAttributgruppen=atgPid[,atgPid,...] (Leerstring = alle Attributgruppen)");
 		System.out.println();
 		System.out.println();
 		System.out.println("Bemerkungen: ");
@@ -1695,6 +1709,23 @@ public class ServerDavParameters {
 		return _configAreaPidForApplicationObjects;
 	}
 
+	/**
+	 * Bestimmt die maximale Größe des Zwischenspeichers für die zuletzt von entfernten Zentraldatenverteilern empfangenen Datensätze.
+	 * @return Größe in Bytes oder 0, falls der Zwischenspeicher deaktiviert ist
+	 */
+	public long getLastValueCacheSize() {
+		return _lastValueCacheSize;
+	}
+
+	/**
+	 * Bestimmt die Attributgruppen, deren Datensätze zwischengespeichert werden sollen.
+	 * @return Pids der Attributgruppen oder leere Liste, falls die Datensätze aller Attributgruppen zwischengespeichert werden sollen
+	 * @see #getLastValueCacheSize()
+	 */
+	public List<String> getLastValueCacheAttributeGroups() {
+		return Collections.unmodifiableList(_lastValueCacheAttributeGroups);
+	}
+
 	/**
 	 * @author Kappich Systemberatung
 	 * @version $Revision$
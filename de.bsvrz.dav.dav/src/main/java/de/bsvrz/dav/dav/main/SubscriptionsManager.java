@@ -28,6 +28,7 @@ package de.bsvrz.dav.dav.main;
 
 import de.bsvrz.dav.daf.communication.lowLevel.telegrams.BaseSubscriptionInfo;
 import de.bsvrz.dav.daf.communication.lowLevel.telegrams.TransmitterSubscriptionType;
+import de.bsvrz.dav.dav.subscriptions.LastValueCache;
 import de.bsvrz.dav.dav.subscriptions.TransmitterCommunicationInterface;
 import de.bsvrz.dav.dav.subscriptions.SubscriptionInfo;
 import de.bsvrz.dav.dav.util.accessControl.UserAction;
@@ -209,4 +210,11 @@ public interface SubscriptionsManager extends UserRightsChangeHandler {
 	 */
 	long getCurrentDataIndex(BaseSubscriptionInfo baseSubscriptionInfo);
 
+	/**
+	 * Gibt den Speicher für die zuletzt von entfernten Zentraldatenverteilern empfangenen Datensätze zurück
+	 *
+	 * @return Speicher für die letzten Datensätze, ist deaktiviert, falls kein Speicher konfiguriert wurde
+	 */
+	LastValueCache getLastValueCache();
+
 }
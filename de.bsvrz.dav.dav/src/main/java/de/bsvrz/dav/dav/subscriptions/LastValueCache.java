@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.dav.dav.
+ *
+ * de.bsvrz.dav.dav is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.dav.dav is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.dav.dav.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.dav.dav.subscriptions;
+
+import de.bsvrz.dav.daf.communication.lowLevel.telegrams.ApplicationDataTelegram;
+import de.bsvrz.dav.daf.communication.lowLevel.telegrams.BaseSubscriptionInfo;
+import de.bsvrz.dav.daf.main.config.AttributeGroupUsage;
+import de.bsvrz.dav.daf.main.config.DataModel;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Speicher für die zuletzt von entfernten Zentraldatenverteilern empfangenen Datensätze. Der Speicher bleibt auch erhalten, nachdem sich alle Empfänger einer
+ * Datenidentifikation abgemeldet haben und die zugehörige {@link SubscriptionInfo} entfernt wurde. Meldet sich danach ein neuer lokaler Empfänger an,
+ * wird ihm der gespeicherte Datensatz sofort zugestellt, ohne auf die Rückmeldung des Zentraldatenverteilers und den erneut übertragenen initialen Datensatz
+ * warten zu müssen. Weil der Datensatz zu diesem Zeitpunkt noch nicht vom Zentraldatenverteiler bestätigt ist, wird er als nachgeliefert gekennzeichnet.
+ * Da die Datensätze zusammen mit dem Datenindex und dem Zentraldatenverteiler gespeichert werden, sorgt die normale Prüfung auf monoton
+ * steigende Datenindizes dafür, dass veraltete Datensätze durch neuere ersetzt und doppelt übertragene Datensätze verworfen werden.
+ * <p>
+ * Der Speicher ist in der Größe (Summe der Telegrammgrößen) beschränkt. Bei Überschreitung werden die am längsten nicht benutzten Einträge verdrängt, und
+ * zwar gleich so viele, dass der Speicher danach nur noch zu 90% gefüllt ist, damit nicht bei jedem neuen Eintrag verdrängt werden muss. Optional kann der
+ * Speicher auf bestimmte Attributgruppen beschränkt werden; Größe und Verdrängung gelten für alle Attributgruppen gemeinsam.
+ * <p>
+ * Da {@link #put} bei jedem von einer entfernten Quelle empfangenen Datensatz aufgerufen wird, werden die Einträge in einer {@link ConcurrentHashMap}
+ * verwaltet. Nur die Verdrängung ist synchronisiert; sie wird von höchstens einem Thread gleichzeitig durchgeführt, andere Threads warten nicht darauf.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public final class LastValueCache {
+
+	/** Maximale Größe des Speichers in Bytes, 0 falls der Speicher deaktiviert ist */
+	private final long _maxSize;
+
+	/** Pids der Attributgruppen, deren Datensätze gespeichert werden sollen. Eine leere Menge steht für alle Attributgruppen. */
+	private final Set<String> _attributeGroupPids;
+
+	/** Gespeicherte Einträge */
+	private final ConcurrentHashMap<BaseSubscriptionInfo, Entry> _entries = new ConcurrentHashMap<BaseSubscriptionInfo, Entry>();
+
+	/** Sperre für die Verdrängung von Einträgen */
+	private final ReentrantLock _evictionLock = new ReentrantLock();
+
+	/** Bereits ermittelte Entscheidung, ob Datensätze zu einer Attributgruppenverwendung gespeichert werden */
+	private final ConcurrentHashMap<Long, Boolean> _usageDecisions = new ConcurrentHashMap<Long, Boolean>();
+
+	/** Datenmodell zur Bestimmung der Attributgruppe einer Attributgruppenverwendung oder <code>null</code>, solange die Konfiguration nicht verfügbar ist */
+	private volatile DataModel _dataModel = null;
+
+	/** Aktuelle Größe aller gespeicherten Telegramme in Bytes */
+	private final AtomicLong _size = new AtomicLong();
+
+	/**
+	 * Erzeugt einen deaktivierten Speicher.
+	 */
+	public LastValueCache() {
+		this(0, Collections.<String>emptySet());
+	}
+
+	/**
+	 * Erzeugt einen neuen Speicher.
+	 *
+	 * @param maxSize            Maximale Größe in Bytes, 0 deaktiviert den Speicher
+	 * @param attributeGroupPids Pids der Attributgruppen, deren Datensätze gespeichert werden sollen, bei einer leeren Menge werden alle Attributgruppen
+	 *                           gespeichert
+	 */
+	public LastValueCache(final long maxSize, final Collection<String> attributeGroupPids) {
+		if(maxSize < 0) throw new IllegalArgumentException("Negative Speichergröße: " + maxSize);
+		_maxSize = maxSize;
+		_attributeGroupPids = Collections.unmodifiableSet(new HashSet<String>(attributeGroupPids));
+	}
+
+	/**
+	 * Setzt das Datenmodell, mit dem die Attributgruppen der Attributgruppenverwendungen bestimmt werden. Solange kein Datenmodell gesetzt ist, werden bei
+	 * einer Beschränkung auf bestimmte Attributgruppen keine Datensätze gespeichert.
+	 *
+	 * @param dataModel Datenmodell
+	 */
+	public void setDataModel(final DataModel dataModel) {
+		_dataModel = dataModel;
+		_usageDecisions.clear();
+	}
+
+	/**
+	 * Gibt zurück, ob der Speicher aktiviert ist.
+	 *
+	 * @return true falls Datensätze gespeichert werden
+	 */
+	public boolean isEnabled() {
+		return _maxSize > 0;
+	}
+
+	/**
+	 * Speichert die zuletzt verteilten Telegramme einer Datenidentifikation. Leere Datensätze und Telegramme mit Fehlerkennung (z.B. "keine Quelle") werden
+	 * nicht gespeichert, sondern entfernen einen evtl. vorhandenen Eintrag.
+	 *
+	 * @param baseSubscriptionInfo Datenidentifikation
+	 * @param telegrams            Telegramme des Datensatzes
+	 * @param centralDistributorId Id des Zentraldatenverteilers, von dem die Telegramme stammen
+	 */
+	public void put(final BaseSubscriptionInfo baseSubscriptionInfo, final List<ApplicationDataTelegram> telegrams, final long centralDistributorId) {
+		if(!isEnabled()) return;
+		final ApplicationDataTelegram firstTelegram = telegrams.get(0);
+		if(firstTelegram.getErrorFlag() != 0 || firstTelegram.getDataNumber() <= 1 || centralDistributorId == -1
+				|| !isCachedUsage(baseSubscriptionInfo.getUsageIdentification())) {
+			remove(baseSubscriptionInfo);
+			return;
+		}
+		long size = 0;
+		for(final ApplicationDataTelegram telegram : telegrams) {
+			size += telegram.getSize();
+		}
+		if(size > _maxSize) {
+			remove(baseSubscriptionInfo);
+			return;
+		}
+		final Entry entry = new Entry(new ArrayList<ApplicationDataTelegram>(telegrams), firstTelegram.getDataNumber(), centralDistributorId, size);
+		final Entry previous = _entries.put(baseSubscriptionInfo, entry);
+		final long newSize = _size.addAndGet(previous == null ? size : size - previous._size);
+		if(newSize > _maxSize) evict();
+	}
+
+	/**
+	 * Verdrängt die am längsten nicht benutzten Einträge, bis der Speicher nur noch zu 90% gefüllt ist. Falls gerade ein anderer Thread verdrängt, kehrt die
+	 * Methode sofort zurück.
+	 */
+	private void evict() {
+		if(!_evictionLock.tryLock()) return;
+		try {
+			final long targetSize = _maxSize - _maxSize / 10;
+			if(_size.get() <= targetSize) return;
+			// Zugriffszeitpunkte werden festgehalten, weil sie sich während des Sortierens ändern können
+			final List<EvictionCandidate> candidates = new ArrayList<EvictionCandidate>(_entries.size());
+			for(final Map.Entry<BaseSubscriptionInfo, Entry> mapEntry : _entries.entrySet()) {
+				candidates.add(new EvictionCandidate(mapEntry.getKey(), mapEntry.getValue()));
+			}
+			Collections.sort(candidates);
+			for(final EvictionCandidate candidate : candidates) {
+				if(_size.get() <= targetSize) break;
+				// Nur entfernen, falls der Eintrag nicht inzwischen ersetzt wurde
+				if(_entries.remove(candidate._baseSubscriptionInfo, candidate._entry)) _size.addAndGet(-candidate._entry._size);
+			}
+		}
+		finally {
+			_evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Liefert die gespeicherten Telegramme einer Datenidentifikation, sofern sie vom angegebenen Zentraldatenverteiler stammen.
+	 *
+	 * @param baseSubscriptionInfo Datenidentifikation
+	 * @param centralDistributorId Id des aktuellen Zentraldatenverteilers
+	 *
+	 * @return Eintrag oder <code>null</code>, falls kein passender Datensatz gespeichert ist
+	 */
+	public Entry get(final BaseSubscriptionInfo baseSubscriptionInfo, final long centralDistributorId) {
+		final Entry entry = get(baseSubscriptionInfo);
+		if(entry == null || entry._centralDistributorId != centralDistributorId) return null;
+		return entry;
+	}
+
+	/**
+	 * Liefert die gespeicherten Telegramme einer Datenidentifikation unabhängig davon, von welchem Zentraldatenverteiler sie stammen. Dies wird benutzt,
+	 * um neuen Empfängern den Datensatz zuzustellen, bevor bekannt ist, welcher Zentraldatenverteiler die Anmeldung positiv quittiert.
+	 *
+	 * @param baseSubscriptionInfo Datenidentifikation
+	 *
+	 * @return Eintrag oder <code>null</code>, falls kein Datensatz gespeichert ist
+	 */
+	public Entry get(final BaseSubscriptionInfo baseSubscriptionInfo) {
+		if(!isEnabled()) return null;
+		final Entry entry = _entries.get(baseSubscriptionInfo);
+		if(entry != null) entry._lastAccess = System.nanoTime();
+		return entry;
+	}
+
+	/**
+	 * Entfernt den gespeicherten Datensatz einer Datenidentifikation, z.B. weil es jetzt eine lokale Quelle gibt.
+	 *
+	 * @param baseSubscriptionInfo Datenidentifikation
+	 */
+	public void remove(final BaseSubscriptionInfo baseSubscriptionInfo) {
+		if(!isEnabled()) return;
+		final Entry previous = _entries.remove(baseSubscriptionInfo);
+		if(previous != null) _size.addAndGet(-previous._size);
+	}
+
+	/**
+	 * Gibt die Anzahl der gespeicherten Datensätze zurück.
+	 *
+	 * @return Anzahl Einträge
+	 */
+	public int getEntryCount() {
+		return _entries.size();
+	}
+
+	/**
+	 * Gibt die aktuelle Größe aller gespeicherten Telegramme zurück.
+	 *
+	 * @return Größe in Bytes
+	 */
+	public long getSize() {
+		return _size.get();
+	}
+
+	private boolean isCachedUsage(final long usageIdentification) {
+		if(_attributeGroupPids.isEmpty()) return true;
+		final Boolean decision = _usageDecisions.get(usageIdentification);
+		if(decision != null) return decision;
+		final DataModel dataModel = _dataModel;
+		if(dataModel == null) return false;
+		final AttributeGroupUsage usage = dataModel.getAttributeGroupUsage(usageIdentification);
+		final boolean result = usage != null && _attributeGroupPids.contains(usage.getAttributeGroup().getPid());
+		_usageDecisions.put(usageIdentification, result);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "LastValueCache{" + "maxSize=" + _maxSize + ", attributeGroups=" + _attributeGroupPids + ", entries=" + getEntryCount() + ", size=" + getSize() + "}";
+	}
+
+	/** Eintrag mit dem beim Beginn der Verdrängung festgehaltenen Zeitpunkt des letzten Zugriffs */
+	private static final class EvictionCandidate implements Comparable<EvictionCandidate> {
+
+		private final BaseSubscriptionInfo _baseSubscriptionInfo;
+
+		private final Entry _entry;
+
+		private final long _lastAccess;
+
+		EvictionCandidate(final BaseSubscriptionInfo baseSubscriptionInfo, final Entry entry) {
+			_baseSubscriptionInfo = baseSubscriptionInfo;
+			_entry = entry;
+			_lastAccess = entry._lastAccess;
+		}
+
+		public int compareTo(final EvictionCandidate other) {
+			// Differenz statt direktem Vergleich, weil System.nanoTime() überlaufen kann
+			final long difference = _lastAccess - other._lastAccess;
+			return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Gespeicherter Datensatz
+	 */
+	public static final class Entry {
+
+		private final List<ApplicationDataTelegram> _telegrams;
+
+		private final long _dataIndex;
+
+		private final long _centralDistributorId;
+
+		private final long _size;
+
+		/** Zeitpunkt des letzten Zugriffs ({@link System#nanoTime()}) für die Verdrängung */
+		private volatile long _lastAccess = System.nanoTime();
+
+		private Entry(final List<ApplicationDataTelegram> telegrams, final long dataIndex, final long centralDistributorId, final long size) {
+			_telegrams = telegrams;
+			_dataIndex = dataIndex;
+			_centralDistributorId = centralDistributorId;
+			_size = size;
+		}
+
+		/**
+		 * Gibt die Telegramme des Datensatzes zurück.
+		 *
+		 * @return Telegramme, die Liste darf nicht verändert werden
+		 */
+		public List<ApplicationDataTelegram> getTelegrams() {
+			return _telegrams;
+		}
+
+		/**
+		 * Gibt den Datenindex des Datensatzes zurück.
+		 *
+		 * @return Datenindex
+		 */
+		public long getDataIndex() {
+			return _dataIndex;
+		}
+	}
+}
@@ -83,6 +83,12 @@ public class SubscriptionInfo implements Closeable {
 	 * Datenindexgenerierung im Zentraldatenverteiler findet in der {@link SubscriptionList}-Klasse statt.
 	 */
 	private long _lastSendDataIndex = 1;
+	/**
+	 * Lokale Empfänger, denen während einer laufenden Anmeldung bei entfernten Datenverteilern bereits der Datensatz aus dem {@link LastValueCache}
+	 * zugestellt wurde, mit dem Datenindex dieses Datensatzes. Damit wird verhindert, dass derselbe Datensatz nach der positiven Rückmeldung erneut
+	 * zugestellt wird.
+	 */
+	private final Map<ReceivingSubscription, Long> _receiversServedFromCache = new HashMap<ReceivingSubscription, Long>();
 	/**
 	 * Sind Anmeldungen gesperrt, weil es mehrere Remote-Datenverteiler mit positiven Rückmeldungen gibt?
 	 */
@@ -215,6 +221,52 @@ public class SubscriptionInfo implements Closeable {
 		}
 		receivingSubscription.setState(ReceiverState.WAITING, getCentralDistributorId());
 		updateSenderReceiverStatus();
+		sendCachedDataWhileWaiting(receivingSubscription);
+	}
+
+	/**
+	 * Stellt einem neuen lokalen Empfänger den zuletzt von einem entfernten Zentraldatenverteiler empfangenen Datensatz aus dem {@link LastValueCache} zu,
+	 * solange die Anmeldung bei den entfernten Datenverteilern noch läuft. Da noch nicht bestätigt ist, dass der Datensatz aktuell ist, wird er als
+	 * nachgeliefert gekennzeichnet. Nach der positiven Rückmeldung ersetzt ein neuerer Datensatz den zugestellten wie
+	 * gewohnt, nach einer negativen Rückmeldung erhält der Empfänger "keine Quelle". Anderen Datenverteilern wird der Datensatz nicht vorab zugestellt, weil
+	 * sie Daten erst nach der positiven Rückmeldung ihrer Anmeldung annehmen.
+	 *
+	 * @param receivingSubscription neue empfangende Anmeldung
+	 */
+	private void sendCachedDataWhileWaiting(final ReceivingSubscription receivingSubscription) {
+		if(receivingSubscription.isDrain() || !isLocalSubscription(receivingSubscription)) return;
+		if(receivingSubscription.getState() != ReceiverState.WAITING || _receiversServedFromCache.containsKey(receivingSubscription)) return;
+		if(hasSource() || !hasPendingRemoteSubscriptions()) return;
+		final LastValueCache.Entry entry = _subscriptionsManager.getLastValueCache().get(_baseSubscriptionInfo);
+		if(entry == null) return;
+		for(final ApplicationDataTelegram telegram : entry.getTelegrams()) {
+			receivingSubscription.sendDataTelegram(createDelayedTelegram(telegram));
+		}
+		_receiversServedFromCache.put(receivingSubscription, entry.getDataIndex());
+	}
+
+	/**
+	 * Erzeugt eine Kopie eines Telegramms, die als nachgeliefert gekennzeichnet ist. Die gespeicherten Telegramme selbst werden nicht verändert, weil sie
+	 * auch nach der positiven Rückmeldung noch unverändert zugestellt werden.
+	 *
+	 * @param telegram Telegramm aus dem {@link LastValueCache}
+	 *
+	 * @return Als nachgeliefert gekennzeichnete Kopie
+	 */
+	private static ApplicationDataTelegram createDelayedTelegram(final ApplicationDataTelegram telegram) {
+		if(telegram.getDelayedDataFlag()) return telegram;
+		return new ApplicationDataTelegram(
+				telegram.getBaseSubscriptionInfo(),
+				telegram.getDataNumber(),
+				true,
+				telegram.getErrorFlag(),
+				telegram.getAttributesIndicator(),
+				telegram.getPriority(),
+				telegram.getData(),
+				telegram.getTotalTelegramsCount(),
+				telegram.getTelegramNumber(),
+				telegram.getDataTime()
+		);
 	}
 
 	/**
@@ -263,8 +315,12 @@ public class SubscriptionInfo implements Closeable {
 					if(subscription.getState() != ReceiverState.SENDERS_AVAILABLE) {
 						subscription.setState(ReceiverState.SENDERS_AVAILABLE, centralDistributorId);
 						if(_lastSendTelegrams != null) {
-							for(final ApplicationDataTelegram telegram : _lastSendTelegrams) {
-								subscription.sendDataTelegram(telegram);
+							// Wurde derselbe Datensatz schon vorab aus dem LastValueCache zugestellt, wird er nicht erneut gesendet
+							final Long servedDataIndex = _receiversServedFromCache.get(subscription);
+							if(servedDataIndex == null || servedDataIndex != _lastSendDataIndex) {
+								for(final ApplicationDataTelegram telegram : _lastSendTelegrams) {
+									subscription.sendDataTelegram(telegram);
+								}
 							}
 						}
 						else if(_subscriptionList.isCentralDistributor()) {
@@ -301,6 +357,8 @@ public class SubscriptionInfo implements Closeable {
 				sendingSubscription.setState(SenderState.RECEIVERS_AVAILABLE, centralDistributorId);
 			}
 		}
+		// Die Anmeldung bei entfernten Datenverteilern ist abgeschlossen
+		_receiversServedFromCache.clear();
 	}
 
 	/**
@@ -644,6 +702,7 @@ public class SubscriptionInfo implements Closeable {
 	 */
 	public synchronized void removeReceivingSubscription(final ReceivingSubscription receivingSubscription) {
 		receivingSubscription.setState(ReceiverState.UNKNOWN, getCentralDistributorId());
+		_receiversServedFromCache.remove(receivingSubscription);
 		refreshSubscriptionsOnReceiverRemoval(receivingSubscription);
 		_subscriptionList.removeReceiver(receivingSubscription);
 		receivingSubscription.unsubscribe();
@@ -841,6 +900,10 @@ public class SubscriptionInfo implements Closeable {
 		if(hasSource() && !applicationDataTelegrams.get(0).getDelayedDataFlag()) {
 			if(dataIndex != 1) _lastSendDataIndex = dataIndex;
 			_lastSendTelegrams = new ArrayList<ApplicationDataTelegram>(applicationDataTelegrams);
+			if(!isLocalSubscription(_subscriptionList.getSource())) {
+				// Datensätze von entfernten Quellen auch über die Lebensdauer dieses Objekts hinaus merken
+				_subscriptionsManager.getLastValueCache().put(_baseSubscriptionInfo, _lastSendTelegrams, getCentralDistributorId());
+			}
 		}
 	}
 
@@ -1132,6 +1195,20 @@ public class SubscriptionInfo implements Closeable {
 		if(oldSource == source) return;
 		_lastSendTelegrams = null;
 		_lastSendDataIndex = 1;
+		final LastValueCache lastValueCache = _subscriptionsManager.getLastValueCache();
+		if(isLocalSubscription(source)) {
+			lastValueCache.remove(_baseSubscriptionInfo);
+		}
+		else if(source != null) {
+			// Zuletzt vom selben Zentraldatenverteiler empfangenen Datensatz übernehmen, damit er neuen Empfängern sofort zugestellt werden kann.
+			// Der vom Zentraldatenverteiler erneut übertragene Datensatz wird anhand des Datenindex als Duplikat verworfen,
+			// ein inzwischen geänderter Datensatz hat einen höheren Datenindex und wird normal weitergeleitet.
+			final LastValueCache.Entry entry = lastValueCache.get(_baseSubscriptionInfo, source.getCentralDistributorId());
+			if(entry != null) {
+				_lastSendTelegrams = entry.getTelegrams();
+				_lastSendDataIndex = entry.getDataIndex();
+			}
+		}
 		if(!isLocalSubscription(oldSource) && isLocalSubscription(source)) {
 			_subscriptionsManager.notifyIsNewCentralDistributor(_baseSubscriptionInfo);
 		}
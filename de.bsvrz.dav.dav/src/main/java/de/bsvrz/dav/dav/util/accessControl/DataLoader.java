@@ -65,7 +65,7 @@ public abstract class DataLoader {
 	private final String _aspectPid;
 
 	/** Debug */
-	protected final Debug _debug = Debug.getLogger();
+	protected final Debug _debug = Debug.getLogger(DataLoader.class);
 
 	/** Ob auf das Eintreffen von Daten gewartet werden soll, oder ob auch das Eintreffen von "keine Daten" oder "keine Quelle" ausreichen soll, mit dem Initialisieren aufzuhören */
 	private volatile boolean _waitForData = true; // Bein Anlegen des Objektes zunächst auf Daten warten
@@ -32,6 +32,9 @@ import de.bsvrz.kex.kexdav.systemobjects.KExDaVAttributeGroupData;
 import de.bsvrz.sys.funclib.concurrent.UnboundedQueue;
 import de.bsvrz.sys.funclib.debug.Debug;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Eine abstrakte Klasse, die das Verfahren angibt, mit der Daten zwischen 2 Datenverteilern ausgetauscht werden. Diese Klasse ist nicht für die Kopie des
  * Data-Objektes zuständig, darum kümmert sich das {@link de.bsvrz.kex.kexdav.dataplugin.KExDaVDataPlugin}, mit ihr könnte man stattdessen z.B. verhindern, dass
@@ -53,20 +56,34 @@ public abstract class DataTransferPolicy {
 
 	private static final Debug _debug = Debug.getLogger();
 
+	/** Maximale Anzahl Datensätze, die der Datentransfer-Thread nach dem Aufwachen auf einmal aus der Warteschlange entnimmt */
+	private static final int MAX_BATCH_SIZE = 256;
+
 	static {
 		final Thread dataUpdateThread = new Thread(
 				new Runnable() {
 					public void run() {
+						final List<DataAndPipe> batch = new ArrayList<DataAndPipe>(MAX_BATCH_SIZE);
 						while(true) {
 							try {
-								final DataAndPipe dataAndPipe = _queue.take();
-								final DataPackage dataPackage = dataAndPipe.getDataPackage();
-								dataAndPipe.getDataPipe().sendDataToReceiver(
-										dataPackage.getData(),
-										dataPackage.getDataState(),
-										dataPackage.getDataTime(),
-										dataPackage.getIsDelayed()
-								);
+								batch.add(_queue.take());
+								_queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+								for(final DataAndPipe dataAndPipe : batch) {
+									final DataPackage dataPackage = dataAndPipe.getDataPackage();
+									try {
+										dataAndPipe.getDataPipe().sendDataToReceiver(
+												dataPackage.getData(),
+												dataPackage.getDataState(),
+												dataPackage.getDataTime(),
+												dataPackage.getIsDelayed()
+										);
+									}
+									catch(RuntimeException e) {
+										// Ein Fehler in einer Datenverbindung darf weder die übrigen Datensätze des Blocks noch den Datentransfer-Thread betreffen
+										_debug.error("Fehler beim Weitergeben eines Datensatzes: " + dataAndPipe.getDataPipe(), e);
+									}
+								}
+								batch.clear();
 								final int queueSize = _queue.size();
 								if(queueSize > Constants.WarnSendQueueCapacity && System.currentTimeMillis() > _lastWarnTime + Constants.WarnSendQueueInterval) {
 									_lastWarnTime = System.currentTimeMillis();
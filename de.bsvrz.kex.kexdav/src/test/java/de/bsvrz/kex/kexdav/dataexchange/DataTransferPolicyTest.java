@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.kex.kexdav.
+ *
+ * de.bsvrz.kex.kexdav is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.kex.kexdav is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.kex.kexdav.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.kex.kexdav.dataexchange;
+
+import de.bsvrz.dav.daf.main.DataState;
+import de.bsvrz.kex.kexdav.systemobjects.KExDaVAttributeGroupData;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet die Übergabe der Datensätze von {@link DataTransferPolicy} an die Datenverbindungen durch den gemeinsamen Datentransfer-Thread.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class DataTransferPolicyTest {
+
+	@Test(timeout = 60000)
+	public void testDataIsPassedOnInOrder() throws Exception {
+		final int count = 10000;
+		final TestPipe first = new TestPipe(count);
+		final TestPipe second = new TestPipe(count);
+		final DataTransferPolicy firstPolicy = new BasicTransferPolicy(first);
+		final DataTransferPolicy secondPolicy = new BasicTransferPolicy(second);
+		// Mehr Datensätze als in einen Block passen, abwechselnd für zwei Datenverbindungen
+		for(int i = 0; i < count; i++) {
+			firstPolicy.handleData(null, DataState.DATA, i, false);
+			secondPolicy.handleData(null, DataState.NO_DATA, -i, true);
+		}
+		assertTrue(first._done.await(30, TimeUnit.SECONDS));
+		assertTrue(second._done.await(30, TimeUnit.SECONDS));
+		for(int i = 0; i < count; i++) {
+			assertEquals(Long.valueOf(i), first._dataTimes.get(i));
+			assertEquals(Long.valueOf(-i), second._dataTimes.get(i));
+		}
+		assertEquals(DataState.DATA, first._lastDataState);
+		assertFalse(first._lastDelayed);
+		assertEquals(DataState.NO_DATA, second._lastDataState);
+		assertTrue(second._lastDelayed);
+	}
+
+	@Test(timeout = 60000)
+	public void testFailingPipeDoesNotStopTransfer() throws Exception {
+		final TestPipe failing = new TestPipe(3) {
+			@Override
+			void sendDataToReceiver(final KExDaVAttributeGroupData sourceData, final DataState dataState, final long dataTime, final boolean delayed) {
+				super.sendDataToReceiver(sourceData, dataState, dataTime, delayed);
+				throw new IllegalStateException("Test");
+			}
+		};
+		final TestPipe working = new TestPipe(3);
+		final DataTransferPolicy failingPolicy = new BasicTransferPolicy(failing);
+		final DataTransferPolicy workingPolicy = new BasicTransferPolicy(working);
+		for(int i = 0; i < 3; i++) {
+			failingPolicy.handleData(null, DataState.DATA, i, false);
+			workingPolicy.handleData(null, DataState.DATA, i, false);
+		}
+		assertTrue(failing._done.await(30, TimeUnit.SECONDS));
+		assertTrue(working._done.await(30, TimeUnit.SECONDS));
+		assertEquals(3, working._dataTimes.size());
+	}
+
+	/** Datenverbindung, die die weitergegebenen Datensätze nur aufzeichnet */
+	private static class TestPipe extends LowLevelDataPipe {
+
+		private final List<Long> _dataTimes = Collections.synchronizedList(new ArrayList<Long>());
+
+		private final CountDownLatch _done;
+
+		private volatile DataState _lastDataState;
+
+		private volatile boolean _lastDelayed;
+
+		private TestPipe(final int expectedCount) {
+			super(null, "asp.ziel", null, "atg.quelle", null, (short)0, "atg.ziel", (short)0, "asp.quelle", null, null, null, null, null);
+			_done = new CountDownLatch(expectedCount);
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		void sendDataToReceiver(final KExDaVAttributeGroupData sourceData, final DataState dataState, final long dataTime, final boolean delayed) {
+			_dataTimes.add(dataTime);
+			_lastDataState = dataState;
+			_lastDelayed = delayed;
+			_done.countDown();
+		}
+
+		@Override
+		protected void updateSendControl(final byte state) {
+		}
+	}
+}
@@ -48,7 +48,7 @@ public abstract class AbstractDataLinkLayer implements DataLinkLayer {
 
 	private final Object _propertiesSync = new Object();
 
-	private final Debug _debug = Debug.getLogger();
+	private final Debug _debug = Debug.getLogger(AbstractDataLinkLayer.class);
 
 	public AbstractDataLinkLayer() {
 
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ * 
+ * This file is part of de.bsvrz.kex.tls.osi2osi3.
+ * 
+ * de.bsvrz.kex.tls.osi2osi3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * de.bsvrz.kex.tls.osi2osi3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.kex.tls.osi2osi3.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436 
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.kex.tls.osi2osi3.osi2.wancom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool von Empfangs- und Sendepuffern für WanCom-Verbindungen. Verbindungen belegen einen Puffer nur, solange ein Telegramm unvollständig empfangen wurde bzw.
+ * noch zu versendende Bytes vorhanden sind. Damit benötigen viele überwiegend ruhende Verbindungen nur wenige Puffer. Die Puffer werden als Direct-Buffer mit
+ * der im WanCom-Protokoll verwendeten Byte-Reihenfolge (little endian) angelegt und nach der Rückgabe wiederverwendet.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class ByteBufferPool {
+
+	/** Größe der Empfangspuffer, entspricht der maximalen Größe eines WanCom-Telegramms */
+	static final int READ_BUFFER_SIZE = 2204;
+
+	/** Maximale Anzahl von TLS-Telegrammen, die in einem Sendepuffer zusammengefasst werden können */
+	static final int MAX_TELEGRAMS_PER_WRITE = 16;
+
+	/** Größe der Sendepuffer, ausreichend für {@link #MAX_TELEGRAMS_PER_WRITE} TLS-Telegramme maximaler Größe mit WanCom-Header */
+	static final int SEND_BUFFER_SIZE = MAX_TELEGRAMS_PER_WRITE * (28 + 253);
+
+	private static final ConcurrentLinkedQueue<ByteBuffer> _readBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private static final ConcurrentLinkedQueue<ByteBuffer> _sendBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private ByteBufferPool() {
+	}
+
+	/** @return Leerer Empfangspuffer */
+	static ByteBuffer acquireReadBuffer() {
+		return acquire(_readBuffers, READ_BUFFER_SIZE);
+	}
+
+	/**
+	 * Gibt einen Empfangspuffer zur Wiederverwendung zurück.
+	 *
+	 * @param buffer Nicht mehr benötigter Empfangspuffer
+	 */
+	static void releaseReadBuffer(final ByteBuffer buffer) {
+		buffer.clear();
+		_readBuffers.offer(buffer);
+	}
+
+	/** @return Leerer Sendepuffer */
+	static ByteBuffer acquireSendBuffer() {
+		return acquire(_sendBuffers, SEND_BUFFER_SIZE);
+	}
+
+	/**
+	 * Gibt einen Sendepuffer zur Wiederverwendung zurück.
+	 *
+	 * @param buffer Nicht mehr benötigter Sendepuffer
+	 */
+	static void releaseSendBuffer(final ByteBuffer buffer) {
+		buffer.clear();
+		_sendBuffers.offer(buffer);
+	}
+
+	private static ByteBuffer acquire(final ConcurrentLinkedQueue<ByteBuffer> buffers, final int size) {
+		ByteBuffer buffer = buffers.poll();
+		if(buffer == null) {
+			buffer = ByteBuffer.allocateDirect(size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return buffer;
+	}
+}
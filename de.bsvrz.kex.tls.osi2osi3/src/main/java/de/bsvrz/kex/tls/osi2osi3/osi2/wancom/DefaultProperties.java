@@ -88,5 +88,8 @@ class DefaultProperties extends Properties {
 		// Wenn "ja", dann wartet das Protokoll nach dem Aufbau der TCP-Verbindung auf den Empfang eines initialen
 		// Telegramms, bevor eine Verbindung als "lebt" gemeldet wird.
 		setProperty("wancom.waitForInitialReceive", "nein");
+
+		// Maximale Anzahl von TLS-Telegrammen, die zusammen mit einem Schreibzugriff versendet werden (1 bis 16).
+		setProperty("wancom.maxTelegramsPerWrite", "16");
 	}
 }
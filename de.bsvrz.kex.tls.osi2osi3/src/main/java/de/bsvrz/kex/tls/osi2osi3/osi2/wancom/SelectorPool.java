@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ * 
+ * This file is part of de.bsvrz.kex.tls.osi2osi3.
+ * 
+ * de.bsvrz.kex.tls.osi2osi3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * de.bsvrz.kex.tls.osi2osi3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.kex.tls.osi2osi3.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436 
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.kex.tls.osi2osi3.osi2.wancom;
+
+import de.bsvrz.sys.funclib.concurrent.UnboundedQueue;
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Timer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gemeinsamer Pool von Selektor-Threads für alle WanCom-Protokollmodule eines Prozesses. Standardmäßig verwendet jedes WanCom-Protokollmodul einen eigenen
+ * Protokoll-Thread mit eigenem Selektor. Wenn beim Start des Prozesses die System-Property <code>wancom.selectorThreads</code> auf einen Wert größer 0 gesetzt
+ * wird, dann werden die Protokollmodule stattdessen gleichmäßig auf die angegebene Anzahl von gemeinsamen Selektor-Threads verteilt. Aktionen und
+ * Kommunikationsoperationen eines Protokollmoduls werden dabei immer von demselben Selektor-Thread ausgeführt, so dass innerhalb eines Protokollmoduls wie
+ * bisher keine nebenläufige Verarbeitung stattfindet. Zusätzlich wird ein gemeinsamer Timer für die zeitgesteuerten Aktionen aller Verbindungen
+ * bereitgestellt.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class SelectorPool {
+
+	/** Logger für Debugausgaben */
+	private static final Debug _debug = Debug.getLogger();
+
+	/** Name der System-Property, mit der die Anzahl der gemeinsamen Selektor-Threads vorgegeben wird. */
+	static final String SELECTOR_THREADS_PROPERTY = "wancom.selectorThreads";
+
+	/** Einziges Objekt dieser Klasse oder <code>null</code>, wenn kein gemeinsamer Pool verwendet werden soll. */
+	private static final SelectorPool _instance = createInstance();
+
+	/** Selektor-Threads des Pools */
+	private final SelectorThread[] _selectorThreads;
+
+	/** Zähler zur gleichmäßigen Verteilung der Protokollmodule auf die Selektor-Threads */
+	private final AtomicInteger _nextSelectorThread = new AtomicInteger();
+
+	/** Gemeinsamer Timer für zeitgesteuerte Aktionen */
+	private final Timer _timer = new Timer("wancom.SelectorPool.Timer", true);
+
+	private static SelectorPool createInstance() {
+		final int numberOfThreads = Integer.getInteger(SELECTOR_THREADS_PROPERTY, 0);
+		if(numberOfThreads <= 0) return null;
+		try {
+			_debug.info("WanCom-Protokollmodule verwenden " + numberOfThreads + " gemeinsame Selektor-Threads");
+			return new SelectorPool(numberOfThreads);
+		}
+		catch(IOException e) {
+			_debug.error("Gemeinsame Selektor-Threads konnten nicht erzeugt werden, es werden eigene Protokoll-Threads verwendet", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Bestimmt den gemeinsamen Pool.
+	 *
+	 * @return Einziges Objekt dieser Klasse oder <code>null</code>, wenn jedes Protokollmodul einen eigenen Protokoll-Thread verwenden soll.
+	 */
+	static SelectorPool getInstance() {
+		return _instance;
+	}
+
+	private SelectorPool(final int numberOfThreads) throws IOException {
+		_selectorThreads = new SelectorThread[numberOfThreads];
+		for(int i = 0; i < numberOfThreads; i++) {
+			_selectorThreads[i] = new SelectorThread();
+			final Thread thread = new Thread(_selectorThreads[i], "wancom.SelectorPool(" + i + ")");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Ordnet einem Protokollmodul einen Selektor-Thread zu. Die Zuordnung erfolgt reihum.
+	 *
+	 * @return Selektor-Thread, der alle Aktionen und Kommunikationsoperationen des Protokollmoduls ausführen soll.
+	 */
+	SelectorThread assign() {
+		return _selectorThreads[(_nextSelectorThread.getAndIncrement() & Integer.MAX_VALUE) % _selectorThreads.length];
+	}
+
+	/** @return Gemeinsamer Timer für zeitgesteuerte Aktionen aller Verbindungen */
+	Timer getTimer() {
+		return _timer;
+	}
+
+	/** Schnittstelle für Objekte, die als Attachment an einem {@link SelectionKey} die vom Selektor gelieferten Kommunikationsmöglichkeiten verarbeiten. */
+	interface SelectionHandler {
+
+		/**
+		 * Verarbeitet asynchrone Kommunikationsoperationen anhand der vom Selektor gelieferten Möglichkeiten
+		 *
+		 * @param selectionKey Vom Selektor gelieferte Kommunikationsmöglichkeiten
+		 * @param selector     Selektor zum asynchronen Zugriff auf die Kommunikationskanäle.
+		 */
+		void handleSelection(SelectionKey selectionKey, Selector selector);
+	}
+
+	/** Selektor-Thread, der Aufträge von beliebigen Threads entgegennimmt und die Kommunikationsoperationen aller ihm zugeordneten Verbindungen ausführt. */
+	static final class SelectorThread implements Runnable {
+
+		private final Selector _selector;
+
+		/** Queue zur Übermittlung von Aufträgen an den Selektor-Thread */
+		private final UnboundedQueue<Runnable> _taskQueue = new UnboundedQueue<Runnable>();
+
+		private SelectorThread() throws IOException {
+			_selector = Selector.open();
+		}
+
+		/** @return Selektor dieses Threads */
+		Selector getSelector() {
+			return _selector;
+		}
+
+		/**
+		 * Kann von einem beliebigen Thread aufgerufen werden, um einen Auftrag im Selektor-Thread auszuführen.
+		 *
+		 * @param task Auszuführender Auftrag
+		 */
+		void execute(final Runnable task) {
+			_taskQueue.put(task);
+			_selector.wakeup();
+		}
+
+		public void run() {
+			while(true) {
+				try {
+					Runnable task;
+					while(null != (task = _taskQueue.poll(0))) {
+						task.run();
+					}
+					_selector.select();
+					final Set<SelectionKey> selectedKeys = _selector.selectedKeys();
+					for(Iterator<SelectionKey> iterator = selectedKeys.iterator(); iterator.hasNext();) {
+						final SelectionKey selectionKey = iterator.next();
+						iterator.remove();
+						((SelectionHandler)selectionKey.attachment()).handleSelection(selectionKey, _selector);
+					}
+				}
+				catch(IOException e) {
+					_debug.warning("Fehler im gemeinsamen Selektor-Thread", e);
+				}
+				catch(InterruptedException e) {
+					_debug.warning("InterruptedException im gemeinsamen Selektor-Thread", e);
+				}
+				catch(RuntimeException e) {
+					_debug.warning("Unerwarteter Fehler im gemeinsamen Selektor-Thread: " + e.getLocalizedMessage(), e);
+				}
+			}
+		}
+	}
+}
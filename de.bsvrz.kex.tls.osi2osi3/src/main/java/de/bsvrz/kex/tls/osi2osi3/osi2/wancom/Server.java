@@ -43,12 +43,12 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Klasse, die als OSI-2 Protokollmodul für den server-seitigen Teil einer WanCom-Verbindung eingesetzt werden kann. Zur Verwendung dieses Protokollmoduls als
@@ -71,7 +71,11 @@ import java.util.*;
  * wird, dann werden alle WanCom-Typ-Werte (außer dem Wert für KeepAlive-Telegramme wancom.keepAliveType) akzeptiert.</td> </tr> <tr> <td>
  * wancom.connectRetryDelay </td> <td> 60 </td> <td> Wartezeit in Sekunden, bevor ein fehlgeschlagener Verbindungsversuch wiederholt wird. </td> </tr> <tr> <td>
  * wancom.localAddress </td> <td> </td> <td> Lokale Adresse, die in Wan-Com-Header als Absender eingetragen werden soll. Ein leerer Text, wird automatisch durch
- * die aktuelle lokale Adresse der Wan-Com-Verbindung ersetzt. </td> </tr> </table>
+ * die aktuelle lokale Adresse der Wan-Com-Verbindung ersetzt. </td> </tr> <tr> <td> wancom.maxTelegramsPerWrite </td> <td> 16 </td> <td> Maximale Anzahl
+ * von zu versendenden TLS-Telegrammen, die zusammen mit einem Schreibzugriff versendet werden (1 bis 16). </td> </tr> </table>
+ * <p>
+ * Wenn die System-Property <code>wancom.selectorThreads</code> auf einen Wert größer 0 gesetzt ist, verwenden alle WanCom-Protokollmodule des Prozesses einen
+ * gemeinsamen Pool mit der angegebenen Anzahl von Selektor-Threads statt eines eigenen Protokoll-Threads je Protokollmodul.
  * <p>
  *
  * @author Kappich Systemberatung
@@ -174,9 +178,38 @@ public class Server extends WanCom implements PropertyQueryInterface {
 		/** Queue zur Übermittlung von Aktionen an den Protokoll-Thread */
 		private final UnboundedQueue<WorkAction> _workQueue;
 
+		/** Zugeordneter Thread des gemeinsamen Selektor-Pools oder <code>null</code>, wenn ein eigener Protokoll-Thread verwendet wird. */
+		private final SelectorPool.SelectorThread _selectorThread;
+
+		/** Timerobjekt mit dem zukünftige Aktionen aller Verbindungen dieses Protokolls geplant und ausgeführt werden */
+		private final Timer _timer;
+
+		/** Signalisiert, dass die Verarbeitung der Aktionen im gemeinsamen Selektor-Thread bereits beauftragt wurde. */
+		private final AtomicBoolean _processingScheduled = new AtomicBoolean();
+
+		/** Signalisiert, dass die Protokollabarbeitung im gemeinsamen Selektor-Thread nach der initialen Wartezeit begonnen hat. */
+		private volatile boolean _activated = false;
+
+		/** Auftrag, mit dem die anstehenden Aktionen im gemeinsamen Selektor-Thread verarbeitet werden. */
+		private final Runnable _actionProcessor = new Runnable() {
+			public void run() {
+				processActions();
+			}
+		};
+
 		/** Konstruktor initialisiert den Selektor und die Queue zur Übermittlung von Aktionen */
 		public Worker() throws IOException {
-			_selector = Selector.open();
+			final SelectorPool selectorPool = SelectorPool.getInstance();
+			if(selectorPool == null) {
+				_selectorThread = null;
+				_selector = Selector.open();
+				_timer = new Timer(true);
+			}
+			else {
+				_selectorThread = selectorPool.assign();
+				_selector = _selectorThread.getSelector();
+				_timer = selectorPool.getTimer();
+			}
 			_workQueue = new UnboundedQueue<Server.Worker.WorkAction>();
 		}
 
@@ -275,8 +308,68 @@ public class Server extends WanCom implements PropertyQueryInterface {
 		 */
 		public void notify(Server.Link link, Server.ActionType action) {
 			_workQueue.put(new Server.Worker.WorkAction(link, action));
-			_debug.finer("Aufruf von _selector.wakeup()");
-			_selector.wakeup();
+			if(_selectorThread != null) {
+				scheduleProcessing();
+			}
+			else {
+				_debug.finer("Aufruf von _selector.wakeup()");
+				_selector.wakeup();
+			}
+		}
+
+		/** @return <code>true</code>, wenn das Protokoll einen Thread des gemeinsamen Selektor-Pools verwendet. */
+		boolean isPooled() {
+			return _selectorThread != null;
+		}
+
+		/** @return Timerobjekt, mit dem zukünftige Aktionen der Verbindungen geplant werden */
+		Timer getTimer() {
+			return _timer;
+		}
+
+		/**
+		 * Startet die Protokollabarbeitung im gemeinsamen Selektor-Thread. Wie beim eigenen Protokoll-Thread wird vorher 30 Sekunden gewartet, um der TLS-OSI-7
+		 * genügend Zeit zur Initialisierung zu geben. Bis dahin werden Aktionen nur gepuffert.
+		 */
+		void activatePooled() {
+			_debug.fine("WanCom: 30 Sekunden warten: " + toString());
+			_timer.schedule(
+					new TimerTask() {
+						public void run() {
+							_debug.fine("WanCom: Beginn der Protokollabarbeitung: " + Worker.this.toString());
+							_activated = true;
+							scheduleProcessing();
+						}
+					}, 30000
+			);
+		}
+
+		/** Beauftragt den gemeinsamen Selektor-Thread mit der Verarbeitung der anstehenden Aktionen, falls dies noch nicht geschehen ist. */
+		private void scheduleProcessing() {
+			if(_processingScheduled.compareAndSet(false, true)) _selectorThread.execute(_actionProcessor);
+		}
+
+		/** Verarbeitet im gemeinsamen Selektor-Thread die anstehenden Aktionen entsprechend dem aktuellen Zustand des Protokolls. */
+		private void processActions() {
+			_processingScheduled.set(false);
+			if(!_activated) return;
+			final ProtocolState state;
+			synchronized(_protocolLock) {
+				if(_protocolState == ProtocolState.STARTING) {
+					_protocolState = ProtocolState.STARTED;
+				}
+				state = _protocolState;
+			}
+			if(state != ProtocolState.STARTED && state != ProtocolState.STOPPING) return;
+			try {
+				Server.Worker.WorkAction action;
+				while(null != (action = _workQueue.poll(0))) {
+					action._link.handleAction(action._action, _selector);
+				}
+			}
+			catch(InterruptedException e) {
+				_debug.warning("InterruptedException: " + this, e);
+			}
 		}
 
 		/** Hilfsklasse, die zur Speicherung einer Aktion zusammen mit der Verbindung, auf die sich die Aktion bezieht, eingesetzt wird. */
@@ -328,8 +421,13 @@ public class Server extends WanCom implements PropertyQueryInterface {
 			if(localAddress < 1 || localAddress > 254) {
 				throw new IllegalStateException("lokale OSI-2 Adresse muss zwischen 1 und 254 liegen, ist: " + localAddress);
 			}
-			_workThread.setName("wancom.Server.Worker(" + localAddress + ")");
-			_workThread.start();
+			if(_worker.isPooled()) {
+				_worker.activatePooled();
+			}
+			else {
+				_workThread.setName("wancom.Server.Worker(" + localAddress + ")");
+				_workThread.start();
+			}
 			_protocolState = ProtocolState.STARTING;
 			_protocolLock.notifyAll();
 		}
@@ -392,7 +490,7 @@ public class Server extends WanCom implements PropertyQueryInterface {
 	}
 
 	/** Realisiert ein Verbindungsobjekt, das die Kommunikation mit einem einzelnen Kommunikationspartner verwaltet. */
-	private class Link extends AbstractDataLinkLayer.Link implements DataLinkLayer.Link, PropertyQueryInterface {
+	private class Link extends AbstractDataLinkLayer.Link implements DataLinkLayer.Link, PropertyQueryInterface, SelectorPool.SelectionHandler {
 
 		/** Priorisierte Queue mit den noch zu versendenden Telegrammen */
 		private final PriorityChannel _sendChannel;
@@ -427,14 +525,17 @@ public class Server extends WanCom implements PropertyQueryInterface {
 		/** Wartezeit in Sekunden, die nach einem fehlerbedingten Verbindungsabbruch gewartet wird, bevor die Verbindung neu aufgebaut wird. */
 		private int _wanComConnectRetryDelay = 60;
 
-		/** Timerobjekt mit dem zukünftige Aktionen geplant und ausgeführt werden */
-		private final Timer _timer = new Timer(true);
+		/** Empfangspuffer für unvollständig empfangene Telegramme oder <code>null</code>, wenn keine unvollständigen Telegramme vorliegen */
+		private ByteBuffer _readBuffer = null;
+
+		/** Sendepuffer für versendete Telegramme oder <code>null</code>, wenn keine Bytes mehr zu versenden sind */
+		private ByteBuffer _sendBuffer = null;
 
-		/** Empfangspuffer für empfangene Telegramme */
-		private final ByteBuffer _readBuffer = ByteBuffer.allocateDirect(2204);
+		/** Maximale Anzahl von TLS-Telegrammen, die mit einem Schreibzugriff versendet werden */
+		private int _wanComMaxTelegramsPerWrite = 1;
 
-		/** Sendepuffer für versendete Telegramme */
-		private final ByteBuffer _sendBuffer = ByteBuffer.allocateDirect(28 + getMaximumDataSize());
+		/** Signalisiert, dass die Verbindung nach dem Versand der gepufferten Telegramme geschlossen werden soll */
+		private boolean _closeAfterSend = false;
 
 		/** WanCom-Typfeld ind Keep-Alive-Telegrammen */
 		private int _wanComKeepAliveType;
@@ -460,8 +561,8 @@ public class Server extends WanCom implements PropertyQueryInterface {
 		/** Lokale IP-Adresse, die in versendeten Telegrammen eingetragen wird. */
 		private byte[] _wanComIp8 = new byte[8];
 
-		/** Aktuell asynchron zu sendendes Telegramm */
-		byte[] _packetOnTheAir = null;
+		/** Aktuell asynchron zu sendende Telegramme */
+		final List<byte[]> _packetsOnTheAir = new ArrayList<byte[]>();
 
 		/**
 		 * Sendet eine Aktion für dieses Verbindungsobjekt zur Ausführung an den Protokoll-Thread.
@@ -486,8 +587,6 @@ public class Server extends WanCom implements PropertyQueryInterface {
 				);
 			}
 			_sendChannel = new PriorityChannel(3, 2000);
-			_readBuffer.order(ByteOrder.LITTLE_ENDIAN);
-			_sendBuffer.order(ByteOrder.LITTLE_ENDIAN);
 			_linkState = LinkState.DISCONNECTED;
 			synchronized(_protocolLock) {
 				for(Iterator<Server.Link> iterator = _links.iterator(); iterator.hasNext();) {
@@ -673,83 +772,30 @@ public class Server extends WanCom implements PropertyQueryInterface {
 			if(_socketChannel == null) return;
 			try {
 				do {
-					if(!_sendBuffer.hasRemaining()) {
-						if(_sendKeepAlive) {
-							_debug.finer("Senden eines KeepAlive-Telegramms");
-							_debug.finest(
-									"eingetragene lokale IP: " + _wanComIp8[0] + "." + _wanComIp8[1] + "." + _wanComIp8[2] + "." + _wanComIp8[3] + "."
-									+ _wanComIp8[4] + "." + _wanComIp8[5] + "." + _wanComIp8[6] + "." + _wanComIp8[7]
-							);
-							_sendKeepAlive = false;
-							_sendBuffer.clear();
-							int size = 43;
-							_sendBuffer.putInt(_wanComVersion);
-							_sendBuffer.putInt(size);
-							_sendBuffer.putInt(_wanComKeepAliveType);
-							_sendBuffer.putInt(0);
-							_sendBuffer.putInt(0);
-							_sendBuffer.put(_wanComIp8);
-							_sendBuffer.put((byte)9);
-							_sendBuffer.put((byte)255);
-							_sendBuffer.put((byte)255);
-							_sendBuffer.put((byte)0);
-							_sendBuffer.put((byte)0);
-							_sendBuffer.put((byte)0);
-							_sendBuffer.put((byte)1);
-							_sendBuffer.put((byte)7);
-							_sendBuffer.put((byte)134);
-							_sendBuffer.put((byte)2);
-							_sendBuffer.put((byte)0);
-							_sendBuffer.put((byte)1);
-							_sendBuffer.put((byte)2);
-							_sendBuffer.put((byte)255);
-							_sendBuffer.put((byte)130);
-							_sendBuffer.flip();
-						}
-						else {
-							Server.PriorizedByteArray priorizedByteArray = (Server.PriorizedByteArray)_sendChannel.poll(0);
-							if(priorizedByteArray != null) {
-								final byte[] bytes = priorizedByteArray.getBytes();
-								if(bytes == null) {
-									closeChannel();
-								}
-								else {
-									_packetOnTheAir = bytes;
-									_debug.finer("Senden eines TLS-Telegramms");
-									_debug.finest(
-											"eingetragene lokale IP: " + _wanComIp8[0] + "." + _wanComIp8[1] + "." + _wanComIp8[2] + "." + _wanComIp8[3] + "."
-											+ _wanComIp8[4] + "." + _wanComIp8[5] + "." + _wanComIp8[6] + "." + _wanComIp8[7]
-									);
-									_sendBuffer.clear();
-									int size = 28 + bytes.length;
-									_sendBuffer.putInt(_wanComVersion);
-									_sendBuffer.putInt(size);
-									_sendBuffer.putInt(_wanComTlsType);
-									_sendBuffer.putInt(0);
-									_sendBuffer.putInt(0);
-									_sendBuffer.put(_wanComIp8);
-									_sendBuffer.put(bytes);
-									_sendBuffer.flip();
-								}
-							}
-						}
-					}
-					if(_sendBuffer.hasRemaining()) {
-						_debug.finest("Sendeversuch für verbleibende " + _sendBuffer.remaining() + " Bytes");
-						int sent = _socketChannel.write(_sendBuffer);
-						_debug.finest("erfolgreich gesendete Bytes " + sent);
+					if(_sendBuffer == null) {
+						if(!fillSendBuffer()) return;
+						if(_sendBuffer == null) break;
 					}
+					_debug.finest("Sendeversuch für verbleibende " + _sendBuffer.remaining() + " Bytes");
+					int sent = _socketChannel.write(_sendBuffer);
+					_debug.finest("erfolgreich gesendete Bytes " + sent);
 					if(_sendBuffer.hasRemaining()) {
 						_debug.finer("Versand wird sobald möglich fortgesetzt");
 						_socketChannel.register(selector, SelectionKey.OP_WRITE | SelectionKey.OP_READ, this);
 						break;
 					}
 					else {
-						if(_packetOnTheAir != null) {
-							byte[] sentPacket = _packetOnTheAir;
-							_packetOnTheAir = null;
+						ByteBufferPool.releaseSendBuffer(_sendBuffer);
+						_sendBuffer = null;
+						for(byte[] sentPacket : _packetsOnTheAir) {
 							notifyEvent(DataLinkLayerEvent.Type.DATA_SENT, sentPacket);
 						}
+						_packetsOnTheAir.clear();
+						if(_closeAfterSend) {
+							_closeAfterSend = false;
+							closeChannel();
+							return;
+						}
 					}
 				}
 				while(!_sendChannel.isEmpty());
@@ -764,6 +810,101 @@ public class Server extends WanCom implements PropertyQueryInterface {
 			}
 		}
 
+		/**
+		 * Belegt einen Sendepuffer und füllt ihn mit einem ggf. anstehenden Keep-Alive-Telegramm und mit bis zu "wancom.maxTelegramsPerWrite" noch zu
+		 * versendenden TLS-Telegrammen, die dann mit einem gemeinsamen Schreibzugriff versendet werden. Wenn nichts zu versenden ist, wird kein Puffer belegt.
+		 *
+		 * @return <code>false</code>, wenn die Verbindung geschlossen wurde, sonst <code>true</code>.
+		 *
+		 * @throws InterruptedException Wenn der aktuelle Thread unterbrochen wurde.
+		 */
+		private boolean fillSendBuffer() throws InterruptedException {
+			final ByteBuffer sendBuffer = ByteBufferPool.acquireSendBuffer();
+			if(_sendKeepAlive) {
+				_debug.finer("Senden eines KeepAlive-Telegramms");
+				_debug.finest(
+						"eingetragene lokale IP: " + _wanComIp8[0] + "." + _wanComIp8[1] + "." + _wanComIp8[2] + "." + _wanComIp8[3] + "."
+						+ _wanComIp8[4] + "." + _wanComIp8[5] + "." + _wanComIp8[6] + "." + _wanComIp8[7]
+				);
+				_sendKeepAlive = false;
+				int size = 43;
+				sendBuffer.putInt(_wanComVersion);
+				sendBuffer.putInt(size);
+				sendBuffer.putInt(_wanComKeepAliveType);
+				sendBuffer.putInt(0);
+				sendBuffer.putInt(0);
+				sendBuffer.put(_wanComIp8);
+				sendBuffer.put((byte)9);
+				sendBuffer.put((byte)255);
+				sendBuffer.put((byte)255);
+				sendBuffer.put((byte)0);
+				sendBuffer.put((byte)0);
+				sendBuffer.put((byte)0);
+				sendBuffer.put((byte)1);
+				sendBuffer.put((byte)7);
+				sendBuffer.put((byte)134);
+				sendBuffer.put((byte)2);
+				sendBuffer.put((byte)0);
+				sendBuffer.put((byte)1);
+				sendBuffer.put((byte)2);
+				sendBuffer.put((byte)255);
+				sendBuffer.put((byte)130);
+			}
+			int telegramCount = 0;
+			while(telegramCount < _wanComMaxTelegramsPerWrite && sendBuffer.remaining() >= 28 + getMaximumDataSize()) {
+				Server.PriorizedByteArray priorizedByteArray = (Server.PriorizedByteArray)_sendChannel.poll(0);
+				if(priorizedByteArray == null) break;
+				final byte[] bytes = priorizedByteArray.getBytes();
+				if(bytes == null) {
+					if(sendBuffer.position() == 0) {
+						ByteBufferPool.releaseSendBuffer(sendBuffer);
+						closeChannel();
+						return false;
+					}
+					// Bereits gepufferte Telegramme werden noch versendet
+					_closeAfterSend = true;
+					break;
+				}
+				_packetsOnTheAir.add(bytes);
+				_debug.finer("Senden eines TLS-Telegramms");
+				_debug.finest(
+						"eingetragene lokale IP: " + _wanComIp8[0] + "." + _wanComIp8[1] + "." + _wanComIp8[2] + "." + _wanComIp8[3] + "."
+						+ _wanComIp8[4] + "." + _wanComIp8[5] + "." + _wanComIp8[6] + "." + _wanComIp8[7]
+				);
+				int size = 28 + bytes.length;
+				sendBuffer.putInt(_wanComVersion);
+				sendBuffer.putInt(size);
+				sendBuffer.putInt(_wanComTlsType);
+				sendBuffer.putInt(0);
+				sendBuffer.putInt(0);
+				sendBuffer.put(_wanComIp8);
+				sendBuffer.put(bytes);
+				telegramCount++;
+			}
+			sendBuffer.flip();
+			if(sendBuffer.hasRemaining()) {
+				_sendBuffer = sendBuffer;
+			}
+			else {
+				ByteBufferPool.releaseSendBuffer(sendBuffer);
+			}
+			return true;
+		}
+
+		/** Gibt die Empfangs- und Sendepuffer dieser Verbindung zurück und verwirft noch nicht vollständig versendete oder empfangene Telegramme. */
+		private void releaseBuffers() {
+			if(_readBuffer != null) {
+				ByteBufferPool.releaseReadBuffer(_readBuffer);
+				_readBuffer = null;
+			}
+			if(_sendBuffer != null) {
+				ByteBufferPool.releaseSendBuffer(_sendBuffer);
+				_sendBuffer = null;
+			}
+			_packetsOnTheAir.clear();
+			_closeAfterSend = false;
+		}
+
 		/**
 		 * Schließt den Kommunikationskanal zum Client und plant den erneuten Aufbau der Kommunikationsverbindung nach der durch den Parameter
 		 * "wancom.connectRetryDelay" vorgebbaren Wartezeit ein.
@@ -801,6 +942,7 @@ public class Server extends WanCom implements PropertyQueryInterface {
 						_socketChannel = null;
 					}
 				}
+				releaseBuffers();
 				if(_linkState == LinkState.DISCONNECTING) {
 					_linkState = LinkState.DISCONNECTED;
 					notifyEvent(DataLinkLayerEvent.Type.DISCONNECTED, null);
@@ -840,6 +982,7 @@ public class Server extends WanCom implements PropertyQueryInterface {
 				try {
 					_debug.finest("_readBuffer vorm lesen: " + _readBuffer);
 					//HexDumper.dumpTo(System.out,_readBuffer.array(),0, _readBuffer.position());
+					if(_readBuffer == null) _readBuffer = ByteBufferPool.acquireReadBuffer();
 					int got = _socketChannel.read(_readBuffer);
 					if(got == -1) {
 						_debug.info("Verbindung wurde von der Gegenseite terminiert; " + this);
@@ -929,6 +1072,11 @@ public class Server extends WanCom implements PropertyQueryInterface {
 							}
 						}
 						_readBuffer.compact();
+						if(_readBuffer.position() == 0) {
+							// Keine unvollständigen Telegramme im Puffer
+							ByteBufferPool.releaseReadBuffer(_readBuffer);
+							_readBuffer = null;
+						}
 					}
 				}
 				catch(IOException e) {
@@ -937,7 +1085,7 @@ public class Server extends WanCom implements PropertyQueryInterface {
 			}
 			if(!selectionKey.isValid()) return;
 			if(selectionKey.isWritable()) {
-				if(!_sendBuffer.hasRemaining()) selectionKey.interestOps(SelectionKey.OP_READ);
+				if(_sendBuffer == null || !_sendBuffer.hasRemaining()) selectionKey.interestOps(SelectionKey.OP_READ);
 			}
 			if(!selectionKey.isValid()) return;
 			handleAsyncSend(selector);
@@ -956,9 +1104,7 @@ public class Server extends WanCom implements PropertyQueryInterface {
 					try {
 						if(_serverSocketChannel == null) {
 							_keepAliveReceiveTimeoutCount = 0;
-							_readBuffer.clear();
-							_sendBuffer.clear().flip();
-							_packetOnTheAir = null;
+							releaseBuffers();
 							_sendKeepAlive = false;
 							_wanComVersion = _propertyConsultant.getIntProperty("wancom.version");
 							_wanComKeepAliveTimeSeconds = _propertyConsultant.getIntProperty("wancom.keepAliveTime");
@@ -973,6 +1119,9 @@ public class Server extends WanCom implements PropertyQueryInterface {
 								_wanComTlsTypeReceive = _wanComTlsType;
 							}
 							_wanComConnectRetryDelay = _propertyConsultant.getIntProperty("wancom.connectRetryDelay");
+							_wanComMaxTelegramsPerWrite = Math.max(
+									1, Math.min(ByteBufferPool.MAX_TELEGRAMS_PER_WRITE, _propertyConsultant.getIntProperty("wancom.maxTelegramsPerWrite"))
+							);
 							_serverSocketChannel = ServerSocketChannel.open();
 							_serverSocketChannel.configureBlocking(false);
 							final int localPort = _propertyConsultant.getIntProperty("wancom.port");
@@ -1026,7 +1175,7 @@ public class Server extends WanCom implements PropertyQueryInterface {
 					notifyWorker(actionType);
 				}
 			};
-			_timer.schedule(timerTask, delaySeconds * 1000L);
+			_worker.getTimer().schedule(timerTask, delaySeconds * 1000L);
 		}
 	}
 
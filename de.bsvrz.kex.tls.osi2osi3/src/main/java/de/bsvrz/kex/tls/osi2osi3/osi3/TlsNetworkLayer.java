@@ -260,17 +260,32 @@ public class TlsNetworkLayer implements NetworkLayer, NetworkLayerSender {
 	 * @param data   Telegramm/Nutzdaten für die Osi7 Schicht
 	 */
 	private void notifyReceive(int sender, byte[] data) {
+		// dataReceived(sender, data) gibt ein byte[] zurück.
+		// Wenn leeres byte[] => Keine lokale Verarbeitung
+		// Die Mindestgröße des Byte-Arrays sollte >= 9 sein
+		// OSI7 Telegramm (Allgemeiner Telegrammkopf (4 Bytes) + Einzeltelegrammkopf (5 Bytes)
+		// Die Prüfung und ggf. Weiterleitung erfolgt nur einmal je Telegramm und nicht für jeden Listener
+		final byte[] normalProcessingBytes;
+		try {
+			normalProcessingBytes = _telegramProcessor.dataReceived(sender, data);
+		}
+		catch(Exception e) {
+			String nl = System.getProperty("line.separator");
+			_debug.error(
+					"Ausnahme bei der Prüfung der Weiterleitung eines empfangenen Telegramms " + nl + "Exception: " + e + nl
+					+ "Knotennummer Absender: " + sender + nl + "data: " + HexDumper.toString(data) + "Langtelegramm: false",
+					e
+			);
+			e.printStackTrace();
+			return;
+		}
+		if(normalProcessingBytes.length < 9) return;
 		synchronized(_networkLayerListeners) {
 			Iterator iterator = _networkLayerListeners.iterator();
 			while(iterator.hasNext()) {
 				NetworkLayerListener listener = ((NetworkLayerListener)iterator.next());
 				try {
-					// dataReceived(sender, data) gibt ein byte[] zurück.
-					// Wenn leeres byte[] => Keine lokale Verarbeitung
-					// Die Mindestgröße des Byte-Arrays sollte >= 9 sein
-					// OSI7 Telegramm (Allgemeiner Telegrammkopf (4 Bytes) + Einzeltelegrammkopf (5 Bytes)
-					final byte[] normalProcessingBytes = _telegramProcessor.dataReceived(sender, data);
-					if(normalProcessingBytes.length >= 9) listener.dataReceived(sender, normalProcessingBytes, false);
+					listener.dataReceived(sender, normalProcessingBytes, false);
 				}
 				catch(Exception e) {
 					String nl = System.getProperty("line.separator");
@@ -243,6 +243,24 @@ public class RedirectionInfo {
     }
 	
 	
+	/**
+	 * Erzeugt eine vorberechnete Tabelle für die Behandlung der empfangenen Telegramme.
+	 *
+	 * @return Unveränderliche Weiterleitungstabelle mit dem aktuellen Stand der Empfangseinträge
+	 */
+	RedirectionTable createReceiveTable() {
+		return RedirectionTable.create(_receiveEntries, _receiveNoNormalProcessing);
+	}
+
+	/**
+	 * Erzeugt eine vorberechnete Tabelle für die Behandlung der zu sendenden Telegramme.
+	 *
+	 * @return Unveränderliche Weiterleitungstabelle mit dem aktuellen Stand der Sendeeinträge
+	 */
+	RedirectionTable createSendTable() {
+		return RedirectionTable.create(_sendEntries, _sendNotToPrimalTarget);
+	}
+
 	/**
 	 * Gibt alle gespeicherten Einträge aus.
 	 * 
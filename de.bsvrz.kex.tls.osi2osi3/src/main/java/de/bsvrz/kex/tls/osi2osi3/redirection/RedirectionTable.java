@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ * 
+ * This file is part of de.bsvrz.kex.tls.osi2osi3.
+ * 
+ * de.bsvrz.kex.tls.osi2osi3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * de.bsvrz.kex.tls.osi2osi3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.kex.tls.osi2osi3.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436 
+ * mail: <info@kappich.de>
+ */
+package de.bsvrz.kex.tls.osi2osi3.redirection;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Vorberechnete Weiterleitungstabelle für eine Richtung (Empfang oder Versand). Die Tabelle wird einmalig aus den
+ * Einträgen einer {@link RedirectionInfo} erzeugt und ist danach unveränderlich. Die Suche nach der Knotennummer erfolgt
+ * über eine Hashtabelle mit offener Adressierung auf einem <code>int</code>-Feld, die Funktionsgruppe wird direkt als
+ * Index verwendet. Einträge für die Funktionsgruppe 255 (alle Funktionsgruppen) sind bereits bei der Erzeugung in die
+ * Einträge der einzelnen Funktionsgruppen eingerechnet. Bei der Abfrage werden daher keine Objekte erzeugt.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class RedirectionTable {
+
+	/** Leere Tabelle ohne Einträge. */
+	static final RedirectionTable EMPTY = new RedirectionTable(new int[1], new NodeEntry[1]);
+
+	/** Knotennummern der Hashtabelle, gültig nur an Positionen, an denen in {@link #_nodeEntries} ein Eintrag steht. */
+	private final int[] _nodeNumbers;
+
+	/** Einträge je Knotennummer, <code>null</code> für unbenutzte Positionen der Hashtabelle. */
+	private final NodeEntry[] _nodeEntries;
+
+	private final int _mask;
+
+	private RedirectionTable(final int[] nodeNumbers, final NodeEntry[] nodeEntries) {
+		_nodeNumbers = nodeNumbers;
+		_nodeEntries = nodeEntries;
+		_mask = nodeNumbers.length - 1;
+	}
+
+	/**
+	 * Erzeugt eine Tabelle aus den Einträgen einer Richtung der {@link RedirectionInfo}.
+	 *
+	 * @param entries            Map mit den Konvertern und Zielen je Knoten-Funktionsgruppen-Paar.
+	 * @param noNormalProcessing Knoten-Funktionsgruppen-Paare, für die keine normale Behandlung erfolgen soll.
+	 *
+	 * @return Unveränderliche Weiterleitungstabelle
+	 */
+	static RedirectionTable create(
+			final Map<NodeFgPair, Map<Osi7SingleTelegramConverter, Set<Integer>>> entries, final Set<NodeFgPair> noNormalProcessing) {
+		if(entries.isEmpty() && noNormalProcessing.isEmpty()) return EMPTY;
+		int capacity = 2;
+		while(capacity < (entries.size() + noNormalProcessing.size()) * 2) capacity <<= 1;
+		final RedirectionTable table = new RedirectionTable(new int[capacity], new NodeEntry[capacity]);
+		// Zuerst die Einträge für alle Funktionsgruppen, damit sie anschließend von speziellen Einträgen überschrieben werden
+		for(Map.Entry<NodeFgPair, Map<Osi7SingleTelegramConverter, Set<Integer>>> entry : entries.entrySet()) {
+			final NodeFgPair nodeFgPair = entry.getKey();
+			final NodeEntry nodeEntry = table.getOrCreateNode(nodeFgPair.getNodenumber());
+			if(nodeFgPair.getFg() == 255) nodeEntry.setRedirectionForAllFgs(new Redirection(entry.getValue()));
+		}
+		for(Map.Entry<NodeFgPair, Map<Osi7SingleTelegramConverter, Set<Integer>>> entry : entries.entrySet()) {
+			final NodeFgPair nodeFgPair = entry.getKey();
+			if(nodeFgPair.getFg() != 255) table.getOrCreateNode(nodeFgPair.getNodenumber()).setRedirection(nodeFgPair.getFg(), new Redirection(entry.getValue()));
+		}
+		for(NodeFgPair nodeFgPair : noNormalProcessing) {
+			table.getOrCreateNode(nodeFgPair.getNodenumber()).setNoNormalProcessing(nodeFgPair.getFg());
+		}
+		return table;
+	}
+
+	private NodeEntry getOrCreateNode(final int nodeNumber) {
+		int index = hash(nodeNumber) & _mask;
+		while(_nodeEntries[index] != null) {
+			if(_nodeNumbers[index] == nodeNumber) return _nodeEntries[index];
+			index = (index + 1) & _mask;
+		}
+		_nodeNumbers[index] = nodeNumber;
+		return _nodeEntries[index] = new NodeEntry();
+	}
+
+	/**
+	 * Bestimmt die Einträge zu einer Knotennummer.
+	 *
+	 * @param nodeNumber Knotennummer
+	 *
+	 * @return Einträge des Knotens oder <code>null</code>, wenn für den Knoten keine Weiterleitung und keine Unterdrückung
+	 *         der normalen Behandlung vorgesehen ist.
+	 */
+	NodeEntry getNode(final int nodeNumber) {
+		int index = hash(nodeNumber) & _mask;
+		NodeEntry nodeEntry;
+		while((nodeEntry = _nodeEntries[index]) != null) {
+			if(_nodeNumbers[index] == nodeNumber) return nodeEntry;
+			index = (index + 1) & _mask;
+		}
+		return null;
+	}
+
+	private static int hash(final int nodeNumber) {
+		final int h = nodeNumber * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** Einträge eines Knotens, indiziert über die Funktionsgruppe. */
+	static final class NodeEntry {
+
+		/** Weiterleitungen je Funktionsgruppe, <code>null</code>, wenn keine Weiterleitung erfolgt. */
+		private final Redirection[] _redirections = new Redirection[256];
+
+		/** <code>true</code> für Funktionsgruppen, die nicht normal behandelt werden sollen. */
+		private final boolean[] _noNormalProcessing = new boolean[256];
+
+		private void setRedirectionForAllFgs(final Redirection redirection) {
+			for(int fg = 0; fg < _redirections.length; fg++) {
+				_redirections[fg] = redirection;
+			}
+		}
+
+		private void setRedirection(final int fg, final Redirection redirection) {
+			_redirections[fg & 0xff] = redirection;
+		}
+
+		private void setNoNormalProcessing(final int fg) {
+			if(fg == 255) {
+				for(int i = 0; i < _noNormalProcessing.length; i++) {
+					_noNormalProcessing[i] = true;
+				}
+			}
+			else {
+				_noNormalProcessing[fg & 0xff] = true;
+			}
+		}
+
+		/**
+		 * @param fg Funktionsgruppe
+		 *
+		 * @return Weiterleitung für die Funktionsgruppe oder <code>null</code>, wenn keine Weiterleitung erfolgt.
+		 */
+		Redirection getRedirection(final int fg) {
+			return _redirections[fg];
+		}
+
+		/**
+		 * @param fg Funktionsgruppe
+		 *
+		 * @return <code>true</code>, wenn Telegramme dieser Funktionsgruppe normal behandelt werden sollen.
+		 */
+		boolean isNormalProcessing(final int fg) {
+			return !_noNormalProcessing[fg];
+		}
+	}
+
+	/**
+	 * Weiterleitung eines Einzeltelegramms. Enthält je Konverter die Zielknoten als <code>int</code>-Feld. Die
+	 * Reihenfolge der Konverter entspricht der Reihenfolge in der ursprünglichen Map.
+	 */
+	static final class Redirection {
+
+		private final Osi7SingleTelegramConverter[] _converters;
+
+		private final int[][] _destinations;
+
+		private final Map<Osi7SingleTelegramConverter, Set<Integer>> _map;
+
+		private Redirection(final Map<Osi7SingleTelegramConverter, Set<Integer>> map) {
+			_map = map;
+			_converters = new Osi7SingleTelegramConverter[map.size()];
+			_destinations = new int[map.size()][];
+			int i = 0;
+			for(Map.Entry<Osi7SingleTelegramConverter, Set<Integer>> entry : map.entrySet()) {
+				_converters[i] = entry.getKey();
+				final int[] destinations = new int[entry.getValue().size()];
+				int j = 0;
+				for(Integer destination : entry.getValue()) {
+					destinations[j++] = destination;
+				}
+				_destinations[i] = destinations;
+				i++;
+			}
+		}
+
+		/** @return Anzahl der Konverter (einschließlich <code>null</code> für die Weiterleitung ohne Konvertierung) */
+		int getNumberOfConverters() {
+			return _converters.length;
+		}
+
+		/**
+		 * @param index Index des Konverters
+		 *
+		 * @return Konverter oder <code>null</code>, wenn keine Konvertierung erfolgen soll.
+		 */
+		Osi7SingleTelegramConverter getConverter(final int index) {
+			return _converters[index];
+		}
+
+		/**
+		 * @param index Index des Konverters
+		 *
+		 * @return Zielknoten, an die das mit dem Konverter konvertierte Einzeltelegramm gesendet werden soll.
+		 */
+		int[] getDestinations(final int index) {
+			return _destinations[index];
+		}
+
+		/** @return Ursprüngliche Map von Konvertern auf Ziele (für Debugausgaben) */
+		Map<Osi7SingleTelegramConverter, Set<Integer>> getMap() {
+			return _map;
+		}
+	}
+}
@@ -36,14 +36,22 @@ import java.util.Set;
 
 /**
  * Klasse zum Verarbeiten der empfangenden und zu versendenden Telegramme.
+ * <p>
+ * Die Weiterleitungsinformationen werden beim Setzen einer neuen {@link RedirectionInfo} in unveränderliche
+ * {@link RedirectionTable Tabellen} übersetzt und gemeinsam atomar ausgetauscht. Telegramme, die keines der Einzeltelegramme
+ * betreffen, für die eine Weiterleitung oder Unterdrückung vorgesehen ist, werden ohne Zerlegung und ohne Erzeugung
+ * neuer Objekte durchgereicht.
  * 
  * @author Kappich Systemberatung
  * @version $Revision$
  * 
  */
 public class TelegramProcessor {
+
+	private static final byte[] NO_LOCAL_PROCESSING = new byte[0];
 	
-	private RedirectionInfo _redirectionInfo = null;
+	/** Aktuelle Weiterleitungstabellen oder <code>null</code>, wenn keine Weiterleitungsinformationen vorhanden sind. */
+	private volatile Tables _tables = null;
 	
 	private final NetworkLayerSender _networkLayer;
 	
@@ -66,7 +74,13 @@ public class TelegramProcessor {
 	public boolean dataToSend(int destination, byte[] data) {
 		// Wenn keine Informationen vorhanden sind, true zurückgeben
 		// Entspricht Verhaltem ohne Redirection-Mechanismus
-		if(_redirectionInfo == null) return true;
+		final Tables tables = _tables;
+		if(tables == null) return true;
+
+		final RedirectionTable.NodeEntry nodeEntry = tables._sendTable.getNode(destination);
+
+		// Schneller Weg: Kein Einzeltelegramm ist von Weiterleitung oder Unterdrückung betroffen
+		if(!isAffected(nodeEntry, data)) return (data[3] & 0xff) != 0;
 		
 		// Telegramm zerlegen
 		TelegramStructure telegramStructure = new TelegramStructure(data);
@@ -81,54 +95,17 @@ public class TelegramProcessor {
 		// Zerlegung in Einzeltelegramme
 		List<byte[]> singleTelegrams = telegramStructure.getSingleTelegrams();
 
-		Map<Osi7SingleTelegramConverter, Set<Integer>> sendRedirectionMap = null;
-		
 		for(int i = 0; i < singleTelegrams.size(); i++) {
 			byte[] singleTelegram = singleTelegrams.get(i);
 			int fg = telegramStructure.getFgFromSingleTelegram(singleTelegram);
 			_debug.fine("Bearbeite Einzeltelegramm von KNR, #, FG;  " + destination +", "+ i +", " + fg);
 			
-			if(_redirectionInfo.sendTelegramToPrimalTarget(destination, fg)) resultLocalTelegram.addSingleTelegram(singleTelegram);
+			if(nodeEntry == null || nodeEntry.isNormalProcessing(fg)) resultLocalTelegram.addSingleTelegram(singleTelegram);
 			
-			sendRedirectionMap = _redirectionInfo.getSendRedirectionMap(destination, fg);
+			final RedirectionTable.Redirection redirection = nodeEntry == null ? null : nodeEntry.getRedirection(fg);
 			
-			if(sendRedirectionMap != null){
-				
-				printOsi7TelegramConverters2Destinations(sendRedirectionMap);
-				
-				for(Osi7SingleTelegramConverter osi7TelegramConverter : sendRedirectionMap.keySet()) {
-					// Alle Ziele für den Konverter
-					Set<Integer> redirectDestinations = sendRedirectionMap.get(osi7TelegramConverter);
-	                if(osi7TelegramConverter!=null){
-	                	singleTelegram = osi7TelegramConverter.convert(singleTelegram);
-	                }
-	                // Nach der Konvertierung kann ein leeres Byte-Array zurückgegeben werden
-	                // Um Telegramme mit 0 DE-Blöcken zu vermeiden muss das Einzeltelegramm mehr als 5 Bytes haben
-	                if (singleTelegram.length>7){
-	                
-	                	// Wenn das Einzeltelegramm nur einem DE-Block besteht und der Daten-Endgeräte-Kanal (DE) = 255
-	                	// gesetzt ist (z.B. Zeitstempel) soll der Versand unterdrückt werden
-	                	if(((singleTelegram[4]&0xff)==1) && ((singleTelegram[6]&0xff)==255)){
-	                		// Telegramm verwerfen
-	                	}
-	                	else{
-	                		TelegramStructure telegramToSend = new TelegramStructure(nodeNumber);
-	                		
-	                		telegramToSend.addSingleTelegram(singleTelegram);
-	                		for(Integer redirectionDestination : redirectDestinations) {
-	                			_debug.fine("Sende an Ziel: " + redirectionDestination);
-	                			try {
-	                                _networkLayer.sendWithoutRedirection(redirectionDestination, NetworkLayer.PRIORITY_CLASS_1, telegramToSend.getTelegramBytes(), false);
-                                }
-                                catch(DestinationUnreachableException e) {
-                                	_debug.warning("Senden an das Ziel " + redirectionDestination + " fehlgeschlagen!"
-                                			, e
-                                			);
-                                }
-	                		}
-	                	}
-	                }	                
-                }
+			if(redirection != null){
+				redirect(nodeNumber, singleTelegram, redirection);
 			}
 		}
 
@@ -152,6 +129,79 @@ public class TelegramProcessor {
 		return true;
 	}
 
+	/**
+	 * Prüft ohne Zerlegung des Telegramms, ob mindestens ein Einzeltelegramm weitergeleitet oder nicht normal behandelt
+	 * werden muss. Telegramme, deren Aufbau nicht der erwarteten Struktur entspricht, werden als betroffen gemeldet, damit
+	 * sie wie bisher über die vollständige Zerlegung behandelt werden.
+	 *
+	 * @param nodeEntry Einträge des Knotens oder <code>null</code>, wenn für den Knoten keine Einträge vorhanden sind.
+	 * @param data      Bytearray OSI 7 Telegramm Daten.
+	 *
+	 * @return <code>true</code>, wenn das Telegramm vollständig zerlegt und behandelt werden muss.
+	 */
+	private static boolean isAffected(final RedirectionTable.NodeEntry nodeEntry, final byte[] data) {
+		if(data.length < 4) return true;
+		final int count = data[3] & 0xff;
+		int offset = 4;
+		for(int i = 0; i < count; i++) {
+			if(offset + 1 >= data.length) return true;
+			if(nodeEntry != null) {
+				final int fg = data[offset + 1] & 0xff;
+				if(!nodeEntry.isNormalProcessing(fg) || nodeEntry.getRedirection(fg) != null) return true;
+			}
+			offset += 1 + (data[offset] & 0xff);
+		}
+		return offset != data.length;
+	}
+
+	/**
+	 * Leitet ein Einzeltelegramm an die Ziele einer Weiterleitung weiter. Für jeden Konverter wird das Telegramm
+	 * einmal erzeugt und an alle zugehörigen Ziele versendet.
+	 *
+	 * @param nodeNumber     Knotennummer des OSI7-Telegramms
+	 * @param singleTelegram Einzeltelegramm
+	 * @param redirection    Weiterleitung für die Funktionsgruppe des Einzeltelegramms
+	 */
+	private void redirect(final int nodeNumber, byte[] singleTelegram, final RedirectionTable.Redirection redirection) {
+		printOsi7TelegramConverters2Destinations(redirection.getMap());
+
+		for(int c = 0; c < redirection.getNumberOfConverters(); c++) {
+			final Osi7SingleTelegramConverter osi7TelegramConverter = redirection.getConverter(c);
+			// Alle Ziele für den Konverter
+			final int[] redirectDestinations = redirection.getDestinations(c);
+			if(osi7TelegramConverter!=null){
+				singleTelegram = osi7TelegramConverter.convert(singleTelegram);
+			}
+			// Nach der Konvertierung kann ein leeres Byte-Array zurückgegeben werden
+			// Um Telegramme mit 0 DE-Blöcken zu vermeiden muss das Einzeltelegramm mehr als 5 Bytes haben
+			if (singleTelegram.length>7){
+
+				// Wenn das Einzeltelegramm nur einem DE-Block besteht und der Daten-Endgeräte-Kanal (DE) = 255
+				// gesetzt ist (z.B. Zeitstempel) soll der Versand unterdrückt werden
+				if(((singleTelegram[4]&0xff)==1) && ((singleTelegram[6]&0xff)==255)){
+					// Telegramm verwerfen
+				}
+				else{
+					TelegramStructure telegramToSend = new TelegramStructure(nodeNumber);
+
+					telegramToSend.addSingleTelegram(singleTelegram);
+					final byte[] telegramBytes = telegramToSend.getTelegramBytes();
+					for(int redirectionDestination : redirectDestinations) {
+						_debug.fine("Sende an Ziel: " + redirectionDestination);
+						try {
+							_networkLayer.sendWithoutRedirection(redirectionDestination, NetworkLayer.PRIORITY_CLASS_1, telegramBytes, false);
+						}
+						catch(DestinationUnreachableException e) {
+							_debug.warning("Senden an das Ziel " + redirectionDestination + " fehlgeschlagen!"
+									, e
+							);
+						}
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Debugausgabe, die die Zielknotennummern zu den Konvertern ausgibt.
      * @param sendRedirectionMap
@@ -172,6 +222,7 @@ public class TelegramProcessor {
 	 * Prüfung, ob ein empfangenes Telegramm auch lokal verarbeitet werden soll.
 	 * Gibt ein Bytearray zurück, das die lokal zu verarbeitenden Bytes enthält.
 	 * Dieses Array ist leer, falls keine lokale Verarbeitung erfolgen soll.
+	 * Wenn das Telegramm unverändert lokal verarbeitet werden soll, wird das übergebene Array selbst zurückgegeben.
 	 * 
 	 * @param sender
 	 *            Knotennummer, von der das Telegramm geschickt wurde.
@@ -182,7 +233,13 @@ public class TelegramProcessor {
 	public byte[] dataReceived(int sender, byte[] data) {
 		// Wenn keine Informationen vorhanden sind, true zurückgeben
 		// Entspricht Verhaltem ohne Redirection-Mechanismus
-		if(_redirectionInfo == null) return data;
+		final Tables tables = _tables;
+		if(tables == null) return data;
+
+		final RedirectionTable.NodeEntry nodeEntry = tables._receiveTable.getNode(sender);
+
+		// Schneller Weg: Kein Einzeltelegramm ist von Weiterleitung oder Unterdrückung betroffen
+		if(!isAffected(nodeEntry, data)) return (data[3] & 0xff) == 0 ? NO_LOCAL_PROCESSING : data;
 		
 		// Telegramm zerlegen
 		TelegramStructure telegramStructure = new TelegramStructure(data);
@@ -198,67 +255,51 @@ public class TelegramProcessor {
 		// Zerlegung in Einzeltelegramme
 		List<byte[]> singleTelegrams = telegramStructure.getSingleTelegrams();
 
-		Map<Osi7SingleTelegramConverter, Set<Integer>> receiveRedirectionMap = null;
-		
 		for(int i = 0; i < singleTelegrams.size(); i++) {
 			byte[] singleTelegram = singleTelegrams.get(i);
 			int fg = telegramStructure.getFgFromSingleTelegram(singleTelegram);
 			_debug.fine("Bearbeite Einzeltelegramm von KNR, #, FG;  " + sender +", "+ i +", " + fg);
 			
-			if(_redirectionInfo.receivedTelegramNormalProcessing(sender, fg)) resultLocalTelegram.addSingleTelegram(singleTelegram);
+			if(nodeEntry == null || nodeEntry.isNormalProcessing(fg)) resultLocalTelegram.addSingleTelegram(singleTelegram);
 			
-			receiveRedirectionMap = _redirectionInfo.getReceiveRedirectionMap(sender, fg);
+			final RedirectionTable.Redirection redirection = nodeEntry == null ? null : nodeEntry.getRedirection(fg);
 			
-			if(receiveRedirectionMap != null){
-				
-				printOsi7TelegramConverters2Destinations(receiveRedirectionMap);
-				
-				for(Osi7SingleTelegramConverter osi7TelegramConverter : receiveRedirectionMap.keySet()) {
-					// Alle Ziele für den Konverter
-					Set<Integer> redirectDestinations = receiveRedirectionMap.get(osi7TelegramConverter);
-	                if(osi7TelegramConverter!=null){
-	                	singleTelegram = osi7TelegramConverter.convert(singleTelegram);
-	                }
-	                // Nach der Konvertierung kann ein leeres Byte-Array zurückgegeben werden
-	                // Um Telegramme mit 0 DE-Blöcken zu vermeiden muss das Einzeltelegramm mehr als 5 Bytes haben
-	                if (singleTelegram.length>7){
-	                	// Wenn das Einzeltelegramm nur einem DE-Block besteht und der Daten-Endgeräte-Kanal (DE) = 255
-	                	// gesetzt ist (z.B. Zeitstempel) soll der Versand unterdrückt werden
-	                	if(((singleTelegram[4]&0xff)==1) && ((singleTelegram[6]&0xff)==255)){
-	                		// Telegramm verwerfen
-	                	}
-	                	else{
-	                		TelegramStructure telegramToSend = new TelegramStructure(nodeNumber);
-	                		
-	                		telegramToSend.addSingleTelegram(singleTelegram);
-	                		for(Integer redirectionDestination : redirectDestinations) {
-	                			_debug.fine("Sende an Ziel: " + redirectionDestination);
-	                			try {
-	                                _networkLayer.sendWithoutRedirection(redirectionDestination, NetworkLayer.PRIORITY_CLASS_1, telegramToSend.getTelegramBytes(), false);
-                                }
-                                catch(DestinationUnreachableException e) {
-                                	_debug.warning("Senden an das Ziel " + redirectionDestination + " fehlgeschlagen!"
-                                			, e
-                                			);
-                                }
-	                		}
-	                	}
-	                }	                
-                }
+			if(redirection != null){
+				redirect(nodeNumber, singleTelegram, redirection);
 			}
 		}
 		
 		// Wenn kein Einzeltelegramm enthalten ist, leeres Byte-Array zurückgeben.
-		if (resultLocalTelegram.getNumberOfSingletelegrams()==0) return new byte[0];
+		if (resultLocalTelegram.getNumberOfSingletelegrams()==0) return NO_LOCAL_PROCESSING;
 		return resultLocalTelegram.getTelegramBytes();
 	}
 	
 	/**
-	 * Setzt die RedirectionInfo.
-	 * @param redirectionInfo
+	 * Setzt die RedirectionInfo. Aus den Informationen werden die Weiterleitungstabellen erzeugt, die anschließend
+	 * gemeinsam die bisherigen Tabellen ersetzen. Spätere Änderungen an der übergebenen RedirectionInfo werden nicht
+	 * berücksichtigt.
+	 * @param redirectionInfo Weiterleitungsinformationen oder <code>null</code>, wenn keine Weiterleitung erfolgen soll.
 	 */
 	public void setRedirectionInfo(RedirectionInfo redirectionInfo) {
-		_redirectionInfo = redirectionInfo;
+		if(redirectionInfo == null) {
+			_tables = null;
+		}
+		else {
+			_tables = new Tables(redirectionInfo.createReceiveTable(), redirectionInfo.createSendTable());
+		}
+	}
+
+	/** Zusammengehörige Weiterleitungstabellen für Empfang und Versand, die gemeinsam ausgetauscht werden. */
+	private static final class Tables {
+
+		private final RedirectionTable _receiveTable;
+
+		private final RedirectionTable _sendTable;
+
+		private Tables(final RedirectionTable receiveTable, final RedirectionTable sendTable) {
+			_receiveTable = receiveTable;
+			_sendTable = sendTable;
+		}
 	}
 	
 }
@@ -104,6 +104,17 @@ import java.util.*;
  * <p>
  * Beim Versenden von Datensätzen können diese mit Hilfe der Ausgabefunktion des Onlineprotokollierers ausgegeben werden.
  * <p>
+ * Mit dem Argument <code>-last=&lt;lastProfil&gt;</code> arbeitet der Datengenerator als Lastgenerator: Statt eines Threads pro Anmeldespezifikation versendet
+ * ein gemeinsamer Zeitgeber die Datensätze aller Anmeldespezifikationen mit der im Lastprofil vorgegebenen Rate in Blöcken von bis zu
+ * <code>-lastBlock</code> Datensätzen pro Sendeaufruf. Das Lastprofil besteht aus durch Komma getrennten Phasen mit konstanter Rate
+ * (<code>&lt;rate&gt;:&lt;dauer&gt;</code>), linear steigender oder fallender Rate (<code>&lt;startRate&gt;-&lt;endRate&gt;:&lt;dauer&gt;</code>) und
+ * Lastspitzen (<code>stoss:&lt;anzahl&gt;</code>), die Raten werden in Datensätzen pro Sekunde angegeben. Mit <code>-lastWiederholungen</code> kann das
+ * Profil mehrfach durchlaufen werden, <code>-lastTakt</code> legt den Takt des Zeitgebers fest (Standard 1ms) und <code>-lastBericht</code> den Abstand von
+ * Zwischenberichten. Die Zyklus-, Spreizungs- und Zeitstempelangaben der Anmeldespezifikationen werden in diesem Modus nicht ausgewertet. Am Ende des Laufs
+ * werden die erreichte Rate und Perzentile der Dauer der Sendeaufrufe ausgegeben. Beispiel: <blockquote><code> java
+ * de.bsvrz.pat.datgen.generator.main.DataGenerator -ausgabe=nein -last=100-5000:30s,5000:2m,stoss:20000,0:10s -rolle=quelle -objekte=vrz.aachen:MQ
+ * -daten=atg.verkehrswerte:asp.analyseWerte </code></blockquote>
+ * <p>
  * Beim Erzeugen von Daten berücksichtigt der Datengenerator die im Metamodell angegebenen Wertebereichsgrenzen. Ansonsten sind die erzeugten Daten im
  * wesentlichen zufällig, d.h. aus fachlicher Sicht i.a. nicht sinnvoll.
  *
@@ -153,9 +164,22 @@ public class DataGenerator implements ClientSenderInterface {
 		 * @throws de.bsvrz.dav.daf.main.DataNotSubscribedException wenn für die bei der Konfiguration angeforderten Daten keine Anmeldung vorliegt.
 		 */
 		public void push(Object object) throws ConfigurationException, DataNotSubscribedException {
+			send((ResultData[])object);
+		}
 
-			ResultData[] results = (ResultData[])object;
-			List resultsToSendList = new LinkedList();
+		/**
+		 * Sendet die Datensätze, für die eine positive Sendesteuerung vorliegt, und protokolliert sie.
+		 *
+		 * @param results Zu sendende Datensätze
+		 *
+		 * @return Anzahl der gesendeten Datensätze. Datensätze, für die keine positive Sendesteuerung vorliegt, werden verworfen und nicht mitgezählt.
+		 *
+		 * @throws ConfigurationException     wenn bei der Kommunikation mit der Konfiguration ein Problem auftritt.
+		 * @throws de.bsvrz.dav.daf.main.DataNotSubscribedException wenn für die bei der Konfiguration angeforderten Daten keine Anmeldung vorliegt.
+		 */
+		static int send(ResultData[] results) throws ConfigurationException, DataNotSubscribedException {
+
+			List<ResultData> resultsToSendList = new LinkedList<ResultData>();
 			ResultData[] resultsToSend;
 
 			synchronized(registeredObjects) {
@@ -165,7 +189,7 @@ public class DataGenerator implements ClientSenderInterface {
 					}
 				}
 				if(resultsToSendList.size() > 0) {
-					resultsToSend = (ResultData[])resultsToSendList.toArray(new ResultData[0]);
+					resultsToSend = resultsToSendList.toArray(new ResultData[resultsToSendList.size()]);
 
 					pmc.getProtocoller().update(resultsToSend);
 					if(!isAutarkic) {
@@ -193,9 +217,11 @@ public class DataGenerator implements ClientSenderInterface {
 						}
 						catch(SendSubscriptionNotConfirmed e) {
 							debug.error(e.getMessage());
+							return 0;
 						}
 					}
 				}
+				return resultsToSendList.size();
 			}
 		}
 	}
@@ -221,6 +247,18 @@ public class DataGenerator implements ClientSenderInterface {
 	/** Gibt an, ober der Datengenerator Sendesteuerung wünscht oder nicht. */
 	private static boolean hasSendControl = false;
 
+	/** Lastprofil, falls der Datengenerator als Lastgenerator arbeiten soll, sonst <code>null</code> */
+	private static LoadProfile loadProfile = null;
+
+	/** Maximale Anzahl Datensätze pro Sendeaufruf des Lastgenerators */
+	private static int loadBatchSize;
+
+	/** Takt des Lastgenerators in Nanosekunden */
+	private static long loadTickNanos;
+
+	/** Abstand der Zwischenberichte des Lastgenerators in Nanosekunden oder 0 */
+	private static long loadReportInterval;
+
 
 	/**
 	 * Erzeugt einen neuen Datengenerator, der Daten aus einer XML-Protokolldatei einliest und als Datentelegramme versendet
@@ -277,7 +315,11 @@ public class DataGenerator implements ClientSenderInterface {
 		while(infoIterator.hasNext()) {
 			SubscriptionInfo subscriptionInfo = (SubscriptionInfo)infoIterator.next();
 
-			new Thread(new DataCycler(connection, subscriptionInfo), "DatenGenerator").start();
+			DataCycler dataCycler = new DataCycler(connection, subscriptionInfo);
+			synchronized(sendQueue) {
+				numberOfThreads++;
+			}
+			new Thread(dataCycler, "DatenGenerator").start();
 		}
 		synchronized(sendQueue) {
 			while(numberOfThreads > 0) {
@@ -288,6 +330,36 @@ public class DataGenerator implements ClientSenderInterface {
 		connection.disconnect(false, "ciao");
 	}
 
+	/**
+	 * Erzeugt einen neuen Datengenerator, der als Lastgenerator Zufallsdaten nach einem Lastprofil versendet. Für jedes Objekt wird einmal ein Datensatz mit
+	 * Zufallsdaten erzeugt, der dann wiederholt versendet wird.
+	 *
+	 * @param parameters        {@link ClientDavParameters} der Applikation
+	 * @param subscriptionInfos {@link List}e der anzumeldenden Daten
+	 * @param profile           Lastprofil
+	 *
+	 * @throws Exception bei Problemen
+	 */
+	private DataGenerator(ClientDavParameters parameters, List<?> subscriptionInfos, LoadProfile profile) throws Exception {
+		register(subscriptionInfos);
+		List<ResultData> templates = new ArrayList<ResultData>();
+		for(Object subscriptionInfo : subscriptionInfos) {
+			templates.addAll(Arrays.asList(new DataCycler(connection, (SubscriptionInfo)subscriptionInfo).createRandomResults()));
+		}
+		long startDelay = Math.max(0, waitForDataRequests - System.currentTimeMillis()) * 1000000L;
+		LoadGenerator.Sender sender = new LoadGenerator.Sender() {
+			public int send(final ResultData[] results) throws Exception {
+				return QueueSurrogate.send(results);
+			}
+		};
+		LoadGenerator loadGenerator = new LoadGenerator(
+				templates.toArray(new ResultData[templates.size()]), sender, profile, loadBatchSize, loadTickNanos, startDelay, loadReportInterval
+		);
+		loadGenerator.run();
+		debug.info("Verbindung wird terminiert");
+		connection.disconnect(false, "ciao");
+	}
+
 	/**
 	 * Anmeldungen durchgehen und den Wunsch nach Sendesteuerung entsprechend setzen. Sind keine Objekte angegeben, wird die Auswertung auf einen späteren
 	 * Zeitpunkt verschoben. Sonst gilt die Regel, daß generell keine Sendesteuerung gewünscht wird, außer es ist mindestens ein Sender vorhanden.
@@ -465,6 +537,20 @@ public class DataGenerator implements ClientSenderInterface {
 				isSendControlValid = false;
 			}
 
+			if(argumentList.hasArgument("-last")) {
+				if(!isGenerator) {
+					throw new IllegalArgumentException("Der Lastgenerator kann nicht zusammen mit -eingabe benutzt werden");
+				}
+				String profileText = argumentList.fetchArgument("-last").asNonEmptyString();
+				int repetitions = argumentList.fetchArgument("-lastWiederholungen=1").intValueBetween(1, Integer.MAX_VALUE);
+				loadProfile = new LoadProfile(profileText, repetitions);
+				loadBatchSize = argumentList.fetchArgument("-lastBlock=100").intValueBetween(1, 100000);
+				loadTickNanos = argumentList.fetchArgument("-lastTakt=1ms").asRelativeTime() * 1000000L;
+				if(loadTickNanos <= 0) {
+					throw new IllegalArgumentException("Der Takt des Lastgenerators muss mindestens 1ms betragen");
+				}
+				loadReportInterval = argumentList.fetchArgument("-lastBericht=0s").asRelativeTime() * 1000000L;
+			}
 
 			subscriptions = dkd.getDataKinds(argumentList);
 			argumentList.ensureAllArgumentsUsed();
@@ -494,6 +580,13 @@ public class DataGenerator implements ClientSenderInterface {
 			debug.error("-datei: Name der Protokolldatei");
 			debug.error("-autark: Die erzeugten Daten werden nicht an den DaV gesendet");
 			debug.error("-sendesteuerung: \"ja\", falls Sendesteuerung erwünscht, sonst \"nein\".");
+			debug.error(
+					"-last: Lastprofil des Lastgenerators als durch Komma getrennte Phasen <rate>:<dauer>, <startRate>-<endRate>:<dauer> oder stoss:<anzahl>, Raten in Datensätzen pro Sekunde"
+			);
+			debug.error("-lastWiederholungen: Anzahl der Durchläufe des Lastprofils (Standard 1)");
+			debug.error("-lastBlock: Maximale Anzahl Datensätze pro Sendeaufruf des Lastgenerators (Standard 100)");
+			debug.error("-lastTakt: Takt des Lastgenerators als Zeitangabe (Standard 1ms)");
+			debug.error("-lastBericht: Abstand der Zwischenberichte des Lastgenerators als Zeitangabe oder 0s für nur einen Abschlussbericht (Standard 0s)");
 			if(pmc != null) {
 				debug.error(pmc.getHelp());
 			}
@@ -520,7 +613,10 @@ public class DataGenerator implements ClientSenderInterface {
 		}
 
 		try {
-			if(isGenerator) {
+			if(isGenerator && loadProfile != null) {
+				application = new DataGenerator(parameters, subscriptions, loadProfile);
+			}
+			else if(isGenerator) {
 				application = new DataGenerator(parameters, subscriptions);
 			}
 			else {
@@ -687,9 +783,6 @@ public class DataGenerator implements ClientSenderInterface {
 		DataCycler(ClientDavInterface connection, SubscriptionInfo info) throws Exception {
 			_connection = connection;
 			_info = info;
-			synchronized(sendQueue) {
-				numberOfThreads++;
-			}
 			_typeType = _connection.getDataModel().getTypeTypeObject();
 		}
 
@@ -894,6 +987,27 @@ public class DataGenerator implements ClientSenderInterface {
 			return new ResultData(object, dd, 0L, data);
 		}
 
+		/**
+		 * Erzeugt für jedes Objekt der Anmeldespezifikation einen Datensatz mit Zufallsdaten. Wird vom {@link LoadGenerator Lastgenerator} benutzt, der diese
+		 * Datensätze als Vorlagen wiederholt versendet.
+		 *
+		 * @return Datensätze in der Reihenfolge der Objekte
+		 *
+		 * @throws Exception wenn beim Erzeugen der Datensätze ein Problem auftritt
+		 */
+		ResultData[] createRandomResults() throws Exception {
+			String[] dataSpecs = _info.getSplittedData(":", 3);
+			AttributeGroup atg = dataModel.getAttributeGroup(dataSpecs[0]);
+			ResultData[] results = new ResultData[_info.getObjects().size()];
+			int objectIndex = 0;
+			for(Object object : _info.getObjects()) {
+				Data data = _connection.createData(atg);
+				setRandomData(data);
+				results[objectIndex++] = createResult((SystemObject)object, data);
+			}
+			return results;
+		}
+
 		/**
 		 * Neue Daten generieren
 		 *
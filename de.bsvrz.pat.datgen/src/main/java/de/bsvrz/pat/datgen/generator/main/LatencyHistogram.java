@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.datgen.
+ *
+ * de.bsvrz.pat.datgen is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.datgen is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.datgen.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.datgen.generator.main;
+
+/**
+ * Histogramm für Zeitdauern in Nanosekunden mit fester Größe. Die Werte werden logarithmisch in Klassen eingeteilt, jede Zweierpotenz ist in 128 Unterklassen
+ * geteilt. Perzentile werden dadurch mit einem relativen Fehler von weniger als einem Prozent ermittelt, unabhängig von der Anzahl der erfassten Werte.
+ * <p>
+ * Die Klasse ist nicht threadsicher.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private final long[] _counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT];
+
+	private long _count = 0;
+
+	private long _sum = 0;
+
+	private long _max = 0;
+
+	/**
+	 * Erfasst einen Wert.
+	 *
+	 * @param nanos Zeitdauer in Nanosekunden, negative Werte werden als 0 erfasst
+	 */
+	void record(final long nanos) {
+		final long value = Math.max(0, nanos);
+		_counts[indexOf(value)]++;
+		_count++;
+		_sum += value;
+		if(value > _max) _max = value;
+	}
+
+	private static int indexOf(final long value) {
+		if(value < SUB_BUCKET_COUNT) return (int)value;
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/** Größter Wert, der in die Klasse mit dem angegebenen Index fällt */
+	private static long highestValueOf(final int index) {
+		if(index < SUB_BUCKET_COUNT) return index;
+		final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		final long subBucket = index % SUB_BUCKET_COUNT;
+		final int shift = exponent - SUB_BUCKET_BITS;
+		return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Bestimmt ein Perzentil.
+	 *
+	 * @param percent Prozentwert zwischen 0 und 100
+	 *
+	 * @return Wert, den der angegebene Anteil der erfassten Werte nicht überschreitet, oder 0, falls keine Werte erfasst wurden
+	 */
+	long getPercentile(final double percent) {
+		if(_count == 0) return 0;
+		final long rank = Math.max(1, (long)Math.ceil(_count * percent / 100));
+		long seen = 0;
+		for(int i = 0; i < _counts.length; i++) {
+			seen += _counts[i];
+			if(seen >= rank) return Math.min(highestValueOf(i), _max);
+		}
+		return _max;
+	}
+
+	/**
+	 * Gibt die Anzahl der erfassten Werte zurück.
+	 *
+	 * @return Anzahl Werte
+	 */
+	long getCount() {
+		return _count;
+	}
+
+	/**
+	 * Gibt den Mittelwert der erfassten Werte zurück.
+	 *
+	 * @return Mittelwert in Nanosekunden oder 0, falls keine Werte erfasst wurden
+	 */
+	long getMean() {
+		return _count == 0 ? 0 : _sum / _count;
+	}
+
+	/**
+	 * Gibt den größten erfassten Wert zurück.
+	 *
+	 * @return Maximum in Nanosekunden
+	 */
+	long getMax() {
+		return _max;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram{" + "count=" + _count + ", mean=" + getMean() + ", max=" + _max + "}";
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.datgen.
+ *
+ * de.bsvrz.pat.datgen is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.datgen is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.datgen.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.datgen.generator.main;
+
+import de.bsvrz.dav.daf.main.ResultData;
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Lastgenerator des Datengenerators. Statt eines Threads pro Anmeldespezifikation, der zwischen den Zyklen schläft, wird ein gemeinsames {@link TimerWheel
+ * Zeitrad} benutzt, das in jedem Takt die laut {@link LoadProfile Lastprofil} fälligen Datensätze in Blöcken von höchstens <code>batchSize</code>
+ * Datensätzen an die Sendeschnittstelle übergibt. Die Anzahl der fälligen Datensätze wird aus der seit dem Start vergangenen Zeit berechnet, dadurch bleibt
+ * die Rate auch über lange Läufe genau und ein Rückstand wird in den folgenden Takten aufgeholt.
+ * <p>
+ * Die Datensätze werden reihum aus den vorher erzeugten Vorlagen (ein Datensatz pro Objekt und Anmeldespezifikation) gebildet. Für jeden Sendeaufruf
+ * entsteht ein neuer Ergebnisdatensatz mit aktuellem Datenzeitstempel, der die Daten der Vorlage übernimmt. Die Vorlagen selbst werden nicht verändert, da
+ * gesendete Datensätze z.B. noch von einem asynchronen Protokollierer ausgegeben werden können. Die Erzeugung der Zufallsdaten verfälscht dadurch nicht die
+ * Messung.
+ * <p>
+ * Für jeden Sendeaufruf wird die Dauer erfasst. Am Ende des Laufs werden die erreichte Rate und die Perzentile der Sendedauer ausgegeben, optional auch
+ * zwischendurch in festen Abständen.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class LoadGenerator {
+
+	/** Der Debug-Logger der Klasse */
+	private static final Debug debug = Debug.getLogger();
+
+	/** Maximale Zeit, die in einem Takt mit dem Aufholen eines Rückstands verbracht wird, bevor andere Aufträge des Zeitrads an der Reihe sind */
+	private static final long MAX_SEND_NANOS_PER_TICK = 100L * 1000 * 1000;
+
+	/** Vorlagen der zu sendenden Datensätze */
+	private final ResultData[] _templates;
+
+	/** Sendeschnittstelle des Datengenerators */
+	private final Sender _sender;
+
+	private final LoadProfile _profile;
+
+	/** Maximale Anzahl Datensätze pro Sendeaufruf */
+	private final int _batchSize;
+
+	/** Verzögerung des Profilbeginns ab Start des Zeitrads in Nanosekunden */
+	private final long _startDelay;
+
+	/** Abstand der Zwischenberichte in Nanosekunden oder 0 */
+	private final long _reportInterval;
+
+	private final TimerWheel _wheel;
+
+	/** Wird heruntergezählt, wenn das Profil abgearbeitet ist oder das Senden fehlgeschlagen ist */
+	private final CountDownLatch _finished = new CountDownLatch(1);
+
+	/** Dauer der Sendeaufrufe */
+	private final LatencyHistogram _latencies = new LatencyHistogram();
+
+	private TimerWheel.Timeout _sendTimeout;
+
+	/** Index der nächsten zu sendenden Vorlage */
+	private int _nextTemplate = 0;
+
+	/** Anzahl der Datensätze, die bisher zum Senden übergeben wurden. Bestimmt zusammen mit dem Profil, wie viele Datensätze fällig sind. */
+	private long _generated = 0;
+
+	/** Anzahl tatsächlich gesendeter Datensätze, ohne die Datensätze, die mangels Sendesteuerung verworfen wurden */
+	private long _sent = 0;
+
+	/** Anzahl der Sendeaufrufe */
+	private long _batches = 0;
+
+	/** Größte Anzahl Datensätze, die zu Beginn eines Takts fällig, aber noch nicht gesendet waren */
+	private long _maxBacklog = 0;
+
+	/** Zeitpunkt des Profilbeginns ({@link System#nanoTime()}) */
+	private long _profileStart = 0;
+
+	/** Zeitpunkt, zu dem alle Datensätze gesendet waren ({@link System#nanoTime()}) oder 0 */
+	private long _endTime = 0;
+
+	/** Anzahl gesendeter Datensätze beim letzten Zwischenbericht */
+	private long _sentAtLastReport = 0;
+
+	/** Zeitpunkt des letzten Zwischenberichts ({@link System#nanoTime()}) */
+	private long _lastReportTime = 0;
+
+	private boolean _failed = false;
+
+	/**
+	 * Erzeugt einen neuen Lastgenerator.
+	 *
+	 * @param templates      Vorlagen der zu sendenden Datensätze, die Daten der Vorlagen dürfen danach nicht mehr verändert werden
+	 * @param sender         Sendeschnittstelle
+	 * @param profile        Lastprofil
+	 * @param batchSize      Maximale Anzahl Datensätze pro Sendeaufruf
+	 * @param tickNanos      Takt des Zeitrads in Nanosekunden
+	 * @param startDelay     Verzögerung des Profilbeginns in Nanosekunden, z.B. um auf Sendesteuerungen zu warten
+	 * @param reportInterval Abstand der Zwischenberichte in Nanosekunden oder 0, falls nur am Ende berichtet werden soll
+	 */
+	LoadGenerator(
+			final ResultData[] templates,
+			final Sender sender,
+			final LoadProfile profile,
+			final int batchSize,
+			final long tickNanos,
+			final long startDelay,
+			final long reportInterval) {
+		if(templates.length == 0) throw new IllegalArgumentException("Keine Objekte für den Lastgenerator angegeben");
+		if(batchSize < 1) throw new IllegalArgumentException("Ungültige Blockgröße: " + batchSize);
+		_templates = templates;
+		_sender = sender;
+		_profile = profile;
+		// Jedes Objekt höchstens einmal pro Sendeaufruf, damit die Datensätze eines Aufrufs nicht dieselbe Vorlage teilen
+		_batchSize = Math.min(batchSize, templates.length);
+		_startDelay = Math.max(0, startDelay);
+		_reportInterval = reportInterval;
+		_wheel = new TimerWheel("Lastgenerator", tickNanos, 1024);
+	}
+
+	/**
+	 * Arbeitet das Lastprofil ab und gibt danach den Abschlussbericht aus. Die Methode kehrt erst zurück, wenn alle Datensätze gesendet wurden oder das Senden
+	 * fehlgeschlagen ist.
+	 *
+	 * @throws InterruptedException wenn der aufrufende Thread beim Warten unterbrochen wurde
+	 */
+	void run() throws InterruptedException {
+		debug.info(
+				"Lastgenerator: Profil " + _profile + ", " + _profile.getTotalCount() + " Datensätze in " + formatSeconds(_profile.getDuration()) + ", "
+				+ _templates.length + " Objekte, bis zu " + _batchSize + " Datensätze pro Sendeaufruf, Takt " + formatMillis(_wheel.getTickNanos())
+		);
+		_sendTimeout = _wheel.scheduleAtFixedRate(
+				new Runnable() {
+					public void run() {
+						sendDue();
+					}
+				}, _startDelay, _wheel.getTickNanos()
+		);
+		if(_reportInterval > 0) {
+			_wheel.scheduleAtFixedRate(
+					new Runnable() {
+						public void run() {
+							reportProgress();
+						}
+					}, _startDelay + _reportInterval, _reportInterval
+			);
+		}
+		_wheel.start();
+		try {
+			_finished.await();
+		}
+		finally {
+			_wheel.stop();
+		}
+		debug.info(createReport());
+	}
+
+	/** Sendet die im aktuellen Takt fälligen Datensätze. Wird im Thread des Zeitrads ausgeführt. */
+	private void sendDue() {
+		final long now = System.nanoTime();
+		if(_profileStart == 0) {
+			_profileStart = now;
+			_lastReportTime = now;
+		}
+		final long elapsed = now - _profileStart;
+		long due = _profile.getTargetCount(elapsed) - _generated;
+		if(due > _maxBacklog) _maxBacklog = due;
+		try {
+			while(due > 0) {
+				final int count = (int)Math.min(due, _batchSize);
+				sendBatch(count);
+				due -= count;
+				if(System.nanoTime() - now > MAX_SEND_NANOS_PER_TICK) break;
+			}
+		}
+		catch(Exception e) {
+			debug.error("Lastgenerator wird wegen eines Fehlers beim Senden beendet", e);
+			_failed = true;
+			finish();
+			return;
+		}
+		if(_generated >= _profile.getTotalCount() && elapsed >= _profile.getDuration()) {
+			finish();
+		}
+	}
+
+	private void sendBatch(final int count) throws Exception {
+		final ResultData[] batch = new ResultData[count];
+		final long dataTime = System.currentTimeMillis();
+		for(int i = 0; i < count; i++) {
+			final ResultData template = _templates[_nextTemplate];
+			batch[i] = new ResultData(template.getObject(), template.getDataDescription(), dataTime, template.getData());
+			if(++_nextTemplate == _templates.length) _nextTemplate = 0;
+		}
+		final long start = System.nanoTime();
+		final int sent = _sender.send(batch);
+		_latencies.record(System.nanoTime() - start);
+		_generated += count;
+		_sent += sent;
+		_batches++;
+	}
+
+	private void finish() {
+		_endTime = System.nanoTime();
+		_sendTimeout.cancel();
+		_finished.countDown();
+	}
+
+	/** Gibt einen Zwischenbericht aus. Wird im Thread des Zeitrads ausgeführt. */
+	private void reportProgress() {
+		if(_profileStart == 0) return;
+		final long now = System.nanoTime();
+		final long sent = _sent - _sentAtLastReport;
+		final long time = now - _lastReportTime;
+		debug.info(
+				"Lastgenerator: " + _sent + " von " + _profile.getTotalCount() + " Datensätzen gesendet, Rate " + formatRate(sent, time) + ", Rückstand "
+				+ Math.max(0, _profile.getTargetCount(now - _profileStart) - _generated) + " Datensätze, " + (_generated - _sent) + " verworfen"
+		);
+		_sentAtLastReport = _sent;
+		_lastReportTime = now;
+	}
+
+	/**
+	 * Erzeugt den Abschlussbericht. Darf erst aufgerufen werden, nachdem das Zeitrad beendet wurde.
+	 *
+	 * @return Bericht
+	 */
+	private String createReport() {
+		final long end = _endTime == 0 ? System.nanoTime() : _endTime;
+		final long duration = _profileStart == 0 ? 0 : end - _profileStart;
+		final String lineSeparator = System.getProperty("line.separator");
+		final StringBuilder report = new StringBuilder();
+		report.append(_failed ? "Lastgenerator abgebrochen" : "Lastgenerator beendet").append(": Profil ").append(_profile);
+		report.append(", Laufzeit ").append(formatSeconds(duration)).append(lineSeparator);
+		report.append("  Gesendet: ").append(_sent).append(" von ").append(_profile.getTotalCount()).append(" Datensätzen in ").append(_batches);
+		report.append(" Sendeaufrufen");
+		if(_generated > _sent) {
+			report.append(", ").append(_generated - _sent).append(" ohne Sendesteuerung verworfen");
+		}
+		report.append(lineSeparator);
+		report.append("  Erreichte Rate: ").append(formatRate(_sent, duration));
+		if(_profile.getDuration() > 0) {
+			report.append(" (Soll: ").append(formatRate(_profile.getTotalCount(), _profile.getDuration())).append(")");
+		}
+		report.append(lineSeparator);
+		report.append("  Dauer je Sendeaufruf: Mittel ").append(formatMillis(_latencies.getMean()));
+		report.append(", 50% ").append(formatMillis(_latencies.getPercentile(50)));
+		report.append(", 90% ").append(formatMillis(_latencies.getPercentile(90)));
+		report.append(", 99% ").append(formatMillis(_latencies.getPercentile(99)));
+		report.append(", 99,9% ").append(formatMillis(_latencies.getPercentile(99.9)));
+		report.append(", Max ").append(formatMillis(_latencies.getMax())).append(lineSeparator);
+		report.append("  Größter Rückstand: ").append(_maxBacklog).append(" Datensätze");
+		return report.toString();
+	}
+
+	private static String formatRate(final long count, final long nanos) {
+		if(nanos <= 0) return "- Datensätze/s";
+		return String.format("%.1f Datensätze/s", count * 1e9 / nanos);
+	}
+
+	private static String formatSeconds(final long nanos) {
+		return String.format("%.3f s", nanos / 1e9);
+	}
+
+	private static String formatMillis(final long nanos) {
+		return String.format("%.3f ms", nanos / 1e6);
+	}
+
+	@Override
+	public String toString() {
+		return "LoadGenerator{" + "profile=" + _profile + ", templates=" + _templates.length + ", batchSize=" + _batchSize + ", sent=" + _sent + "}";
+	}
+
+	/** Sendeschnittstelle des Lastgenerators */
+	interface Sender {
+
+		/**
+		 * Sendet die Datensätze eines Sendeaufrufs.
+		 *
+		 * @param results Zu sendende Datensätze
+		 *
+		 * @return Anzahl der tatsächlich gesendeten Datensätze, z.B. ohne Datensätze, für die keine positive Sendesteuerung vorliegt
+		 *
+		 * @throws Exception wenn beim Senden ein Fehler auftritt, der Lastgenerator wird dann beendet
+		 */
+		int send(ResultData[] results) throws Exception;
+	}
+}
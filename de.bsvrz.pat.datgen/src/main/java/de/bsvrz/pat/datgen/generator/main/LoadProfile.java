@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.datgen.
+ *
+ * de.bsvrz.pat.datgen is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.datgen is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.datgen.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.datgen.generator.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lastprofil des Lastgenerators. Ein Lastprofil besteht aus einer Folge von Phasen, die durch Komma getrennt angegeben werden:
+ * <ul>
+ * <li><code>&lt;rate&gt;:&lt;dauer&gt;</code> sendet für die angegebene Dauer gleichmäßig <code>rate</code> Datensätze pro Sekunde. Mit der Rate 0 kann eine
+ * Pause angegeben werden.</li>
+ * <li><code>&lt;startRate&gt;-&lt;endRate&gt;:&lt;dauer&gt;</code> ändert die Rate während der angegebenen Dauer linear von <code>startRate</code> auf
+ * <code>endRate</code> (Rampe).</li>
+ * <li><code>stoss:&lt;anzahl&gt;</code> sendet zu Beginn der Phase sofort <code>anzahl</code> Datensätze (Lastspitze). Die Phase hat keine Dauer.</li>
+ * </ul>
+ * Die Dauer wird als Folge von Zahlen und Einheiten (<code>h</code>, <code>m</code>, <code>s</code>, <code>ms</code>) angegeben, z.B. <code>1m30s</code>.
+ * Beispiel: <code>100-5000:30s,5000:2m,stoss:20000,0:10s</code>.
+ * <p>
+ * Aus dem Profil wird für jeden Zeitpunkt die Anzahl der bis dahin insgesamt zu sendenden Datensätze berechnet. Der Lastgenerator sendet in jedem Takt die
+ * Differenz zu den bereits gesendeten Datensätzen, so dass sich Rundungsfehler und Verzögerungen nicht aufsummieren.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class LoadProfile {
+
+	private static final Pattern RATE_PHASE = Pattern.compile("(\\d+(?:\\.\\d+)?)(?:-(\\d+(?:\\.\\d+)?))?:(.+)");
+
+	private static final Pattern BURST_PHASE = Pattern.compile("stoss:(\\d+)", Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern DURATION_PART = Pattern.compile("(\\d+)\\s*(ms|s|m|h)", Pattern.CASE_INSENSITIVE);
+
+	/** Startzeitpunkte der Phasen relativ zum Beginn des Profils in Nanosekunden */
+	private final long[] _startTimes;
+
+	/** Dauer der Phasen in Nanosekunden, 0 bei Lastspitzen */
+	private final long[] _durations;
+
+	/** Rate zu Beginn der Phasen in Datensätzen pro Sekunde bzw. Anzahl Datensätze bei Lastspitzen */
+	private final double[] _startRates;
+
+	/** Rate am Ende der Phasen in Datensätzen pro Sekunde */
+	private final double[] _endRates;
+
+	/** Anzahl der vor Beginn der jeweiligen Phase insgesamt zu sendenden Datensätze */
+	private final double[] _countsBefore;
+
+	/** Gesamtdauer in Nanosekunden */
+	private final long _duration;
+
+	/** Gesamtanzahl Datensätze */
+	private final long _totalCount;
+
+	/** Textuelle Beschreibung */
+	private final String _text;
+
+	/**
+	 * Erzeugt ein Lastprofil aus seiner textuellen Beschreibung.
+	 *
+	 * @param text        Beschreibung der Phasen, siehe Klassenbeschreibung
+	 * @param repetitions Anzahl der Durchläufe aller Phasen
+	 *
+	 * @throws IllegalArgumentException bei einer fehlerhaften Beschreibung
+	 */
+	LoadProfile(final String text, final int repetitions) {
+		if(repetitions < 1) throw new IllegalArgumentException("Ungültige Anzahl Wiederholungen: " + repetitions);
+		final List<double[]> phases = new ArrayList<double[]>();
+		for(final String phaseText : text.split(",")) {
+			phases.add(parsePhase(phaseText.trim()));
+		}
+		final int count = phases.size() * repetitions;
+		_startTimes = new long[count];
+		_durations = new long[count];
+		_startRates = new double[count];
+		_endRates = new double[count];
+		_countsBefore = new double[count];
+		long time = 0;
+		double total = 0;
+		for(int i = 0; i < count; i++) {
+			final double[] phase = phases.get(i % phases.size());
+			_startTimes[i] = time;
+			_durations[i] = (long)phase[0];
+			_startRates[i] = phase[1];
+			_endRates[i] = phase[2];
+			_countsBefore[i] = total;
+			time += _durations[i];
+			total += phaseCount(i, _durations[i]);
+		}
+		_duration = time;
+		_totalCount = (long)Math.floor(total + 1e-6);
+		_text = repetitions == 1 ? text : text + " (" + repetitions + "x)";
+	}
+
+	private static double[] parsePhase(final String phaseText) {
+		final Matcher burst = BURST_PHASE.matcher(phaseText);
+		if(burst.matches()) {
+			return new double[]{0, Long.parseLong(burst.group(1)), 0};
+		}
+		final Matcher rate = RATE_PHASE.matcher(phaseText);
+		if(!rate.matches()) {
+			throw new IllegalArgumentException("Ungültige Phase im Lastprofil: \"" + phaseText + "\"");
+		}
+		final double startRate = Double.parseDouble(rate.group(1));
+		final double endRate = rate.group(2) == null ? startRate : Double.parseDouble(rate.group(2));
+		final long duration = parseDuration(rate.group(3).trim());
+		if(duration <= 0) throw new IllegalArgumentException("Phase im Lastprofil ohne Dauer: \"" + phaseText + "\"");
+		return new double[]{duration, startRate, endRate};
+	}
+
+	/**
+	 * Wertet eine Zeitdauer wie <code>1m30s</code> aus.
+	 *
+	 * @param text Zeitdauer als Folge von Zahlen und Einheiten
+	 *
+	 * @return Dauer in Nanosekunden
+	 */
+	static long parseDuration(final String text) {
+		final Matcher matcher = DURATION_PART.matcher(text);
+		long millis = 0;
+		int end = 0;
+		while(matcher.find() && matcher.start() == end) {
+			final long number = Long.parseLong(matcher.group(1));
+			final String unit = matcher.group(2).toLowerCase();
+			if(unit.equals("h")) {
+				millis += number * 60 * 60 * 1000;
+			}
+			else if(unit.equals("m")) {
+				millis += number * 60 * 1000;
+			}
+			else if(unit.equals("s")) {
+				millis += number * 1000;
+			}
+			else {
+				millis += number;
+			}
+			end = matcher.end();
+		}
+		if(end == 0 || end != text.length()) throw new IllegalArgumentException("Ungültige Zeitdauer: \"" + text + "\"");
+		return millis * 1000000L;
+	}
+
+	/**
+	 * Anzahl der Datensätze, die innerhalb einer Phase bis zum angegebenen Zeitpunkt gesendet werden.
+	 *
+	 * @param phase   Index der Phase
+	 * @param elapsed Zeit seit Beginn der Phase in Nanosekunden, höchstens die Dauer der Phase
+	 *
+	 * @return Anzahl Datensätze (nicht gerundet)
+	 */
+	private double phaseCount(final int phase, final long elapsed) {
+		final long duration = _durations[phase];
+		if(duration == 0) return _startRates[phase];
+		final double seconds = elapsed / 1e9;
+		final double slope = (_endRates[phase] - _startRates[phase]) / (duration / 1e9);
+		return _startRates[phase] * seconds + slope * seconds * seconds / 2;
+	}
+
+	/**
+	 * Bestimmt die Anzahl der Datensätze, die bis zum angegebenen Zeitpunkt insgesamt gesendet sein sollen.
+	 *
+	 * @param elapsed Zeit seit Beginn des Profils in Nanosekunden
+	 *
+	 * @return Anzahl Datensätze
+	 */
+	long getTargetCount(final long elapsed) {
+		if(elapsed >= _duration) return _totalCount;
+		int phase = 0;
+		for(int i = _startTimes.length - 1; i > 0; i--) {
+			if(_startTimes[i] <= elapsed) {
+				phase = i;
+				break;
+			}
+		}
+		final double count = _countsBefore[phase] + phaseCount(phase, Math.min(elapsed - _startTimes[phase], _durations[phase]));
+		return Math.min((long)Math.floor(count + 1e-6), _totalCount);
+	}
+
+	/**
+	 * Gibt die Gesamtdauer des Profils zurück.
+	 *
+	 * @return Dauer in Nanosekunden
+	 */
+	long getDuration() {
+		return _duration;
+	}
+
+	/**
+	 * Gibt die Gesamtanzahl der zu sendenden Datensätze zurück.
+	 *
+	 * @return Anzahl Datensätze
+	 */
+	long getTotalCount() {
+		return _totalCount;
+	}
+
+	@Override
+	public String toString() {
+		return _text;
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.datgen.
+ *
+ * de.bsvrz.pat.datgen is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.datgen is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.datgen.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.datgen.generator.main;
+
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Zeitgeber in Form eines Zeitrads (hashed timing wheel). Alle Aufträge werden von einem gemeinsamen Thread ausgeführt, der in festen Takten von
+ * <code>tickNanos</code> Nanosekunden das jeweils nächste Fach des Rads abarbeitet. Ein Auftrag wird beim Einplanen in das Fach seines Fälligkeitstakts
+ * eingetragen, zusätzlich wird vermerkt, wie viele Umläufe des Rads bis zur Fälligkeit noch vergehen müssen. Einplanen und Ausführen kosten dadurch
+ * unabhängig von der Anzahl der geplanten Aufträge konstante Zeit.
+ * <p>
+ * Die Takte werden relativ zur Startzeit des Rads berechnet, so dass sich Verzögerungen einzelner Takte nicht aufsummieren. Dauert die Ausführung der
+ * Aufträge eines Takts länger als ein Takt, werden die folgenden Takte ohne Wartezeit nachgeholt.
+ * <p>
+ * Aufträge sollten kurz sein, da sie alle im selben Thread ausgeführt werden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class TimerWheel {
+
+	/** Der Debug-Logger der Klasse */
+	private static final Debug debug = Debug.getLogger();
+
+	/** Dauer eines Takts in Nanosekunden */
+	private final long _tickNanos;
+
+	/** Fächer des Rads, die Anzahl ist eine Zweierpotenz */
+	private final List<ArrayList<Timeout>> _wheel;
+
+	/** Maske zur Bestimmung des Fachs aus der Taktnummer */
+	private final int _mask;
+
+	/** Neu eingeplante Aufträge, die vom Zeitgeber-Thread noch nicht in das Rad eingetragen wurden */
+	private final ConcurrentLinkedQueue<Timeout> _newTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+	/** Zeitgeber-Thread */
+	private final Thread _thread;
+
+	/** Startzeit des Rads ({@link System#nanoTime()}) */
+	private volatile long _startTime;
+
+	/** Nummer des nächsten abzuarbeitenden Takts, wird nur im Zeitgeber-Thread verändert */
+	private long _tick = 0;
+
+	private volatile boolean _stopped = false;
+
+	/**
+	 * Erzeugt ein neues Zeitrad. Der Zeitgeber-Thread wird erst mit {@link #start()} gestartet.
+	 *
+	 * @param name      Name des Zeitgeber-Threads
+	 * @param tickNanos Dauer eines Takts in Nanosekunden
+	 * @param slotCount Anzahl der Fächer, wird auf die nächste Zweierpotenz aufgerundet
+	 */
+	TimerWheel(final String name, final long tickNanos, final int slotCount) {
+		if(tickNanos <= 0) throw new IllegalArgumentException("Ungültige Taktdauer: " + tickNanos);
+		if(slotCount <= 0 || slotCount > (1 << 20)) throw new IllegalArgumentException("Ungültige Anzahl Fächer: " + slotCount);
+		_tickNanos = tickNanos;
+		int size = 1;
+		while(size < slotCount) size <<= 1;
+		_wheel = new ArrayList<ArrayList<Timeout>>(size);
+		for(int i = 0; i < size; i++) {
+			_wheel.add(new ArrayList<Timeout>());
+		}
+		_mask = size - 1;
+		_thread = new Thread(new Runnable() {
+			public void run() {
+				runTicks();
+			}
+		}, name);
+		_thread.setDaemon(true);
+	}
+
+	/** Startet den Zeitgeber-Thread. Verzögerungen eingeplanter Aufträge beziehen sich auf diesen Zeitpunkt. */
+	void start() {
+		_startTime = System.nanoTime();
+		_thread.start();
+	}
+
+	/**
+	 * Beendet den Zeitgeber-Thread. Noch nicht fällige Aufträge werden nicht mehr ausgeführt. Wird die Methode nicht im Zeitgeber-Thread aufgerufen, wartet sie,
+	 * bis der Thread beendet ist.
+	 */
+	void stop() {
+		_stopped = true;
+		LockSupport.unpark(_thread);
+		if(Thread.currentThread() == _thread) return;
+		try {
+			_thread.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gibt die Startzeit des Rads zurück.
+	 *
+	 * @return Startzeit im Sinne von {@link System#nanoTime()}
+	 */
+	long getStartTime() {
+		return _startTime;
+	}
+
+	/**
+	 * Gibt die Dauer eines Takts zurück.
+	 *
+	 * @return Taktdauer in Nanosekunden
+	 */
+	long getTickNanos() {
+		return _tickNanos;
+	}
+
+	/**
+	 * Plant einen Auftrag zur einmaligen Ausführung ein.
+	 *
+	 * @param task       Auftrag
+	 * @param delayNanos Verzögerung ab Startzeit des Rads in Nanosekunden
+	 *
+	 * @return Eingeplanter Auftrag, der mit {@link Timeout#cancel()} abgebrochen werden kann
+	 */
+	Timeout schedule(final Runnable task, final long delayNanos) {
+		final Timeout timeout = new Timeout(task, Math.max(0, delayNanos), 0);
+		_newTimeouts.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Plant einen Auftrag zur periodischen Ausführung ein. Die Fälligkeitszeitpunkte ergeben sich aus der Startverzögerung und Vielfachen der Periode, so dass
+	 * sich verspätete Ausführungen nicht auf die folgenden Zeitpunkte auswirken.
+	 *
+	 * @param task         Auftrag
+	 * @param initialDelay Verzögerung der ersten Ausführung ab Startzeit des Rads in Nanosekunden
+	 * @param period       Periode in Nanosekunden
+	 *
+	 * @return Eingeplanter Auftrag, der mit {@link Timeout#cancel()} abgebrochen werden kann
+	 */
+	Timeout scheduleAtFixedRate(final Runnable task, final long initialDelay, final long period) {
+		if(period <= 0) throw new IllegalArgumentException("Ungültige Periode: " + period);
+		final Timeout timeout = new Timeout(task, Math.max(0, initialDelay), period);
+		_newTimeouts.add(timeout);
+		return timeout;
+	}
+
+	private void runTicks() {
+		while(!_stopped) {
+			final long deadline = _startTime + (_tick + 1) * _tickNanos;
+			while(!_stopped) {
+				final long remaining = deadline - System.nanoTime();
+				if(remaining <= 0) break;
+				LockSupport.parkNanos(remaining);
+			}
+			if(_stopped) return;
+			transferNewTimeouts();
+			expireTimeouts(_wheel.get((int)(_tick & _mask)));
+			_tick++;
+		}
+	}
+
+	private void transferNewTimeouts() {
+		Timeout timeout;
+		while((timeout = _newTimeouts.poll()) != null) {
+			if(!timeout._cancelled) insert(timeout, _tick);
+		}
+	}
+
+	/**
+	 * Trägt einen Auftrag in das Fach seines Fälligkeitstakts ein.
+	 *
+	 * @param timeout  Auftrag
+	 * @param baseTick Erster noch nicht abgearbeiteter Takt, frühestens in diesem Takt wird der Auftrag ausgeführt
+	 */
+	private void insert(final Timeout timeout, final long baseTick) {
+		final long dueTick = Math.max(timeout._delay / _tickNanos, baseTick);
+		timeout._remainingRounds = (dueTick - baseTick) / _wheel.size();
+		_wheel.get((int)(dueTick & _mask)).add(timeout);
+	}
+
+	private void expireTimeouts(final ArrayList<Timeout> slot) {
+		// Fällige Aufträge werden aus dem Fach entfernt, bevor sie ausgeführt werden, damit periodische Aufträge sich wieder eintragen können
+		final ArrayList<Timeout> expired = new ArrayList<Timeout>();
+		int kept = 0;
+		for(int i = 0; i < slot.size(); i++) {
+			final Timeout timeout = slot.get(i);
+			if(timeout._cancelled) continue;
+			if(timeout._remainingRounds <= 0) {
+				expired.add(timeout);
+			}
+			else {
+				timeout._remainingRounds--;
+				slot.set(kept++, timeout);
+			}
+		}
+		for(int i = slot.size() - 1; i >= kept; i--) {
+			slot.remove(i);
+		}
+		for(final Timeout timeout : expired) {
+			if(_stopped) return;
+			if(timeout._cancelled) continue;
+			try {
+				timeout._task.run();
+			}
+			catch(RuntimeException e) {
+				debug.error("Fehler bei der Ausführung eines zeitgesteuerten Auftrags", e);
+			}
+			if(timeout._period > 0 && !timeout._cancelled) {
+				timeout._delay += timeout._period;
+				insert(timeout, _tick + 1);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TimerWheel{" + "tickNanos=" + _tickNanos + ", slots=" + _wheel.size() + ", tick=" + _tick + ", stopped=" + _stopped + "}";
+	}
+
+	/** Eingeplanter Auftrag */
+	static final class Timeout {
+
+		private final Runnable _task;
+
+		/** Periode in Nanosekunden oder 0 bei einmaligen Aufträgen */
+		private final long _period;
+
+		/** Fälligkeit relativ zur Startzeit des Rads in Nanosekunden */
+		private long _delay;
+
+		/** Anzahl der Umläufe des Rads bis zur Fälligkeit */
+		private long _remainingRounds;
+
+		private volatile boolean _cancelled = false;
+
+		private Timeout(final Runnable task, final long delay, final long period) {
+			_task = task;
+			_delay = delay;
+			_period = period;
+		}
+
+		/** Bricht den Auftrag ab. Ein bereits laufender Auftrag wird nicht unterbrochen, aber nicht wieder eingeplant. */
+		void cancel() {
+			_cancelled = true;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.datgen.
+ *
+ * de.bsvrz.pat.datgen is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.datgen is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.datgen.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.datgen.generator.main;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft die Genauigkeit der Perzentile von {@link LatencyHistogram}.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void testEmpty() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(50, histogram.getMean());
+		assertEquals(100, histogram.getMax());
+		assertEquals(1, histogram.getPercentile(0));
+		assertEquals(50, histogram.getPercentile(50));
+		assertEquals(90, histogram.getPercentile(90));
+		assertEquals(99, histogram.getPercentile(99));
+		assertEquals(100, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testNegativeValuesAreRecordedAsZero() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(50));
+	}
+
+	@Test
+	public void testLargeValues() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(1);
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+		assertEquals(1, histogram.getPercentile(50));
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testRelativeErrorOfPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final Random random = new Random(4711);
+		final long[] values = new long[100000];
+		for(int i = 0; i < values.length; i++) {
+			// Logarithmisch verteilte Werte zwischen 1 µs und 1 s
+			values[i] = (long)Math.pow(10, 3 + random.nextDouble() * 6);
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+		for(double percent : new double[]{1, 10, 50, 90, 99, 99.9, 100}) {
+			final long expected = values[(int)Math.ceil(values.length * percent / 100) - 1];
+			final long actual = histogram.getPercentile(percent);
+			assertTrue(percent + "%: " + actual + " < " + expected, actual >= expected);
+			assertTrue(percent + "%: " + actual + " weicht mehr als 1% von " + expected + " ab", actual - expected <= expected / 100);
+		}
+		assertEquals(values[values.length - 1], histogram.getMax());
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.datgen.
+ *
+ * de.bsvrz.pat.datgen is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.datgen is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.datgen.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.datgen.generator.main;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft das Einlesen von Lastprofilen und die Berechnung der bis zu einem Zeitpunkt zu sendenden Datensätze.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class LoadProfileTest {
+
+	private static final long SECOND = 1000L * 1000 * 1000;
+
+	@Test
+	public void testParseDuration() {
+		assertEquals(1500L * 1000 * 1000, LoadProfile.parseDuration("1s500ms"));
+		assertEquals(90 * SECOND, LoadProfile.parseDuration("1m30s"));
+		assertEquals(2 * 60 * 60 * SECOND, LoadProfile.parseDuration("2h"));
+		assertEquals(5 * SECOND, LoadProfile.parseDuration("5S"));
+	}
+
+	@Test
+	public void testInvalidDuration() {
+		for(String text : new String[]{"", "10", "s", "1x", "1s foo", " 1s"}) {
+			try {
+				LoadProfile.parseDuration(text);
+				fail("Ungültige Zeitdauer wurde akzeptiert: \"" + text + "\"");
+			}
+			catch(IllegalArgumentException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void testConstantRate() {
+		final LoadProfile profile = new LoadProfile("100:10s", 1);
+		assertEquals(10 * SECOND, profile.getDuration());
+		assertEquals(1000, profile.getTotalCount());
+		assertEquals(0, profile.getTargetCount(0));
+		assertEquals(50, profile.getTargetCount(SECOND / 2));
+		assertEquals(500, profile.getTargetCount(5 * SECOND));
+		assertEquals(1000, profile.getTargetCount(10 * SECOND));
+		assertEquals(1000, profile.getTargetCount(20 * SECOND));
+	}
+
+	@Test
+	public void testRamp() {
+		// Rate steigt in 10 Sekunden linear von 0 auf 100 Datensätze pro Sekunde: 500 Datensätze insgesamt
+		final LoadProfile profile = new LoadProfile("0-100:10s", 1);
+		assertEquals(500, profile.getTotalCount());
+		// Nach 5 Sekunden ist die Rate 50, bis dahin wurden 0,5 * 5 * 50 Datensätze gesendet
+		assertEquals(125, profile.getTargetCount(5 * SECOND));
+		assertEquals(500, profile.getTargetCount(10 * SECOND));
+
+		final LoadProfile falling = new LoadProfile("100-0:10s", 1);
+		assertEquals(500, falling.getTotalCount());
+		assertEquals(375, falling.getTargetCount(5 * SECOND));
+	}
+
+	@Test
+	public void testBurstAndPause() {
+		final LoadProfile profile = new LoadProfile("10:1s, stoss:500, 0:2s, 10:1s", 1);
+		assertEquals(4 * SECOND, profile.getDuration());
+		assertEquals(520, profile.getTotalCount());
+		assertEquals(5, profile.getTargetCount(SECOND / 2));
+		// Die Lastspitze ist zu Beginn ihrer Phase sofort fällig
+		assertEquals(510, profile.getTargetCount(SECOND));
+		assertEquals(510, profile.getTargetCount(2 * SECOND));
+		assertEquals(510, profile.getTargetCount(3 * SECOND));
+		assertEquals(515, profile.getTargetCount(3 * SECOND + SECOND / 2));
+	}
+
+	@Test
+	public void testBurstOnlyProfile() {
+		final LoadProfile profile = new LoadProfile("STOSS:1000", 1);
+		assertEquals(0, profile.getDuration());
+		assertEquals(1000, profile.getTotalCount());
+		assertEquals(1000, profile.getTargetCount(0));
+	}
+
+	@Test
+	public void testRepetitions() {
+		final LoadProfile profile = new LoadProfile("100:1s,0:1s", 3);
+		assertEquals(6 * SECOND, profile.getDuration());
+		assertEquals(300, profile.getTotalCount());
+		assertEquals(100, profile.getTargetCount(SECOND + SECOND / 2));
+		assertEquals(150, profile.getTargetCount(2 * SECOND + SECOND / 2));
+		assertEquals(200, profile.getTargetCount(4 * SECOND));
+		assertEquals("100:1s,0:1s (3x)", profile.toString());
+	}
+
+	@Test
+	public void testTargetCountIsMonotonic() {
+		final LoadProfile profile = new LoadProfile("3-7:1s,stoss:3,7.5:1s,7-0:1s", 2);
+		long last = 0;
+		for(long time = 0; time <= profile.getDuration() + SECOND; time += SECOND / 1000) {
+			final long count = profile.getTargetCount(time);
+			assertTrue("Anzahl sinkt bei " + time, count >= last);
+			last = count;
+		}
+		assertEquals(profile.getTotalCount(), last);
+	}
+
+	@Test
+	public void testInvalidProfiles() {
+		for(String text : new String[]{"", "100", "100:0s", "abc:1s", "stoss:", "10-:1s", "100:1s,,10:1s"}) {
+			try {
+				new LoadProfile(text, 1);
+				fail("Ungültiges Lastprofil wurde akzeptiert: \"" + text + "\"");
+			}
+			catch(IllegalArgumentException expected) {
+			}
+		}
+		try {
+			new LoadProfile("100:1s", 0);
+			fail("Ungültige Anzahl Wiederholungen wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.datgen.
+ *
+ * de.bsvrz.pat.datgen is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.datgen is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.datgen.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.datgen.generator.main;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft das Ausführen einmaliger und periodischer Aufträge durch {@link TimerWheel}.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class TimerWheelTest {
+
+	private static final long MILLIS = 1000L * 1000;
+
+	private TimerWheel _wheel;
+
+	@After
+	public void tearDown() {
+		if(_wheel != null) _wheel.stop();
+	}
+
+	@Test
+	public void testTimeoutsRunInOrderOfTheirDelay() throws Exception {
+		// Wenige Fächer, damit Aufträge auch mehrere Umläufe des Rads warten müssen
+		_wheel = new TimerWheel("Test", MILLIS, 4);
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch done = new CountDownLatch(4);
+		final long[] delays = {30, 5, 17, 2};
+		for(int i = 0; i < delays.length; i++) {
+			final int number = i;
+			_wheel.schedule(
+					new Runnable() {
+						public void run() {
+							order.add(number);
+							done.countDown();
+						}
+					}, delays[i] * MILLIS
+			);
+		}
+		_wheel.start();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(3), order.get(0));
+		assertEquals(Integer.valueOf(1), order.get(1));
+		assertEquals(Integer.valueOf(2), order.get(2));
+		assertEquals(Integer.valueOf(0), order.get(3));
+	}
+
+	@Test
+	public void testTimeoutIsNotRunEarly() throws Exception {
+		_wheel = new TimerWheel("Test", MILLIS, 8);
+		final long[] runTime = new long[1];
+		final CountDownLatch done = new CountDownLatch(1);
+		_wheel.schedule(
+				new Runnable() {
+					public void run() {
+						runTime[0] = System.nanoTime();
+						done.countDown();
+					}
+				}, 50 * MILLIS
+		);
+		_wheel.start();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(runTime[0] - _wheel.getStartTime() >= 50 * MILLIS);
+	}
+
+	@Test
+	public void testFixedRateDoesNotDrift() throws Exception {
+		_wheel = new TimerWheel("Test", MILLIS, 16);
+		final long[] runTimes = new long[20];
+		final AtomicInteger runs = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(1);
+		_wheel.scheduleAtFixedRate(
+				new Runnable() {
+					public void run() {
+						final int run = runs.getAndIncrement();
+						if(run < runTimes.length) runTimes[run] = System.nanoTime();
+						if(run == 0) {
+							// Eine verspätete Ausführung darf die folgenden Fälligkeiten nicht verschieben
+							try {
+								Thread.sleep(20);
+							}
+							catch(InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+						}
+						if(run == runTimes.length - 1) done.countDown();
+					}
+				}, 10 * MILLIS, 5 * MILLIS
+		);
+		_wheel.start();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for(int i = 0; i < runTimes.length; i++) {
+			assertTrue("Ausführung " + i + " zu früh", runTimes[i] - _wheel.getStartTime() >= (10 + 5 * i) * MILLIS);
+		}
+		// Nach dem Aufholen entspricht der Abstand zum Start wieder der Periode
+		final long last = runTimes[runTimes.length - 1] - _wheel.getStartTime();
+		assertTrue("Letzte Ausführung nach " + last / MILLIS + " ms", last < (10 + 5 * (runTimes.length - 1) + 50) * MILLIS);
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		_wheel = new TimerWheel("Test", MILLIS, 8);
+		final AtomicInteger cancelledRuns = new AtomicInteger();
+		final AtomicInteger periodicRuns = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(1);
+		final TimerWheel.Timeout cancelled = _wheel.schedule(
+				new Runnable() {
+					public void run() {
+						cancelledRuns.incrementAndGet();
+					}
+				}, 5 * MILLIS
+		);
+		final TimerWheel.Timeout[] periodic = new TimerWheel.Timeout[1];
+		periodic[0] = _wheel.scheduleAtFixedRate(
+				new Runnable() {
+					public void run() {
+						if(periodicRuns.incrementAndGet() == 3) {
+							periodic[0].cancel();
+						}
+					}
+				}, 0, 2 * MILLIS
+		);
+		_wheel.schedule(
+				new Runnable() {
+					public void run() {
+						done.countDown();
+					}
+				}, 40 * MILLIS
+		);
+		cancelled.cancel();
+		_wheel.start();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(0, cancelledRuns.get());
+		assertEquals(3, periodicRuns.get());
+	}
+
+	@Test
+	public void testExceptionDoesNotStopWheel() throws Exception {
+		_wheel = new TimerWheel("Test", MILLIS, 8);
+		final CountDownLatch done = new CountDownLatch(1);
+		_wheel.schedule(
+				new Runnable() {
+					public void run() {
+						throw new IllegalStateException("Test");
+					}
+				}, MILLIS
+		);
+		_wheel.schedule(
+				new Runnable() {
+					public void run() {
+						done.countDown();
+					}
+				}, 5 * MILLIS
+		);
+		_wheel.start();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testStopFromTask() throws Exception {
+		_wheel = new TimerWheel("Test", MILLIS, 8);
+		final AtomicInteger runs = new AtomicInteger();
+		_wheel.scheduleAtFixedRate(
+				new Runnable() {
+					public void run() {
+						runs.incrementAndGet();
+						_wheel.stop();
+					}
+				}, 0, MILLIS
+		);
+		_wheel.start();
+		final long end = System.currentTimeMillis() + 5000;
+		while(runs.get() == 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(1);
+		}
+		Thread.sleep(20);
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		try {
+			new TimerWheel("Test", 0, 8);
+			fail("Ungültige Taktdauer wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		try {
+			new TimerWheel("Test", MILLIS, 0);
+			fail("Ungültige Anzahl Fächer wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+		_wheel = new TimerWheel("Test", MILLIS, 8);
+		try {
+			_wheel.scheduleAtFixedRate(
+					new Runnable() {
+						public void run() {
+						}
+					}, 0, 0
+			);
+			fail("Ungültige Periode wurde akzeptiert");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+	}
+}
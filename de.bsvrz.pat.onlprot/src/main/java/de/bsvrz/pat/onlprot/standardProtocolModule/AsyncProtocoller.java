@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.onlprot.
+ *
+ * de.bsvrz.pat.onlprot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.onlprot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.onlprot.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.onlprot.standardProtocolModule;
+
+import de.bsvrz.dav.daf.main.ResultData;
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.io.PrintWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Protokollierer, der die Ausgabe an einen anderen Protokollierer in einem eigenen Thread übergibt. Der Thread, der die Datensätze empfängt, trägt die
+ * Datensätze zusammen mit der Empfangszeit nur in eine Warteschlange fester Größe ein. Formatierung und Ausgabe finden im Ausgabe-Thread statt. Ist die
+ * Warteschlange voll, wartet der empfangende Thread, bis wieder Platz ist, es gehen also keine Datensätze verloren.
+ * <p>
+ * Kopf, Datensätze und Fuß werden in der Reihenfolge der Aufrufe ausgegeben. Der Ausgabestrom wird nur dann geleert, wenn die Warteschlange leer ist.
+ * Nach dem Fuß werden keine weiteren Ausgaben angenommen, da der Ausgabe-Thread dann beendet ist und die Warteschlange nicht mehr geleert wird.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class AsyncProtocoller implements ExtendedProtocollerInterface {
+
+	/** Maximale Größe der Warteschlange, die Warteschlange wird in dieser Größe beim Erzeugen angelegt */
+	public static final int MAX_CAPACITY = 1000000;
+
+	/** Die Debug-Ausgabe */
+	static private final Debug debug = Debug.getLogger();
+
+	/** Protokollierer, der die eigentliche Ausgabe erzeugt */
+	private final ExtendedProtocollerInterface _protocoller;
+
+	/** Ausgabestrom, der geleert wird, sobald keine weiteren Ausgaben anstehen */
+	private final PrintWriter _writer;
+
+	/** Noch auszuführende Ausgaben */
+	private final ArrayBlockingQueue<Runnable> _queue;
+
+	/** Ausgabe-Thread */
+	private final Thread _thread;
+
+	/** Wird nach dem Fuß in die Warteschlange eingetragen und beendet den Ausgabe-Thread */
+	private final Runnable _end = new Runnable() {
+		public void run() {
+		}
+	};
+
+	/**
+	 * Schützt {@link #_closed}: Eintragen in die Warteschlange erfolgt unter der Lesesperre, das Abschließen mit dem Fuß unter der Schreibsperre. Damit
+	 * kann nach dem Ende-Eintrag nichts mehr eingetragen werden, was der beendete Ausgabe-Thread nicht mehr abholen würde.
+	 */
+	private final ReadWriteLock _closeLock = new ReentrantReadWriteLock();
+
+	/** <code>true</code>, sobald der Fuß eingetragen wurde */
+	private boolean _closed = false;
+
+	/**
+	 * Erzeugt einen neuen asynchronen Protokollierer und startet den Ausgabe-Thread.
+	 *
+	 * @param protocoller Protokollierer, der die eigentliche Ausgabe erzeugt
+	 * @param writer      Ausgabestrom des Protokollierers, der geleert wird, sobald keine weiteren Ausgaben anstehen
+	 * @param capacity    Anzahl der Aktualisierungen, die maximal gepuffert werden, zwischen 1 und {@link #MAX_CAPACITY}
+	 *
+	 * @throws IllegalArgumentException wenn die Kapazität außerhalb des zulässigen Bereichs liegt
+	 */
+	public AsyncProtocoller(final ExtendedProtocollerInterface protocoller, final PrintWriter writer, final int capacity) {
+		if(capacity < 1 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Ungültige Puffergröße " + capacity + ", erlaubt sind 1 bis " + MAX_CAPACITY);
+		}
+		_protocoller = protocoller;
+		_writer = writer;
+		_queue = new ArrayBlockingQueue<Runnable>(capacity);
+		_thread = new Thread(new Runnable() {
+			public void run() {
+				writeAll();
+			}
+		}, "Protokollausgabe");
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	/**
+	 * Trägt die empfangenen Datensätze mit der aktuellen Zeit als Empfangszeit in die Warteschlange ein.
+	 *
+	 * @param results Empfangene Ergebnisdatensätze
+	 */
+	public void update(final ResultData[] results) {
+		writeBlock(results, System.currentTimeMillis());
+	}
+
+	public void writeBlock(final ResultData[] results, final long time) {
+		enqueue(new Runnable() {
+			public void run() {
+				_protocoller.writeBlock(results, time);
+			}
+		});
+	}
+
+	public void writeHeader(final String[] args) {
+		writeHeader(args, System.currentTimeMillis());
+	}
+
+	public void writeHeader(final String[] args, final long startTime) {
+		enqueue(new Runnable() {
+			public void run() {
+				_protocoller.writeHeader(args, startTime);
+			}
+		});
+	}
+
+	/**
+	 * Gibt den Fuß aus, nachdem alle vorher eingetragenen Datensätze ausgegeben wurden, und beendet den Ausgabe-Thread. Danach eintreffende Ausgaben werden
+	 * verworfen.
+	 */
+	public void writeFooter() {
+		_closeLock.writeLock().lock();
+		try {
+			if(_closed) {
+				debug.warning("Protokollfuß wurde bereits ausgegeben");
+				return;
+			}
+			// Der Ausgabe-Thread läuft noch und leert die Warteschlange, das Warten auf freie Plätze endet also
+			put(new Runnable() {
+				public void run() {
+					_protocoller.writeFooter();
+				}
+			});
+			put(_end);
+			_closed = true;
+		}
+		finally {
+			_closeLock.writeLock().unlock();
+		}
+		try {
+			_thread.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gibt die Anzahl der noch nicht ausgegebenen Aktualisierungen zurück.
+	 *
+	 * @return Anzahl Einträge in der Warteschlange
+	 */
+	public int getPendingCount() {
+		return _queue.size();
+	}
+
+	private void enqueue(final Runnable task) {
+		_closeLock.readLock().lock();
+		try {
+			if(_closed) {
+				debug.warning("Ausgabe nach dem Protokollfuß wird ignoriert");
+				return;
+			}
+			put(task);
+		}
+		finally {
+			_closeLock.readLock().unlock();
+		}
+	}
+
+	private void put(final Runnable task) {
+		try {
+			_queue.put(task);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			debug.warning("Ausgabe wegen einer Unterbrechung verworfen");
+		}
+	}
+
+	private void writeAll() {
+		while(true) {
+			final Runnable task;
+			try {
+				task = _queue.take();
+			}
+			catch(InterruptedException e) {
+				continue;
+			}
+			if(task == _end) {
+				_writer.flush();
+				return;
+			}
+			try {
+				task.run();
+			}
+			catch(RuntimeException e) {
+				debug.error("Fehler bei der Protokollausgabe", e);
+			}
+			if(_queue.isEmpty()) _writer.flush();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AsyncProtocoller{" + "protocoller=" + _protocoller + ", pending=" + _queue.size() + "}";
+	}
+}
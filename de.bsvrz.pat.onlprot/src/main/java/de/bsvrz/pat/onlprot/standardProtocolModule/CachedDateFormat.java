@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.onlprot.
+ *
+ * de.bsvrz.pat.onlprot is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.onlprot is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.onlprot.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.onlprot.standardProtocolModule;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Formatiert Zeitstempel mit Millisekunden. Der Teil vor und nach den Millisekunden wird mit {@link SimpleDateFormat} erzeugt und für die jeweils aktuelle
+ * Sekunde zwischengespeichert, so dass bei vielen Zeitstempeln innerhalb derselben Sekunde nur noch die Millisekunden eingefügt werden müssen.
+ * <p>
+ * Die Klasse ist nicht threadsicher, jeder Thread muss ein eigenes Objekt verwenden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class CachedDateFormat {
+
+	/** Format des Teils vor den Millisekunden */
+	private final SimpleDateFormat _prefixFormat;
+
+	/** Format des Teils nach den Millisekunden oder <code>null</code> */
+	private final SimpleDateFormat _suffixFormat;
+
+	/** Sekunde, für die die zwischengespeicherten Texte gelten */
+	private long _cachedSecond = Long.MIN_VALUE;
+
+	private String _cachedPrefix = "";
+
+	private String _cachedSuffix = "";
+
+	/**
+	 * Erzeugt ein neues Format.
+	 *
+	 * @param prefixPattern Muster für den Teil vor den Millisekunden, z.B. <code>"dd.MM.yyyy HH:mm:ss,"</code>
+	 * @param suffixPattern Muster für den Teil nach den Millisekunden, z.B. <code>":Z"</code>, oder <code>null</code>
+	 */
+	CachedDateFormat(final String prefixPattern, final String suffixPattern) {
+		_prefixFormat = new SimpleDateFormat(prefixPattern);
+		_suffixFormat = suffixPattern == null ? null : new SimpleDateFormat(suffixPattern);
+	}
+
+	/**
+	 * Formatiert einen Zeitstempel.
+	 *
+	 * @param time Zeit in Millisekunden seit 1970
+	 *
+	 * @return Formatierter Zeitstempel
+	 */
+	String format(final long time) {
+		return format(time, new StringBuilder(32)).toString();
+	}
+
+	/**
+	 * Hängt einen formatierten Zeitstempel an.
+	 *
+	 * @param time   Zeit in Millisekunden seit 1970
+	 * @param output Puffer, an den der Zeitstempel angehängt wird
+	 *
+	 * @return Der übergebene Puffer
+	 */
+	StringBuilder format(final long time, final StringBuilder output) {
+		final long second = Math.floorDiv(time, 1000);
+		if(second != _cachedSecond) {
+			final Date date = new Date(second * 1000);
+			_cachedPrefix = _prefixFormat.format(date);
+			_cachedSuffix = _suffixFormat == null ? "" : _suffixFormat.format(date);
+			_cachedSecond = second;
+		}
+		final int millis = (int)Math.floorMod(time, 1000);
+		output.append(_cachedPrefix);
+		if(millis < 100) output.append('0');
+		if(millis < 10) output.append('0');
+		output.append(millis);
+		output.append(_cachedSuffix);
+		return output;
+	}
+}
@@ -38,12 +38,14 @@ import de.bsvrz.sys.funclib.commandLineArgs.ArgumentList;
 import de.bsvrz.sys.funclib.debug.Debug;
 
 import java.io.PrintWriter;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
- * Der Standardprotokollierer, welcher eine tabellarische Ausgabe (in drei verschieden ausführlichen Tiefen) und eine XML-Ausgabe erzeugen kann.
+ * Der Standardprotokollierer, welcher eine tabellarische Ausgabe (in drei verschieden ausführlichen Tiefen), eine XML-Ausgabe und eine kompakte Ausgabe im
+ * CSV-Format erzeugen kann.
+ * <p>
+ * Mit dem Aufrufparameter <code>-puffer=</code> kann die Ausgabe asynchron erfolgen. Die empfangenen Datensätze werden dann nur in eine Warteschlange mit der
+ * angegebenen Größe eingetragen und von einem eigenen Thread formatiert und ausgegeben (siehe {@link AsyncProtocoller}).
  *
  * @author Kappich Systemberatung
  * @version $Revision$
@@ -53,11 +55,17 @@ public class StandardProtocoller extends ProtocolModule {
 	/** Die Debug-Ausgabe */
 	static private final Debug debug = Debug.getLogger();
 
-	/** Datums-Format */
-	private static final DateFormat _dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss,SSS:Z");
+	/** Datums-Format, entspricht <code>dd.MM.yyyy HH:mm:ss,SSS:Z</code> */
+	private final CachedDateFormat _dateFormat = new CachedDateFormat("dd.MM.yyyy HH:mm:ss,", ":Z");
 
-	/** Schreibt String-Format der Zeitstempel vor */
-	private static final DateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss,SSS");
+	/** Schreibt String-Format der Zeitstempel vor, entspricht <code>dd.MM.yyyy HH:mm:ss,SSS</code> */
+	private final CachedDateFormat dateFormat = new CachedDateFormat("dd.MM.yyyy HH:mm:ss,", null);
+
+	/** Zeilentrenner, der bei Zeilenumbrüchen innerhalb einer Ausgabezeile verwendet wird */
+	private static final String lineSeparator = System.getProperty("line.separator");
+
+	/** Gibt an, ob Objekte mit ihrer toString-Methode statt mit Name, Pid oder Id ausgegeben werden */
+	private static final boolean objectToString = !System.getProperty("de.bsvrz.pat.onlprot.object.toString", "false").equals("false");
 
 	/** Beschreibt Zeichenkette, die in jeder Zeile pro Einrückungsebene ausgegeben wird */
 	private static final String indentationPrefix = "  ";
@@ -122,7 +130,9 @@ public class StandardProtocoller extends ProtocolModule {
 	 * @return String mit der Beschreibung der erlaubten Aufrufparameter und deren erwartetes Format
 	 */
 	public String getHelp() {
-		return ("-ausgabe: Hier sind folgende Werte erlaubt: " + getProtocollerSelection().getInfo());
+		return ("-ausgabe: Hier sind folgende Werte erlaubt: " + getProtocollerSelection().getInfo()
+		        + "\n-puffer: Anzahl der Aktualisierungen, die für die asynchrone Ausgabe gepuffert werden. Bei 0 (Voreinstellung) erfolgt die Ausgabe im"
+		        + " empfangenden Thread.");
 	}
 
 	/**
@@ -146,6 +156,7 @@ public class StandardProtocoller extends ProtocolModule {
 				(ClientProtocollerInterface)argumentList.fetchArgument("-ausgabe=kopf")
 						.asValueCase(validProtocollers).convert()
 		);
+		initAsyncOutput(argumentList);
 		getProtocoller().writeHeader(args);
 		return getProtocoller();
 	}
@@ -170,10 +181,25 @@ public class StandardProtocoller extends ProtocolModule {
 				(ClientProtocollerInterface)protocollerArgumentList.fetchArgument("-ausgabe=kopf")
 						.asValueCase(validProtocollers).convert()
 		);
+		initAsyncOutput(protocollerArgumentList);
 		return getProtocoller();
 		
 	}
 
+	/**
+	 * Wertet den Aufrufparameter <code>-puffer=</code> aus und ersetzt den ausgewählten Protokollierer ggf. durch einen {@link AsyncProtocoller}. Der
+	 * Ausgabestrom wird dabei so gekapselt, dass er nicht mehr nach jeder Zeile, sondern erst nach dem Abarbeiten der Warteschlange geleert wird.
+	 *
+	 * @param argumentList Aufrufparameter
+	 */
+	private void initAsyncOutput(ArgumentList argumentList) {
+		final int capacity = argumentList.fetchArgument("-puffer=0").intValueBetween(0, AsyncProtocoller.MAX_CAPACITY);
+		if(capacity == 0) return;
+		final PrintWriter bufferedWriter = new PrintWriter(getProtocolFileWriter(), false);
+		super.setProtocolFileWriter(bufferedWriter);
+		setProtocoller(new AsyncProtocoller((ExtendedProtocollerInterface)getProtocoller(), bufferedWriter, capacity));
+	}
+
 	/**
 	 * Aktualisierungsmethode, die nach Empfang eines angemeldeten Datensatzes vom benutzten Protokollierer aufgerufen wird.
 	 *
@@ -216,23 +242,36 @@ public class StandardProtocoller extends ProtocolModule {
 		validProtocollers.add("xml").alias("x").ignoreCase()
 				.convertTo(new XmlProtocoller())
 				.purpose("Gibt die Telegramme in einem XML-Format aus.");
+		validProtocollers.add("csv").alias("c").ignoreCase()
+				.convertTo(new CsvProtocoller())
+				.purpose("Gibt jeden Datensatz kompakt als eine Zeile im CSV-Format aus.");
 		return validProtocollers;
 	}
 
 	/** Keine Ausgabe. */
-	private class SilentProtocoller implements ClientProtocollerInterface {
+	private class SilentProtocoller implements ExtendedProtocollerInterface {
 
 		/** Einziger Konstruktor. */
 		protected SilentProtocoller() {
 		}
 
 		/**
-		 * Aktualisierungsmethode, die nach Empfang eines angemeldeten Datensatzes von den Datenverteiler-Applikationsfunktionen aufgerufen wird. Ruft lediglich
-		 * {@link StandardProtocoller#update} auf.
+		 * Aktualisierungsmethode, die nach Empfang eines angemeldeten Datensatzes von den Datenverteiler-Applikationsfunktionen aufgerufen wird. Ruft {@link
+		 * #writeBlock} mit der aktuellen Zeit als Empfangszeit auf.
 		 *
 		 * @param	results	{@link ResultData}[] mit den empfangenen Ergebnisdatensätzen.
 		 */
 		public void update(ResultData[] results) {
+			writeBlock(results, System.currentTimeMillis());
+		}
+
+		/**
+		 * Verarbeitet die empfangenen Datensätze. Ruft lediglich {@link StandardProtocoller#update} auf.
+		 *
+		 * @param	results	{@link ResultData}[] mit den empfangenen Ergebnisdatensätzen.
+		 * @param	time	Empfangszeit in Millisekunden seit 1970
+		 */
+		public void writeBlock(ResultData[] results, long time) {
 			StandardProtocoller.this.update(results);
 		}
 
@@ -247,6 +286,10 @@ public class StandardProtocoller extends ProtocolModule {
 		 * @param args String[] mit den Kommandozeilenparametern
 		 */
 		public void writeHeader(String[] args) {
+			writeHeader(args, System.currentTimeMillis());
+		}
+
+		public void writeHeader(String[] args, long startTime) {
 			state = HEADER_WRITTEN;
 		}
 	}
@@ -259,17 +302,17 @@ public class StandardProtocoller extends ProtocolModule {
 		}
 
 		/**
-		 * Aktualisierungsmethode, die nach Empfang eines angemeldeten Datensatzes von den Datenverteiler-Applikationsfunktionen aufgerufen wird und die Anzahl der
-		 * erhaltenen Datensätze ausgibt.
+		 * Verarbeitet die empfangenen Datensätze und gibt deren Anzahl aus.
 		 *
 		 * @param	results	{@link ResultData}[] mit den empfangenen Ergebnisdatensätzen.
+		 * @param	time	Empfangszeit in Millisekunden seit 1970
 		 */
-		public void update(ResultData[] results) {
+		public void writeBlock(ResultData[] results, long time) {
 			if(state == HEADER_WRITTEN) {
-				super.update(results);
+				super.writeBlock(results, time);
 				getProtocolFileWriter()
 						.println(
-								_dateFormat.format(new Date(System.currentTimeMillis())) + ": " + updateCount + ". " + _actionText + ": " + results.length
+								_dateFormat.format(time) + ": " + updateCount + ". " + _actionText + ": " + results.length
 								+ " von bisher insgesamt " + resultDataCount + " Datensätzen"
 						);
 				//debug.info("free/total: " + (Runtime.getRuntime().freeMemory() / 1024.0 / 1024.0) + "MB/" + (Runtime.getRuntime().totalMemory() / 1024.0 / 1024.0) + "MB");
@@ -284,6 +327,9 @@ public class StandardProtocoller extends ProtocolModule {
 		/** Gibt an, ob Zeilenumbruch in der Kopfzeile zugelassen ist */
 		protected final boolean breakHeader;
 
+		/** Puffer, in dem eine Ausgabezeile zusammengestellt wird. Der Puffer wird für alle Zeilen wiederverwendet. */
+		protected final StringBuilder line = new StringBuilder(200);
+
 		/** Erzeugt ein neues Objekt der Klasse <code>HeaderProtocoller</code> mit <code>breakHeader == false</code> */
 		public HeaderProtocoller() {
 			breakHeader = false;
@@ -299,14 +345,14 @@ public class StandardProtocoller extends ProtocolModule {
 		}
 
 		/**
-		 * Aktualisierungsmethode, die nach Empfang eines angemeldeten Datensatzes von den Datenverteiler-Applikationsfunktionen aufgerufen wird und die Köpfe der
-		 * erhaltenen Datensätze ausgibt.
+		 * Verarbeitet die empfangenen Datensätze und gibt zusätzlich deren Köpfe aus.
 		 *
 		 * @param	results	{@link ResultData}[] mit den empfangenen Ergebnisdatensätzen.
+		 * @param	time	Empfangszeit in Millisekunden seit 1970
 		 */
-		public void update(ResultData[] results) {
+		public void writeBlock(ResultData[] results, long time) {
 			if(state == HEADER_WRITTEN) {
-				super.update(results);
+				super.writeBlock(results, time);
 				for(int i = 0; i < results.length; ++i) {
 					try {
 						update(results[i]);
@@ -375,58 +421,52 @@ public class StandardProtocoller extends ProtocolModule {
 						 */
 			int simulationVariant = description.getSimulationVariant();
 
-			getProtocolFileWriter().print(indentationPrefix);
-			getProtocolFileWriter().print(
-					dateFormat
-							.format(new Date(result.getDataTime()))
-			);
-			getProtocolFileWriter().print(" ");
+			line.setLength(0);
+			line.append(indentationPrefix);
+			dateFormat.format(result.getDataTime(), line);
+			line.append(' ');
 			index = result.getDataIndex();
 			indexTimeStamp = index >>> SHIFT_TIME_STAMP;
 			indexIndex = (index & MASK_INDEX) >>> SHIFT_INDEX;
 			indexErrorCode = index & MASK_ERROR_CODE;
-			getProtocolFileWriter().print(indexTimeStamp);
-			getProtocolFileWriter().print("#");
-			getProtocolFileWriter().print(indexIndex);
-			getProtocolFileWriter().print("#");
-			getProtocolFileWriter().print(indexErrorCode);
-			getProtocolFileWriter().print(" ");
-			if(System.getProperty("de.bsvrz.pat.onlprot.object.toString", "false").equals("false")) {
-				getProtocolFileWriter().print(object.getNameOrPidOrId());
+			line.append(indexTimeStamp).append('#').append(indexIndex).append('#').append(indexErrorCode).append(' ');
+			if(!objectToString) {
+				line.append(object.getNameOrPidOrId());
 			}
 			else {
-				getProtocolFileWriter().print(object);
+				line.append(object);
 			}
-			getProtocolFileWriter().print(": ");
+			line.append(": ");
 
 			if(breakHeader) {
-				getProtocolFileWriter().println();
-				getProtocolFileWriter().print(indentationPrefix);
-				getProtocolFileWriter().print(indentationPrefix);
+				line.append(lineSeparator);
+				line.append(indentationPrefix);
+				line.append(indentationPrefix);
 			}
 
-			getProtocolFileWriter().print(attributeGroup.getNameOrPidOrId());
-			getProtocolFileWriter().print(":");
-			getProtocolFileWriter().print(aspect.getNameOrPidOrId());
+			line.append(attributeGroup.getNameOrPidOrId());
+			line.append(':');
+			line.append(aspect.getNameOrPidOrId());
 			if(simulationVariant != DataDescription.NO_SIMULATION_VARIANT_SET) {
-				getProtocolFileWriter().print(":");
-				getProtocolFileWriter().print(simulationVariant);
+				line.append(':');
+				line.append(simulationVariant);
 			}
-			getProtocolFileWriter().print(", ");
+			line.append(", ");
 			if(!result.isSourceAvailable()) {
-				getProtocolFileWriter().println("keine Quelle");
+				line.append("keine Quelle");
 			}
 			else if(!result.hasData()) {
-				getProtocolFileWriter().println("keine Daten");
+				line.append("keine Daten");
 			}
 			else {
 				if(result.isDelayedData()) {
-					getProtocolFileWriter().println("nachgelieferte Daten");
+					line.append("nachgelieferte Daten");
 				}
 				else {
-					getProtocolFileWriter().println("Online Daten");
+					line.append("Online Daten");
 				}
 			}
+			getProtocolFileWriter().println(line);
 		}
 	}
 
@@ -451,7 +491,9 @@ public class StandardProtocoller extends ProtocolModule {
 		 * @param	indentLevel	int welches die Einrücktiefe angibt
 		 */
 		protected void print(Data data, int indentLevel) {
-			StringBuffer text = new StringBuffer(80);
+			// Der Zeilenpuffer wird vor dem rekursiven Aufruf ausgegeben und kann daher wiederverwendet werden
+			StringBuilder text = line;
+			text.setLength(0);
 			for(int i = 0; i < indentLevel; ++i) {
 				text.append(indentationPrefix);
 			}
@@ -477,7 +519,7 @@ public class StandardProtocoller extends ProtocolModule {
 						}
 						text.append(suffix);
 					}
-					getProtocolFileWriter().println(text.toString());
+					getProtocolFileWriter().println(text);
 				}
 				catch(Exception e) {
 					debug.error(
@@ -487,10 +529,10 @@ public class StandardProtocoller extends ProtocolModule {
 				}
 			}
 			else {
-				getProtocolFileWriter().println(text.toString());
-				Iterator i = data.iterator();
+				getProtocolFileWriter().println(text);
+				Iterator<Data> i = data.iterator();
 				++indentLevel;
-				while(i.hasNext()) print((Data)i.next(), indentLevel);
+				while(i.hasNext()) print(i.next(), indentLevel);
 			}
 		}
 
@@ -503,12 +545,137 @@ public class StandardProtocoller extends ProtocolModule {
 			super.update(result);
 			if(result.hasData()) {
 				Data data = result.getData();
-				Iterator i = data.iterator();
+				Iterator<Data> i = data.iterator();
+				while(i.hasNext()) {
+					print(i.next(), breakHeader ? 3 : 2);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gibt jeden Datensatz kompakt als eine Zeile im CSV-Format aus. Die Spalten sind durch Semikolon getrennt: Empfangszeit, Datenzeit, Datenindex, Objekt,
+	 * Attributgruppe, Aspekt, Simulationsvariante, Art der Daten und danach die Werte aller einfachen Attribute in der Reihenfolge der Attributgruppe.
+	 */
+	private class CsvProtocoller extends SilentProtocoller {
+
+		/** Trennzeichen zwischen den Spalten */
+		private static final char SEPARATOR = ';';
+
+		/** Puffer, in dem eine Ausgabezeile zusammengestellt wird. Der Puffer wird für alle Zeilen wiederverwendet. */
+		private final StringBuilder line = new StringBuilder(256);
+
+		/** Erzeugt ein neues Objekt der Klasse <code>CsvProtocoller</code> */
+		public CsvProtocoller() {
+		}
+
+		/**
+		 * Gibt eine Kopfzeile mit den Spaltennamen aus.
+		 *
+		 * @param args      Kommandozeilenargumente
+		 * @param startTime Startzeit in Millisekunden seit 1970
+		 */
+		public void writeHeader(String[] args, long startTime) {
+			getProtocolFileWriter().println("Empfangszeit;Datenzeit;Datenindex;Objekt;Attributgruppe;Aspekt;Simulationsvariante;Art;Werte");
+			super.writeHeader(args, startTime);
+		}
+
+		/**
+		 * Verarbeitet die empfangenen Datensätze und gibt je Datensatz eine Zeile aus.
+		 *
+		 * @param	results	{@link ResultData}[] mit den empfangenen Ergebnisdatensätzen.
+		 * @param	time	Empfangszeit in Millisekunden seit 1970
+		 */
+		public void writeBlock(ResultData[] results, long time) {
+			if(state == HEADER_WRITTEN) {
+				super.writeBlock(results, time);
+				for(int i = 0; i < results.length; ++i) {
+					try {
+						writeLine(results[i], time);
+					}
+					catch(Exception e) {
+						debug.error(
+								"Fehler beim Zugriff auf den Datensatz: " + e.getMessage()
+						);
+					}
+				}
+			}
+		}
+
+		private void writeLine(ResultData result, long time) {
+			DataDescription description = result.getDataDescription();
+			line.setLength(0);
+			dateFormat.format(time, line).append(SEPARATOR);
+			dateFormat.format(result.getDataTime(), line).append(SEPARATOR);
+			line.append(result.getDataIndex()).append(SEPARATOR);
+			appendObject(result.getObject());
+			appendObject(description.getAttributeGroup());
+			appendObject(description.getAspect());
+			if(description.getSimulationVariant() != DataDescription.NO_SIMULATION_VARIANT_SET) {
+				line.append(description.getSimulationVariant());
+			}
+			line.append(SEPARATOR);
+			if(!result.isSourceAvailable()) {
+				line.append("keineQuelle");
+			}
+			else if(!result.hasData()) {
+				line.append("keineDaten");
+			}
+			else {
+				line.append(result.isDelayedData() ? "nachgeliefert" : "online");
+				Iterator<Data> i = result.getData().iterator();
+				while(i.hasNext()) {
+					appendValues(i.next());
+				}
+			}
+			getProtocolFileWriter().println(line);
+		}
+
+		/** Hängt Pid oder (falls keine Pid vorhanden ist) Id eines Objekts als Spalte an. */
+		private void appendObject(SystemObject object) {
+			String pid = object.getPid();
+			if(pid.length() == 0) {
+				line.append(object.getId());
+			}
+			else {
+				appendText(pid);
+			}
+			line.append(SEPARATOR);
+		}
+
+		/** Hängt die Werte aller einfachen Attribute eines Datums jeweils als eigene Spalte an. */
+		private void appendValues(Data data) {
+			if(data.isPlain()) {
+				line.append(SEPARATOR);
+				appendText(data.asTextValue().getValueText());
+			}
+			else {
+				Iterator<Data> i = data.iterator();
 				while(i.hasNext()) {
-					print((Data)i.next(), breakHeader ? 3 : 2);
+					appendValues(i.next());
 				}
 			}
 		}
+
+		/** Hängt einen Text an und setzt ihn in Anführungszeichen, falls er Trennzeichen, Anführungszeichen oder Zeilenumbrüche enthält. */
+		private void appendText(String text) {
+			boolean quote = false;
+			for(int i = 0; i < text.length() && !quote; i++) {
+				char c = text.charAt(i);
+				quote = c == SEPARATOR || c == '"' || c == '\n' || c == '\r';
+			}
+			if(!quote) {
+				line.append(text);
+				return;
+			}
+			line.append('"');
+			for(int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				if(c == '"') line.append('"');
+				line.append(c);
+			}
+			line.append('"');
+		}
 	}
 
 	/** Gibt die Telegramme in einem XML-Format aus. */
@@ -650,7 +817,7 @@ public class StandardProtocoller extends ProtocolModule {
 			openTag(PROTOCOL_TAG);
 			openTag(HEAD_TAG);
 			openAndCloseTag(
-					START_TIME_STAMP_TAG, VALUE_IS_QUOTES + dateFormat.format(new Date(startTime)) + "\""
+					START_TIME_STAMP_TAG, VALUE_IS_QUOTES + dateFormat.format(startTime) + "\""
 			);
 			String argumentString = "";
 			for(int i = 0; i < args.length; i++) {
@@ -835,7 +1002,7 @@ public class StandardProtocoller extends ProtocolModule {
 				try {
 
 					/* Iterator zum Durchlaufen des Feldes */
-					Iterator i = data.iterator();
+					Iterator<Data> i = data.iterator();
 
 					/* Anzahl der Einträge in diesem Feld */
 					int length = data.asArray().getLength();
@@ -847,7 +1014,7 @@ public class StandardProtocoller extends ProtocolModule {
 							ARRAY_TAG, NAME_IS_QUOTES + xmlText(name) + "\"", LENGTH_IS_QUOTES + length + "\""
 					);
 					while(i.hasNext()) {
-						printData((Data)i.next());
+						printData(i.next());
 					}
 					closeTag(ARRAY_TAG);
 				}
@@ -859,14 +1026,14 @@ public class StandardProtocoller extends ProtocolModule {
 				try {
 
 					/* Iterator zum Durchlaufen der Liste */
-					Iterator i = data.iterator();
+					Iterator<Data> i = data.iterator();
 
 					/* Name dieses Datums */
 					String name = data.getName();
 
 					openTag(LIST_TAG, NAME_IS_QUOTES + xmlText(name) + "\"");
 					while(i.hasNext()) {
-						printData((Data)i.next());
+						printData(i.next());
 					}
 					closeTag(LIST_TAG);
 				}
@@ -963,7 +1130,7 @@ public class StandardProtocoller extends ProtocolModule {
 			}
 
 			openAndCloseTag(
-					TIME_STAMP_TAG, VALUE_IS_QUOTES + dateFormat.format(new Date(telegram.getDataTime())) + "\""
+					TIME_STAMP_TAG, VALUE_IS_QUOTES + dateFormat.format(telegram.getDataTime()) + "\""
 			);
 
 			if(telegram.isDelayedData()) {
@@ -987,7 +1154,7 @@ public class StandardProtocoller extends ProtocolModule {
 		public synchronized void writeBlock(ResultData[] results, long currentTime) {
 			isInBlock = true;
 			openTag(
-					BLOCK_TAG, RCV_TIME_STAMP_IS_QUOTES + dateFormat.format(new Date(currentTime)) + "\""
+					BLOCK_TAG, RCV_TIME_STAMP_IS_QUOTES + dateFormat.format(currentTime) + "\""
 			);
 			for(int i = 0; i < results.length; i++) {
 				try {
@@ -1076,10 +1243,10 @@ public class StandardProtocoller extends ProtocolModule {
 					Data data = telegram.getData();
 
 					/* Iterator zum durchlaufen der Attribute des Telegramms */
-					Iterator i = data.iterator();
+					Iterator<Data> i = data.iterator();
 
 					while(i.hasNext()) {
-						printData((Data)i.next());
+						printData(i.next());
 					}
 				}
 				catch(Exception e) {
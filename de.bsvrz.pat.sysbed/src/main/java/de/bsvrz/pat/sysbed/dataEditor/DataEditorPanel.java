@@ -113,7 +113,7 @@ public class DataEditorPanel extends AbstractEditorPanel {
 
 
 	/** der Debug-Logger */
-	private final Debug _debug = Debug.getLogger();
+	private final Debug _debug = Debug.getLogger(DataEditorPanel.class);
 
 	/** die Verbindung zum Datenverteiler */
 	private final ClientDavInterface _connection;
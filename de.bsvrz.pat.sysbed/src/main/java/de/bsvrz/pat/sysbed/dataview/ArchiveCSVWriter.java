@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.sysbed.
+ *
+ * de.bsvrz.pat.sysbed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.sysbed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.sysbed.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.sysbed.dataview;
+
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schreibt Datensätze fortlaufend in eine CSV-Datei, ohne sie im Speicher zu sammeln. Im Gegensatz zum {@link CSVManager} stehen die Spalten nicht vorab
+ * fest: Jeder Datensatz wird sofort geschrieben, und Spalten, die erst in späteren Datensätzen auftreten (z.B. durch längere Arrays), werden hinten angefügt.
+ * Die Datenzeilen werden deshalb zunächst in eine temporäre Datei im Verzeichnis der Zieldatei geschrieben; erst {@link #close()} schreibt die Header-Zeile
+ * mit allen Spalten und hängt die Datenzeilen an.
+ * <p>
+ * Das Format der Zeilen entspricht dem des {@link CSVManager CSVManagers} ohne Selektion.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class ArchiveCSVWriter implements Closeable {
+
+	private final File _file;
+
+	private final File _bodyFile;
+
+	private final Charset _charset;
+
+	private final String _delimiter;
+
+	private final boolean _rowHeader;
+
+	private final Writer _bodyWriter;
+
+	private final DateFormat _timeFormat = CSVManager.createTimeFormat();
+
+	/** Spaltennamen in der Reihenfolge ihres ersten Auftretens */
+	private final List<String> _columns = new ArrayList<String>();
+
+	private final Map<String, Integer> _columnIndexes = new HashMap<String, Integer>();
+
+	private int _count = 0;
+
+	private boolean _closed = false;
+
+	/**
+	 * Legt die temporäre Datei für die Datenzeilen an.
+	 *
+	 * @param file      die CSV-Datei, die beim Schließen geschrieben wird
+	 * @param charset   die Zeichenkodierung der CSV-Datei
+	 * @param delimiter das Trennzeichen
+	 * @param rowHeader gibt an, ob die Spalten der Zeilenköpfe (Art, Zeit und Objekt) ausgegeben werden
+	 *
+	 * @throws IOException wenn die temporäre Datei nicht angelegt werden kann
+	 */
+	public ArchiveCSVWriter(final File file, final Charset charset, final String delimiter, final boolean rowHeader) throws IOException {
+		_file = file;
+		_charset = charset;
+		_delimiter = delimiter;
+		_rowHeader = rowHeader;
+		_bodyFile = File.createTempFile("sysbed-csv", ".tmp", file.getAbsoluteFile().getParentFile());
+		_bodyFile.deleteOnExit();
+		_bodyWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(_bodyFile), charset));
+	}
+
+	/**
+	 * Schreibt einen Datensatz als Datenzeile.
+	 *
+	 * @param dataTableObject der Datensatz
+	 *
+	 * @throws IOException wenn beim Schreiben ein Fehler auftritt
+	 */
+	public void write(final DataTableObject dataTableObject) throws IOException {
+		if(_rowHeader) {
+			_bodyWriter.write(CSVManager.encodeForCSV(DataTableObjectRenderer.getDatakindText(dataTableObject.getDataKind()), _delimiter));
+			_bodyWriter.write(_delimiter);
+			_bodyWriter.write(CSVManager.encodeForCSV(CSVManager.getTimeText(dataTableObject, _timeFormat), _delimiter));
+			_bodyWriter.write(_delimiter);
+			_bodyWriter.write(CSVManager.encodeForCSV(dataTableObject.getObject().getNameOrPidOrId(), _delimiter));
+			_bodyWriter.write(_delimiter);
+		}
+		if(dataTableObject.getData() == null) {
+			_bodyWriter.write(CSVManager.encodeForCSV(DataTableObjectRenderer.getTextForState(dataTableObject.getDataState()), _delimiter));
+			_bodyWriter.write(_delimiter);
+		}
+		else {
+			final Map<String, String> values = new LinkedHashMap<String, String>();
+			CSVManager.collectCSVValues(dataTableObject.getData(), "", values);
+			final String[] fields = new String[_columns.size() + values.size()];
+			int fieldCount = 0;
+			for(Map.Entry<String, String> entry : values.entrySet()) {
+				Integer index = _columnIndexes.get(entry.getKey());
+				if(index == null) {
+					index = _columns.size();
+					_columns.add(entry.getKey());
+					_columnIndexes.put(entry.getKey(), index);
+				}
+				fields[index] = entry.getValue();
+				fieldCount = Math.max(fieldCount, index + 1);
+			}
+			for(int i = 0; i < fieldCount; i++) {
+				if(fields[i] != null) {
+					_bodyWriter.write(CSVManager.encodeForCSV(fields[i], _delimiter));
+				}
+				_bodyWriter.write(_delimiter);
+			}
+		}
+		_bodyWriter.write("\n");
+		_count++;
+	}
+
+	/**
+	 * Gibt die Anzahl der bisher geschriebenen Datenzeilen zurück.
+	 *
+	 * @return die Anzahl der Datenzeilen
+	 */
+	public int getCount() {
+		return _count;
+	}
+
+	/**
+	 * Schreibt die CSV-Datei mit Header-Zeile und allen Datenzeilen und löscht die temporäre Datei.
+	 *
+	 * @throws IOException wenn beim Schreiben ein Fehler auftritt
+	 */
+	public void close() throws IOException {
+		if(_closed) return;
+		_closed = true;
+		try {
+			_bodyWriter.close();
+			final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(_file));
+			try {
+				final Writer headerWriter = new OutputStreamWriter(outputStream, _charset);
+				headerWriter.write(getHeaderLine());
+				headerWriter.flush();
+				final InputStream bodyInput = new FileInputStream(_bodyFile);
+				try {
+					final byte[] buffer = new byte[64 * 1024];
+					int length;
+					while((length = bodyInput.read(buffer)) != -1) {
+						outputStream.write(buffer, 0, length);
+					}
+				}
+				finally {
+					bodyInput.close();
+				}
+			}
+			finally {
+				outputStream.close();
+			}
+		}
+		finally {
+			_bodyFile.delete();
+		}
+	}
+
+	/** Verwirft die bisher geschriebenen Datenzeilen, ohne die CSV-Datei zu schreiben. */
+	public void abort() {
+		if(_closed) return;
+		_closed = true;
+		try {
+			_bodyWriter.close();
+		}
+		catch(IOException ignored) {
+		}
+		_bodyFile.delete();
+	}
+
+	private String getHeaderLine() {
+		final StringBuilder buffer = new StringBuilder();
+		if(_rowHeader) {
+			buffer.append("Art").append(_delimiter).append("Zeit").append(_delimiter).append("Objekt").append(_delimiter);
+		}
+		for(String column : _columns) {
+			buffer.append(column).append(_delimiter);
+		}
+		buffer.append("\n");
+		return buffer.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "ArchiveCSVWriter{" + "file=" + _file + ", count=" + _count + "}";
+	}
+}
@@ -153,6 +153,15 @@ public class ArchiveDataTableView implements PrintFrame {
 		_dataViewModel.addDatasetBelow(dataTableObject);
 	}
 
+	/**
+	 * Fügt mehrere DataTableObjects am Ende an. Die Online-Tabelle wird dabei nur einmal aktualisiert.
+	 *
+	 * @param dataTableObjects Liste mit anzuzeigenden Datensätzen, die Liste darf danach nicht mehr verändert werden
+	 */
+	public void addDatasets(final List<DataTableObject> dataTableObjects) {
+		_dataViewModel.addDatasetsBelow(dataTableObjects);
+	}
+
 	/**
 	 * Gibt false zurück, wenn das Fenster geschlossen wurde.
 	 *
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.sysbed.
+ *
+ * de.bsvrz.pat.sysbed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.sysbed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.sysbed.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.sysbed.dataview;
+
+
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.DataDescription;
+import de.bsvrz.dav.daf.main.DataState;
+import de.bsvrz.dav.daf.main.archive.ArchiveData;
+import de.bsvrz.dav.daf.main.archive.ArchiveDataKind;
+import de.bsvrz.dav.daf.main.archive.TimingType;
+import de.bsvrz.dav.daf.main.config.ObjectLookup;
+import de.bsvrz.dav.daf.main.config.SystemObject;
+import de.bsvrz.sys.funclib.dataSerializer.Deserializer;
+import de.bsvrz.sys.funclib.dataSerializer.Serializer;
+import de.bsvrz.sys.funclib.dataSerializer.SerializingFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Speichert die Ergebnisdatensätze einer Archivanfrage in einer temporären Datei, damit auch sehr große Ergebnismengen nicht im Hauptspeicher gehalten werden
+ * müssen. Jeder Datensatz wird beim Einfügen serialisiert und an die Datei angehängt, im Speicher verbleibt nur die Position des Datensatzes in der Datei. Mit
+ * {@link #get(int)} wird ein Datensatz bei Bedarf wieder eingelesen, so dass z.B. eine Tabelle nur die gerade sichtbaren Zeilen laden muss.
+ * <p>
+ * Alle Datensätze müssen zur selben Datenbeschreibung gehören. Die Methoden sind synchronisiert, es kann also ein Thread Datensätze einfügen, während ein
+ * anderer Thread Datensätze liest. Mit {@link #close()} wird die temporäre Datei gelöscht.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ * @see ArchiveResultTableModel
+ */
+public class ArchiveResultStore implements Closeable {
+
+	/** Größe des Schreibpuffers, ab der die gesammelten Datensätze in die Datei geschrieben werden */
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private final DataDescription _dataDescription;
+
+	private final TimingType _timingType;
+
+	/** Wird zum Auflösen von Objektreferenzen innerhalb der Datensätze benötigt */
+	private final ObjectLookup _objectLookup;
+
+	/** Die Systemobjekte der eingefügten Datensätze, in der Datei wird nur die Id gespeichert */
+	private final Map<Long, SystemObject> _objects = new HashMap<Long, SystemObject>();
+
+	private final File _file;
+
+	private final RandomAccessFile _randomAccessFile;
+
+	/** Noch nicht in die Datei geschriebene Datensätze */
+	private final ByteArrayOutputStream _writeBuffer = new ByteArrayOutputStream(WRITE_BUFFER_SIZE);
+
+	/** Puffer für einen einzelnen serialisierten Datensatz */
+	private final ByteArrayOutputStream _recordBuffer = new ByteArrayOutputStream();
+
+	private final DataOutputStream _recordOutput = new DataOutputStream(_recordBuffer);
+
+	private final Serializer _serializer = SerializingFactory.createSerializer(_recordBuffer);
+
+	/** Positionen der Datensätze in der Datei */
+	private long[] _offsets = new long[1024];
+
+	private int _size = 0;
+
+	/** Länge der Datei ohne den Inhalt des Schreibpuffers */
+	private long _fileLength = 0;
+
+	private boolean _closed = false;
+
+	/**
+	 * Erzeugt einen leeren Speicher mit einer neuen temporären Datei.
+	 *
+	 * @param dataDescription Datenbeschreibung der Datensätze
+	 * @param timingType      gibt an, welcher der drei Typen (Archivzeit, Datenzeit und Datenindex) angezeigt werden soll
+	 * @param objectLookup    Datenmodell zum Auflösen von Objektreferenzen innerhalb der Datensätze
+	 *
+	 * @throws IOException wenn die temporäre Datei nicht angelegt werden kann
+	 */
+	public ArchiveResultStore(final DataDescription dataDescription, final TimingType timingType, final ObjectLookup objectLookup) throws IOException {
+		_dataDescription = dataDescription;
+		_timingType = timingType;
+		_objectLookup = objectLookup;
+		_file = File.createTempFile("sysbed-archiv", ".tmp");
+		_file.deleteOnExit();
+		_randomAccessFile = new RandomAccessFile(_file, "rw");
+	}
+
+	/**
+	 * Hängt einen Datensatz an.
+	 *
+	 * @param archiveData der Datensatz
+	 *
+	 * @throws IOException wenn der Datensatz nicht geschrieben werden kann oder der Speicher bereits geschlossen wurde
+	 */
+	public synchronized void append(final ArchiveData archiveData) throws IOException {
+		ensureOpen();
+		final SystemObject object = archiveData.getObject();
+		_objects.put(object.getId(), object);
+
+		_recordBuffer.reset();
+		_recordOutput.writeLong(object.getId());
+		_recordOutput.writeLong(archiveData.getArchiveTime());
+		_recordOutput.writeLong(archiveData.getDataTime());
+		_recordOutput.writeLong(archiveData.getDataIndex());
+		_recordOutput.writeInt(archiveData.getDataType().getCode());
+		_recordOutput.writeInt(archiveData.getDataKind().getCode());
+		final Data data = archiveData.getData();
+		_recordOutput.writeBoolean(data != null);
+		if(data != null) {
+			_serializer.writeData(data);
+		}
+
+		if(_size == _offsets.length) {
+			final long[] newOffsets = new long[_offsets.length * 2];
+			System.arraycopy(_offsets, 0, newOffsets, 0, _size);
+			_offsets = newOffsets;
+		}
+		_offsets[_size++] = _fileLength + _writeBuffer.size();
+		new DataOutputStream(_writeBuffer).writeInt(_recordBuffer.size());
+		_recordBuffer.writeTo(_writeBuffer);
+		if(_writeBuffer.size() >= WRITE_BUFFER_SIZE) {
+			flushWriteBuffer();
+		}
+	}
+
+	/**
+	 * Liest einen Datensatz ein.
+	 *
+	 * @param index Index des Datensatzes in der Reihenfolge des Einfügens
+	 *
+	 * @return der Datensatz
+	 *
+	 * @throws IOException wenn der Datensatz nicht gelesen werden kann oder der Speicher bereits geschlossen wurde
+	 */
+	public synchronized DataTableObject get(final int index) throws IOException {
+		ensureOpen();
+		if(index < 0 || index >= _size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Anzahl: " + _size);
+		}
+		final long offset = _offsets[index];
+		if(offset >= _fileLength) {
+			flushWriteBuffer();
+		}
+		_randomAccessFile.seek(offset);
+		final byte[] record = new byte[_randomAccessFile.readInt()];
+		_randomAccessFile.readFully(record);
+
+		final ByteArrayInputStream recordInput = new ByteArrayInputStream(record);
+		final DataInputStream in = new DataInputStream(recordInput);
+		final SystemObject object = _objects.get(in.readLong());
+		final long archiveTime = in.readLong();
+		final long dataTime = in.readLong();
+		final long dataIndex = in.readLong();
+		final DataState dataState = DataState.getInstance(in.readInt());
+		final ArchiveDataKind dataKind = ArchiveDataKind.getInstance(in.readInt());
+		Data data = null;
+		if(in.readBoolean()) {
+			final Deserializer deserializer = SerializingFactory.createDeserializer(recordInput);
+			data = deserializer.readData(_dataDescription.getAttributeGroup(), _objectLookup);
+		}
+		return new DataTableObject(object, _dataDescription, _timingType, archiveTime, dataTime, dataIndex, dataState, dataKind, data);
+	}
+
+	/**
+	 * Gibt die Anzahl der gespeicherten Datensätze zurück.
+	 *
+	 * @return die Anzahl der Datensätze
+	 */
+	public synchronized int size() {
+		return _size;
+	}
+
+	/**
+	 * Gibt die Datenbeschreibung der gespeicherten Datensätze zurück.
+	 *
+	 * @return die Datenbeschreibung
+	 */
+	public DataDescription getDataDescription() {
+		return _dataDescription;
+	}
+
+	/**
+	 * Schließt den Speicher und löscht die temporäre Datei. Weitere Aufrufe von {@link #append(ArchiveData)} und {@link #get(int)} führen zu einer
+	 * IOException.
+	 */
+	public synchronized void close() throws IOException {
+		if(_closed) return;
+		_closed = true;
+		_writeBuffer.reset();
+		try {
+			_randomAccessFile.close();
+		}
+		finally {
+			_file.delete();
+		}
+	}
+
+	private void flushWriteBuffer() throws IOException {
+		_randomAccessFile.seek(_fileLength);
+		_randomAccessFile.write(_writeBuffer.toByteArray());
+		_fileLength += _writeBuffer.size();
+		_writeBuffer.reset();
+	}
+
+	private void ensureOpen() throws IOException {
+		if(_closed) throw new IOException("Der Speicher für die Archivdaten wurde bereits geschlossen");
+	}
+
+	@Override
+	public String toString() {
+		return "ArchiveResultStore{" + "file=" + _file + ", size=" + _size + "}";
+	}
+}
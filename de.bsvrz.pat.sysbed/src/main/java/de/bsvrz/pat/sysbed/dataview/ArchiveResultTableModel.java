@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.sysbed.
+ *
+ * de.bsvrz.pat.sysbed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.sysbed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.sysbed.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.sysbed.dataview;
+
+
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabellenmodell für die Ergebnisse einer Archivanfrage, deren Datensätze in einem {@link ArchiveResultStore} liegen. Eine Zeile wird erst dann aus dem
+ * Speicher gelesen und in Zellentexte umgewandelt, wenn die Tabelle sie darstellen will. Die zuletzt benutzten Zeilen werden zwischengespeichert, so dass
+ * der Speicherbedarf unabhängig von der Anzahl der Datensätze ist.
+ * <p>
+ * Die ersten drei Spalten enthalten Art, Zeit und Objekt, danach folgt je eine Spalte für jedes einfache Attribut mit denselben Namen wie beim CSV-Export.
+ * Die Attributspalten werden beim Einfügen der Datensätze ermittelt und mit {@link #rowsAppended(int, List)} übergeben.
+ * <p>
+ * Alle Methoden dürfen nur im Swing-Thread aufgerufen werden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+@SuppressWarnings("serial")
+public class ArchiveResultTableModel extends AbstractTableModel {
+
+	/** der Debug-Logger */
+	private static final Debug _debug = Debug.getLogger();
+
+	/** Anzahl der zwischengespeicherten Zeilen */
+	private static final int CACHE_SIZE = 500;
+
+	/** Namen der Spalten der Zeilenköpfe */
+	private static final String[] ROW_HEADER_COLUMNS = {"Art", "Zeit", "Objekt"};
+
+	private final ArchiveResultStore _store;
+
+	/** Namen der Attributspalten */
+	private final List<String> _columns = new ArrayList<String>();
+
+	private final Map<String, Integer> _columnIndexes = new HashMap<String, Integer>();
+
+	/** Zuletzt benutzte Zeilen mit den Texten aller Spalten */
+	private final Map<Integer, String[]> _rowCache = new LinkedHashMap<Integer, String[]>(CACHE_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Integer, String[]> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final DateFormat _timeFormat = CSVManager.createTimeFormat();
+
+	/** Anzahl der Zeilen, die der Tabelle bereits gemeldet wurden */
+	private int _rowCount = 0;
+
+	/**
+	 * Erzeugt ein Tabellenmodell ohne Zeilen.
+	 *
+	 * @param store der Speicher mit den Datensätzen
+	 */
+	public ArchiveResultTableModel(final ArchiveResultStore store) {
+		_store = store;
+	}
+
+	/**
+	 * Meldet neu eingefügte Datensätze und Attributspalten.
+	 *
+	 * @param rowCount   die neue Anzahl der Zeilen
+	 * @param newColumns Namen der Attributspalten, die in den neuen Datensätzen erstmals aufgetreten sind
+	 */
+	public void rowsAppended(final int rowCount, final List<String> newColumns) {
+		boolean structureChanged = false;
+		for(String column : newColumns) {
+			if(!_columnIndexes.containsKey(column)) {
+				_columnIndexes.put(column, _columns.size());
+				_columns.add(column);
+				structureChanged = true;
+			}
+		}
+		final int oldRowCount = _rowCount;
+		_rowCount = rowCount;
+		if(structureChanged) {
+			_rowCache.clear();
+			fireTableStructureChanged();
+		}
+		else if(rowCount > oldRowCount) {
+			fireTableRowsInserted(oldRowCount, rowCount - 1);
+		}
+	}
+
+	public int getRowCount() {
+		return _rowCount;
+	}
+
+	public int getColumnCount() {
+		return ROW_HEADER_COLUMNS.length + _columns.size();
+	}
+
+	@Override
+	public String getColumnName(final int column) {
+		if(column < ROW_HEADER_COLUMNS.length) {
+			return ROW_HEADER_COLUMNS[column];
+		}
+		return _columns.get(column - ROW_HEADER_COLUMNS.length);
+	}
+
+	public Object getValueAt(final int rowIndex, final int columnIndex) {
+		String[] row = _rowCache.get(rowIndex);
+		if(row == null) {
+			row = loadRow(rowIndex);
+			_rowCache.put(rowIndex, row);
+		}
+		return columnIndex < row.length ? row[columnIndex] : null;
+	}
+
+	private String[] loadRow(final int rowIndex) {
+		final String[] row = new String[getColumnCount()];
+		final DataTableObject dataTableObject;
+		try {
+			dataTableObject = _store.get(rowIndex);
+		}
+		catch(IOException e) {
+			_debug.warning("Archivdatensatz " + rowIndex + " konnte nicht gelesen werden", e);
+			row[0] = "Fehler beim Lesen";
+			return row;
+		}
+		row[0] = DataTableObjectRenderer.getDatakindText(dataTableObject.getDataKind());
+		row[1] = CSVManager.getTimeText(dataTableObject, _timeFormat);
+		row[2] = dataTableObject.getObject().getNameOrPidOrId();
+		if(dataTableObject.getData() == null) {
+			if(row.length > ROW_HEADER_COLUMNS.length) {
+				row[ROW_HEADER_COLUMNS.length] = DataTableObjectRenderer.getTextForState(dataTableObject.getDataState());
+			}
+		}
+		else {
+			final Map<String, String> values = new LinkedHashMap<String, String>();
+			CSVManager.collectCSVValues(dataTableObject.getData(), "", values);
+			for(Map.Entry<String, String> entry : values.entrySet()) {
+				final Integer index = _columnIndexes.get(entry.getKey());
+				if(index != null) {
+					row[ROW_HEADER_COLUMNS.length + index] = entry.getValue();
+				}
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Gibt den Speicher mit den Datensätzen zurück.
+	 *
+	 * @return der Speicher
+	 */
+	public ArchiveResultStore getStore() {
+		return _store;
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.sysbed.
+ *
+ * de.bsvrz.pat.sysbed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.sysbed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.sysbed.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.sysbed.dataview;
+
+
+import de.bsvrz.dav.daf.main.ClientDavInterface;
+import de.bsvrz.dav.daf.main.archive.ArchiveData;
+import de.bsvrz.pat.sysbed.main.GenericTestMonitorApplication;
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Erstellt ein Fenster, das die Ergebnisse einer streambasierten Archivanfrage in einer virtualisierten Tabelle anzeigt. Die Datensätze werden mit {@link
+ * #addArchiveData(ArchiveData)} in einem {@link ArchiveResultStore} auf der Festplatte abgelegt, die Tabelle liest nur die sichtbaren Zeilen. Im Gegensatz
+ * zur {@link ArchiveDataTableView} können dadurch auch Anfragen mit sehr vielen Datensätzen angezeigt werden, dafür gibt es keine hierarchischen Spaltenköpfe
+ * und keine Zellenselektion.
+ * <p>
+ * Die Tabelle wird nicht für jeden Datensatz einzeln aktualisiert: Es ist immer höchstens eine Aktualisierung im Swing-Thread eingeplant, die alle bis dahin
+ * eingefügten Datensätze auf einmal meldet.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class ArchiveResultTableView {
+
+	/** der Debug-Logger */
+	private static final Debug _debug = Debug.getLogger();
+
+	private final ArchiveResultStore _store;
+
+	private final ArchiveResultTableModel _tableModel;
+
+	private final JFrame _frame;
+
+	private final JLabel _statusLabel = new JLabel(" ");
+
+	/** Attributspalten, die der einfügende Thread bereits kennt */
+	private final Set<String> _knownColumns = new HashSet<String>();
+
+	/** Neue Attributspalten, die dem Tabellenmodell noch nicht gemeldet wurden */
+	private final List<String> _pendingColumns = new ArrayList<String>();
+
+	/** Gibt an, ob bereits eine Aktualisierung der Tabelle im Swing-Thread eingeplant ist */
+	private final AtomicBoolean _updateScheduled = new AtomicBoolean(false);
+
+	private volatile boolean _isDisposed = false;
+
+	private volatile boolean _isFinished = false;
+
+	/**
+	 * Erstellt das Fenster und zeigt es an.
+	 *
+	 * @param store      der Speicher, in dem die Datensätze abgelegt werden; er wird beim Schließen des Fensters geschlossen
+	 * @param connection die Datenverteiler-Verbindung
+	 */
+	public ArchiveResultTableView(final ArchiveResultStore store, final ClientDavInterface connection) {
+		_store = store;
+		_tableModel = new ArchiveResultTableModel(store);
+
+		_frame = new JFrame(
+				GenericTestMonitorApplication.getTitle(
+						"Streambasierte Archivanfrage (Attributgruppe: " + store.getDataDescription().getAttributeGroup().getNameOrPidOrId() + ")", connection
+				)
+		);
+		_frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+		final JTable table = new JTable(_tableModel);
+		table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+
+		final Container pane = _frame.getContentPane();
+		pane.setLayout(new BorderLayout());
+		pane.add(new JScrollPane(table), BorderLayout.CENTER);
+		pane.add(_statusLabel, BorderLayout.SOUTH);
+
+		_frame.setJMenuBar(createMenuBar());
+		_frame.addWindowListener(
+				new WindowAdapter() {
+					@Override
+					public void windowClosed(WindowEvent e) {
+						_isDisposed = true;          // damit der Thread der Archivanfrage abbricht
+						try {
+							_store.close();
+						}
+						catch(IOException ex) {
+							_debug.warning("Temporäre Datei der Archivanfrage konnte nicht gelöscht werden", ex);
+						}
+					}
+				}
+		);
+
+		_frame.setSize(1000, 400);
+		_frame.setVisible(true);
+	}
+
+	private JMenuBar createMenuBar() {
+		final JMenuBar menuBar = new JMenuBar();
+		final JMenu fileMenu = new JMenu("Datei");
+		final JMenuItem csvItem = new JMenuItem("Als CSV-Datei speichern ...");
+		csvItem.addActionListener(
+				new ActionListener() {
+					public void actionPerformed(ActionEvent e) {
+						saveAsCSV();
+					}
+				}
+		);
+		fileMenu.add(csvItem);
+		fileMenu.addSeparator();
+		final JMenuItem closeItem = new JMenuItem("Schließen");
+		closeItem.addActionListener(
+				new ActionListener() {
+					public void actionPerformed(ActionEvent e) {
+						_frame.dispose();
+					}
+				}
+		);
+		fileMenu.add(closeItem);
+		menuBar.add(fileMenu);
+		return menuBar;
+	}
+
+	/**
+	 * Fügt einen Datensatz der Archivanfrage hinzu. Die Methode darf nur von einem Thread aufgerufen werden, i.d.R. dem Thread, der die Archivdaten-Streams
+	 * abarbeitet.
+	 *
+	 * @param archiveData der Datensatz
+	 *
+	 * @throws IOException wenn der Datensatz nicht gespeichert werden kann, z.B. weil das Fenster bereits geschlossen wurde
+	 */
+	public void addArchiveData(final ArchiveData archiveData) throws IOException {
+		_store.append(archiveData);
+		if(archiveData.getData() != null) {
+			final Map<String, String> values = new LinkedHashMap<String, String>();
+			CSVManager.collectCSVValues(archiveData.getData(), "", values);
+			for(String column : values.keySet()) {
+				if(_knownColumns.add(column)) {
+					synchronized(_pendingColumns) {
+						_pendingColumns.add(column);
+					}
+				}
+			}
+		}
+		scheduleUpdate();
+	}
+
+	/** Wird aufgerufen, wenn alle Datensätze der Archivanfrage eingefügt wurden. */
+	public void finished() {
+		_isFinished = true;
+		scheduleUpdate();
+	}
+
+	/**
+	 * Gibt <code>true</code> zurück, wenn das Fenster geschlossen wurde.
+	 *
+	 * @return ob das Fenster geschlossen wurde
+	 */
+	public boolean isDisposed() {
+		return _isDisposed;
+	}
+
+	private void scheduleUpdate() {
+		if(_updateScheduled.getAndSet(true)) return;
+		SwingUtilities.invokeLater(
+				new Runnable() {
+					public void run() {
+						_updateScheduled.set(false);
+						final List<String> newColumns;
+						synchronized(_pendingColumns) {
+							newColumns = new ArrayList<String>(_pendingColumns);
+							_pendingColumns.clear();
+						}
+						final boolean finished = _isFinished;
+						final int rowCount = _store.size();
+						_tableModel.rowsAppended(rowCount, newColumns);
+						_statusLabel.setText(
+								finished ? "Archivanfrage abgeschlossen, " + rowCount + " Datensätze" : rowCount + " Datensätze empfangen ..."
+						);
+					}
+				}
+		);
+	}
+
+	private void saveAsCSV() {
+		final JFileChooser fileChooser = new JFileChooser();
+		fileChooser.setDialogTitle("CSV-Export");
+		if(fileChooser.showSaveDialog(_frame) != JFileChooser.APPROVE_OPTION) return;
+		final File csvFile = fileChooser.getSelectedFile();
+		// Es werden nur die Datensätze exportiert, die bis jetzt in der Tabelle angezeigt werden
+		final int rowCount = _tableModel.getRowCount();
+		final Thread exportThread = new Thread(
+				new Runnable() {
+					public void run() {
+						String message;
+						int messageType = JOptionPane.INFORMATION_MESSAGE;
+						try {
+							final ArchiveCSVWriter csvWriter = new ArchiveCSVWriter(csvFile, Charset.defaultCharset(), ";", true);
+							try {
+								for(int i = 0; i < rowCount; i++) {
+									csvWriter.write(_store.get(i));
+								}
+								csvWriter.close();
+							}
+							finally {
+								csvWriter.abort();
+							}
+							message = rowCount + " Datensätze wurden in die Datei " + csvFile.getName() + " geschrieben.";
+						}
+						catch(IOException e) {
+							_debug.warning("Fehler beim Schreiben der Datei " + csvFile.getName(), e);
+							message = "Fehler beim Schreiben der Datei " + csvFile.getName() + ": " + e.getMessage();
+							messageType = JOptionPane.ERROR_MESSAGE;
+						}
+						showMessage(message, messageType);
+					}
+				}, "GTM-CSV-Export"
+		);
+		exportThread.start();
+	}
+
+	private void showMessage(final String message, final int messageType) {
+		SwingUtilities.invokeLater(
+				new Runnable() {
+					public void run() {
+						JOptionPane.showMessageDialog(_frame, message, "CSV-Export", messageType);
+					}
+				}
+		);
+	}
+}
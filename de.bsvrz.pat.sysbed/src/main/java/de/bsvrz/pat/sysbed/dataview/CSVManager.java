@@ -25,9 +25,12 @@
  */
 package de.bsvrz.pat.sysbed.dataview;
 
+import de.bsvrz.dav.daf.main.Data;
 import de.bsvrz.dav.daf.main.config.AttributeGroup;
 import de.bsvrz.pat.sysbed.dataview.DataTableObject.DataTableObjectId;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -85,6 +88,9 @@ public class CSVManager {
 	/** speichert das Zeitformat für die Spalte 'Zeit' */
 	static private final String TIME_FORMAT = "dd.MM.yyyy HH:mm:ss,SSS";
 	
+	/** Formatierer für die Spalte 'Zeit', wird für alle Zeilen dieses CSVManagers verwendet */
+	private final DateFormat _timeFormat = new SimpleDateFormat(TIME_FORMAT);
+	
 	/**
 	 * Jeder CSVManager kann nur für eine Attributgruppe verwendet werden, die nicht veränderbar ist.
 	 * Die übergebenen CellKeys werden als Filter benutzt, fall die Collection nicht <code>null</code>
@@ -174,6 +180,25 @@ public class CSVManager {
 		return buffer.toString();
 	}
 	
+	/**
+	 * Schreibt die Header-Zeile und die Datenzeilen zeilenweise in den übergebenen Writer. Im Gegensatz zu
+	 * {@link #getCSVHeaderLine(boolean)} und {@link #getCSVLines(boolean)} wird der Inhalt der Datei dabei
+	 * nicht vollständig im Speicher aufgebaut.
+	 * 
+	 * @param writer der Writer, in den geschrieben wird; er wird nicht geschlossen
+	 * @param rowHeader gibt an, ob die Spalten der Zeilenköpfe (Art, Zeit und Objekt) ausgegeben werden
+	 * @throws IOException wenn beim Schreiben ein Fehler auftritt
+	 */
+	public void writeCSV( final Writer writer, final boolean rowHeader) throws IOException {
+		writer.write( getCSVHeaderLine( rowHeader));
+		for ( DataTableObject dataTableObject : _dataTableObjects) {
+			final StringBuffer csvLineForDataTableObject = getCSVLineForDataTableObject(dataTableObject, rowHeader);
+			if ( csvLineForDataTableObject != null) {
+				writer.append( csvLineForDataTableObject);
+			}
+		}
+	}
+	
 	/**
 	 * Setzt das Trennzeichen, das in der Header- und den Datenzeilen verwendet wird.
 	 * 
@@ -212,16 +237,81 @@ public class CSVManager {
 	}
 	
 	private String encodeForCSV( final String s) {
+		return encodeForCSV( s, _delimiter);
+	}
+	
+	/**
+	 * Setzt einen Feldinhalt in Anführungszeichen, falls er Trennzeichen, Zeilenumbrüche, Leerzeichen
+	 * oder Anführungszeichen enthält.
+	 * 
+	 * @param s der Feldinhalt
+	 * @param delimiter das Trennzeichen
+	 * @return der Feldinhalt, wie er in die CSV-Zeile geschrieben wird
+	 */
+	static String encodeForCSV( final String s, final String delimiter) {
 		String r = s;
 		if ( r.contains("\"")) {
 			r = r.replaceAll("\"", "\"\"");
 		}
-		if ( r.contains(";") || r.contains( _delimiter) || r.contains("\n") || r.contains(" ") || r.contains("\"")) {
+		if ( r.contains(";") || r.contains( delimiter) || r.contains("\n") || r.contains(" ") || r.contains("\"")) {
 			r = "\"" + r + "\"";
 		}
 		return r;
 	}
 	
+	/**
+	 * Gibt den Text der Spalte 'Zeit' für einen Datensatz zurück.
+	 * 
+	 * @param dataTableObject der Datensatz
+	 * @param timeFormat das Zeitformat
+	 * @return der Text der Spalte 'Zeit'
+	 */
+	static String getTimeText( final DataTableObject dataTableObject, final DateFormat timeFormat) {
+		String archiveTime = timeFormat.format(new Date(dataTableObject.getArchiveTime()));
+		String dataTime = timeFormat.format(new Date(dataTableObject.getDataTime()));
+		long dataIndex = dataTableObject.getDataIndex();
+		String dataIndexString = (dataIndex >>> 32) + "#" + ((dataIndex >> 2) & 0x3fffffff) + "#" + (dataIndex & 0x3);
+		return DataTableObjectRenderer.getTimeText(dataTableObject.getTimingType(), archiveTime, dataIndexString, dataTime);
+	}
+	
+	/**
+	 * Trägt die Werte aller einfachen Attribute eines Datensatzes in der Reihenfolge der Attributgruppe in die
+	 * übergebene Map ein. Die Schlüssel entsprechen den Spaltennamen der Header-Zeile, d.h. die Namensteile
+	 * werden wie bei {@link CellKey#getAttributePartsWithArrays()} durch Komma getrennt und Array-Elemente
+	 * mit ihrem Index in eckigen Klammern gekennzeichnet.
+	 * 
+	 * @param data der Datensatz oder ein Teil davon
+	 * @param prefix der Spaltenname des übergeordneten Datums, bei einem ganzen Datensatz der leere String
+	 * @param values die Map, in die Spaltennamen und Werte eingetragen werden
+	 */
+	static void collectCSVValues( final Data data, final String prefix, final Map<String, String> values) {
+		if ( data.isPlain()) {
+			values.put( prefix, data.valueToString());
+			return;
+		}
+		if ( data.isArray()) {
+			int index = 0;
+			for ( Data element : data) {
+				collectCSVValues( element, prefix + "[" + index + "]", values);
+				index++;
+			}
+			return;
+		}
+		final String separator = prefix.length() == 0 ? "" : ",";
+		for ( Data item : data) {
+			collectCSVValues( item, prefix + separator + item.getName(), values);
+		}
+	}
+	
+	/**
+	 * Gibt ein neues Zeitformat für die Spalte 'Zeit' zurück.
+	 * 
+	 * @return das Zeitformat
+	 */
+	static DateFormat createTimeFormat() {
+		return new SimpleDateFormat(TIME_FORMAT);
+	}
+	
 	private StringBuffer getCSVLineForDataTableObject(
 			final DataTableObject dataTableObject,
 			final boolean rowHeader) {
@@ -230,13 +320,7 @@ public class CSVManager {
 			buffer.append( encodeForCSV( DataTableObjectRenderer.getDatakindText(dataTableObject.getDataKind())));
 			buffer.append(_delimiter);
 			
-			DateFormat timeFormat = new SimpleDateFormat(TIME_FORMAT);
-			String archiveTime = timeFormat.format(new Date(dataTableObject.getArchiveTime()));
-			String dataTime = timeFormat.format(new Date(dataTableObject.getDataTime()));
-			long dataIndex = dataTableObject.getDataIndex();
-			String dataIndexString = (dataIndex >>> 32) + "#" + ((dataIndex >> 2) & 0x3fffffff) + "#" + (dataIndex & 0x3);
-			buffer.append( encodeForCSV( DataTableObjectRenderer.getTimeText(dataTableObject.getTimingType(), 
-					archiveTime, dataIndexString, dataTime)));
+			buffer.append( encodeForCSV( getTimeText( dataTableObject, _timeFormat)));
 			buffer.append(_delimiter);
 			
 			buffer.append( encodeForCSV( dataTableObject.getObject().getNameOrPidOrId()));
@@ -52,10 +52,12 @@ import java.awt.event.KeyEvent;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.*;
 
@@ -464,9 +466,9 @@ public class CreateMenuBar {
 			return;
 		}
 
+		final Writer bufferedWriter = new BufferedWriter(fileWriter);
 		try {
-			fileWriter.write(csvManager.getCSVHeaderLine(_rowHeaderButtonForCSVExport.isSelected()));
-			fileWriter.write(csvManager.getCSVLines(_rowHeaderButtonForCSVExport.isSelected()));
+			csvManager.writeCSV(bufferedWriter, _rowHeaderButtonForCSVExport.isSelected());
 		}
 		catch(IOException e) {
 			System.err.println("Es wurde eine IOException beim Schreiben der Datei " + csvFile.getName() + " ausgelöst.");
@@ -477,7 +479,7 @@ public class CreateMenuBar {
 			return;
 		}
 		try {
-			fileWriter.close();
+			bufferedWriter.close();
 		}
 		catch(IOException e) {
 			System.err.println("Es wurde eine IOException beim Schließen der Datei " + csvFile.getName() + " ausgelöst.");
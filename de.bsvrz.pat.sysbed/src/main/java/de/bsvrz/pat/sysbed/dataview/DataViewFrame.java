@@ -62,7 +62,7 @@ public class DataViewFrame implements PrintFrame {
 	/** stellt nur den neuesten Datensatz dar */
 	public static final int ONLY_LATEST = 2;
 
-	private final Debug _debug = Debug.getLogger();
+	private final Debug _debug = Debug.getLogger(DataViewFrame.class);
 
 	private final UnsubscribingJFrame _frame;
 
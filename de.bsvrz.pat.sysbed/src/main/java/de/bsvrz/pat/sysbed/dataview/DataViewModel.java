@@ -57,7 +57,7 @@ public class DataViewModel implements CellKeyServer {
 
 	/** der Debug-Logger */
 	@SuppressWarnings("unused")
-	private final Debug _debug = Debug.getLogger();
+	private final Debug _debug = Debug.getLogger(DataViewModel.class);
 
 	/* ################ Konstruktor ############## */
 
@@ -64,7 +64,7 @@ import java.util.*;
 public class DataViewPanel extends JPanel implements DataViewListener {
 	
 	/** der Debug-Logger */
-	private final Debug _debug = Debug.getLogger();
+	private final Debug _debug = Debug.getLogger(DataViewPanel.class);
 	
 	/* ############## Variablen ############## */
 	/** speichert eine Instanz des DataViewModel */
@@ -555,6 +555,7 @@ public class DataViewPanel extends JPanel implements DataViewListener {
 		}
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
+				boolean lowerPanelChanged = false;
 				for(DataTableObject dataTableObject : dataTableObjects) {
 					final DataTableObjectRenderer renderer = 
 						new DataTableObjectRenderer(_headerGrid, dataTableObject, _selectionManager);
@@ -588,9 +589,13 @@ public class DataViewPanel extends JPanel implements DataViewListener {
 						int lowerHeight = _lowerViewportPanel.getSize().height;
 						lowerHeight += renderer.getHeight();
 						setLowerPanel(lowerHeight);
-						_scrollPane.revalidate();
+						lowerPanelChanged = true;
 					}
 				}
+				// setLowerPanel setzt die Größe sofort, das Layout muss nur einmal für alle neuen Datensätze erneuert werden
+				if(lowerPanelChanged) {
+					_scrollPane.revalidate();
+				}
 			}
 		});
 	}
@@ -69,7 +69,7 @@ import java.util.List;
 public class HeaderGrid {
 	
 	/** der Debug-Logger */
-	private Debug _debug = Debug.getLogger();
+	private Debug _debug = Debug.getLogger(HeaderGrid.class);
 	
 	/* ############# Variablen ############## */
 	/** speichert das Objekt des Schiebereglers */
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.sysbed.
+ *
+ * de.bsvrz.pat.sysbed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.sysbed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.sysbed.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.sysbed.plugins.archiverequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Sammelt Datensätze und übergibt sie in Blöcken an einen Empfänger. Ein Block wird übergeben, sobald er die maximale Anzahl Datensätze enthält oder der erste
+ * Datensatz des Blocks die maximale Zeit gewartet hat. Die Übergabe erfolgt über einen {@link Executor}, z.B. im Swing-Thread.
+ * <p>
+ * Es wird immer höchstens ein Block an den Executor übergeben, der nächste Block wird erst übergeben, wenn der Empfänger den vorherigen Block übernommen hat.
+ * Dadurch bleibt die Reihenfolge der Blöcke erhalten und ein voller Block hält den Erzeuger der Datensätze an, bis der Empfänger nachkommt.
+ *
+ * @param <E> Typ der Datensätze
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class DatasetBatcher<E> {
+
+	/**
+	 * Empfänger der Blöcke
+	 *
+	 * @param <E> Typ der Datensätze
+	 */
+	interface Receiver<E> {
+
+		/**
+		 * Übernimmt einen Block. Wird vom Executor des {@link DatasetBatcher} aufgerufen.
+		 *
+		 * @param batch Datensätze des Blocks in der Reihenfolge, in der sie hinzugefügt wurden
+		 */
+		void receive(List<E> batch);
+	}
+
+	private final int _maxBatchSize;
+
+	private final long _maxDelay;
+
+	private final Receiver<E> _receiver;
+
+	private final Executor _executor;
+
+	/** Datensätze, die noch nicht übergeben wurden. Zugriff nur mit dem Monitor dieses Objekts. */
+	private List<E> _batch;
+
+	/** Zeitpunkt, an dem der erste Datensatz des aktuellen Blocks hinzugefügt wurde */
+	private long _batchStart;
+
+	/** <code>true</code>, solange der Empfänger einen übergebenen Block noch nicht übernommen hat. Zugriff nur mit dem Monitor dieses Objekts. */
+	private boolean _handoverPending = false;
+
+	/**
+	 * Erzeugt ein neues Objekt.
+	 *
+	 * @param maxBatchSize Maximale Anzahl Datensätze in einem Block
+	 * @param maxDelay     Maximale Zeit in Millisekunden, die ein Datensatz im Block auf die Übergabe wartet
+	 * @param receiver     Empfänger der Blöcke
+	 * @param executor     Executor, in dem der Empfänger aufgerufen wird
+	 */
+	DatasetBatcher(final int maxBatchSize, final long maxDelay, final Receiver<E> receiver, final Executor executor) {
+		if(maxBatchSize < 1) throw new IllegalArgumentException("Ungültige Blockgröße: " + maxBatchSize);
+		_maxBatchSize = maxBatchSize;
+		_maxDelay = maxDelay;
+		_receiver = receiver;
+		_executor = executor;
+		_batch = new ArrayList<E>(maxBatchSize);
+	}
+
+	/**
+	 * Fügt einen Datensatz hinzu. Ist der Block danach voll, wird er übergeben und dazu ggf. gewartet, bis der Empfänger den vorherigen Block übernommen hat.
+	 * Darf deshalb nicht im Thread des Executors aufgerufen werden.
+	 *
+	 * @param element Datensatz
+	 * @param now     Aktuelle Zeit
+	 *
+	 * @throws InterruptedException falls der Thread beim Warten auf den Empfänger unterbrochen wurde
+	 */
+	synchronized void add(final E element, final long now) throws InterruptedException {
+		if(_batch.isEmpty()) _batchStart = now;
+		_batch.add(element);
+		if(_batch.size() >= _maxBatchSize) {
+			flush();
+		}
+		else {
+			flushIfDue(now);
+		}
+	}
+
+	/**
+	 * Übergibt die gesammelten Datensätze, wenn der erste Datensatz des Blocks bereits die maximale Zeit wartet und der Empfänger den vorherigen Block übernommen
+	 * hat. Blockiert nicht und kann deshalb auch im Thread des Executors aufgerufen werden.
+	 *
+	 * @param now Aktuelle Zeit
+	 */
+	synchronized void flushIfDue(final long now) {
+		if(!_handoverPending && !_batch.isEmpty() && now - _batchStart >= _maxDelay) {
+			handOver();
+		}
+	}
+
+	/**
+	 * Übergibt die gesammelten Datensätze und wartet dazu ggf., bis der Empfänger den vorherigen Block übernommen hat. Darf nicht im Thread des Executors
+	 * aufgerufen werden.
+	 *
+	 * @throws InterruptedException falls der Thread beim Warten auf den Empfänger unterbrochen wurde
+	 */
+	synchronized void flush() throws InterruptedException {
+		while(_handoverPending) {
+			wait();
+		}
+		if(!_batch.isEmpty()) handOver();
+	}
+
+	/** Übergibt den aktuellen Block an den Executor. Muss mit dem Monitor dieses Objekts aufgerufen werden, wenn kein anderer Block auf die Übernahme wartet. */
+	private void handOver() {
+		final List<E> batch = _batch;
+		_batch = new ArrayList<E>(_maxBatchSize);
+		_handoverPending = true;
+		_executor.execute(
+				new Runnable() {
+					public void run() {
+						try {
+							_receiver.receive(batch);
+						}
+						finally {
+							// Der Block wurde übernommen, also darf nun der nächste Block übergeben werden
+							synchronized(DatasetBatcher.this) {
+								_handoverPending = false;
+								DatasetBatcher.this.notifyAll();
+							}
+						}
+					}
+				}
+		);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "DatasetBatcher{" + "batchSize=" + _batch.size() + ", handoverPending=" + _handoverPending + "}";
+	}
+}
@@ -36,7 +36,10 @@ import de.bsvrz.dav.daf.main.config.AttributeGroupUsage;
 import de.bsvrz.dav.daf.main.config.DataModel;
 import de.bsvrz.dav.daf.main.config.SystemObject;
 import de.bsvrz.dav.daf.main.config.SystemObjectType;
+import de.bsvrz.pat.sysbed.dataview.ArchiveCSVWriter;
 import de.bsvrz.pat.sysbed.dataview.ArchiveDataTableView;
+import de.bsvrz.pat.sysbed.dataview.ArchiveResultStore;
+import de.bsvrz.pat.sysbed.dataview.ArchiveResultTableView;
 import de.bsvrz.pat.sysbed.dataview.DataTableObject;
 import de.bsvrz.pat.sysbed.plugins.api.ButtonBar;
 import de.bsvrz.pat.sysbed.plugins.api.DataIdentificationChoice;
@@ -45,18 +48,22 @@ import de.bsvrz.pat.sysbed.plugins.api.ExternalModule;
 import de.bsvrz.pat.sysbed.plugins.api.ExternalModuleAdapter;
 import de.bsvrz.pat.sysbed.plugins.api.settings.KeyValueObject;
 import de.bsvrz.pat.sysbed.plugins.api.settings.SettingsData;
-import de.bsvrz.sys.funclib.concurrent.Semaphore;
 import de.bsvrz.sys.funclib.debug.Debug;
 
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Diese Klasse implementiert das Modul für eine streambasierte Archivanfrage. Mit Hilfe eines Dialogs werden alle benötigten Parameter eingestellt, die die
@@ -193,14 +200,17 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 		/** Betrifft die Sortierung der Datensätze bei der Darstellung in einer Tabelle. */
 		private final String[] _sortViewUnit = {"Zeitstempel", "Datenidentifikation"};
 
+		/** gibt an, wohin die Archivdaten ausgegeben werden */
+		private final String[] _outputUnit = {"Online-Tabelle", "Tabelle für große Datenmengen", "CSV-Datei"};
+
 		/** Das Panel für die (Zeit-)Bereichsanfrage. */
 		private JPanel _domainPanel;
 
 		/** Die Auswahlbox für die Prioritäten der Archivanfrage. */
-		private JComboBox _priorityComboBox;
+		private JComboBox<String> _priorityComboBox;
 
 		/** Die Auswahlbox für die möglichen (Zeit-)Bereiche der Archivanfrage. */
-		private JComboBox _timingComboBox;
+		private JComboBox<String> _timingComboBox;
 
 		/** Gibt den Startwert des Zeitbereichs der Archivanfrage an. */
 		private JSpinner _startTimeSpinner;
@@ -230,10 +240,13 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 		private JCheckBox _nnDataCheckBox;
 
 		/** Die Auswahlbox für die Sortierreihenfolge der als nachgeliefert gekennzeichneten Archivdatensätze. */
-		private JComboBox _sortSequenceComboBox;
+		private JComboBox<String> _sortSequenceComboBox;
 
 		/** Die Auswahlbox für die Sortierung der Archivdatensätze zur Darstellung in einer Tabelle. */
-		private JComboBox _viewSortComboBox;
+		private JComboBox<String> _viewSortComboBox;
+
+		/** Die Auswahlbox für die Ausgabe der Archivdatensätze. */
+		private JComboBox<String> _outputComboBox;
 
 		/** zur Auswahl, ob historische Objekte berücksichtigt werden sollen */
 		private JCheckBox _useOldObjectsBox;
@@ -291,9 +304,8 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			String relative = "";
 			String from = "";
 			String to = "";
-			List keyValueList = data.getKeyValueList();
-			for(Iterator iterator = keyValueList.iterator(); iterator.hasNext();) {
-				KeyValueObject keyValueObject = (KeyValueObject)iterator.next();
+			List<KeyValueObject> keyValueList = data.getKeyValueList();
+			for(KeyValueObject keyValueObject : keyValueList) {
 				String key = keyValueObject.getKey();
 				String value = keyValueObject.getValue();
 				if(key.equals("priority")) {
@@ -325,6 +337,9 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 				else if(key.equals("viewsort")) {
 					setViewSort(value);
 				}
+				else if(key.equals("output")) {
+					setOutput(value);
+				}
 				else if(key.equals("oldobj")) {
 					setUseOldObjects(value);
 				}
@@ -350,10 +365,10 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			ArchiveDataKindCombination archiveDataKindCombination = new ArchiveDataKindCombination(ArchiveDataKind.ONLINE);
 			ArchiveOrder archiveOrder = ArchiveOrder.BY_INDEX;
 			ArchiveRequestOption archiveRequestOption = ArchiveRequestOption.NORMAL;
+			String output = _outputUnit[0];
 
-			List keyValueList = settingsData.getKeyValueList();
-			for(Iterator iterator = keyValueList.iterator(); iterator.hasNext();) {
-				KeyValueObject keyValueObject = (KeyValueObject)iterator.next();
+			List<KeyValueObject> keyValueList = settingsData.getKeyValueList();
+			for(KeyValueObject keyValueObject : keyValueList) {
 				String key = keyValueObject.getKey();
 				String value = keyValueObject.getValue();
 				if(key.equals("priority")) {
@@ -445,6 +460,9 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 				else if(key.equals("oldobj")){
 					useOldObjects = (value.equals("true"));
 				}
+				else if(key.equals("output")) {
+					output = value;
+				}
 			}
 			DataDescription dataDescription = new DataDescription(
 					settingsData.getAttributeGroup(), settingsData.getAspect(), (short)settingsData.getSimulationVariant()
@@ -454,10 +472,9 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			ArchiveTimeSpecification archiveTimeSpecification = new ArchiveTimeSpecification(timingType, startRelative, intervalStart, intervalEnd);
 
 			List<ArchiveDataSpecification> archiveDataSpecifications = new LinkedList<ArchiveDataSpecification>();
-			List objects = settingsData.getObjects();
+			List<SystemObject> objects = settingsData.getObjects();
 			boolean usePidQuery = useOldObjects;
-			for(Iterator iterator = objects.iterator(); iterator.hasNext();) {
-				SystemObject systemObject = (SystemObject)iterator.next();
+			for(SystemObject systemObject : objects) {
 				ArchiveDataSpecification ads = new ArchiveDataSpecification(
 						archiveTimeSpecification, archiveDataKindCombination, archiveOrder, archiveRequestOption, dataDescription,
 						systemObject
@@ -475,18 +492,54 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			if(useOldObjects && !usePidQuery){
 				_debug.warning("Archivanfrage kann historische Objekte nicht berücksichtigen, bitte DAF-Bibliothek aktualisieren.");
 			}
-			// Erzeugen des Ausgabefensters mit der Online-Tabelle
-			final ArchiveDataTableView dataTableView = new ArchiveDataTableView(settingsData, getConnection(), dataDescription);	// anzeigen der Tabelle
+			// Erzeugen der Ausgabe: Online-Tabelle, Tabelle für große Datenmengen oder CSV-Datei
+			ArchiveDataTableView dataTableView = null;
+			ArchiveResultTableView resultTableView = null;
+			ArchiveCSVWriter csvWriter = null;
+			File csvFile = null;
+			try {
+				if(output.equals(_outputUnit[2])) {
+					csvFile = chooseCSVFile();
+					if(csvFile == null) return;
+					csvWriter = new ArchiveCSVWriter(csvFile, Charset.defaultCharset(), ";", true);
+				}
+				else if(output.equals(_outputUnit[1])) {
+					resultTableView = new ArchiveResultTableView(
+							new ArchiveResultStore(dataDescription, timingType, getConnection().getDataModel()), getConnection()
+					);
+				}
+				else {
+					dataTableView = new ArchiveDataTableView(settingsData, getConnection(), dataDescription);	// anzeigen der Tabelle
+				}
+			}
+			catch(IOException ex) {
+				_debug.error("Temporäre Datei für die Ausgabe der Archivdaten konnte nicht angelegt werden (siehe exception)", ex);
+				JOptionPane.showMessageDialog(
+						_dialog, "Die Ausgabe der Archivdaten konnte nicht vorbereitet werden: " + ex.getMessage(), "Fehler", JOptionPane.ERROR_MESSAGE
+				);
+				return;
+			}
 
 			final ArchiveDataQueryResult queryResult = _archiveRequestManager.request(archiveQueryPriority, archiveDataSpecifications);	 // Anfrage starten
 			try {
 				if(queryResult.isRequestSuccessful()) {
 					_debug.info("Archivanfrage konnte erfolgreich bearbeitet werden.");
 					ArchiveDataStream[] archiveDataStream = queryResult.getStreams();
-					Thread archiveThread = new Thread(new ArchiveRequest(archiveDataStream, dataTableView, timingType), "GTM-Archivanfrage");
+					final Runnable archiveRequest;
+					if(csvWriter != null) {
+						archiveRequest = new CSVArchiveRequest(archiveDataStream, csvWriter, csvFile, timingType);
+					}
+					else if(resultTableView != null) {
+						archiveRequest = new StoredArchiveRequest(archiveDataStream, resultTableView, timingType);
+					}
+					else {
+						archiveRequest = new ArchiveRequest(archiveDataStream, dataTableView, timingType);
+					}
+					Thread archiveThread = new Thread(archiveRequest, "GTM-Archivanfrage");
 					archiveThread.start();
 				}
 				else {
+					if(csvWriter != null) csvWriter.abort();
 					_debug.warning("Eine Archivanfrage konnte nicht bearbeitet werden, Fehler: " + queryResult.getErrorMessage());
 					JOptionPane.showMessageDialog(
 							_dialog, "Die Archivanfrage konnte nicht bearbeitet werden.", "Archivanfrage fehlerhaft", JOptionPane.ERROR_MESSAGE
@@ -499,90 +552,322 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			}
 		}
 
-		/** Diese Klasse verarbeitet die erhaltenen Streams einer Archivanfrage und stellt die Datensätze in einer Online-Tabelle dar. */
-		private final class ArchiveRequest implements Runnable {
+		/**
+		 * Diese Klasse verarbeitet die erhaltenen Streams einer Archivanfrage nacheinander und übergibt jeden Datensatz mit {@link
+		 * #handleArchiveData(ArchiveData)} an die Ausgabe. Wird die Ausgabe vorzeitig beendet, dann werden die Streams abgebrochen.
+		 */
+		private abstract class AbstractArchiveRequest implements Runnable {
 
 			private final ArchiveDataStream[] _archiveDataStreams;
 
-			private final ArchiveDataTableView _dataTableView;
-
-			private final TimingType _timingType;
+			protected final TimingType _timingType;
 
-			public ArchiveRequest(ArchiveDataStream[] archiveDataStreams, ArchiveDataTableView dataTableView, TimingType timingType) {
+			protected AbstractArchiveRequest(ArchiveDataStream[] archiveDataStreams, TimingType timingType) {
 				_archiveDataStreams = archiveDataStreams;
-				_dataTableView = dataTableView;
 				_timingType = timingType;
 			}
 
 			public void run() {
-				
-
-				// Dieses Lock sorgt dafür, dass die beiden Threads abwechselnd zugreifen.
-				// Swing nimmt sich einen Datensatz (solange ist take gesperrt), dann darf take wieder einen Datensatz ablegen
-				final Semaphore lock = new Semaphore(1);
-				for(int i = 0; i < _archiveDataStreams.length; i++) {
-					try {
+				try {
+					for(int i = 0; i < _archiveDataStreams.length; i++) {
 						ArchiveDataStream dataStream = _archiveDataStreams[i];
-						// Es soll ein take ausgeführt werden, also muss ein Lock angefordert werden
-						lock.acquire();
-						ArchiveData archiveData = dataStream.take();
-						while(archiveData != null) {
-							if(_dataTableView.isDisposed()) {
+						try {
+							ArchiveData archiveData = dataStream.take();
+							while(archiveData != null) {
+								if(isAborted()) {
+									_debug.finer("Archivanfrage wurde abgebrochen", dataStream.getDataSpecification().toString());
+									dataStream.abort();
+									break;
+								}
+								handleArchiveData(archiveData);
+								// nächsten Datensatz vom Archivsystem holen
+								archiveData = dataStream.take();
+							}
+						}
+						catch(InterruptedException ex) {
+							_debug.error("Die Übertragung der Archivdaten wurde aufgrund eines Übertragungsfehlers unterbrochen (siehe exception)", ex);
+							JOptionPane.showMessageDialog(
+									_dialog, "Übertragung der Archivdaten wurde unterbrochen.", "Übertragungsfehler", JOptionPane.ERROR_MESSAGE
+							);
+						}
+						catch(IOException ex) {
+							if(isAborted()) {
+								// Die Ausgabe wurde während der Verarbeitung geschlossen
 								_debug.finer("Archivanfrage wurde abgebrochen", dataStream.getDataSpecification().toString());
 								dataStream.abort();
-								break;
 							}
 							else {
-								// Datensatz für die Online-Tabelle erzeugen und weiterreichen
-
-								// Es wird eine final Variable benötigt
-								final ArchiveData helper = archiveData;
-								Runnable runner = new Runnable() {
-									public void run() {
-										DataTableObject dataTableObject = new DataTableObject(
-												helper.getObject(),
-												helper.getDataDescription(),
-												_timingType,
-												helper.getArchiveTime(),
-												helper.getDataTime(),
-												helper.getDataIndex(),
-												helper.getDataType(),
-												helper.getDataKind(),
-												helper.getData()
-										);
-										_dataTableView.addDataset(dataTableObject);
-										// Die Daten wurden dargestellt, also darf nun der nächste Datensatz erzeugt werden
-										lock.release();
-									}
-								};
-								EventQueue.invokeLater(runner);
+								_debug.error("Übertragungsfehler zum Datenverteiler oder zum Archiv (siehe exception)", ex);
+								JOptionPane.showMessageDialog(
+										_dialog, "Problem mit Datenverteiler oder Archivsystem.", "Übertragungsfehler", JOptionPane.ERROR_MESSAGE
+								);
+							}
+						}
+						finally {
+							_debug.info("Keine weiteren Archivdatensätze für diese Datenidentifikation.");
+						}
+					}
+				}
+				finally {
+					finished();
+				}
+				_debug.info("Alle Datenidentifikationen abgearbeitet. Keine weiteren Daten vorhanden.");
+			}
 
-								// Es sollen Datensätze angefordert werden, dies darf nur geschehen, wenn der Swingthread
-								// fertig ist
-								lock.acquire();
-								// nächsten Datensatz vom Archivsystem holen
-								archiveData = dataStream.take();
+			/**
+			 * Erzeugt aus einem Archivdatensatz einen Datensatz für die Ausgabe.
+			 *
+			 * @param archiveData Archivdatensatz
+			 *
+			 * @return Datensatz für die Online-Tabelle bzw. die CSV-Datei
+			 */
+			protected DataTableObject createDataTableObject(final ArchiveData archiveData) {
+				return new DataTableObject(
+						archiveData.getObject(),
+						archiveData.getDataDescription(),
+						_timingType,
+						archiveData.getArchiveTime(),
+						archiveData.getDataTime(),
+						archiveData.getDataIndex(),
+						archiveData.getDataType(),
+						archiveData.getDataKind(),
+						archiveData.getData()
+				);
+			}
+
+			/**
+			 * Gibt zurück, ob die Ausgabe beendet wurde und die Archivanfrage abgebrochen werden soll.
+			 *
+			 * @return <code>true</code>, wenn keine weiteren Datensätze mehr benötigt werden
+			 */
+			protected abstract boolean isAborted();
+
+			/**
+			 * Übergibt einen Archivdatensatz an die Ausgabe. Die Methode wird nur vom Thread der Archivanfrage aufgerufen.
+			 *
+			 * @param archiveData Archivdatensatz
+			 *
+			 * @throws InterruptedException falls der Thread beim Warten auf die Ausgabe unterbrochen wurde
+			 * @throws IOException          falls der Datensatz nicht ausgegeben werden konnte
+			 */
+			protected abstract void handleArchiveData(ArchiveData archiveData) throws InterruptedException, IOException;
+
+			/** Wird aufgerufen, nachdem alle Streams abgearbeitet bzw. abgebrochen wurden. */
+			protected abstract void finished();
+		}
+
+		/**
+		 * Diese Klasse verarbeitet die erhaltenen Streams einer Archivanfrage und stellt die Datensätze in einer Online-Tabelle dar. Die Datensätze werden in Blöcken
+		 * an die Online-Tabelle übergeben, damit die Tabelle nicht für jeden einzelnen Datensatz neu aufgebaut werden muss. Ein Block wird übergeben, sobald er
+		 * {@link #MAX_BATCH_SIZE} Datensätze enthält oder seit dem ersten Datensatz des Blocks {@link #MAX_BATCH_DELAY} Millisekunden vergangen sind. Die Zeit wird
+		 * zusätzlich von einem Swing-Timer geprüft, da der Thread der Archivanfrage beim Warten auf den nächsten Datensatz blockiert. So werden die bereits
+		 * empfangenen Datensätze auch dann angezeigt, wenn das Archivsystem eine Zeit lang keine weiteren Datensätze liefert.
+		 * <p>
+		 * Es wird immer höchstens ein Block an Swing übergeben, der nächste Block wird erst nach dessen Übernahme übergeben. Dadurch bleibt die Reihenfolge der
+		 * Blöcke erhalten und ein voller Block hält die Archivanfrage an, bis Swing den vorherigen Block dargestellt hat.
+		 */
+		private final class ArchiveRequest extends AbstractArchiveRequest {
+
+			/** Maximale Anzahl Datensätze, die in einem Block an die Online-Tabelle übergeben werden */
+			private static final int MAX_BATCH_SIZE = 500;
+
+			/** Maximale Zeit in Millisekunden, die ein Datensatz im Block auf die Übergabe an die Online-Tabelle wartet */
+			private static final long MAX_BATCH_DELAY = 200;
+
+			private final ArchiveDataTableView _dataTableView;
+
+			/** Sammelt die Datensätze und übergibt sie blockweise im Swing-Thread an die Online-Tabelle */
+			private final DatasetBatcher<DataTableObject> _batcher;
+
+			/** Prüft im Swing-Thread, ob der aktuelle Block wegen {@link #MAX_BATCH_DELAY} übergeben werden muss */
+			private final javax.swing.Timer _flushTimer;
+
+			public ArchiveRequest(ArchiveDataStream[] archiveDataStreams, final ArchiveDataTableView dataTableView, TimingType timingType) {
+				super(archiveDataStreams, timingType);
+				_dataTableView = dataTableView;
+				_batcher = new DatasetBatcher<DataTableObject>(
+						MAX_BATCH_SIZE, MAX_BATCH_DELAY, new DatasetBatcher.Receiver<DataTableObject>() {
+							public void receive(final List<DataTableObject> batch) {
+								dataTableView.addDatasets(batch);
+							}
+						}, new Executor() {
+							public void execute(final Runnable command) {
+								EventQueue.invokeLater(command);
 							}
 						}
+				);
+				_flushTimer = new javax.swing.Timer(
+						(int)(MAX_BATCH_DELAY / 4), new ActionListener() {
+							public void actionPerformed(final ActionEvent e) {
+								if(isAborted()) {
+									_flushTimer.stop();
+									return;
+								}
+								_batcher.flushIfDue(System.currentTimeMillis());
+							}
+						}
+				);
+				_flushTimer.start();
+			}
+
+			protected boolean isAborted() {
+				return _dataTableView.isDisposed();
+			}
+
+			protected void handleArchiveData(final ArchiveData archiveData) throws InterruptedException {
+				_batcher.add(createDataTableObject(archiveData), System.currentTimeMillis());
+			}
+
+			protected void finished() {
+				_flushTimer.stop();
+				try {
+					if(!isAborted()) _batcher.flush();
+				}
+				catch(InterruptedException e) {
+					_debug.warning("Die letzten Archivdatensätze konnten nicht mehr dargestellt werden", e);
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * Diese Klasse verarbeitet die erhaltenen Streams einer Archivanfrage und stellt die Datensätze in einer {@link ArchiveResultTableView Tabelle für große
+		 * Datenmengen} dar. Die Datensätze werden dabei in einer temporären Datei gespeichert und erst beim Anzeigen wieder eingelesen.
+		 */
+		private final class StoredArchiveRequest extends AbstractArchiveRequest {
+
+			private final ArchiveResultTableView _resultTableView;
+
+			public StoredArchiveRequest(ArchiveDataStream[] archiveDataStreams, ArchiveResultTableView resultTableView, TimingType timingType) {
+				super(archiveDataStreams, timingType);
+				_resultTableView = resultTableView;
+			}
+
+			protected boolean isAborted() {
+				return _resultTableView.isDisposed();
+			}
+
+			protected void handleArchiveData(final ArchiveData archiveData) throws IOException {
+				_resultTableView.addArchiveData(archiveData);
+			}
+
+			protected void finished() {
+				_resultTableView.finished();
+			}
+		}
+
+		/**
+		 * Diese Klasse verarbeitet die erhaltenen Streams einer Archivanfrage und schreibt die Datensätze direkt in eine CSV-Datei, ohne sie im Speicher zu halten.
+		 * Während des Exports wird ein kleines Fenster mit der Anzahl der geschriebenen Datensätze angezeigt, über das der Export abgebrochen werden kann.
+		 */
+		private final class CSVArchiveRequest extends AbstractArchiveRequest {
+
+			/** Nach dieser Anzahl Datensätze wird die Fortschrittsanzeige aktualisiert */
+			private static final int PROGRESS_INTERVAL = 1000;
+
+			private final ArchiveCSVWriter _csvWriter;
+
+			private final File _csvFile;
+
+			private final JFrame _progressFrame;
+
+			private final JLabel _progressLabel;
+
+			private volatile boolean _aborted = false;
+
+			/** Fehler beim Schreiben der Datei oder <code>null</code> */
+			private IOException _writeException = null;
+
+			public CSVArchiveRequest(ArchiveDataStream[] archiveDataStreams, ArchiveCSVWriter csvWriter, File csvFile, TimingType timingType) {
+				super(archiveDataStreams, timingType);
+				_csvWriter = csvWriter;
+				_csvFile = csvFile;
+				_progressFrame = new JFrame("CSV-Export: " + csvFile.getName());
+				_progressFrame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+				_progressLabel = new JLabel("0 Datensätze geschrieben");
+				_progressLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+				JButton cancelButton = new JButton("Abbrechen");
+				cancelButton.addActionListener(
+						new ActionListener() {
+							public void actionPerformed(ActionEvent e) {
+								_aborted = true;
+								_progressLabel.setText("Export wird abgebrochen ...");
+							}
+						}
+				);
+				JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+				buttonPanel.add(cancelButton);
+				Container pane = _progressFrame.getContentPane();
+				pane.setLayout(new BorderLayout());
+				pane.add(_progressLabel, BorderLayout.CENTER);
+				pane.add(buttonPanel, BorderLayout.SOUTH);
+				_progressFrame.pack();
+				_progressFrame.setLocationRelativeTo(_dialog);
+				_progressFrame.setVisible(true);
+			}
+
+			protected boolean isAborted() {
+				return _aborted || _writeException != null;
+			}
+
+			protected void handleArchiveData(final ArchiveData archiveData) {
+				try {
+					_csvWriter.write(createDataTableObject(archiveData));
+				}
+				catch(IOException e) {
+					_writeException = e;
+					return;
+				}
+				final int count = _csvWriter.getCount();
+				if(count % PROGRESS_INTERVAL == 0) {
+					EventQueue.invokeLater(
+							new Runnable() {
+								public void run() {
+									if(!_aborted) _progressLabel.setText(count + " Datensätze geschrieben");
+								}
+							}
+					);
+				}
+			}
+
+			protected void finished() {
+				String message;
+				int messageType = JOptionPane.INFORMATION_MESSAGE;
+				if(_aborted) {
+					_csvWriter.abort();
+					message = "Der CSV-Export wurde abgebrochen, die Datei " + _csvFile.getName() + " wurde nicht geschrieben.";
+				}
+				else {
+					if(_writeException == null) {
+						try {
+							_csvWriter.close();
+						}
+						catch(IOException e) {
+							_writeException = e;
+						}
 					}
-					catch(InterruptedException ex) {
-						_debug.error("Die Übertragung der Archivdaten wurde aufgrund eines Übertragungsfehlers unterbrochen (siehe exception)", ex);
-						JOptionPane.showMessageDialog(
-								_dialog, "Übertragung der Archivdaten wurde unterbrochen.", "Übertragungsfehler", JOptionPane.ERROR_MESSAGE
-						);
+					else {
+						_csvWriter.abort();
 					}
-					catch(IOException ex) {
-						_debug.error("Übertragungsfehler zum Datenverteiler oder zum Archiv (siehe exception)", ex);
-						JOptionPane.showMessageDialog(
-								_dialog, "Problem mit Datenverteiler oder Archivsystem.", "Übertragungsfehler", JOptionPane.ERROR_MESSAGE
-						);
+					if(_writeException == null) {
+						message = _csvWriter.getCount() + " Datensätze wurden in die Datei " + _csvFile.getName() + " geschrieben.";
 					}
-					finally {
-						lock.release();
-						_debug.info("Keine weiteren Archivdatensätze für diese Datenidentifikation.");
+					else {
+						_debug.error("Fehler beim Schreiben der CSV-Datei " + _csvFile, _writeException);
+						message = "Fehler beim Schreiben der Datei " + _csvFile.getName() + ": " + _writeException.getMessage();
+						messageType = JOptionPane.ERROR_MESSAGE;
 					}
 				}
-				_debug.info("Alle Datenidentifikationen abgearbeitet. Keine weiteren Daten vorhanden.");
+				final String finalMessage = message;
+				final int finalMessageType = messageType;
+				EventQueue.invokeLater(
+						new Runnable() {
+							public void run() {
+								_progressFrame.dispose();
+								JOptionPane.showMessageDialog(null, finalMessage, "CSV-Export", finalMessageType);
+							}
+						}
+				);
 			}
 		}
 
@@ -611,7 +896,7 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			// Priorität
 			JPanel priorityPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
 			JLabel priorityLabel = new JLabel("Priorität der Anfrage: ");
-			_priorityComboBox = new JComboBox(_priorityUnit);
+			_priorityComboBox = new JComboBox<String>(_priorityUnit);
 			priorityPanel.add(priorityLabel);
 			priorityPanel.add(Box.createHorizontalStrut(5));
 			priorityPanel.add(_priorityComboBox);
@@ -636,7 +921,7 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 
 			JPanel domainPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
 			JLabel domainLabel = new JLabel("Bereich: ");
-			_timingComboBox = new JComboBox(_timingUnit);
+			_timingComboBox = new JComboBox<String>(_timingUnit);
 			_timingComboBox.setSelectedIndex(0);
 			_timingComboBox.addItemListener(
 					new ItemListener() {
@@ -672,7 +957,7 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			final JPanel sortSequencePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
 			final JLabel sortSequenceLabel = new JLabel("Sortierreihenfolge der nachgelieferten Daten: ");
 			sortSequenceLabel.setEnabled(false);
-			_sortSequenceComboBox = new JComboBox(_sortOfDataUnit);
+			_sortSequenceComboBox = new JComboBox<String>(_sortOfDataUnit);
 			_sortSequenceComboBox.setEnabled(false);
 			sortSequencePanel.add(sortSequenceLabel);
 			sortSequencePanel.add(_sortSequenceComboBox);
@@ -785,11 +1070,17 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			JPanel viewSortPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
 			viewSortPanel.setBorder(BorderFactory.createTitledBorder("Darstellungsoptionen"));
 			JLabel viewSortLabel = new JLabel("Daten sortieren nach: ");
-			_viewSortComboBox = new JComboBox(_sortViewUnit);
+			_viewSortComboBox = new JComboBox<String>(_sortViewUnit);
 			_viewSortComboBox.setSelectedIndex(1);
 			_viewSortComboBox.setEnabled(false);	
 			viewSortPanel.add(viewSortLabel);
 			viewSortPanel.add(_viewSortComboBox);
+			JLabel outputLabel = new JLabel("Ausgabe: ");
+			_outputComboBox = new JComboBox<String>(_outputUnit);
+			_outputComboBox.setSelectedIndex(0);
+			viewSortPanel.add(Box.createHorizontalStrut(10));
+			viewSortPanel.add(outputLabel);
+			viewSortPanel.add(_outputComboBox);
 
 
 			pane.add(archivePanel);
@@ -1202,6 +1493,48 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			_viewSortComboBox.setSelectedItem(viewSort);
 		}
 
+		/**
+		 * Parameter wird abgefragt, wohin die Archivdaten ausgegeben werden sollen.
+		 *
+		 * @return "Online-Tabelle", "Tabelle für große Datenmengen" oder "CSV-Datei"
+		 */
+		private String getOutput() {
+			return (String)_outputComboBox.getSelectedItem();
+		}
+
+		/**
+		 * Parameter wird gesetzt, wohin die Archivdaten ausgegeben werden sollen.
+		 *
+		 * @param output Parameter: "Online-Tabelle", "Tabelle für große Datenmengen" oder "CSV-Datei"
+		 */
+		private void setOutput(String output) {
+			_outputComboBox.setSelectedItem(output);
+		}
+
+		/**
+		 * Lässt den Anwender die Datei auswählen, in die die Archivdaten im CSV-Format geschrieben werden.
+		 *
+		 * @return die ausgewählte Datei oder <code>null</code>, falls die Auswahl abgebrochen wurde
+		 */
+		private File chooseCSVFile() {
+			final JFileChooser fileChooser = new JFileChooser();
+			fileChooser.setDialogTitle("Archivdaten als CSV-Datei speichern");
+			fileChooser.setSelectedFile(new File("archivanfrage.csv"));
+			while(fileChooser.showSaveDialog(_dialog) == JFileChooser.APPROVE_OPTION) {
+				File file = fileChooser.getSelectedFile();
+				if(!file.getName().contains(".")) {
+					file = new File(file.getPath() + ".csv");
+				}
+				if(!file.exists() || JOptionPane.showConfirmDialog(
+						_dialog, "Die Datei " + file.getName() + " existiert bereits. Soll sie überschrieben werden?", "Datei überschreiben",
+						JOptionPane.YES_NO_OPTION
+				) == JOptionPane.YES_OPTION) {
+					return file;
+				}
+			}
+			return null;
+		}
+
 		/**
 		 * Gibt zurück, historische Objekte mit gleicher Pid berücksichtigt werden sollen
 		 *
@@ -1229,7 +1562,7 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 		 * @return die Einstellungsdaten
 		 */
 		private SettingsData getSettings(String title) {
-			Class moduleClass = StreamBasedArchiveRequestModule.class;
+			Class<?> moduleClass = StreamBasedArchiveRequestModule.class;
 			List<SystemObjectType> objectTypes = _dataIdentificationChoice.getObjectTypes();
 			AttributeGroup atg = _dataIdentificationChoice.getAttributeGroup();
 			Aspect asp = _dataIdentificationChoice.getAspect();
@@ -1262,6 +1595,7 @@ public class StreamBasedArchiveRequestModule extends ExternalModuleAdapter imple
 			}
 			keyValueList.add(new KeyValueObject("requestview", getRequestView()));
 			keyValueList.add(new KeyValueObject("viewsort", getViewSort()));
+			keyValueList.add(new KeyValueObject("output", getOutput()));
 			keyValueList.add(new KeyValueObject("oldobj", getUseOldObjects()));
 
 			return keyValueList;
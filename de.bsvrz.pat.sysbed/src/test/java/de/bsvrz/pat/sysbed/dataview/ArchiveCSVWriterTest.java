@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.sysbed.
+ *
+ * de.bsvrz.pat.sysbed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.sysbed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.sysbed.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.sysbed.dataview;
+
+import de.bsvrz.dav.daf.main.Data;
+import de.bsvrz.dav.daf.main.DataState;
+import de.bsvrz.dav.daf.main.archive.ArchiveDataKind;
+import de.bsvrz.dav.daf.main.archive.TimingType;
+import de.bsvrz.dav.daf.main.config.SystemObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet das fortlaufende Schreiben von CSV-Dateien mit dem {@link ArchiveCSVWriter}. Datensätze und Systemobjekte werden durch einfache Proxies ersetzt, die
+ * nur die vom Writer benutzten Methoden unterstützen.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class ArchiveCSVWriterTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private File _directory;
+
+	private File _file;
+
+	@Before
+	public void setUp() throws Exception {
+		_directory = File.createTempFile("ArchiveCSVWriterTest", "");
+		assertTrue(_directory.delete());
+		assertTrue(_directory.mkdir());
+		_file = new File(_directory, "export.csv");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		final File[] files = _directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	@Test
+	public void testHeaderIsWrittenOnClose() throws Exception {
+		final ArchiveCSVWriter writer = new ArchiveCSVWriter(_file, UTF_8, ";", false);
+		writer.write(createDataTableObject(null, list(plain("Wert", "1"), array("Feld", plain("x"), plain("y")))));
+		// Spalten, die erst in späteren Datensätzen auftreten, werden hinten angefügt
+		writer.write(createDataTableObject(null, list(plain("Wert", "2"), array("Feld", plain("z"), plain("w"), plain("Straße")))));
+		writer.write(createDataTableObject(null, null));
+		assertEquals(3, writer.getCount());
+		assertFalse(_file.exists());
+		writer.close();
+
+		assertEquals(
+				"Wert;Feld[0];Feld[1];Feld[2];\n"
+				+ "1;x;y;\n"
+				+ "2;z;w;Straße;\n"
+				+ "\"keine Daten\";\n", read(_file)
+		);
+		assertEquals(Arrays.asList(_file), Arrays.asList(_directory.listFiles()));
+
+		// Ein weiteres Schließen ändert nichts
+		writer.close();
+		assertEquals(Arrays.asList(_file), Arrays.asList(_directory.listFiles()));
+	}
+
+	@Test
+	public void testNestedListsAndEscaping() throws Exception {
+		final ArchiveCSVWriter writer = new ArchiveCSVWriter(_file, UTF_8, ",", false);
+		writer.write(createDataTableObject(null, list(list("Liste", plain("Text", "a \"b\""), plain("Zahl", "1,5")), plain("Ende", "c;d"))));
+		writer.close();
+		assertEquals("Liste,Text,Liste,Zahl,Ende,\n" + "\"a \"\"b\"\"\",\"1,5\",\"c;d\",\n", read(_file));
+	}
+
+	@Test
+	public void testRowHeader() throws Exception {
+		final ArchiveCSVWriter writer = new ArchiveCSVWriter(_file, UTF_8, ";", true);
+		final DataTableObject dataTableObject = createDataTableObject(createSystemObject("objekt.1"), list(plain("Wert", "42")));
+		writer.write(dataTableObject);
+		writer.close();
+		final String timeText = CSVManager.encodeForCSV(CSVManager.getTimeText(dataTableObject, CSVManager.createTimeFormat()), ";");
+		assertEquals("Art;Zeit;Objekt;Wert;\n" + "OA;" + timeText + ";objekt.1;42;\n", read(_file));
+	}
+
+	@Test
+	public void testAbortDeletesTemporaryFile() throws Exception {
+		final ArchiveCSVWriter writer = new ArchiveCSVWriter(_file, UTF_8, ";", false);
+		writer.write(createDataTableObject(null, list(plain("Wert", "1"))));
+		assertEquals(1, _directory.listFiles().length);
+		writer.abort();
+		assertEquals(0, _directory.listFiles().length);
+
+		// Nach dem Abbruch wird auch beim Schließen keine Datei geschrieben
+		writer.close();
+		assertFalse(_file.exists());
+	}
+
+	@Test
+	public void testCollectCSVValues() {
+		final Map<String, String> values = new LinkedHashMap<String, String>();
+		CSVManager.collectCSVValues(list(plain("A", "1"), array("B", list(plain("C", "2")), list(plain("C", "3")))), "", values);
+		assertEquals(Arrays.asList("A", "B[0],C", "B[1],C"), Arrays.asList(values.keySet().toArray()));
+		assertEquals(Arrays.asList("1", "2", "3"), Arrays.asList(values.values().toArray()));
+	}
+
+	private static DataTableObject createDataTableObject(final SystemObject object, final Data data) {
+		return new DataTableObject(
+				object, null, TimingType.DATA_TIME, 0, 1234567890000L, 0, data == null ? DataState.NO_DATA : DataState.DATA, ArchiveDataKind.ONLINE, data
+		);
+	}
+
+	private static String read(final File file) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[1024];
+			int length;
+			while((length = in.read(buffer)) != -1) {
+				out.write(buffer, 0, length);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return new String(out.toByteArray(), UTF_8);
+	}
+
+	private static SystemObject createSystemObject(final String name) {
+		return (SystemObject)Proxy.newProxyInstance(
+				SystemObject.class.getClassLoader(), new Class<?>[]{SystemObject.class}, new InvocationHandler() {
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						if(method.getName().equals("getNameOrPidOrId")) return name;
+						if(method.getName().equals("toString")) return name;
+						throw new UnsupportedOperationException(method.getName());
+					}
+				}
+		);
+	}
+
+	private static Data plain(final String value) {
+		return plain(null, value);
+	}
+
+	private static Data plain(final String name, final String value) {
+		return createData(name, true, false, value, null);
+	}
+
+	private static Data list(final Data... items) {
+		return list(null, items);
+	}
+
+	private static Data list(final String name, final Data... items) {
+		return createData(name, false, false, null, Arrays.asList(items));
+	}
+
+	private static Data array(final String name, final Data... elements) {
+		return createData(name, false, true, null, Arrays.asList(elements));
+	}
+
+	private static Data createData(final String name, final boolean plain, final boolean array, final String value, final List<Data> items) {
+		return (Data)Proxy.newProxyInstance(
+				Data.class.getClassLoader(), new Class<?>[]{Data.class}, new InvocationHandler() {
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						final String methodName = method.getName();
+						if(methodName.equals("getName")) return name;
+						if(methodName.equals("isPlain")) return plain;
+						if(methodName.equals("isArray")) return array;
+						if(methodName.equals("valueToString") && plain) return value;
+						if(methodName.equals("iterator") && !plain) return items.iterator();
+						if(methodName.equals("toString")) return name + "=" + (plain ? value : items);
+						throw new UnsupportedOperationException(methodName);
+					}
+				}
+		);
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.pat.sysbed.
+ *
+ * de.bsvrz.pat.sysbed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.pat.sysbed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.pat.sysbed.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.pat.sysbed.plugins.archiverequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet die blockweise Übergabe von Datensätzen durch den {@link DatasetBatcher}. Der Executor führt die Übergaben erst aus, wenn der Test es verlangt, und
+ * ersetzt damit den Swing-Thread.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class DatasetBatcherTest {
+
+	/** Vom Batcher übergebene, noch nicht ausgeführte Aufgaben */
+	private final BlockingQueue<Runnable> _tasks = new LinkedBlockingQueue<Runnable>();
+
+	/** Vom Empfänger übernommene Blöcke */
+	private final List<List<String>> _received = new ArrayList<List<String>>();
+
+	private final Executor _executor = new Executor() {
+		public void execute(final Runnable command) {
+			_tasks.add(command);
+		}
+	};
+
+	private final DatasetBatcher.Receiver<String> _receiver = new DatasetBatcher.Receiver<String>() {
+		public void receive(final List<String> batch) {
+			_received.add(batch);
+		}
+	};
+
+	@Test
+	public void testFullBatchIsHandedOver() throws Exception {
+		final DatasetBatcher<String> batcher = new DatasetBatcher<String>(3, 1000, _receiver, _executor);
+		batcher.add("a", 0);
+		batcher.add("b", 0);
+		assertTrue(_tasks.isEmpty());
+		batcher.add("c", 0);
+		assertEquals(1, _tasks.size());
+		_tasks.remove().run();
+		assertEquals(Arrays.asList(Arrays.asList("a", "b", "c")), _received);
+	}
+
+	@Test
+	public void testBatchIsHandedOverAfterDelay() throws Exception {
+		final DatasetBatcher<String> batcher = new DatasetBatcher<String>(100, 1000, _receiver, _executor);
+		batcher.add("a", 0);
+		batcher.flushIfDue(999);
+		assertTrue(_tasks.isEmpty());
+		batcher.flushIfDue(1000);
+		assertEquals(1, _tasks.size());
+		_tasks.remove().run();
+
+		// Die Wartezeit beginnt mit dem ersten Datensatz des neuen Blocks
+		batcher.add("b", 1500);
+		batcher.add("c", 2499);
+		assertTrue(_tasks.isEmpty());
+		batcher.add("d", 2500);
+		assertEquals(1, _tasks.size());
+		_tasks.remove().run();
+		assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b", "c", "d")), _received);
+	}
+
+	@Test
+	public void testFlushHandsOverRemainder() throws Exception {
+		final DatasetBatcher<String> batcher = new DatasetBatcher<String>(100, 1000, _receiver, _executor);
+		batcher.flush();
+		assertTrue(_tasks.isEmpty());
+		batcher.add("a", 0);
+		batcher.add("b", 0);
+		batcher.flush();
+		assertEquals(1, _tasks.size());
+		_tasks.remove().run();
+		batcher.flush();
+		assertTrue(_tasks.isEmpty());
+		assertEquals(Arrays.asList(Arrays.asList("a", "b")), _received);
+	}
+
+	@Test(timeout = 10000)
+	public void testOnlyOneHandoverIsPending() throws Exception {
+		final DatasetBatcher<String> batcher = new DatasetBatcher<String>(2, 1000, _receiver, _executor);
+		batcher.add("a", 0);
+		batcher.add("b", 0);
+		assertEquals(1, _tasks.size());
+
+		// Solange der erste Block nicht übernommen wurde, wird kein weiterer Block übergeben
+		batcher.add("c", 5000);
+		batcher.flushIfDue(10000);
+		assertEquals(1, _tasks.size());
+
+		// Ein voller Block wartet, bis der vorherige Block übernommen wurde
+		final Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					batcher.add("d", 10000);
+				}
+				catch(InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		producer.start();
+		while(producer.getState() != Thread.State.WAITING) {
+			assertTrue(producer.isAlive());
+			Thread.sleep(1);
+		}
+		assertEquals(1, _tasks.size());
+
+		_tasks.remove().run();
+		producer.join();
+		assertEquals(1, _tasks.size());
+		_tasks.remove().run();
+		assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d")), _received);
+	}
+
+	@Test(timeout = 10000)
+	public void testFailingReceiverReleasesHandover() throws Exception {
+		final DatasetBatcher<String> batcher = new DatasetBatcher<String>(
+				1, 1000, new DatasetBatcher.Receiver<String>() {
+					public void receive(final List<String> batch) {
+						throw new IllegalStateException("Test");
+					}
+				}, _executor
+		);
+		batcher.add("a", 0);
+		try {
+			_tasks.remove().run();
+			fail("Exception des Empfängers erwartet");
+		}
+		catch(IllegalStateException expected) {
+		}
+		// Würde die Übergabe nicht freigegeben, bliebe add hier hängen
+		batcher.add("b", 0);
+		assertEquals(1, _tasks.size());
+	}
+
+	@Test
+	public void testInvalidBatchSize() {
+		try {
+			new DatasetBatcher<String>(0, 1000, _receiver, _executor);
+			fail("IllegalArgumentException erwartet");
+		}
+		catch(IllegalArgumentException expected) {
+		}
+	}
+}
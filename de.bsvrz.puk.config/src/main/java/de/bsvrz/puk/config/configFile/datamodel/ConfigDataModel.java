@@ -83,6 +83,12 @@ public class ConfigDataModel implements DataModel, ConfigurationControl {
 	/** Speichert die Basistypen der Konfiguration. */
 	private List<SystemObjectType> _baseTypes;
 
+	/**
+	 * Super- und Subtypen der aktuell gültigen Typen. Wird erst nach dem Laden der Konfiguration mit {@link #getTypeHierarchy()} erzeugt, bis dahin
+	 * <code>null</code>.
+	 */
+	private volatile TypeHierarchy _typeHierarchy;
+
 	/** Speichert die größte Objekt-Id, die in einem Konfigurationsbereich vorkam, der vom Verantwortlichen der Konfiguration verändert werden darf. */
 	private long _nextObjectId = -1;
 
@@ -2132,7 +2138,7 @@ public class ConfigDataModel implements DataModel, ConfigurationControl {
 			}
 		}
 		else {
-			// die Typen eines Typ-Objekts werden über die Sub-Types ermittelt.
+			// die Typen eines Typ-Objekts werden über die (in der Typhierarchie vorberechneten) Sub-Types ermittelt.
 			for(SystemObjectType objectType : systemObjectTypes) {
 				relevantObjectTypes.add(objectType);
 				relevantObjectTypes.addAll(getAllSubTypes(objectType));
@@ -2220,13 +2226,40 @@ public class ConfigDataModel implements DataModel, ConfigurationControl {
 	}
 
 	/**
-	 * Diese Methode ermittelt zu diesem Objekt-Typ rekursiv alle Typen, die diesen Typ direkt und indirekt erweitern.
+	 * Gibt die Super- und Subtypen aller aktuell gültigen Typen zurück. Die Typhierarchie wird beim ersten Aufruf erzeugt und danach wiederverwendet, da sich die
+	 * aktuell gültigen Typen erst mit der Aktivierung einer neuen Version (also nach einem Neustart) ändern. Die Methode darf erst nach dem Laden der
+	 * Konfiguration aufgerufen werden (z.B. vom {@link de.bsvrz.puk.config.main.communication.ConfigurationCommunicator}), weil das Erzeugen der
+	 * Typhierarchie selbst Objekte nach Typ abfragt und dabei {@link #getAllSubTypes(SystemObjectType)} benutzt.
+	 *
+	 * @return Typhierarchie
+	 */
+	public TypeHierarchy getTypeHierarchy() {
+		TypeHierarchy typeHierarchy = _typeHierarchy;
+		if(typeHierarchy == null) {
+			// Da die Typhierarchie unveränderlich ist, schadet es nicht, wenn sie bei gleichzeitigen Aufrufen mehrfach erzeugt wird.
+			typeHierarchy = new TypeHierarchy(this);
+			_typeHierarchy = typeHierarchy;
+		}
+		return typeHierarchy;
+	}
+
+	/**
+	 * Diese Methode ermittelt zu diesem Objekt-Typ alle Typen, die diesen Typ direkt und indirekt erweitern. Für aktuell gültige Typen wird das in der
+	 * {@link #getTypeHierarchy() Typhierarchie} vorberechnete Ergebnis verwendet, sobald diese erzeugt wurde. Vorher (insbesondere während die Typhierarchie
+	 * erzeugt wird) und für andere Typen werden die Subtypen rekursiv ermittelt. Die Typhierarchie wird hier nicht erzeugt, weil ihr Konstruktor über
+	 * {@link #getObjects} wieder diese Methode aufruft.
 	 *
 	 * @param type der zu betrachtende Objekt-Typ
 	 *
 	 * @return Alle Typen, die diesen Typ direkt und indirekt erweitern.
 	 */
 	protected Collection<SystemObjectType> getAllSubTypes(SystemObjectType type) {
+		final TypeHierarchy typeHierarchy = _typeHierarchy;
+		if(typeHierarchy != null) {
+			final Set<SystemObjectType> cachedSubTypes = typeHierarchy.getAllSubTypes(type);
+			if(cachedSubTypes != null) return cachedSubTypes;
+		}
+		// Typhierarchie noch nicht erzeugt oder Typ ist nicht aktuell gültig und daher nicht in der Typhierarchie enthalten
 		Collection<SystemObjectType> allSubTypes = new ArrayList<SystemObjectType>();
 		for(SystemObjectType objectType : type.getSubTypes()) {
 			allSubTypes.add(objectType);
@@ -28,18 +28,35 @@ package de.bsvrz.puk.config.configFile.datamodel;
 
 import de.bsvrz.dav.daf.main.config.ConfigurationChangeException;
 import de.bsvrz.dav.daf.main.config.SystemObject;
-import de.bsvrz.dav.daf.util.BufferedRandomAccessFile;
 import de.bsvrz.sys.funclib.dataSerializer.Deserializer;
 import de.bsvrz.sys.funclib.dataSerializer.SerializingFactory;
 import de.bsvrz.sys.funclib.debug.Debug;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Interface um die Speicherung einer dynamischem Menge ({@linkplain ConfigMutableSet})
  * zu realisieren. Diese werden entweder als Konfigurationsdatensatz oder als eigene Datei gespeichert, je nach Implementierung
+ * <p>
+ * Diese Implementierung speichert die Elemente in einer eigenen Datei. Die Datei (Version 2) enthält nach der Versionsnummer die (int-)Anzahl der Elemente
+ * und die Elemente selbst (je Element Id, Startzeit, Endzeit und Simulationsvariante). Danach folgen Änderungseinträge, die beim Speichern angehängt werden,
+ * so dass nicht bei jeder Änderung die ganze Datei neu geschrieben werden muss. Ein Änderungseintrag beginnt mit einem int-Wert. Ist dieser nicht negativ,
+ * gibt er den Index des Elements an, das durch das folgende Element ersetzt oder (beim Index gleich der aktuellen Anzahl) angefügt wird. Ein negativer Wert
+ * <code>-n-1</code> kürzt die Liste auf <code>n</code> Elemente. Da {@link MutableSetStorage} die Position eines Elements nicht verändert (entfernte
+ * Elemente hinterlassen Lücken, nur am Ende wird gekürzt), entspricht der Vergleich nach Index einem Vergleich nach Element. Ein unvollständiger Eintrag am
+ * Dateiende (z.B. nach einem Absturz) wird ignoriert und beim nächsten Speichern überschrieben. Angehängte Einträge werden vor dem Weiterarbeiten mit
+ * {@link java.nio.channels.FileChannel#force(boolean)} auf den Datenträger geschrieben.
+ * <p>
+ * Wenn die Anzahl der Änderungseinträge in der Datei zu groß wird oder sich bei einem Speichervorgang ein großer Teil der Elemente geändert hat (z.B. beim
+ * Entfernen vieler historischer Elemente), wird die Datei kompaktiert, d.h. in eine temporäre Datei neu geschrieben, die nach dem Schreiben auf den
+ * Datenträger die alte Datei ersetzt. Eine beim Lesen vorgefundene temporäre Datei wird nur dann übernommen, wenn die eigentliche Datei fehlt und die
+ * temporäre Datei vollständig ist, andernfalls wird sie verworfen. Dateien der Version 1 (ohne Änderungseinträge) werden weiterhin gelesen und beim nächsten
+ * Speichern in Version 2 neu geschrieben.
  *
  * @author Kappich Systemberatung
  * @version $Revision$
@@ -48,6 +65,21 @@ public class MutableSetExtFileStorage extends MutableSetStorage {
 	
 	private static final Debug _debug = Debug.getLogger();
 
+	/** Größe des Dateikopfs aus Version und Anzahl der Elemente */
+	private static final int HEADER_SIZE = 5;
+
+	/** Größe eines Änderungseintrags, der ein Element enthält */
+	private static final int ELEMENT_RECORD_SIZE = 4 + MutableElement.BYTE_SIZE;
+
+	/** Mindestanzahl von Änderungseinträgen, ab der die Datei kompaktiert wird */
+	private static final int MIN_RECORDS_BEFORE_COMPACTION = 1000;
+
+	/**
+	 * Mindestanzahl von Änderungen eines Speichervorgangs, ab der die Datei statt des Anhängens neu geschrieben wird, wenn sich außerdem mehr als ein Viertel
+	 * der Elemente geändert hat
+	 */
+	private static final int MIN_CHANGES_FOR_REWRITE = 16;
+
 	/**
 	 * Datei in der die Elementzugehörigkeit dieser Menge gespeichert werden soll, oder <code>null</code>, falls die Elementzugehörigkeit als Datensatz der
 	 * Menge gespeichert werden soll
@@ -58,6 +90,15 @@ public class MutableSetExtFileStorage extends MutableSetStorage {
 
 	private List<MutableElement> _saveElementLater;
 
+	/** Stand der Elemente, wie er in der Datei gespeichert ist */
+	private final StoredElements _storedElements = new StoredElements();
+
+	/** Dateiposition, an der der nächste Änderungseintrag angehängt wird, oder <code>-1</code>, wenn die Datei beim nächsten Speichern neu geschrieben werden muss */
+	private long _appendPosition = -1;
+
+	/** Anzahl der Änderungseinträge in der Datei */
+	private int _numberOfRecords = 0;
+
 	public MutableSetExtFileStorage(final File elementsFile, final ConfigMutableSet mutableSet) {
 		_elementsFile = elementsFile;
 		_mutableSet = mutableSet;
@@ -75,19 +116,127 @@ public class MutableSetExtFileStorage extends MutableSetStorage {
 	@Override
 	protected void writeElements(final List<MutableElement> mutableElements) throws ConfigurationChangeException {
 		_saveElementLater = mutableElements;
+		scheduleSave();
+	}
+
+	/** Meldet diese Menge beim Datenmodell zum späteren Speichern mit {@link #saveElementsData()} an. */
+	void scheduleSave() {
 		_mutableSet.getDataModel().saveSetElementsFileLater(this);
 	}
 
+	/**
+	 * Bestimmt das Systemobjekt zu einer in der Datei gespeicherten Id.
+	 *
+	 * @param id Id des Elements
+	 *
+	 * @return Systemobjekt oder <code>null</code>, falls es kein Objekt mit der Id gibt
+	 */
+	SystemObject getObject(final long id) {
+		return _mutableSet.getDataModel().getObject(id);
+	}
+
+	/** @return Version des Serialisierers, mit dem die Datei gelesen wird */
+	int getSerializerVersion() {
+		return _mutableSet.getSerializerVersion();
+	}
+
+	/** @return Name, Pid oder Id der Menge für Fehlermeldungen */
+	String getSetName() {
+		return _mutableSet.getNameOrPidOrId();
+	}
+
 	@Override
 	public String toString() {
 		return _elementsFile.toString();
 	}
 
+	/**
+	 * Speichert die seit dem letzten Speichern geänderten Elemente. Normalerweise werden nur die Änderungen an die Datei angehängt, die Datei wird nur neu
+	 * geschrieben, wenn sie noch nicht im aktuellen Format vorliegt, zu viele Änderungseinträge enthält oder sich zu viele Elemente geändert haben.
+	 */
 	public synchronized void saveElementsData() {
 		List<MutableElement> elementsToSave = _saveElementLater;
 		if(elementsToSave == null) return;
+		try {
+			if(_appendPosition < 0 || _numberOfRecords > Math.max(MIN_RECORDS_BEFORE_COMPACTION, _storedElements._size)
+			   || !appendChanges(elementsToSave)) {
+				compact(elementsToSave);
+			}
+		}
+		catch(IOException e){
+			_debug.error("Fehler beim Erzeugen der Datei mit der Elementzugehörigkeit einer dynamischen Menge " + _elementsFile, e);
+			// Beim nächsten Speichern wird die Datei vollständig neu geschrieben
+			_appendPosition = -1;
+		}
+		_saveElementLater = null;
+	}
+
+	/**
+	 * Hängt Änderungseinträge für alle Elemente an, die sich gegenüber dem gespeicherten Stand geändert haben. Wenn sich zu viele Elemente geändert haben,
+	 * wird nichts angehängt, weil das Neuschreiben der Datei dann günstiger ist.
+	 *
+	 * @param elementsToSave Aktuelle Elemente der Menge
+	 *
+	 * @return <code>false</code>, wenn die Datei stattdessen neu geschrieben werden soll, sonst <code>true</code>
+	 *
+	 * @throws IOException Fehler beim Schreiben der Datei
+	 */
+	private boolean appendChanges(final List<MutableElement> elementsToSave) throws IOException {
+		final int size = elementsToSave.size();
+		int numberOfChanges = size < _storedElements._size ? 1 : 0;
+		for(int i = 0; i < size; i++) {
+			if(i >= _storedElements._size || !_storedElements.matches(i, elementsToSave.get(i))) numberOfChanges++;
+		}
+		if(numberOfChanges == 0) return true;
+		if(numberOfChanges >= MIN_CHANGES_FOR_REWRITE && numberOfChanges > size / 4) return false;
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		int numberOfRecords = 0;
+		for(int i = 0; i < size; i++) {
+			final MutableElement mutableElement = elementsToSave.get(i);
+			if(i < _storedElements._size && _storedElements.matches(i, mutableElement)) continue;
+			out.writeInt(i);
+			writeElement(out, mutableElement);
+			_storedElements.set(i, mutableElement);
+			numberOfRecords++;
+		}
+		if(size < _storedElements._size) {
+			out.writeInt(-size - 1);
+			_storedElements._size = size;
+			numberOfRecords++;
+		}
+		out.close();
+
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(_elementsFile, "rw");
+		try {
+			// Unvollständigen Eintrag am Dateiende verwerfen
+			if(randomAccessFile.length() != _appendPosition) randomAccessFile.setLength(_appendPosition);
+			randomAccessFile.seek(_appendPosition);
+			randomAccessFile.write(bytes.toByteArray());
+			randomAccessFile.getChannel().force(false);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+		_appendPosition += bytes.size();
+		_numberOfRecords += numberOfRecords;
+		return true;
+	}
+
+	/**
+	 * Schreibt die Datei ohne Änderungseinträge neu. Die Elemente werden zuerst in eine temporäre Datei geschrieben und auf den Datenträger gebracht, die dann
+	 * die bisherige Datei ersetzt. Die bisherige Datei bleibt als Backup-Datei mit der Endung <code>.old</code> erhalten.
+	 *
+	 * @param elementsToSave Aktuelle Elemente der Menge
+	 *
+	 * @throws IOException Fehler beim Schreiben der Datei
+	 */
+	private void compact(final List<MutableElement> elementsToSave) throws IOException {
+		final File tempFile = getTempFile();
+		writeElementsToFile(elementsToSave, tempFile);
 		if(_elementsFile.isFile()) {
-			final File backupFile = new File(_elementsFile.getParentFile(), _elementsFile.getName() + ".old");
+			final File backupFile = getBackupFile();
 			if(backupFile.exists()) {
 				if(!backupFile.delete()){
 					_debug.warning("Backup-Datei kann nicht gelöscht werden", backupFile);
@@ -97,13 +246,70 @@ public class MutableSetExtFileStorage extends MutableSetStorage {
 				_debug.warning("Backup-Datei kann nicht erstellt werden", backupFile);
 			}
 		}
+		Files.move(tempFile.toPath(), _elementsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		_storedElements._size = 0;
+		for(int i = 0; i < elementsToSave.size(); i++) {
+			_storedElements.set(i, elementsToSave.get(i));
+		}
+		_appendPosition = HEADER_SIZE + (long)elementsToSave.size() * MutableElement.BYTE_SIZE;
+		_numberOfRecords = 0;
+	}
+
+	private File getTempFile() {
+		return new File(_elementsFile.getParentFile(), _elementsFile.getName() + ".tmp");
+	}
+
+	private File getBackupFile() {
+		return new File(_elementsFile.getParentFile(), _elementsFile.getName() + ".old");
+	}
+
+	/**
+	 * Behandelt eine temporäre Datei, die nach einem Absturz beim Kompaktieren übrig geblieben ist. Fehlt die eigentliche Datei (Absturz nach dem Umbenennen
+	 * der alten Datei), wird die temporäre Datei übernommen, falls sie vollständig ist, sonst wird die Backup-Datei wiederhergestellt. Ist die eigentliche
+	 * Datei vorhanden, ist sie noch gültig und die temporäre Datei wird verworfen.
+	 *
+	 * @throws IOException Fehler beim Umbenennen der Dateien
+	 */
+	private void recoverTempFile() throws IOException {
+		final File tempFile = getTempFile();
+		if(!tempFile.exists()) return;
+		if(!_elementsFile.exists() && isCompleteFile(tempFile)) {
+			_debug.info("Datei mit der Elementzugehörigkeit einer dynamischen Menge wird wiederhergestellt", _elementsFile.getPath());
+			Files.move(tempFile.toPath(), _elementsFile.toPath());
+			return;
+		}
+		_debug.info("Unvollständige oder überflüssige temporäre Datei einer dynamischen Menge wird verworfen", tempFile.getPath());
+		if(!tempFile.delete()) {
+			_debug.warning("Temporäre Datei kann nicht gelöscht werden", tempFile);
+		}
+		final File backupFile = getBackupFile();
+		if(!_elementsFile.exists() && backupFile.isFile()) {
+			_debug.info("Datei mit der Elementzugehörigkeit einer dynamischen Menge wird aus der Backup-Datei wiederhergestellt", backupFile.getPath());
+			Files.copy(backupFile.toPath(), _elementsFile.toPath());
+		}
+	}
+
+	/**
+	 * Prüft, ob eine beim Kompaktieren geschriebene Datei vollständig ist, d.h. Version 2 hat und genau so lang ist, wie es die Anzahl der Elemente angibt.
+	 *
+	 * @param file Zu prüfende Datei
+	 *
+	 * @return <code>true</code>, wenn die Datei vollständig ist, sonst <code>false</code>
+	 *
+	 * @throws IOException Fehler beim Lesen der Datei
+	 */
+	private static boolean isCompleteFile(final File file) throws IOException {
+		final long length = file.length();
+		if(length < HEADER_SIZE) return false;
+		final DataInputStream in = new DataInputStream(new FileInputStream(file));
 		try {
-			writeElementsToFile(elementsToSave, _elementsFile);
+			final byte version = in.readByte();
+			final int numberOfElements = in.readInt();
+			return version == 2 && numberOfElements >= 0 && length == HEADER_SIZE + (long)numberOfElements * MutableElement.BYTE_SIZE;
 		}
-		catch(IOException e){
-			_debug.error("Fehler beim Erzeugen der Datei mit der Elementzugehörigkeit einer dynamischen Menge " + _elementsFile, e);
+		finally {
+			in.close();
 		}
-		_saveElementLater = null;
 	}
 
 	public void createBackupFile(final File targetDirectory) throws IOException {
@@ -111,62 +317,58 @@ public class MutableSetExtFileStorage extends MutableSetStorage {
 		writeElementsToFile(readElements(), targetFile);
 	}
 
+	/**
+	 * Schreibt die Elemente ohne Änderungseinträge in eine Datei und bringt sie auf den Datenträger, bevor die Datei geschlossen wird.
+	 *
+	 * @param elementsToSave Zu schreibende Elemente
+	 * @param file           Datei
+	 *
+	 * @throws IOException Fehler beim Schreiben der Datei
+	 */
 	public void writeElementsToFile(final List<MutableElement> elementsToSave, final File file) throws IOException {
-		BufferedRandomAccessFile bufferedRandomAccessFile = new BufferedRandomAccessFile(file, "rw");
+		final FileOutputStream fileOutputStream = new FileOutputStream(file);
 		try {
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
 			// Version
-			bufferedRandomAccessFile.writeByte(1);
-			// Size
-			int byteSize = MutableElement.BYTE_SIZE;
-			int len = elementsToSave.size() * byteSize;
-			bufferedRandomAccessFile.writeInt(len);
-			bufferedRandomAccessFile.setLength(5 + len);
+			out.writeByte(2);
+			// Anzahl
+			out.writeInt(elementsToSave.size());
 			// Bytes
 			for(MutableElement mutableElement : elementsToSave) {
-				bufferedRandomAccessFile.writeLong(mutableElement.getId());
-				bufferedRandomAccessFile.writeLong(mutableElement.getStartTime());
-				bufferedRandomAccessFile.writeLong(mutableElement.getEndTime());
-				bufferedRandomAccessFile.writeShort(mutableElement.getSimulationVariant());
+				writeElement(out, mutableElement);
 			}
+			out.flush();
+			fileOutputStream.getChannel().force(true);
 		}
 		finally {
-			bufferedRandomAccessFile.close();
+			fileOutputStream.close();
 		}
 	}
 
+	private static void writeElement(final DataOutput out, final MutableElement mutableElement) throws IOException {
+		out.writeLong(mutableElement.getId());
+		out.writeLong(mutableElement.getStartTime());
+		out.writeLong(mutableElement.getEndTime());
+		out.writeShort(mutableElement.getSimulationVariant());
+	}
+
 	/**
 	 * Diese Methode liest den konfigurierenden Datensatz für die Elemente dieser Menge ein und gibt sie in einer Liste zurück.
 	 * 
 	 * @return eine Liste von Elementen mit Zeitstempeln, die die Zugehörigkeitszeiträume repräsentieren
 	 */
-	protected List<MutableElement> readElements() {
+	protected synchronized List<MutableElement> readElements() {
 		saveElementsData();
 		// die eingelesenen Elemente werden nicht alle vorgehalten, da dies auf Dauer zu viele werden können
 		final List<MutableElement> mutableElements = new ArrayList<MutableElement>();
+		_storedElements._size = 0;
+		_appendPosition = -1;
+		_numberOfRecords = 0;
 		try {
-			
+			recoverTempFile();
 			byte[] bytes;
 			if(_elementsFile.isFile() && _elementsFile.canRead()) {
-				final FileInputStream in = new FileInputStream(_elementsFile);
-				final DataInputStream din = new DataInputStream(in);
-				try {
-					final byte version = din.readByte();
-					if(version == 1) {
-						final int size = din.readInt();
-						final byte[] readBytes = new byte[size];
-						din.readFully(readBytes);
-						bytes = readBytes;
-					}
-					else {
-						final String errorMessage = "Elemente der dynamischen Menge " + _mutableSet.getNameOrPidOrId() + " konnten nicht ermittelt werden, unbekannte Version " + version;
-						_debug.error(errorMessage);
-						throw new RuntimeException(errorMessage);
-					}
-				}
-				finally {
-					din.close();
-					in.close();
-				}
+				bytes = Files.readAllBytes(_elementsFile.toPath());
 			}
 			else {
 				if(_elementsFile.exists()) {
@@ -174,17 +376,48 @@ public class MutableSetExtFileStorage extends MutableSetStorage {
 				}
 				bytes = new byte[0];
 			}
-			final ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-			final Deserializer deserializer = SerializingFactory.createDeserializer(_mutableSet.getSerializerVersion(), in);
-			assert bytes.length % MutableElement.BYTE_SIZE == 0 : "Format des Byte-Arrays für die Elemente einer Menge " + _mutableSet.getNameOrPidOrId()
-			        + " hat sich geändert. Länge muss durch " + MutableElement.BYTE_SIZE + " teilbar sein.";
-			int numberOfElements = bytes.length / MutableElement.BYTE_SIZE;
-			for(int i = 0; i < numberOfElements; i++) {
-				long id = deserializer.readLong();
-				long startTime = deserializer.readLong(); // Zeit, ab der das Element zur Menge gehört
-				long endTime = deserializer.readLong(); // Zeit, ab der das Element nicht mehr zur Menge gehört
-				short simulationVariant = deserializer.readShort(); // Simulationsvariante dieses Objekt, in der es zur Menge hinzugefügt oder aus der Menge entfernt wurde
-				final SystemObject object = _mutableSet.getDataModel().getObject(id);
+			if(bytes.length != 0) {
+				final ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+				final Deserializer deserializer = SerializingFactory.createDeserializer(getSerializerVersion(), in);
+				final byte version = deserializer.readByte();
+				if(version == 1) {
+					final int size = deserializer.readInt();
+					assert size % MutableElement.BYTE_SIZE == 0 : "Format des Byte-Arrays für die Elemente einer Menge " + _mutableSet.getNameOrPidOrId()
+					        + " hat sich geändert. Länge muss durch " + MutableElement.BYTE_SIZE + " teilbar sein.";
+					readStoredElements(deserializer, size / MutableElement.BYTE_SIZE);
+					// Datei wird beim nächsten Speichern in Version 2 neu geschrieben
+				}
+				else if(version == 2) {
+					readStoredElements(deserializer, deserializer.readInt());
+					long position = HEADER_SIZE + (long)_storedElements._size * MutableElement.BYTE_SIZE;
+					while(bytes.length - position >= 4) {
+						final int index = deserializer.readInt();
+						if(index < 0) {
+							_storedElements._size = Math.min(_storedElements._size, -index - 1);
+							position += 4;
+						}
+						else {
+							if(bytes.length - position < ELEMENT_RECORD_SIZE) break;
+							if(index > _storedElements._size) {
+								throw new IOException("Ungültiger Änderungseintrag an Position " + position + ", Index " + index);
+							}
+							_storedElements.set(index, deserializer.readLong(), deserializer.readLong(), deserializer.readLong(), deserializer.readShort());
+							position += ELEMENT_RECORD_SIZE;
+						}
+						_numberOfRecords++;
+					}
+					_appendPosition = position;
+				}
+				else {
+					final String errorMessage = "Elemente der dynamischen Menge " + getSetName() + " konnten nicht ermittelt werden, unbekannte Version " + version;
+					_debug.error(errorMessage);
+					throw new RuntimeException(errorMessage);
+				}
+				in.close();
+			}
+			for(int i = 0; i < _storedElements._size; i++) {
+				long id = _storedElements._ids[i];
+				final SystemObject object = getObject(id);
 
 				if(object == null) {
 					_debug.warning(
@@ -192,21 +425,72 @@ public class MutableSetExtFileStorage extends MutableSetStorage {
 									+ "' hinzugefügt werden, da es kein System-Objekt hierzu gibt."
 					);
 				}
-				mutableElements.add(new MutableElement(object, startTime, endTime, simulationVariant));
+				mutableElements.add(
+						new MutableElement(object, _storedElements._startTimes[i], _storedElements._endTimes[i], _storedElements._simulationVariants[i])
+				);
 			}
-			in.close();
 			return mutableElements;
 		}
 		catch(IllegalArgumentException ex) {
-			final String errorMessage = "Elemente der dynamischen Menge '" + _mutableSet.getNameOrPidOrId()
+			final String errorMessage = "Elemente der dynamischen Menge '" + getSetName()
 			        + "' konnten nicht ermittelt werden (evtl. wurde die Menge neu angelegt)";
 			_debug.finest(errorMessage, ex.getMessage());
 		}
 		catch(Exception ex) {
-			final String errorMessage = "Elemente der dynamischen Menge " + _mutableSet.getNameOrPidOrId() + " konnten nicht ermittelt werden";
+			final String errorMessage = "Elemente der dynamischen Menge " + getSetName() + " konnten nicht ermittelt werden";
 			_debug.error(errorMessage, ex);
 			throw new RuntimeException(errorMessage, ex);
 		}
+		_storedElements._size = 0;
+		_appendPosition = -1;
 		return mutableElements;
 	}
+
+	private void readStoredElements(final Deserializer deserializer, final int numberOfElements) throws IOException {
+		for(int i = 0; i < numberOfElements; i++) {
+			long id = deserializer.readLong();
+			long startTime = deserializer.readLong(); // Zeit, ab der das Element zur Menge gehört
+			long endTime = deserializer.readLong(); // Zeit, ab der das Element nicht mehr zur Menge gehört
+			short simulationVariant = deserializer.readShort(); // Simulationsvariante dieses Objekt, in der es zur Menge hinzugefügt oder aus der Menge entfernt wurde
+			_storedElements.set(i, id, startTime, endTime, simulationVariant);
+		}
+	}
+
+	/** Speichert den Stand der Elemente, wie er in der Datei steht, um beim Speichern die geänderten Elemente zu ermitteln. */
+	private static final class StoredElements {
+
+		private long[] _ids = new long[16];
+
+		private long[] _startTimes = new long[16];
+
+		private long[] _endTimes = new long[16];
+
+		private short[] _simulationVariants = new short[16];
+
+		private int _size = 0;
+
+		boolean matches(final int index, final MutableElement mutableElement) {
+			return _ids[index] == mutableElement.getId() && _startTimes[index] == mutableElement.getStartTime()
+			       && _endTimes[index] == mutableElement.getEndTime() && _simulationVariants[index] == mutableElement.getSimulationVariant();
+		}
+
+		void set(final int index, final MutableElement mutableElement) {
+			set(index, mutableElement.getId(), mutableElement.getStartTime(), mutableElement.getEndTime(), mutableElement.getSimulationVariant());
+		}
+
+		void set(final int index, final long id, final long startTime, final long endTime, final short simulationVariant) {
+			if(index >= _ids.length) {
+				final int capacity = Math.max(index + 1, _ids.length * 2);
+				_ids = Arrays.copyOf(_ids, capacity);
+				_startTimes = Arrays.copyOf(_startTimes, capacity);
+				_endTimes = Arrays.copyOf(_endTimes, capacity);
+				_simulationVariants = Arrays.copyOf(_simulationVariants, capacity);
+			}
+			_ids[index] = id;
+			_startTimes[index] = startTime;
+			_endTimes[index] = endTime;
+			_simulationVariants[index] = simulationVariant;
+			if(index >= _size) _size = index + 1;
+		}
+	}
 }
@@ -35,6 +35,9 @@ import java.util.*;
 
 /**
  * Verwaltung der Super- und Sybtypen eines Datenmodells. Diese Klasse verarbeitet nur aktuell gültige Typen.
+ * <p>
+ * Neben den direkten Super- und Subtypen werden beim Erzeugen auch alle direkten und indirekten Super- und Subtypen jedes Typs bestimmt, damit diese bei
+ * Anfragen nach Objekten eines Typs nicht jedes Mal rekursiv ermittelt werden müssen.
  * 
  * Diese Klasse ist threadsicher, da sie unveränderlich ist. Synchronisierung beim Zugriff auf diese Klasse ist nicht erforderlich.  
  *
@@ -48,6 +51,12 @@ public class TypeHierarchy {
 	private final HashBagMap<SystemObjectType, SystemObjectType> _superTypes = new HashBagMap<SystemObjectType, SystemObjectType>();
 	
 	private final HashBagMap<SystemObjectType, SystemObjectType> _subTypes = new HashBagMap<SystemObjectType, SystemObjectType>();
+
+	/** Alle direkten und indirekten Supertypen eines Typs */
+	private final Map<SystemObjectType, Set<SystemObjectType>> _allSuperTypes = new HashMap<SystemObjectType, Set<SystemObjectType>>();
+
+	/** Alle direkten und indirekten Subtypen eines Typs */
+	private final Map<SystemObjectType, Set<SystemObjectType>> _allSubTypes = new HashMap<SystemObjectType, Set<SystemObjectType>>();
 	
 	public TypeHierarchy(DataModel dataModel) {
 		List<SystemObject> types = dataModel.getTypeTypeObject().getElements();
@@ -62,6 +71,31 @@ public class TypeHierarchy {
 				}
 			}
 		}
+		for(SystemObjectType type : _types.values()) {
+			_allSuperTypes.put(type, Collections.unmodifiableSet(closure(type, _superTypes)));
+			_allSubTypes.put(type, Collections.unmodifiableSet(closure(type, _subTypes)));
+		}
+	}
+
+	/**
+	 * Bestimmt alle Typen, die von einem Typ aus über die angegebene Beziehung direkt oder indirekt erreichbar sind.
+	 *
+	 * @param type      Typ
+	 * @param relations Direkte Super- oder Subtypen
+	 *
+	 * @return Erreichbare Typen ohne den Typ selbst
+	 */
+	private static Set<SystemObjectType> closure(final SystemObjectType type, final HashBagMap<SystemObjectType, SystemObjectType> relations) {
+		final Set<SystemObjectType> result = new LinkedHashSet<SystemObjectType>();
+		final Deque<SystemObjectType> pending = new ArrayDeque<SystemObjectType>(relations.get(type));
+		while(!pending.isEmpty()) {
+			final SystemObjectType next = pending.removeFirst();
+			// Die Menge verhindert, dass Typen bei Mehrfachvererbung (oder fehlerhaften Zyklen) mehrfach besucht werden
+			if(next != type && result.add(next)) {
+				pending.addAll(relations.get(next));
+			}
+		}
+		return result;
 	}
 
 	public SystemObjectType getType(long id){
@@ -75,5 +109,36 @@ public class TypeHierarchy {
 	public Collection<SystemObjectType> getSubTypes(SystemObjectType type){
 		return Collections.unmodifiableCollection(_subTypes.get(type));
 	}
+
+	/**
+	 * Gibt alle Typen zurück, die der angegebene Typ direkt oder indirekt erweitert.
+	 *
+	 * @param type Typ
+	 *
+	 * @return Alle Supertypen oder <code>null</code>, falls der Typ nicht aktuell gültig ist
+	 */
+	public Set<SystemObjectType> getAllSuperTypes(SystemObjectType type){
+		return _allSuperTypes.get(type);
+	}
+
+	/**
+	 * Gibt alle Typen zurück, die den angegebenen Typ direkt oder indirekt erweitern.
+	 *
+	 * @param type Typ
+	 *
+	 * @return Alle Subtypen oder <code>null</code>, falls der Typ nicht aktuell gültig ist
+	 */
+	public Set<SystemObjectType> getAllSubTypes(SystemObjectType type){
+		return _allSubTypes.get(type);
+	}
+
+	/**
+	 * Gibt alle aktuell gültigen Typen zurück.
+	 *
+	 * @return Typen
+	 */
+	public Collection<SystemObjectType> getTypes(){
+		return Collections.unmodifiableCollection(_types.values());
+	}
 	
 }
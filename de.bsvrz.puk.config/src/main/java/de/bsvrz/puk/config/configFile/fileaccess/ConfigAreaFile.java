@@ -44,6 +44,7 @@ import java.io.*;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterOutputStream;
 
@@ -58,6 +59,16 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	/** DebugLogger für Debug-Ausgaben */
 	private static final Debug _debug = Debug.getLogger();
 
+	/** Sortiert Objektreferenzen nach ihrer Dateiposition, Objekte, die sich nur im Speicher befinden, stehen vorne */
+	private static final Comparator<ObjectReference> FILE_POSITION_COMPARATOR = new Comparator<ObjectReference>() {
+		@Override
+		public int compare(final ObjectReference o1, final ObjectReference o2) {
+			final long position1 = o1 instanceof FilePointer ? ((FilePointer) o1).getAbsoluteFilePosition() : -1;
+			final long position2 = o2 instanceof FilePointer ? ((FilePointer) o2).getAbsoluteFilePosition() : -1;
+			return position1 < position2 ? -1 : (position1 == position2 ? 0 : 1);
+		}
+	};
+
 	/** Wo befindet sich die Datei */
 	private final File _configAreaFile;
 
@@ -210,6 +221,19 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	 */
 	private final Object _restructureLock = new Object();
 
+	/**
+	 * Wird für die gesamte Dauer einer Restrukturierung gehalten, damit nicht zwei Restrukturierungen gleichzeitig stattfinden. Bei der Restrukturierung im
+	 * laufenden Betrieb ({@link RestructureMode#DynamicObjectRestructure}) werden {@link #_restructureLock} und die Sperre auf die Datei nur zu Beginn und
+	 * beim Umschalten auf die neue Datei gehalten. Muss vor {@link #_restructureLock} angefordert werden.
+	 */
+	private final Object _restructureProcessLock = new Object();
+
+	/**
+	 * Protokoll der Änderungen, die während einer Restrukturierung im laufenden Betrieb an der bisherigen Datei vorgenommen werden, oder <code>null</code>,
+	 * falls gerade keine solche Restrukturierung läuft.
+	 */
+	private volatile RestructureChangeLog _restructureChangeLog = null;
+
 	/**
 	 * Stellt das Objekt dar, das den Konfigurationsbereich repräsentiert. Das Objekt wird entweder beim laden der Mischmenge über die Pid des
 	 * Konfigurationsbereichs gefunden oder es wird ein neuer Bereich angelegt. Dann wird das Objekt erst mit {@link #createConfigurationObject} erzeugt, auch in
@@ -254,6 +278,13 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	 */
 	private final Map<Long, List<OldObjectTypeIdInfo>> _oldObjectsTypeId = new HashMap<Long, List<OldObjectTypeIdInfo>>();
 
+	/**
+	 * Index über die Gültigkeitszeiträume der Objekte im dyn. nGa-Bereich, getrennt nach Typ. Wird bei der ersten Anfrage nach Objekten in einem Zeitbereich
+	 * erzeugt und nach einer Restrukturierung verworfen, da sich dann der Bereich und die Dateipositionen ändern. <code>null</code>, solange der Index nicht
+	 * erzeugt wurde.
+	 */
+	private ValidityIntervalIndex _oldDynamicObjectsIndex = null;
+
 
 	/**
 	 * Mit diesem Objekt wird ein mehrfacher Zugriff auf diese Datei verhindert. Dieser Mechanismus funktioniert nur, wenn alle Klassen, die auf diese Datei
@@ -606,7 +637,7 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 		}
 	}
 
-	private volatile long _backupProgress;
+	private final AtomicLong _backupProgress = new AtomicLong();
 	private volatile long _fileLength;
 
 	/**
@@ -622,35 +653,17 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 				// Alle Puffer sichern
 				flush();
 
-				_backupProgress = 0;
+				_backupProgress.set(0);
 				_fileLength = _configAreaFile.length();
 				// Datei kopieren
-				final FileOutputStream fileOutputStream = new FileOutputStream(new File(targetDirectory, fileName));
-				try {
-					final FileInputStream inputStream = new FileInputStream(_configAreaFile);
-					try {
-
-						byte[] buf = new byte[1024*16];
-						int len;
-						while((len = inputStream.read(buf)) > 0) {
-							fileOutputStream.write(buf, 0, len);
-							_backupProgress += len;
-						}
-					}
-					finally {
-						inputStream.close();
-					}
-				}
-				finally {
-					fileOutputStream.close();
-				}
+				FileCopy.copy(_configAreaFile, new File(targetDirectory, fileName), _backupProgress);
 			}
 		}
 	}
 
 
 	public long getBackupProgress() {
-		return _backupProgress;
+		return _backupProgress.get();
 	}
 
 	public long getFileLength(){
@@ -880,6 +893,7 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 					BufferedRandomAccessFile file = new BufferedRandomAccessFile(_configAreaFile, "r");
 
 					// Map mit alten TypeId Objekten anfragen und alle Objekte nehmen, deren Version bzw. Zeit paßt (gültig ab)
+					final List<ObjectReference> oldObjectReferences = new ArrayList<ObjectReference>();
 					for(final Long typeId : typeIdsSet) {
 						// betrachtete TypeId
 						final List<OldObjectTypeIdInfo> oldObjectsForTypeId = _oldObjectsTypeId.get(typeId);
@@ -888,13 +902,18 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 							for(final OldObjectTypeIdInfo objectTypeIdInfo : oldObjectsForTypeId) {
 								// if (wasObjectActive(objectTypeIdInfo, firstOldVersion, lastOldVersion, startTime, endTime)) {
 								if(objectValid(objectTypeIdInfo, startTime, endTime, kindOfTime, timeSpecificationType)) {
-									// Das Objekt befindet sich nur teilweise im Speicher und muss nun geladen werden. Transiente Objekte befinden sich
-									// ganz im Speicher.
-									results.add(getSystemObjectInfo(objectTypeIdInfo.getObjectReference(), file));
+									oldObjectReferences.add(objectTypeIdInfo.getObjectReference());
 								}
 							}
 						}
 					}
+					// Die Objekte in der Reihenfolge ihrer Dateipositionen laden, damit die Datei möglichst sequentiell gelesen wird
+					Collections.sort(oldObjectReferences, FILE_POSITION_COMPARATOR);
+					for(final ObjectReference oldObjectReference : oldObjectReferences) {
+						// Das Objekt befindet sich nur teilweise im Speicher und muss nun geladen werden. Transiente Objekte befinden sich
+						// ganz im Speicher.
+						results.add(getSystemObjectInfo(oldObjectReference, file));
+					}
 
 // *********************************************************************************************************************
 					// nGa Bereiche durchlaufen (Version wurde schon ermittelt)
@@ -1013,60 +1032,59 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 							}// while
 						}
 // *********************************************************************************************************************
-						// Den dyn nGa Bereich linear durchlaufen
-
-						
+						// Im dyn nGa Bereich über den Index nur die Objekte betrachten, deren Gültigkeitszeitraum in Frage kommt
 
+						final ValidityIntervalIndex oldDynamicObjectsIndex = getOldDynamicObjectsIndex(file);
 
-						// Auf den dyn nGa-Bereich positionieren
-						file.seek(_startOldDynamicObjects + _headerEnd);
-
-						// Es müssen bis zum Beginn des Id-Index Daten gelesen werden
-						final long oldDynamicObjectsEnd = (_startIdIndex + _headerEnd);
-
-						while(file.getFilePointer() < oldDynamicObjectsEnd) {
+						// Frühestes Ende und spätester Beginn der Gültigkeit, die ein Objekt haben muss (vgl. objectValid)
+						final long earliestInvalid;
+						final long latestValid;
+						if(TimeSpecificationType.VALID_DURING_PERIOD == timeSpecificationType) {
+							earliestInvalid = endTime;
+							latestValid = startTime;
+						}
+						else {
+							earliestInvalid = startTime;
+							latestValid = endTime;
+						}
 
-							// speichert die Dateiposition des Objekts. Diese Position wird später
-							// am Objekt gespeichert
-							final long startObjectFileDescriptor = file.getFilePointer();
+						for(final Long typeId : typeIdsSet) {
+							// Die Dateipositionen sind aufsteigend sortiert, die Datei wird also in einem Durchgang gelesen
+							for(final long startObjectFileDescriptor : oldDynamicObjectsIndex.getFilePositions(typeId, earliestInvalid, latestValid)) {
+								file.seek(startObjectFileDescriptor);
 
-							// Länge des Blocks einlesen
-							final int sizeOfObject = file.readInt();
+								// Länge des Blocks einlesen
+								final int sizeOfObject = file.readInt();
 
-							// Id des Objekts einlesen
-							final long objectId = file.readLong();
+								// Id des Objekts einlesen
+								final long objectId = file.readLong();
 
-							if(objectId > 0) {
-								// Es ist ein Objekt und keine Lücke
+								if(objectId <= 0) {
+									// Das Objekt wurde nach dem Erzeugen des Index gelöscht und ist jetzt eine Lücke
+									continue;
+								}
 
 								final int pidHashCode = file.readInt();
 
-								final long typeId = file.readLong();
+								final long objectTypeId = file.readLong();
 
 								// 0 = Konfobjekt, 1 = dyn Objekt
 								final byte objectType = file.readByte();
 
-								// Es werden nur dynamische Objekte eingelesen, darum ist es automatisch ein long
-								final long firstInvalidTime;
-								final long firstValidTime;
+								final long firstInvalidTime = file.readLong();
+								final long firstValidTime = file.readLong();
 
-								firstInvalidTime = file.readLong();
-								firstValidTime = file.readLong();
-
-								// Objekt war gültig und der Typ des Objekts passt
 								final OldObjectTypeIdInfo oldDynamicObject = new OldObjectTypeIdInfo(
 										firstValidTime, firstInvalidTime, false, FilePointer.fromAbsolutePosition(startObjectFileDescriptor, this)
 								);
-								if(objectValid(
-										oldDynamicObject, startTime, endTime, kindOfTime, timeSpecificationType
-								) && typeIdsSet.contains(new Long(typeId))) {
+								if(objectTypeId == typeId && objectValid(oldDynamicObject, startTime, endTime, kindOfTime, timeSpecificationType)) {
 									// Das Objekt ist im angegebenen Bereich gültig, also kann es geladen werden
 									results.add(
 											readObjectFromFile(
 													startObjectFileDescriptor,
 													sizeOfObject,
 													objectId,
-													typeId,
+													objectTypeId,
 													firstInvalidTime,
 													firstValidTime,
 													objectType,
@@ -1074,22 +1092,8 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 											)
 									);
 								}
-								else {
-									// Das Objekt gehört nicht zu den gesuchten TypeId's, also muss das
-									// nächste Objekt betrachtet werden
-
-									// Die Länge bezieht sich auf das gesamte Objekt, ohne die Länge selber.
-									// Also ist die nächste Länge bei
-									// "aktuelle Position + Länge - 8 (Id) - 4 (pidHashCode) - 8 (typeId) - 1 (objectType) - 8(firstInvalid) - 8(firstValid)
-
-									// Die anderen Werte müssen abgezogen werden, weil sie bereits eingelesen wurden
-									file.seek(file.getFilePointer() + sizeOfObject - 8 - 4 - 8 - 1 - 8 - 8);
-								}
-							}
-							else {
-								file.seek(file.getFilePointer() + sizeOfObject - 8);
 							}
-						}// while
+						}
 
 					}
 					finally {
@@ -1116,6 +1120,53 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 		}
 	}
 
+	/**
+	 * Liefert den Index über die Objekte im dyn. nGa-Bereich. Falls der Index noch nicht existiert, wird er erzeugt. Dazu werden nur die Köpfe der Objekte
+	 * gelesen. Die Sperre auf die Datei muss gehalten werden.
+	 *
+	 * @param file Datei, aus der gelesen wird
+	 *
+	 * @return Index
+	 *
+	 * @throws IOException
+	 */
+	private ValidityIntervalIndex getOldDynamicObjectsIndex(final BufferedRandomAccessFile file) throws IOException {
+		if(_oldDynamicObjectsIndex == null) {
+			final ValidityIntervalIndex index = new ValidityIntervalIndex();
+
+			// Auf den dyn nGa-Bereich positionieren
+			file.seek(_startOldDynamicObjects + _headerEnd);
+
+			// Es müssen bis zum Beginn des Id-Index Daten gelesen werden
+			final long oldDynamicObjectsEnd = (_startIdIndex + _headerEnd);
+
+			while(file.getFilePointer() < oldDynamicObjectsEnd) {
+				final long startObjectFileDescriptor = file.getFilePointer();
+
+				// Länge des Blocks einlesen, die Länge zählt selbst nicht mit
+				final int sizeOfObject = file.readInt();
+
+				final long objectId = file.readLong();
+
+				if(objectId > 0) {
+					// pidHashCode
+					file.readInt();
+					final long typeId = file.readLong();
+					// 0 = Konfobjekt, 1 = dyn Objekt
+					file.readByte();
+					final long firstInvalidTime = file.readLong();
+					final long firstValidTime = file.readLong();
+					index.add(typeId, firstValidTime, firstInvalidTime, startObjectFileDescriptor);
+				}
+				file.seek(startObjectFileDescriptor + 4 + sizeOfObject);
+			}
+			index.finish();
+			_debug.fine("Index über " + index.size() + " alte dynamische Objekte erzeugt", _configAreaFile);
+			_oldDynamicObjectsIndex = index;
+		}
+		return _oldDynamicObjectsIndex;
+	}
+
 	/**
 	 * Diese Methode prüft ob folgende Gleichung wahr ist:
 	 * <p>
@@ -1814,6 +1865,7 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 		synchronized(_newObjects) {
 			_newObjects.remove(newObject.getID());
 		}
+		logRestructureChange(newObject);
 		_fileManager.removeNewObject(newObject);
 	}
 
@@ -1825,6 +1877,7 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	 * @param dynamicObjectInfo Objekt, das entfernt werden soll
 	 */
 	void deleteDynamicObject(DynamicObjectInformation dynamicObjectInfo) {
+		logRestructureChange(dynamicObjectInfo);
 
 		// Dynamische Objekte können aktuell oder alt sein. Aus diesen Datenstrukturen werden die Elemente entfernt.
 		if(_actualObjects.containsKey(dynamicObjectInfo.getID())) {
@@ -2535,6 +2588,11 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 			// Der Zeiger steht auf der Id des Datensatzes, diese wird nun mit einer 0 überschrieben und somit als
 			// Lücke deklariert
 			file.writeLong(0);
+			final RestructureChangeLog changeLog = _restructureChangeLog;
+			if(changeLog != null) {
+				// Die Lücke muss auch in der neuen Datei deklariert werden
+				changeLog.gapDeclared(filePosition.getAbsoluteFilePosition());
+			}
 		}
 	}
 
@@ -2673,6 +2731,20 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 				_modifiedObjects.add(modifiedObject);
 			}
 		}
+		logRestructureChange(modifiedObject);
+	}
+
+	/**
+	 * Merkt sich ein geändertes Objekt, falls gerade eine Restrukturierung im laufenden Betrieb stattfindet. Das Objekt wird dann beim Umschalten auf die neue
+	 * Datei erneut in diese geschrieben.
+	 *
+	 * @param object Geändertes Objekt
+	 */
+	private void logRestructureChange(final SystemObjectInformationInterface object) {
+		final RestructureChangeLog changeLog = _restructureChangeLog;
+		if(changeLog != null) {
+			changeLog.objectChanged(object);
+		}
 	}
 
 	/**
@@ -2713,29 +2785,6 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 				_oldObjectsId.put(invalidObject.getID(), oldObjRef);
 			}
 
-			FilePointer lastFilePosition = invalidObject.getLastFilePosition();
-			if(lastFilePosition != null) {
-				// null bei transienten Objekten. In dem Fall kann hier nichts eingetragen werden.
-				// Man könnte in Zukunft in _oldObjectsPid ObjectReference-s eintragen statt FilePointer. 
-				
-				synchronized(_oldObjectsPid) {
-					Set<FilePointer> filePositions = _oldObjectsPid.get(invalidObject.getPidHashCode());
-
-					if(filePositions != null) {
-						// Es gibt eine Liste, also Dateipostion einfügen
-						filePositions.add(lastFilePosition);
-					}
-					else {
-						// Es gibt noch keine Liste
-						filePositions = new HashSet<FilePointer>();
-						filePositions.add(lastFilePosition);
-
-						// Die neue Liste in die Map einfügen
-						_oldObjectsPid.put(invalidObject.getPidHashCode(), filePositions);
-					}
-				}
-			}
-
 			// TypeId Maps aktualisieren
 			synchronized(_actualObjectsTypeId) {
 				final List<SystemObjectInformationInterface> actualTypeList = _actualObjectsTypeId.get(invalidObject.getTypeId());
@@ -2745,19 +2794,53 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 				}
 			}
 
-			synchronized(_oldObjectsTypeId) {
-
-				// In die Map mit alten Objekten eintragen
-				putOldObjectTypeId(
-						invalidObject.getTypeId(), invalidObject.getFirstValidTime(), invalidObject.getFirstInvalidTime(), false, oldObjRef
-				);
-			}
+			putOldDynamicObject(invalidObject, oldObjRef);
 
 			// Maps des FileManagers aufräumen
 			_fileManager.setDynamicObjectInvalid(invalidObject);
+			logRestructureChange(invalidObject);
 		} // synch
 	}
 
+	/**
+	 * Trägt ein ungültiges dynamisches Objekt der Mischmenge in die Datenstrukturen für den Zugriff über die Pid und über den Typ ein.
+	 *
+	 * @param invalidObject Objekt, das "ungültig" geworden ist
+	 * @param oldObjRef     Referenz auf das Objekt, unter der es in {@link #_oldObjectsId} eingetragen ist
+	 */
+	private void putOldDynamicObject(final DynamicObjectInformation invalidObject, final ObjectReference oldObjRef) {
+		FilePointer lastFilePosition = invalidObject.getLastFilePosition();
+		if(lastFilePosition != null) {
+			// null bei transienten Objekten. In dem Fall kann hier nichts eingetragen werden.
+			// Man könnte in Zukunft in _oldObjectsPid ObjectReference-s eintragen statt FilePointer. 
+			
+			synchronized(_oldObjectsPid) {
+				Set<FilePointer> filePositions = _oldObjectsPid.get(invalidObject.getPidHashCode());
+
+				if(filePositions != null) {
+					// Es gibt eine Liste, also Dateipostion einfügen
+					filePositions.add(lastFilePosition);
+				}
+				else {
+					// Es gibt noch keine Liste
+					filePositions = new HashSet<FilePointer>();
+					filePositions.add(lastFilePosition);
+
+					// Die neue Liste in die Map einfügen
+					_oldObjectsPid.put(invalidObject.getPidHashCode(), filePositions);
+				}
+			}
+		}
+
+		synchronized(_oldObjectsTypeId) {
+
+			// In die Map mit alten Objekten eintragen
+			putOldObjectTypeId(
+					invalidObject.getTypeId(), invalidObject.getFirstValidTime(), invalidObject.getFirstInvalidTime(), false, oldObjRef
+			);
+		}
+	}
+
 	/**
 	 * Diese Methode wird aufgerufen, wenn der Konfigurationsverantwortliche eine neue Version aktiviert. Der Aufruf bewirkt, dass die Datei falls erforderlich
 	 * restrukturiert wird. Diese Methode muss druch den Konfigurationsverantwortlichen aufgerufen werden, wenn dieser die aktive Version wechselt.
@@ -2774,48 +2857,50 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 		// Zu diesem Zeitpunkt wurde der Header bereits eingelesen die "alte" Zuordung von Version/Zeitpunkt ist
 		// bekannt und muss nun um die neuen Werte erweitert werden.
 
-		synchronized(_restructureLock) {
-			boolean restructureNeeded = false;
-			final Set<Short> localKeys = _localVersionActivationTime.keySet();
-			for(final Short localKey : localKeys) {
-				// In der alten Liste prüfen, ob der Wert vorhanden ist
-				if(!_configurationAuthorityVersionActivationTime.containsKey(localKey)) {
-					// Neues Version/Zeitpunkt Paar einfügen
-					_configurationAuthorityVersionActivationTime.put(localKey, _localVersionActivationTime.get(localKey));
-					_globalActivationTimes = getActivationTimeArray(_configurationAuthorityVersionActivationTime);
-					restructureNeeded = true;
-				}
-				else {
-					// Diese Überprüfung braucht nicht stattfinden, kann aber auf Fehler und manuelle Änderungen in der Verwaltungsdatei hinweisen, wenn
-					// die übergebenen Werte nicht mit den gespeicherten übereinstimmen
-					final long oldValue = _configurationAuthorityVersionActivationTime.get(localKey);
-					final long newValue = _localVersionActivationTime.get(localKey);
-
-					if(oldValue != newValue) {
-						// Die Werte stimmen nicht überein
-						DateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss,SSS");
-						String oldDateString = dateFormat.format(oldValue);
-						String newDateString = dateFormat.format(newValue);
-						_debug.info(
-								"Der gespeicherte Aktivierungszeitpunkt (" + oldDateString + ") des Bereichs " + _configAreaFile + " für die Version "
-										+ localKey + " stimmt nicht mit dem Aktivierungszeitpunkt in der Verwaltungsdatei (" + newDateString + ") überein."
-						);
+		synchronized(_restructureProcessLock) {
+			synchronized(_restructureLock) {
+				boolean restructureNeeded = false;
+				final Set<Short> localKeys = _localVersionActivationTime.keySet();
+				for(final Short localKey : localKeys) {
+					// In der alten Liste prüfen, ob der Wert vorhanden ist
+					if(!_configurationAuthorityVersionActivationTime.containsKey(localKey)) {
+						// Neues Version/Zeitpunkt Paar einfügen
+						_configurationAuthorityVersionActivationTime.put(localKey, _localVersionActivationTime.get(localKey));
+						_globalActivationTimes = getActivationTimeArray(_configurationAuthorityVersionActivationTime);
+						restructureNeeded = true;
+					}
+					else {
+						// Diese Überprüfung braucht nicht stattfinden, kann aber auf Fehler und manuelle Änderungen in der Verwaltungsdatei hinweisen, wenn
+						// die übergebenen Werte nicht mit den gespeicherten übereinstimmen
+						final long oldValue = _configurationAuthorityVersionActivationTime.get(localKey);
+						final long newValue = _localVersionActivationTime.get(localKey);
+
+						if(oldValue != newValue) {
+							// Die Werte stimmen nicht überein
+							DateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss,SSS");
+							String oldDateString = dateFormat.format(oldValue);
+							String newDateString = dateFormat.format(newValue);
+							_debug.info(
+									"Der gespeicherte Aktivierungszeitpunkt (" + oldDateString + ") des Bereichs " + _configAreaFile + " für die Version "
+											+ localKey + " stimmt nicht mit dem Aktivierungszeitpunkt in der Verwaltungsdatei (" + newDateString + ") überein."
+							);
+						}
 					}
 				}
-			}
-			// Datei restrukturieren damit die neue Zuweisung von Version zu einem Zeitstempel im Header gespeichert wird.
-			if(restructureNeeded) {
-				try {
-					restructure(RestructureMode.FullRestructure);
-					return true;
-				}
-				catch(IOException e) {
-					_debug.error("Fehler bei der Restrukturierung des Bereichs " + _configAreaFile, e);
-					return false;
+				// Datei restrukturieren damit die neue Zuweisung von Version zu einem Zeitstempel im Header gespeichert wird.
+				if(restructureNeeded) {
+					try {
+						restructure(RestructureMode.FullRestructure);
+						return true;
+					}
+					catch(IOException e) {
+						_debug.error("Fehler bei der Restrukturierung des Bereichs " + _configAreaFile, e);
+						return false;
+					}
 				}
+				_debug.info("Eine erneute Restrukturierung des Bereichs " + _configAreaFile + " ist nicht erforderlich.");
+				return true;
 			}
-			_debug.info("Eine erneute Restrukturierung des Bereichs " + _configAreaFile + " ist nicht erforderlich.");
-			return true;
 		}
 	}
 
@@ -2838,6 +2923,22 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	}
 
 	private void restructureMain(RestructureMode mode) throws IOException, NoSuchVersionException {
+		synchronized(_restructureProcessLock) {
+			if(mode == RestructureMode.DynamicObjectRestructure) {
+				restructureOnline();
+			}
+			else {
+				restructureBlocking(mode);
+			}
+		}
+	}
+
+	/**
+	 * Restrukturiert die Datei, während alle Zugriffe auf die Datei und auf alte Objekte gesperrt sind.
+	 *
+	 * @param mode Art der Restrukturierung
+	 */
+	private void restructureBlocking(RestructureMode mode) throws IOException, NoSuchVersionException {
 		// Alle Zugriffe auf alte Objekte, die sich im Speicher befinden, sperren
 		synchronized(_restructureLock) {
 			// Datei sperren, so werden mögliche Dateizugriffe solange blockiert, bis die neue Datei zur Verfügung steht.
@@ -2859,13 +2960,15 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 				// Damit dieses Verfahren durchgeführt werden kann, müssen alle Schritte der Reorganisation "protokolliert"
 				// werden. Im RestructureInfo werden deswegen die Dateipositionen aller gültigen bzw. neuen Objekte der Mischmenge
 				// gemerkt, sodass diese bei Bedarf im laufenden Betrieb aktualisiert werden können.
-				RestructureInfo restructureInfo;
+				final RestructureInfo restructureInfo = new RestructureInfo();
 
 				BufferedRandomAccessFile oldConfigAreaFile = new BufferedRandomAccessFile(_configAreaFile, "r");
 
 				// Alle Daten, die sich geändert haben, speichern
 				flush();
 
+				takeSnapshot(restructureInfo);
+
 				// Die neue Datei, in der der Konfigurationsbereich reorganisiert wird
 				File configAreaNewName = new File(_configAreaFile.getAbsolutePath() + "New");
 
@@ -2873,7 +2976,7 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 
 				try {
 					// Versuchen zu restrukturieren
-					restructureInfo = createRestructuredCopy(oldConfigAreaFile, newConfigAreaFile, mode);
+					createRestructuredCopy(oldConfigAreaFile, newConfigAreaFile, mode, restructureInfo);
 				}
 				finally {
 					oldConfigAreaFile.close();
@@ -2888,6 +2991,166 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 		} // synch(_restruct)
 	}
 
+	/**
+	 * Restrukturiert die Datei im laufenden Betrieb. Die Sperren auf die Datei und auf alte Objekte werden nur kurz gehalten, um den Zustand zu Beginn
+	 * festzuhalten und um am Ende auf die neue Datei umzuschalten. Die neue Datei wird aus dem festgehaltenen Zustand erzeugt, währenddessen kann mit der
+	 * bisherigen Datei normal weitergearbeitet werden. Änderungen, die in dieser Zeit stattfinden, werden in einem {@link RestructureChangeLog} gemerkt und
+	 * vor dem Umschalten in der neuen Datei nachgetragen.
+	 */
+	private void restructureOnline() throws IOException, NoSuchVersionException {
+		final RestructureInfo restructureInfo = new RestructureInfo();
+		final RestructureChangeLog changeLog = new RestructureChangeLog();
+
+		synchronized(_restructureLock) {
+			synchronized(_configAreaFile) {
+				if(_actualObjects.size() == 0) {
+					// falls Mischmenge noch nicht geladen, dies tun
+					getMixedObjectSetObjects();
+					assert _actualObjects.size() > 0;
+				}
+
+				// Alle Daten, die sich geändert haben, speichern und den Zustand festhalten, der in die neue Datei kopiert wird
+				flush();
+				takeSnapshot(restructureInfo);
+				_restructureChangeLog = changeLog;
+			}
+		}
+
+		try {
+			// Die neue Datei, in der der Konfigurationsbereich reorganisiert wird
+			final File configAreaNewName = new File(_configAreaFile.getAbsolutePath() + "New");
+			final BufferedRandomAccessFile newConfigAreaFile = new BufferedRandomAccessFile(configAreaNewName, "rw");
+			boolean newFileClosed = false;
+			try {
+				// Die bisherige Datei wird über einen eigenen Dateideskriptor nur gelesen, Schreibzugriffe finden weiterhin am Ende
+				// der Mischmenge statt und werden über das Änderungsprotokoll übernommen.
+				final BufferedRandomAccessFile oldConfigAreaFile = new BufferedRandomAccessFile(_configAreaFile, "r");
+				try {
+					createRestructuredCopy(oldConfigAreaFile, newConfigAreaFile, RestructureMode.DynamicObjectRestructure, restructureInfo);
+				}
+				finally {
+					oldConfigAreaFile.close();
+				}
+
+				// Umschalten auf die neue Datei
+				synchronized(_restructureLock) {
+					synchronized(_configAreaFile) {
+						flush();
+						_restructureChangeLog = null;
+						applyChangeLog(changeLog, restructureInfo, newConfigAreaFile);
+						newConfigAreaFile.close();
+						newFileClosed = true;
+						swapFiles(restructureInfo, configAreaNewName);
+					}
+				}
+			}
+			finally {
+				if(!newFileClosed) newConfigAreaFile.close();
+			}
+		}
+		finally {
+			_restructureChangeLog = null;
+		}
+	}
+
+	/**
+	 * Hält die Objekte im Speicher fest, die bei der Restrukturierung in die neue Datei kopiert werden.
+	 *
+	 * @param restructureInfo Objekt, an dem der Zustand gespeichert wird
+	 */
+	private void takeSnapshot(final RestructureInfo restructureInfo) {
+		synchronized(_oldObjectsId) {
+			restructureInfo._oldObjects.putAll(_oldObjectsId);
+		}
+		synchronized(_actualObjects) {
+			restructureInfo._currentObjects.addAll(_actualObjects.values());
+		}
+		synchronized(_newObjects) {
+			restructureInfo._currentObjects.addAll(_newObjects.values());
+		}
+	}
+
+	/**
+	 * Trägt die Änderungen, die während einer Restrukturierung im laufenden Betrieb an der bisherigen Datei vorgenommen wurden, in der neuen Datei nach. Neue
+	 * Lücken werden an die entsprechende Position der neuen Datei übertragen. Geänderte Objekte werden mit ihrem aktuellen Zustand ans Ende der Mischmenge
+	 * geschrieben, die zuvor kopierte Fassung wird als Lücke deklariert. Die Sperren auf die Datei und auf alte Objekte müssen gehalten werden.
+	 *
+	 * @param changeLog         Protokoll der Änderungen
+	 * @param restructureInfo   Informationen der Restrukturierung
+	 * @param newConfigAreaFile Neue Datei
+	 */
+	private void applyChangeLog(final RestructureChangeLog changeLog, final RestructureInfo restructureInfo, final BufferedRandomAccessFile newConfigAreaFile)
+			throws IOException {
+		// Bis zum Id-Index wurden die Objekte mit allen Lücken an dieselbe Position kopiert
+		final long absoluteStartIdIndex = _startIdIndex + _headerEnd;
+		final long absoluteStartMixedSet = _startMixedSet + _headerEnd;
+
+		for(final Long gapPosition : changeLog.getGapPositions()) {
+			final Long newPosition;
+			if(gapPosition < absoluteStartIdIndex) {
+				newPosition = gapPosition;
+			}
+			else {
+				// null, falls das Objekt erst nach Beginn der Restrukturierung geschrieben wurde
+				newPosition = restructureInfo._newFilePositions.get(gapPosition);
+			}
+			if(newPosition != null) {
+				declareObjectAsAGap(FilePointer.fromAbsolutePosition(newPosition, this), newConfigAreaFile);
+			}
+		}
+
+		for(final SystemObjectInformationInterface object : changeLog.getChangedObjects()) {
+			final long id = object.getID();
+			if(restructureInfo._oldObjects.get(id) instanceof FilePointer) {
+				// Das Objekt war schon zu Beginn ungültig und wurde in den dyn. nGa-Bereich kopiert. Ein Löschen wurde bereits
+				// über die Lücken übernommen.
+				continue;
+			}
+
+			final Long copiedPosition = restructureInfo._copiedObjectPositions.get(id);
+			if(copiedPosition != null) {
+				// Die kopierte Fassung ist veraltet
+				declareObjectAsAGap(FilePointer.fromAbsolutePosition(copiedPosition, this), newConfigAreaFile);
+			}
+
+			final FilePointer filePosition = ((SystemObjectInformation) object).getLastFilePosition();
+			if(filePosition == null || filePosition.getAbsoluteFilePosition() < absoluteStartMixedSet) {
+				// Transientes Objekt oder Objekt außerhalb der Mischmenge
+				continue;
+			}
+
+			final boolean current;
+			synchronized(_actualObjects) {
+				current = _actualObjects.get(id) == object;
+			}
+			final boolean newObject;
+			synchronized(_newObjects) {
+				newObject = _newObjects.get(id) == object;
+			}
+			final boolean oldObject;
+			synchronized(_oldObjectsId) {
+				oldObject = !current && !newObject && _oldObjectsId.get(id) == filePosition;
+			}
+			if(!current && !newObject && !oldObject) {
+				// Das Objekt wurde gelöscht
+				continue;
+			}
+
+			final long newPosition;
+			if(object instanceof ConfigurationObjectInformation) {
+				newPosition = writeConfigurationObjectToFile((ConfigurationObjectInformation) object, newConfigAreaFile, false, false);
+			}
+			else {
+				newPosition = writeDynamicObjectToFile((DynamicObjectInformation) object, newConfigAreaFile, false, false);
+			}
+			restructureInfo.rememberFilePosition(filePosition, newPosition);
+			if(oldObject) {
+				// Das Objekt ist erst während der Restrukturierung ungültig geworden und bleibt in der Mischmenge
+				restructureInfo._retainedOldObjects.put(id, (DynamicObjectInformation) object);
+			}
+		}
+	}
+
 	public void swapFiles(final RestructureInfo restructureInfo, final File configAreaNewName) throws IOException {
 		// Die original Datei in Name.configold umbennen
 		final String originalFileName = _configAreaFile.getAbsolutePath();
@@ -2961,8 +3224,8 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 			Iterator<Map.Entry<Long, ObjectReference>> iterator = _oldObjectsId.entrySet().iterator();
 			while(iterator.hasNext()) {
 				final Map.Entry<Long, ObjectReference> entry = iterator.next();
-				// Transiente, gelöschte Objekte beibehalten
-				if(entry.getValue() instanceof FilePointer) {
+				// Transiente, gelöschte Objekte beibehalten, ebenso Objekte, die noch in der Mischmenge stehen
+				if(entry.getValue() instanceof FilePointer && !restructureInfo._retainedOldObjects.containsKey(entry.getKey())) {
 					_fileManager.removeObject(entry.getKey());
 					iterator.remove();
 				}
@@ -2977,6 +3240,10 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 			_oldObjectsTypeId.clear();
 		}
 
+		for(final DynamicObjectInformation retainedObject : restructureInfo._retainedOldObjects.values()) {
+			putOldDynamicObject(retainedObject, retainedObject.getLastFilePosition());
+		}
+
 		_debug.info(
 				"Die Restrukturierung des Konfigurationsbereichs " + _configurationAreaPid + " in der Datei " + _configAreaFile
 						+ " wurde erfolgreich abgeschlossen"
@@ -2989,12 +3256,13 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	 * @param oldConfigAreaFile
 	 * @param newConfigAreaFile
 	 * @param mode
+	 * @param restructureInfo Zustand, der kopiert wird (siehe {@link #takeSnapshot}). Hier werden auch die neuen Positionen gespeichert.
 	 * @throws IOException
 	 * @throws NoSuchVersionException
 	 */
-	private RestructureInfo createRestructuredCopy(final BufferedRandomAccessFile oldConfigAreaFile, final BufferedRandomAccessFile newConfigAreaFile, final RestructureMode mode) throws IOException, NoSuchVersionException {
+	private void createRestructuredCopy(final BufferedRandomAccessFile oldConfigAreaFile, final BufferedRandomAccessFile newConfigAreaFile, final RestructureMode mode, final RestructureInfo restructureInfo) throws IOException, NoSuchVersionException {
 
-		final RestructureInfo restructureInfo = new RestructureInfo();
+		final Map<Long, ObjectReference> oldObjects = restructureInfo._oldObjects;
 
 		// Ende des Header
 		final long newAbsoluteEndHeader;
@@ -3105,87 +3373,85 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 		// Es werden alle nGa Blöcke erzeugt, die es bis zur jetzigen Version gibt.
 		_nextInvalidBlockVersion = (short)(_activeVersion + 1);
 
-		synchronized(_oldObjectsId) {
-			// ungültige Objekte können auch in der aktiven Version sein, darum <=
-			while(consideredOldVersion <= _activeVersion) {
+		// ungültige Objekte können auch in der aktiven Version sein, darum <=
+		while(consideredOldVersion <= _activeVersion) {
 
-				Long[] keysLong = _oldObjectsId.keySet().toArray(new Long[_oldObjectsId.keySet().size()]);
-				// Es wird ein neuer nGa Bereich erzeugt
+			Long[] keysLong = oldObjects.keySet().toArray(new Long[oldObjects.keySet().size()]);
+			// Es wird ein neuer nGa Bereich erzeugt
 
-				// boolean ob ein Element zu dem Block hinzugefügt wurde. wenn ja, dann dateipostion in map
-				// speichern, wenn nein -1 als dateiposition
-				// Wenn in einen nGa Bereich keine ungültigen Objekte angelegt werden können, dann bleibt diese
-				// Variable false und als relative Startposition des Blocks wird eine -1 eingetragen
-				boolean blockHasElements = false;
+			// boolean ob ein Element zu dem Block hinzugefügt wurde. wenn ja, dann dateipostion in map
+			// speichern, wenn nein -1 als dateiposition
+			// Wenn in einen nGa Bereich keine ungültigen Objekte angelegt werden können, dann bleibt diese
+			// Variable false und als relative Startposition des Blocks wird eine -1 eingetragen
+			boolean blockHasElements = false;
 
-				// Speichert den relativen Beginn des potentiellen Blocks, der geschrieben werden soll
-				final long relativeBlockPosition = (newConfigAreaFile.getFilePointer() - newAbsoluteEndHeader);
+			// Speichert den relativen Beginn des potentiellen Blocks, der geschrieben werden soll
+			final long relativeBlockPosition = (newConfigAreaFile.getFilePointer() - newAbsoluteEndHeader);
 
-				// Speichert den Zeitpunkt, zu dem die Version gültig wurde
-				final long blockTimeStamp;
-				if(_configurationAuthorityVersionActivationTime.containsKey(consideredOldVersion)) {
-					blockTimeStamp = _configurationAuthorityVersionActivationTime.get(consideredOldVersion);
-				}
-				else {
-					// Dieser Fall sollte niemals auftreten
-					_debug.error(
-							"Es gibt zu einer alten Version keinen Zeitstempel: Version " + consideredOldVersion + " Konfigurationsbereich: "
-									+ _configAreaFile + " . Die Reorganisation wird abgebrochen"
-					);
-					throw new IllegalStateException(
-							"Es gibt zu einer alten Version keinen Zeitstempel: Version " + consideredOldVersion + " Konfigurationsbereich: "
-									+ _configAreaFile + " . Die Reorganisation wird abgebrochen"
-					);
-				}
+			// Speichert den Zeitpunkt, zu dem die Version gültig wurde
+			final long blockTimeStamp;
+			if(_configurationAuthorityVersionActivationTime.containsKey(consideredOldVersion)) {
+				blockTimeStamp = _configurationAuthorityVersionActivationTime.get(consideredOldVersion);
+			}
+			else {
+				// Dieser Fall sollte niemals auftreten
+				_debug.error(
+						"Es gibt zu einer alten Version keinen Zeitstempel: Version " + consideredOldVersion + " Konfigurationsbereich: "
+								+ _configAreaFile + " . Die Reorganisation wird abgebrochen"
+				);
+				throw new IllegalStateException(
+						"Es gibt zu einer alten Version keinen Zeitstempel: Version " + consideredOldVersion + " Konfigurationsbereich: "
+								+ _configAreaFile + " . Die Reorganisation wird abgebrochen"
+				);
+			}
 
-				for(final Long idOldObject : keysLong) {
-					
-
-					// Das Objekt anfordern, es werden nur Konfigurationsobjekte betrachtet.
-					final SystemObjectInformationInterface oldObject = getSystemObjectInfo(_oldObjectsId.get(idOldObject), oldConfigAreaFile);
-
-					// Es werden nur Konfigurationsobjekte betrachtet
-					if(oldObject instanceof ConfigurationObjectInfo) {
-						final ConfigurationObjectInformation oldConfigObject = (ConfigurationObjectInformation) oldObject;
-
-						if(oldConfigObject.getFirstInvalidVersion() == consideredOldVersion) {
-							// Da in der neuen Datei muss ebenfalls ein Id Index angelegt werden muss, muss
-							// die neue endgültige relative Position im nGa Bereich des Datensatzes gespeichert werden.
-							// Die relative Adresse wird als negativer Wert gespeichert, dies ermöglicht bei Indexzugriffen
-							// sofort zu erkennen, ob das Objekt ein Konfigurationsobjekt oder ein dynamisches Objekt
-							// gefunden wurde.
-							// Die negative relative Position bezieht sich auf das Headerende, da es sich
-							// um ein Konfigurationsobjekt handelt.
-							// - 4 weil Header bei Byte 4 beginnt
-							// (Es muss sowohl die header-Länge, als auch der Offset des HEaders abgezogen werden)
-							final long newRelativeObjectPosition = getRelativeFilePositionForInvalidConfigObject(
-									(4 + headerSizeNewFileArea), newConfigAreaFile.getFilePointer()
-							);
-							addToIndizes(newIdIndex, newPidIndex, oldConfigObject, newRelativeObjectPosition);
-
-							// Das Objekt muss in den Bereich eingefügt werden. Es muss keine Lücke deklariert werden
-							// auch die Dateiposition muss nicht gespeichert werden.
-							writeConfigurationObjectToFile(oldConfigObject, newConfigAreaFile, false, false);
-							// Da ein Objekt in den nGa Bereich geschrieben wurde, muss die relative Position
-							// im Header unter Kennung 2 gesetzt werden
-							blockHasElements = true;
-						}
+			for(final Long idOldObject : keysLong) {
+				
+
+				// Das Objekt anfordern, es werden nur Konfigurationsobjekte betrachtet.
+				final SystemObjectInformationInterface oldObject = getSystemObjectInfo(oldObjects.get(idOldObject), oldConfigAreaFile);
+
+				// Es werden nur Konfigurationsobjekte betrachtet
+				if(oldObject instanceof ConfigurationObjectInfo) {
+					final ConfigurationObjectInformation oldConfigObject = (ConfigurationObjectInformation) oldObject;
+
+					if(oldConfigObject.getFirstInvalidVersion() == consideredOldVersion) {
+						// Da in der neuen Datei muss ebenfalls ein Id Index angelegt werden muss, muss
+						// die neue endgültige relative Position im nGa Bereich des Datensatzes gespeichert werden.
+						// Die relative Adresse wird als negativer Wert gespeichert, dies ermöglicht bei Indexzugriffen
+						// sofort zu erkennen, ob das Objekt ein Konfigurationsobjekt oder ein dynamisches Objekt
+						// gefunden wurde.
+						// Die negative relative Position bezieht sich auf das Headerende, da es sich
+						// um ein Konfigurationsobjekt handelt.
+						// - 4 weil Header bei Byte 4 beginnt
+						// (Es muss sowohl die header-Länge, als auch der Offset des HEaders abgezogen werden)
+						final long newRelativeObjectPosition = getRelativeFilePositionForInvalidConfigObject(
+								(4 + headerSizeNewFileArea), newConfigAreaFile.getFilePointer()
+						);
+						addToIndizes(newIdIndex, newPidIndex, oldConfigObject, newRelativeObjectPosition);
+
+						// Das Objekt muss in den Bereich eingefügt werden. Es muss keine Lücke deklariert werden
+						// auch die Dateiposition muss nicht gespeichert werden.
+						writeConfigurationObjectToFile(oldConfigObject, newConfigAreaFile, false, false);
+						// Da ein Objekt in den nGa Bereich geschrieben wurde, muss die relative Position
+						// im Header unter Kennung 2 gesetzt werden
+						blockHasElements = true;
 					}
-				} // for
-				if(blockHasElements) {
-					// Es wurden ungültige Objekte in den nGa-Bereich eingetragen
-					_oldObjectBlocks.put(consideredOldVersion, new OldBlockInformations(relativeBlockPosition, blockTimeStamp));
-				}
-				else {
-					// Es wurden keine Elemente in den nGa-Bereich eingetragen, also gibt es auch
-					// keine Startposition an der die Elemte zu finden sind.
-					_oldObjectBlocks.put(consideredOldVersion, new OldBlockInformations((long)-1, blockTimeStamp));
 				}
+			} // for
+			if(blockHasElements) {
+				// Es wurden ungültige Objekte in den nGa-Bereich eingetragen
+				_oldObjectBlocks.put(consideredOldVersion, new OldBlockInformations(relativeBlockPosition, blockTimeStamp));
+			}
+			else {
+				// Es wurden keine Elemente in den nGa-Bereich eingetragen, also gibt es auch
+				// keine Startposition an der die Elemte zu finden sind.
+				_oldObjectBlocks.put(consideredOldVersion, new OldBlockInformations((long)-1, blockTimeStamp));
+			}
 
-				// Es wurden alle Objekte betrachtet, also die nächste veraltet Version prüfen
-				consideredOldVersion++;
-			} // while
-		} // synch
+			// Es wurden alle Objekte betrachtet, also die nächste veraltet Version prüfen
+			consideredOldVersion++;
+		} // while
 
 		//*********************************************************************************************************
 
@@ -3232,36 +3498,34 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 
 		final List<SortObject> dynamicObjects = new ArrayList<SortObject>();
 
-		synchronized(_oldObjectsId) {
-			final Long[] keysLong = _oldObjectsId.keySet().toArray(new Long[_oldObjectsId.keySet().size()]);
-
-			// Liste, in der die Objekte gespeichert werden, diese wird später in ein Array umgewandelt
+		final Long[] keysLong = oldObjects.keySet().toArray(new Long[oldObjects.keySet().size()]);
 
-			for(Long idOldObject : keysLong) {
-				ObjectReference reference = _oldObjectsId.get(idOldObject);
-				if(reference instanceof FilePointer) {  // falls es sich um kein transientes Objekt handelt
-					long filePosition = ((FilePointer) reference).getAbsoluteFilePosition();
-					oldConfigAreaFile.seek(filePosition);
-					final BinaryObject oldObject = BinaryObject.fromDataInput(oldConfigAreaFile);
+		// Liste, in der die Objekte gespeichert werden, diese wird später in ein Array umgewandelt
 
-					if(oldObject instanceof BinaryDynamicObject) {
-						final BinaryDynamicObject dynObject = (BinaryDynamicObject) oldObject;
+		for(Long idOldObject : keysLong) {
+			ObjectReference reference = oldObjects.get(idOldObject);
+			if(reference instanceof FilePointer) {  // falls es sich um kein transientes Objekt handelt
+				long filePosition = ((FilePointer) reference).getAbsoluteFilePosition();
+				oldConfigAreaFile.seek(filePosition);
+				final BinaryObject oldObject = BinaryObject.fromDataInput(oldConfigAreaFile);
 
-						if(dynObject.getObjectId() == 0){
-							// Das sollte nicht passieren!
-							throw new IOException("Ungültiges dynamisches Objekt an Dateiposition " + filePosition);
-						}
+				if(oldObject instanceof BinaryDynamicObject) {
+					final BinaryDynamicObject dynObject = (BinaryDynamicObject) oldObject;
 
-						if(mode == RestructureMode.DeleteObjectsPermanently
-								&& dynObject.getFirstInvalid() != 0
-								&& _objectsPendingDeletion.contains(dynObject.getObjectId())){
-							// Dynamisches Objekt kann auch schon hier gelöscht werden
-							// (einfach nicht im NgDyn-Block speichern)
-							continue;
-						}
+					if(dynObject.getObjectId() == 0){
+						// Das sollte nicht passieren!
+						throw new IOException("Ungültiges dynamisches Objekt an Dateiposition " + filePosition);
+					}
 
-						dynamicObjects.add(new SortObject(filePosition, dynObject.getFirstInvalid()));
+					if(mode == RestructureMode.DeleteObjectsPermanently
+							&& dynObject.getFirstInvalid() != 0
+							&& _objectsPendingDeletion.contains(dynObject.getObjectId())){
+						// Dynamisches Objekt kann auch schon hier gelöscht werden
+						// (einfach nicht im NgDyn-Block speichern)
+						continue;
 					}
+
+					dynamicObjects.add(new SortObject(filePosition, dynObject.getFirstInvalid()));
 				}
 			}
 		}
@@ -3384,8 +3648,7 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 
 		newRelativeMixedSet = newConfigAreaFile.getFilePointer() - newAbsoluteEndHeader;
 
-		writeCurrentObjects(newConfigAreaFile, restructureInfo, _actualObjects);
-		writeCurrentObjects(newConfigAreaFile, restructureInfo, _newObjects);
+		writeCurrentObjects(newConfigAreaFile, restructureInfo);
 
 		//*********************************************************************************************************
 		// Neue Dateipositionen am RestructureInfo-Objekt merken. Die eigentlichen Fields am ConfigAreaFile werden aktualisiert,
@@ -3403,41 +3666,39 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 
 		// Header mit diesen neuen Positionen schreiben
 		writeHeader(restructureInfo, newConfigAreaFile);
-		return restructureInfo;
 	}
 
-	private void writeCurrentObjects(final BufferedRandomAccessFile newConfigAreaFile, final RestructureInfo restructureInfo, final Map<Long, SystemObjectInformationInterface> objectMap) throws IOException {
-		// Diese Methode wird einmal für _allObjects und einmal für _newObjects aufgerufen. Die Synchronisation darauf ist OK.
-		//noinspection SynchronizationOnLocalVariableOrMethodParameter
-		synchronized(objectMap) {
-			for(SystemObjectInformationInterface systemObjectInfo : objectMap.values()) {
-
-				// Vorherige Dateiposition
-				final FilePointer filePosition = ((SystemObjectInformation) systemObjectInfo).getLastFilePosition();
-
-				// Nur Objekte speichern, die auch schon vorher in der Mischmenge gespeichert waren
-				if(filePosition != null && filePosition.getAbsoluteFilePosition() >= _headerEnd + _startMixedSet) {
-
-					if(systemObjectInfo instanceof ConfigurationObjectInformation) {
-						ConfigurationObjectInformation configurationObjectInformation = (ConfigurationObjectInformation) systemObjectInfo;
-						// Da das Objekt neu in eine Datei geschrieben wird, muss keine Lücke eingefügt werden. Die
-						// neue Speicherposition darf nicht an dem Objekt gespeichert werden, sondern erst wenn
-						// die Reorganisation abgeschlossen ist.
-						// Den Speicherort merken, damit er nachträglich gesetzt werden kann.
-						final long newPosition = writeConfigurationObjectToFile(configurationObjectInformation, newConfigAreaFile, false, false);
-						restructureInfo.rememberFilePosition(filePosition, newPosition);
-					}
-					else if(systemObjectInfo instanceof DynamicObjectInformation) {
-						DynamicObjectInformation dynamicObjectInformation = (DynamicObjectInformation) systemObjectInfo;
-						// Da das Objekt neu in eine Datei geschrieben wird, muss keine Lücke eingefügt werden.
-						// Die neue Dateiposition darf nicht an dem Objekt gespeichert werden, sondern muss nachträglich gesetzt
-						// werden.
-						final long newPosition = writeDynamicObjectToFile(dynamicObjectInformation, newConfigAreaFile, false, false);
-						restructureInfo.rememberFilePosition(filePosition, newPosition);
-					}
-					else {
-						_debug.error("Unbekanntes Objekt " + systemObjectInfo.getClass());
-					}
+	private void writeCurrentObjects(final BufferedRandomAccessFile newConfigAreaFile, final RestructureInfo restructureInfo) throws IOException {
+		// Es werden die zu Beginn der Restrukturierung festgehaltenen Objekte geschrieben, daher ist keine Sperre auf _actualObjects/_newObjects nötig
+		for(SystemObjectInformationInterface systemObjectInfo : restructureInfo._currentObjects) {
+
+			// Vorherige Dateiposition
+			final FilePointer filePosition = ((SystemObjectInformation) systemObjectInfo).getLastFilePosition();
+
+			// Nur Objekte speichern, die auch schon vorher in der Mischmenge gespeichert waren
+			if(filePosition != null && filePosition.getAbsoluteFilePosition() >= _headerEnd + _startMixedSet) {
+
+				if(systemObjectInfo instanceof ConfigurationObjectInformation) {
+					ConfigurationObjectInformation configurationObjectInformation = (ConfigurationObjectInformation) systemObjectInfo;
+					// Da das Objekt neu in eine Datei geschrieben wird, muss keine Lücke eingefügt werden. Die
+					// neue Speicherposition darf nicht an dem Objekt gespeichert werden, sondern erst wenn
+					// die Reorganisation abgeschlossen ist.
+					// Den Speicherort merken, damit er nachträglich gesetzt werden kann.
+					final long newPosition = writeConfigurationObjectToFile(configurationObjectInformation, newConfigAreaFile, false, false);
+					restructureInfo.rememberFilePosition(filePosition, newPosition);
+					restructureInfo.rememberCopiedObject(systemObjectInfo.getID(), newPosition);
+				}
+				else if(systemObjectInfo instanceof DynamicObjectInformation) {
+					DynamicObjectInformation dynamicObjectInformation = (DynamicObjectInformation) systemObjectInfo;
+					// Da das Objekt neu in eine Datei geschrieben wird, muss keine Lücke eingefügt werden.
+					// Die neue Dateiposition darf nicht an dem Objekt gespeichert werden, sondern muss nachträglich gesetzt
+					// werden.
+					final long newPosition = writeDynamicObjectToFile(dynamicObjectInformation, newConfigAreaFile, false, false);
+					restructureInfo.rememberFilePosition(filePosition, newPosition);
+					restructureInfo.rememberCopiedObject(systemObjectInfo.getID(), newPosition);
+				}
+				else {
+					_debug.error("Unbekanntes Objekt " + systemObjectInfo.getClass());
 				}
 			}
 		}
@@ -3932,17 +4193,19 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	 */
 	public void deleteDynamicObjectsPermanently(){
 		// _restructureLock jetzt schon belegen, damit Datenmodell konsistent bleibt
-		synchronized(_restructureLock) {
-			synchronized(_configAreaFile) {
-				synchronized(_objectsPendingDeletion) {
-					if (_objectsPendingDeletion.size() > 0) {
-						_debug.info("Lösche " + _objectsPendingDeletion.size() + " alte dynamische Objekte aus Konfigurationsbereich", getConfigAreaPid());
-						try {
-							restructure(RestructureMode.DeleteObjectsPermanently);
-							_objectsPendingDeletion.clear();
-						}
-						catch(IOException e) {
-							_debug.error("Fehler beim endgültigen Löschen im Bereich " + _configAreaFile, e);
+		synchronized(_restructureProcessLock) {
+			synchronized(_restructureLock) {
+				synchronized(_configAreaFile) {
+					synchronized(_objectsPendingDeletion) {
+						if (_objectsPendingDeletion.size() > 0) {
+							_debug.info("Lösche " + _objectsPendingDeletion.size() + " alte dynamische Objekte aus Konfigurationsbereich", getConfigAreaPid());
+							try {
+								restructure(RestructureMode.DeleteObjectsPermanently);
+								_objectsPendingDeletion.clear();
+							}
+							catch(IOException e) {
+								_debug.error("Fehler beim endgültigen Löschen im Bereich " + _configAreaFile, e);
+							}
 						}
 					}
 				}
@@ -3993,6 +4256,8 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 		_startIdIndex = headerInfo.getStartIdIndex();
 		_startPidHashCodeIndex = headerInfo.getStartPidHashCodeIndex();
 		_startMixedSet = headerInfo.getStartMixedSet();
+		// Der dyn. nGa-Bereich hat sich geändert
+		_oldDynamicObjectsIndex = null;
 	}
 
 //	public void rememberFilePointer(final FilePointer pointer) {
@@ -4006,6 +4271,8 @@ public class ConfigAreaFile implements ConfigurationAreaFile, HeaderInfo {
 	 */
 	public void writeInvalidTime(final DynamicObjectInformation object) {
 		FilePointer filePosition = object.getLastFilePosition();
+		// Der Zeitstempel wird direkt in der Datei geändert, bei einer laufenden Restrukturierung muss das Objekt daher neu geschrieben werden
+		logRestructureChange(object);
 		try {
 			synchronized(_configAreaFile) {
 				if(filePosition == null){
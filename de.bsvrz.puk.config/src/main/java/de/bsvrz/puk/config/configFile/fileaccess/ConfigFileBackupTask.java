@@ -41,10 +41,16 @@ import de.bsvrz.sys.funclib.debug.Debug;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Klasse, die Konfigurationsdateien einer Konfiguration sichert.
@@ -60,6 +66,9 @@ public class ConfigFileBackupTask {
 
 	public static final int BACKUP_STATE_FINISHED = 2;
 
+	/** Name der Datei mit den Prüfsummen der gesicherten Dateien */
+	public static final String CHECKSUM_FILE_NAME = "pruefsummen.sha256";
+
 	private final ConfigurationFileManager _configurationFileManager;
 
 	private File _targetDirectory;
@@ -80,7 +89,14 @@ public class ConfigFileBackupTask {
 
 	private ConfigurationAuthority _configurationAuthority;
 
-	private volatile ConfigAreaFile _currentFile;
+	/** Konfigurationsdateien, die gerade gesichert werden */
+	private final Set<ConfigAreaFile> _currentFiles = Collections.synchronizedSet(new HashSet<ConfigAreaFile>());
+
+	/** Anzahl der Konfigurationsdateien, die gleichzeitig gesichert werden */
+	private int _parallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	/** Prüfsummen der gesicherten Dateien, als Key dient der Pfad relativ zum Zielverzeichnis, oder <code>null</code>, falls keine Prüfsummen erzeugt werden */
+	private Map<String, String> _checksums = null;
 
 	private SenderReceiverCommunication _sender;
 
@@ -200,6 +216,28 @@ public class ConfigFileBackupTask {
 		return instance.format(new Date());
 	}
 
+	/**
+	 * Legt fest, wie viele Konfigurationsdateien gleichzeitig gesichert werden. Standardmäßig wird die Hälfte der verfügbaren Prozessoren, höchstens aber 4,
+	 * benutzt, damit die Sicherung den normalen Betrieb der Konfiguration nicht zu stark beeinträchtigt.
+	 *
+	 * @param parallelism Anzahl der gleichzeitig gesicherten Konfigurationsdateien (mindestens 1)
+	 */
+	public void setParallelism(final int parallelism) {
+		if(parallelism < 1) throw new IllegalArgumentException("Parallelität muss mindestens 1 sein: " + parallelism);
+		_parallelism = parallelism;
+	}
+
+	/**
+	 * Legt fest, ob für die gesicherten Dateien SHA-256-Prüfsummen erzeugt werden sollen. Die Prüfsummen werden aus den geschriebenen Sicherungsdateien
+	 * berechnet und am Ende der Sicherung in der Datei {@value #CHECKSUM_FILE_NAME} im Zielverzeichnis im Format von <code>sha256sum</code> gespeichert, so dass
+	 * die Sicherung später überprüft werden kann.
+	 *
+	 * @param createChecksums <code>true</code>, falls Prüfsummen erzeugt werden sollen
+	 */
+	public void setCreateChecksums(final boolean createChecksums) {
+		_checksums = createChecksums ? Collections.synchronizedMap(new TreeMap<String, String>()) : null;
+	}
+
 	private static boolean isStringNullOrBlank(String param) {
 		return param == null || param.trim().length() == 0;
 	}
@@ -227,8 +265,32 @@ public class ConfigFileBackupTask {
 	 * @return Ein Wert von 0.0 bis 1.0
 	 */
 	public double getFileProgress() {
-		if(_currentFile == null) return 0;
-		return ((double) _currentFile.getBackupProgress()) / _currentFile.getFileLength();
+		long progress = 0;
+		long length = 0;
+		synchronized(_currentFiles) {
+			for(ConfigAreaFile currentFile : _currentFiles) {
+				progress += currentFile.getBackupProgress();
+				length += currentFile.getFileLength();
+			}
+		}
+		if(length == 0) return 0;
+		return Math.min(1.0, ((double) progress) / length);
+	}
+
+	/**
+	 * Summiert den Fortschritt aller Dateien, die gerade gesichert werden.
+	 *
+	 * @return Anzahl der Dateien, die bereits gesichert wurden (einschließlich Bruchteilen von Dateien)
+	 */
+	private double getCurrentFilesProgress() {
+		double result = 0;
+		synchronized(_currentFiles) {
+			for(ConfigAreaFile currentFile : _currentFiles) {
+				final long length = currentFile.getFileLength();
+				if(length > 0) result += Math.min(1.0, ((double) currentFile.getBackupProgress()) / length);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -237,7 +299,7 @@ public class ConfigFileBackupTask {
 	 * @return Ein Wert von 0.0 bis 1.0
 	 */
 	public double getOverallProgress() {
-		return (_completed + _failed + getFileProgress()) / _total;
+		return (_completed + _failed + getCurrentFilesProgress()) / _total;
 	}
 
 	/**
@@ -257,6 +319,14 @@ public class ConfigFileBackupTask {
 		}
 	}
 
+	private synchronized void fileCompleted() {
+		_completed++;
+	}
+
+	private synchronized void fileFailed() {
+		_failed++;
+	}
+
 	/**
 	 * Klasse, die die eigentliche Arbeit macht
 	 */
@@ -335,54 +405,77 @@ public class ConfigFileBackupTask {
 
 				_total = files.length + externalSetsToBackup.size() + 1 + ((_configAuthentication != null) ? 1 : 0);
 				
-				// Sicherungsvorgang starten
-				for(ConfigurationAreaFile file : files) {
-					_currentFile = (ConfigAreaFile) file;
-					try {
-						_currentFile.createBackupFile(relativizeTarget(_targetDirectory, baseDir, _currentFile.toString()));
-						_completed++;
+				// Sicherungsvorgang starten, die Konfigurationsdateien sind voneinander unabhängig und werden parallel gesichert
+				final ExecutorService executor = Executors.newFixedThreadPool(Math.min(_parallelism, Math.max(1, files.length)));
+				try {
+					final List<Future<?>> futures = new ArrayList<Future<?>>(files.length);
+					for(ConfigurationAreaFile file : files) {
+						final ConfigAreaFile configAreaFile = (ConfigAreaFile) file;
+						futures.add(
+								executor.submit(
+										new Runnable() {
+											public void run() {
+												backupConfigAreaFile(configAreaFile, baseDir);
+											}
+										}
+								)
+						);
 					}
-					catch(IOException e) {
-						_failed++;
-						_debug.error("Fehler beim Sichern von " + _currentFile.getConfigAreaPid(), e);
+					for(Future<?> future : futures) {
+						try {
+							future.get();
+						}
+						catch(Exception e) {
+							_debug.error("Fehler beim Sichern einer Konfigurationsdatei", e);
+						}
 					}
 				}
-				_currentFile = null;
+				finally {
+					executor.shutdown();
+				}
 
 
 				// Sicherungsvorgang starten
 				for(MutableSetExtFileStorage storage : externalSetsToBackup) {
 					try {
-						storage.createBackupFile(relativizeTarget(_targetDirectory, baseDir, storage.toString()));
-						_completed++;
+						final File targetDirectory = relativizeTarget(_targetDirectory, baseDir, storage.toString());
+						storage.createBackupFile(targetDirectory);
+						createChecksum(storage.toString(), targetDirectory);
+						fileCompleted();
 					}
-					catch(IOException e) {
-						_failed++;
-						_debug.error("Fehler beim Sichern von " + _currentFile.getConfigAreaPid(), e);
+					catch(Exception e) {
+						fileFailed();
+						_debug.error("Fehler beim Sichern von " + storage, e);
 					}
 				}
 
 				// Die Verwaltungs-XML sichern
 				try {
-					managementFile.createBackupFile(relativizeTarget(_targetDirectory, baseDir, managementFile.toString()));
-					_completed++;
+					final File targetDirectory = relativizeTarget(_targetDirectory, baseDir, managementFile.toString());
+					managementFile.createBackupFile(targetDirectory);
+					createChecksum(managementFile.toString(), targetDirectory);
+					fileCompleted();
 				}
-				catch(IOException e) {
-					_failed++;
+				catch(Exception e) {
+					fileFailed();
 					_debug.error("Fehler beim Sichern der Verwaltungdaten.xml", e);
 				}
 
 				// Die Benutzerverwaltung sichern, falls vorhanden
 				if(_configAuthentication != null) {
 					try {
-						_configAuthentication.createBackupFile(relativizeTarget(_targetDirectory, baseDir, _configAuthentication.toString()));
-						_completed++;
+						final File targetDirectory = relativizeTarget(_targetDirectory, baseDir, _configAuthentication.toString());
+						_configAuthentication.createBackupFile(targetDirectory);
+						createChecksum(_configAuthentication.toString(), targetDirectory);
+						fileCompleted();
 					}
-					catch(IOException e) {
-						_failed++;
+					catch(Exception e) {
+						fileFailed();
 						_debug.error("Fehler beim Sichern der Benutzerverwaltung.xml", e);
 					}
 				}
+
+				writeChecksumFile();
 			}
 			finally {
 				// Den Publisher signalisieren, dass das Backup fertig ist, damit dieser aufhört periodisch Daten zu senden
@@ -391,6 +484,68 @@ public class ConfigFileBackupTask {
 			}
 		}
 
+		/**
+		 * Sichert eine Konfigurationsdatei. Die Methode wird parallel für mehrere Dateien aufgerufen.
+		 *
+		 * @param configAreaFile Konfigurationsdatei
+		 * @param baseDir        Basisverzeichnis aller zu sichernden Dateien
+		 */
+		private void backupConfigAreaFile(final ConfigAreaFile configAreaFile, final URI baseDir) {
+			_currentFiles.add(configAreaFile);
+			try {
+				final File targetDirectory = relativizeTarget(_targetDirectory, baseDir, configAreaFile.toString());
+				configAreaFile.createBackupFile(targetDirectory);
+				createChecksum(configAreaFile.toString(), targetDirectory);
+				fileCompleted();
+			}
+			catch(Exception e) {
+				fileFailed();
+				_debug.error("Fehler beim Sichern von " + configAreaFile.getConfigAreaPid(), e);
+			}
+			finally {
+				_currentFiles.remove(configAreaFile);
+			}
+		}
+
+		/**
+		 * Berechnet die Prüfsumme einer gesicherten Datei, falls Prüfsummen erzeugt werden sollen.
+		 *
+		 * @param sourceFile      Pfad der gesicherten Datei
+		 * @param targetDirectory Verzeichnis, in das die Datei gesichert wurde
+		 *
+		 * @throws IOException IO-Fehler
+		 */
+		private void createChecksum(final String sourceFile, final File targetDirectory) throws IOException {
+			final Map<String, String> checksums = _checksums;
+			if(checksums == null) return;
+			final File targetFile = new File(targetDirectory, new File(sourceFile).getName());
+			final String relativePath = _targetDirectory.toURI().relativize(targetFile.toURI()).getPath();
+			checksums.put(relativePath, FileCopy.sha256(targetFile));
+		}
+
+		/** Schreibt die Datei mit den Prüfsummen der gesicherten Dateien, falls Prüfsummen erzeugt werden sollen. */
+		private void writeChecksumFile() {
+			final Map<String, String> checksums = _checksums;
+			if(checksums == null) return;
+			final File checksumFile = new File(_targetDirectory, CHECKSUM_FILE_NAME);
+			try {
+				final Writer writer = new OutputStreamWriter(new FileOutputStream(checksumFile), "UTF-8");
+				try {
+					synchronized(checksums) {
+						for(Map.Entry<String, String> entry : checksums.entrySet()) {
+							writer.write(entry.getValue() + "  " + entry.getKey() + "\n");
+						}
+					}
+				}
+				finally {
+					writer.close();
+				}
+			}
+			catch(IOException e) {
+				_debug.error("Fehler beim Schreiben der Prüfsummen nach " + checksumFile, e);
+			}
+		}
+
 		/**
 		 * Berechnet ein korrektes Zielverzeichnis. Der Parameter file wird relativ zu basedir aufgefasst und in
 		 * basedir eingefügt. Der Dateiname wird weggelassen, sodass nur das Zielverzeichnis übrig bleibt.
@@ -404,7 +559,7 @@ public class ConfigFileBackupTask {
 		 * @param file
 		 * @return
 		 */
-		private File relativizeTarget(final File targetDirectory, final URI baseDir, final String file) {
+		private synchronized File relativizeTarget(final File targetDirectory, final URI baseDir, final String file) {
 			URI relativeFileURI = ManagementFile.relativize(baseDir, new File(file).toURI());
 			if(relativeFileURI.isAbsolute()) {
 				_debug.warning("Problem beim Backup: Kann Datei " + file + " nicht relativ zum Verzeichnis " + baseDir + " auflösen.");
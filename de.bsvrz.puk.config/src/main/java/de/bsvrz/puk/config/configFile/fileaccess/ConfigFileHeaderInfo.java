@@ -124,7 +124,7 @@ public class ConfigFileHeaderInfo implements ConfigurationAreaFileInformationRea
 	/** letzter Zeitpunkt, an dem ein konfigurierender Datensatz geändert wurde. Der Wert -1 zeigt an, dass dieser Wert noch unbekannt ist. */
 	private long _configurationDataChanged = -1;
 
-	private Debug _debug = Debug.getLogger();
+	private Debug _debug = Debug.getLogger(ConfigFileHeaderInfo.class);
 
 	private int _serializerVersion;
 
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.puk.config.
+ *
+ * de.bsvrz.puk.config is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.puk.config is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.puk.config.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.puk.config.configFile.fileaccess;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hilfsmethoden zum Kopieren von Dateien bei der Sicherung der Konfigurationsdateien. Die Daten werden mit {@link FileChannel#transferTo(long, long,
+ * java.nio.channels.WritableByteChannel)} kopiert, so dass sie (soweit vom Betriebssystem unterstützt) nicht durch Puffer der Java-VM kopiert werden
+ * müssen.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public final class FileCopy {
+
+	/** Anzahl Bytes, die maximal mit einem Aufruf von transferTo kopiert werden, damit der Fortschritt regelmäßig aktualisiert wird */
+	private static final long TRANSFER_BLOCK_SIZE = 8 * 1024 * 1024;
+
+	private FileCopy() {
+	}
+
+	/**
+	 * Kopiert eine Datei.
+	 *
+	 * @param source   Quelldatei
+	 * @param target   Zieldatei, wird ggf. überschrieben
+	 * @param progress Zähler, der um die Anzahl der jeweils kopierten Bytes erhöht wird, oder <code>null</code>
+	 *
+	 * @return Anzahl der kopierten Bytes
+	 *
+	 * @throws IOException IO-Fehler
+	 */
+	public static long copy(final File source, final File target, final AtomicLong progress) throws IOException {
+		final FileInputStream inputStream = new FileInputStream(source);
+		try {
+			final FileOutputStream outputStream = new FileOutputStream(target);
+			try {
+				final FileChannel in = inputStream.getChannel();
+				final FileChannel out = outputStream.getChannel();
+				final long size = in.size();
+				long position = 0;
+				while(position < size) {
+					final long transferred = in.transferTo(position, Math.min(TRANSFER_BLOCK_SIZE, size - position), out);
+					if(transferred <= 0 && position >= in.size()) break;
+					position += transferred;
+					if(progress != null) progress.addAndGet(transferred);
+				}
+				return position;
+			}
+			finally {
+				outputStream.close();
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Berechnet die SHA-256-Prüfsumme einer Datei.
+	 *
+	 * @param file Datei
+	 *
+	 * @return Prüfsumme als Hex-String in Kleinbuchstaben
+	 *
+	 * @throws IOException IO-Fehler
+	 */
+	public static String sha256(final File file) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 wird nicht unterstützt", e);
+		}
+		final FileInputStream inputStream = new FileInputStream(file);
+		try {
+			final FileChannel in = inputStream.getChannel();
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+			while(in.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+		final StringBuilder result = new StringBuilder(64);
+		for(byte b : digest.digest()) {
+			result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return result.toString();
+	}
+}
@@ -34,7 +34,7 @@ package de.bsvrz.puk.config.configFile.fileaccess;
 */
 public final class FilePointer implements ObjectReference {
 
-	private long _absoluteFilePosition;
+	private volatile long _absoluteFilePosition;
 
 	private FilePointer(final long absoluteFilePosition) {
 		_absoluteFilePosition = absoluteFilePosition;
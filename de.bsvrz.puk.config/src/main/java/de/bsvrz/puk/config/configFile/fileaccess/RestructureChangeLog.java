@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.puk.config.
+ *
+ * de.bsvrz.puk.config is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.puk.config is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.puk.config.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.puk.config.configFile.fileaccess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protokoll der Änderungen, die während einer Restrukturierung im laufenden Betrieb an der bisherigen Konfigurationsbereichsdatei vorgenommen werden.
+ * Die Restrukturierung arbeitet auf dem Zustand zu ihrem Beginn. Objekte, die sich danach ändern, und Lücken, die danach deklariert werden, werden hier
+ * gemerkt und beim Umschalten auf die neue Datei dort nachgetragen.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+class RestructureChangeLog {
+
+	/** Objekte, die seit Beginn der Restrukturierung geändert, ungültig gemacht oder gelöscht wurden. Key ist die Id des Objekts. */
+	private final Map<Long, SystemObjectInformationInterface> _changedObjects = new LinkedHashMap<Long, SystemObjectInformationInterface>();
+
+	/** Absolute Positionen in der bisherigen Datei, die seit Beginn der Restrukturierung als Lücke deklariert wurden */
+	private final List<Long> _gapPositions = new ArrayList<Long>();
+
+	/**
+	 * Merkt sich, dass ein Objekt geändert wurde.
+	 *
+	 * @param object Objekt
+	 */
+	synchronized void objectChanged(final SystemObjectInformationInterface object) {
+		_changedObjects.put(object.getID(), object);
+	}
+
+	/**
+	 * Merkt sich, dass in der bisherigen Datei eine Lücke deklariert wurde.
+	 *
+	 * @param absoluteFilePosition Absolute Position des Objekts, das zur Lücke wurde
+	 */
+	synchronized void gapDeclared(final long absoluteFilePosition) {
+		_gapPositions.add(absoluteFilePosition);
+	}
+
+	/**
+	 * Gibt die geänderten Objekte zurück.
+	 *
+	 * @return Kopie der Liste der geänderten Objekte
+	 */
+	synchronized List<SystemObjectInformationInterface> getChangedObjects() {
+		return new ArrayList<SystemObjectInformationInterface>(_changedObjects.values());
+	}
+
+	/**
+	 * Gibt die Positionen der neuen Lücken zurück.
+	 *
+	 * @return Kopie der Liste der absoluten Dateipositionen
+	 */
+	synchronized List<Long> getGapPositions() {
+		return new ArrayList<Long>(_gapPositions);
+	}
+}
@@ -26,7 +26,9 @@
 
 package de.bsvrz.puk.config.configFile.fileaccess;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -48,6 +50,29 @@ class RestructureInfo implements HeaderInfo {
 	 */
 	final Map<Long, Long> _newFilePositions = new HashMap<Long, Long>();
 
+	/**
+	 * Speichert zu den Objekten der Mischmenge, die in die neue Datei geschrieben wurden, die neue Dateiposition. Key ist die Id des Objekts. Wird bei der
+	 * Restrukturierung im laufenden Betrieb benötigt, um die Kopie eines Objekts, das sich während der Restrukturierung geändert hat, als Lücke zu deklarieren.
+	 */
+	final Map<Long, Long> _copiedObjectPositions = new HashMap<Long, Long>();
+
+	/**
+	 * Ungültige Objekte der Mischmenge zu Beginn der Restrukturierung (Kopie von {@link ConfigAreaFile#_oldObjectsId _oldObjectsId}). Key ist die Id.
+	 */
+	final Map<Long, ObjectReference> _oldObjects = new HashMap<Long, ObjectReference>();
+
+	/**
+	 * Aktuelle und zukünftig aktuelle Objekte zu Beginn der Restrukturierung (Kopie von {@link ConfigAreaFile#_actualObjects _actualObjects} und
+	 * {@link ConfigAreaFile#_newObjects _newObjects})
+	 */
+	final List<SystemObjectInformationInterface> _currentObjects = new ArrayList<SystemObjectInformationInterface>();
+
+	/**
+	 * Dynamische Objekte, die erst während der Restrukturierung im laufenden Betrieb ungültig geworden sind. Diese befinden sich auch in der neuen Datei in
+	 * der Mischmenge und müssen daher weiterhin als alte Objekte im Speicher geführt werden. Key ist die Id.
+	 */
+	final Map<Long, DynamicObjectInformation> _retainedOldObjects = new HashMap<Long, DynamicObjectInformation>();
+
 	/**
 	 * Speichert Headerende in neuer Datei (= Start NgaBlöcke)
 	 */
@@ -107,4 +132,8 @@ class RestructureInfo implements HeaderInfo {
 		_newFilePositions.put(oldFilePosition, newFilePosition);
 	}
 
+	public void rememberCopiedObject(final long objectId, final long newFilePosition) {
+		_copiedObjectPositions.put(objectId, newFilePosition);
+	}
+
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.puk.config.
+ *
+ * de.bsvrz.puk.config is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.puk.config is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.puk.config.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.puk.config.configFile.fileaccess;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index über die Gültigkeitszeiträume von Objekten, getrennt nach Typ. Zu jedem Objekt werden der Beginn und das Ende der Gültigkeit sowie die absolute
+ * Dateiposition gespeichert. Pro Typ werden die Einträge nach dem Ende der Gültigkeit sortiert und in Blöcke fester Größe eingeteilt, für die jeweils der
+ * früheste Beginn der Gültigkeit gemerkt wird. Bei einer Anfrage werden so alle Objekte, die vor dem angefragten Zeitraum ungültig wurden, per binärer
+ * Suche übersprungen und Blöcke, deren Objekte alle erst nach dem angefragten Zeitraum gültig wurden, nicht betrachtet.
+ * <p>
+ * Der Index wird einmal mit {@link #add} gefüllt und mit {@link #finish} abgeschlossen. Danach sind nur noch Anfragen möglich.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+class ValidityIntervalIndex {
+
+	/** Anzahl Einträge pro Block */
+	private static final int BLOCK_SIZE = 64;
+
+	private final Map<Long, Intervals> _intervalsByType = new HashMap<Long, Intervals>();
+
+	private boolean _finished = false;
+
+	/**
+	 * Fügt ein Objekt hinzu.
+	 *
+	 * @param typeId       Id des Typs
+	 * @param firstValid   Zeitpunkt, an dem das Objekt gültig wurde
+	 * @param firstInvalid Zeitpunkt, an dem das Objekt ungültig wurde, 0 falls das Objekt noch gültig ist
+	 * @param filePosition Absolute Dateiposition des Objekts
+	 */
+	void add(final long typeId, final long firstValid, final long firstInvalid, final long filePosition) {
+		if(_finished) throw new IllegalStateException("Der Index wurde bereits abgeschlossen");
+		Intervals intervals = _intervalsByType.get(typeId);
+		if(intervals == null) {
+			intervals = new Intervals();
+			_intervalsByType.put(typeId, intervals);
+		}
+		intervals.add(firstValid, firstInvalid == 0 ? Long.MAX_VALUE : firstInvalid, filePosition);
+	}
+
+	/** Sortiert die Einträge und berechnet die Blockinformationen. */
+	void finish() {
+		for(final Intervals intervals : _intervalsByType.values()) {
+			intervals.finish();
+		}
+		_finished = true;
+	}
+
+	/**
+	 * Liefert die Dateipositionen aller Objekte eines Typs, die frühestens zum Zeitpunkt <code>earliestInvalid</code> ungültig und spätestens zum Zeitpunkt
+	 * <code>latestValid</code> gültig wurden.
+	 *
+	 * @param typeId          Id des Typs
+	 * @param earliestInvalid Frühestes Ende der Gültigkeit
+	 * @param latestValid     Spätester Beginn der Gültigkeit
+	 *
+	 * @return Aufsteigend sortierte Dateipositionen
+	 */
+	long[] getFilePositions(final long typeId, final long earliestInvalid, final long latestValid) {
+		if(!_finished) throw new IllegalStateException("Der Index wurde noch nicht abgeschlossen");
+		final Intervals intervals = _intervalsByType.get(typeId);
+		if(intervals == null) return new long[0];
+		final long[] result = intervals.find(earliestInvalid, latestValid);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Gibt die Anzahl der Objekte im Index zurück.
+	 *
+	 * @return Anzahl
+	 */
+	int size() {
+		int result = 0;
+		for(final Intervals intervals : _intervalsByType.values()) {
+			result += intervals._size;
+		}
+		return result;
+	}
+
+	/** Einträge eines Typs, als drei parallele Arrays gespeichert, damit auch Millionen von Objekten wenig Speicher belegen */
+	private static final class Intervals {
+
+		private long[] _firstValid = new long[16];
+
+		private long[] _firstInvalid = new long[16];
+
+		private long[] _filePosition = new long[16];
+
+		private int _size = 0;
+
+		/** Frühester Beginn der Gültigkeit je Block */
+		private long[] _blockMinValid;
+
+		void add(final long firstValid, final long firstInvalid, final long filePosition) {
+			if(_size == _firstValid.length) {
+				final int newLength = _size * 2;
+				_firstValid = Arrays.copyOf(_firstValid, newLength);
+				_firstInvalid = Arrays.copyOf(_firstInvalid, newLength);
+				_filePosition = Arrays.copyOf(_filePosition, newLength);
+			}
+			_firstValid[_size] = firstValid;
+			_firstInvalid[_size] = firstInvalid;
+			_filePosition[_size] = filePosition;
+			_size++;
+		}
+
+		void finish() {
+			_firstValid = Arrays.copyOf(_firstValid, _size);
+			_firstInvalid = Arrays.copyOf(_firstInvalid, _size);
+			_filePosition = Arrays.copyOf(_filePosition, _size);
+			// Die Objekte im dyn. nGa-Bereich liegen bereits weitgehend nach dem Ende der Gültigkeit sortiert vor
+			if(!isSorted()) sort(0, _size - 1);
+			_blockMinValid = new long[(_size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+			Arrays.fill(_blockMinValid, Long.MAX_VALUE);
+			for(int i = 0; i < _size; i++) {
+				final int block = i / BLOCK_SIZE;
+				if(_firstValid[i] < _blockMinValid[block]) _blockMinValid[block] = _firstValid[i];
+			}
+		}
+
+		long[] find(final long earliestInvalid, final long latestValid) {
+			long[] result = new long[16];
+			int count = 0;
+			int i = lowerBound(earliestInvalid);
+			while(i < _size) {
+				final int block = i / BLOCK_SIZE;
+				if(_blockMinValid[block] > latestValid) {
+					// Alle Objekte des Blocks wurden erst nach dem Zeitraum gültig
+					i = (block + 1) * BLOCK_SIZE;
+					continue;
+				}
+				final int blockEnd = Math.min(_size, (block + 1) * BLOCK_SIZE);
+				for(; i < blockEnd; i++) {
+					if(_firstValid[i] <= latestValid) {
+						if(count == result.length) result = Arrays.copyOf(result, count * 2);
+						result[count++] = _filePosition[i];
+					}
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		/** Index des ersten Eintrags, dessen Gültigkeit nicht vor <code>earliestInvalid</code> endet */
+		private int lowerBound(final long earliestInvalid) {
+			int low = 0;
+			int high = _size;
+			while(low < high) {
+				final int middle = (low + high) >>> 1;
+				if(_firstInvalid[middle] < earliestInvalid) {
+					low = middle + 1;
+				}
+				else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		private boolean isSorted() {
+			for(int i = 1; i < _size; i++) {
+				if(_firstInvalid[i - 1] > _firstInvalid[i]) return false;
+			}
+			return true;
+		}
+
+		/** Sortiert die parallelen Arrays nach dem Ende der Gültigkeit (Quicksort, kleine Bereiche mit Insertionsort) */
+		private void sort(int low, int high) {
+			while(high - low > 16) {
+				final long pivot = _firstInvalid[(low + high) >>> 1];
+				int i = low;
+				int j = high;
+				while(i <= j) {
+					while(_firstInvalid[i] < pivot) i++;
+					while(_firstInvalid[j] > pivot) j--;
+					if(i <= j) {
+						swap(i, j);
+						i++;
+						j--;
+					}
+				}
+				// Kleineren Teil rekursiv sortieren, damit die Rekursionstiefe beschränkt bleibt
+				if(j - low < high - i) {
+					sort(low, j);
+					low = i;
+				}
+				else {
+					sort(i, high);
+					high = j;
+				}
+			}
+			for(int i = low + 1; i <= high; i++) {
+				for(int j = i; j > low && _firstInvalid[j - 1] > _firstInvalid[j]; j--) {
+					swap(j - 1, j);
+				}
+			}
+		}
+
+		private void swap(final int i, final int j) {
+			final long valid = _firstValid[i];
+			_firstValid[i] = _firstValid[j];
+			_firstValid[j] = valid;
+			final long invalid = _firstInvalid[i];
+			_firstInvalid[i] = _firstInvalid[j];
+			_firstInvalid[j] = invalid;
+			final long position = _filePosition[i];
+			_filePosition[i] = _filePosition[j];
+			_filePosition[j] = position;
+		}
+	}
+}
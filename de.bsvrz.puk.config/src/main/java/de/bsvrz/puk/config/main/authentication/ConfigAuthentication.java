@@ -41,6 +41,7 @@ import de.bsvrz.dav.daf.main.config.SystemObject;
 import de.bsvrz.dav.daf.main.config.DynamicObjectType;
 import de.bsvrz.dav.daf.main.config.ConfigurationArea;
 import de.bsvrz.dav.daf.main.config.SystemObjectType;
+import de.bsvrz.puk.config.configFile.fileaccess.FileCopy;
 import de.bsvrz.sys.funclib.crypt.EncryptDecryptProcedure;
 import de.bsvrz.sys.funclib.crypt.decrypt.DecryptFactory;
 import de.bsvrz.sys.funclib.crypt.encrypt.EncryptFactory;
@@ -72,7 +73,6 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -1139,24 +1139,7 @@ public class ConfigAuthentication implements Authentication {
 		}
 
 		// Datei kopieren
-			final FileOutputStream fileOutputStream = new FileOutputStream(new File(targetDirectory, fileName));
-			try {
-				final FileInputStream inputStream = new FileInputStream(_xmlFile);
-				try {
-
-					byte[] buf = new byte[1024];
-					int len;
-					while((len = inputStream.read(buf)) > 0) {
-						fileOutputStream.write(buf, 0, len);
-					}
-				}
-				finally {
-					inputStream.close();
-				}
-			}
-			finally {
-				fileOutputStream.close();
-			}
+			FileCopy.copy(_xmlFile, new File(targetDirectory, fileName), null);
 	}
 
 	/**
@@ -86,7 +86,7 @@ public class ConfigurationCommunicator {
 			final File foreignObjectCacheFile)
 			throws ParserConfigurationException, MissingParameterException, CommunicationError, InterruptedException, InconsistentLoginException, ConnectionException {
 		_dataModel = dataModel;
-		_typeHierarchy = new TypeHierarchy(dataModel);
+		_typeHierarchy = dataModel.getTypeHierarchy();
 
 		final ConfigurationAuthority configurationAuthority = dataModel.getConfigurationAuthority();
 		if(configurationAuthority == null) {
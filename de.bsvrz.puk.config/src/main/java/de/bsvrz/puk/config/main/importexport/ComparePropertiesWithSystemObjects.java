@@ -64,7 +64,7 @@ class ComparePropertiesWithSystemObjects {
 
 	/** Debug-Logger */
 
-	private Debug _debug = Debug.getLogger();
+	private Debug _debug = Debug.getLogger(ComparePropertiesWithSystemObjects.class);
 
 	/** Import-Modul der Konfiguration */
 	private final ConfigurationImport _configurationImport;
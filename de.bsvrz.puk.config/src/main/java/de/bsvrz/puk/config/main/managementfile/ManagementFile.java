@@ -28,6 +28,7 @@
 
 package de.bsvrz.puk.config.main.managementfile;
 
+import de.bsvrz.puk.config.configFile.fileaccess.FileCopy;
 import de.bsvrz.sys.funclib.debug.Debug;
 import de.bsvrz.sys.funclib.filelock.FileLock;
 import de.bsvrz.sys.funclib.xmlSupport.CountingErrorHandler;
@@ -364,24 +365,7 @@ public class ManagementFile implements ConfigurationManagementFile {
 			save();
 
 			// Datei kopieren
-			final FileOutputStream fileOutputStream = new FileOutputStream(new File(targetDirectory, fileName));
-			try {
-				final FileInputStream inputStream = new FileInputStream(_xmlFile);
-				try {
-
-					byte[] buf = new byte[1024];
-					int len;
-					while((len = inputStream.read(buf)) > 0) {
-						fileOutputStream.write(buf, 0, len);
-					}
-				}
-				finally {
-					inputStream.close();
-				}
-			}
-			finally {
-				fileOutputStream.close();
-			}
+			FileCopy.copy(_xmlFile, new File(targetDirectory, fileName), null);
 		}
 	}
 
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.puk.config.
+ *
+ * de.bsvrz.puk.config is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.puk.config is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.puk.config.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.puk.config.configFile.datamodel;
+
+import de.bsvrz.dav.daf.main.config.SystemObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft das Wiederaufsetzen von {@link MutableSetExtFileStorage} nach einem Absturz, d.h. mit einem unvollständigen Änderungseintrag am Dateiende und mit
+ * einer beim Kompaktieren übrig gebliebenen temporären Datei. Die Zugriffe auf das Datenmodell werden durch eine Unterklasse ersetzt.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class MutableSetExtFileStorageTest {
+
+	/** Größe des Dateikopfs aus Version und Anzahl der Elemente */
+	private static final int HEADER_SIZE = 5;
+
+	/** Größe eines Änderungseintrags, der ein Element enthält */
+	private static final int ELEMENT_RECORD_SIZE = 4 + MutableSetStorage.MutableElement.BYTE_SIZE;
+
+	private File _directory;
+
+	private File _file;
+
+	@Before
+	public void setUp() throws Exception {
+		_directory = Files.createTempDirectory("mutableSet").toFile();
+		_file = new File(_directory, "menge.elemente");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		final File[] files = _directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	@Test
+	public void testAppendAndReopen() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+		assertEquals(HEADER_SIZE + 3 * MutableSetStorage.MutableElement.BYTE_SIZE, _file.length());
+
+		storage.save(elements(1, 5, 3, 4));
+		assertEquals(HEADER_SIZE + 3 * MutableSetStorage.MutableElement.BYTE_SIZE + 2 * ELEMENT_RECORD_SIZE, _file.length());
+
+		storage.save(elements(1, 5));
+		assertEquals(HEADER_SIZE + 3 * MutableSetStorage.MutableElement.BYTE_SIZE + 2 * ELEMENT_RECORD_SIZE + 4, _file.length());
+
+		assertIds(new TestStorage(_file).readElements(), 1, 5);
+	}
+
+	@Test
+	public void testPartialElementRecordIsIgnored() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+		storage.save(elements(1, 2, 3, 4));
+		final long completeLength = _file.length();
+		storage.save(elements(1, 2, 3, 4, 5));
+
+		// Absturz mitten im Schreiben des letzten Eintrags
+		truncate(completeLength + ELEMENT_RECORD_SIZE - 7);
+
+		final TestStorage reopened = new TestStorage(_file);
+		assertIds(reopened.readElements(), 1, 2, 3, 4);
+
+		// Beim nächsten Anhängen wird der unvollständige Eintrag überschrieben
+		reopened.save(elements(1, 2, 3, 4, 6));
+		assertEquals(completeLength + ELEMENT_RECORD_SIZE, _file.length());
+		assertIds(new TestStorage(_file).readElements(), 1, 2, 3, 4, 6);
+	}
+
+	@Test
+	public void testPartialIndexIsIgnored() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+		final long completeLength = _file.length();
+		storage.save(elements(1, 2));
+
+		// Vom Kürzungseintrag wurden nur zwei der vier Bytes geschrieben
+		truncate(completeLength + 2);
+
+		final TestStorage reopened = new TestStorage(_file);
+		assertIds(reopened.readElements(), 1, 2, 3);
+		reopened.save(elements(1, 2));
+		assertEquals(completeLength + 4, _file.length());
+		assertIds(new TestStorage(_file).readElements(), 1, 2);
+	}
+
+	@Test
+	public void testIncompleteTempFileIsDiscarded() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+
+		// Absturz beim Schreiben der temporären Datei, die eigentliche Datei ist noch gültig
+		final File tempFile = new File(_directory, _file.getName() + ".tmp");
+		storage.writeElementsToFile(elements(7, 8, 9), tempFile);
+		truncate(tempFile, tempFile.length() - 10);
+
+		assertIds(new TestStorage(_file).readElements(), 1, 2, 3);
+		assertFalse(tempFile.exists());
+	}
+
+	@Test
+	public void testCompleteTempFileIsDiscardedIfFileExists() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+
+		// Absturz vor dem Umbenennen der alten Datei
+		final File tempFile = new File(_directory, _file.getName() + ".tmp");
+		storage.writeElementsToFile(elements(7, 8, 9), tempFile);
+
+		assertIds(new TestStorage(_file).readElements(), 1, 2, 3);
+		assertFalse(tempFile.exists());
+	}
+
+	@Test
+	public void testCompleteTempFileIsTakenOverIfFileIsMissing() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+
+		// Absturz nach dem Umbenennen der alten Datei in die Backup-Datei, aber vor dem Umbenennen der temporären Datei
+		final File tempFile = new File(_directory, _file.getName() + ".tmp");
+		storage.writeElementsToFile(elements(7, 8, 9), tempFile);
+		assertTrue(_file.renameTo(new File(_directory, _file.getName() + ".old")));
+
+		final TestStorage reopened = new TestStorage(_file);
+		assertIds(reopened.readElements(), 7, 8, 9);
+		assertFalse(tempFile.exists());
+
+		// Die übernommene Datei kann weiter fortgeschrieben werden
+		reopened.save(elements(7, 8, 9, 10));
+		assertIds(new TestStorage(_file).readElements(), 7, 8, 9, 10);
+	}
+
+	@Test
+	public void testBackupFileIsRestoredIfTempFileIsIncomplete() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+		storage.save(elements(1, 2, 3, 4));
+
+		final File tempFile = new File(_directory, _file.getName() + ".tmp");
+		storage.writeElementsToFile(elements(7, 8, 9), tempFile);
+		truncate(tempFile, HEADER_SIZE + 3);
+		assertTrue(_file.renameTo(new File(_directory, _file.getName() + ".old")));
+
+		assertIds(new TestStorage(_file).readElements(), 1, 2, 3, 4);
+		assertFalse(tempFile.exists());
+		assertTrue(_file.isFile());
+	}
+
+	@Test
+	public void testCompactionAfterManyChanges() throws Exception {
+		final TestStorage storage = new TestStorage(_file);
+		storage.save(elements(1, 2, 3));
+		final long[] ids = new long[40];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = 100 + i;
+		}
+		// Viele geänderte Elemente werden nicht angehängt, sondern die Datei wird neu geschrieben
+		storage.save(elements(ids));
+		assertEquals(HEADER_SIZE + ids.length * MutableSetStorage.MutableElement.BYTE_SIZE, _file.length());
+		assertTrue(new File(_directory, _file.getName() + ".old").isFile());
+		assertFalse(new File(_directory, _file.getName() + ".tmp").exists());
+		assertIds(new TestStorage(_file).readElements(), ids);
+	}
+
+	private void truncate(final long length) throws IOException {
+		truncate(_file, length);
+	}
+
+	private static void truncate(final File file, final long length) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(length);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static List<MutableSetStorage.MutableElement> elements(final long... ids) {
+		final List<MutableSetStorage.MutableElement> result = new ArrayList<MutableSetStorage.MutableElement>();
+		for(long id : ids) {
+			result.add(new MutableSetStorage.MutableElement(object(id), id * 1000, id % 2 == 0 ? 0 : id * 2000, (short)(id % 3)));
+		}
+		return result;
+	}
+
+	private static void assertIds(final List<MutableSetStorage.MutableElement> elements, final long... ids) {
+		assertEquals(ids.length, elements.size());
+		for(int i = 0; i < ids.length; i++) {
+			final MutableSetStorage.MutableElement element = elements.get(i);
+			assertEquals(ids[i], element.getId());
+			assertEquals(ids[i] * 1000, element.getStartTime());
+			assertEquals(ids[i] % 2 == 0 ? 0 : ids[i] * 2000, element.getEndTime());
+			assertEquals((short)(ids[i] % 3), element.getSimulationVariant());
+		}
+	}
+
+	private static SystemObject object(final long id) {
+		return (SystemObject)Proxy.newProxyInstance(
+				SystemObject.class.getClassLoader(), new Class<?>[]{SystemObject.class}, new InvocationHandler() {
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						if(method.getName().equals("getId")) return id;
+						if(method.getName().equals("equals")) return proxy == args[0];
+						if(method.getName().equals("hashCode")) return (int)id;
+						if(method.getName().equals("toString")) return "Objekt " + id;
+						throw new UnsupportedOperationException(method.getName());
+					}
+				}
+		);
+	}
+
+	/** Speicherung ohne Datenmodell. Elemente werden sofort gespeichert, Objekte anhand ihrer Id erzeugt. */
+	private static class TestStorage extends MutableSetExtFileStorage {
+
+		TestStorage(final File file) {
+			super(file, null);
+		}
+
+		void save(final List<MutableSetStorage.MutableElement> elements) throws Exception {
+			writeElements(elements);
+			saveElementsData();
+		}
+
+		@Override
+		void scheduleSave() {
+		}
+
+		@Override
+		SystemObject getObject(final long id) {
+			return object(id);
+		}
+
+		@Override
+		int getSerializerVersion() {
+			return 3;
+		}
+
+		@Override
+		String getSetName() {
+			return "menge";
+		}
+	}
+}
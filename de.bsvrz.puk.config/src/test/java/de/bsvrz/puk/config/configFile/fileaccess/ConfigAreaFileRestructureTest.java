@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.puk.config.
+ *
+ * de.bsvrz.puk.config is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.puk.config is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.puk.config.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.puk.config.configFile.fileaccess;
+
+import de.bsvrz.dav.daf.main.config.DynamicObjectType;
+import de.bsvrz.puk.config.main.managementfile.VersionInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft die Restrukturierung eines Konfigurationsbereichs im laufenden Betrieb ({@link ConfigurationAreaFile.RestructureMode#DynamicObjectRestructure}).
+ * Ein Bereich wird mit Konfigurationsobjekten sowie gültigen und ungültigen dynamischen Objekten gefüllt, restrukturiert und neu geöffnet. Danach müssen
+ * alle Objekte, die Positionen im Header und die alten dynamischen Objekte erhalten sein.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class ConfigAreaFileRestructureTest {
+
+	private static final String AREA_PID = "kb.test";
+
+	private static final long CONFIGURATION_TYPE_ID = 100;
+
+	private static final long DYNAMIC_TYPE_ID = 200;
+
+	private File _directory;
+
+	private ConfigFileManager _fileManager;
+
+	private ConfigAreaFile _areaFile;
+
+	/** Ids der Konfigurationsobjekte */
+	private final Set<Long> _configurationIds = new TreeSet<Long>();
+
+	/** Seit dem letzten Öffnen erzeugte dynamische Objekte */
+	private final Map<Long, DynamicObjectInformation> _dynamicObjects = new HashMap<Long, DynamicObjectInformation>();
+
+	/** Ids der gültigen dynamischen Objekte */
+	private final Set<Long> _currentDynamicIds = new TreeSet<Long>();
+
+	/** Ids der ungültigen dynamischen Objekte */
+	private final Set<Long> _oldDynamicIds = new TreeSet<Long>();
+
+	@Before
+	public void setUp() throws Exception {
+		_directory = Files.createTempDirectory("configArea").toFile();
+		_fileManager = new ConfigFileManager();
+		_areaFile = (ConfigAreaFile)_fileManager.createAreaFile(AREA_PID, _directory);
+		_areaFile.setNextActiveVersion((short)1);
+		_areaFile.createConfigurationObject(1, CONFIGURATION_TYPE_ID, AREA_PID, "Testbereich");
+		_configurationIds.add(1L);
+		for(long id = 2; id <= 20; id++) {
+			_areaFile.createConfigurationObject(id, CONFIGURATION_TYPE_ID, "konfigurationsobjekt." + id, "Konfigurationsobjekt " + id);
+			_configurationIds.add(id);
+		}
+		for(long id = 1000; id < 1050; id++) {
+			createDynamicObject(id);
+		}
+		for(long id = 1000; id < 1050; id += 5) {
+			invalidate(id);
+		}
+		reopen();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		_fileManager.close();
+		final File[] files = _directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	@Test
+	public void testObjectsSurviveRestructure() throws Exception {
+		assertObjects();
+		_areaFile.restructure(ConfigurationAreaFile.RestructureMode.DynamicObjectRestructure);
+		assertObjects();
+		reopen();
+		assertObjects();
+	}
+
+	@Test
+	public void testOldDynamicObjectsAreMovedOutOfMixedSet() throws Exception {
+		assertEquals(Collections.<Long>emptySet(), getOldDynamicObjectIds());
+		_areaFile.restructure(ConfigurationAreaFile.RestructureMode.DynamicObjectRestructure);
+		assertEquals(_oldDynamicIds, getOldDynamicObjectIds());
+		reopen();
+		assertEquals(_oldDynamicIds, getOldDynamicObjectIds());
+		for(Long id : _oldDynamicIds) {
+			final SystemObjectInformationInterface oldObject = _areaFile.getOldObject(id);
+			assertNotNull("Altes Objekt " + id, oldObject);
+			assertTrue(((DynamicObjectInfo)oldObject).getFirstInvalidTime() != 0);
+			assertEquals("dynamisch." + id, oldObject.getPid());
+		}
+	}
+
+	@Test
+	public void testHeaderPositionsSurviveReopen() throws Exception {
+		final long startMixedSetBefore = _areaFile.getStartMixedSet();
+		_areaFile.restructure(ConfigurationAreaFile.RestructureMode.DynamicObjectRestructure);
+		final long[] positions = getHeaderPositions();
+		// Die ungültigen dynamischen Objekte liegen jetzt vor der Mischmenge
+		assertTrue(_areaFile.getStartMixedSet() > startMixedSetBefore);
+		assertTrue(_areaFile.getStartOldDynamicObjects() < _areaFile.getStartIdIndex());
+		reopen();
+		assertArrayEquals(positions, getHeaderPositions());
+	}
+
+	@Test
+	public void testChangesAfterRestructureAreSaved() throws Exception {
+		_areaFile.restructure(ConfigurationAreaFile.RestructureMode.DynamicObjectRestructure);
+		invalidate(1001);
+		createDynamicObject(2000);
+		reopen();
+		assertObjects();
+
+		// Eine zweite Restrukturierung übernimmt die neuen Änderungen
+		_areaFile.restructure(ConfigurationAreaFile.RestructureMode.DynamicObjectRestructure);
+		reopen();
+		assertObjects();
+		assertEquals(_oldDynamicIds, getOldDynamicObjectIds());
+	}
+
+	@Test
+	public void testChangesDuringRestructureAreSaved() throws Exception {
+		for(long id = 3000; id < 5000; id++) {
+			createDynamicObject(id);
+		}
+		_areaFile.flush();
+		final AtomicBoolean changesDone = new AtomicBoolean(false);
+		final AtomicInteger numberOfRestructures = new AtomicInteger();
+		final AtomicReference<Exception> restructureException = new AtomicReference<Exception>();
+		final Thread restructureThread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while(!changesDone.get() || numberOfRestructures.get() == 0) {
+						_areaFile.restructure(ConfigurationAreaFile.RestructureMode.DynamicObjectRestructure);
+						numberOfRestructures.incrementAndGet();
+					}
+				}
+				catch(Exception e) {
+					restructureException.set(e);
+				}
+			}
+		};
+		restructureThread.start();
+		// Änderungen, während die neue Datei geschrieben wird
+		long newId = 6000;
+		for(long id = 3000; id < 5000; id += 7) {
+			invalidate(id);
+			createDynamicObject(newId++);
+			if(id % 10 == 0) Thread.yield();
+		}
+		changesDone.set(true);
+		restructureThread.join();
+		assertNull(restructureException.get());
+		assertTrue(numberOfRestructures.get() > 0);
+		assertObjects();
+		reopen();
+		assertObjects();
+		// Objekte, die erst nach Beginn der letzten Restrukturierung ungültig wurden, liegen noch in der Mischmenge
+		assertTrue(_oldDynamicIds.containsAll(getOldDynamicObjectIds()));
+
+		_areaFile.restructure(ConfigurationAreaFile.RestructureMode.DynamicObjectRestructure);
+		reopen();
+		assertObjects();
+		assertEquals(_oldDynamicIds, getOldDynamicObjectIds());
+	}
+
+	private void createDynamicObject(final long id) {
+		final DynamicObjectInfo object = _areaFile.createDynamicObject(
+				id, DYNAMIC_TYPE_ID, "dynamisch." + id, (short)0, "Dynamisch " + id, DynamicObjectType.PersistenceMode.PERSISTENT_OBJECTS
+		);
+		_dynamicObjects.put(id, (DynamicObjectInformation)object);
+		_currentDynamicIds.add(id);
+	}
+
+	private void invalidate(final long id) {
+		DynamicObjectInformation object = _dynamicObjects.get(id);
+		if(object == null) object = (DynamicObjectInformation)findCurrentObject(id);
+		assertNotNull("Objekt " + id, object);
+		object.setInvalid();
+		_currentDynamicIds.remove(id);
+		_oldDynamicIds.add(id);
+	}
+
+	private SystemObjectInformationInterface findCurrentObject(final long id) {
+		for(SystemObjectInformationInterface object : _areaFile.getCurrentObjects()) {
+			if(object.getID() == id) return object;
+		}
+		return null;
+	}
+
+	/** Schließt den Bereich und öffnet ihn erneut, wobei die Version 1 mit den Konfigurationsobjekten aktiv ist. */
+	private void reopen() throws Exception {
+		_fileManager.close();
+		_dynamicObjects.clear();
+		_fileManager = new ConfigFileManager();
+		final List<VersionInfo> versions = new ArrayList<VersionInfo>();
+		versions.add(
+				new VersionInfo() {
+					public short getVersion() {
+						return 1;
+					}
+
+					public long getActivationTime() {
+						return 1000;
+					}
+				}
+		);
+		_areaFile = (ConfigAreaFile)_fileManager.addAreaFile(AREA_PID, _directory, (short)1, versions);
+	}
+
+	private void assertObjects() {
+		final Set<Long> expected = new TreeSet<Long>(_configurationIds);
+		expected.addAll(_currentDynamicIds);
+		final Set<Long> actual = new TreeSet<Long>();
+		for(SystemObjectInformationInterface object : _areaFile.getCurrentObjects()) {
+			actual.add(object.getID());
+			if(object instanceof DynamicObjectInfo) {
+				assertEquals("dynamisch." + object.getID(), object.getPid());
+				assertEquals(DYNAMIC_TYPE_ID, object.getTypeId());
+				assertEquals(0, ((DynamicObjectInfo)object).getFirstInvalidTime());
+			}
+			else {
+				assertEquals(CONFIGURATION_TYPE_ID, object.getTypeId());
+			}
+		}
+		assertEquals(expected, actual);
+		for(Long id : _oldDynamicIds) {
+			final SystemObjectInformationInterface object = _fileManager.getObject(id);
+			assertNotNull("Altes Objekt " + id, object);
+			assertTrue(((DynamicObjectInfo)object).getFirstInvalidTime() != 0);
+		}
+	}
+
+	private Set<Long> getOldDynamicObjectIds() {
+		final Set<Long> ids = new TreeSet<Long>();
+		_areaFile.forEachOldDynamicObject(
+				new Consumer<DynamicObjectInfo>() {
+					public void accept(final DynamicObjectInfo object) {
+						ids.add(object.getID());
+					}
+				}
+		);
+		return ids;
+	}
+
+	private long[] getHeaderPositions() {
+		return new long[]{
+				_areaFile.getHeaderEnd(),
+				_areaFile.getStartOldDynamicObjects(),
+				_areaFile.getStartIdIndex(),
+				_areaFile.getStartPidHashCodeIndex(),
+				_areaFile.getStartMixedSet(),
+				_areaFile.getFileLength()
+		};
+	}
+}
@@ -28,11 +28,23 @@
 package de.bsvrz.sys.funclib.asyncReceiver;
 
 import de.bsvrz.dav.daf.main.ClientReceiverInterface;
+import de.bsvrz.dav.daf.main.DataDescription;
 import de.bsvrz.dav.daf.main.ResultData;
+import de.bsvrz.dav.daf.main.config.SystemObject;
 
 import de.bsvrz.sys.funclib.debug.Debug;
 import de.bsvrz.sys.funclib.concurrent.UnboundedQueue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Klasse, die beim Empfang von Datensätzen zur Entkopplung von Datenverteiler-Applikationsfunktionen und
  * Verarbeitungsfunktionen eingesetzt werden kann. Empfangene Datensätze werden in eine Queue eingetragen und asynchron
@@ -51,6 +63,15 @@ import de.bsvrz.sys.funclib.concurrent.UnboundedQueue;
  * einzigen Thread verwendet, der asynchron zu den anderen Aktivitäten der Applikation und insbesondere asynchron zum
  * update-Thread der Datenverteiler-Applikationsfunktionen arbeitet. Die in einer Queue zwischengespeicherten Datensätze
  * werden sequentiell an die update-Methode des eigentlichen Empfängers weiterleitet.
+ * <p>
+ * Mit dem Konstruktor {@link #AsyncReceiver(ClientReceiverInterface, int, boolean)} kann stattdessen eine eigene Queue
+ * mit einer vorgegebenen Anzahl von Threads für dieses Empfängerobjekt erzeugt werden. Optional kann dabei der Modus
+ * <i>nur aktuellster Datensatz</i> aktiviert werden: Solange der eigentliche Empfänger mit der Verarbeitung im Rückstand
+ * ist, wird je Datenidentifikation (Objekt und Datenbeschreibung) nur der jeweils neueste Datensatz zwischengespeichert,
+ * ältere noch nicht ausgelieferte Datensätze derselben Datenidentifikation werden verworfen. Dieser Modus ist für
+ * Empfänger gedacht, die nur am aktuellen Zustand und nicht an der lückenlosen Historie interessiert sind. Die Anzahl
+ * wartender und verworfener Datensätze kann mit {@link #getQueueSize()} und {@link #getCoalescedCount()} abgefragt
+ * werden. Eigene Threads werden mit {@link #close()} beendet.
  *
  * @author Kappich Systemberatung
  * @version $Revision$
@@ -59,33 +80,70 @@ public class AsyncReceiver implements ClientReceiverInterface {
 	private static final Debug _debug = Debug.getLogger();
 
 	private static class QueueEntry {
-		private final ClientReceiverInterface _syncReceiver;
+		private final AsyncReceiver _asyncReceiver;
 		private final ResultData[] _results;
 
-		public ClientReceiverInterface getSyncReceiver() {
-			return _syncReceiver;
+		public AsyncReceiver getAsyncReceiver() {
+			return _asyncReceiver;
 		}
 
 		public ResultData[] getResults() {
 			return _results;
 		}
 
-		public QueueEntry(ClientReceiverInterface syncReceiver, ResultData[] results) {
-			_syncReceiver = syncReceiver;
+		public QueueEntry(AsyncReceiver asyncReceiver, ResultData[] results) {
+			_asyncReceiver = asyncReceiver;
 			_results = results;
 		}
 	}
 
 	private static final class QueueWorker implements Runnable {
+
+		private final UnboundedQueue<QueueEntry> _queue;
+
+		public QueueWorker(final UnboundedQueue<QueueEntry> queue) {
+			_queue = queue;
+		}
+
 		public void run() {
 			while(true) {
 				try {
-					QueueEntry entry = (QueueEntry)_queueSingleton.take();
+					QueueEntry entry = _queue.take();
 					if(entry == null) {
 						// null signalisiert dem Thread, dass er sich beenden soll
 						break;
 					}
-					entry.getSyncReceiver().update(entry.getResults());
+					entry.getAsyncReceiver().deliver(entry.getResults());
+				}
+				catch(RuntimeException e) {
+					_debug.error("Fehler bei der asynchronen Bearbeitung von empfangenen Daten: " + e);
+					e.printStackTrace();
+					System.exit(1);
+				}
+				catch(InterruptedException e) {
+					_debug.warning("Unterbrechung bei der asynchronen Bearbeitung von empfangenen Daten");
+					break;
+				}
+
+			}
+		}
+	}
+
+	private final class CoalescingWorker implements Runnable {
+		public void run() {
+			while(true) {
+				try {
+					ResultData[] results = _coalescingBuffer.take();
+					if(results == null) {
+						// null signalisiert dem Thread, dass er sich beenden soll
+						break;
+					}
+					try {
+						deliver(results);
+					}
+					finally {
+						_coalescingBuffer.done(results);
+					}
 				}
 				catch(RuntimeException e) {
 					_debug.error("Fehler bei der asynchronen Bearbeitung von empfangenen Daten: " + e);
@@ -96,22 +154,152 @@ public class AsyncReceiver implements ClientReceiverInterface {
 					_debug.warning("Unterbrechung bei der asynchronen Bearbeitung von empfangenen Daten");
 					break;
 				}
+			}
+		}
+	}
+
+	/**
+	 * Schlüssel für eine Datenidentifikation bestehend aus Objekt und Datenbeschreibung (Attributgruppe, Aspekt und
+	 * Simulationsvariante).
+	 */
+	private static final class DataIdentificationKey {
+
+		private final SystemObject _object;
+
+		private final DataDescription _dataDescription;
+
+		public DataIdentificationKey(final ResultData result) {
+			_object = result.getObject();
+			_dataDescription = result.getDataDescription();
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if(this == o) return true;
+			if(!(o instanceof DataIdentificationKey)) return false;
+			final DataIdentificationKey other = (DataIdentificationKey)o;
+			return _object.equals(other._object) && _dataDescription.equals(other._dataDescription);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * _object.hashCode() + _dataDescription.hashCode();
+		}
+	}
+
+	/**
+	 * Zwischenspeicher für den Modus <i>nur aktuellster Datensatz</i>. Je Datenidentifikation wird nur der neueste noch
+	 * nicht ausgelieferte Datensatz gespeichert. Datensätze einer Datenidentifikation, die gerade von einem Thread
+	 * ausgeliefert wird, werden erst nach Abschluss dieser Auslieferung an einen Thread vergeben, damit die Reihenfolge
+	 * je Datenidentifikation auch bei mehreren Threads erhalten bleibt. Ein Thread erhält bei jedem Aufruf von
+	 * {@link #take()} höchstens seinen Anteil der wartenden Datensätze, damit die übrigen Threads parallel weiterleiten
+	 * können.
+	 */
+	private final class CoalescingBuffer {
+
+		/** Maximale Anzahl Datensätze, die ein Thread auf einmal erhält */
+		private static final int MAX_BATCH_SIZE = 64;
+
+		private final LinkedHashMap<DataIdentificationKey, ResultData> _pending = new LinkedHashMap<DataIdentificationKey, ResultData>();
+
+		private final Set<DataIdentificationKey> _inProgress = new HashSet<DataIdentificationKey>();
+
+		private boolean _closed = false;
+
+		/**
+		 * Speichert die Datensätze.
+		 *
+		 * @param results Datensätze
+		 *
+		 * @return <code>false</code>, wenn der Zwischenspeicher bereits geschlossen wurde und die Datensätze verworfen
+		 *         wurden
+		 */
+		public synchronized boolean put(final ResultData[] results) {
+			if(_closed) return false;
+			for(ResultData result : results) {
+				if(_pending.put(new DataIdentificationKey(result), result) != null) {
+					_coalescedCount.incrementAndGet();
+				}
+				else {
+					_queueSize.incrementAndGet();
+				}
+			}
+			notify();
+			return true;
+		}
+
+		public synchronized ResultData[] take() throws InterruptedException {
+			while(true) {
+				if(_closed) return null;
+				// Gleichmäßig auf die Threads verteilen, damit nicht ein Thread einen ganzen Schub allein abarbeitet
+				final int limit = Math.max(1, Math.min(MAX_BATCH_SIZE, (_pending.size() + _workers.length - 1) / _workers.length));
+				final List<ResultData> batch = new ArrayList<ResultData>(limit);
+				final Iterator<Map.Entry<DataIdentificationKey, ResultData>> iterator = _pending.entrySet().iterator();
+				while(batch.size() < limit && iterator.hasNext()) {
+					final Map.Entry<DataIdentificationKey, ResultData> entry = iterator.next();
+					if(_inProgress.add(entry.getKey())) {
+						batch.add(entry.getValue());
+						iterator.remove();
+					}
+				}
+				if(!batch.isEmpty()) {
+					_queueSize.addAndGet(-batch.size());
+					// Restliche Datensätze an einen weiteren wartenden Thread vergeben
+					if(!_pending.isEmpty()) notify();
+					return batch.toArray(new ResultData[batch.size()]);
+				}
+				// Alle wartenden Datensätze gehören ggf. zu Datenidentifikationen, die gerade von anderen Threads ausgeliefert werden
+				wait();
+			}
+		}
 
+		public synchronized void done(final ResultData[] results) {
+			for(ResultData result : results) {
+				_inProgress.remove(new DataIdentificationKey(result));
 			}
+			if(!_pending.isEmpty()) notify();
+		}
+
+		public synchronized void close() {
+			_closed = true;
+			_queueSize.addAndGet(-_pending.size());
+			_pending.clear();
+			notifyAll();
 		}
 	}
 
-	private static final UnboundedQueue _queueSingleton;
+	private static final UnboundedQueue<QueueEntry> _queueSingleton;
 
 	static {
-		_queueSingleton = new UnboundedQueue();
-		Thread thread = new Thread(new QueueWorker(), "AsyncReceiverQueueWorker");
+		_queueSingleton = new UnboundedQueue<QueueEntry>();
+		Thread thread = new Thread(new QueueWorker(_queueSingleton), "AsyncReceiverQueueWorker");
 		thread.setDaemon(true);
 		thread.start();
 	}
 
 	private final ClientReceiverInterface _syncReceiver;
 
+	/** Queue, in die empfangene Datensätze eingetragen werden, oder <code>null</code> im Modus <i>nur aktuellster Datensatz</i>. */
+	private final UnboundedQueue<QueueEntry> _queue;
+
+	/** Zwischenspeicher im Modus <i>nur aktuellster Datensatz</i>, sonst <code>null</code>. */
+	private final CoalescingBuffer _coalescingBuffer;
+
+	/** Eigene Threads dieses Empfängerobjekts, leer, wenn die gemeinsame Queue verwendet wird. */
+	private final Thread[] _workers;
+
+	/** Anzahl der empfangenen und noch nicht weitergeleiteten Datensätze. */
+	private final AtomicInteger _queueSize = new AtomicInteger();
+
+	/** Anzahl der im Modus <i>nur aktuellster Datensatz</i> durch neuere Datensätze ersetzten Datensätze. */
+	private final AtomicLong _coalescedCount = new AtomicLong();
+
+	/** Anzahl der Datensätze, die nach {@link #close()} empfangen und verworfen wurden. */
+	private final AtomicLong _droppedAfterClose = new AtomicLong();
+
+	/** <code>true</code>, nachdem die eigenen Threads mit {@link #close()} beendet wurden. */
+	private volatile boolean _closed = false;
+
 	/**
 	 * Erzeugt ein neues Empfängerobjekt mit asynchroner Weiterleitung empfangener Daten an das übergebene
 	 * Empfängerobjekt.
@@ -122,6 +310,46 @@ public class AsyncReceiver implements ClientReceiverInterface {
 
 	public AsyncReceiver(ClientReceiverInterface syncReceiver) {
 		_syncReceiver = syncReceiver;
+		_queue = _queueSingleton;
+		_coalescingBuffer = null;
+		_workers = new Thread[0];
+	}
+
+	/**
+	 * Erzeugt ein neues Empfängerobjekt mit eigener Queue und eigenen Threads zur asynchronen Weiterleitung empfangener
+	 * Daten an das übergebene Empfängerobjekt. Werden mehrere Threads verwendet, dann kann das übergebene Empfängerobjekt
+	 * nebenläufig aufgerufen werden und muss entsprechend threadsicher sein. Ohne den Modus <i>nur aktuellster
+	 * Datensatz</i> ist die Reihenfolge der Auslieferung bei mehreren Threads nicht garantiert, im Modus <i>nur aktuellster
+	 * Datensatz</i> bleibt die Reihenfolge je Datenidentifikation erhalten.
+	 *
+	 * @param syncReceiver    Empfängerobjekt, an das empfangene Daten asynchron zur Verarbeitung weitergeleitet werden
+	 *                        sollen.
+	 * @param numberOfWorkers Anzahl der Threads, die empfangene Daten an das Empfängerobjekt weiterleiten (mindestens 1).
+	 * @param coalescing      <code>true</code>, wenn je Datenidentifikation nur der jeweils neueste noch nicht
+	 *                        weitergeleitete Datensatz gespeichert werden soll, <code>false</code>, wenn alle Datensätze
+	 *                        weitergeleitet werden sollen.
+	 */
+	public AsyncReceiver(ClientReceiverInterface syncReceiver, int numberOfWorkers, boolean coalescing) {
+		if(numberOfWorkers < 1) throw new IllegalArgumentException("Anzahl der Threads muss mindestens 1 sein: " + numberOfWorkers);
+		_syncReceiver = syncReceiver;
+		_workers = new Thread[numberOfWorkers];
+		final Runnable worker;
+		if(coalescing) {
+			_queue = null;
+			_coalescingBuffer = new CoalescingBuffer();
+			worker = new CoalescingWorker();
+		}
+		else {
+			_queue = new UnboundedQueue<QueueEntry>();
+			_coalescingBuffer = null;
+			worker = new QueueWorker(_queue);
+		}
+		for(int i = 0; i < numberOfWorkers; i++) {
+			Thread thread = new Thread(worker, "AsyncReceiverQueueWorker-" + syncReceiver.getClass().getSimpleName() + "-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			_workers[i] = thread;
+		}
 	}
 
 	/**
@@ -134,7 +362,87 @@ public class AsyncReceiver implements ClientReceiverInterface {
 	 * @param results Feld mit den empfangenen Ergebnisdatensätzen.
 	 */
 	public void update(ResultData results[]) {
-		_queueSingleton.put(new QueueEntry(_syncReceiver, results));
+		if(_coalescingBuffer != null) {
+			if(!_coalescingBuffer.put(results)) droppedAfterClose(results);
+		}
+		else if(_closed) {
+			droppedAfterClose(results);
+		}
+		else {
+			_queueSize.addAndGet(results.length);
+			_queue.put(new QueueEntry(this, results));
+		}
+	}
+
+	private void droppedAfterClose(final ResultData[] results) {
+		final long before = _droppedAfterClose.getAndAdd(results.length);
+		// Nur beim ersten Mal als Warnung, damit eine noch bestehende Anmeldung nicht das Log füllt
+		final String message = "Nach dem Schließen empfangene Datensätze werden verworfen: " + results.length + " Datensätze für " + _syncReceiver
+		                       + ", bisher insgesamt " + (before + results.length);
+		if(before == 0) {
+			_debug.warning(message);
+		}
+		else {
+			_debug.fine(message);
+		}
+	}
+
+	private void deliver(final ResultData[] results) {
+		if(_coalescingBuffer == null) _queueSize.addAndGet(-results.length);
+		_syncReceiver.update(results);
+	}
+
+	/**
+	 * Bestimmt die Anzahl der empfangenen und noch nicht an das eigentliche Empfängerobjekt weitergeleiteten Datensätze
+	 * dieses Empfängerobjekts.
+	 *
+	 * @return Anzahl wartender Datensätze
+	 */
+	public int getQueueSize() {
+		return _queueSize.get();
+	}
+
+	/**
+	 * Bestimmt die Anzahl der Datensätze, die im Modus <i>nur aktuellster Datensatz</i> vor der Weiterleitung durch einen
+	 * neueren Datensatz derselben Datenidentifikation ersetzt und damit verworfen wurden.
+	 *
+	 * @return Anzahl verworfener Datensätze, ohne den Modus <i>nur aktuellster Datensatz</i> immer 0.
+	 */
+	public long getCoalescedCount() {
+		return _coalescedCount.get();
+	}
+
+	/**
+	 * Bestimmt die Anzahl der Datensätze, die nach {@link #close()} empfangen und deshalb verworfen wurden.
+	 *
+	 * @return Anzahl verworfener Datensätze
+	 */
+	public long getDroppedAfterCloseCount() {
+		return _droppedAfterClose.get();
+	}
+
+	/**
+	 * Beendet die eigenen Threads dieses Empfängerobjekts. Im Modus <i>nur aktuellster Datensatz</i> werden noch nicht
+	 * weitergeleitete Datensätze verworfen, sonst werden vorher eingetragene Datensätze noch weitergeleitet. Wenn das
+	 * Empfängerobjekt die gemeinsame Queue verwendet, hat der Aufruf keine Wirkung. Danach empfangene Datensätze werden
+	 * mit einer Warnung verworfen.
+	 */
+	public void close() {
+		if(_queue == _queueSingleton) return;
+		_closed = true;
+		if(_coalescingBuffer != null) {
+			_coalescingBuffer.close();
+		}
+		else {
+			for(int i = 0; i < _workers.length; i++) {
+				_queue.put(null);
+			}
+		}
 	}
 
+	@Override
+	public String toString() {
+		return "AsyncReceiver{" + "syncReceiver=" + _syncReceiver + ", workers=" + _workers.length + ", coalescing=" + (_coalescingBuffer != null)
+		       + ", queueSize=" + getQueueSize() + ", coalescedCount=" + getCoalescedCount() + "}";
+	}
 }
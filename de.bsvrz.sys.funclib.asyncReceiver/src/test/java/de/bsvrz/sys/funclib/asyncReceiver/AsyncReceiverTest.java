@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.asyncReceiver.
+ *
+ * de.bsvrz.sys.funclib.asyncReceiver is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.asyncReceiver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.sys.funclib.asyncReceiver; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.asyncReceiver;
+
+import de.bsvrz.dav.daf.main.ClientReceiverInterface;
+import de.bsvrz.dav.daf.main.DataDescription;
+import de.bsvrz.dav.daf.main.ResultData;
+import de.bsvrz.dav.daf.main.config.SystemObject;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet die eigenen Threads des {@link AsyncReceiver} mit und ohne den Modus <i>nur aktuellster Datensatz</i>.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class AsyncReceiverTest {
+
+	private static final SystemObject OBJECT = (SystemObject)Proxy.newProxyInstance(
+			SystemObject.class.getClassLoader(), new Class[]{SystemObject.class}, new InvocationHandler() {
+				public Object invoke(final Object proxy, final Method method, final Object[] args) {
+					if(method.getName().equals("equals")) return proxy == args[0];
+					if(method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+					if(method.getName().equals("toString")) return "testObjekt";
+					throw new UnsupportedOperationException(method.getName());
+				}
+			}
+	);
+
+	/** Erzeugt einen Datensatz, die Datenidentifikation wird über die Simulationsvariante unterschieden. */
+	private static ResultData result(final int key, final long time) {
+		return new ResultData(OBJECT, new DataDescription(null, null, (short)key), time, null);
+	}
+
+	@Test(timeout = 30000)
+	public void testCoalescingUsesAllWorkers() throws Exception {
+		final int workers = 4;
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger delivered = new AtomicInteger();
+		final AsyncReceiver receiver = new AsyncReceiver(
+				new ClientReceiverInterface() {
+					public void update(final ResultData[] results) {
+						threads.add(Thread.currentThread());
+						try {
+							release.await(10, TimeUnit.SECONDS);
+						}
+						catch(InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						delivered.addAndGet(results.length);
+					}
+				}, workers, true
+		);
+		final ResultData[] burst = new ResultData[40];
+		for(int i = 0; i < burst.length; i++) {
+			burst[i] = result(i, 1);
+		}
+		receiver.update(burst);
+		// Alle Threads müssen einen Teil des Schubs erhalten, während der erste Thread noch blockiert
+		final long deadline = System.currentTimeMillis() + 10000;
+		while(threads.size() < workers && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(workers, threads.size());
+		release.countDown();
+		while(delivered.get() < burst.length) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, receiver.getQueueSize());
+		assertEquals(0, receiver.getCoalescedCount());
+		receiver.close();
+	}
+
+	@Test(timeout = 30000)
+	public void testCoalescingKeepsLatestValueInOrder() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Long> times = Collections.synchronizedList(new ArrayList<Long>());
+		final AsyncReceiver receiver = new AsyncReceiver(
+				new ClientReceiverInterface() {
+					public void update(final ResultData[] results) {
+						try {
+							release.await(10, TimeUnit.SECONDS);
+						}
+						catch(InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						for(final ResultData result : results) {
+							times.add(result.getDataTime());
+						}
+					}
+				}, 2, true
+		);
+		receiver.update(new ResultData[]{result(1, 1)});
+		// Warten, bis der erste Datensatz an einen Thread vergeben wurde
+		while(receiver.getQueueSize() > 0) {
+			Thread.sleep(10);
+		}
+		for(long time = 2; time <= 10; time++) {
+			receiver.update(new ResultData[]{result(1, time)});
+		}
+		assertEquals(1, receiver.getQueueSize());
+		assertEquals(8, receiver.getCoalescedCount());
+		release.countDown();
+		final long deadline = System.currentTimeMillis() + 10000;
+		while(times.size() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(2, times.size());
+		assertEquals(Long.valueOf(1), times.get(0));
+		assertEquals(Long.valueOf(10), times.get(1));
+		receiver.close();
+	}
+
+	@Test(timeout = 30000)
+	public void testUpdateAfterCloseIsDropped() throws Exception {
+		for(final boolean coalescing : new boolean[]{true, false}) {
+			final Map<Integer, Boolean> received = new ConcurrentHashMap<Integer, Boolean>();
+			final AsyncReceiver receiver = new AsyncReceiver(
+					new ClientReceiverInterface() {
+						public void update(final ResultData[] results) {
+							for(final ResultData result : results) {
+								received.put((int)result.getDataDescription().getSimulationVariant(), Boolean.TRUE);
+							}
+						}
+					}, 2, coalescing
+			);
+			receiver.update(new ResultData[]{result(1, 1)});
+			final long deadline = System.currentTimeMillis() + 10000;
+			while(received.isEmpty() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			receiver.close();
+			receiver.update(new ResultData[]{result(2, 2), result(3, 3)});
+			Thread.sleep(100);
+			assertEquals(new HashSet<Integer>(Collections.singleton(1)), received.keySet());
+			assertEquals(2, receiver.getDroppedAfterCloseCount());
+			assertEquals(0, receiver.getQueueSize());
+		}
+	}
+}
@@ -27,7 +27,12 @@
 
 package de.bsvrz.sys.funclib.concurrent;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Diese Klasse implementiert einen größenbeschränkten Kommunikationskanal zum Datenaustausch zwischen Threads. Es
@@ -39,15 +44,24 @@ import java.util.*;
  * werden. Objekte der gleichen Prioritätsklasse werden in der Reihenfolge ausgelesen in der sie in den
  * Kommunikationskanal übertragen wurden (im Gegensatz zu Heap basierten Implementierungen). Der Aufwand des Auslesens
  * von Objekten ist proportional zur Anzahl verschiedener Prioritätsklassen.
+ * <p>
+ * Die Objekte werden in sperrfreien Queues gespeichert, freie Plätze und vorhandene Objekte werden mit Zählsemaphoren
+ * verwaltet. Solange nicht gewartet werden muss, kommen Sender und Empfänger ohne Monitor aus. Ein übertragenes Objekt
+ * weckt höchstens einen wartenden Empfänger, ein entnommenes Objekt höchstens einen wartenden Sender seiner
+ * Prioritätsklasse.
  *
  * @author Kappich Systemberatung
  * @version $Revision$
  */
 public class PriorityChannel {
 	private final int _numberOfPriorityClasses;
-	private final int _capacityPerPriorityClass;
-	private final LinkedList[] _queues;
-	private int _count = 0;
+	private final List<ConcurrentLinkedQueue<PriorizedObject>> _queues;
+
+	/** Freie Plätze je Prioritätsklasse */
+	private final Semaphore[] _freeSlots;
+
+	/** Anzahl der Objekte, die in den Queues eingetragen und noch keinem Empfänger zugeteilt sind */
+	private final Semaphore _available = new Semaphore(0);
 
 	/**
 	 * Legt einen neuen Kommunikationskanal an.
@@ -59,10 +73,11 @@ public class PriorityChannel {
 	 */
 	public PriorityChannel(int numberOfPriorityClasses, int capacityPerPriorityClass) {
 		_numberOfPriorityClasses = numberOfPriorityClasses;
-		_capacityPerPriorityClass = capacityPerPriorityClass;
-		_queues = new LinkedList[numberOfPriorityClasses];
+		_queues = new ArrayList<ConcurrentLinkedQueue<PriorizedObject>>(numberOfPriorityClasses);
+		_freeSlots = new Semaphore[numberOfPriorityClasses];
 		for(int i = 0; i < numberOfPriorityClasses; ++i) {
-			_queues[i] = new LinkedList();
+			_queues.add(new ConcurrentLinkedQueue<PriorizedObject>());
+			_freeSlots[i] = new Semaphore(capacityPerPriorityClass);
 		}
 	}
 
@@ -76,20 +91,9 @@ public class PriorityChannel {
 	 *                              gewartet wurde.
 	 */
 	public void put(PriorizedObject item) throws InterruptedException {
-		int priorityClass = item.getPriorityClass();
-		if(priorityClass < 0 || priorityClass >= _numberOfPriorityClasses) {
-			throw new IllegalArgumentException("Prioritätsklasse muss im Bereich [0 und " + _numberOfPriorityClasses + ") liegen, ist: " + priorityClass);
-		}
-		LinkedList queue = _queues[priorityClass];
-		synchronized(queue) {
-			while(queue.size() >= _capacityPerPriorityClass) queue.wait();
-			queue.addLast(item);
-		}
-		synchronized(_queues) {
-			_queues.notify();
-			++_count;
-		}
-
+		int priorityClass = checkPriorityClass(item);
+		_freeSlots[priorityClass].acquire();
+		insert(item, priorityClass);
 	}
 
 	/**
@@ -100,11 +104,29 @@ public class PriorityChannel {
 	 * @param item    Objekt, das in den Kommunikationskanal übertragen werden soll.
 	 * @param timeout Zeit in Millisekunden, für die bei vollem Kommunikationskanal maximal auf freien Platz gewartet
 	 *                wird.
+	 * @return <code>true</code>, wenn das Objekt übertragen wurde, <code>false</code>, wenn nach Ablauf des Timeouts
+	 *         immer noch kein Platz vorhanden war.
 	 * @throws InterruptedException Wenn der Thread unterbrochen wurde, während auf freien Platz im Kommunikationskanal
 	 *                              gewartet wurde.
 	 */
 	public boolean offer(PriorizedObject item, long timeout) throws InterruptedException {
-		throw new UnsupportedOperationException("nicht implementiert");
+		int priorityClass = checkPriorityClass(item);
+		if(!_freeSlots[priorityClass].tryAcquire(timeout, TimeUnit.MILLISECONDS)) return false;
+		insert(item, priorityClass);
+		return true;
+	}
+
+	private int checkPriorityClass(PriorizedObject item) {
+		int priorityClass = item.getPriorityClass();
+		if(priorityClass < 0 || priorityClass >= _numberOfPriorityClasses) {
+			throw new IllegalArgumentException("Prioritätsklasse muss im Bereich [0 und " + _numberOfPriorityClasses + ") liegen, ist: " + priorityClass);
+		}
+		return priorityClass;
+	}
+
+	private void insert(PriorizedObject item, int priorityClass) {
+		_queues.get(priorityClass).offer(item);
+		_available.release();
 	}
 
 	/**
@@ -120,21 +142,8 @@ public class PriorityChannel {
 	 * @throws InterruptedException Wenn der Thread unterbrochen wurde, während auf Nachrichten gewartet wurde.
 	 */
 	public PriorizedObject take() throws InterruptedException {
-		synchronized(_queues) {
-			while(_count <= 0) _queues.wait();
-			--_count;
-		}
-		for(int i = 0; i < _numberOfPriorityClasses; ++i) {
-			LinkedList queue = _queues[i];
-			synchronized(queue) {
-				int queueSize = queue.size();
-				if(queueSize != 0) {
-					queue.notify();
-					return (PriorizedObject)queue.removeFirst();
-				}
-			}
-		}
-		throw new IllegalStateException("kein Objekt gefunden");
+		_available.acquire();
+		return remove();
 	}
 
 	/**
@@ -152,27 +161,42 @@ public class PriorityChannel {
 	 * @throws InterruptedException Wenn der Thread unterbrochen wurde, während auf Nachrichten gewartet wurde.
 	 */
 	public PriorizedObject poll(long timeout) throws InterruptedException {
-		long maxWaitTime = System.currentTimeMillis() + timeout;
-		synchronized(_queues) {
-			long maxSleep = maxWaitTime - System.currentTimeMillis();
-			while(_count <= 0 && maxSleep > 0) {
-				_queues.wait(maxSleep);
-				maxSleep = maxWaitTime - System.currentTimeMillis();
-			}
-			if(_count <= 0) return null;
-			--_count;
+		if(!_available.tryAcquire(timeout, TimeUnit.MILLISECONDS)) return null;
+		return remove();
+	}
+
+	/**
+	 * Entnimmt bis zu <code>maxItems</code> vorhandene Nachrichten ohne zu warten und fügt sie in der Reihenfolge ihrer
+	 * Priorität an die übergebene Collection an.
+	 *
+	 * @param target   Collection, in die die Nachrichten eingefügt werden.
+	 * @param maxItems Maximale Anzahl zu entnehmender Nachrichten.
+	 * @return Anzahl der entnommenen Nachrichten.
+	 */
+	public int drainTo(Collection<? super PriorizedObject> target, int maxItems) {
+		int count = 0;
+		while(count < maxItems && _available.tryAcquire()) {
+			target.add(remove());
+			count++;
 		}
-		for(int i = 0; i < _numberOfPriorityClasses; ++i) {
-			LinkedList queue = _queues[i];
-			synchronized(queue) {
-				int queueSize = queue.size();
-				if(queueSize != 0) {
-					queue.notify();
-					return (PriorizedObject)queue.removeFirst();
+		return count;
+	}
+
+	/**
+	 * Entnimmt das Objekt mit der höchsten Priorität. Der Aufrufer muss vorher ein Objekt aus {@link #_available}
+	 * zugeteilt bekommen haben. Da die Queues von anderen Empfängern gleichzeitig durchsucht werden, kann ein Durchlauf
+	 * erfolglos bleiben, obwohl ein Objekt für den Aufrufer vorhanden ist. In diesem Fall wird erneut gesucht.
+	 */
+	private PriorizedObject remove() {
+		while(true) {
+			for(int i = 0; i < _numberOfPriorityClasses; ++i) {
+				PriorizedObject item = _queues.get(i).poll();
+				if(item != null) {
+					_freeSlots[i].release();
+					return item;
 				}
 			}
 		}
-		throw new IllegalStateException("kein Objekt gefunden");
 	}
 
 	/**
@@ -181,23 +205,14 @@ public class PriorityChannel {
 	 * @return <code>true</code> bei leerem Kommunikationskanal, sonst <code>false</code>.
 	 */
 	public boolean isEmpty() {
-		synchronized(_queues) {
-			return _count <= 0;
-		}
+		return _available.availablePermits() <= 0;
 	}
 
 	/**
 	 * Löscht alle im Kommunikationskanal vorhandenen Nachrichten.
 	 */
 	public void clear() {
-		synchronized(_queues) {
-			try {
-				while(poll(0) != null) ;
-			}
-			catch(InterruptedException e) {
-				throw new RuntimeException("poll mit timeout von 0 darf kein wait aufrufen", e);
-			}
-		}
+		while(_available.tryAcquire()) remove();
 	}
 
 
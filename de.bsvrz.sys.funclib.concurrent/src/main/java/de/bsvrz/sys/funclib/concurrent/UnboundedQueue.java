@@ -27,7 +27,10 @@
 
 package de.bsvrz.sys.funclib.concurrent;
 
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Queue zum Austausch von Nachrichten zwischen Threads. Mit der Methode {@link #put} können beliebige Objekte
@@ -35,13 +38,23 @@ import java.util.LinkedList;
  * #take} oder {@link #poll} aus der Queue entnommen (empfangen) werden. Die generische Queue kann durch Angabe eines
  * Typs auf diesen bestimmten Objekttypen arbeiten. Die Anzahl der Nachrichten in der Queue ist nicht beschränkt. Die
  * Nachrichten werden in der Reihenfolge empfangen in der sie versendet wurden (first in first out, FIFO).
+ * <p>
+ * Die Queue arbeitet sperrfrei: Sendende Threads tragen ihre Nachrichten ohne gemeinsamen Monitor ein, und eine Nachricht
+ * weckt höchstens einen wartenden Empfänger. Mit {@link #drainTo(Collection, int)} können mehrere Nachrichten in einem
+ * Aufruf entnommen werden. Als Nachricht ist auch <code>null</code> erlaubt.
  *
  * @author Kappich Systemberatung
  * @version $Revision$
  */
 public class UnboundedQueue <E> {
 
-	private final LinkedList<E> _list = new LinkedList<E>();
+	/** Platzhalter für <code>null</code>-Nachrichten, die in der zugrundeliegenden Queue nicht erlaubt sind */
+	private static final Object NULL_MESSAGE = new Object();
+
+	private final LinkedTransferQueue<Object> _queue = new LinkedTransferQueue<Object>();
+
+	/** Anzahl der Nachrichten, wird mitgezählt, da die Größe der zugrundeliegenden Queue nur mit linearem Aufwand bestimmt werden kann */
+	private final LongAdder _size = new LongAdder();
 
 	/**
 	 * Sendet eine Nachricht an die Queue.
@@ -49,10 +62,8 @@ public class UnboundedQueue <E> {
 	 * @param message Zu versendende Nachricht.
 	 */
 	public void put(E message) {
-		synchronized (_list) {
-			_list.addFirst(message);
-			_list.notify();
-		}
+		_size.increment();
+		_queue.offer(message == null ? NULL_MESSAGE : message);
 	}
 
 	/**
@@ -64,10 +75,7 @@ public class UnboundedQueue <E> {
 	 * @throws InterruptedException Wenn der Thread unterbrochen wurde während auf Nachrichten gewartet wurde.
 	 */
 	public E take() throws InterruptedException {
-		synchronized (_list) {
-			while (_list.isEmpty()) _list.wait();
-			return _list.removeLast();
-		}
+		return removed(_queue.take());
 	}
 
 	/**
@@ -81,26 +89,55 @@ public class UnboundedQueue <E> {
 	 * @throws InterruptedException Wenn der Thread unterbrochen wurde während auf Nachrichten gewartet wurde.
 	 */
 	public E poll(long timeout) throws java.lang.InterruptedException {
-		long maxWaitTime = System.currentTimeMillis() + timeout;
-		synchronized (_list) {
-			long maxSleep = maxWaitTime - System.currentTimeMillis();
-			while (_list.isEmpty() && maxSleep > 0) {
-				_list.wait(maxSleep);
-				maxSleep = maxWaitTime - System.currentTimeMillis();
-			}
-			if (_list.isEmpty()) return null;
-			return _list.removeLast();
+		final Object message = _queue.poll(timeout, TimeUnit.MILLISECONDS);
+		if (message == null) return null;
+		return removed(message);
+	}
+
+	/**
+	 * Entnimmt alle vorhandenen Nachrichten ohne zu warten und fügt sie in der Reihenfolge ihres Eintreffens an die
+	 * übergebene Collection an.
+	 *
+	 * @param target Collection, in die die Nachrichten eingefügt werden.
+	 * @return Anzahl der entnommenen Nachrichten.
+	 */
+	public int drainTo(Collection<? super E> target) {
+		return drainTo(target, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Entnimmt bis zu <code>maxMessages</code> vorhandene Nachrichten ohne zu warten und fügt sie in der Reihenfolge ihres
+	 * Eintreffens an die übergebene Collection an. In Verbindung mit {@link #take} kann ein Empfänger so nach dem Aufwachen
+	 * alle inzwischen eingetroffenen Nachrichten auf einmal verarbeiten.
+	 *
+	 * @param target      Collection, in die die Nachrichten eingefügt werden.
+	 * @param maxMessages Maximale Anzahl zu entnehmender Nachrichten.
+	 * @return Anzahl der entnommenen Nachrichten.
+	 */
+	public int drainTo(Collection<? super E> target, int maxMessages) {
+		int count = 0;
+		Object message;
+		while (count < maxMessages && (message = _queue.poll()) != null) {
+			target.add(removed(message));
+			count++;
 		}
+		return count;
 	}
 
 	/**
-	 * Bestimmt die Größe dieser Queue.
+	 * Bestimmt die Größe dieser Queue. Bei gleichzeitigen Zugriffen anderer Threads ist das Ergebnis nur eine
+	 * Momentaufnahme.
 	 *
 	 * @return Anzahl verbleibender Elemente in dieser Queue.
 	 */
 	public int size() {
-		synchronized (_list) {
-			return _list.size();
-		}
+		final long size = _size.sum();
+		return size <= 0 ? 0 : (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E removed(final Object message) {
+		_size.decrement();
+		return message == NULL_MESSAGE ? null : (E) message;
 	}
 }
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.concurrent.
+ *
+ * de.bsvrz.sys.funclib.concurrent is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.concurrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.sys.funclib.concurrent; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet den {@link PriorityChannel}: Reihenfolge nach Prioritätsklassen, Kapazitätsgrenzen und gleichzeitige Zugriffe mehrerer Threads.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class PriorityChannelTest {
+
+	@Test
+	public void testPriorityOrder() throws Exception {
+		final PriorityChannel channel = new PriorityChannel(3, 10);
+		assertTrue(channel.isEmpty());
+		channel.put(new Item(2, 0));
+		channel.put(new Item(1, 1));
+		channel.put(new Item(2, 2));
+		channel.put(new Item(0, 3));
+		channel.put(new Item(1, 4));
+		assertFalse(channel.isEmpty());
+		// Kleinste Prioritätsklasse zuerst, innerhalb einer Klasse in der Reihenfolge des Eintragens
+		assertEquals(3, ((Item)channel.take())._number);
+		assertEquals(1, ((Item)channel.take())._number);
+		assertEquals(4, ((Item)channel.poll(1))._number);
+		final List<Object> drained = new ArrayList<Object>();
+		assertEquals(2, channel.drainTo(drained, 10));
+		assertEquals(0, ((Item)drained.get(0))._number);
+		assertEquals(2, ((Item)drained.get(1))._number);
+		assertTrue(channel.isEmpty());
+		assertNull(channel.poll(1));
+		assertEquals(0, channel.drainTo(drained, 10));
+	}
+
+	@Test
+	public void testCapacityPerPriorityClass() throws Exception {
+		final PriorityChannel channel = new PriorityChannel(2, 2);
+		assertTrue(channel.offer(new Item(0, 0), 0));
+		assertTrue(channel.offer(new Item(0, 1), 0));
+		assertFalse(channel.offer(new Item(0, 2), 10));
+		// Die andere Prioritätsklasse hat eigene Plätze
+		assertTrue(channel.offer(new Item(1, 3), 0));
+		assertEquals(0, ((Item)channel.take())._number);
+		assertTrue(channel.offer(new Item(0, 4), 0));
+		final List<Object> drained = new ArrayList<Object>();
+		assertEquals(2, channel.drainTo(drained, 2));
+		assertEquals(1, ((Item)drained.get(0))._number);
+		assertEquals(4, ((Item)drained.get(1))._number);
+		assertEquals(3, ((Item)channel.take())._number);
+	}
+
+	@Test
+	public void testPutWaitsForFreeSlot() throws Exception {
+		final PriorityChannel channel = new PriorityChannel(1, 1);
+		channel.put(new Item(0, 0));
+		final CountDownLatch done = new CountDownLatch(1);
+		final Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					channel.put(new Item(0, 1));
+					done.countDown();
+				}
+				catch(InterruptedException ignored) {
+				}
+			}
+		};
+		producer.start();
+		Thread.sleep(50);
+		assertEquals(1, done.getCount());
+		assertEquals(0, ((Item)channel.take())._number);
+		producer.join(5000);
+		assertEquals(0, done.getCount());
+		assertEquals(1, ((Item)channel.take())._number);
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		final PriorityChannel channel = new PriorityChannel(2, 3);
+		for(int i = 0; i < 3; i++) {
+			channel.put(new Item(0, i));
+			channel.put(new Item(1, i));
+		}
+		channel.clear();
+		assertTrue(channel.isEmpty());
+		// Nach dem Löschen stehen wieder alle Plätze zur Verfügung
+		for(int i = 0; i < 3; i++) {
+			assertTrue(channel.offer(new Item(0, i), 0));
+			assertTrue(channel.offer(new Item(1, i), 0));
+		}
+		assertFalse(channel.offer(new Item(0, 3), 0));
+	}
+
+	@Test
+	public void testInvalidPriorityClass() throws Exception {
+		final PriorityChannel channel = new PriorityChannel(2, 3);
+		for(int priorityClass : new int[]{-1, 2}) {
+			try {
+				channel.put(new Item(priorityClass, 0));
+				fail("Ungültige Prioritätsklasse wurde akzeptiert: " + priorityClass);
+			}
+			catch(IllegalArgumentException expected) {
+			}
+		}
+		assertTrue(channel.isEmpty());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentProducersAndConsumers() throws Exception {
+		final int producers = 4;
+		final int consumers = 3;
+		final int priorityClasses = 3;
+		final int itemsPerProducer = 50000;
+		final int total = producers * itemsPerProducer;
+		// Kleine Kapazität, damit Sender und Empfänger oft warten müssen
+		final PriorityChannel channel = new PriorityChannel(priorityClasses, 8);
+		final AtomicIntegerArray received = new AtomicIntegerArray(total);
+		final AtomicInteger receivedCount = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for(int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads.add(
+					new Thread("Erzeuger " + p) {
+						@Override
+						public void run() {
+							try {
+								start.await();
+								for(int i = 0; i < itemsPerProducer; i++) {
+									final int number = producer * itemsPerProducer + i;
+									final Item item = new Item(number % priorityClasses, number);
+									if(i % 2 == 0) {
+										channel.put(item);
+									}
+									else {
+										while(!channel.offer(item, 1)) {
+											// Erneut versuchen
+										}
+									}
+								}
+							}
+							catch(Throwable e) {
+								error.compareAndSet(null, e);
+							}
+						}
+					}
+			);
+		}
+		for(int c = 0; c < consumers; c++) {
+			final boolean drain = c == 0;
+			threads.add(
+					new Thread("Verbraucher " + c) {
+						@Override
+						public void run() {
+							try {
+								start.await();
+								final List<Object> batch = new ArrayList<Object>();
+								while(receivedCount.get() < total && error.get() == null) {
+									batch.clear();
+									if(drain) {
+										channel.drainTo(batch, 16);
+										if(batch.isEmpty()) Thread.yield();
+									}
+									else {
+										final PriorizedObject item = channel.poll(10);
+										if(item != null) batch.add(item);
+									}
+									for(final Object item : batch) {
+										final int number = ((Item)item)._number;
+										if(received.getAndIncrement(number) != 0) throw new AssertionError("Doppelt empfangen: " + number);
+										receivedCount.incrementAndGet();
+									}
+								}
+							}
+							catch(Throwable e) {
+								error.compareAndSet(null, e);
+							}
+						}
+					}
+			);
+		}
+		for(final Thread thread : threads) {
+			thread.start();
+		}
+		start.countDown();
+		for(final Thread thread : threads) {
+			thread.join();
+		}
+		if(error.get() != null) throw new AssertionError(error.get());
+		assertEquals(total, receivedCount.get());
+		for(int i = 0; i < total; i++) {
+			assertEquals("Element " + i, 1, received.get(i));
+		}
+		assertTrue(channel.isEmpty());
+		// Alle Plätze wurden wieder freigegeben
+		for(int priorityClass = 0; priorityClass < priorityClasses; priorityClass++) {
+			for(int i = 0; i < 8; i++) {
+				assertTrue(channel.offer(new Item(priorityClass, i), 0));
+			}
+			assertFalse(channel.offer(new Item(priorityClass, 8), 0));
+		}
+	}
+
+	private static final class Item implements PriorizedObject {
+
+		private final int _priorityClass;
+
+		private final int _number;
+
+		private Item(final int priorityClass, final int number) {
+			_priorityClass = priorityClass;
+			_number = number;
+		}
+
+		public int getPriorityClass() {
+			return _priorityClass;
+		}
+
+		@Override
+		public String toString() {
+			return "Item{" + "priorityClass=" + _priorityClass + ", number=" + _number + "}";
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.concurrent.
+ *
+ * de.bsvrz.sys.funclib.concurrent is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.concurrent is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.sys.funclib.concurrent; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet die {@link UnboundedQueue} mit einem Thread und mit mehreren gleichzeitig sendenden Threads.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class UnboundedQueueTest {
+
+	@Test
+	public void testFifoWithNullMessages() throws Exception {
+		final UnboundedQueue<String> queue = new UnboundedQueue<String>();
+		assertEquals(0, queue.size());
+		assertNull(queue.poll(1));
+		queue.put("a");
+		queue.put(null);
+		queue.put("b");
+		assertEquals(3, queue.size());
+		assertEquals("a", queue.take());
+		// null ist eine gültige Nachricht und wird nicht mit einer leeren Queue verwechselt
+		assertNull(queue.take());
+		assertEquals(1, queue.size());
+		assertEquals("b", queue.poll(1000));
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testDrainTo() {
+		final UnboundedQueue<Integer> queue = new UnboundedQueue<Integer>();
+		for(int i = 0; i < 10; i++) {
+			queue.put(i == 5 ? null : i);
+		}
+		final List<Integer> target = new ArrayList<Integer>();
+		assertEquals(4, queue.drainTo(target, 4));
+		assertEquals(6, queue.size());
+		assertEquals(0, queue.drainTo(target, 0));
+		assertEquals(6, queue.drainTo(target));
+		assertEquals(0, queue.size());
+		assertEquals(0, queue.drainTo(target));
+		assertEquals(10, target.size());
+		for(int i = 0; i < 10; i++) {
+			assertEquals(i == 5 ? null : Integer.valueOf(i), target.get(i));
+		}
+	}
+
+	@Test
+	public void testTakeWaitsForMessage() throws Exception {
+		final UnboundedQueue<String> queue = new UnboundedQueue<String>();
+		final AtomicReference<String> received = new AtomicReference<String>();
+		final CountDownLatch done = new CountDownLatch(1);
+		final Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					received.set(queue.take());
+				}
+				catch(InterruptedException ignored) {
+				}
+				done.countDown();
+			}
+		};
+		consumer.start();
+		Thread.sleep(50);
+		assertEquals(1, done.getCount());
+		queue.put("x");
+		consumer.join(5000);
+		assertEquals("x", received.get());
+		assertEquals(0, queue.size());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentProducers() throws Exception {
+		final int producers = 4;
+		final int messagesPerProducer = 100000;
+		final UnboundedQueue<Integer> queue = new UnboundedQueue<Integer>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for(int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads.add(
+					new Thread("Erzeuger " + p) {
+						@Override
+						public void run() {
+							try {
+								start.await();
+							}
+							catch(InterruptedException e) {
+								return;
+							}
+							for(int i = 0; i < messagesPerProducer; i++) {
+								queue.put(producer * messagesPerProducer + i);
+							}
+						}
+					}
+			);
+		}
+		for(final Thread thread : threads) {
+			thread.start();
+		}
+		start.countDown();
+
+		// Die Nachrichten eines Erzeugers müssen in der Reihenfolge ankommen, in der sie gesendet wurden
+		final int[] lastValue = new int[producers];
+		for(int p = 0; p < producers; p++) {
+			lastValue[p] = -1;
+		}
+		final List<Integer> batch = new ArrayList<Integer>();
+		int received = 0;
+		while(received < producers * messagesPerProducer) {
+			batch.clear();
+			batch.add(queue.take());
+			queue.drainTo(batch, 100);
+			for(final Integer value : batch) {
+				final int producer = value / messagesPerProducer;
+				final int index = value % messagesPerProducer;
+				assertEquals("Reihenfolge von Erzeuger " + producer, lastValue[producer] + 1, index);
+				lastValue[producer] = index;
+				received++;
+			}
+		}
+		for(final Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, queue.size());
+		assertNull(queue.poll(0));
+	}
+}
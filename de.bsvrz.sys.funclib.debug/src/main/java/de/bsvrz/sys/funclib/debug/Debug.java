@@ -163,6 +163,26 @@ public class Debug {
 	/** Aktueller Handler für stderr-Ausgabe im Text-Format */
 	private static Handler _handlerStderrText;
 
+	/**
+	 * Handler für die asynchrone Ausgabe, an den die Handler der einzelnen
+	 * Ausgabekanäle angehängt werden, oder <code>null</code> bei synchroner
+	 * Ausgabe.
+	 */
+	private static DebugAsyncHandler _asyncHandler;
+
+	/**
+	 * Legt fest, ob die Ausgaben asynchron in einem eigenen Thread erfolgen.
+	 * Kann über Aufrufparameter geändert werden.
+	 */
+	private static boolean _debugAsync = false;
+
+	/**
+	 * Anzahl der Meldungen, die bei asynchroner Ausgabe maximal gepuffert
+	 * werden (100 bis {@link DebugAsyncHandler#MAX_CAPACITY}). Kann über
+	 * Aufrufparameter geändert werden.
+	 */
+	private static int _debugAsyncBufferSize = 10000;
+
 	/**
 	 * Pfad für Ausgabedateien. Der komplette Dateiname wird gebildet aus
 	 * {@link #_debugFilePath}/debug/{@link #_rootName}.{@link #_debugFileNamePattern}._fileExtensionXYZ
@@ -341,6 +361,8 @@ public class Debug {
 			_debugLevelFileExcel = string2Level(argumentList.fetchArgument("-debugLevelFileExcel=OFF").asString());
 			_debugLevelFileHTML = string2Level(argumentList.fetchArgument("-debugLevelFileHTML=OFF").asString());
 			_debugPath = argumentList.fetchArgument("-debugFilePath=.").asDirectory();
+			_debugAsync = argumentList.fetchArgument("-debugAsynchron=nein").booleanValue();
+			_debugAsyncBufferSize = argumentList.fetchArgument("-debugAsynchronPuffer=10000").intValueBetween(100, DebugAsyncHandler.MAX_CAPACITY);
 			final ArgumentList.ValueSelection stackTracesSelection = new ArgumentList.ValueSelection();
 			stackTracesSelection.add("auto").ignoreCase().convertTo(-1);
 			stackTracesSelection.add("ja").alias("wahr").alias("an").alias("true").alias("yes").alias("on").ignoreCase()
@@ -383,6 +405,15 @@ public class Debug {
 
 		// Handler und Formatter erzeugen und registrieren
 		try {
+			// Bei asynchroner Ausgabe werden die Handler der Ausgabekanäle nicht
+			// direkt beim Rootlogger registriert, sondern beim asynchronen
+			// Handler, der sie aus einem eigenen Thread aufruft.
+			if (_debugAsync) {
+				_asyncHandler = new DebugAsyncHandler(_debugAsyncBufferSize, _rootName);
+				_rootLogger._logger.addHandler(_asyncHandler);
+			} else {
+				_asyncHandler = null;
+			}
 			File directory = new File(_debugPath, "debug");
 			String fileName = directory.getAbsolutePath() + "/" + _rootName + _debugFileNamePattern;
 			// Handler und Formatter erzeugen, aber nur, wenn mindestens ein
@@ -424,7 +455,7 @@ public class Debug {
 															// holen
 				_handlerFileXML.setFormatter(_formatterXML);
 				_handlerFileXML.setLevel(_debugLevelFileXML);
-				_rootLogger._logger.addHandler(_handlerFileXML);
+				addHandler(_handlerFileXML);
 			}
 			if (!_debugLevelFileText.equals(OFF)) {
 				_handlerFileText = new FileHandler(fileName + _fileExtensionText, _debugFileSize, _debugFileCount,
@@ -436,7 +467,7 @@ public class Debug {
 																	// holen
 				_handlerFileText.setFormatter(_formatterFileText);
 				_handlerFileText.setLevel(_debugLevelFileText);
-				_rootLogger._logger.addHandler(_handlerFileText);
+				addHandler(_handlerFileText);
 			}
 			if (!_debugLevelFileHTML.equals(OFF)) {
 				_handlerFileHTML = new FileHandler(fileName + _fileExtensionHTML, _debugFileSize, _debugFileCount,
@@ -446,7 +477,7 @@ public class Debug {
 															// holen
 				_handlerFileHTML.setFormatter(_formatterHTML);
 				_handlerFileHTML.setLevel(_debugLevelFileHTML);
-				_rootLogger._logger.addHandler(_handlerFileHTML);
+				addHandler(_handlerFileHTML);
 			}
 			if (!_debugLevelFileExcel.equals(OFF)) {
 				_handlerFileExcel = new FileHandler(fileName + _fileExtensionExcel, _debugFileSize, _debugFileCount,
@@ -456,7 +487,7 @@ public class Debug {
 																// holen
 				_handlerFileExcel.setFormatter(_formatterExcel);
 				_handlerFileExcel.setLevel(_debugLevelFileExcel);
-				_rootLogger._logger.addHandler(_handlerFileExcel);
+				addHandler(_handlerFileExcel);
 			}
 		} catch (SecurityException e) {
 			System.err.println("Fehler bei Konfiguration der Handler des DebugLoggers:");
@@ -480,12 +511,30 @@ public class Debug {
 		synchronized (_rootLogger) {
 			if (_handlerStderrText != null) {
 				_rootLogger._logger.removeHandler(_handlerStderrText);
+				if (_asyncHandler != null) {
+					_asyncHandler.removeHandler(_handlerStderrText);
+				}
 			}
-			_rootLogger._logger.addHandler(consoleHandler);
+			addHandler(consoleHandler);
 			_handlerStderrText = consoleHandler;
 		}
 	}
 
+	/**
+	 * Registriert den Handler eines Ausgabekanals beim Wurzel-DebugLogger bzw.
+	 * bei asynchroner Ausgabe beim asynchronen Handler.
+	 *
+	 * @param handler
+	 *            Handler des Ausgabekanals
+	 */
+	private static void addHandler(Handler handler) {
+		if (_asyncHandler != null) {
+			_asyncHandler.addHandler(handler);
+		} else {
+			_rootLogger._logger.addHandler(handler);
+		}
+	}
+
 	/**
 	 * Konvertiert den Debuglevel aus den Aufrufparametern von String in Level.
 	 *
@@ -588,14 +637,31 @@ public class Debug {
 	 */
 	public static Debug getLogger() {
 		String debugClassName = "Klassenname nicht ermittelbar!";
-		Throwable t = new Throwable();
-		if (t.getStackTrace().length > 1) {
-			debugClassName = t.getStackTrace()[1].getClassName();
+		// Stacktrace nur einmal ermitteln, da dies vergleichsweise aufwendig ist
+		final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+		if (stackTrace.length > 1) {
+			debugClassName = stackTrace[1].getClassName();
 		}
 		String _loggerName = _rootName + "." + debugClassName;
 		return new Debug(Logger.getLogger(_loggerName));
 	}
 
+	/**
+	 * Gibt den DebugLogger für die angegebene Klasse zurück. Entspricht
+	 * {@link #getLogger()}, die aufrufende Klasse muss aber nicht über den
+	 * Stacktrace ermittelt werden.
+	 *
+	 * @param clazz
+	 *            Klasse, deren voll qualifizierter Name für den Namen des
+	 *            DebugLoggers verwendet wird
+	 *
+	 * @return Logger Objekt, welches für die Debugausgeben und zur Steuerung
+	 *         des Debuglevels verwendet wird.
+	 */
+	public static Debug getLogger(Class<?> clazz) {
+		return new Debug(Logger.getLogger(_rootName + "." + clazz.getName()));
+	}
+
 	/**
 	 * TESTMETHODE: Setzt DebugLevel des entsprechenden Loggers. Setzt den Level
 	 * des angebenen Loggers UND aller untergeordneten Logger auf den
@@ -673,6 +739,22 @@ public class Debug {
 
 	// -------------------------- OTHER METHODS --------------------------
 
+	/**
+	 * Prüft, ob eine Meldung auf dem angegebenen Level von diesem DebugLogger
+	 * ausgegeben würde. Kann verwendet werden, um den Aufbau aufwendiger
+	 * Meldungstexte zu vermeiden, z.B.
+	 * <code>if(_debug.isLoggable(Debug.FINE)) _debug.fine("..." + data);</code>
+	 *
+	 * @param level
+	 *            DebugLevel der Meldung
+	 *
+	 * @return <code>true</code>, falls Meldungen auf diesem Level ausgegeben
+	 *         werden
+	 */
+	public boolean isLoggable(Level level) {
+		return _logger.isLoggable(level);
+	}
+
 	/**
 	 * Debugausgabe auf Level CONFIG.
 	 * <p>
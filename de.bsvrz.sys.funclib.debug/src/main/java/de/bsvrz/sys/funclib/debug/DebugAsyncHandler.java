@@ -0,0 +1,347 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.debug.
+ *
+ * de.bsvrz.sys.funclib.debug is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.debug is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with de.bsvrz.sys.funclib.debug; If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.debug;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler für die asynchrone Debugausgabe. Die Meldungen werden vom aufrufenden Thread nur in einen Ringpuffer fester Größe eingetragen. Ein einzelner
+ * Ausgabe-Thread entnimmt die Meldungen und gibt sie an die eigentlichen Ausgabekanäle (Handler mit den jeweiligen Formatierern) weiter. Die Formatierung
+ * und die Ein-/Ausgabe finden so nicht mehr im aufrufenden Thread statt.
+ * <p>
+ * Ist der Puffer voll, so werden Meldungen unterhalb des Levels {@link Debug#WARNING} verworfen und die Anzahl der verworfenen Meldungen später
+ * ausgegeben. Warnungen und Fehler werden nicht verworfen, hier wartet der aufrufende Thread, bis wieder Platz im Puffer ist.
+ * <p>
+ * Parameter der Meldungen werden beim Eintragen in den Puffer in Text umgewandelt, damit spätere Änderungen an den übergebenen Objekten die Ausgabe nicht
+ * verfälschen.
+ * <p>
+ * Beim Schließen wird eine Endemarkierung in den Puffer eingetragen. Der Ausgabe-Thread gibt alle vorher eingetragenen Meldungen aus und beendet sich dann.
+ * Meldungen, die danach eintreffen, werden erst nach dem Ende des Ausgabe-Threads synchron ausgegeben, so dass die Reihenfolge erhalten bleibt und
+ * keine Meldung im Puffer zurückbleibt.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+class DebugAsyncHandler extends Handler {
+
+	/** Maximale Anzahl Meldungen, die gepuffert werden können. Größere Werte werden auf diesen Wert begrenzt. */
+	static final int MAX_CAPACITY = 1000000;
+
+	/** Maximale Anzahl Meldungen, die der Ausgabe-Thread auf einmal aus dem Puffer entnimmt */
+	private static final int MAX_BATCH_SIZE = 1000;
+
+	/** Endemarkierung, die beim Schließen als letzte Meldung in den Puffer eingetragen wird */
+	private static final LogRecord END_OF_OUTPUT = new LogRecord(Level.OFF, "");
+
+	/** Ringpuffer mit den noch auszugebenden Meldungen */
+	private final ArrayBlockingQueue<LogRecord> _queue;
+
+	/** Eigentliche Ausgabekanäle */
+	private final List<Handler> _handlers = new CopyOnWriteArrayList<Handler>();
+
+	/** Anzahl der Meldungen, die wegen eines vollen Puffers verworfen wurden */
+	private final AtomicLong _droppedRecords = new AtomicLong();
+
+	/** Anzahl der Meldungen, die in den Puffer eingetragen wurden */
+	private final AtomicLong _queuedRecords = new AtomicLong();
+
+	/** Anzahl der Meldungen, die vom Ausgabe-Thread ausgegeben wurden */
+	private final AtomicLong _writtenRecords = new AtomicLong();
+
+	/** Ausgabe-Thread */
+	private final Thread _writerThread;
+
+	/** Name des Loggers, unter dem Hinweise auf verworfene Meldungen ausgegeben werden */
+	private final String _loggerName;
+
+	/**
+	 * Sperre, die verhindert, dass Meldungen nach der Endemarkierung in den Puffer eingetragen werden. Das Eintragen erfolgt unter der Lesesperre, das
+	 * Schließen unter der Schreibsperre.
+	 */
+	private final ReentrantReadWriteLock _closeLock = new ReentrantReadWriteLock();
+
+	/** Sperre, damit Meldungen nicht gleichzeitig vom Ausgabe-Thread und synchron nach dem Schließen ausgegeben werden */
+	private final Object _outputLock = new Object();
+
+	private volatile boolean _closed = false;
+
+	/**
+	 * Erzeugt einen neuen Handler und startet den Ausgabe-Thread.
+	 *
+	 * @param capacity
+	 *            Anzahl Meldungen, die maximal gepuffert werden, höchstens
+	 *            {@link #MAX_CAPACITY}
+	 * @param loggerName
+	 *            Name des Loggers, unter dem Hinweise auf verworfene Meldungen
+	 *            ausgegeben werden
+	 */
+	DebugAsyncHandler(final int capacity, final String loggerName) {
+		_queue = new ArrayBlockingQueue<LogRecord>(Math.min(capacity, MAX_CAPACITY));
+		_loggerName = loggerName;
+		setLevel(Level.ALL);
+		_writerThread = new Thread(new Runnable() {
+			public void run() {
+				writeRecords();
+			}
+		}, "Debug-Ausgabe");
+		_writerThread.setDaemon(true);
+		_writerThread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread("Debug-Ausgabe beenden") {
+			@Override
+			public void run() {
+				close();
+			}
+		});
+	}
+
+	/**
+	 * Fügt einen Ausgabekanal hinzu.
+	 *
+	 * @param handler
+	 *            Ausgabekanal
+	 */
+	void addHandler(final Handler handler) {
+		_handlers.add(handler);
+	}
+
+	/**
+	 * Entfernt einen Ausgabekanal.
+	 *
+	 * @param handler
+	 *            Ausgabekanal
+	 */
+	void removeHandler(final Handler handler) {
+		_handlers.remove(handler);
+	}
+
+	/**
+	 * Eine Meldung wird nur gepuffert, wenn mindestens ein Ausgabekanal sie
+	 * ausgeben würde.
+	 */
+	@Override
+	public boolean isLoggable(final LogRecord record) {
+		if (record == null) {
+			return false;
+		}
+		for (Handler handler : _handlers) {
+			if (handler.isLoggable(record)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void publish(final LogRecord record) {
+		if (!isLoggable(record)) {
+			return;
+		}
+		final Object[] parameters = record.getParameters();
+		if (parameters != null) {
+			final Object[] texts = new Object[parameters.length];
+			for (int i = 0; i < parameters.length; i++) {
+				texts[i] = String.valueOf(parameters[i]);
+			}
+			record.setParameters(texts);
+		}
+		_closeLock.readLock().lock();
+		try {
+			if (!_closed) {
+				enqueue(record);
+				return;
+			}
+		} finally {
+			_closeLock.readLock().unlock();
+		}
+		// Nach dem Schließen (z.B. beim Herunterfahren) synchron ausgeben
+		awaitWriterThread();
+		synchronized (_outputLock) {
+			writeRecord(record);
+		}
+	}
+
+	private void enqueue(final LogRecord record) {
+		if (_queue.offer(record)) {
+			_queuedRecords.incrementAndGet();
+			return;
+		}
+		if (record.getLevel().intValue() < Debug.WARNING.intValue()) {
+			_droppedRecords.incrementAndGet();
+			return;
+		}
+		try {
+			_queue.put(record);
+			_queuedRecords.incrementAndGet();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			_droppedRecords.incrementAndGet();
+		}
+	}
+
+	/** Wartet, bis alle bisher gepufferten Meldungen ausgegeben wurden. */
+	@Override
+	public void flush() {
+		final long queued = _queuedRecords.get();
+		final long end = System.currentTimeMillis() + 10000;
+		synchronized (this) {
+			while (_writtenRecords.get() < queued && _writerThread.isAlive() && System.currentTimeMillis() < end) {
+				try {
+					wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+		for (Handler handler : _handlers) {
+			handler.flush();
+		}
+	}
+
+	/**
+	 * Gibt alle gepufferten Meldungen aus und beendet den Ausgabe-Thread. Die
+	 * Ausgabekanäle selbst werden nicht geschlossen.
+	 */
+	@Override
+	public void close() {
+		_closeLock.writeLock().lock();
+		try {
+			if (_closed) {
+				return;
+			}
+			_closed = true;
+		} finally {
+			_closeLock.writeLock().unlock();
+		}
+		// Nach dem Setzen von _closed wird nichts mehr eingetragen, die Endemarkierung ist also der letzte Eintrag im Puffer
+		boolean interrupted = false;
+		while (_writerThread.isAlive()) {
+			try {
+				_queue.put(END_OF_OUTPUT);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		awaitWriterThread();
+		// Falls der Ausgabe-Thread unerwartet beendet wurde, verbliebene Meldungen hier ausgeben
+		final List<LogRecord> remaining = new ArrayList<LogRecord>();
+		_queue.drainTo(remaining);
+		synchronized (_outputLock) {
+			for (LogRecord record : remaining) {
+				if (record != END_OF_OUTPUT) {
+					writeRecord(record);
+				}
+			}
+		}
+		for (Handler handler : _handlers) {
+			handler.flush();
+		}
+	}
+
+	/**
+	 * Wartet höchstens 10 Sekunden auf das Ende des Ausgabe-Threads. Wird aus
+	 * dem Ausgabe-Thread selbst (z.B. von einem Ausgabekanal) aufgerufen, so
+	 * wird nicht gewartet.
+	 */
+	private void awaitWriterThread() {
+		if (Thread.currentThread() == _writerThread) {
+			return;
+		}
+		try {
+			_writerThread.join(10000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeRecords() {
+		final List<LogRecord> records = new ArrayList<LogRecord>();
+		boolean end = false;
+		while (!end) {
+			try {
+				final LogRecord first = _queue.poll(1, TimeUnit.SECONDS);
+				if (first != null) {
+					records.add(first);
+					_queue.drainTo(records, MAX_BATCH_SIZE);
+					int written = 0;
+					synchronized (_outputLock) {
+						for (LogRecord record : records) {
+							if (record == END_OF_OUTPUT) {
+								end = true;
+								break;
+							}
+							writeRecord(record);
+							written++;
+						}
+					}
+					_writtenRecords.addAndGet(written);
+					records.clear();
+				}
+				final long dropped = _droppedRecords.getAndSet(0);
+				if (dropped > 0) {
+					final LogRecord record = new LogRecord(Debug.WARNING,
+							dropped + " Debug-Meldungen wurden verworfen, da der Puffer für die asynchrone Ausgabe voll war");
+					record.setLoggerName(_loggerName);
+					synchronized (_outputLock) {
+						writeRecord(record);
+					}
+				}
+				synchronized (this) {
+					notifyAll();
+				}
+			} catch (InterruptedException e) {
+				// Der Thread wird nur über die Endemarkierung beendet
+			} catch (RuntimeException e) {
+				if (records.remove(END_OF_OUTPUT)) {
+					end = true;
+				}
+				_writtenRecords.addAndGet(records.size());
+				records.clear();
+				reportError("Fehler bei der asynchronen Debugausgabe", e, 0);
+			}
+		}
+	}
+
+	private void writeRecord(final LogRecord record) {
+		for (Handler handler : _handlers) {
+			handler.publish(record);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+/**
+ * Sperrfreier FIFO-Ringpuffer für <code>double</code>-Werte mit genau einem produzierenden und einem verarbeitenden Thread. Die Werte werden als Bitmuster in
+ * einem {@link LongRingBuffer} abgelegt und damit ohne Boxing übertragen. Im Gegensatz zu {@link NumberRingBuffer} werden Minimum, Maximum und Summe nicht
+ * mitgeführt.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class DoubleRingBuffer {
+
+	private final LongRingBuffer _buffer;
+
+	/** @param capacity Kapazität des Ringpuffers, wird auf die nächste Zweierpotenz aufgerundet. */
+	public DoubleRingBuffer(int capacity) {
+		_buffer = new LongRingBuffer(capacity);
+	}
+
+	/** @return Kapazität des Ringpuffers. */
+	public int maxSize() {
+		return _buffer.maxSize();
+	}
+
+	/**
+	 * Fügt einen Wert an letzter Stelle ein. Darf nur vom produzierenden Thread aufgerufen werden.
+	 *
+	 * @param value Einzufügender Wert
+	 *
+	 * @return Wahr, wenn Platz im Puffer war und der Wert eingefügt wurde, falsch sonst
+	 */
+	public boolean push(double value) {
+		return _buffer.push(Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Entnimmt den ersten Wert. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param valueIfEmpty Wert, der zurückgegeben wird, wenn der Puffer leer ist, z.B. {@link Double#NaN}
+	 *
+	 * @return Der erste Wert oder <code>valueIfEmpty</code>
+	 */
+	public double popNoWait(double valueIfEmpty) {
+		return Double.longBitsToDouble(_buffer.popNoWait(Double.doubleToRawLongBits(valueIfEmpty)));
+	}
+
+	/**
+	 * Entnimmt den ersten Wert. Wenn der Puffer leer ist, blockiert der aufrufende Thread, bis ein Wert eingefügt wurde. Darf nur vom verarbeitenden Thread
+	 * aufgerufen werden.
+	 *
+	 * @return Der erste Wert
+	 *
+	 * @throws InterruptedException
+	 */
+	public double pop() throws InterruptedException {
+		return Double.longBitsToDouble(_buffer.pop());
+	}
+
+	/**
+	 * Entnimmt bis zu <code>length</code> Werte in einem Schritt. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param target Feld, in das die Werte kopiert werden
+	 * @param offset Erste zu beschreibende Position in <code>target</code>
+	 * @param length Maximale Anzahl zu entnehmender Werte
+	 *
+	 * @return Anzahl entnommener Werte
+	 */
+	public int drainTo(double[] target, int offset, int length) {
+		final long[] bits = new long[Math.min(length, _buffer.maxSize())];
+		final int count = _buffer.drainTo(bits, 0, bits.length);
+		for(int i = 0; i < count; i++) {
+			target[offset + i] = Double.longBitsToDouble(bits[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Liefert den ersten Wert ohne ihn zu entfernen. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param valueIfEmpty Wert, der zurückgegeben wird, wenn der Puffer leer ist
+	 *
+	 * @return Der erste Wert oder <code>valueIfEmpty</code>
+	 */
+	public double peek(double valueIfEmpty) {
+		return Double.longBitsToDouble(_buffer.peek(Double.doubleToRawLongBits(valueIfEmpty)));
+	}
+
+	/** @return Anzahl Werte im Ringpuffer. Bei gleichzeitigen Zugriffen ist das Ergebnis nur eine Momentaufnahme. */
+	public int size() {
+		return _buffer.size();
+	}
+
+	/** @return <code>true</code> falls sich keine Werte im Ringpuffer befinden. */
+	public boolean isEmpty() {
+		return _buffer.isEmpty();
+	}
+
+	/**
+	 * Zeigt ob der Buffer vollständig gefüllt ist.
+	 *
+	 * @return <code>true</code> falls der Buffer vollständig gefüllt.<code>false</code> sonst.
+	 */
+	public boolean isFull() {
+		return _buffer.isFull();
+	}
+
+	/**
+	 * Informmationsausgabe.
+	 *
+	 * @return Liefert die Kapazität und die Anzahl der Werte im Puffer zurück.
+	 */
+	public String status() {
+		return _buffer.status();
+	}
+}
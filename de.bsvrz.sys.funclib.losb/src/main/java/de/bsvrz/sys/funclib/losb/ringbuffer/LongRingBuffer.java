@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+/**
+ * Sperrfreier FIFO-Ringpuffer für <code>long</code>-Werte mit genau einem produzierenden und einem verarbeitenden Thread. Die Werte werden ohne Boxing in
+ * einem <code>long</code>-Feld abgelegt, ansonsten entspricht das Verhalten {@link SingleProducerRingBuffer}. Da jeder Wert gültig ist, liefern die nicht
+ * blockierenden Lesemethoden bei leerem Puffer einen vom Aufrufer vorgegebenen Ersatzwert.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ * @see DoubleRingBuffer
+ */
+public class LongRingBuffer {
+
+	private final long[] _buffer;
+
+	private final int _mask;
+
+	/** Nächste zu lesende Position, Zwischenspeicher: zuletzt gelesener Stand von {@link #_tail} */
+	private final Sequence _head = new Sequence(0);
+
+	/** Nächste zu schreibende Position, Zwischenspeicher: zuletzt gelesener Stand von {@link #_head} */
+	private final Sequence _tail = new Sequence(0);
+
+	/** @param capacity Kapazität des Ringpuffers, wird auf die nächste Zweierpotenz aufgerundet. */
+	public LongRingBuffer(int capacity) {
+		_buffer = new long[Sequence.powerOfTwo(capacity)];
+		_mask = _buffer.length - 1;
+	}
+
+	/** @return Kapazität des Ringpuffers. */
+	public int maxSize() {
+		return _buffer.length;
+	}
+
+	/**
+	 * Fügt einen Wert an letzter Stelle ein. Darf nur vom produzierenden Thread aufgerufen werden.
+	 *
+	 * @param value Einzufügender Wert
+	 *
+	 * @return Wahr, wenn Platz im Puffer war und der Wert eingefügt wurde, falsch sonst
+	 */
+	public boolean push(long value) {
+		final long tail = _tail.get();
+		if(tail - _tail._cache >= _buffer.length) {
+			_tail._cache = _head.get();
+			if(tail - _tail._cache >= _buffer.length) return false;
+		}
+		_buffer[(int)tail & _mask] = value;
+		_tail.lazySet(tail + 1);
+		return true;
+	}
+
+	/**
+	 * Entnimmt den ersten Wert. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param valueIfEmpty Wert, der zurückgegeben wird, wenn der Puffer leer ist
+	 *
+	 * @return Der erste Wert oder <code>valueIfEmpty</code>
+	 */
+	public long popNoWait(long valueIfEmpty) {
+		final long head = _head.get();
+		if(!available(head)) return valueIfEmpty;
+		final long erg = _buffer[(int)head & _mask];
+		_head.lazySet(head + 1);
+		return erg;
+	}
+
+	/**
+	 * Entnimmt den ersten Wert. Wenn der Puffer leer ist, blockiert der aufrufende Thread, bis ein Wert eingefügt wurde. Darf nur vom verarbeitenden Thread
+	 * aufgerufen werden.
+	 *
+	 * @return Der erste Wert
+	 *
+	 * @throws InterruptedException
+	 */
+	public long pop() throws InterruptedException {
+		final long head = _head.get();
+		for(int round = 0; !available(head); round++) {
+			Sequence.idle(round);
+		}
+		final long erg = _buffer[(int)head & _mask];
+		_head.lazySet(head + 1);
+		return erg;
+	}
+
+	/**
+	 * Entnimmt bis zu <code>length</code> Werte in einem Schritt. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param target Feld, in das die Werte kopiert werden
+	 * @param offset Erste zu beschreibende Position in <code>target</code>
+	 * @param length Maximale Anzahl zu entnehmender Werte
+	 *
+	 * @return Anzahl entnommener Werte
+	 */
+	public int drainTo(long[] target, int offset, int length) {
+		final long head = _head.get();
+		_head._cache = _tail.get();
+		final int count = (int)Math.min(length, _head._cache - head);
+		if(count <= 0) return 0;
+		final int start = (int)head & _mask;
+		final int first = Math.min(count, _buffer.length - start);
+		System.arraycopy(_buffer, start, target, offset, first);
+		System.arraycopy(_buffer, 0, target, offset + first, count - first);
+		_head.lazySet(head + count);
+		return count;
+	}
+
+	/**
+	 * Liefert den ersten Wert ohne ihn zu entfernen. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param valueIfEmpty Wert, der zurückgegeben wird, wenn der Puffer leer ist
+	 *
+	 * @return Der erste Wert oder <code>valueIfEmpty</code>
+	 */
+	public long peek(long valueIfEmpty) {
+		final long head = _head.get();
+		if(!available(head)) return valueIfEmpty;
+		return _buffer[(int)head & _mask];
+	}
+
+	/** Prüft, ob an der Leseposition ein Wert vorhanden ist, und liest den Schreibzähler nur, wenn der zwischengespeicherte Stand nicht ausreicht. */
+	private boolean available(final long head) {
+		if(head < _head._cache) return true;
+		_head._cache = _tail.get();
+		return head < _head._cache;
+	}
+
+	/** @return Anzahl Werte im Ringpuffer. Bei gleichzeitigen Zugriffen ist das Ergebnis nur eine Momentaufnahme. */
+	public int size() {
+		final long head = _head.get();
+		final long tail = _tail.get();
+		return (int)Math.max(0, Math.min(tail - head, _buffer.length));
+	}
+
+	/** @return <code>true</code> falls sich keine Werte im Ringpuffer befinden. */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Zeigt ob der Buffer vollständig gefüllt ist.
+	 *
+	 * @return <code>true</code> falls der Buffer vollständig gefüllt.<code>false</code> sonst.
+	 */
+	public boolean isFull() {
+		return size() >= _buffer.length;
+	}
+
+	/**
+	 * Informmationsausgabe.
+	 *
+	 * @return Liefert die Kapazität und die Anzahl der Werte im Puffer zurück.
+	 */
+	public String status() {
+		return "capacity=" + _buffer.length + " size=" + size();
+	}
+}
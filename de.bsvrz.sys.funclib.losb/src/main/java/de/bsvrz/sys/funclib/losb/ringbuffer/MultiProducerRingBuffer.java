@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sperrfreier FIFO-Ringpuffer für beliebig viele produzierende und verarbeitende Threads. Schreibende und lesende Threads reservieren sich eine Position durch
+ * atomares Erhöhen des jeweiligen Sequenzzählers. Zu jedem Feld des Puffers wird zusätzlich eine Sequenznummer geführt, an der ein Thread erkennt, ob das
+ * Feld zum Schreiben bzw. Lesen bereit ist. Ein Thread, der zwischen Reservieren und Freigeben eines Felds verdrängt wird, hält dadurch nur dieses eine Feld
+ * auf, nicht den ganzen Puffer.
+ * <p>
+ * Die Kapazität wird beim Anlegen auf die nächste Zweierpotenz aufgerundet. Bei genau einem produzierenden und einem verarbeitenden Thread ist
+ * {@link SingleProducerRingBuffer} schneller.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ * @param <E> Typ der Elemente im Ringpuffer.
+ */
+public class MultiProducerRingBuffer<E> {
+
+	private final AtomicReferenceArray<E> _buffer;
+
+	/**
+	 * Sequenznummern der Felder. Ist die Sequenznummer eines Felds gleich der Schreibposition, kann es beschrieben werden, ist sie um eins größer als die
+	 * Leseposition, kann es gelesen werden.
+	 */
+	private final AtomicLongArray _slotSequences;
+
+	private final int _capacity;
+
+	private final int _mask;
+
+	/** Nächste zu lesende Position */
+	private final Sequence _head = new Sequence(0);
+
+	/** Nächste zu schreibende Position */
+	private final Sequence _tail = new Sequence(0);
+
+	/** @param capacity Kapazität des Ringpuffers, wird auf die nächste Zweierpotenz aufgerundet. */
+	public MultiProducerRingBuffer(int capacity) {
+		_capacity = Sequence.powerOfTwo(capacity);
+		_mask = _capacity - 1;
+		_buffer = new AtomicReferenceArray<E>(_capacity);
+		_slotSequences = new AtomicLongArray(_capacity);
+		for(int i = 0; i < _capacity; i++) {
+			_slotSequences.lazySet(i, i);
+		}
+	}
+
+	/** @return Kapazität des Ringpuffers. */
+	public int maxSize() {
+		return _capacity;
+	}
+
+	/**
+	 * Fügt ein Objekt in die Warteschlange an letzter Stelle ein.
+	 *
+	 * @param elem Einzufügendes Objekt
+	 *
+	 * @return Wahr, wenn Platz in der Queue war und das Datum eingefuegt wurde, falsch sonst
+	 */
+	public boolean push(E elem) {
+		if(elem == null) throw new NullPointerException();
+		while(true) {
+			final long tail = _tail.get();
+			final int index = (int)tail & _mask;
+			final long difference = _slotSequences.get(index) - tail;
+			if(difference == 0) {
+				if(_tail.compareAndSet(tail, tail + 1)) {
+					_buffer.lazySet(index, elem);
+					_slotSequences.lazySet(index, tail + 1);
+					return true;
+				}
+			}
+			else if(difference < 0) {
+				// Das Feld wurde seit dem letzten Umlauf noch nicht gelesen
+				return false;
+			}
+			// Ansonsten hat ein anderer Thread die Position bereits reserviert
+		}
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange oder <code>null</code> wenn keins vorhanden ist.
+	 *
+	 * @return Das erste Element der Warteschlange oder <code>null</code>
+	 */
+	public E popNoWait() {
+		while(true) {
+			final long head = _head.get();
+			final int index = (int)head & _mask;
+			final long difference = _slotSequences.get(index) - (head + 1);
+			if(difference == 0) {
+				if(_head.compareAndSet(head, head + 1)) {
+					final E erg = _buffer.get(index);
+					_buffer.lazySet(index, null); // let gc do its work
+					_slotSequences.lazySet(index, head + _capacity);
+					return erg;
+				}
+			}
+			else if(difference < 0) {
+				// Das Feld wurde noch nicht beschrieben
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange. Wenn die Warteschlange leer ist, blockiert der aufrufende Thread, bis ein Element eingefügt wurde.
+	 *
+	 * @return Das erste Element der Warteschlange.
+	 *
+	 * @throws InterruptedException
+	 */
+	public E pop() throws InterruptedException {
+		E erg;
+		for(int round = 0; (erg = popNoWait()) == null; round++) {
+			Sequence.idle(round);
+		}
+		return erg;
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange. Wenn die Warteschlange leer ist, blockiert der aufrufende Thread oder bricht nach einer Wartezeit ab.
+	 *
+	 * @param timeout Wartezeit in Millisekunden, nach der die Aktion abgebrochen wird.
+	 *
+	 * @return Das erste Element der Warteschlange oder <code>null</code>, falls kein Element in der vorgegebenen Zeit engetroffen ist.
+	 *
+	 * @throws InterruptedException
+	 */
+	public E pop(long timeout) throws InterruptedException {
+		final long deadline = System.nanoTime() + timeout * 1000000L;
+		E erg;
+		for(int round = 0; (erg = popNoWait()) == null; round++) {
+			if(System.nanoTime() - deadline >= 0) return null;
+			Sequence.idle(round);
+		}
+		return erg;
+	}
+
+	/**
+	 * Entnimmt bis zu <code>maxElements</code> Elemente.
+	 *
+	 * @param target      Collection, in die die Elemente eingefügt werden
+	 * @param maxElements Maximale Anzahl zu entnehmender Elemente
+	 *
+	 * @return Anzahl entnommener Elemente
+	 */
+	public int drainTo(Collection<? super E> target, int maxElements) {
+		int count = 0;
+		E elem;
+		while(count < maxElements && (elem = popNoWait()) != null) {
+			target.add(elem);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange ohne es zu entfernen. Bei gleichzeitig lesenden Threads kann das Element bereits entnommen sein, wenn der
+	 * Aufrufer es verwendet.
+	 *
+	 * @return Liefert das erste Element aus der Warteschlange.<code>null</code> falls der Puffer leer ist.
+	 */
+	public E peek() {
+		while(true) {
+			final long head = _head.get();
+			final int index = (int)head & _mask;
+			if(_slotSequences.get(index) != head + 1) {
+				if(head == _head.get()) return null;
+				continue;
+			}
+			final E erg = _buffer.get(index);
+			// Nur gültig, wenn das Feld zwischenzeitlich nicht entnommen wurde
+			if(erg != null && head == _head.get()) return erg;
+		}
+	}
+
+	/** @return Anzahl Elemente im Ringpuffer. Bei gleichzeitigen Zugriffen ist das Ergebnis nur eine Momentaufnahme. */
+	public int size() {
+		final long head = _head.get();
+		final long tail = _tail.get();
+		return (int)Math.max(0, Math.min(tail - head, _capacity));
+	}
+
+	/** @return <code>true</code> falls sich keine Elemente im Ringpuffer befinden. */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Zeigt ob der Buffer vollständig gefüllt ist.
+	 *
+	 * @return <code>true</code> falls der Buffer vollständig gefüllt.<code>false</code> sonst.
+	 */
+	public boolean isFull() {
+		return size() >= _capacity;
+	}
+
+	/**
+	 * Informmationsausgabe.
+	 *
+	 * @return Liefert die Kapazität und die Anzahl der Elemente im Puffer zurück.
+	 */
+	public String status() {
+		return "capacity=" + _capacity + " size=" + size();
+	}
+}
@@ -37,6 +37,9 @@ package de.bsvrz.sys.funclib.losb.ringbuffer;
  * das Kopieren des gesamten Feldes hinzu. Ein Block wird nur dann gelöscht, wenn eine bestimmte Anzahl Blöcke ungenutzt sind. Dadurch werden oszillierende
  * Felder vermieden, wenn der Füllgrad um eine Blockgrenze pendelt. Die Warteschlangen dienen darüber hinaus zur Synchronisation des produzierenden Prozesses
  * (ruft push() auf) und des verarbeitenden Prozesses (ruft pop() auf).
+ * <p>
+ * Alle Zugriffe sind synchronisiert. Für einen produzierenden und einen verarbeitenden Thread ohne veränderliche Kapazität sind {@link LongRingBuffer} und
+ * {@link DoubleRingBuffer} sperrfreie Alternativen, die ebenfalls ohne Boxing auskommen.
  *
  * @author beck et al. projects GmbH
  * @author Alexander Schmidt
@@ -36,6 +36,9 @@ package de.bsvrz.sys.funclib.losb.ringbuffer;
  * Aufwand für das Kopieren des gesamten Feldes hinzu. Ein Block wird nur dann gelöscht, wenn eine bestimmte Anzahl Blöcke ungenutzt sind. Dadurch werden
  * oszillierende Felder vermieden, wenn der Füllgrad um eine Blockgrenze pendelt. Die Warteschlangen dienen darüber hinaus zur Synchronisation des
  * produzierenden Prozesses (ruft push() auf) und des verarbeitenden Prozesses (ruft pop() auf).
+ * <p>
+ * Alle Zugriffe sind synchronisiert. Wird keine veränderliche Kapazität benötigt, sind {@link SingleProducerRingBuffer} (ein produzierender und ein
+ * verarbeitender Thread) bzw. {@link MultiProducerRingBuffer} sperrfreie Alternativen.
  *
  * @author beck et al. projects GmbH
  * @author Alexander Schmidt
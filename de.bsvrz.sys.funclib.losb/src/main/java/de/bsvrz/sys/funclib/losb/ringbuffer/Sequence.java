@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sequenzzähler der sperrfreien Ringpuffer. Der Zähler ist von Füllfeldern umgeben, damit er nicht mit anderen häufig geschriebenen Daten in derselben
+ * Cache-Line liegt (false sharing). Die Anordnung der Felder im Objekt ist durch die Java-Spezifikation nicht festgelegt. Da alle Felder den Typ
+ * <code>long</code> haben, werden sie von gängigen JVMs nicht nach Größe umsortiert und liegen in der Regel wie deklariert um den Zähler herum. Ordnet eine
+ * JVM die Felder anders an, geht nur der Schutz vor false sharing verloren, die Funktion der Ringpuffer ist davon nicht betroffen.
+ * <p>
+ * Zusätzlich zum Zähler enthält das Objekt ein nicht synchronisiertes Feld, in dem der Thread, dem der Zähler gehört, den zuletzt gelesenen Stand des
+ * Gegenzählers zwischenspeichern kann. Dadurch muss der Gegenzähler nur gelesen werden, wenn der zwischengespeicherte Stand nicht mehr ausreicht.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class Sequence {
+
+	private static final AtomicLongFieldUpdater<Sequence> VALUE_UPDATER = AtomicLongFieldUpdater.newUpdater(Sequence.class, "_value");
+
+	/** Anzahl Durchläufe, in denen ein wartender Thread aktiv wartet, bevor er die CPU abgibt */
+	private static final int SPIN_ROUNDS = 100;
+
+	/** Anzahl Durchläufe, in denen ein wartender Thread mit {@link Thread#yield()} die CPU abgibt, bevor er sich schlafen legt */
+	private static final int YIELD_ROUNDS = 200;
+
+	/** Schlafdauer eines wartenden Threads in Nanosekunden */
+	private static final long PARK_NANOS = 50L * 1000;
+
+	protected long _p1, _p2, _p3, _p4, _p5, _p6, _p7;
+
+	private volatile long _value;
+
+	/** Zwischengespeicherter Stand des Gegenzählers, wird nur vom Eigentümer des Zählers benutzt */
+	long _cache;
+
+	protected long _p9, _p10, _p11, _p12, _p13, _p14, _p15;
+
+	/**
+	 * Erzeugt einen Zähler.
+	 *
+	 * @param initialValue Anfangswert
+	 */
+	Sequence(final long initialValue) {
+		_value = initialValue;
+	}
+
+	/** @return Aktueller Wert */
+	long get() {
+		return _value;
+	}
+
+	/**
+	 * Setzt den Wert ohne vollständige Speicherbarriere. Alle vorher durchgeführten Schreibzugriffe sind für Threads sichtbar, die den neuen Wert lesen.
+	 *
+	 * @param value Neuer Wert
+	 */
+	void lazySet(final long value) {
+		VALUE_UPDATER.lazySet(this, value);
+	}
+
+	/**
+	 * Setzt den Wert atomar, falls er dem erwarteten Wert entspricht.
+	 *
+	 * @param expected Erwarteter Wert
+	 * @param value    Neuer Wert
+	 *
+	 * @return <code>true</code>, falls der Wert gesetzt wurde
+	 */
+	boolean compareAndSet(final long expected, final long value) {
+		return VALUE_UPDATER.compareAndSet(this, expected, value);
+	}
+
+	/**
+	 * Wartet eine kurze Zeit, bevor ein blockierender Aufruf erneut prüft, ob er fortfahren kann. Die Wartezeit steigt mit der Anzahl der Durchläufe vom aktiven
+	 * Warten über {@link Thread#yield()} bis zu einem kurzen Schlaf.
+	 *
+	 * @param round Anzahl der bisherigen Durchläufe
+	 *
+	 * @throws InterruptedException Falls der Thread unterbrochen wurde
+	 */
+	static void idle(final int round) throws InterruptedException {
+		if(Thread.interrupted()) throw new InterruptedException();
+		if(round < SPIN_ROUNDS) return;
+		if(round < YIELD_ROUNDS) {
+			Thread.yield();
+		}
+		else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	/**
+	 * Bestimmt die Größe des Felds eines Ringpuffers.
+	 *
+	 * @param capacity Gewünschte Kapazität
+	 *
+	 * @return Kleinste Zweierpotenz, die nicht kleiner als die Kapazität ist
+	 */
+	static int powerOfTwo(final int capacity) {
+		if(capacity < 1) throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+		if(capacity > (1 << 30)) throw new IllegalArgumentException("capacity too large: " + capacity);
+		return capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(_value);
+	}
+}
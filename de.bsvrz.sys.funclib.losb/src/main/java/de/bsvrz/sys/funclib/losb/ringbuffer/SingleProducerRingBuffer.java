@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+import java.util.Collection;
+
+/**
+ * Sperrfreier FIFO-Ringpuffer für genau einen produzierenden Thread (ruft push() auf) und genau einen verarbeitenden Thread (ruft pop() auf). Im Gegensatz zu
+ * {@link RingBuffer} werden keine Monitore benutzt: Beide Seiten führen jeweils einen eigenen Sequenzzähler, der nur von ihr geschrieben wird, und lesen den
+ * Zähler der Gegenseite nur, wenn der zuletzt gelesene Stand nicht mehr ausreicht. Die Zähler liegen in getrennten Cache-Lines.
+ * <p>
+ * Die Kapazität wird beim Anlegen auf die nächste Zweierpotenz aufgerundet und danach nicht mehr verändert, das Feld wird also vollständig angelegt. Die
+ * blockierenden Methoden warten zunächst aktiv und legen sich danach in kurzen Abständen schlafen, der produzierende Thread muss dadurch niemanden wecken.
+ * <p>
+ * Werden mehrere produzierende Threads benötigt, ist {@link MultiProducerRingBuffer} zu verwenden, für Zahlenwerte ohne Boxing {@link LongRingBuffer} bzw.
+ * {@link DoubleRingBuffer}.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ * @param <E> Typ der Elemente im Ringpuffer.
+ */
+public class SingleProducerRingBuffer<E> {
+
+	private final Object[] _buffer;
+
+	private final int _mask;
+
+	/** Nächste zu lesende Position, Zwischenspeicher: zuletzt gelesener Stand von {@link #_tail} */
+	private final Sequence _head = new Sequence(0);
+
+	/** Nächste zu schreibende Position, Zwischenspeicher: zuletzt gelesener Stand von {@link #_head} */
+	private final Sequence _tail = new Sequence(0);
+
+	/** @param capacity Kapazität des Ringpuffers, wird auf die nächste Zweierpotenz aufgerundet. */
+	public SingleProducerRingBuffer(int capacity) {
+		_buffer = new Object[Sequence.powerOfTwo(capacity)];
+		_mask = _buffer.length - 1;
+	}
+
+	/** @return Kapazität des Ringpuffers. */
+	public int maxSize() {
+		return _buffer.length;
+	}
+
+	/**
+	 * Fügt ein Objekt in die Warteschlange an letzter Stelle ein. Darf nur vom produzierenden Thread aufgerufen werden.
+	 *
+	 * @param elem Einzufügendes Objekt
+	 *
+	 * @return Wahr, wenn Platz in der Queue war und das Datum eingefuegt wurde, falsch sonst
+	 */
+	public boolean push(E elem) {
+		if(elem == null) throw new NullPointerException();
+		final long tail = _tail.get();
+		if(tail - _tail._cache >= _buffer.length) {
+			_tail._cache = _head.get();
+			if(tail - _tail._cache >= _buffer.length) return false;
+		}
+		_buffer[(int)tail & _mask] = elem;
+		_tail.lazySet(tail + 1);
+		return true;
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange oder <code>null</code> wenn keins vorhanden ist. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @return Das erste Element der Warteschlange oder <code>null</code>
+	 */
+	@SuppressWarnings({"unchecked"})
+	public E popNoWait() {
+		final long head = _head.get();
+		if(head >= _head._cache) {
+			_head._cache = _tail.get();
+			if(head >= _head._cache) return null;
+		}
+		final int index = (int)head & _mask;
+		final Object erg = _buffer[index];
+		_buffer[index] = null; // let gc do its work
+		_head.lazySet(head + 1);
+		return (E)erg;
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange. Wenn die Warteschlange leer ist, blockiert der aufrufende Thread, bis ein Element eingefügt wurde. Darf nur
+	 * vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @return Das erste Element der Warteschlange.
+	 *
+	 * @throws InterruptedException
+	 */
+	public E pop() throws InterruptedException {
+		E erg;
+		for(int round = 0; (erg = popNoWait()) == null; round++) {
+			Sequence.idle(round);
+		}
+		return erg;
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange. Wenn die Warteschlange leer ist, blockiert der aufrufende Thread oder bricht nach einer Wartezeit ab. Darf nur
+	 * vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param timeout Wartezeit in Millisekunden, nach der die Aktion abgebrochen wird.
+	 *
+	 * @return Das erste Element der Warteschlange oder <code>null</code>, falls kein Element in der vorgegebenen Zeit engetroffen ist.
+	 *
+	 * @throws InterruptedException
+	 */
+	public E pop(long timeout) throws InterruptedException {
+		final long deadline = System.nanoTime() + timeout * 1000000L;
+		E erg;
+		for(int round = 0; (erg = popNoWait()) == null; round++) {
+			if(System.nanoTime() - deadline >= 0) return null;
+			Sequence.idle(round);
+		}
+		return erg;
+	}
+
+	/**
+	 * Entnimmt bis zu <code>maxElements</code> Elemente in einem Schritt. Der Zähler der Gegenseite wird dabei nur einmal gelesen und der eigene nur einmal
+	 * geschrieben. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @param target      Collection, in die die Elemente eingefügt werden
+	 * @param maxElements Maximale Anzahl zu entnehmender Elemente
+	 *
+	 * @return Anzahl entnommener Elemente
+	 */
+	@SuppressWarnings({"unchecked"})
+	public int drainTo(Collection<? super E> target, int maxElements) {
+		final long head = _head.get();
+		_head._cache = _tail.get();
+		final int count = (int)Math.min(maxElements, _head._cache - head);
+		if(count <= 0) return 0;
+		for(int i = 0; i < count; i++) {
+			final int index = (int)(head + i) & _mask;
+			target.add((E)_buffer[index]);
+			_buffer[index] = null;
+		}
+		_head.lazySet(head + count);
+		return count;
+	}
+
+	/**
+	 * Liefert das erste Element der Warteschlange ohne es zu entfernen. Darf nur vom verarbeitenden Thread aufgerufen werden.
+	 *
+	 * @return Liefert das erste Element aus der Warteschlange.<code>null</code> falls der Puffer leer ist.
+	 */
+	@SuppressWarnings({"unchecked"})
+	public E peek() {
+		final long head = _head.get();
+		if(head >= _tail.get()) return null;
+		return (E)_buffer[(int)head & _mask];
+	}
+
+	/** @return Anzahl Elemente im Ringpuffer. Bei gleichzeitigen Zugriffen ist das Ergebnis nur eine Momentaufnahme. */
+	public int size() {
+		final long head = _head.get();
+		final long tail = _tail.get();
+		return (int)Math.max(0, Math.min(tail - head, _buffer.length));
+	}
+
+	/** @return <code>true</code> falls sich keine Elemente im Ringpuffer befinden. */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Zeigt ob der Buffer vollständig gefüllt ist.
+	 *
+	 * @return <code>true</code> falls der Buffer vollständig gefüllt.<code>false</code> sonst.
+	 */
+	public boolean isFull() {
+		return size() >= _buffer.length;
+	}
+
+	/**
+	 * Informmationsausgabe.
+	 *
+	 * @return Liefert die Kapazität und die Anzahl der Elemente im Puffer zurück.
+	 */
+	public String status() {
+		return "capacity=" + _buffer.length + " size=" + size();
+	}
+}
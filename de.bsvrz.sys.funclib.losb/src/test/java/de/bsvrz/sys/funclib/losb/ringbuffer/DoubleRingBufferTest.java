@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet den {@link DoubleRingBuffer}, insbesondere dass Sonderwerte unverändert übertragen werden.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class DoubleRingBufferTest {
+
+	@Test
+	public void testSpecialValuesAreKept() throws Exception {
+		final double[] values = {-0.0, 0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 1.5};
+		final DoubleRingBuffer buffer = new DoubleRingBuffer(values.length);
+		assertEquals(8, buffer.maxSize());
+		for(final double value : values) {
+			assertTrue(buffer.push(value));
+		}
+		assertTrue(buffer.isFull());
+		assertFalse(buffer.push(2.0));
+		for(final double value : values) {
+			final double peeked = buffer.peek(Double.NaN);
+			final double popped = buffer.pop();
+			// Vergleich der Bitmuster, damit -0.0 und 0.0 unterschieden werden
+			assertEquals(Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(peeked));
+			assertEquals(Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(popped));
+		}
+		assertTrue(buffer.isEmpty());
+		assertTrue(Double.isNaN(buffer.popNoWait(Double.NaN)));
+		assertEquals(-1.0, buffer.peek(-1.0), 0.0);
+	}
+
+	@Test
+	public void testDrainTo() {
+		final DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+		double next = 0;
+		double expected = 0;
+		for(int round = 0; round < 10; round++) {
+			while(buffer.push(next)) next += 0.5;
+			final double[] target = new double[6];
+			target[0] = -1;
+			target[4] = -1;
+			// Es werden höchstens so viele Werte entnommen wie angefordert, auch wenn das Zielfeld größer ist
+			assertEquals(3, buffer.drainTo(target, 1, 3));
+			assertEquals(-1, target[0], 0.0);
+			assertEquals(-1, target[4], 0.0);
+			for(int i = 1; i <= 3; i++) {
+				assertEquals(expected, target[i], 0.0);
+				expected += 0.5;
+			}
+			assertEquals(1, buffer.size());
+		}
+		// Mehr Werte anfordern als der Puffer fasst
+		final double[] target = new double[1000];
+		assertEquals(1, buffer.drainTo(target, 0, target.length));
+		assertEquals(expected, target[0], 0.0);
+		assertTrue(buffer.isEmpty());
+		assertEquals("capacity=4 size=0", buffer.status());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentProducerAndConsumer() throws Exception {
+		final int total = 1000000;
+		final DoubleRingBuffer buffer = new DoubleRingBuffer(64);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final Thread producer = new Thread("Erzeuger") {
+			@Override
+			public void run() {
+				try {
+					for(int i = 0; i < total; i++) {
+						while(!buffer.push(i / 4.0)) {
+							Thread.yield();
+						}
+					}
+				}
+				catch(Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			}
+		};
+		producer.start();
+
+		final double[] target = new double[20];
+		int expected = 0;
+		while(expected < total && error.get() == null) {
+			final int count = buffer.drainTo(target, 0, target.length);
+			if(count == 0) {
+				assertEquals(expected / 4.0, buffer.pop(), 0.0);
+				expected++;
+			}
+			for(int i = 0; i < count; i++) {
+				assertEquals(expected / 4.0, target[i], 0.0);
+				expected++;
+			}
+		}
+		producer.join();
+		if(error.get() != null) throw new AssertionError(error.get());
+		assertEquals(total, expected);
+		assertTrue(buffer.isEmpty());
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet den {@link LongRingBuffer} mit einem Thread und mit je einem gleichzeitig schreibenden und lesenden Thread.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class LongRingBufferTest {
+
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	@Test
+	public void testSingleThreaded() throws Exception {
+		final LongRingBuffer buffer = new LongRingBuffer(3);
+		assertEquals(4, buffer.maxSize());
+		assertTrue(buffer.isEmpty());
+		assertEquals(EMPTY, buffer.popNoWait(EMPTY));
+		assertEquals(EMPTY, buffer.peek(EMPTY));
+
+		// Jeder Wert ist gültig, auch der Ersatzwert selbst
+		assertTrue(buffer.push(EMPTY));
+		assertTrue(buffer.push(Long.MAX_VALUE));
+		assertTrue(buffer.push(-1));
+		assertTrue(buffer.push(0));
+		assertFalse(buffer.push(1));
+		assertTrue(buffer.isFull());
+		assertEquals(EMPTY, buffer.peek(0));
+		assertEquals(EMPTY, buffer.popNoWait(0));
+		assertEquals(Long.MAX_VALUE, buffer.pop());
+		assertEquals(-1, buffer.popNoWait(EMPTY));
+		assertEquals(0, buffer.popNoWait(EMPTY));
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testDrainAcrossTheEndOfTheArray() {
+		final LongRingBuffer buffer = new LongRingBuffer(8);
+		long next = 0;
+		long expected = 0;
+		for(int round = 0; round < 20; round++) {
+			while(buffer.push(next)) next++;
+			// Ab dem zweiten Umlauf liegen die Werte nicht mehr am Stück im Feld und werden in zwei Teilen kopiert
+			final long[] target = new long[12];
+			target[0] = -1;
+			final int count = buffer.drainTo(target, 1, 5 + round % 4);
+			assertEquals(5 + round % 4, count);
+			assertEquals(-1, target[0]);
+			for(int i = 0; i < count; i++) {
+				assertEquals(expected++, target[1 + i]);
+			}
+			assertEquals(8 - count, buffer.size());
+		}
+		final long[] target = new long[100];
+		final int count = buffer.drainTo(target, 0, target.length);
+		for(int i = 0; i < count; i++) {
+			assertEquals(expected++, target[i]);
+		}
+		assertEquals(next, expected);
+		assertEquals(0, buffer.drainTo(target, 0, target.length));
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentProducerAndConsumer() throws Exception {
+		final long total = 2000000;
+		final LongRingBuffer buffer = new LongRingBuffer(128);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final Thread producer = new Thread("Erzeuger") {
+			@Override
+			public void run() {
+				try {
+					for(long i = 0; i < total; i++) {
+						while(!buffer.push(i * 3)) {
+							Thread.yield();
+						}
+					}
+				}
+				catch(Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			}
+		};
+		producer.start();
+
+		final long[] target = new long[50];
+		long expected = 0;
+		while(expected < total && error.get() == null) {
+			if(expected % 2 == 0) {
+				assertEquals(expected * 3, buffer.pop());
+				expected++;
+			}
+			else {
+				final int count = buffer.drainTo(target, 0, target.length);
+				for(int i = 0; i < count; i++) {
+					assertEquals(expected * 3, target[i]);
+					expected++;
+				}
+			}
+		}
+		producer.join();
+		if(error.get() != null) throw new AssertionError(error.get());
+		assertEquals(total, expected);
+		assertTrue(buffer.isEmpty());
+	}
+}
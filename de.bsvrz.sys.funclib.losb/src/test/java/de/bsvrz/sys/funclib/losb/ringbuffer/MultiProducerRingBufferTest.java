@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet den {@link MultiProducerRingBuffer} mit einem und mit mehreren gleichzeitig schreibenden und lesenden Threads.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class MultiProducerRingBufferTest {
+
+	@Test
+	public void testSingleThreaded() throws Exception {
+		final MultiProducerRingBuffer<Integer> buffer = new MultiProducerRingBuffer<Integer>(3);
+		assertEquals(4, buffer.maxSize());
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.popNoWait());
+		assertNull(buffer.peek());
+		assertNull(buffer.pop(1));
+
+		// Mehrere Umläufe, damit die Sequenznummern der Felder über die Kapazität hinaus weitergezählt werden
+		int next = 0;
+		int expected = 0;
+		for(int round = 0; round < 10; round++) {
+			while(buffer.push(next)) next++;
+			assertTrue(buffer.isFull());
+			assertEquals(4, buffer.size());
+			assertEquals(Integer.valueOf(expected), buffer.peek());
+			assertEquals(Integer.valueOf(expected++), buffer.popNoWait());
+			assertEquals(Integer.valueOf(expected++), buffer.pop());
+			assertEquals(2, buffer.size());
+		}
+		final List<Integer> drained = new ArrayList<Integer>();
+		assertEquals(2, buffer.drainTo(drained, 10));
+		assertEquals(Integer.valueOf(expected++), drained.get(0));
+		assertEquals(Integer.valueOf(expected++), drained.get(1));
+		assertEquals(next, expected);
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentProducersAndConsumers() throws Exception {
+		final int producers = 4;
+		final int consumers = 4;
+		final int valuesPerProducer = 100000;
+		final int total = producers * valuesPerProducer;
+		// Kleine Kapazität, damit der Puffer oft voll und oft leer ist
+		final MultiProducerRingBuffer<Integer> buffer = new MultiProducerRingBuffer<Integer>(64);
+		final AtomicIntegerArray received = new AtomicIntegerArray(total);
+		final AtomicInteger receivedCount = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> threads = new ArrayList<Thread>();
+
+		for(int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads.add(
+					new Thread("Erzeuger " + p) {
+						@Override
+						public void run() {
+							try {
+								start.await();
+								for(int i = 0; i < valuesPerProducer; i++) {
+									final Integer value = producer * valuesPerProducer + i;
+									while(!buffer.push(value)) {
+										Thread.yield();
+									}
+								}
+							}
+							catch(Throwable e) {
+								error.compareAndSet(null, e);
+							}
+						}
+					}
+			);
+		}
+		for(int c = 0; c < consumers; c++) {
+			threads.add(
+					new Thread("Verbraucher " + c) {
+						@Override
+						public void run() {
+							try {
+								// Ein einzelner Verbraucher muss die Elemente eines Erzeugers in der Reihenfolge erhalten, in der sie eingefügt wurden
+								final int[] lastValue = new int[producers];
+								for(int p = 0; p < producers; p++) {
+									lastValue[p] = -1;
+								}
+								start.await();
+								while(receivedCount.get() < total && error.get() == null) {
+									final Integer value = buffer.pop(10);
+									if(value == null) continue;
+									final int producer = value / valuesPerProducer;
+									final int index = value % valuesPerProducer;
+									if(index <= lastValue[producer]) {
+										throw new AssertionError("Reihenfolge verletzt: " + value + " nach " + (producer * valuesPerProducer + lastValue[producer]));
+									}
+									lastValue[producer] = index;
+									if(received.getAndIncrement(value) != 0) throw new AssertionError("Doppelt empfangen: " + value);
+									receivedCount.incrementAndGet();
+								}
+							}
+							catch(Throwable e) {
+								error.compareAndSet(null, e);
+							}
+						}
+					}
+			);
+		}
+		for(final Thread thread : threads) {
+			thread.start();
+		}
+		start.countDown();
+		for(final Thread thread : threads) {
+			thread.join();
+		}
+
+		if(error.get() != null) throw new AssertionError(error.get());
+		assertEquals(total, receivedCount.get());
+		for(int i = 0; i < total; i++) {
+			assertEquals("Element " + i, 1, received.get(i));
+		}
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.popNoWait());
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.bsvrz.sys.funclib.losb.
+ *
+ * de.bsvrz.sys.funclib.losb is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.bsvrz.sys.funclib.losb is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.bsvrz.sys.funclib.losb.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.bsvrz.sys.funclib.losb.ringbuffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testet den {@link SingleProducerRingBuffer} mit einem Thread und mit je einem gleichzeitig schreibenden und lesenden Thread.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class SingleProducerRingBufferTest {
+
+	@Test
+	public void testSingleThreaded() throws Exception {
+		final SingleProducerRingBuffer<Integer> buffer = new SingleProducerRingBuffer<Integer>(3);
+		assertEquals(4, buffer.maxSize());
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.popNoWait());
+		assertNull(buffer.peek());
+		assertNull(buffer.pop(1));
+
+		// Mehrere Umläufe, damit die Zähler über die Kapazität hinaus weitergezählt werden
+		int next = 0;
+		int expected = 0;
+		for(int round = 0; round < 10; round++) {
+			while(buffer.push(next)) next++;
+			assertTrue(buffer.isFull());
+			assertEquals(4, buffer.size());
+			assertEquals(Integer.valueOf(expected), buffer.peek());
+			assertEquals(Integer.valueOf(expected++), buffer.popNoWait());
+			assertEquals(Integer.valueOf(expected++), buffer.pop());
+			assertEquals(2, buffer.size());
+			assertFalse(buffer.isFull());
+		}
+		final List<Integer> drained = new ArrayList<Integer>();
+		assertEquals(1, buffer.drainTo(drained, 1));
+		assertEquals(1, buffer.drainTo(drained, 10));
+		assertEquals(0, buffer.drainTo(drained, 10));
+		assertEquals(Integer.valueOf(expected++), drained.get(0));
+		assertEquals(Integer.valueOf(expected++), drained.get(1));
+		assertEquals(next, expected);
+		assertTrue(buffer.isEmpty());
+		assertEquals("capacity=4 size=0", buffer.status());
+	}
+
+	@Test
+	public void testNullIsRejected() {
+		final SingleProducerRingBuffer<Object> buffer = new SingleProducerRingBuffer<Object>(2);
+		try {
+			buffer.push(null);
+			fail("null wurde eingefügt");
+		}
+		catch(NullPointerException expected) {
+		}
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testInvalidCapacity() {
+		for(int capacity : new int[]{0, -1, (1 << 30) + 1}) {
+			try {
+				new SingleProducerRingBuffer<Object>(capacity);
+				fail("Ungültige Kapazität wurde akzeptiert: " + capacity);
+			}
+			catch(IllegalArgumentException expected) {
+			}
+		}
+		assertEquals(1, new SingleProducerRingBuffer<Object>(1).maxSize());
+		assertEquals(1024, new SingleProducerRingBuffer<Object>(1000).maxSize());
+	}
+
+	@Test
+	public void testPopIsInterruptible() throws Exception {
+		final SingleProducerRingBuffer<Integer> buffer = new SingleProducerRingBuffer<Integer>(4);
+		Thread.currentThread().interrupt();
+		try {
+			buffer.pop();
+			fail("pop() wurde trotz Unterbrechung nicht abgebrochen");
+		}
+		catch(InterruptedException expected) {
+		}
+		assertFalse(Thread.interrupted());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentProducerAndConsumer() throws Exception {
+		final int total = 1000000;
+		// Kleine Kapazität, damit der Puffer oft voll und oft leer ist
+		final SingleProducerRingBuffer<Integer> buffer = new SingleProducerRingBuffer<Integer>(64);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final Thread producer = new Thread("Erzeuger") {
+			@Override
+			public void run() {
+				try {
+					for(int i = 0; i < total; i++) {
+						final Integer value = i;
+						while(!buffer.push(value)) {
+							Thread.yield();
+						}
+					}
+				}
+				catch(Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			}
+		};
+		producer.start();
+
+		final List<Integer> drained = new ArrayList<Integer>();
+		int expected = 0;
+		while(expected < total && error.get() == null) {
+			// Abwechselnd einzeln und blockweise lesen
+			if(expected % 3 == 0) {
+				final Integer value = buffer.pop(10);
+				if(value == null) continue;
+				assertEquals(expected++, value.intValue());
+			}
+			else {
+				drained.clear();
+				buffer.drainTo(drained, 17);
+				for(final Integer value : drained) {
+					assertEquals(expected++, value.intValue());
+				}
+			}
+		}
+		producer.join();
+		if(error.get() != null) throw new AssertionError(error.get());
+		assertEquals(total, expected);
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.popNoWait());
+	}
+}
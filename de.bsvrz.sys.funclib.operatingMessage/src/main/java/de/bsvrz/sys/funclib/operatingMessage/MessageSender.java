@@ -28,10 +28,28 @@ package de.bsvrz.sys.funclib.operatingMessage;
 
 import de.bsvrz.dav.daf.main.*;
 import de.bsvrz.dav.daf.main.config.*;
+import de.bsvrz.dav.daf.util.fileBackedQueue.FileBackedQueue;
+import de.bsvrz.dav.daf.util.fileBackedQueue.QueueSerializer;
+import de.bsvrz.sys.funclib.dataSerializer.Deserializer;
+import de.bsvrz.sys.funclib.dataSerializer.Serializer;
+import de.bsvrz.sys.funclib.dataSerializer.SerializingFactory;
 import de.bsvrz.sys.funclib.debug.Debug;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.UUID;
 
 /**
@@ -119,6 +137,31 @@ public class MessageSender {
 	 */
 	private int _maxQueueSize = 100;
 
+	/**
+	 * Zwischenspeicher für Betriebsmeldungen, die mangels positiver Sendesteuerung oder wegen einer unterbrochenen Verbindung zum Datenverteiler nicht verschickt
+	 * werden konnten, oder <code>null</code>, wenn kein solcher Zwischenspeicher mit {@link #enableSpool} aktiviert wurde. Im Gegensatz zur Warteschlange mit
+	 * maximal {@link #setMaxQueueSize _maxQueueSize} Meldungen werden die Meldungen bei Bedarf ins Dateisystem ausgelagert und bleiben auch bei einer erneuten
+	 * Initialisierung erhalten.
+	 */
+	private volatile FileBackedQueue<SpooledMessage> _spool = null;
+
+	/**
+	 * Zeitfenster in Millisekunden, in dem gleiche Betriebsmeldungen zusammengefasst werden, oder 0, wenn Betriebsmeldungen nicht zusammengefasst werden sollen.
+	 */
+	private volatile long _aggregationWindow = 0;
+
+	/**
+	 * Betriebsmeldungen, deren Zeitfenster für die Zusammenfassung noch nicht abgelaufen ist. Dieses Objekt wird auch zur Synchronisation der Zusammenfassung
+	 * verwendet.
+	 */
+	private final Map<AggregationKey, AggregatedMessage> _aggregatedMessages = new HashMap<>();
+
+	/**
+	 * Timer zum Versand der zusammengefassten Betriebsmeldungen nach Ablauf ihres Zeitfensters oder <code>null</code>, solange keine Zusammenfassung aktiviert
+	 * wurde.
+	 */
+	private Timer _aggregationTimer = null;
+
 	/* ################# Methoden ################# */
 	/**
 	 * Privater Konstruktor erzeugt ein leeres Objekt dieser Klasse.
@@ -257,6 +300,26 @@ public class MessageSender {
 
 		}
 		if (messageTypeAddOn == null || messageTypeAddOn.equals("")) messageTypeAddOn = getCallPosition(new Throwable());
+		if (_aggregationWindow > 0 && !aggregate(id, type, messageTypeAddOn, grade, referenceObject, state, causer, message)) {
+			// Wiederholung einer Meldung im aktuellen Zeitfenster, wird nach Ablauf des Zeitfensters zusammengefasst versendet
+			return;
+		}
+		sendMessageNow(id, type, messageTypeAddOn, grade, referenceObject, state, causer, message);
+	}
+
+	/**
+	 * Erzeugt den Datensatz einer Betriebsmeldung und versendet ihn bzw. speichert ihn bis zum Vorliegen einer positiven Sendesteuerung zwischen.
+	 *
+	 * @param id               ID der Meldung oder leerer String
+	 * @param type             der MeldungsTyp
+	 * @param messageTypeAddOn der MeldungsTypZusatz
+	 * @param grade            die MeldungsKlasse
+	 * @param referenceObject  Referenz auf ein Konfigurationsobjekt oder <code>null</code>
+	 * @param state            Zustand der Meldung
+	 * @param causer           Urlasserinformation oder <code>null</code>
+	 * @param message          Text der Meldung
+	 */
+	private void sendMessageNow(String id, MessageType type, String messageTypeAddOn, MessageGrade grade, SystemObject referenceObject, MessageState state, MessageCauser causer, String message) {
 		// versenden der Betriebsmeldung
 		final Data data = _connection.createData(_dataDescriptionSender.getAttributeGroup());
 		// erst die Werte, die durch die Initialisierung vorgegeben sind
@@ -345,6 +408,269 @@ public class MessageSender {
 		_maxQueueSize = maxQueueSize;
 	}
 
+	/**
+	 * Aktiviert einen Zwischenspeicher für Betriebsmeldungen, die mangels positiver Sendesteuerung oder wegen einer unterbrochenen Verbindung zum
+	 * Datenverteiler nicht verschickt werden können. Der Zwischenspeicher hält Meldungen bis zur angegebenen Größe im Speicher und lagert weitere Meldungen in
+	 * eine temporäre Datei aus, so dass auch bei längeren Ausfällen der Betriebsmeldungsverwaltung keine Meldungen verloren gehen. Die Begrenzung durch {@link
+	 * #setMaxQueueSize} gilt dann nicht mehr. Die zwischengespeicherten Meldungen werden in der ursprünglichen Reihenfolge versendet, sobald wieder eine positive
+	 * Sendesteuerung vorliegt.
+	 *
+	 * @param memoryCapacity     Anzahl Bytes, die im Speicher zwischengespeichert werden, bevor Meldungen ins Dateisystem ausgelagert werden
+	 * @param fileSystemCapacity Maximale Anzahl Bytes, die im Dateisystem zwischengespeichert werden
+	 */
+	public synchronized void enableSpool(final int memoryCapacity, final long fileSystemCapacity) {
+		if(_spool != null) throw new IllegalStateException("Der Zwischenspeicher für Betriebsmeldungen wurde bereits aktiviert");
+		_spool = new FileBackedQueue<>(memoryCapacity, fileSystemCapacity, new SpooledMessageSerializer());
+	}
+
+	/**
+	 * Gibt die Anzahl der Betriebsmeldungen zurück, die aktuell auf den Versand warten.
+	 *
+	 * @return Anzahl wartender Betriebsmeldungen
+	 */
+	public int getPendingMessageCount() {
+		final FileBackedQueue<SpooledMessage> spool = _spool;
+		final OperatingMessageSender operatingMessageSender = _operatingMessageSender;
+		return (spool == null ? 0 : spool.size()) + (operatingMessageSender == null ? 0 : operatingMessageSender.getQueueSize());
+	}
+
+	/**
+	 * Aktiviert die Zusammenfassung gleicher Betriebsmeldungen. Die erste Meldung wird sofort versendet. Weitere gleiche Meldungen innerhalb des angegebenen
+	 * Zeitfensters werden nicht einzeln versendet, sondern nach Ablauf des Zeitfensters als eine Meldung mit der Anzahl der Wiederholungen im Meldungstext.
+	 * Gleich sind Meldungen mit derselben (nicht leeren) ID und demselben Zustand, bzw. bei Meldungen ohne ID Meldungen mit gleichem MeldungsTyp,
+	 * MeldungsTypZusatz, gleicher MeldungsKlasse, gleichem Bezugsobjekt, Zustand und Meldungstext. Von Meldungen aus demselben {@link MessageTemplate} mit
+	 * unterschiedlichen Variablenwerten wird daher nur die Meldung mit ID zusammengefasst.
+	 *
+	 * @param aggregationWindow Zeitfenster in Millisekunden oder 0, um die Zusammenfassung zu deaktivieren (Standardwert: 0)
+	 */
+	public void setAggregationWindow(final long aggregationWindow) {
+		if(aggregationWindow < 0) throw new IllegalArgumentException("aggregationWindow = " + aggregationWindow);
+		synchronized(_aggregatedMessages) {
+			_aggregationWindow = aggregationWindow;
+			if(_aggregationTimer != null) {
+				_aggregationTimer.cancel();
+				_aggregationTimer = null;
+			}
+			if(aggregationWindow > 0) {
+				_aggregationTimer = new Timer("MessageSender.Aggregation", true);
+				final long period = Math.max(1, aggregationWindow / 2);
+				_aggregationTimer.schedule(
+						new TimerTask() {
+							@Override
+							public void run() {
+								sendAggregatedMessages(false);
+							}
+						}, period, period
+				);
+			}
+		}
+		// Versand außerhalb der Synchronisation, damit ein blockierender Versand keine anderen Threads aufhält
+		if(aggregationWindow == 0) sendAggregatedMessages(true);
+	}
+
+	/**
+	 * Prüft, ob eine Betriebsmeldung sofort versendet werden soll, oder ob es sich um eine Wiederholung innerhalb des aktuellen Zeitfensters handelt, die nur
+	 * gezählt wird.
+	 *
+	 * @return <code>true</code>, wenn die Meldung sofort versendet werden soll, sonst <code>false</code>
+	 */
+	private boolean aggregate(String id, MessageType type, String messageTypeAddOn, MessageGrade grade, SystemObject referenceObject, MessageState state, MessageCauser causer, String message) {
+		final AggregationKey key = new AggregationKey(id, type, messageTypeAddOn, grade, referenceObject, state, message);
+		final long now = System.currentTimeMillis();
+		final AggregatedMessage expiredMessage;
+		synchronized(_aggregatedMessages) {
+			final long aggregationWindow = _aggregationWindow;
+			if(aggregationWindow <= 0) return true;
+			final AggregatedMessage aggregatedMessage = _aggregatedMessages.get(key);
+			if(aggregatedMessage != null && now < aggregatedMessage._windowEnd) {
+				aggregatedMessage._repeatCount++;
+				aggregatedMessage._causer = causer;
+				return false;
+			}
+			_aggregatedMessages.put(key, new AggregatedMessage(id, type, messageTypeAddOn, grade, referenceObject, state, causer, message, now + aggregationWindow));
+			expiredMessage = aggregatedMessage;
+		}
+		if(expiredMessage != null && expiredMessage._repeatCount > 0) {
+			// Zeitfenster ist abgelaufen, wurde aber vom Timer noch nicht bearbeitet. Der Versand erfolgt außerhalb der Synchronisation, damit ein blockierender
+			// Versand keine anderen Threads aufhält.
+			expiredMessage.send();
+		}
+		return true;
+	}
+
+	/**
+	 * Versendet die zusammengefassten Meldungen, deren Zeitfenster abgelaufen ist.
+	 *
+	 * @param all <code>true</code>, wenn alle Meldungen unabhängig vom Zeitfenster versendet werden sollen
+	 */
+	private void sendAggregatedMessages(final boolean all) {
+		final List<AggregatedMessage> messagesToSend = new ArrayList<>();
+		final long now = System.currentTimeMillis();
+		synchronized(_aggregatedMessages) {
+			for(Iterator<AggregatedMessage> iterator = _aggregatedMessages.values().iterator(); iterator.hasNext(); ) {
+				final AggregatedMessage aggregatedMessage = iterator.next();
+				if(all || now >= aggregatedMessage._windowEnd) {
+					iterator.remove();
+					if(aggregatedMessage._repeatCount > 0) messagesToSend.add(aggregatedMessage);
+				}
+			}
+		}
+		for(AggregatedMessage aggregatedMessage : messagesToSend) {
+			aggregatedMessage.send();
+		}
+	}
+
+	/** Schlüssel, über den gleiche Betriebsmeldungen bei der Zusammenfassung erkannt werden. */
+	private static final class AggregationKey {
+
+		private final String _id;
+
+		private final MessageType _type;
+
+		private final String _messageTypeAddOn;
+
+		private final MessageGrade _grade;
+
+		private final SystemObject _referenceObject;
+
+		private final MessageState _state;
+
+		private final String _message;
+
+		private final int _hashCode;
+
+		private AggregationKey(String id, MessageType type, String messageTypeAddOn, MessageGrade grade, SystemObject referenceObject, MessageState state, String message) {
+			_state = state;
+			if(id != null && !id.isEmpty()) {
+				// Meldungen mit gleicher ID werden unabhängig vom Inhalt zusammengefasst
+				_id = id;
+				_type = null;
+				_messageTypeAddOn = null;
+				_grade = null;
+				_referenceObject = null;
+				_message = null;
+			}
+			else {
+				_id = null;
+				_type = type;
+				_messageTypeAddOn = messageTypeAddOn;
+				_grade = grade;
+				_referenceObject = referenceObject;
+				_message = message;
+			}
+			_hashCode = Objects.hash(_id, _type, _messageTypeAddOn, _grade, _referenceObject, _state, _message);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if(this == o) return true;
+			if(!(o instanceof AggregationKey)) return false;
+			final AggregationKey other = (AggregationKey)o;
+			return _hashCode == other._hashCode && Objects.equals(_id, other._id) && _type == other._type && Objects.equals(
+					_messageTypeAddOn, other._messageTypeAddOn
+			) && _grade == other._grade && Objects.equals(_referenceObject, other._referenceObject) && _state == other._state && Objects.equals(
+					_message, other._message
+			);
+		}
+
+		@Override
+		public int hashCode() {
+			return _hashCode;
+		}
+	}
+
+	/** Eine Betriebsmeldung, deren Wiederholungen im aktuellen Zeitfenster gezählt werden. */
+	private final class AggregatedMessage {
+
+		private final String _id;
+
+		private final MessageType _type;
+
+		private final String _messageTypeAddOn;
+
+		private final MessageGrade _grade;
+
+		private final SystemObject _referenceObject;
+
+		private final MessageState _state;
+
+		private final String _message;
+
+		private final long _windowEnd;
+
+		private MessageCauser _causer;
+
+		private int _repeatCount = 0;
+
+		private AggregatedMessage(
+				String id,
+				MessageType type,
+				String messageTypeAddOn,
+				MessageGrade grade,
+				SystemObject referenceObject,
+				MessageState state,
+				MessageCauser causer,
+				String message,
+				long windowEnd) {
+			_id = id;
+			_type = type;
+			_messageTypeAddOn = messageTypeAddOn;
+			_grade = grade;
+			_referenceObject = referenceObject;
+			_state = state;
+			_causer = causer;
+			_message = message;
+			_windowEnd = windowEnd;
+		}
+
+		/** Versendet die Meldung mit der Anzahl der Wiederholungen im Meldungstext. */
+		private void send() {
+			final String text = _message + " (" + _repeatCount + (_repeatCount == 1 ? " Wiederholung" : " Wiederholungen") + " zusammengefasst)";
+			sendMessageNow(_id, _type, _messageTypeAddOn, _grade, _referenceObject, _state, _causer, text);
+		}
+	}
+
+	/** Im Zwischenspeicher abgelegte Betriebsmeldung, die als serialisierter Datensatz gespeichert wird. */
+	private static final class SpooledMessage {
+
+		private final long _dataTime;
+
+		private final byte[] _bytes;
+
+		private SpooledMessage(final long dataTime, final byte[] bytes) {
+			_dataTime = dataTime;
+			_bytes = bytes;
+		}
+
+		private static SpooledMessage create(final ResultData resultData) throws IOException {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final Serializer serializer = SerializingFactory.createSerializer(out);
+			serializer.writeData(resultData.getData());
+			return new SpooledMessage(resultData.getDataTime(), out.toByteArray());
+		}
+	}
+
+	/** Serialisiert die im Zwischenspeicher abgelegten Betriebsmeldungen für die Auslagerung ins Dateisystem. */
+	private static final class SpooledMessageSerializer implements QueueSerializer<SpooledMessage> {
+
+		public int getSize(final SpooledMessage object) {
+			return 12 + object._bytes.length;
+		}
+
+		public void serialize(final DataOutputStream outputStream, final SpooledMessage object) throws IOException {
+			outputStream.writeLong(object._dataTime);
+			outputStream.writeInt(object._bytes.length);
+			outputStream.write(object._bytes);
+		}
+
+		public SpooledMessage deserialize(final DataInputStream inputStream) throws IOException {
+			final long dataTime = inputStream.readLong();
+			final byte[] bytes = new byte[inputStream.readInt()];
+			inputStream.readFully(bytes);
+			return new SpooledMessage(dataTime, bytes);
+		}
+	}
+
 	/**
 	 * Diese Klasse fragt den aktuellen Zustand der Sendesteuerung ab. Durch Abfrage der Methode {@link #getState()} kann
 	 * ermittelt werden, ob aktuell eine Betriebsmeldung an die Betriebsmeldungsverwaltung geschickt werden kann, oder nicht.
@@ -353,7 +679,9 @@ public class MessageSender {
 		private byte _state = STOP_SENDING;
 
 		/**
-		 * In dieser Queue warten Datensätze wenn aktuell die Betriebsmeldungsverwaltung nicht erreichbar ist (bzw. keine positive Sendesteuerung vorliegt)
+		 * In dieser Queue warten Datensätze wenn aktuell die Betriebsmeldungsverwaltung nicht erreichbar ist (bzw. keine positive Sendesteuerung vorliegt). Ist der
+		 * Zwischenspeicher aktiviert, enthält die Queue nur Meldungen, die nicht mehr in den Zwischenspeicher gepasst haben. Die Meldungen im Zwischenspeicher
+		 * sind immer älter als die Meldungen in der Queue.
 		 */
 		private final Deque<ResultData> _waitQueue = new ArrayDeque<ResultData>();
 
@@ -362,11 +690,8 @@ public class MessageSender {
 			synchronized(_waitQueue) {
 				_state = state;
 				if(state == START_SENDING){
-					// In Queue wartende Nachrichten verschicken
-					while(!_waitQueue.isEmpty()){
-						ResultData data = _waitQueue.removeFirst();
-						sendDataDirect(data);
-					}
+					// In Queue wartende Nachrichten verschicken. Nachrichten, die nicht verschickt werden konnten, bleiben in der Queue.
+					sendPending();
 				}
 			}
 		}
@@ -381,27 +706,86 @@ public class MessageSender {
 			}
 		}
 
+		private int getQueueSize() {
+			synchronized(_waitQueue) {
+				return _waitQueue.size();
+			}
+		}
+
 		private void sendData(final Data data) {
 			final ResultData resultData = new ResultData(_messageObject, _dataDescriptionSender, System.currentTimeMillis(), data);
 			synchronized(_waitQueue) {
-				if (_state == START_SENDING) {
-					sendDataDirect(resultData);
-				} else {
-					enqueue(resultData);
-				}
+				// Die neue Meldung wird nur direkt versendet, wenn keine älteren Meldungen mehr warten, sonst würde sie diese überholen
+				if (_state == START_SENDING && sendPending() && sendDataDirect(resultData)) return;
+				enqueue(resultData);
+			}
+		}
+
+		/**
+		 * Versendet alle wartenden Meldungen in der ursprünglichen Reihenfolge, zuerst die Meldungen aus dem Zwischenspeicher, dann die Meldungen aus der Queue.
+		 * Muss mit dem Lock der Queue aufgerufen werden.
+		 *
+		 * @return <code>true</code>, wenn keine Meldungen mehr warten, <code>false</code>, wenn eine Meldung nicht versendet werden konnte
+		 */
+		private boolean sendPending() {
+			if(!sendSpooled()) return false;
+			while(!_waitQueue.isEmpty()){
+				if(!sendDataDirect(_waitQueue.peekFirst())) return false;
+				_waitQueue.removeFirst();
 			}
+			return true;
 		}
 
-		private void sendDataDirect(final ResultData resultData) {
+		/**
+		 * Versendet eine Meldung.
+		 *
+		 * @param resultData Meldung
+		 *
+		 * @return <code>true</code>, wenn die Meldung versendet wurde, <code>false</code>, wenn sie nicht versendet werden konnte und vom Aufrufer zurückgestellt
+		 *         werden muss
+		 */
+		private boolean sendDataDirect(final ResultData resultData) {
 			try {
 				_connection.sendData(resultData);
+				return true;
 			} catch (SendSubscriptionNotConfirmed sendSubscriptionNotConfirmed) {
-				_debug.error("Fehler", sendSubscriptionNotConfirmed);
-				sendSubscriptionNotConfirmed.printStackTrace();
+				_debug.error("Betriebsmeldung konnte nicht versendet werden und wird zurückgestellt", sendSubscriptionNotConfirmed);
+			} catch (DataNotSubscribedException dataNotSubscribedException) {
+				_debug.warning("Betriebsmeldung konnte nicht versendet werden und wird zurückgestellt", dataNotSubscribedException);
 			}
+			return false;
+		}
+
+		/**
+		 * Versendet die Meldungen aus dem Zwischenspeicher in der ursprünglichen Reihenfolge.
+		 *
+		 * @return <code>true</code>, wenn der Zwischenspeicher leer ist, <code>false</code>, wenn noch nicht alle Meldungen versendet werden konnten
+		 */
+		private boolean sendSpooled() {
+			final FileBackedQueue<SpooledMessage> spool = _spool;
+			if(spool == null) return true;
+			SpooledMessage spooledMessage;
+			while((spooledMessage = spool.peek()) != null) {
+				final ResultData resultData;
+				try {
+					final Deserializer deserializer = SerializingFactory.createDeserializer(new ByteArrayInputStream(spooledMessage._bytes));
+					final Data data = deserializer.readData(_dataDescriptionSender.getAttributeGroup(), _connection.getDataModel());
+					resultData = new ResultData(_messageObject, _dataDescriptionSender, spooledMessage._dataTime, data);
+				}
+				catch(IOException e) {
+					_debug.error("Zwischengespeicherte Betriebsmeldung kann nicht gelesen werden und wird verworfen", e);
+					spool.poll();
+					continue;
+				}
+				if(!sendDataDirect(resultData)) return false;
+				spool.poll();
+			}
+			return true;
 		}
 
 		private void enqueue(final ResultData data) {
+			// Solange Meldungen in der Queue warten, kommen neue Meldungen ebenfalls in die Queue, damit die Reihenfolge erhalten bleibt
+			if(_waitQueue.isEmpty() && spool(data)) return;
 			_waitQueue.addLast(data);
 			while(_waitQueue.size() > _maxQueueSize){
 				// Bei Queue-Überlauf älteste Nachrichten entfernen und auf Debug ausgeben
@@ -410,5 +794,25 @@ public class MessageSender {
 						               "Folgende Meldung wurde nicht verschickt", removed.getData());
 			}
 		}
+
+		/**
+		 * Speichert eine Meldung im Zwischenspeicher.
+		 *
+		 * @param data Meldung
+		 *
+		 * @return <code>true</code>, wenn die Meldung gespeichert wurde, <code>false</code>, wenn kein Zwischenspeicher aktiviert ist oder er voll ist
+		 */
+		private boolean spool(final ResultData data) {
+			final FileBackedQueue<SpooledMessage> spool = _spool;
+			if(spool == null) return false;
+			try {
+				if(spool.offer(SpooledMessage.create(data))) return true;
+				_debug.warning("Der Zwischenspeicher für Betriebsmeldungen ist voll, weitere Meldungen warten im Speicher");
+			}
+			catch(IOException e) {
+				_debug.error("Betriebsmeldung kann nicht zwischengespeichert werden und wartet im Speicher", e);
+			}
+			return false;
+		}
 	}
 }
@@ -206,6 +206,13 @@ public class ParamApp implements ClientSenderInterface, ClientReceiverInterface
 
 			// Manager für die PersistanceHandler instanzieren.
 			_persistanceHandlerManager = new PersistanceHandlerManager(_paramPath);
+			// Beim Beenden den Speicher mit den persistenten Daten synchronisieren und schließen
+			Runtime.getRuntime().addShutdownHook(new Thread("Parameterspeicher schließen") {
+				@Override
+				public void run() {
+					_persistanceHandlerManager.close();
+				}
+			});
 			// PrsistenceHandler für diese DatenIdentifikation holen und merken...
 			_paramObjects.put(parameterIdentification, _persistanceHandlerManager.getHandler(parameterIdentification));
 
@@ -37,12 +37,13 @@ import de.bsvrz.sys.funclib.dataIdentificationSettings.DataIdentification;
 import de.bsvrz.sys.funclib.debug.Debug;
 
 import java.io.*;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Ermöglicht, {@link de.bsvrz.dav.daf.main.ResultData} zu einer {@link de.bsvrz.sys.funclib.dataIdentificationSettings.DataIdentification} persistent zu
- * schreiben und die zu {@link de.bsvrz.sys.funclib.dataIdentificationSettings.DataIdentification} gespeicherten Datensätze komplett zu lesen.
+ * schreiben und die zu {@link de.bsvrz.sys.funclib.dataIdentificationSettings.DataIdentification} gespeicherten Datensätze komplett zu lesen. Die Datensätze
+ * werden im gemeinsamen {@link PersistanceStore} aller Datenidentifikationen gespeichert.
  *
  * @author Kappich Systemberatung
  * @version $Revision$
@@ -56,19 +57,23 @@ public final class PersistanceHandler {
 	private static final Debug debug = Debug.getLogger();
 
 	private final DataIdentification _dataIdentification;
-	private final File _persistantData;
-	private Serializer _serializer;
-	private Deserializer _deserializer;
+	private final PersistanceStore _store;
+	private final String _key;
+	private final File _directory;
 
 	/**
 	 * Erzeugt ein Objekt vom Typ PersistanceHandler
 	 *
 	 * @param dataIdentification {@link de.bsvrz.sys.funclib.dataIdentificationSettings.DataIdentification}, für die Datensätze persistent verwaltet werden sollen.
-	 * @param persistantData	 Dateispezifikation, in der die Daten persistent gespeichert werden.
+	 * @param store              Speicher, in dem die Daten persistent gespeichert werden.
+	 * @param key                Schlüssel der Datenidentifikation im Speicher.
+	 * @param directory          Verzeichnis, in das nicht mehr lesbare Datensätze ausgelagert werden.
 	 */
-	PersistanceHandler(final DataIdentification dataIdentification, final File persistantData) {
+	PersistanceHandler(final DataIdentification dataIdentification, final PersistanceStore store, final String key, final File directory) {
 		_dataIdentification = dataIdentification;
-		_persistantData = persistantData;
+		_store = store;
+		_key = key;
+		_directory = directory;
 	}
 
 	/**
@@ -96,19 +101,21 @@ public final class PersistanceHandler {
 	public void makeDataPersistance(final ResultData result, final boolean append) {
 
 		try {
-			final BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(_persistantData, append));
-			_serializer = SerializingFactory.createSerializer(out);
-			_serializer.writeData(result.getData());
-			out.close();
-
-		}
-		catch (FileNotFoundException e) {
-			debug.error("Datei " + _persistantData + " existiert nicht");
-			throw new RuntimeException(e);
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final Serializer serializer = SerializingFactory.createSerializer(out);
+			serializer.writeData(result.getData());
+			_store.write(_key, out.toByteArray(), append);
 		}
 		catch (IOException e) {
-			debug.error("I/O-Fehler beim Versuch, auf die Persistenzdatei für DatenIdentifikation "
-					+ _dataIdentification + " zu schreiben.");
+			if (_store.isClosed()) {
+				// Der Speicher wurde beim Beenden der Parametrierung geschlossen, während noch Parameter empfangen wurden. Ein nach einem Fehler
+				// unbenutzbarer Speicher gilt nicht als geschlossen, dann wird der Fehler wie jeder andere Schreibfehler gemeldet.
+				debug.warning("Persistente Daten für DatenIdentifikation " + _dataIdentification
+						+ " werden nicht mehr gespeichert, da die Parametrierung beendet wird.");
+				return;
+			}
+			debug.error("I/O-Fehler beim Versuch, die persistenten Daten für DatenIdentifikation "
+					+ _dataIdentification + " zu schreiben.", e);
 			throw new RuntimeException(e);
 		}
 	}
@@ -120,59 +127,63 @@ public final class PersistanceHandler {
 	 */
 	public ResultData[] getPersistanceData() {
 
+		final List<byte[]> records;
 		try {
-			final BufferedInputStream in = new BufferedInputStream(new FileInputStream(_persistantData));
-			final HashSet<ResultData> resultSet = new HashSet<ResultData>();
-			Data data;
-			ResultData result;
-
-			final AttributeGroup atg = _dataIdentification.getDataDescription().getAttributeGroup();
-			_deserializer = SerializingFactory.createDeserializer(in);
+			records = _store.read(_key);
+		}
+		catch (IOException e) {
+			debug.error("I/O-Fehler beim Versuch, die persistenten Daten für DatenIdentifikation " + _dataIdentification + " zu lesen.");
+			throw new RuntimeException(e);
+		}
 
-			try {
+		final List<ResultData> results = new ArrayList<ResultData>();
+		final AttributeGroup atg = _dataIdentification.getDataDescription().getAttributeGroup();
+		try {
+			for (final byte[] record : records) {
+				final ByteArrayInputStream in = new ByteArrayInputStream(record);
+				final Deserializer deserializer = SerializingFactory.createDeserializer(in);
+				// Ein Datensatz kann mehrere Data-Objekte enthalten, z.B. nach der Übernahme einer Datei im alten Format
 				while (in.available() > 0) {
-
-					data = _deserializer.readData(atg);
-
-					result = new ResultData(_dataIdentification.getObject(),
+					final Data data = deserializer.readData(atg);
+					results.add(new ResultData(_dataIdentification.getObject(),
 							_dataIdentification.getDataDescription(),
 							System.currentTimeMillis(),
-							data);
-
-					resultSet.add(result);
+							data));
 				}
 			}
-			catch (Exception ex) {
-				final String errorMessage = "I/O-Fehler beim Versuch, die Persistenzdatei für DatenIdentifikation "
-						+ _dataIdentification + " zu lesen. Die dazugehörige Datei wird umbenannt in '"
-						+ _persistantData.getName() + ".old'";
-				debug.warning(errorMessage, ex);
-				// Datei umbenennen
-				final File oldFile = new File(_persistantData.getParent(), _persistantData.getName() + ".old");
-				in.close();	// erst Stream schließen, damit die Datei umbenannt werden kann!
-				_persistantData.renameTo(oldFile);
-			} finally {
-				// InputStream muss geschlossen werden
-				in.close();
-			}
-			final ResultData[] results = new ResultData[resultSet.size()];
-			final Iterator iterator = resultSet.iterator();
-			int i = 0;
-			while (iterator.hasNext()) {
-				results[i++] = (ResultData) iterator.next();
-			}
-
-			return results;
 		}
+		catch (Exception ex) {
+			final File oldFile = new File(_directory, _key + ".old");
+			debug.warning("Fehler beim Versuch, die persistenten Daten für DatenIdentifikation "
+					+ _dataIdentification + " zu lesen (Struktur ATG geändert?). Die Daten werden nach '" + oldFile.getName() + "' ausgelagert", ex);
+			results.clear();
+			moveToOldFile(records, oldFile);
+		}
+		return results.toArray(new ResultData[results.size()]);
+	}
 
-		catch (FileNotFoundException e) {
-			debug.error("Datei " + _persistantData + " existiert nicht");
-			throw new RuntimeException(e);
+	/**
+	 * Schreibt nicht mehr lesbare Datensätze in eine eigene Datei und entfernt sie aus dem Speicher.
+	 *
+	 * @param records Datensätze
+	 * @param oldFile Datei
+	 */
+	private void moveToOldFile(final List<byte[]> records, final File oldFile) {
+		try {
+			final OutputStream out = new BufferedOutputStream(new FileOutputStream(oldFile));
+			try {
+				for (final byte[] record : records) {
+					out.write(record);
+				}
+			}
+			finally {
+				out.close();
+			}
+			_store.remove(_key);
 		}
 		catch (IOException e) {
-			debug.error("Fehlerhafte Parametrierungsdatei (Struktur ATG geändert?): " + _persistantData.getName());
+			debug.error("I/O-Fehler beim Versuch, die persistenten Daten für DatenIdentifikation " + _dataIdentification + " auszulagern.");
 			throw new RuntimeException(e);
 		}
 	}
 }
-
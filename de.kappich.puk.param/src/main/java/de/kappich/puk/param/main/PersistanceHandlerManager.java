@@ -35,7 +35,7 @@ import java.io.IOException;
 import java.util.Hashtable;
 
 /**
- * Verwaltet {@link PersistanceHandler} Objekte
+ * Verwaltet {@link PersistanceHandler} Objekte. Alle Handler speichern ihre Daten in einem gemeinsamen {@link PersistanceStore}.
  *
  * @author Kappich Systemberatung
  * @version $Revision$
@@ -49,6 +49,7 @@ public final class PersistanceHandlerManager {
 	private static final Debug debug = Debug.getLogger();
 
 	private final File _path;
+	private final PersistanceStore _store;
 	private Hashtable _handler;
 	private DataIdentification _dataIdentification;
 
@@ -61,6 +62,21 @@ public final class PersistanceHandlerManager {
 	public PersistanceHandlerManager(final File path) {
 		_path = path;
 		_handler = new Hashtable();
+		try {
+			_store = new PersistanceStore(_path);
+		}
+		catch (IOException e) {
+			debug.error("I/O-Fehler beim Versuch, die persistenten Daten im Verzeichnis [" + _path + "] zu lesen.");
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Schließt den Speicher mit den persistenten Daten. Ein gerade laufender Schreibvorgang wird noch abgeschlossen, danach können keine Daten mehr gelesen
+	 * werden und Schreibversuche werden mit einer Warnung verworfen.
+	 */
+	public void close() {
+		_store.close();
 	}
 
 	/**
@@ -76,43 +92,22 @@ public final class PersistanceHandlerManager {
 
 		if (!_handler.containsKey(_dataIdentification)) {
 			try {
-				if (!_path.exists()) {
-					if (!_path.mkdir()) {
-						debug.error("Anlegen der Persistenzdatei für DatenIdentifikation " + _dataIdentification +
-						            " fehlgeschlagen, da Verzeichnis [" + _path + "] nicht angelegt werden konnte!");
-					}
-				}
-
 				final String originalName = fileName();
 				final String asciiFileName = replaceSpecialCharacters(originalName);
-				final File persistantData = new File(_path, asciiFileName);
-				if (!persistantData.exists()) {
-					boolean renamed = false;
-					// Hier wird kein equals() gebraucht, da replaceSpecialCharacters das selbe Objekt zurück gibt, wenn kein Zeichen ersetzt wurde.
-					if(asciiFileName != originalName) {
-						// Name hat Umlaute enthalten, eventuell vorhandene Datei mit Umlauten wird umbenannt
-						final File badPersistantData = new File(_path, originalName);
-						if(badPersistantData.exists()) {
-							debug.info("Umbenennen der Parameterdatei von '" + originalName + "' nach '" + asciiFileName + "'");
-							renamed = badPersistantData.renameTo(persistantData);
-							if(!renamed) debug.warning("Umbenennen der Parameterdatei von '" + originalName + "' nach '" + asciiFileName + "' hat nicht funktioniert");
-						}
-
-					}
-					// Wenn Datei nicht umbenannt wurde, wird sie angelegt
-					if (!renamed) {
-						if (!persistantData.createNewFile()) {
-							debug.error("Anlegen der Persistenzdatei für DatenIdentifikation " + _dataIdentification +
-							            " fehlgeschlagen, da Datei [" + persistantData + "] nicht angelegt werden konnte!");
-						}
-					}
+				// Der frühere Dateiname dient als Schlüssel im Speicher, vorhandene Dateien im alten Format werden übernommen. Hier wird kein equals()
+				// gebraucht, da replaceSpecialCharacters das selbe Objekt zurück gibt, wenn kein Zeichen ersetzt wurde.
+				if(asciiFileName != originalName) {
+					_store.importLegacyFile(asciiFileName, asciiFileName, originalName);
+				}
+				else {
+					_store.importLegacyFile(asciiFileName, asciiFileName);
 				}
-				final PersistanceHandler persistanceHandler = new PersistanceHandler(_dataIdentification, persistantData);
+				final PersistanceHandler persistanceHandler = new PersistanceHandler(_dataIdentification, _store, asciiFileName, _path);
 				_handler.put(_dataIdentification, persistanceHandler);
 			}
 			catch (IOException e) {
-				debug.error("I/O-Fehler beim Versuch, die Persistenzdatei für DatenidenDatenIdentifikation "
-				            + dataIdentification + " anzulegen.");
+				debug.error("I/O-Fehler beim Versuch, die Persistenzdatei für DatenIdentifikation "
+				            + dataIdentification + " zu übernehmen.");
 				throw new RuntimeException(e);
 			}
 		}
@@ -0,0 +1,768 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.kappich.puk.param.
+ *
+ * de.kappich.puk.param is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.kappich.puk.param is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.kappich.puk.param.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.kappich.puk.param.main;
+
+import de.bsvrz.sys.funclib.debug.Debug;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Speichert die Parametersätze aller Datenidentifikationen in einigen wenigen Dateien (Segmenten), an die neue Datensätze nur angehängt werden. Die
+ * Datensätze werden über einen Schlüssel (den Dateinamen, der früher für die Datenidentifikation verwendet wurde) identifiziert. Für jeden Schlüssel werden die
+ * Positionen der aktuell gültigen Datensätze im Speicher gehalten, die Daten selbst werden erst beim Zugriff gelesen.
+ * <p>
+ * Jeder Datensatz in einem Segment besteht aus einem Typ ({@link #RECORD_REPLACE}, {@link #RECORD_APPEND} oder {@link #RECORD_DELETE}), der Länge des
+ * Schlüssels, der Länge der Daten, dem Schlüssel, den Daten und einer CRC32-Prüfsumme. Beim Start werden die Segmente in aufsteigender Reihenfolge gelesen und
+ * der Index aufgebaut. Ein unvollständig geschriebener oder beschädigter Datensatz am Ende des aktiven Segments (z.B. nach einem Absturz) wird abgeschnitten.
+ * <p>
+ * Erreicht das aktive Segment die maximale Größe, wird ein neues Segment begonnen. Enthalten die abgeschlossenen Segmente überwiegend ungültige Datensätze,
+ * werden die noch gültigen Datensätze in einem eigenen Thread in ein neues Segment kopiert (Kompaktierung). Das neue Segment ersetzt das jüngste der
+ * abgeschlossenen Segmente, die übrigen abgeschlossenen Segmente werden danach von alt nach neu gelöscht. Für Schlüssel, die in den abgeschlossenen Segmenten
+ * gelöscht wurden, werden Löschdatensätze in das neue Segment übernommen, bis die älteren Segmente gelöscht sind. Dadurch ergibt sich auch bei einem Absturz
+ * während der Kompaktierung beim nächsten Start wieder der richtige Zustand.
+ * <p>
+ * Dateien im alten Format (eine Datei je Datenidentifikation) werden beim ersten Zugriff auf die Datenidentifikation übernommen und danach umbenannt.
+ * <p>
+ * Die Daten werden wie bisher ohne explizites Synchronisieren mit dem Datenträger geschrieben, lediglich beim Wechsel des Segments, nach einer Kompaktierung und
+ * beim Schließen wird synchronisiert.
+ * <p>
+ * Schlägt das Austauschen der Dateien am Ende einer Kompaktierung fehl, ist der Speicher nicht mehr benutzbar. Anders als nach dem {@link #close() Schließen}
+ * führen Zugriffe dann zu einer {@link IOException} mit der ursprünglichen Ursache, damit der Fehler nicht als normales Beenden behandelt wird.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+final class PersistanceStore {
+
+	/**
+	 * DebugLogger für Debug-Ausgaben
+	 */
+	private static final Debug debug = Debug.getLogger();
+
+	/** Datensatz ersetzt alle bisherigen Datensätze des Schlüssels */
+	static final byte RECORD_REPLACE = 1;
+
+	/** Datensatz wird an die bisherigen Datensätze des Schlüssels angehängt */
+	static final byte RECORD_APPEND = 2;
+
+	/** Alle Datensätze des Schlüssels werden gelöscht */
+	static final byte RECORD_DELETE = 3;
+
+	/** Standardgröße, ab der ein neues Segment begonnen wird */
+	static final long DEFAULT_MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/** Kennung am Anfang jedes Segments ("PLOG") */
+	private static final int SEGMENT_MAGIC = 0x504c4f47;
+
+	/** Version des Dateiformats */
+	private static final int SEGMENT_FORMAT_VERSION = 1;
+
+	/** Größe des Segmentkopfs (Kennung und Version) */
+	private static final int SEGMENT_HEADER_SIZE = 8;
+
+	/** Größe eines Datensatzkopfs (Typ, Länge des Schlüssels und Länge der Daten) */
+	private static final int RECORD_HEADER_SIZE = 9;
+
+	/** Größe der Prüfsumme am Ende eines Datensatzes */
+	private static final int RECORD_TRAILER_SIZE = 4;
+
+	/** Maximale Länge eines Schlüssels in Bytes */
+	private static final int MAX_KEY_LENGTH = 0xffff;
+
+	private static final String SEGMENT_PREFIX = "parameter_";
+
+	private static final String SEGMENT_SUFFIX = ".plog";
+
+	/** Endung einer noch nicht abgeschlossenen Kompaktierung */
+	private static final String COMPACTION_SUFFIX = ".tmp";
+
+	/** Endung der Dateien im alten Format */
+	private static final String LEGACY_SUFFIX = ".param";
+
+	/** Endung, die Dateien im alten Format nach der Übernahme erhalten */
+	private static final String MIGRATED_SUFFIX = ".migriert";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final File _directory;
+
+	private final long _maxSegmentSize;
+
+	/** Segmente sortiert nach ihrer Nummer, das letzte Segment ist das aktive Segment */
+	private final TreeMap<Long, Segment> _segments = new TreeMap<Long, Segment>();
+
+	/** Positionen der aktuell gültigen Datensätze je Schlüssel in der Reihenfolge, in der sie geschrieben wurden */
+	private final Map<String, List<RecordPosition>> _index = new HashMap<String, List<RecordPosition>>();
+
+	/** Namen der noch nicht übernommenen Dateien im alten Format */
+	private final Set<String> _legacyFileNames = new HashSet<String>();
+
+	/** Übernommene Dateien im alten Format, die nach dem nächsten Synchronisieren umbenannt werden */
+	private final List<File> _migratedLegacyFiles = new ArrayList<File>();
+
+	/** Segment, an das neue Datensätze angehängt werden */
+	private Segment _activeSegment;
+
+	private boolean _compactionRunning = false;
+
+	private boolean _closed = false;
+
+	/** Ursache, falls der Speicher nach einem Fehler nicht mehr benutzbar ist, sonst <code>null</code> */
+	private IOException _failure = null;
+
+	/**
+	 * Öffnet den Speicher im angegebenen Verzeichnis mit der {@link #DEFAULT_MAX_SEGMENT_SIZE Standardgröße} für Segmente.
+	 *
+	 * @param directory Verzeichnis, wird ggf. angelegt
+	 *
+	 * @throws IOException Fehler beim Lesen der vorhandenen Segmente
+	 */
+	PersistanceStore(final File directory) throws IOException {
+		this(directory, DEFAULT_MAX_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Öffnet den Speicher im angegebenen Verzeichnis.
+	 *
+	 * @param directory      Verzeichnis, wird ggf. angelegt
+	 * @param maxSegmentSize Größe in Bytes, ab der ein neues Segment begonnen wird
+	 *
+	 * @throws IOException Fehler beim Lesen der vorhandenen Segmente
+	 */
+	PersistanceStore(final File directory, final long maxSegmentSize) throws IOException {
+		_directory = directory;
+		_maxSegmentSize = maxSegmentSize;
+		if(!_directory.isDirectory() && !_directory.mkdirs()) {
+			throw new IOException("Verzeichnis [" + _directory + "] konnte nicht angelegt werden");
+		}
+		final File[] files = _directory.listFiles();
+		if(files == null) throw new IOException("Verzeichnis [" + _directory + "] konnte nicht gelesen werden");
+		for(final File file : files) {
+			final String name = file.getName();
+			if(name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX + COMPACTION_SUFFIX)) {
+				// Abgebrochene Kompaktierung, die ursprünglichen Segmente sind noch vollständig vorhanden
+				if(!file.delete()) debug.warning("Unvollständige Kompaktierung [" + file + "] konnte nicht gelöscht werden");
+			}
+			else if(name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+				try {
+					final long number = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+					_segments.put(number, new Segment(number, file));
+				}
+				catch(NumberFormatException e) {
+					debug.warning("Unbekannte Datei im Parameterverzeichnis wird ignoriert: " + file);
+				}
+			}
+			else if(name.endsWith(LEGACY_SUFFIX)) {
+				_legacyFileNames.add(name);
+			}
+		}
+		try {
+			for(final Segment segment : _segments.values()) {
+				recover(segment, segment == _segments.lastEntry().getValue());
+			}
+			if(_segments.isEmpty()) {
+				_activeSegment = createSegment(1);
+			}
+			else {
+				_activeSegment = _segments.lastEntry().getValue();
+			}
+		}
+		catch(IOException e) {
+			closeSegments();
+			throw e;
+		}
+		debug.info("Parameterspeicher [" + _directory + "] geöffnet: " + _index.size() + " Datenidentifikationen in " + _segments.size() + " Segmenten, "
+		           + _legacyFileNames.size() + " Dateien im alten Format");
+		startCompactionIfNecessary();
+	}
+
+	/**
+	 * Speichert einen Datensatz.
+	 *
+	 * @param key    Schlüssel
+	 * @param data   Daten
+	 * @param append <code>true</code>, wenn der Datensatz an die bisherigen Datensätze angehängt werden soll, <code>false</code>, wenn er sie ersetzen soll
+	 *
+	 * @throws IOException Fehler beim Schreiben
+	 */
+	synchronized void write(final String key, final byte[] data, final boolean append) throws IOException {
+		ensureOpen();
+		final List<RecordPosition> positions = _index.get(key);
+		if(append && positions != null) {
+			final RecordPosition position = appendRecord(RECORD_APPEND, key, data);
+			position._segment._liveBytes += position._recordLength;
+			positions.add(position);
+		}
+		else {
+			final RecordPosition position = appendRecord(RECORD_REPLACE, key, data);
+			position._segment._liveBytes += position._recordLength;
+			if(positions != null) release(positions);
+			final List<RecordPosition> newPositions = new ArrayList<RecordPosition>(1);
+			newPositions.add(position);
+			_index.put(key, newPositions);
+		}
+		startCompactionIfNecessary();
+	}
+
+	/**
+	 * Liest die gespeicherten Datensätze.
+	 *
+	 * @param key Schlüssel
+	 *
+	 * @return Daten der Datensätze in der Reihenfolge, in der sie geschrieben wurden, eine leere Liste, falls zu dem Schlüssel keine Datensätze existieren
+	 *
+	 * @throws IOException Fehler beim Lesen
+	 */
+	synchronized List<byte[]> read(final String key) throws IOException {
+		ensureOpen();
+		final List<RecordPosition> positions = _index.get(key);
+		if(positions == null) return Collections.emptyList();
+		final List<byte[]> result = new ArrayList<byte[]>(positions.size());
+		for(final RecordPosition position : positions) {
+			result.add(readData(position));
+		}
+		return result;
+	}
+
+	/**
+	 * Löscht alle gespeicherten Datensätze eines Schlüssels.
+	 *
+	 * @param key Schlüssel
+	 *
+	 * @throws IOException Fehler beim Schreiben
+	 */
+	synchronized void remove(final String key) throws IOException {
+		ensureOpen();
+		final List<RecordPosition> positions = _index.remove(key);
+		if(positions == null) return;
+		final RecordPosition position = appendRecord(RECORD_DELETE, key, new byte[0]);
+		position._segment._deletedKeys.add(key);
+		release(positions);
+		startCompactionIfNecessary();
+	}
+
+	/**
+	 * Übernimmt die Datensätze aus einer Datei im alten Format, falls eine solche Datei existiert und zu dem Schlüssel noch keine Datensätze gespeichert sind. Die
+	 * Datei wird nach dem nächsten Synchronisieren der Segmente umbenannt.
+	 *
+	 * @param key       Schlüssel
+	 * @param fileNames Mögliche Namen der Datei im alten Format
+	 *
+	 * @throws IOException Fehler beim Lesen der alten Datei oder beim Schreiben
+	 */
+	synchronized void importLegacyFile(final String key, final String... fileNames) throws IOException {
+		ensureOpen();
+		for(final String fileName : fileNames) {
+			if(!_legacyFileNames.remove(fileName)) continue;
+			final File legacyFile = new File(_directory, fileName);
+			if(!_index.containsKey(key)) {
+				debug.info("Übernahme der Parameterdatei '" + fileName + "'");
+				write(key, Files.readAllBytes(legacyFile.toPath()), false);
+			}
+			// Sind bereits Datensätze gespeichert, wurde die Datei schon einmal übernommen, aber (z.B. wegen eines Absturzes) nicht mehr umbenannt.
+			_migratedLegacyFiles.add(legacyFile);
+		}
+	}
+
+	/**
+	 * Synchronisiert alle Segmente mit dem Datenträger und schließt sie. Danach sind keine Zugriffe mehr möglich.
+	 */
+	synchronized void close() {
+		if(_closed) return;
+		_closed = true;
+		// Nach einem Fehler sind die Segmente bereits geschlossen
+		if(_failure != null) return;
+		try {
+			syncActiveSegment();
+		}
+		catch(IOException e) {
+			debug.warning("Fehler beim Synchronisieren des Parameterspeichers", e);
+		}
+		closeSegments();
+	}
+
+	/**
+	 * Prüft, ob der Speicher mit {@link #close()} geschlossen wurde. Ein nach einem Fehler nicht mehr benutzbarer Speicher gilt nicht als geschlossen, siehe
+	 * {@link #isFailed()}.
+	 *
+	 * @return <code>true</code>, wenn der Speicher planmäßig geschlossen wurde
+	 */
+	synchronized boolean isClosed() {
+		return _closed;
+	}
+
+	/**
+	 * Prüft, ob der Speicher nach einem Fehler nicht mehr benutzbar ist.
+	 *
+	 * @return <code>true</code>, wenn Zugriffe wegen eines Fehlers nicht mehr möglich sind
+	 */
+	synchronized boolean isFailed() {
+		return _failure != null;
+	}
+
+	/**
+	 * Prüft, ob gerade eine Kompaktierung läuft.
+	 *
+	 * @return <code>true</code>, wenn eine Kompaktierung läuft
+	 */
+	synchronized boolean isCompactionRunning() {
+		return _compactionRunning;
+	}
+
+	/**
+	 * Macht den Speicher nach einem nicht behebbaren Fehler unbenutzbar und schließt die Segmente. Alle weiteren Zugriffe führen zu einer {@link IOException}
+	 * mit der angegebenen Ursache.
+	 *
+	 * @param cause Ursache
+	 */
+	synchronized void fail(final IOException cause) {
+		if(_closed || _failure != null) return;
+		debug.error("Parameterspeicher [" + _directory + "] ist nach einem Fehler nicht mehr benutzbar, die Parametrierung muss neu gestartet werden", cause);
+		_failure = cause;
+		closeSegments();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PersistanceStore{" + "directory=" + _directory + ", keys=" + _index.size() + ", segments=" + _segments.keySet() + "}";
+	}
+
+	private void ensureOpen() throws IOException {
+		if(_closed) throw new IOException("Parameterspeicher [" + _directory + "] wurde bereits geschlossen");
+		if(_failure != null) throw new IOException("Parameterspeicher [" + _directory + "] ist nach einem Fehler nicht mehr benutzbar", _failure);
+	}
+
+	/**
+	 * Liest die Datensätze eines Segments und trägt sie in den Index ein. Ein beschädigter Datensatz am Ende des aktiven Segments wird abgeschnitten, in anderen
+	 * Segmenten wird der Rest des Segments ignoriert.
+	 */
+	private void recover(final Segment segment, final boolean active) throws IOException {
+		final long fileSize = segment._channel.size();
+		if(fileSize < SEGMENT_HEADER_SIZE) {
+			if(!active) throw new IOException("Segment [" + segment._file + "] ist unvollständig");
+			debug.warning("Unvollständiges Segment [" + segment._file + "] wird neu initialisiert");
+			segment._channel.truncate(0);
+			writeSegmentHeader(segment);
+			return;
+		}
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment._file), 64 * 1024));
+		try {
+			if(in.readInt() != SEGMENT_MAGIC) throw new IOException("Datei [" + segment._file + "] ist kein Segment des Parameterspeichers");
+			final int formatVersion = in.readInt();
+			if(formatVersion != SEGMENT_FORMAT_VERSION) {
+				throw new IOException("Segment [" + segment._file + "] hat die nicht unterstützte Formatversion " + formatVersion);
+			}
+			final byte[] header = new byte[RECORD_HEADER_SIZE];
+			final CRC32 crc = new CRC32();
+			long offset = SEGMENT_HEADER_SIZE;
+			while(offset < fileSize) {
+				if(fileSize - offset < RECORD_HEADER_SIZE + RECORD_TRAILER_SIZE) break;
+				in.readFully(header);
+				final ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+				final byte type = headerBuffer.get();
+				final int keyLength = headerBuffer.getInt();
+				final int dataLength = headerBuffer.getInt();
+				if(type < RECORD_REPLACE || type > RECORD_DELETE || keyLength < 0 || keyLength > MAX_KEY_LENGTH || dataLength < 0) break;
+				final long recordLength = (long)RECORD_HEADER_SIZE + keyLength + dataLength + RECORD_TRAILER_SIZE;
+				if(fileSize - offset < recordLength) break;
+				final byte[] content = new byte[keyLength + dataLength];
+				in.readFully(content);
+				crc.reset();
+				crc.update(header);
+				crc.update(content);
+				if(in.readInt() != (int)crc.getValue()) break;
+				final String key = new String(content, 0, keyLength, UTF8);
+				final RecordPosition position = new RecordPosition(segment, offset, (int)recordLength, offset + RECORD_HEADER_SIZE + keyLength, dataLength);
+				apply(type, key, position);
+				offset += recordLength;
+			}
+			segment._size = offset;
+		}
+		finally {
+			in.close();
+		}
+		if(segment._size < fileSize) {
+			if(active) {
+				debug.warning("Unvollständiger Datensatz am Ende von [" + segment._file + "] wird abgeschnitten, Position " + segment._size + " von " + fileSize);
+				segment._channel.truncate(segment._size);
+			}
+			else {
+				debug.warning("Beschädigter Datensatz in [" + segment._file + "], Rest des Segments ab Position " + segment._size + " wird ignoriert");
+			}
+		}
+	}
+
+	/** Trägt einen beim Start gelesenen Datensatz in den Index ein. */
+	private void apply(final byte type, final String key, final RecordPosition position) {
+		final List<RecordPosition> positions = _index.get(key);
+		if(type == RECORD_DELETE) {
+			position._segment._deletedKeys.add(key);
+			if(positions != null) {
+				release(positions);
+				_index.remove(key);
+			}
+			return;
+		}
+		position._segment._liveBytes += position._recordLength;
+		if(type == RECORD_APPEND && positions != null) {
+			positions.add(position);
+		}
+		else {
+			if(positions != null) release(positions);
+			final List<RecordPosition> newPositions = new ArrayList<RecordPosition>(1);
+			newPositions.add(position);
+			_index.put(key, newPositions);
+		}
+	}
+
+	/** Vermerkt, dass die Datensätze nicht mehr gültig sind. */
+	private static void release(final List<RecordPosition> positions) {
+		for(final RecordPosition position : positions) {
+			position._segment._liveBytes -= position._recordLength;
+		}
+	}
+
+	private RecordPosition appendRecord(final byte type, final String key, final byte[] data) throws IOException {
+		final ByteBuffer buffer = encodeRecord(type, key, data);
+		if(_activeSegment._size + buffer.remaining() > _maxSegmentSize && _activeSegment._size > SEGMENT_HEADER_SIZE) {
+			rollSegment();
+		}
+		return appendRecord(_activeSegment, buffer, data.length);
+	}
+
+	private static RecordPosition appendRecord(final Segment segment, final ByteBuffer buffer, final int dataLength) throws IOException {
+		final long offset = segment._size;
+		final int recordLength = buffer.remaining();
+		long position = offset;
+		while(buffer.hasRemaining()) {
+			position += segment._channel.write(buffer, position);
+		}
+		segment._size += recordLength;
+		return new RecordPosition(segment, offset, recordLength, offset + recordLength - RECORD_TRAILER_SIZE - dataLength, dataLength);
+	}
+
+	private static ByteBuffer encodeRecord(final byte type, final String key, final byte[] data) throws IOException {
+		final byte[] keyBytes = key.getBytes(UTF8);
+		if(keyBytes.length > MAX_KEY_LENGTH) throw new IOException("Schlüssel zu lang: " + key);
+		final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + data.length + RECORD_TRAILER_SIZE);
+		buffer.put(type);
+		buffer.putInt(keyBytes.length);
+		buffer.putInt(data.length);
+		buffer.put(keyBytes);
+		buffer.put(data);
+		final CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int)crc.getValue());
+		buffer.flip();
+		return buffer;
+	}
+
+	private static byte[] readData(final RecordPosition position) throws IOException {
+		final byte[] data = new byte[position._dataLength];
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		final FileChannel channel = position._segment._channel;
+		long offset = position._dataOffset;
+		while(buffer.hasRemaining()) {
+			final int read = channel.read(buffer, offset);
+			if(read < 0) throw new EOFException("Unerwartetes Ende von [" + position._segment._file + "] bei Position " + offset);
+			offset += read;
+		}
+		return data;
+	}
+
+	/** Schließt das aktive Segment ab und beginnt ein neues Segment. */
+	private void rollSegment() throws IOException {
+		syncActiveSegment();
+		_activeSegment = createSegment(_activeSegment._number + 1);
+	}
+
+	/**
+	 * Synchronisiert das aktive Segment mit dem Datenträger und benennt danach die übernommenen Dateien im alten Format um. Erst wenn die übernommenen
+	 * Datensätze sicher geschrieben sind, dürfen die alten Dateien umbenannt werden.
+	 */
+	private void syncActiveSegment() throws IOException {
+		_activeSegment._channel.force(true);
+		renameMigratedLegacyFiles();
+	}
+
+	private Segment createSegment(final long number) throws IOException {
+		final Segment segment = new Segment(number, new File(_directory, segmentName(number)));
+		segment._channel.truncate(0);
+		writeSegmentHeader(segment);
+		_segments.put(number, segment);
+		return segment;
+	}
+
+	private static void writeSegmentHeader(final Segment segment) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+		header.putInt(SEGMENT_MAGIC);
+		header.putInt(SEGMENT_FORMAT_VERSION);
+		header.flip();
+		while(header.hasRemaining()) {
+			segment._channel.write(header, header.position());
+		}
+		segment._size = SEGMENT_HEADER_SIZE;
+	}
+
+	private static String segmentName(final long number) {
+		return String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+	}
+
+	private void renameMigratedLegacyFiles() {
+		for(final File file : _migratedLegacyFiles) {
+			final File target = new File(file.getParentFile(), file.getName() + MIGRATED_SUFFIX);
+			if(!file.renameTo(target)) debug.warning("Übernommene Parameterdatei [" + file + "] konnte nicht umbenannt werden");
+		}
+		_migratedLegacyFiles.clear();
+	}
+
+	private void closeSegments() {
+		for(final Segment segment : _segments.values()) {
+			try {
+				segment._channel.close();
+			}
+			catch(IOException e) {
+				debug.warning("Segment [" + segment._file + "] konnte nicht geschlossen werden", e);
+			}
+		}
+	}
+
+	/**
+	 * Startet die Kompaktierung, wenn die abgeschlossenen Segmente mehr ungültige als gültige Datensätze enthalten und dabei mindestens ein halbes Segment
+	 * freigegeben wird.
+	 */
+	private void startCompactionIfNecessary() {
+		if(_compactionRunning || _closed || _failure != null) return;
+		long garbage = 0;
+		long live = 0;
+		for(final Segment segment : _segments.headMap(_activeSegment._number).values()) {
+			live += segment._liveBytes;
+			garbage += segment._size - SEGMENT_HEADER_SIZE - segment._liveBytes;
+		}
+		if(garbage <= live || garbage < _maxSegmentSize / 2) return;
+		_compactionRunning = true;
+		final Thread thread = new Thread(new Runnable() {
+			public void run() {
+				compact();
+			}
+		}, "Parameterspeicher-Kompaktierung");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Kopiert die gültigen Datensätze der abgeschlossenen Segmente in ein neues Segment. Das Kopieren erfolgt ohne Sperre, da abgeschlossene Segmente nicht mehr
+	 * verändert werden. Nur das Übernehmen der neuen Positionen und das Austauschen der Dateien erfolgt unter der Sperre.
+	 */
+	private void compact() {
+		File compactionFile = null;
+		Segment compacted = null;
+		try {
+			final NavigableMap<Long, Segment> sealedSegments;
+			final long targetNumber;
+			final Map<String, List<RecordPosition>> snapshot = new LinkedHashMap<String, List<RecordPosition>>();
+			final Set<String> deletedKeys = new TreeSet<String>();
+			synchronized(this) {
+				if(_closed || _failure != null) return;
+				sealedSegments = new TreeMap<Long, Segment>(_segments.headMap(_activeSegment._number));
+				if(sealedSegments.isEmpty()) return;
+				targetNumber = sealedSegments.lastKey();
+				for(final Map.Entry<String, List<RecordPosition>> entry : _index.entrySet()) {
+					// Die Positionen sind nach Segmenten sortiert, die Positionen in abgeschlossenen Segmenten stehen also am Anfang der Liste
+					final List<RecordPosition> positions = entry.getValue();
+					int sealedCount = 0;
+					while(sealedCount < positions.size() && positions.get(sealedCount)._segment._number <= targetNumber) sealedCount++;
+					if(sealedCount > 0) snapshot.put(entry.getKey(), new ArrayList<RecordPosition>(positions.subList(0, sealedCount)));
+				}
+				for(final Segment segment : sealedSegments.values()) {
+					deletedKeys.addAll(segment._deletedKeys);
+				}
+				// Für Schlüssel mit gültigen Datensätzen im neuen Segment ersetzt der erste kopierte Datensatz die älteren Datensätze
+				deletedKeys.removeAll(snapshot.keySet());
+			}
+
+			compactionFile = new File(_directory, segmentName(targetNumber) + COMPACTION_SUFFIX);
+			compacted = new Segment(targetNumber, compactionFile);
+			compacted._channel.truncate(0);
+			writeSegmentHeader(compacted);
+			// Ohne die Löschdatensätze würden gelöschte Datensätze aus älteren Segmenten wieder gültig, wenn diese wegen eines Absturzes nicht mehr gelöscht werden
+			for(final String key : deletedKeys) {
+				appendRecord(compacted, encodeRecord(RECORD_DELETE, key, new byte[0]), 0);
+			}
+			compacted._deletedKeys.addAll(deletedKeys);
+			final Map<String, List<RecordPosition>> newPositions = new HashMap<String, List<RecordPosition>>();
+			for(final Map.Entry<String, List<RecordPosition>> entry : snapshot.entrySet()) {
+				final List<RecordPosition> oldPositions = entry.getValue();
+				final List<RecordPosition> positions = new ArrayList<RecordPosition>(oldPositions.size());
+				for(int i = 0; i < oldPositions.size(); i++) {
+					// Der erste Datensatz ersetzt eventuell noch vorhandene ältere Datensätze, falls nach einem Absturz alte Segmente nicht gelöscht wurden
+					final byte type = i == 0 ? RECORD_REPLACE : RECORD_APPEND;
+					final byte[] data = readData(oldPositions.get(i));
+					positions.add(appendRecord(compacted, encodeRecord(type, entry.getKey(), data), data.length));
+				}
+				newPositions.put(entry.getKey(), positions);
+			}
+			compacted._channel.force(true);
+
+			synchronized(this) {
+				if(_closed || _failure != null) return;
+				final File target = new File(_directory, segmentName(targetNumber));
+				try {
+					// Die Dateien werden vor dem Umbenennen geschlossen, da geöffnete Dateien nicht auf allen Systemen umbenannt werden können
+					for(final Segment segment : sealedSegments.values()) {
+						segment._channel.close();
+						_segments.remove(segment._number);
+					}
+					compacted._channel.close();
+					Files.move(compactionFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					compactionFile = null;
+					compacted.reopen(target);
+				}
+				catch(IOException e) {
+					// Die abgeschlossenen Segmente sind noch vollständig vorhanden und werden beim nächsten Start wieder gelesen
+					fail(e);
+					return;
+				}
+				_segments.put(targetNumber, compacted);
+				for(final Map.Entry<String, List<RecordPosition>> entry : snapshot.entrySet()) {
+					final List<RecordPosition> oldPositions = entry.getValue();
+					final List<RecordPosition> current = _index.get(entry.getKey());
+					// Wurden die Datensätze inzwischen ersetzt oder gelöscht, sind die kopierten Datensätze ungültig
+					if(current == null || current.size() < oldPositions.size() || !current.subList(0, oldPositions.size()).equals(oldPositions)) continue;
+					final List<RecordPosition> positions = newPositions.get(entry.getKey());
+					for(int i = 0; i < positions.size(); i++) {
+						current.set(i, positions.get(i));
+						compacted._liveBytes += positions.get(i)._recordLength;
+					}
+				}
+				final Segment compactedSegment = compacted;
+				compacted = null;
+				// Von alt nach neu löschen, damit bei einem Absturz keine bereits ersetzten Datensätze wieder gültig werden
+				boolean olderSegmentsDeleted = true;
+				for(final Segment segment : sealedSegments.headMap(targetNumber).values()) {
+					if(!segment._file.delete()) {
+						debug.warning("Segment [" + segment._file + "] konnte nach der Kompaktierung nicht gelöscht werden");
+						olderSegmentsDeleted = false;
+					}
+				}
+				// Das neue Segment ist jetzt das älteste, die Löschdatensätze müssen bei der nächsten Kompaktierung nicht mehr übernommen werden
+				if(olderSegmentsDeleted) compactedSegment._deletedKeys.clear();
+				if(!_migratedLegacyFiles.isEmpty()) {
+					// Die übernommenen Datensätze stehen im aktiven Segment, nicht im kompaktierten Segment
+					try {
+						syncActiveSegment();
+					}
+					catch(IOException e) {
+						debug.warning("Fehler beim Synchronisieren des Parameterspeichers, übernommene Parameterdateien werden später umbenannt", e);
+					}
+				}
+				debug.info("Parameterspeicher kompaktiert: " + sealedSegments.size() + " Segmente durch [" + target.getName() + "] ersetzt");
+			}
+		}
+		catch(IOException e) {
+			debug.warning("Fehler bei der Kompaktierung des Parameterspeichers", e);
+		}
+		finally {
+			synchronized(this) {
+				_compactionRunning = false;
+			}
+			if(compacted != null) {
+				try {
+					compacted._channel.close();
+				}
+				catch(IOException ignored) {
+				}
+			}
+			if(compactionFile != null && !compactionFile.delete()) {
+				debug.warning("Unvollständige Kompaktierung [" + compactionFile + "] konnte nicht gelöscht werden");
+			}
+		}
+	}
+
+	/** Segmentdatei */
+	private static final class Segment {
+
+		private final long _number;
+
+		private File _file;
+
+		private FileChannel _channel;
+
+		/** Länge der gültigen Daten in der Datei */
+		private long _size;
+
+		/** Summe der Längen aller noch gültigen Datensätze */
+		private long _liveBytes;
+
+		/** Schlüssel, für die das Segment Löschdatensätze enthält */
+		private final Set<String> _deletedKeys = new HashSet<String>();
+
+		private Segment(final long number, final File file) throws IOException {
+			_number = number;
+			reopen(file);
+		}
+
+		private void reopen(final File file) throws IOException {
+			_file = file;
+			_channel = new RandomAccessFile(file, "rw").getChannel();
+		}
+	}
+
+	/** Position eines Datensatzes in einem Segment */
+	private static final class RecordPosition {
+
+		private final Segment _segment;
+
+		private final long _recordOffset;
+
+		private final int _recordLength;
+
+		private final long _dataOffset;
+
+		private final int _dataLength;
+
+		private RecordPosition(final Segment segment, final long recordOffset, final int recordLength, final long dataOffset, final int dataLength) {
+			_segment = segment;
+			_recordOffset = recordOffset;
+			_recordLength = recordLength;
+			_dataOffset = dataOffset;
+			_dataLength = dataLength;
+		}
+
+		@Override
+		public String toString() {
+			return _segment._number + ":" + _recordOffset;
+		}
+	}
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2016 by Kappich Systemberatung Aachen
+ *
+ * This file is part of de.kappich.puk.param.
+ *
+ * de.kappich.puk.param is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * de.kappich.puk.param is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with de.kappich.puk.param.  If not, see <http://www.gnu.org/licenses/>.
+
+ * Contact Information:
+ * Kappich Systemberatung
+ * Martin-Luther-Straße 14
+ * 52062 Aachen, Germany
+ * phone: +49 241 4090 436
+ * mail: <info@kappich.de>
+ */
+
+package de.kappich.puk.param.main;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prüft das Wiederherstellen des Index beim Öffnen, das Abschneiden unvollständiger Datensätze, die Kompaktierung und den Fehlerzustand von
+ * {@link PersistanceStore}.
+ *
+ * @author Kappich Systemberatung
+ * @version $Revision$
+ */
+public class PersistanceStoreTest {
+
+	/** Kleine Segmente, damit schon wenige Datensätze neue Segmente und Kompaktierungen auslösen */
+	private static final long MAX_SEGMENT_SIZE = 1024;
+
+	private File _directory;
+
+	private PersistanceStore _store;
+
+	@Before
+	public void setUp() throws Exception {
+		_directory = Files.createTempDirectory("parameter").toFile();
+		_store = new PersistanceStore(_directory, MAX_SEGMENT_SIZE);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		_store.close();
+		final File[] files = _directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		_directory.delete();
+	}
+
+	@Test
+	public void testWriteReadAndReopen() throws Exception {
+		_store.write("a", data(1, 10), false);
+		_store.write("a", data(2, 10), true);
+		_store.write("b", data(3, 10), true);
+		_store.write("b", data(4, 10), false);
+		_store.write("c", data(5, 10), false);
+		_store.remove("c");
+		assertRecords("a", data(1, 10), data(2, 10));
+		assertRecords("b", data(4, 10));
+		assertRecords("c");
+
+		reopen();
+		assertRecords("a", data(1, 10), data(2, 10));
+		assertRecords("b", data(4, 10));
+		assertRecords("c");
+	}
+
+	@Test
+	public void testRecordsSpanningSeveralSegments() throws Exception {
+		for(int i = 0; i < 20; i++) {
+			_store.write("a", data(i, 200), true);
+		}
+		assertTrue(getSegmentFiles().size() > 1);
+		reopen();
+		final byte[][] expected = new byte[20][];
+		for(int i = 0; i < 20; i++) {
+			expected[i] = data(i, 200);
+		}
+		assertRecords("a", expected);
+	}
+
+	@Test
+	public void testPartialLastRecordIsTruncated() throws Exception {
+		_store.write("a", data(1, 100), false);
+		_store.write("b", data(2, 100), false);
+		_store.close();
+		final File segment = getLastSegmentFile();
+		final long length = segment.length();
+		setLength(segment, length - 5);
+
+		reopen();
+		assertRecords("a", data(1, 100));
+		assertRecords("b");
+		// Der unvollständige Datensatz wurde abgeschnitten, neue Datensätze werden direkt dahinter geschrieben
+		assertEquals(length - (9 + 1 + 100 + 4), segment.length());
+		_store.write("c", data(3, 100), false);
+		reopen();
+		assertRecords("a", data(1, 100));
+		assertRecords("b");
+		assertRecords("c", data(3, 100));
+	}
+
+	@Test
+	public void testRecordWithWrongChecksumIsTruncated() throws Exception {
+		_store.write("a", data(1, 100), false);
+		_store.write("a", data(2, 100), true);
+		_store.close();
+		final File segment = getLastSegmentFile();
+		final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			file.seek(segment.length() - 20);
+			final int value = file.read();
+			file.seek(segment.length() - 20);
+			file.write(value ^ 0xff);
+		}
+		finally {
+			file.close();
+		}
+
+		reopen();
+		assertRecords("a", data(1, 100));
+	}
+
+	@Test
+	public void testIncompleteSegmentHeaderIsReinitialized() throws Exception {
+		_store.write("a", data(1, 100), false);
+		_store.write("b", data(2, 1000), false);
+		assertEquals(2, getSegmentFiles().size());
+		_store.close();
+		setLength(getLastSegmentFile(), 3);
+
+		reopen();
+		assertRecords("a", data(1, 100));
+		assertRecords("b");
+		_store.write("b", data(3, 100), false);
+		reopen();
+		assertRecords("b", data(3, 100));
+	}
+
+	@Test
+	public void testIncompleteCompactionFileIsDeleted() throws Exception {
+		_store.write("a", data(1, 100), false);
+		_store.close();
+		final File compactionFile = new File(_directory, "parameter_000001.plog.tmp");
+		Files.write(compactionFile.toPath(), data(7, 50));
+
+		reopen();
+		assertFalse(compactionFile.exists());
+		assertRecords("a", data(1, 100));
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		// Ein Schlüssel mit mehreren angehängten Datensätzen und viele Schlüssel, die danach gelöscht werden
+		_store.write("liste", data(100, 50), false);
+		_store.write("liste", data(101, 50), true);
+		_store.write("liste", data(102, 50), true);
+		for(int i = 0; i < 12; i++) {
+			_store.write("a" + i, data(i, 200), false);
+		}
+		assertFalse(_store.isCompactionRunning());
+		final File firstSegment = getSegmentFiles().get(0);
+		final byte[] firstSegmentContent = Files.readAllBytes(firstSegment.toPath());
+		final int numberOfSegments = getSegmentFiles().size();
+
+		final List<String> removedKeys = new ArrayList<String>();
+		for(int i = 0; i < 12 && !_store.isCompactionRunning() && firstSegment.exists(); i++) {
+			_store.remove("a" + i);
+			removedKeys.add("a" + i);
+		}
+		awaitCompaction();
+		assertFalse("Das älteste Segment wurde bei der Kompaktierung gelöscht", firstSegment.exists());
+		assertTrue(getSegmentFiles().size() < numberOfSegments);
+		assertCompactedRecords(removedKeys);
+
+		reopen();
+		assertCompactedRecords(removedKeys);
+
+		// Absturz nach dem Umbenennen des kompaktierten Segments, aber vor dem Löschen der älteren Segmente: Die Löschdatensätze im kompaktierten
+		// Segment verhindern, dass gelöschte Datensätze wieder gültig werden.
+		_store.close();
+		Files.write(firstSegment.toPath(), firstSegmentContent);
+		reopen();
+		assertCompactedRecords(removedKeys);
+	}
+
+	@Test
+	public void testCompactionKeepsConcurrentWrites() throws Exception {
+		for(int round = 0; round < 20; round++) {
+			for(int i = 0; i < 5; i++) {
+				_store.write("a" + i, data(round * 10 + i, 200), false);
+			}
+		}
+		awaitCompaction();
+		for(int i = 0; i < 5; i++) {
+			assertRecords("a" + i, data(190 + i, 200));
+		}
+		reopen();
+		awaitCompaction();
+		for(int i = 0; i < 5; i++) {
+			assertRecords("a" + i, data(190 + i, 200));
+		}
+		assertTrue(getSegmentFiles().size() <= 3);
+	}
+
+	@Test
+	public void testLegacyFileIsImportedAndRenamed() throws Exception {
+		_store.close();
+		final File legacyFile = new File(_directory, "alt.param");
+		Files.write(legacyFile.toPath(), data(5, 30));
+		reopen();
+
+		_store.importLegacyFile("neu", "alt.param");
+		assertRecords("neu", data(5, 30));
+		// Die Datei wird erst umbenannt, wenn die übernommenen Daten synchronisiert wurden
+		assertTrue(legacyFile.exists());
+		_store.close();
+		assertFalse(legacyFile.exists());
+		assertTrue(new File(_directory, "alt.param.migriert").exists());
+
+		reopen();
+		assertRecords("neu", data(5, 30));
+	}
+
+	@Test
+	public void testFailedStoreRejectsAccess() throws Exception {
+		_store.write("a", data(1, 10), false);
+		final IOException cause = new IOException("Test");
+		_store.fail(cause);
+		assertTrue(_store.isFailed());
+		assertFalse(_store.isClosed());
+		try {
+			_store.write("a", data(2, 10), true);
+			fail("Schreiben nach einem Fehler muss fehlschlagen");
+		}
+		catch(IOException expected) {
+			assertSame(cause, expected.getCause());
+		}
+		try {
+			_store.read("a");
+			fail("Lesen nach einem Fehler muss fehlschlagen");
+		}
+		catch(IOException expected) {
+			assertSame(cause, expected.getCause());
+		}
+
+		_store.close();
+		assertTrue(_store.isClosed());
+
+		// Die Daten sind beim nächsten Start wieder verfügbar
+		reopen();
+		assertRecords("a", data(1, 10));
+	}
+
+	@Test
+	public void testClosedStoreRejectsAccess() throws Exception {
+		_store.close();
+		assertTrue(_store.isClosed());
+		assertFalse(_store.isFailed());
+		try {
+			_store.write("a", data(1, 10), false);
+			fail("Schreiben nach dem Schließen muss fehlschlagen");
+		}
+		catch(IOException expected) {
+			assertNull(expected.getCause());
+		}
+	}
+
+	private void assertCompactedRecords(final List<String> removedKeys) throws IOException {
+		assertRecords("liste", data(100, 50), data(101, 50), data(102, 50));
+		for(int i = 0; i < 12; i++) {
+			final String key = "a" + i;
+			if(removedKeys.contains(key)) {
+				assertRecords(key);
+			}
+			else {
+				assertRecords(key, data(i, 200));
+			}
+		}
+	}
+
+	private void awaitCompaction() throws InterruptedException {
+		final long end = System.currentTimeMillis() + 10000;
+		while(_store.isCompactionRunning()) {
+			assertTrue("Kompaktierung wurde nicht beendet", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	private void reopen() throws IOException {
+		_store.close();
+		_store = new PersistanceStore(_directory, MAX_SEGMENT_SIZE);
+	}
+
+	private void assertRecords(final String key, final byte[]... expected) throws IOException {
+		final List<byte[]> records = _store.read(key);
+		assertEquals("Anzahl Datensätze von " + key, expected.length, records.size());
+		for(int i = 0; i < expected.length; i++) {
+			assertArrayEquals("Datensatz " + i + " von " + key, expected[i], records.get(i));
+		}
+	}
+
+	private List<File> getSegmentFiles() {
+		final List<File> result = new ArrayList<File>();
+		final File[] files = _directory.listFiles();
+		if(files != null) {
+			Arrays.sort(files);
+			for(File file : files) {
+				if(file.getName().endsWith(".plog")) result.add(file);
+			}
+		}
+		return result;
+	}
+
+	private File getLastSegmentFile() {
+		final List<File> segmentFiles = getSegmentFiles();
+		return segmentFiles.get(segmentFiles.size() - 1);
+	}
+
+	private static void setLength(final File file, final long length) throws IOException {
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(length);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static byte[] data(final int seed, final int length) {
+		final byte[] data = new byte[length];
+		for(int i = 0; i < length; i++) {
+			data[i] = (byte)(seed * 31 + i);
+		}
+		return data;
+	}
+}